@@ -14,6 +14,9 @@ import { ref, type Ref } from 'vue';
 import { ElMessageBox, ElMessage } from 'element-plus';
 import { renderMarkdown } from '../lib/formatters.js';
 
+/** 目录列举每页条数, 不超过服务端上限 1000。 */
+const FS_LIST_PAGE_SIZE = 500;
+
 interface FsItem {
   name: string;
   path: string;
@@ -55,13 +58,26 @@ export function useFileSystem(): {
   const previewHtml = ref('');
   const previewLoading = ref(false);
 
+  // /api/fs/list 始终分页: 按 X-Next-Cursor 逐页取完, 首页到达即渲染; 期间切换目录则丢弃旧请求的后续页
+  let listRequest = 0;
   const loadList = async (path?: string) => {
     if (path) workspaceCandidatePath.value = path;
     if (!workspaceCandidatePath.value) return;
+    const request = ++listRequest;
+    const url = '/api/fs/list?path=' + encodeURIComponent(workspaceCandidatePath.value)
+      + '&limit=' + FS_LIST_PAGE_SIZE;
     try {
-      const data: FsItem[] = await fetch('/api/fs/list?path=' + encodeURIComponent(workspaceCandidatePath.value))
-        .then((r) => { if (!r.ok) throw new Error('加载失败'); return r.json(); });
-      folderList.value = data;
+      let items: FsItem[] = [];
+      let cursor: string | null = null;
+      do {
+        const r = await fetch(cursor ? url + '&cursor=' + encodeURIComponent(cursor) : url);
+        if (!r.ok) throw new Error('加载失败');
+        const page: FsItem[] = await r.json();
+        if (request !== listRequest) return;
+        items = items.concat(page);
+        folderList.value = items;
+        cursor = r.headers.get('X-Next-Cursor');
+      } while (cursor);
     } catch (error) {
       ElMessage.error('加载目录失败: ' + (error as Error).message);
     }
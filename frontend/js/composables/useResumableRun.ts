@@ -66,6 +66,7 @@ export function useResumableRun(p: ResumableRunParams): {
   runStatus: Ref<string>;
   lastAppliedEventSeq: Ref<number>;
   reconnecting: Ref<boolean>;
+  queuePosition: Ref<number>;
   restoreActiveRun: (preferredSessionId: string) => Promise<void>;
   sendMessageStream: () => void;
   resetRunState: () => void;
@@ -74,6 +75,8 @@ export function useResumableRun(p: ResumableRunParams): {
   const runStatus = ref('');
   const lastAppliedEventSeq = ref(0);
   const reconnecting = ref(false);
+  // 槽位满时服务端推送 queued 事件的排队位置; 0 表示未排队或已开始执行
+  const queuePosition = ref(0);
 
   // 闭包变量(非 ref,同原 chat-panel.js 实现):每实例独立
   let currentES: ReturnType<typeof openResumableSse> | null = null;
@@ -175,6 +178,7 @@ export function useResumableRun(p: ResumableRunParams): {
     let terminal: { status?: string; errorMessage?: string } = {};
     try { terminal = JSON.parse(terminalData || '{}'); } catch (e) { terminal = {}; }
     runStatus.value = terminal.status || 'FAILED';
+    queuePosition.value = 0;
     p.sending.value = false;
     reconnecting.value = false;
     if (currentES) { currentES.close(); currentES = null; }
@@ -226,6 +230,13 @@ export function useResumableRun(p: ResumableRunParams): {
       rememberEventCursor(event);
       reconnecting.value = false;
       try { runStatus.value = JSON.parse(event.data).status || runStatus.value; } catch (e) { /* ignore */ }
+      if (runStatus.value !== 'PENDING') queuePosition.value = 0;
+    });
+    client.addEventListener('queued', (event: { lastEventId?: string | number; data: string }) => {
+      rememberEventCursor(event);
+      reconnecting.value = false;
+      if (runStatus.value && runStatus.value !== 'PENDING') return;
+      try { queuePosition.value = Number(JSON.parse(event.data).position) || 0; } catch (e) { /* ignore */ }
     });
     client.addEventListener('recall', (event: { lastEventId?: string | number; data: string }) => {
       rememberEventCursor(event);
@@ -414,10 +425,11 @@ export function useResumableRun(p: ResumableRunParams): {
     runStatus.value = '';
     lastAppliedEventSeq.value = 0;
     reconnecting.value = false;
+    queuePosition.value = 0;
   };
 
   return {
-    activeRunId, runStatus, lastAppliedEventSeq, reconnecting,
+    activeRunId, runStatus, lastAppliedEventSeq, reconnecting, queuePosition,
     restoreActiveRun, sendMessageStream, resetRunState,
   };
 }
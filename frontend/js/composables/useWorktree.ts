@@ -218,7 +218,8 @@ export function useWorktree(fs: FsIntegration): {
   const restoreWorktreeState = async (fsRoots: string[]): Promise<boolean> => {
     const saved = JSON.parse(localStorage.getItem('agent_worktree_state') || 'null');
     if (saved && saved.worktreePath && saved.currentBranch) {
-      const check = await fetch('/api/fs/list?path=' + encodeURIComponent(saved.worktreePath));
+      // 只确认目录仍可列举, 取一条即可; 完整列表由 fs.loadList 逐页加载
+      const check = await fetch('/api/fs/list?path=' + encodeURIComponent(saved.worktreePath) + '&limit=1');
       if (check.ok) {
         const wsRoot = fsRoots.find((root) => saved.originalWorkspacePath.startsWith(root));
         fs.selectedRoot.value = wsRoot || fsRoots[0];
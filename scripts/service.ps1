@@ -262,6 +262,8 @@ function Start-Application {
     New-Item -ItemType Directory -Path $LogDirectory -Force | Out-Null
     $javaExecutable = Join-Path $env:JAVA_HOME "bin\java.exe"
     $processArguments = @()
+    # refinery 召回点积使用 Vector API (incubator)；缺省该模块时回落标量实现。
+    $processArguments += @("--add-modules", "jdk.incubator.vector")
     $processArguments += Get-JavaOptions
     $processArguments += @("-jar", $RuntimeJar)
     if ($null -ne $Arguments) {
@@ -211,7 +211,9 @@ running_pid() {
 
 launch_app() {
     local pid
-    local -a java_options=()
+    # refinery 召回点积使用 Vector API (incubator)；缺省该模块时回落标量实现。
+    local -a java_options=(--add-modules jdk.incubator.vector)
+    local -a extra_java_options=()
     local -a app_arguments=("$@")
 
     if pid=$(running_pid); then
@@ -220,7 +222,8 @@ launch_app() {
     fi
 
     if [[ -n "${JAVA_OPTS:-}" ]]; then
-        read -r -a java_options <<< "$JAVA_OPTS"
+        read -r -a extra_java_options <<< "$JAVA_OPTS"
+        java_options+=("${extra_java_options[@]}")
     fi
 
     mkdir -p "$APP_DIR" "$LOG_DIR"
@@ -0,0 +1,21 @@
+package com.example.agentweb.app;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 会话消息的一个键集分页窗口（从最新往前翻）。
+ *
+ * <p>{@code messages} 按消息 ID 升序，可直接拼在已加载消息之前；{@code nextBeforeId}
+ * 是取更早一页的游标（本页最小消息 ID），没有更早消息时为 null。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Value
+public class ChatMessagePage {
+
+    List<ChatMessageView> messages;
+    Long nextBeforeId;
+}
@@ -1,6 +1,7 @@
 package com.example.agentweb.app;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
 /**
@@ -8,10 +9,14 @@ import lombok.Value;
  *
  * <p>字段名即前端 JSON 契约（原 {@code MessageDto} 形状），改名即破坏兼容。</p>
  *
+ * <p>分页窗口返回摘要投影：大块工具输出被截成预览，{@code summarized=true}，
+ * 展开时再按消息 ID 取全文。</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-02
  */
 @Value
+@AllArgsConstructor
 public class ChatMessageView {
 
     Long id;
@@ -22,4 +27,12 @@ public class ChatMessageView {
     /** 召回回放 JSON {@code {query,status,hits:[...]}}；仅命中过召回的 assistant 消息非空。 */
     @JsonInclude(JsonInclude.Include.NON_NULL)
     String recall;
+
+    /** 正文是否为省略了工具输出的摘要；完整正文为 null，不出现在 JSON 中。 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Boolean summarized;
+
+    public ChatMessageView(Long id, String role, String content, String timestamp, String recall) {
+        this(id, role, content, timestamp, recall, null);
+    }
 }
@@ -31,6 +31,23 @@ public interface ChatSessionQueryService {
      */
     List<ChatMessageView> findMessageViews(String sessionId);
 
+    /**
+     * 某会话最新往前的一页消息（键集分页），正文为省略大块工具输出的摘要投影；受用户隔离过滤。
+     *
+     * @param sessionId 会话 ID
+     * @param beforeId  只取 ID 小于它的消息；null 表示从最新一条开始
+     * @param limit     单页上限
+     * @return 消息页；会话不存在或当前用户不可见时返回 null
+     */
+    ChatMessagePage findMessagePage(String sessionId, Long beforeId, int limit);
+
+    /**
+     * 某会话内单条消息的完整正文，用于展开摘要；受用户隔离过滤。
+     *
+     * @return 消息视图；会话不可见或消息不属于该会话时返回 null
+     */
+    ChatMessageView findMessageView(String sessionId, long messageId);
+
     /**
      * 分享页视图（公开访问，不做用户隔离——token 即授权）。
      *
@@ -39,6 +56,30 @@ public interface ChatSessionQueryService {
      */
     SharedSessionView findSharedView(String shareToken);
 
+    /**
+     * 分享页视图，只带最新一页消息摘要（口径同 {@link #findMessagePage}），更早的消息由
+     * {@link #findSharedMessagePage} 按游标续取。
+     *
+     * @param shareToken 分享 token
+     * @param limit      首页消息上限
+     * @return 分享视图；token 无效时返回 null
+     */
+    SharedSessionView findSharedView(String shareToken, int limit);
+
+    /**
+     * 分享会话的一页消息，口径同 {@link #findMessagePage}，以 token 代替用户隔离。
+     *
+     * @return 消息页；token 无效时返回 null
+     */
+    ChatMessagePage findSharedMessagePage(String shareToken, Long beforeId, int limit);
+
+    /**
+     * 分享会话内单条消息的完整正文。
+     *
+     * @return 消息视图；token 无效或消息不属于该会话时返回 null
+     */
+    ChatMessageView findSharedMessageView(String shareToken, long messageId);
+
     /**
      * 查询某公开分享会话是否精确引用了指定图片路径。
      */
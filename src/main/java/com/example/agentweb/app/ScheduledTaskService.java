@@ -57,6 +57,7 @@ public interface ScheduledTaskService {
 
     /**
      * Execute a task immediately. Returns the created session ID.
+     * <p>接入准入调度时只负责排队, Agent 在槽位放行后于 {@code agentExecutor} 上执行, 本方法不等待结束.</p>
      * @param taskId 任务 ID
      * @return 触发后创建的会话 ID
      */
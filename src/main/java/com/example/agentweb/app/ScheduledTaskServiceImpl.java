@@ -6,6 +6,7 @@ import com.example.agentweb.app.agentrun.PromptAssemblyResult;
 import com.example.agentweb.app.agentrun.PromptAssemblyService;
 import com.example.agentweb.app.agentrun.RunForm;
 import com.example.agentweb.app.agentrun.RunRecallPolicyFactory;
+import com.example.agentweb.app.chatrun.ChatRunAdmissionScheduler;
 import com.example.agentweb.domain.auth.CurrentUserProvider;
 import com.example.agentweb.domain.refinery.SourceType;
 import com.example.agentweb.domain.shared.AgentType;
@@ -17,9 +18,11 @@ import com.example.agentweb.domain.schedule.ScheduledTaskRepository;
 import com.example.agentweb.domain.chat.SessionCache;
 import com.example.agentweb.domain.chat.SessionRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.util.List;
 
@@ -41,6 +44,7 @@ public class ScheduledTaskServiceImpl implements ScheduledTaskService {
     private final PromptAssemblyService promptAssemblyService;
     private final RunRecallPolicyFactory runRecallPolicyFactory;
     private final Clock clock;
+    private final ChatRunAdmissionScheduler admissionScheduler;
     private ScheduledTaskRegistrar taskRegistrar;
 
     public ScheduledTaskServiceImpl(ScheduledTaskRepository taskRepo,
@@ -51,6 +55,23 @@ public class ScheduledTaskServiceImpl implements ScheduledTaskService {
                                     PromptAssemblyService promptAssemblyService,
                                     RunRecallPolicyFactory runRecallPolicyFactory,
                                     @Qualifier("systemClock") Clock clock) {
+        this(taskRepo, sessionRepository, sessionCache, gateway, currentUserProvider,
+                promptAssemblyService, runRecallPolicyFactory, clock, null);
+    }
+
+    /**
+     * @param admissionScheduler 与 ChatRun 共享活跃槽位，任务在后台车道排队；为 null 时直接执行
+     */
+    @Autowired
+    public ScheduledTaskServiceImpl(ScheduledTaskRepository taskRepo,
+                                    SessionRepository sessionRepository,
+                                    SessionCache sessionCache,
+                                    AgentGateway gateway,
+                                    CurrentUserProvider currentUserProvider,
+                                    PromptAssemblyService promptAssemblyService,
+                                    RunRecallPolicyFactory runRecallPolicyFactory,
+                                    @Qualifier("systemClock") Clock clock,
+                                    ChatRunAdmissionScheduler admissionScheduler) {
         this.taskRepo = taskRepo;
         this.sessionRepository = sessionRepository;
         this.sessionCache = sessionCache;
@@ -59,6 +80,7 @@ public class ScheduledTaskServiceImpl implements ScheduledTaskService {
         this.promptAssemblyService = promptAssemblyService;
         this.runRecallPolicyFactory = runRecallPolicyFactory;
         this.clock = clock;
+        this.admissionScheduler = admissionScheduler;
     }
 
     /**
@@ -150,23 +172,56 @@ public class ScheduledTaskServiceImpl implements ScheduledTaskService {
         sessionRepository.addMessage(session.getId(), new ChatMessage("user", task.getPrompt()));
 
         final StreamChunkHandler handler = new StreamChunkHandler(sessionRepository, session.getId(), gateway, AgentType.CODEX);
-        PromptAssemblyResult prompt = assemblePrompt(task);
+        final PromptAssemblyResult prompt = assemblePrompt(task);
+
+        if (admissionScheduler == null) {
+            runAndRecord(task, session, handler, prompt);
+            return session.getId();
+        }
+        // 与交互式 ChatRun 共享活跃槽位: 槽位满时在后台车道排队, 放行后在 agentExecutor 上执行,
+        // 不占用调度线程等待
+        try {
+            admissionScheduler.submitBackground(task.getUserId(), new Runnable() {
+                @Override
+                public void run() {
+                    runAndRecord(task, session, handler, prompt);
+                }
+            });
+        } catch (RuntimeException e) {
+            recordFailure(task, session, e);
+            recordRun(task, session);
+        }
+        return session.getId();
+    }
 
+    private void runAndRecord(ScheduledTask task, ChatSession session, StreamChunkHandler handler,
+                              PromptAssemblyResult prompt) {
         try {
-            gateway.runStream(AgentType.CODEX, task.getWorkingDir(), prompt.getPrompt(),
-                    session.getId(), null, null,
-                    0L,
-                    handler.onChunk(null),
-                    handler.onExit(null));
+            runAgent(task, session, handler, prompt);
         } catch (Exception e) {
-            log.error("Scheduled task execution failed: {} ({})", task.getName(), task.getId(), e);
-            sessionRepository.addMessage(session.getId(), new ChatMessage("assistant", "[error] " + e.getMessage()));
+            recordFailure(task, session, e);
         }
+        recordRun(task, session);
+    }
+
+    private void recordFailure(ScheduledTask task, ChatSession session, Exception e) {
+        log.error("Scheduled task execution failed: {} ({})", task.getName(), task.getId(), e);
+        sessionRepository.addMessage(session.getId(), new ChatMessage("assistant", "[error] " + e.getMessage()));
+    }
 
+    private void recordRun(ScheduledTask task, ChatSession session) {
         task.recordRun(session.getId(), clock.instant());
         taskRepo.update(task);
         log.info("Scheduled task completed: {} -> session {}", task.getName(), session.getId());
-        return session.getId();
+    }
+
+    private void runAgent(ScheduledTask task, ChatSession session, StreamChunkHandler handler,
+                          PromptAssemblyResult prompt) throws IOException, InterruptedException {
+        gateway.runStream(AgentType.CODEX, task.getWorkingDir(), prompt.getPrompt(),
+                session.getId(), null, null,
+                0L,
+                handler.onChunk(null),
+                handler.onExit(null));
     }
 
     private PromptAssemblyResult assemblePrompt(ScheduledTask task) {
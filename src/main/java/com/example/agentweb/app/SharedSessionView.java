@@ -1,5 +1,7 @@
 package com.example.agentweb.app;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
 import java.util.List;
@@ -7,14 +9,25 @@ import java.util.List;
 /**
  * 分享页会话读模型（公开链接访问，无鉴权），供 {@code /api/share/{token}} 返回。
  *
+ * <p>按页加载时 {@code messages} 只是最新一页摘要，{@code nextBeforeId} 是取更早一页的游标。</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-02
  */
 @Value
+@AllArgsConstructor
 public class SharedSessionView {
 
     String title;
     String agentType;
     String createdAt;
     List<ChatMessageView> messages;
+
+    /** 更早一页的游标；全量加载或已无更早消息时为 null。 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long nextBeforeId;
+
+    public SharedSessionView(String title, String agentType, String createdAt, List<ChatMessageView> messages) {
+        this(title, agentType, createdAt, messages, null);
+    }
 }
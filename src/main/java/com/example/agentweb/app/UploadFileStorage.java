@@ -1,6 +1,7 @@
 package com.example.agentweb.app;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 会话附件上传存储端口。app / interfaces 层只见此端口, 文件系统落盘与内容嗅探由 infra 实现。
@@ -11,11 +12,14 @@ import java.io.IOException;
 public interface UploadFileStorage {
 
     /**
-     * 按会话隔离保存附件。
+     * 按会话隔离保存附件, 正文以流的形式交给实现边读边落盘。
      *
+     * @param content      附件内容流, 由调用方关闭
+     * @param declaredSize 请求声明的字节数
      * @return 落盘后的绝对路径
      */
-    String save(String workingDir, String sessionId, String originalName, byte[] content) throws IOException;
+    String save(String workingDir, String sessionId, String originalName,
+                InputStream content, long declaredSize) throws IOException;
 
     /** 会话删除时清理 {@code upload_file/<sessionId>/} 目录。 */
     void deleteSessionFiles(String workingDir, String sessionId);
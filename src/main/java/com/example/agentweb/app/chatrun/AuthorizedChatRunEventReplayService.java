@@ -4,12 +4,14 @@ import com.example.agentweb.domain.chatrun.ChatRun;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.domain.chatrun.ChatRunNotFoundException;
 import com.example.agentweb.domain.chatrun.ChatRunRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -20,6 +22,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p>本类不解释 Owner、Session 或业务来源；普通 Chat 与 Workbench 必须分别完成
  * 自己的授权，并把已授权聚合传入。Interface 层不得直接依赖本核心。</p>
  *
+ * <p>进行中的 Run 若游标仍落在 {@link ChatRunEventHub#findRecentAfter} 的内存尾部内，
+ * 直接从内存补发，不查询 SQLite；其余情况（游标过旧、Run 已结束、尾部已重置）回退到事件存储分页。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
@@ -33,6 +38,7 @@ public final class AuthorizedChatRunEventReplayService {
     private final ChatRunEventHub eventHub;
     private final TaskScheduler scheduler;
     private final ChatRunStreamSettings settings;
+    private final ChatRunTelemetry telemetry;
 
     public AuthorizedChatRunEventReplayService(
             ChatRunRepository runRepository,
@@ -40,12 +46,25 @@ public final class AuthorizedChatRunEventReplayService {
             ChatRunEventHub eventHub,
             TaskScheduler scheduler,
             ChatRunStreamSettings settings) {
+        this(runRepository, eventStore, eventHub, scheduler, settings,
+                ChatRunTelemetry.NOOP);
+    }
+
+    @Autowired
+    public AuthorizedChatRunEventReplayService(
+            ChatRunRepository runRepository,
+            ChatRunEventStore eventStore,
+            ChatRunEventHub eventHub,
+            TaskScheduler scheduler,
+            ChatRunStreamSettings settings,
+            ChatRunTelemetry telemetry) {
         this.runRepository = Objects.requireNonNull(
                 runRepository, "runRepository");
         this.eventStore = Objects.requireNonNull(eventStore, "eventStore");
         this.eventHub = Objects.requireNonNull(eventHub, "eventHub");
         this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
         this.settings = Objects.requireNonNull(settings, "settings");
+        this.telemetry = Objects.requireNonNull(telemetry, "telemetry");
     }
 
     public ChatRunStreamHandle subscribe(
@@ -58,11 +77,9 @@ public final class AuthorizedChatRunEventReplayService {
                     "event cursor must not be negative");
         }
         final ChatRunId runId = authorizedRun.getId();
-        long earliest = eventStore.findEarliestSequence(runId);
-        if (earliest > 0L && cursor < earliest - 1L) {
-            throw new EventCursorExpiredException(
-                    runId.getValue(), earliest,
-                    authorizedRun.getLastEventSeq());
+        boolean hot = eventHub.findRecentAfter(runId, cursor).isPresent();
+        if (!hot) {
+            requireRetained(authorizedRun, cursor);
         }
 
         final AtomicLong lastSent = new AtomicLong(cursor);
@@ -87,9 +104,22 @@ public final class AuthorizedChatRunEventReplayService {
         handleReference.set(handle);
 
         try {
-            long highWatermark = refresh(runId).getLastEventSeq();
-            replay(runId, cursor, highWatermark, lastSent,
-                    sink, handleReference);
+            Optional<List<ChatRunEvent>> recent = hot
+                    ? eventHub.findRecentAfter(runId, cursor)
+                    : Optional.<List<ChatRunEvent>>empty();
+            long highWatermark;
+            if (recent.isPresent()) {
+                highWatermark = replayRecent(recent.get(), cursor, lastSent,
+                        sink, handleReference);
+            } else {
+                if (hot) {
+                    requireRetained(authorizedRun, cursor);
+                }
+                highWatermark = refresh(runId).getLastEventSeq();
+                replay(runId, cursor, highWatermark, lastSent,
+                        sink, handleReference);
+            }
+            telemetry.replayServed(recent.isPresent());
             if (handle.isClosed()) {
                 return handle;
             }
@@ -111,6 +141,16 @@ public final class AuthorizedChatRunEventReplayService {
         }
     }
 
+    private void requireRetained(ChatRun authorizedRun, long cursor) {
+        ChatRunId runId = authorizedRun.getId();
+        long earliest = eventStore.findEarliestSequence(runId);
+        if (earliest > 0L && cursor < earliest - 1L) {
+            throw new EventCursorExpiredException(
+                    runId.getValue(), earliest,
+                    authorizedRun.getLastEventSeq());
+        }
+    }
+
     private ChatRun refresh(ChatRunId runId) {
         return runRepository.findById(runId)
                 .orElseThrow(() -> new ChatRunNotFoundException(
@@ -123,22 +163,47 @@ public final class AuthorizedChatRunEventReplayService {
             AtomicReference<ChatRunStreamHandle> handleReference) {
         long pageCursor = cursor;
         while (pageCursor < highWatermark) {
+            long started = System.nanoTime();
             List<ChatRunEvent> page = eventStore.findAfterThrough(
                     runId, pageCursor, highWatermark, REPLAY_PAGE_SIZE);
             if (page.isEmpty()) {
                 break;
             }
+            boolean terminal = false;
             for (ChatRunEvent event : page) {
                 deliverIfNew(event, lastSent, sink, handleReference);
                 pageCursor = event.getSeq();
                 if (isTerminal(event)) {
-                    return;
+                    terminal = true;
+                    break;
                 }
             }
-            if (page.size() < REPLAY_PAGE_SIZE) {
+            telemetry.replayPage(page.size(),
+                    Duration.ofNanos(System.nanoTime() - started));
+            if (terminal || page.size() < REPLAY_PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 从 Hub 内存尾部补发；尾部快照在订阅注册之后读取，之后发布的事件都会进入 live 队列。
+     *
+     * @return 已补发到的高水位，live 订阅从其后开始
+     */
+    private long replayRecent(
+            List<ChatRunEvent> recent, long cursor, AtomicLong lastSent,
+            ChatRunStreamSink sink,
+            AtomicReference<ChatRunStreamHandle> handleReference) {
+        long highWatermark = cursor;
+        for (ChatRunEvent event : recent) {
+            deliverIfNew(event, lastSent, sink, handleReference);
+            highWatermark = event.getSeq();
+            if (isTerminal(event)) {
                 break;
             }
         }
+        return highWatermark;
     }
 
     private void deliverIfNew(
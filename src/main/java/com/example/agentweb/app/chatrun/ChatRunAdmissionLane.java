@@ -0,0 +1,13 @@
+package com.example.agentweb.app.chatrun;
+
+/**
+ * 准入调度车道：交互式请求（聊天、工作台阶段）优先于后台定时任务。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public enum ChatRunAdmissionLane {
+
+    INTERACTIVE,
+    BACKGROUND
+}
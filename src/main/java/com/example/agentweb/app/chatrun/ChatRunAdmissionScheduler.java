@@ -0,0 +1,388 @@
+package com.example.agentweb.app.chatrun;
+
+import com.example.agentweb.domain.chatrun.ChatRunId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * 进程内 ChatRun 准入调度：活跃槽位满时排队而不是直接拒绝。
+ *
+ * <p>活跃数在内存中维护：首次使用时从数据库取一次仍活跃的 Run 作为初始占用，之后提交占槽、
+ * {@link ChatRunTerminalFinalizer} 提交后释放，不再每次提交都 COUNT。槽位满时进入有界队列
+ * （{@code max-queued-runs}），队列也满才抛 {@link RunCapacityExceededException}。
+ * 提交事务内的准入检查会预留一个位置，提交后由 {@link #submit} 兑现、回滚时由 {@link #withdrawAdmission}
+ * 归还，并发提交不会把队列挤过上限。</p>
+ *
+ * <p>出队顺序：交互车道优先，但后台车道有等待时，每连续放行 {@code interactive-admission-weight}
+ * 个交互请求就放行一个后台请求，避免定时任务饿死；同一车道内按用户轮转，一个用户的积压不会挡住
+ * 其他用户。</p>
+ *
+ * <p>Launcher 在锁外调用；调度器本身不依赖 launcher，由提交方随票据传入，避免与终态收口链路
+ * 形成构造循环。后台任务放行后交给 {@code agentExecutor} 执行，不占用提交方线程等待。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class ChatRunAdmissionScheduler {
+
+    private static final String PROBE_KEY = "\u0000probe";
+    private static final String BACKGROUND_KEY_PREFIX = "background:";
+
+    private final ChatRunStreamSettings settings;
+    private final ChatRunQueryService queryService;
+    private final Executor executor;
+    private final Object lock = new Object();
+    private final Set<String> admitted = new HashSet<String>();
+    private final Queues queues = new Queues();
+    private boolean seeded;
+    private int reserved;
+
+    public ChatRunAdmissionScheduler(ChatRunStreamSettings settings,
+                                     ChatRunQueryService queryService,
+                                     @Qualifier("agentExecutor") Executor executor) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.queryService = Objects.requireNonNull(queryService, "queryService");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * 提交事务内的准入检查，通过后预留一个位置；事务提交后调用 {@link #submit} 兑现，
+     * 回滚时必须调用 {@link #withdrawAdmission} 归还。
+     *
+     * @return 现在入队时的排队位置，0 表示有空闲槽位会立即启动
+     * @throws RunCapacityExceededException 槽位与队列均已满
+     */
+    public int requireAdmission(String userId, ChatRunAdmissionLane lane) {
+        Objects.requireNonNull(lane, "lane");
+        synchronized (lock) {
+            ensureSeeded();
+            requireQueueSpace();
+            Queues probe = queues.copy();
+            probe.add(new Ticket(PROBE_KEY, userKey(userId), lane, null));
+            int order = probe.orderOf(PROBE_KEY, interactiveWeight());
+            int position = Math.max(0, order + 1 + reserved - freeSlots());
+            reserved++;
+            return position;
+        }
+    }
+
+    /** 归还 {@link #requireAdmission} 预留的位置，提交事务回滚时调用。 */
+    public void withdrawAdmission() {
+        synchronized (lock) {
+            reserved = Math.max(0, reserved - 1);
+        }
+    }
+
+    /**
+     * 提交后把已持久化的 Run 交给调度器：有空闲槽位立即 launch，否则排队等待释放。
+     * 优先兑现 {@link #requireAdmission} 的预留；没有预留时按队列上限检查。
+     *
+     * @return 排队位置，0 表示已经启动
+     * @throws RunCapacityExceededException 没有预留且槽位与队列均已满
+     */
+    public int submit(final ChatRunId runId, String userId, ChatRunAdmissionLane lane,
+                      final ChatRunLauncher launcher) {
+        Objects.requireNonNull(runId, "runId");
+        Objects.requireNonNull(lane, "lane");
+        Objects.requireNonNull(launcher, "launcher");
+        Ticket ticket = new Ticket(runId.getValue(), userKey(userId), lane, new Runnable() {
+            @Override
+            public void run() {
+                launcher.launch(runId);
+            }
+        });
+        List<Ticket> ready;
+        int position;
+        synchronized (lock) {
+            ensureSeeded();
+            if (admitted.contains(ticket.key)) {
+                ready = Collections.singletonList(ticket);
+                position = 0;
+            } else {
+                if (reserved > 0) {
+                    reserved--;
+                } else {
+                    requireQueueSpace();
+                }
+                queues.add(ticket);
+                ready = drainAdmissible();
+                position = queues.orderOf(ticket.key, interactiveWeight()) + 1;
+            }
+        }
+        if (position > 0) {
+            log.info("chat-run-queued runId={} lane={} position={}",
+                    runId.getValue(), lane, position);
+        }
+        start(ready);
+        return position;
+    }
+
+    /**
+     * 在后台车道排队一个任务（定时任务）：放行后在 {@code agentExecutor} 上执行，结束时释放槽位。
+     * 调用方不等待放行，也不等待任务结束。
+     *
+     * @return 排队位置，0 表示已经交给执行器
+     * @throws RunCapacityExceededException 槽位与队列均已满
+     */
+    public int submitBackground(String userId, final Runnable work) {
+        Objects.requireNonNull(work, "work");
+        final String key = BACKGROUND_KEY_PREFIX + UUID.randomUUID();
+        Ticket ticket = new Ticket(key, userKey(userId), ChatRunAdmissionLane.BACKGROUND,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    work.run();
+                                } finally {
+                                    release(key);
+                                }
+                            }
+                        });
+                    }
+                });
+        List<Ticket> ready;
+        int position;
+        synchronized (lock) {
+            ensureSeeded();
+            requireQueueSpace();
+            queues.add(ticket);
+            ready = drainAdmissible();
+            position = queues.orderOf(key, interactiveWeight()) + 1;
+        }
+        if (position > 0) {
+            log.info("chat-run-background-queued userId={} position={}", userId, position);
+        }
+        start(ready);
+        return position;
+    }
+
+    /** Run 首次终态事务提交后调用：释放槽位或撤销排队票据，并放行后续排队者。 */
+    public void release(ChatRunId runId) {
+        if (runId != null) {
+            release(runId.getValue());
+        }
+    }
+
+    /** 当前占用的活跃槽位数。 */
+    public int activeCount() {
+        synchronized (lock) {
+            return admitted.size();
+        }
+    }
+
+    /** Run 当前的排队位置，1 基；已启动、已撤销或不在本调度器中时返回 0。 */
+    public int positionOf(ChatRunId runId) {
+        if (runId == null) {
+            return 0;
+        }
+        synchronized (lock) {
+            return queues.orderOf(runId.getValue(), interactiveWeight()) + 1;
+        }
+    }
+
+    /** 当前排队等待的票据数。 */
+    public int queuedCount() {
+        synchronized (lock) {
+            return queues.size();
+        }
+    }
+
+    private void release(String key) {
+        List<Ticket> ready;
+        synchronized (lock) {
+            if (admitted.remove(key)) {
+                ready = drainAdmissible();
+            } else {
+                queues.remove(key);
+                ready = Collections.emptyList();
+            }
+        }
+        start(ready);
+    }
+
+    private List<Ticket> drainAdmissible() {
+        List<Ticket> ready = new ArrayList<Ticket>();
+        while (freeSlots() > 0) {
+            Ticket next = queues.poll(interactiveWeight());
+            if (next == null) {
+                break;
+            }
+            admitted.add(next.key);
+            ready.add(next);
+        }
+        return ready;
+    }
+
+    private void start(List<Ticket> ready) {
+        for (Ticket ticket : ready) {
+            try {
+                ticket.start.run();
+            } catch (RuntimeException failure) {
+                log.warn("chat-run-admission-start-failed key={} reason={}",
+                        ticket.key, failure.getMessage(), failure);
+                release(ticket.key);
+            }
+        }
+    }
+
+    private void ensureSeeded() {
+        if (!seeded) {
+            admitted.addAll(queryService.findActiveRunIds());
+            seeded = true;
+        }
+    }
+
+    /** 排队票据与未兑现的预留先占空闲槽位，剩余部分计入队列上限。 */
+    private void requireQueueSpace() {
+        int maxQueued = Math.max(0, settings.getMaxQueuedRuns());
+        int waiting = queues.size() + reserved - Math.max(0, freeSlots());
+        if (waiting >= maxQueued) {
+            throw new RunCapacityExceededException(capacity(), maxQueued);
+        }
+    }
+
+    private int freeSlots() {
+        return capacity() - admitted.size();
+    }
+
+    private int capacity() {
+        return Math.max(1, settings.getMaxActiveRuns());
+    }
+
+    private int interactiveWeight() {
+        return Math.max(1, settings.getInteractiveAdmissionWeight());
+    }
+
+    private static String userKey(String userId) {
+        return userId == null ? "" : userId;
+    }
+
+    private static final class Ticket {
+        final String key;
+        final String userKey;
+        final ChatRunAdmissionLane lane;
+        final Runnable start;
+
+        Ticket(String key, String userKey, ChatRunAdmissionLane lane, Runnable start) {
+            this.key = key;
+            this.userKey = userKey;
+            this.lane = lane;
+            this.start = start;
+        }
+    }
+
+    /** 两条车道，每条车道内按用户插入顺序轮转；非线程安全，由外层锁保护。 */
+    private static final class Queues {
+
+        private final Map<ChatRunAdmissionLane, LinkedHashMap<String, ArrayDeque<Ticket>>> lanes =
+                new EnumMap<ChatRunAdmissionLane, LinkedHashMap<String, ArrayDeque<Ticket>>>(
+                        ChatRunAdmissionLane.class);
+        private int interactiveStreak;
+        private int size;
+
+        Queues() {
+            for (ChatRunAdmissionLane lane : ChatRunAdmissionLane.values()) {
+                lanes.put(lane, new LinkedHashMap<String, ArrayDeque<Ticket>>());
+            }
+        }
+
+        Queues copy() {
+            Queues copy = new Queues();
+            for (Map.Entry<ChatRunAdmissionLane, LinkedHashMap<String, ArrayDeque<Ticket>>> lane
+                    : lanes.entrySet()) {
+                LinkedHashMap<String, ArrayDeque<Ticket>> target = copy.lanes.get(lane.getKey());
+                for (Map.Entry<String, ArrayDeque<Ticket>> user : lane.getValue().entrySet()) {
+                    target.put(user.getKey(), new ArrayDeque<Ticket>(user.getValue()));
+                }
+            }
+            copy.interactiveStreak = interactiveStreak;
+            copy.size = size;
+            return copy;
+        }
+
+        void add(Ticket ticket) {
+            lanes.get(ticket.lane).computeIfAbsent(ticket.userKey, key -> new ArrayDeque<Ticket>())
+                    .addLast(ticket);
+            size++;
+        }
+
+        boolean remove(String key) {
+            for (LinkedHashMap<String, ArrayDeque<Ticket>> users : lanes.values()) {
+                Iterator<ArrayDeque<Ticket>> queued = users.values().iterator();
+                while (queued.hasNext()) {
+                    ArrayDeque<Ticket> tickets = queued.next();
+                    if (tickets.removeIf(ticket -> ticket.key.equals(key))) {
+                        if (tickets.isEmpty()) {
+                            queued.remove();
+                        }
+                        size--;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        Ticket poll(int interactiveWeight) {
+            boolean interactiveWaiting = !lanes.get(ChatRunAdmissionLane.INTERACTIVE).isEmpty();
+            boolean backgroundWaiting = !lanes.get(ChatRunAdmissionLane.BACKGROUND).isEmpty();
+            ChatRunAdmissionLane lane;
+            if (interactiveWaiting && (!backgroundWaiting || interactiveStreak < interactiveWeight)) {
+                lane = ChatRunAdmissionLane.INTERACTIVE;
+                interactiveStreak = backgroundWaiting ? interactiveStreak + 1 : 0;
+            } else if (backgroundWaiting) {
+                lane = ChatRunAdmissionLane.BACKGROUND;
+                interactiveStreak = 0;
+            } else {
+                return null;
+            }
+            LinkedHashMap<String, ArrayDeque<Ticket>> users = lanes.get(lane);
+            Map.Entry<String, ArrayDeque<Ticket>> turn = users.entrySet().iterator().next();
+            ArrayDeque<Ticket> tickets = users.remove(turn.getKey());
+            Ticket next = tickets.pollFirst();
+            if (!tickets.isEmpty()) {
+                users.put(turn.getKey(), tickets);
+            }
+            size--;
+            return next;
+        }
+
+        /** 模拟出队顺序，返回 {@code key} 的 0 基序号；不存在时返回 -1。 */
+        int orderOf(String key, int interactiveWeight) {
+            Queues simulation = copy();
+            for (int order = 0; ; order++) {
+                Ticket next = simulation.poll(interactiveWeight);
+                if (next == null) {
+                    return -1;
+                }
+                if (next.key.equals(key)) {
+                    return order;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
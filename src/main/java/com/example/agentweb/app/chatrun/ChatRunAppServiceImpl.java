@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -61,6 +62,7 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
     private final ChatRunRuntimeHandleStore handleStore;
     private final RuntimeProfileSelector profileSelector;
     private final ChatRunRuntimeSelectionStore selectionStore;
+    private final ChatRunAdmissionScheduler admissionScheduler;
 
     /**
      * Source-compatible legacy construction path. The gateway is intentionally ignored;
@@ -105,7 +107,6 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
                 null, null);
     }
 
-    @Autowired
     public ChatRunAppServiceImpl(SessionRepository sessionRepository,
                                  ChatRunRepository runRepository,
                                  ChatRunEventStore eventStore,
@@ -123,6 +124,34 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
                                  ChatRunRuntimeHandleStore handleStore,
                                  RuntimeProfileSelector profileSelector,
                                  ChatRunRuntimeSelectionStore selectionStore) {
+        this(sessionRepository, runRepository, eventStore, eventAppender, launcher,
+                queryService, idGenerator, clock, settings, activityGuard,
+                submissionExecutor, agentCatalogService, terminalFinalizer,
+                executionGateway, handleStore, profileSelector, selectionStore, null);
+    }
+
+    /**
+     * @param admissionScheduler 进程内准入调度；为 null 时退回按数据库活跃数硬拒绝、提交后直接 launch
+     */
+    @Autowired
+    public ChatRunAppServiceImpl(SessionRepository sessionRepository,
+                                 ChatRunRepository runRepository,
+                                 ChatRunEventStore eventStore,
+                                 ChatRunEventAppender eventAppender,
+                                 ChatRunLauncher launcher,
+                                 ChatRunQueryService queryService,
+                                 ChatRunIdGenerator idGenerator,
+                                 Clock clock,
+                                 ChatRunStreamSettings settings,
+                                 ChatRunActivityGuard activityGuard,
+                                 ChatRunSubmissionExecutor submissionExecutor,
+                                 AgentCatalogService agentCatalogService,
+                                 ChatRunTerminalFinalizer terminalFinalizer,
+                                 AgentExecutionGateway executionGateway,
+                                 ChatRunRuntimeHandleStore handleStore,
+                                 RuntimeProfileSelector profileSelector,
+                                 ChatRunRuntimeSelectionStore selectionStore,
+                                 ChatRunAdmissionScheduler admissionScheduler) {
         this.sessionRepository = sessionRepository;
         this.runRepository = runRepository;
         this.eventStore = eventStore;
@@ -140,6 +169,7 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
         this.handleStore = handleStore;
         this.profileSelector = profileSelector;
         this.selectionStore = selectionStore;
+        this.admissionScheduler = admissionScheduler;
     }
 
     /**
@@ -188,10 +218,8 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
             return ChatRunSubmission.from(duplicateRun, true);
         }
         agentCatalogService.requireChatAvailable(session.getAgentType(), session.getEnv());
-        int capacity = Math.max(1, settings.getMaxActiveRuns());
-        if (queryService.countActiveRuns() >= capacity) {
-            throw new RunCapacityExceededException(capacity);
-        }
+        final String userId = session.getUserId();
+        int queuePosition = requireAdmission(userId);
         activityGuard.requireInactive(command.getSessionId());
         Instant now = clock.instant();
         long userMessageId = sessionRepository.addMessageReturningId(command.getSessionId(),
@@ -207,15 +235,24 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
                     command.getModel(), command.getReasoningEffort());
             pendingSelection = selection;
         }
-        eventAppender.appendToNewRun(run, Collections.singletonList(
-                new ChatRunEventDraft("run_status", statusPayload(run))), now);
+        List<ChatRunEventDraft> drafts = new ArrayList<ChatRunEventDraft>(2);
+        drafts.add(new ChatRunEventDraft("run_status", statusPayload(run)));
+        if (queuePosition > 0) {
+            drafts.add(new ChatRunEventDraft("queued", queuedPayload(queuePosition)));
+        }
+        eventAppender.appendToNewRun(run, drafts, now);
         if (pendingSelection != null) {
             selectionStore.save(run.getId(), pendingSelection);
         }
         eventAppender.afterCommit(new Runnable() {
             @Override
             public void run() {
-                launcher.launch(run.getId());
+                if (admissionScheduler == null) {
+                    launcher.launch(run.getId());
+                } else {
+                    admissionScheduler.submit(run.getId(), userId,
+                            ChatRunAdmissionLane.INTERACTIVE, launcher);
+                }
             }
         });
         return ChatRunSubmission.from(run, false);
@@ -225,7 +262,8 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
     @Transactional(readOnly = true)
     public ChatRunView find(String runId) {
         ChatRun run = requireAuthorizedRun(ChatRunId.of(runId));
-        return ChatRunView.from(run, eventStore.findEarliestSequence(run.getId()));
+        return ChatRunView.from(run, eventStore.findEarliestSequence(run.getId()),
+                queuePosition(run.getId()));
     }
 
     @Override
@@ -254,7 +292,8 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
                 });
             }
         }
-        return ChatRunView.from(run, eventStore.findEarliestSequence(run.getId()));
+        return ChatRunView.from(run, eventStore.findEarliestSequence(run.getId()),
+                queuePosition(run.getId()));
     }
 
     private void requestRuntimeStop(ChatRunId runId) {
@@ -272,6 +311,33 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
         }
     }
 
+    /**
+     * 返回提交后的预计排队位置，0 表示立即启动；槽位与队列均满时拒绝。
+     * 调度器预留的位置在事务未提交时归还。
+     */
+    private int requireAdmission(String userId) {
+        if (admissionScheduler != null) {
+            int position = admissionScheduler.requireAdmission(
+                    userId, ChatRunAdmissionLane.INTERACTIVE);
+            eventAppender.unlessCommitted(new Runnable() {
+                @Override
+                public void run() {
+                    admissionScheduler.withdrawAdmission();
+                }
+            });
+            return position;
+        }
+        int capacity = Math.max(1, settings.getMaxActiveRuns());
+        if (queryService.countActiveRuns() >= capacity) {
+            throw new RunCapacityExceededException(capacity);
+        }
+        return 0;
+    }
+
+    private int queuePosition(ChatRunId runId) {
+        return admissionScheduler == null ? 0 : admissionScheduler.positionOf(runId);
+    }
+
     private ChatRun requireAuthorizedRun(ChatRunId runId) {
         ChatRun run = runRepository.findById(runId)
                 .orElseThrow(() -> new ChatRunNotFoundException(runId.getValue()));
@@ -295,4 +361,8 @@ public class ChatRunAppServiceImpl implements ChatRunAppService {
     private String statusPayload(ChatRun run) {
         return "{\"status\":\"" + run.getStatus().name() + "\"}";
     }
+
+    private String queuedPayload(int position) {
+        return "{\"position\":" + position + "}";
+    }
 }
@@ -47,6 +47,10 @@ public class ChatRunEventAppender {
         afterCommitExecutor.execute(action);
     }
 
+    public void unlessCommitted(Runnable action) {
+        afterCommitExecutor.executeUnlessCommitted(action);
+    }
+
     private List<ChatRunEvent> persistAndPublish(ChatRun run, EventSequenceRange range,
                                                 List<ChatRunEventDraft> drafts, Instant now) {
         final List<ChatRunEvent> events = eventStore.appendAssigned(run.getId(), range, drafts, now);
@@ -3,8 +3,8 @@ package com.example.agentweb.app.chatrun;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import org.springframework.scheduling.TaskScheduler;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +27,7 @@ public final class ChatRunEventBuffer implements AutoCloseable {
     private final int flushIntervalMs;
     private final int flushMaxEvents;
     private final int flushMaxBytes;
+    private final ChatRunTelemetry telemetry;
     private final List<ChatRunEventDraft> pending = new ArrayList<ChatRunEventDraft>();
     private int pendingBytes;
     private ScheduledFuture<?> scheduledFlush;
@@ -39,6 +40,17 @@ public final class ChatRunEventBuffer implements AutoCloseable {
                               ChatRunStreamSettings settings,
                               Clock clock,
                               Consumer<RuntimeException> failureConsumer) {
+        this(runId, lifecycleService, scheduler, settings, clock, failureConsumer,
+                ChatRunTelemetry.NOOP);
+    }
+
+    public ChatRunEventBuffer(ChatRunId runId,
+                              ChatRunLifecycleService lifecycleService,
+                              TaskScheduler scheduler,
+                              ChatRunStreamSettings settings,
+                              Clock clock,
+                              Consumer<RuntimeException> failureConsumer,
+                              ChatRunTelemetry telemetry) {
         this.runId = runId;
         this.lifecycleService = lifecycleService;
         this.scheduler = scheduler;
@@ -47,13 +59,14 @@ public final class ChatRunEventBuffer implements AutoCloseable {
         this.flushIntervalMs = Math.max(1, settings.getFlushIntervalMs());
         this.flushMaxEvents = Math.max(1, settings.getFlushMaxEvents());
         this.flushMaxBytes = Math.max(1, settings.getFlushMaxBytes());
+        this.telemetry = telemetry;
     }
 
     public synchronized void append(String eventType, String payload) {
         requireWritable();
         ChatRunEventDraft draft = new ChatRunEventDraft(eventType, payload);
         pending.add(draft);
-        pendingBytes += payload.getBytes(StandardCharsets.UTF_8).length;
+        pendingBytes += draft.getPayloadSize();
         scheduleIfNeeded();
         if (pending.size() >= flushMaxEvents || pendingBytes >= flushMaxBytes) {
             flushPending();
@@ -107,11 +120,15 @@ public final class ChatRunEventBuffer implements AutoCloseable {
             return;
         }
         List<ChatRunEventDraft> batch = new ArrayList<ChatRunEventDraft>(pending);
+        int batchBytes = pendingBytes;
         pending.clear();
         pendingBytes = 0;
         cancelScheduledFlush();
         try {
+            long started = System.nanoTime();
             lifecycleService.appendBatch(runId, batch);
+            telemetry.bufferFlushed(batch.size(), batchBytes,
+                    Duration.ofNanos(System.nanoTime() - started));
         } catch (RuntimeException ex) {
             markFailed(ex);
             throw ex;
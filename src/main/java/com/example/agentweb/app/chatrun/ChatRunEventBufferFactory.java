@@ -1,6 +1,7 @@
 package com.example.agentweb.app.chatrun;
 
 import com.example.agentweb.domain.chatrun.ChatRunId;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
@@ -20,19 +21,30 @@ public class ChatRunEventBufferFactory {
     private final TaskScheduler scheduler;
     private final ChatRunStreamSettings settings;
     private final Clock clock;
+    private final ChatRunTelemetry telemetry;
 
     public ChatRunEventBufferFactory(ChatRunLifecycleService lifecycleService,
                                      TaskScheduler scheduler,
                                      ChatRunStreamSettings settings,
                                      Clock clock) {
+        this(lifecycleService, scheduler, settings, clock, ChatRunTelemetry.NOOP);
+    }
+
+    @Autowired
+    public ChatRunEventBufferFactory(ChatRunLifecycleService lifecycleService,
+                                     TaskScheduler scheduler,
+                                     ChatRunStreamSettings settings,
+                                     Clock clock,
+                                     ChatRunTelemetry telemetry) {
         this.lifecycleService = lifecycleService;
         this.scheduler = scheduler;
         this.settings = settings;
         this.clock = clock;
+        this.telemetry = telemetry;
     }
 
     public ChatRunEventBuffer open(ChatRunId runId, Consumer<RuntimeException> failureConsumer) {
         return new ChatRunEventBuffer(runId, lifecycleService, scheduler, settings, clock,
-                failureConsumer);
+                failureConsumer, telemetry);
     }
 }
@@ -5,6 +5,9 @@ import lombok.Getter;
 /**
  * Unsequenced public event payload waiting to be appended to one run stream.
  *
+ * <p>The UTF-8 payload size is measured once here, so the buffer's flush threshold and the
+ * persisted {@code payload_size} column share one value without re-encoding the payload.</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-22
  */
@@ -13,6 +16,7 @@ public final class ChatRunEventDraft {
 
     private final String eventType;
     private final String payload;
+    private final int payloadSize;
 
     public ChatRunEventDraft(String eventType, String payload) {
         if (eventType == null || eventType.trim().isEmpty()) {
@@ -23,5 +27,32 @@ public final class ChatRunEventDraft {
         }
         this.eventType = eventType.trim();
         this.payload = payload;
+        this.payloadSize = utf8Length(payload);
+    }
+
+    /**
+     * Counts UTF-8 bytes without allocating; a lone surrogate counts as one byte, matching the
+     * {@code '?'} replacement {@link String#getBytes(java.nio.charset.Charset)} would emit.
+     */
+    static int utf8Length(String text) {
+        int bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
     }
 }
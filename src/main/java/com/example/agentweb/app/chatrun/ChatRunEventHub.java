@@ -3,6 +3,7 @@ package com.example.agentweb.app.chatrun;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Application port for in-process fan-out after event transactions commit.
@@ -18,6 +19,13 @@ public interface ChatRunEventHub {
 
     int subscriberCount(ChatRunId runId);
 
+    /**
+     * Events after {@code afterExclusive} from this instance's in-memory replay tail. Present only
+     * while the run is live and the tail still holds every published event after the cursor;
+     * callers fall back to {@link ChatRunEventStore} otherwise.
+     */
+    Optional<List<ChatRunEvent>> findRecentAfter(ChatRunId runId, long afterExclusive);
+
     /** Live gauge: total open subscribers across every run on this instance. */
     int totalSubscriberCount();
 
@@ -10,10 +10,16 @@ import com.example.agentweb.app.runtime.port.RuntimeTermination;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 将已通过 Handle fencing 的公共 Runtime 事件投影为可恢复 ChatRun 事件并收口终态。
@@ -21,6 +27,7 @@ import java.util.Objects;
  * @author alex
  * @since 2026-08-01
  */
+@Slf4j
 final class ChatRunRuntimeEventProcessor {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -29,12 +36,24 @@ final class ChatRunRuntimeEventProcessor {
     private final ChatRunLifecycleService lifecycleService;
     private final AgentExecutionGateway executionGateway;
     private final ChatRunRuntimeTerminationReconciler terminationReconciler;
+    private final ChatRunTelemetry telemetry;
+    private final Clock clock;
+    private final ChatRunRuntimeOutputCheckpointer checkpointer;
+    private final Executor checkpointExecutor;
+    private final AtomicBoolean checkpointInFlight = new AtomicBoolean();
+    private volatile Instant spawnedAt;
+    private boolean firstOutputReported;
+    private int eventsSinceCheckpoint;
 
     ChatRunRuntimeEventProcessor(ChatRunId runId,
                                  ChatRunLifecycleService lifecycleService,
                                  AgentExecutionGateway executionGateway,
                                  ChatRunRuntimeTerminationReconciler
-                                         terminationReconciler) {
+                                         terminationReconciler,
+                                 ChatRunTelemetry telemetry,
+                                 Clock clock,
+                                 ChatRunRuntimeOutputCheckpointer checkpointer,
+                                 Executor checkpointExecutor) {
         this.runId = Objects.requireNonNull(runId, "runId");
         this.lifecycleService = Objects.requireNonNull(
                 lifecycleService, "lifecycleService");
@@ -42,6 +61,16 @@ final class ChatRunRuntimeEventProcessor {
                 executionGateway, "executionGateway");
         this.terminationReconciler = Objects.requireNonNull(
                 terminationReconciler, "terminationReconciler");
+        this.telemetry = Objects.requireNonNull(telemetry, "telemetry");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.checkpointer = Objects.requireNonNull(checkpointer, "checkpointer");
+        this.checkpointExecutor = Objects.requireNonNull(
+                checkpointExecutor, "checkpointExecutor");
+    }
+
+    /** 进程拉起后调用；首条 OUTPUT 事件据此报告拉起到首行输出的耗时。 */
+    void markSpawned(Instant spawnedAt) {
+        this.spawnedAt = spawnedAt;
     }
 
     void process(RuntimeHandle handle, RuntimeEvent event) {
@@ -53,6 +82,7 @@ final class ChatRunRuntimeEventProcessor {
                 appendRuntimeEvent("runtime_started", event);
                 return;
             case OUTPUT:
+                reportFirstOutput();
                 appendSemanticEvents(event);
                 return;
             case DIAGNOSTIC:
@@ -71,6 +101,15 @@ final class ChatRunRuntimeEventProcessor {
         }
     }
 
+    private void reportFirstOutput() {
+        Instant spawned = spawnedAt;
+        if (firstOutputReported || spawned == null) {
+            return;
+        }
+        firstOutputReported = true;
+        telemetry.firstProviderOutput(Duration.between(spawned, clock.instant()));
+    }
+
     private void appendRuntimeEvent(String eventType, RuntimeEvent event) {
         Map<String, Object> payload = new LinkedHashMap<String, Object>();
         payload.put("runtimeSequence", Long.valueOf(event.getSequence()));
@@ -86,9 +125,45 @@ final class ChatRunRuntimeEventProcessor {
             payload.putAll(semantic.getData());
             lifecycleService.append(runId, semantic.getEventType(),
                     serialize(payload));
+            eventsSinceCheckpoint++;
+        }
+        checkpointIfDue();
+    }
+
+    /**
+     * 检查点只是恢复加速，交给后台执行器写，不占用 Runtime 事件回调线程；写失败不影响 Run，
+     * 下一个间隔会从同一位置重试。同一 Run 同时最多一个检查点在写，未写完时到期的间隔顺延。
+     */
+    private void checkpointIfDue() {
+        int interval = checkpointer.checkpointIntervalEvents();
+        if (interval <= 0 || eventsSinceCheckpoint < interval
+                || !checkpointInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        eventsSinceCheckpoint = 0;
+        try {
+            checkpointExecutor.execute(this::writeCheckpoint);
+        } catch (RuntimeException failure) {
+            checkpointInFlight.set(false);
+            logCheckpointFailure(failure);
         }
     }
 
+    private void writeCheckpoint() {
+        try {
+            checkpointer.checkpoint(runId);
+        } catch (RuntimeException failure) {
+            logCheckpointFailure(failure);
+        } finally {
+            checkpointInFlight.set(false);
+        }
+    }
+
+    private void logCheckpointFailure(RuntimeException failure) {
+        log.warn("runtime-output-checkpoint-failed runId={} failureType={} message={}",
+                runId.getValue(), failure.getClass().getSimpleName(), failure.getMessage());
+    }
+
     private void finalizeTermination(RuntimeHandle handle) {
         RuntimeObservation observation = executionGateway.observe(handle);
         if (observation.getState() != RuntimeState.TERMINATED
@@ -12,6 +12,8 @@ import com.example.agentweb.domain.chatrun.ChatRunRepository;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 
@@ -35,6 +37,8 @@ public final class ChatRunRuntimeLauncher implements ChatRunLauncher {
     private final ChatRunRuntimeTerminationReconciler terminationReconciler;
     private final Clock clock;
     private final Executor executor;
+    private final ChatRunTelemetry telemetry;
+    private final ChatRunRuntimeOutputCheckpointer checkpointer;
 
     public ChatRunRuntimeLauncher(ChatRunRepository runRepository,
                                   ExecutionPlanProviderRegistry planProviderRegistry,
@@ -45,6 +49,37 @@ public final class ChatRunRuntimeLauncher implements ChatRunLauncher {
                                           terminationReconciler,
                                   Clock clock,
                                   Executor executor) {
+        this(runRepository, planProviderRegistry, executionGateway, handleStore,
+                lifecycleService, terminationReconciler, clock, executor,
+                ChatRunTelemetry.NOOP);
+    }
+
+    public ChatRunRuntimeLauncher(ChatRunRepository runRepository,
+                                  ExecutionPlanProviderRegistry planProviderRegistry,
+                                  AgentExecutionGateway executionGateway,
+                                  ChatRunRuntimeHandleStore handleStore,
+                                  ChatRunLifecycleService lifecycleService,
+                                  ChatRunRuntimeTerminationReconciler
+                                          terminationReconciler,
+                                  Clock clock,
+                                  Executor executor,
+                                  ChatRunTelemetry telemetry) {
+        this(runRepository, planProviderRegistry, executionGateway, handleStore,
+                lifecycleService, terminationReconciler, clock, executor,
+                telemetry, ChatRunRuntimeOutputCheckpointer.NONE);
+    }
+
+    public ChatRunRuntimeLauncher(ChatRunRepository runRepository,
+                                  ExecutionPlanProviderRegistry planProviderRegistry,
+                                  AgentExecutionGateway executionGateway,
+                                  ChatRunRuntimeHandleStore handleStore,
+                                  ChatRunLifecycleService lifecycleService,
+                                  ChatRunRuntimeTerminationReconciler
+                                          terminationReconciler,
+                                  Clock clock,
+                                  Executor executor,
+                                  ChatRunTelemetry telemetry,
+                                  ChatRunRuntimeOutputCheckpointer checkpointer) {
         this.runRepository = Objects.requireNonNull(runRepository, "runRepository");
         this.planProviderRegistry = Objects.requireNonNull(
                 planProviderRegistry, "planProviderRegistry");
@@ -57,6 +92,8 @@ public final class ChatRunRuntimeLauncher implements ChatRunLauncher {
                 terminationReconciler, "terminationReconciler");
         this.clock = Objects.requireNonNull(clock, "clock");
         this.executor = Objects.requireNonNull(executor, "executor");
+        this.telemetry = Objects.requireNonNull(telemetry, "telemetry");
+        this.checkpointer = Objects.requireNonNull(checkpointer, "checkpointer");
     }
 
     @Override
@@ -96,7 +133,7 @@ public final class ChatRunRuntimeLauncher implements ChatRunLauncher {
 
         ChatRunRuntimeEventProcessor processor = new ChatRunRuntimeEventProcessor(
                 requiredRunId, lifecycleService, executionGateway,
-                terminationReconciler);
+                terminationReconciler, telemetry, clock, checkpointer, executor);
         DeferredFencedRuntimeEventSink sink = new DeferredFencedRuntimeEventSink(
                 requiredRunId, handleStore, processor);
         RuntimeHandle handle;
@@ -110,9 +147,12 @@ public final class ChatRunRuntimeLauncher implements ChatRunLauncher {
                     "Runtime 启动失败，请稍后重试");
             return;
         }
+        Instant spawnedAt = clock.instant();
+        processor.markSpawned(spawnedAt);
+        telemetry.processSpawned(Duration.between(run.getCreatedAt(), spawnedAt));
 
         try {
-            handleStore.bind(requiredRunId, handle, clock.instant());
+            handleStore.bind(requiredRunId, handle, spawnedAt);
         } catch (RuntimeException failure) {
             sink.reject();
             logFailure("runtime-handle-bind-failed", requiredRunId, failure);
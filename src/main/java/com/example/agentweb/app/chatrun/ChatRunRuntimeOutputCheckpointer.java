@@ -0,0 +1,34 @@
+package com.example.agentweb.app.chatrun;
+
+import com.example.agentweb.domain.chatrun.ChatRunId;
+
+/**
+ * 运行中把已提交的输出事件压缩为恢复检查点，使 {@link ChatRunRuntimeOutputQuery} 只需读取
+ * 最后检查点之后的事件。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface ChatRunRuntimeOutputCheckpointer {
+
+    /** 不写检查点，恢复时全量读取事件。 */
+    ChatRunRuntimeOutputCheckpointer NONE = new ChatRunRuntimeOutputCheckpointer() {
+        @Override
+        public int checkpointIntervalEvents() {
+            return 0;
+        }
+
+        @Override
+        public void checkpoint(ChatRunId runId) {
+        }
+    };
+
+    /** 每追加多少条输出事件写一次检查点；不大于 0 表示不写。 */
+    int checkpointIntervalEvents();
+
+    /**
+     * 把上一检查点之后已提交的输出事件追加为一个新分段。事件损坏、乱序或累计超出恢复上限时不写，
+     * 由恢复读取按原规则判定不完整。在后台执行器上调用，同一 Run 不会并发调用。
+     */
+    void checkpoint(ChatRunId runId);
+}
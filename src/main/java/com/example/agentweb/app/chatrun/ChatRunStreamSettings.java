@@ -27,4 +27,10 @@ public interface ChatRunStreamSettings {
     int getSubscriberMaxBytes();
 
     int getMaxActiveRuns();
+
+    /** Runs allowed to wait for a slot once every active slot is taken; 0 rejects immediately. */
+    int getMaxQueuedRuns();
+
+    /** Interactive admissions granted in a row before one waiting background task is admitted. */
+    int getInteractiveAdmissionWeight();
 }
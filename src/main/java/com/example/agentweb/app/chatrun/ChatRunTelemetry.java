@@ -0,0 +1,53 @@
+package com.example.agentweb.app.chatrun;
+
+import java.time.Duration;
+
+/**
+ * ChatRun 流水线观测端口；Application 只报告各阶段耗时与批量大小，不依赖具体指标后端。
+ *
+ * <p>提交到进程拉起、拉起到首条 Provider 输出、事件缓冲落库、replay 分页各报告一次；
+ * Hub 扇出与 SQLite 追加耗时由 Infra 实现直接记录。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface ChatRunTelemetry {
+
+    /** 不接指标后端时使用，例如单元测试与旧构造器。 */
+    ChatRunTelemetry NOOP = new ChatRunTelemetry() {
+        @Override
+        public void processSpawned(Duration sinceSubmit) {
+        }
+
+        @Override
+        public void firstProviderOutput(Duration sinceSpawn) {
+        }
+
+        @Override
+        public void bufferFlushed(int events, int bytes, Duration elapsed) {
+        }
+
+        @Override
+        public void replayPage(int events, Duration elapsed) {
+        }
+
+        @Override
+        public void replayServed(boolean fromMemory) {
+        }
+    };
+
+    /** Runtime 进程已拉起，{@code sinceSubmit} 为 Run 创建到拉起完成的耗时（含排队）。 */
+    void processSpawned(Duration sinceSubmit);
+
+    /** 收到首条 Provider 输出事件，{@code sinceSpawn} 为进程拉起到该事件被处理的耗时。 */
+    void firstProviderOutput(Duration sinceSpawn);
+
+    /** 事件缓冲一次刷写落库（含 Hub 发布）完成。 */
+    void bufferFlushed(int events, int bytes, Duration elapsed);
+
+    /** replay 读取并投递一页历史事件完成。 */
+    void replayPage(int events, Duration elapsed);
+
+    /** 一次订阅的补发完成，{@code fromMemory} 表示由 Hub 内存尾部提供而未查询事件存储。 */
+    void replayServed(boolean fromMemory);
+}
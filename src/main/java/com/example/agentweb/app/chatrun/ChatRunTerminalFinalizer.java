@@ -2,8 +2,10 @@ package com.example.agentweb.app.chatrun;
 
 import com.example.agentweb.app.runtime.port.ChatRunRuntimeHandleStore;
 import com.example.agentweb.domain.chatrun.ChatRun;
+import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
@@ -25,14 +27,28 @@ public final class ChatRunTerminalFinalizer {
     private final ChatRunTerminalParticipantRegistry participantRegistry;
     private final ChatRunRuntimeHandleStore handleStore;
     private final ChatRunEventAppender eventAppender;
+    private final ChatRunAdmissionScheduler admissionScheduler;
 
     public ChatRunTerminalFinalizer(
             ChatRunTerminalParticipantRegistry participantRegistry,
             ChatRunRuntimeHandleStore handleStore,
             ChatRunEventAppender eventAppender) {
+        this(participantRegistry, handleStore, eventAppender, null);
+    }
+
+    /**
+     * @param admissionScheduler 终态事务提交后释放准入槽位；为 null 时不参与准入调度
+     */
+    @Autowired
+    public ChatRunTerminalFinalizer(
+            ChatRunTerminalParticipantRegistry participantRegistry,
+            ChatRunRuntimeHandleStore handleStore,
+            ChatRunEventAppender eventAppender,
+            ChatRunAdmissionScheduler admissionScheduler) {
         this.participantRegistry = participantRegistry;
         this.handleStore = handleStore;
         this.eventAppender = eventAppender;
+        this.admissionScheduler = admissionScheduler;
     }
 
     public void finalizeFirstTerminal(ChatRun run, Instant terminalAt) {
@@ -45,6 +61,15 @@ public final class ChatRunTerminalFinalizer {
         handleStore.delete(run.getId());
         eventAppender.appendToExistingRun(run, Collections.singletonList(
                 new ChatRunEventDraft("terminal", terminalPayload(run))), terminalAt);
+        if (admissionScheduler != null) {
+            final ChatRunId runId = run.getId();
+            eventAppender.afterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    admissionScheduler.release(runId);
+                }
+            });
+        }
     }
 
     private String terminalPayload(ChatRun run) {
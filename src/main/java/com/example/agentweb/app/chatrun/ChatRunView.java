@@ -23,8 +23,10 @@ public final class ChatRunView {
     private final Long assistantMessageId;
     private final String failureCode;
     private final String errorMessage;
+    /** 当前排队位置，1 基；已启动或不在排队时为 0，每次查询按调度器现状计算。 */
+    private final int queuePosition;
 
-    private ChatRunView(ChatRun run, long earliestRetainedSeq) {
+    private ChatRunView(ChatRun run, long earliestRetainedSeq, int queuePosition) {
         this.runId = run.getId().getValue();
         this.sessionId = run.getSessionId();
         this.status = run.getStatus();
@@ -35,9 +37,14 @@ public final class ChatRunView {
         this.assistantMessageId = run.getAssistantMessageId();
         this.failureCode = run.getFailureCode();
         this.errorMessage = run.getErrorMessage();
+        this.queuePosition = queuePosition;
     }
 
     public static ChatRunView from(ChatRun run, long earliestRetainedSeq) {
-        return new ChatRunView(run, earliestRetainedSeq);
+        return new ChatRunView(run, earliestRetainedSeq, 0);
+    }
+
+    public static ChatRunView from(ChatRun run, long earliestRetainedSeq, int queuePosition) {
+        return new ChatRunView(run, earliestRetainedSeq, queuePosition);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.agentweb.app.chatrun;
 
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.chatrun.ToolInvocation;
 import com.example.agentweb.domain.chatrun.ToolInvocationKind;
 import com.example.agentweb.domain.chatrun.ToolInvocationRepository;
@@ -9,6 +10,7 @@ import com.example.agentweb.domain.chatrun.ToolInvocationTriggerSource;
 import com.example.agentweb.domain.shared.AgentType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -24,12 +26,20 @@ public class HistoricalToolInvocationMigrator {
     private final JdbcTemplate jdbc;
     private final ToolInvocationRepository repository;
     private final ObjectMapper mapper;
+    private final StoredContentCodec contentCodec;
 
     public HistoricalToolInvocationMigrator(JdbcTemplate jdbc, ToolInvocationRepository repository,
                                              ObjectMapper mapper) {
+        this(jdbc, repository, mapper, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public HistoricalToolInvocationMigrator(JdbcTemplate jdbc, ToolInvocationRepository repository,
+                                             ObjectMapper mapper, StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
         this.repository = repository;
         this.mapper = mapper;
+        this.contentCodec = contentCodec;
     }
 
     public ToolInvocationMigrationReport migrate(boolean dryRun, int batchSize) {
@@ -41,7 +51,8 @@ public class HistoricalToolInvocationMigrator {
                             + "WHERE m.role='assistant' AND s.agent_type IN ('CLAUDE','CODEX') AND m.id>? "
                             + "ORDER BY m.id LIMIT ?",
                     (rs, rowNum) -> new MessageRow(rs.getLong(1), rs.getString(2),
-                            AgentType.valueOf(rs.getString(3)), rs.getString(4), rs.getString(5)),
+                            AgentType.valueOf(rs.getString(3)), rs.getString(4),
+                            contentCodec.decode(rs.getObject(5))),
                     cursor, Math.max(1, batchSize));
             if (rows.isEmpty()) {
                 break;
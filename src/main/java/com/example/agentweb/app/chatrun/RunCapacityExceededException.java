@@ -1,7 +1,8 @@
 package com.example.agentweb.app.chatrun;
 
 /**
- * Raised when the configured global active ChatRun capacity is exhausted.
+ * Raised when the configured global active ChatRun capacity is exhausted, or when the
+ * admission queue in front of it is full as well.
  *
  * @author zhourui(V33215020)
  * @since 2026-07-22
@@ -11,4 +12,9 @@ public class RunCapacityExceededException extends RuntimeException {
     public RunCapacityExceededException(int capacity) {
         super("active chat run capacity reached: " + capacity);
     }
+
+    public RunCapacityExceededException(int capacity, int maxQueued) {
+        super("active chat run capacity reached: " + capacity
+                + ", admission queue full: " + maxQueued);
+    }
 }
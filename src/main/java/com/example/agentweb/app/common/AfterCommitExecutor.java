@@ -27,4 +27,21 @@ public class AfterCommitExecutor {
             }
         });
     }
+
+    /**
+     * 事务未提交（回滚或结果未知）时执行；没有活动事务时不执行。
+     */
+    public void executeUnlessCommitted(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.agentweb.app.fs;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 某一时刻目录直接子项的不可变快照, 可在请求间共享。
+ *
+ * <p>分页用键集游标: 游标编码上一页末项的排序键与名称, 续页从严格大于它的位置开始,
+ * 两页之间目录有增删也不会重复或跳过未变动的项。各排序方式的有序视图按需生成后缓存在快照上。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class DirectoryListing {
+
+    private static final Comparator<Entry> BY_NAME =
+            Comparator.comparing(Entry::getName, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(Entry::getName);
+
+    private final List<Entry> entries;
+    private final Map<String, List<Entry>> sortedViews =
+            new ConcurrentHashMap<String, List<Entry>>();
+
+    public DirectoryListing(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<Entry>(Objects.requireNonNull(entries, "entries"));
+        sorted.sort(order(DirectoryPageQuery.Sort.NAME, false));
+        this.entries = Collections.unmodifiableList(sorted);
+    }
+
+    /** 默认顺序: 目录在前, 名称忽略大小写升序。 */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public DirectoryPage<Entry> page(DirectoryPageQuery query) {
+        return page(query, Function.identity());
+    }
+
+    /**
+     * 取一页, 页内元素是 {@code view} 对子项的映射结果。{@code view} 返回 null 表示调用方的可见性规则
+     * 不展示该项, 被滤掉的项不占页大小; 每个子项至多映射一次。
+     *
+     * @throws IllegalArgumentException 游标无法解析
+     */
+    public <T> DirectoryPage<T> page(DirectoryPageQuery query, Function<? super Entry, ? extends T> view) {
+        Objects.requireNonNull(query, "query");
+        Comparator<Entry> order = order(query.getSort(), query.isDescending());
+        List<Entry> sorted = sorted(query.getSort(), query.isDescending(), order);
+        int index = query.getCursor() == null
+                ? 0 : firstAfter(sorted, decode(query.getCursor()), order);
+        int limit = query.isUnpaged() ? Integer.MAX_VALUE : query.getLimit();
+        List<T> page = new ArrayList<T>(Math.min(limit, sorted.size()));
+        Entry last = null;
+        for (; index < sorted.size(); index++) {
+            Entry entry = sorted.get(index);
+            if (!query.matches(entry)) {
+                continue;
+            }
+            T mapped = view.apply(entry);
+            if (mapped == null) {
+                continue;
+            }
+            if (page.size() == limit) {
+                return new DirectoryPage<T>(page, encode(last));
+            }
+            page.add(mapped);
+            last = entry;
+        }
+        return new DirectoryPage<T>(page, null);
+    }
+
+    private List<Entry> sorted(DirectoryPageQuery.Sort sort, boolean descending,
+                               Comparator<Entry> order) {
+        if (sort == DirectoryPageQuery.Sort.NAME && !descending) {
+            return entries;
+        }
+        return sortedViews.computeIfAbsent(sort + (descending ? "-desc" : "-asc"), key -> {
+            List<Entry> view = new ArrayList<Entry>(entries);
+            view.sort(order);
+            return Collections.unmodifiableList(view);
+        });
+    }
+
+    private static int firstAfter(List<Entry> sorted, Entry anchor, Comparator<Entry> order) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (order.compare(sorted.get(middle), anchor) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Comparator<Entry> order(DirectoryPageQuery.Sort sort, boolean descending) {
+        Comparator<Entry> key;
+        if (sort == DirectoryPageQuery.Sort.SIZE) {
+            key = Comparator.comparingLong(Entry::getSize).thenComparing(BY_NAME);
+        } else if (sort == DirectoryPageQuery.Sort.MODIFIED) {
+            key = Comparator.comparingLong(Entry::getLastModified).thenComparing(BY_NAME);
+        } else {
+            key = BY_NAME;
+        }
+        if (descending) {
+            key = key.reversed();
+        }
+        return Comparator.comparingInt((Entry entry) -> entry.isDirectory() ? 0 : 1)
+                .thenComparing(key);
+    }
+
+    private static String encode(Entry entry) {
+        String anchor = (entry.isDirectory() ? "d" : "f") + "/" + entry.getSize()
+                + "/" + entry.getLastModified() + "/" + entry.getName();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(anchor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split("/", 4);
+            if (parts.length != 4 || !("d".equals(parts[0]) || "f".equals(parts[0]))) {
+                throw new IllegalArgumentException("invalid directory cursor");
+            }
+            boolean directory = "d".equals(parts[0]);
+            return new Entry(parts[3], directory, !directory,
+                    Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("invalid directory cursor", ex);
+        }
+    }
+
+    /** 目录子项; 只在一次属性读取里取齐, 不再逐项补调用。 */
+    @Getter
+    public static final class Entry {
+
+        private final String name;
+        private final boolean directory;
+        private final boolean regularFile;
+        private final long size;
+        private final long lastModified;
+
+        public Entry(String name, boolean directory, boolean regularFile,
+                     long size, long lastModified) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.directory = directory;
+            this.regularFile = regularFile;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
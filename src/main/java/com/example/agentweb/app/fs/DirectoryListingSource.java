@@ -0,0 +1,21 @@
+package com.example.agentweb.app.fs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 目录列举端口。app / interfaces 层只见此端口, 目录遍历与缓存失效由 infra 实现。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface DirectoryListingSource {
+
+    /**
+     * 列出目录的直接子项 (不含符号链接)。
+     *
+     * @param directory 已通过白名单校验的真实目录路径
+     * @return 不可变快照, 可被多个请求共享
+     */
+    DirectoryListing list(Path directory) throws IOException;
+}
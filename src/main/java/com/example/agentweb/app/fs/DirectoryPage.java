@@ -0,0 +1,28 @@
+package com.example.agentweb.app.fs;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 目录的一页子项 (或调用方由子项映射出的视图); {@code nextCursor} 为 null 表示已到末页。
+ *
+ * @param <T> 页内元素类型
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Getter
+public final class DirectoryPage<T> {
+
+    private final List<T> entries;
+    private final String nextCursor;
+
+    public DirectoryPage(List<T> entries, String nextCursor) {
+        this.entries = Collections.unmodifiableList(new ArrayList<T>(
+                Objects.requireNonNull(entries, "entries")));
+        this.nextCursor = nextCursor;
+    }
+}
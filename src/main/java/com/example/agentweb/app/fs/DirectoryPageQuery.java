@@ -0,0 +1,76 @@
+package com.example.agentweb.app.fs;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * 目录分页查询: 名称过滤、排序键与方向、续页游标、页大小。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Getter
+public final class DirectoryPageQuery {
+
+    public static final int MAXIMUM_LIMIT = 1000;
+
+    /** 排序键; 任何排序下目录都排在文件之前, 同键按名称兜底保证全序。 */
+    public enum Sort {
+        NAME, SIZE, MODIFIED
+    }
+
+    private final String filter;
+    private final Sort sort;
+    private final boolean descending;
+    private final String cursor;
+    private final int limit;
+    /** 一次取全部匹配项; 为 true 时忽略 {@link #limit}、不产生续页游标。 */
+    private final boolean unpaged;
+
+    /**
+     * @param filter     名称子串过滤, 忽略大小写; 空白视为不过滤
+     * @param sort       排序键, null 按名称
+     * @param descending 排序键是否倒序
+     * @param cursor     上一页返回的游标, 首页传 null
+     * @param limit      页大小, 1 ~ {@value #MAXIMUM_LIMIT}
+     */
+    public DirectoryPageQuery(String filter, Sort sort, boolean descending,
+                              String cursor, int limit) {
+        this(filter, sort, descending, cursor, requireLimit(limit), false);
+    }
+
+    private DirectoryPageQuery(String filter, Sort sort, boolean descending,
+                               String cursor, int limit, boolean unpaged) {
+        this.filter = filter == null || filter.trim().isEmpty()
+                ? null : filter.trim().toLowerCase(Locale.ROOT);
+        this.sort = sort == null ? Sort.NAME : sort;
+        this.descending = descending;
+        this.cursor = cursor == null || cursor.isEmpty() ? null : cursor;
+        this.limit = limit;
+        this.unpaged = unpaged;
+    }
+
+    /** 一次取全部匹配项, 不产生续页游标; 只给进程内需要完整列表的调用方, 不对 HTTP 暴露。 */
+    public static DirectoryPageQuery unpaged(String filter, Sort sort, boolean descending) {
+        return new DirectoryPageQuery(filter, sort, descending, null, 0, true);
+    }
+
+    /** 默认顺序 (目录在前、名称升序) 的首页。 */
+    public static DirectoryPageQuery firstPage(int limit) {
+        return new DirectoryPageQuery(null, Sort.NAME, false, null, limit);
+    }
+
+    private static int requireLimit(int limit) {
+        if (limit < 1 || limit > MAXIMUM_LIMIT) {
+            throw new IllegalArgumentException(
+                    "directory page limit must be between 1 and " + MAXIMUM_LIMIT);
+        }
+        return limit;
+    }
+
+    boolean matches(DirectoryListing.Entry entry) {
+        return filter == null
+                || entry.getName().toLowerCase(Locale.ROOT).contains(filter);
+    }
+}
@@ -12,11 +12,12 @@ package com.example.agentweb.app.metrics;
 public interface ConversationQueryService {
 
     /**
-     * 分页列出全部用户的对话记录,按创建时间倒序。
+     * 分页列出全部用户的对话记录。无关键字时按创建时间倒序;有关键字时按相关度排序,
+     * 相同相关度再按创建时间倒序。
      *
      * @param page    1-based 页码(调用方负责 clamp)
      * @param size    每页条数(调用方负责 clamp)
-     * @param keyword 可选关键字,按标题 / 用户名 / 工号模糊匹配;为空则不过滤
+     * @param keyword 可选关键字,匹配标题 / 消息正文 / 用户名 / 工号;为空则不过滤
      */
     ConversationPage list(int page, int size, String keyword);
 
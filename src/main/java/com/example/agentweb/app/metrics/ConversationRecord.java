@@ -31,4 +31,9 @@ public class ConversationRecord {
     private Long lastMessageAt;
     /** 用户评分 CORRECT / PARTIALLY_CORRECT / INCORRECT;未评分为 null。 */
     private String feedbackRating;
+    /**
+     * 全文检索命中片段;命中词以 U+0002 / U+0003 包围,由前端转义后高亮。
+     * 未带关键字、短关键字或仅命中用户名/工号时为 null。
+     */
+    private String snippet;
 }
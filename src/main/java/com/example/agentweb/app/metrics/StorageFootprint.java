@@ -0,0 +1,42 @@
+package com.example.agentweb.app.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 大文本列的存储占用读模型：每列 TEXT / 库内压缩 / 外置三种形态的行数与字节，以及外置文件和库文件大小。
+ *
+ * <p>{@code rawBytes} 为原文 UTF-8 字节数，{@code storedBytes} 为库内实际占用；比率在原文为 0 时为 {@code null}。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Getter
+@Setter
+public class StorageFootprint {
+
+    private List<Column> columns = new ArrayList<Column>();
+    private long blobFiles;
+    private long blobBytes;
+    private long databaseBytes;
+    /** (库内占用 + 外置文件) / 原文，跨所有编码列。 */
+    private Double overallRatio;
+
+    /** 单个编码列的占用。 */
+    @Getter
+    @Setter
+    public static class Column {
+        private String table;
+        private String column;
+        private long textRows;
+        private long inlineRows;
+        private long spilledRows;
+        private long rawBytes;
+        private long storedBytes;
+        /** storedBytes / rawBytes，不含外置文件。 */
+        private Double ratio;
+    }
+}
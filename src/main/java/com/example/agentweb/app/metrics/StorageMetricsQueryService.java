@@ -0,0 +1,15 @@
+package com.example.agentweb.app.metrics;
+
+/**
+ * 存储占用报告的查询端口：编码列的压缩比与外置文件规模。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface StorageMetricsQueryService {
+
+    /**
+     * 逐列统计；需要扫描编码列的格式头，只供管理后台按需调用。
+     */
+    StorageFootprint footprint();
+}
@@ -1,11 +1,11 @@
 package com.example.agentweb.app.refinery;
 
 /**
- * "清空并重跑最近一段时间 RAG 数据"操作的结果快照.
+ * "重跑最近一段时间 RAG 数据"操作的结果快照.
  *
- * <p>清理 (删 chunk + 删 state) 是同步完成的, {@code matchedSessions}/{@code chunksDeleted}
- * 反映已落地的清理量; 重跑是后台异步串行的, {@code queued} 表示提交后台重跑的会话数,
- * 实际进度看日志. {@code started=false} 表示已有重跑在进行, 本次只清理未提交新重跑.</p>
+ * <p>重跑写进影子代 {@code generation}, 现役 chunk 在整代完成前不受影响; {@code queued} 表示提交后台重跑的会话数,
+ * 实际进度看 {@code GET /api/refinery/generations} 与 {@code GET /api/refinery/ingest-progress}.
+ * {@code started=false} 表示已有重跑在进行, 本次不做任何改动.</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-05-31
@@ -15,28 +15,28 @@ public final class RebuildResult {
     private final boolean started;
     private final int days;
     private final int matchedSessions;
-    private final int chunksDeleted;
+    private final long generation;
     private final int queued;
     private final String reason;
 
     private RebuildResult(boolean started, int days, int matchedSessions,
-                          int chunksDeleted, int queued, String reason) {
+                          long generation, int queued, String reason) {
         this.started = started;
         this.days = days;
         this.matchedSessions = matchedSessions;
-        this.chunksDeleted = chunksDeleted;
+        this.generation = generation;
         this.queued = queued;
         this.reason = reason;
     }
 
-    /** 正常发起: 清理完成且已提交后台重跑. */
-    public static RebuildResult started(int days, int matchedSessions, int chunksDeleted) {
-        return new RebuildResult(true, days, matchedSessions, chunksDeleted, matchedSessions, null);
+    /** 正常发起: 已开启影子代并提交后台重跑. */
+    public static RebuildResult started(int days, int matchedSessions, long generation) {
+        return new RebuildResult(true, days, matchedSessions, generation, matchedSessions, null);
     }
 
-    /** 已有重跑在跑: 本次完成清理但不重复提交. */
-    public static RebuildResult busy(int days, int matchedSessions, int chunksDeleted) {
-        return new RebuildResult(false, days, matchedSessions, chunksDeleted, 0, "rebuild-in-progress");
+    /** 已有重跑在跑: 不开新代也不重复提交. */
+    public static RebuildResult busy(int days, int matchedSessions) {
+        return new RebuildResult(false, days, matchedSessions, 0L, 0, "rebuild-in-progress");
     }
 
     public boolean isStarted() {
@@ -51,8 +51,9 @@ public final class RebuildResult {
         return matchedSessions;
     }
 
-    public int getChunksDeleted() {
-        return chunksDeleted;
+    /** 本次重跑写入的影子代 id, busy 时为 0. */
+    public long getGeneration() {
+        return generation;
     }
 
     public int getQueued() {
@@ -16,6 +16,8 @@ public final class RecallStats {
     private final int belowVectorFloor;
     private final int rankedCount;
     private final int badVectorCount;
+    /** 索引候选上限截掉的条数 (只截不可能进入 topK 的); 线性扫描恒为 0. */
+    private final int truncatedCount;
     private final Double topVectorScore;
     private final Double topFinalScore;
     private final Integer topK;
@@ -32,7 +34,7 @@ public final class RecallStats {
     private final int embeddingDimension;
 
     public RecallStats(int activeCount, int filteredCount, int belowVectorFloor, int rankedCount,
-                       int badVectorCount, Double topVectorScore, Double topFinalScore, Integer topK,
+                       int badVectorCount, int truncatedCount, Double topVectorScore, Double topFinalScore, Integer topK,
                        boolean includeArchived, boolean crossSourceEnabled, double halfLifeDays,
                        double minVectorScore, double minScore, double minScoreRatio,
                        double vectorWeight, double signalWeight, double timeDecayWeight,
@@ -42,6 +44,7 @@ public final class RecallStats {
         this.belowVectorFloor = belowVectorFloor;
         this.rankedCount = rankedCount;
         this.badVectorCount = badVectorCount;
+        this.truncatedCount = truncatedCount;
         this.topVectorScore = topVectorScore;
         this.topFinalScore = topFinalScore;
         this.topK = topK;
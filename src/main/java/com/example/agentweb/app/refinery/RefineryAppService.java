@@ -1,7 +1,9 @@
 package com.example.agentweb.app.refinery;
 
 import com.example.agentweb.domain.refinery.ConversationView;
+import com.example.agentweb.domain.refinery.RagGeneration;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -25,6 +27,32 @@ public interface RefineryAppService {
      */
     boolean refineAndIngest(String sessionId);
 
+    /**
+     * 批量版 {@link #refineAndIngest}: 评分按 {@code agent.refinery.pipeline.scoring-concurrency} 并发,
+     * embed 成批往返, 落库只在调用线程. 单会话的状态语义与失败隔离和逐条调用一致. 阻塞到整批结束.
+     *
+     * @param origin     来源 ({@code tick} / {@code rebuild}), 进度按来源保留最近一次
+     * @param sessionIds 候选会话 ID
+     * @return 结束时的进度快照
+     */
+    RefineryIngestProgress refineAndIngestAll(String origin, List<String> sessionIds);
+
+    /**
+     * 把一批会话重新 refine + ingest 进影子代 (管理台重跑). 与 {@link #refineAndIngestAll} 共用流水线与评分许可,
+     * 区别: 不因幂等 state 跳过; 新 chunk 只写影子集, 现役库不动; 每个会话的结论记为该代的构建单元,
+     * 供续跑与切换. 进度来源为 {@code rebuild}.
+     *
+     * @param generation BUILDING 状态的 REBUILD 代
+     * @param sessionIds 尚未处理的会话 ID
+     * @return 结束时的进度快照
+     */
+    RefineryIngestProgress refineAndIngestInto(RagGeneration generation, List<String> sessionIds);
+
+    /**
+     * 各来源最近一次批量 ingest 的进度, 运行中的包含实时队列积压, 按开始时间倒序.
+     */
+    List<RefineryIngestProgress> ingestProgress();
+
     /**
      * 源类型无关的 ingest 入口: 给定一个 {@link ConversationView}, 完成 policy 过滤 → refine
      * → 阈值检查 → embed → chunk 落库. <b>不写任何状态表</b>, 调用方 (chat 自身 / 诊断 trigger /
@@ -40,6 +68,9 @@ public interface RefineryAppService {
      * 存量 chunk 重嵌入（M4 triggerDescription 迁移）：embed 文本构成变化后按批渐进刷新向量,
      * 管理台分批触发. 回滚 = 停止调用（同模型同维度, 旧向量兼容, 无 schema 破坏）.
      *
+     * <p>embedding 模型已切换 (现役 chunk 带旧模型向量) 时, 新向量写进 REEMBED 影子代,
+     * 旧模型 chunk 全部补齐后原子切换; 切换前召回一直读旧向量.</p>
+     *
      * @param limit 本批上限
      * @return 实际刷新条数
      */
@@ -6,6 +6,8 @@ import com.example.agentweb.domain.refinery.DiscardedRefineRecord;
 import com.example.agentweb.domain.refinery.DiscardedRefineRepository;
 import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RagGenerationRepository;
 import com.example.agentweb.domain.refinery.SessionRefineryState;
 import com.example.agentweb.domain.refinery.SessionRefineryStateRepository;
 import com.example.agentweb.domain.refinery.ConversationTurn;
@@ -17,6 +19,7 @@ import com.example.agentweb.domain.refinery.TrustTierPolicy;
 import com.example.agentweb.domain.refinery.TtlCategory;
 import com.example.agentweb.config.refinery.RefineryProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
@@ -24,8 +27,11 @@ import org.springframework.stereotype.Service;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -33,6 +39,10 @@ import java.util.UUID;
  *
  * <p>编排顺序: 加载 {@link ConversationView} → refine (LLM 评分) → 阈值检查 → embed → 建 chunk → 落库.</p>
  *
+ * <p>批量入口 {@link #refineAndIngestAll} 把同样的步骤拆给 {@link RefineryIngestPipeline}:
+ * 准备 + 评分并发, embed 成批, 建 chunk 与全部写表留在单写者线程.
+ * {@link #refineAndIngestInto} 走同一条流水线, 但不看幂等 state, chunk 写进影子代而非现役库.</p>
+ *
  * <p>任意阶段失败都更新 {@code chat_session_rag_state}, 防止 scheduler 重入.
  * 不对失败重试, 等会话有新消息推进 last_message_at 后下一轮再评.</p>
  *
@@ -53,9 +63,28 @@ public class RefineryAppServiceImpl implements RefineryAppService {
     private final RagChunkRepository chunkRepo;
     private final SessionRefineryStateRepository stateRepo;
     private final DiscardedRefineRepository discardedRepo;
+    private final RagGenerationRepository generationRepo;
     private final RefineryProperties props;
     private final Clock clock;
+    private final RefineryIngestPipeline<ScoredSession> pipeline;
+
+    public RefineryAppServiceImpl(ChatViewBuilder viewBuilder,
+                                 ConversationRefinery refinery,
+                                 TrustTierPolicy tierPolicy,
+                                 EmbeddingClient embeddingClient,
+                                 RagChunkRepository chunkRepo,
+                                 SessionRefineryStateRepository stateRepo,
+                                 DiscardedRefineRepository discardedRepo,
+                                 RefineryProperties props,
+                                 @Qualifier("chatRagClock") Clock clock) {
+        this(viewBuilder, refinery, tierPolicy, embeddingClient, chunkRepo, stateRepo, discardedRepo,
+                null, props, clock);
+    }
 
+    /**
+     * @param generationRepo 影子代仓库; 为 {@code null} 时不支持影子重建, 换模型重嵌入退回原地覆盖
+     */
+    @Autowired
     public RefineryAppServiceImpl(ChatViewBuilder viewBuilder,
                                  ConversationRefinery refinery,
                                  TrustTierPolicy tierPolicy,
@@ -63,6 +92,7 @@ public class RefineryAppServiceImpl implements RefineryAppService {
                                  RagChunkRepository chunkRepo,
                                  SessionRefineryStateRepository stateRepo,
                                  DiscardedRefineRepository discardedRepo,
+                                 RagGenerationRepository generationRepo,
                                  RefineryProperties props,
                                  @Qualifier("chatRagClock") Clock clock) {
         this.viewBuilder = viewBuilder;
@@ -72,55 +102,211 @@ public class RefineryAppServiceImpl implements RefineryAppService {
         this.chunkRepo = chunkRepo;
         this.stateRepo = stateRepo;
         this.discardedRepo = discardedRepo;
+        this.generationRepo = generationRepo;
         this.props = props;
         this.clock = clock;
+        this.pipeline = new RefineryIngestPipeline<ScoredSession>(embeddingClient, props.getPipeline().getScoringConcurrency(),
+                props.getPipeline().getQueueCapacity(), props.getEmbedding().getBatchSize(), clock);
     }
 
     @Override
     public boolean refineAndIngest(String sessionId) {
+        Optional<PendingSession> pending = prepare(sessionId, true);
+        if (!pending.isPresent()) {
+            return false;
+        }
+        ConversationView view = pending.get().view;
+        Instant lastMessageSeen = pending.get().lastMessageSeen;
+        try {
+            IngestOutcome outcome = ingestCore(view);
+            if (outcome.belowThreshold) {
+                log.info("refinery-ingest-below-threshold sessionId={} score={} threshold={}",
+                        sessionId, outcome.score, props.getRefine().getScoreThreshold());
+                // below-threshold 是有意决策, 不重试 → retryCount 归零
+                writeState(sessionId, lastMessageSeen, null,
+                        SessionRefineryState.LAST_ERROR_BELOW_THRESHOLD, 0);
+                return false;
+            }
+            writeState(sessionId, lastMessageSeen, outcome.chunkId, null, 0);
+            log.info("refinery-ingest-saved sessionId={} chunkId={} score={} ttl={}",
+                    sessionId, outcome.chunkId, outcome.score, outcome.ttlCategory);
+            return true;
+        } catch (RuntimeException e) {
+            recordFailure(pending.get(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public RefineryIngestProgress refineAndIngestAll(String origin, List<String> sessionIds) {
+        return pipeline.run(origin, sessionIds, new PipelineStages(null));
+    }
+
+    @Override
+    public RefineryIngestProgress refineAndIngestInto(RagGeneration generation, List<String> sessionIds) {
+        if (generationRepo == null) {
+            throw new IllegalStateException("rag generation repository is not configured");
+        }
+        return pipeline.run(generation.getKind().name().toLowerCase(Locale.ROOT),
+                sessionIds, new PipelineStages(generation));
+    }
+
+    @Override
+    public List<RefineryIngestProgress> ingestProgress() {
+        return pipeline.progress();
+    }
+
+    /**
+     * 加载视图并做 surface / policy / 幂等检查; 不需要评分时返回 empty.
+     *
+     * @param honourState 影子重建传 {@code false}: 已处理过的会话也要重评
+     */
+    private Optional<PendingSession> prepare(String sessionId, boolean honourState) {
         Optional<ConversationView> viewOpt = viewBuilder.build(sessionId);
         if (!viewOpt.isPresent()) {
             log.debug("refinery-ingest-skip-view-unavailable sessionId={}", sessionId);
-            return false;
+            return Optional.empty();
         }
         ConversationView view = viewOpt.get();
         if (!supportsRefinerySurface(view)) {
             log.info("refinery-ingest-skip-agent-surface sourceId={} agentType={}",
                     sessionId, view.getAgentType());
-            return false;
+            return Optional.empty();
         }
         if (!tierPolicy.shouldIngest(view.getSourceType(), view.getVerdict())) {
             log.info("refinery-ingest-skip-policy sourceId={} sourceType={} verdict={}",
                     sessionId, view.getSourceType(), view.getVerdict());
-            return false;
+            return Optional.empty();
         }
         Instant lastMessageSeen = lastTurnInstant(view);
         Optional<SessionRefineryState> existing = stateRepo.findBySessionId(sessionId);
-        if (shouldSkip(existing, lastMessageSeen)) {
+        if (honourState && shouldSkip(existing, lastMessageSeen)) {
             log.debug("refinery-ingest-skip-already-processed sessionId={} lastMsg={}",
                     sessionId, lastMessageSeen);
-            return false;
+            return Optional.empty();
         }
-        try {
-            IngestOutcome outcome = ingestCore(view);
-            if (outcome.belowThreshold) {
-                log.info("refinery-ingest-below-threshold sessionId={} score={} threshold={}",
-                        sessionId, outcome.score, props.getRefine().getScoreThreshold());
-                // below-threshold 是有意决策, 不重试 → retryCount 归零
-                writeState(sessionId, lastMessageSeen, null,
-                        SessionRefineryState.LAST_ERROR_BELOW_THRESHOLD, 0);
-                return false;
+        return Optional.of(new PendingSession(sessionId, view, lastMessageSeen, existing));
+    }
+
+    private void recordFailure(PendingSession pending, RuntimeException e) {
+        int nextRetry = pending.existing.map(SessionRefineryState::getRetryCount).orElse(0) + 1;
+        log.warn("refinery-ingest-failed sessionId={} retryCount={} reason={}",
+                pending.sessionId, nextRetry, e.getMessage(), e);
+        writeState(pending.sessionId, pending.lastMessageSeen, null, e.getMessage(), nextRetry);
+    }
+
+    /** 已通过准备阶段、待评分的会话. */
+    private static final class PendingSession {
+        final String sessionId;
+        final ConversationView view;
+        final Instant lastMessageSeen;
+        final Optional<SessionRefineryState> existing;
+
+        private PendingSession(String sessionId, ConversationView view, Instant lastMessageSeen,
+                               Optional<SessionRefineryState> existing) {
+            this.sessionId = sessionId;
+            this.view = view;
+            this.lastMessageSeen = lastMessageSeen;
+            this.existing = existing;
+        }
+    }
+
+    /** 评分阶段产出: 评分结果或评分失败, 二者恰有其一. */
+    private static final class ScoredSession {
+        final PendingSession pending;
+        final RefineResult result;
+        final RuntimeException failure;
+
+        private ScoredSession(PendingSession pending, RefineResult result, RuntimeException failure) {
+            this.pending = pending;
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * 流水线各阶段: 评分在并发线程, 只读; 建 chunk 与所有写表 (chunk / state / discarded) 在单写者线程,
+     * 语义与 {@link #refineAndIngest} 逐条路径一致.
+     *
+     * <p>{@code target} 非空时写影子代: 新 chunk 进影子集, 每个会话的结论 (含无需处理与失败) 记为构建单元;
+     * state 照常写, 定时任务因此不会把同一会话再写进现役库.</p>
+     */
+    private final class PipelineStages implements RefineryIngestPipeline.Stages<ScoredSession> {
+
+        private final RagGeneration target;
+
+        private PipelineStages(RagGeneration target) {
+            this.target = target;
+        }
+
+        @Override
+        public ScoredSession score(String sessionId) {
+            Optional<PendingSession> pending = prepare(sessionId, target == null);
+            if (!pending.isPresent()) {
+                return null;
+            }
+            try {
+                return new ScoredSession(pending.get(), refinery.refine(pending.get().view), null);
+            } catch (RuntimeException e) {
+                return new ScoredSession(pending.get(), null, e);
+            }
+        }
+
+        @Override
+        public String embedText(ScoredSession scored) {
+            if (scored.failure != null
+                    || scored.result.getScore() < props.getRefine().getScoreThreshold()) {
+                return null;
+            }
+            return buildEmbedText(scored.result.getContent());
+        }
+
+        @Override
+        public RefineryIngestPipeline.Outcome persist(ScoredSession scored, float[] vector,
+                                                      RuntimeException embedFailure) {
+            PendingSession pending = scored.pending;
+            RuntimeException failure = scored.failure != null ? scored.failure : embedFailure;
+            if (failure == null) {
+                RefineResult result = scored.result;
+                try {
+                    if (result.getScore() < props.getRefine().getScoreThreshold()) {
+                        log.info("refinery-ingest-below-threshold sessionId={} score={} threshold={}",
+                                pending.sessionId, result.getScore(), props.getRefine().getScoreThreshold());
+                        persistDiscardedIfEnabled(pending.view, result);
+                        record(pending.sessionId, RagGeneration.ItemOutcome.DISCARDED, null);
+                        writeState(pending.sessionId, pending.lastMessageSeen, null,
+                                SessionRefineryState.LAST_ERROR_BELOW_THRESHOLD, 0);
+                        return RefineryIngestPipeline.Outcome.DISCARDED;
+                    }
+                    RagChunk chunk = buildChunk(pending.view, result, vector);
+                    if (target == null) {
+                        chunkRepo.save(chunk);
+                    } else {
+                        record(pending.sessionId, RagGeneration.ItemOutcome.SAVED, chunk);
+                    }
+                    writeState(pending.sessionId, pending.lastMessageSeen, chunk.getId(), null, 0);
+                    log.info("refinery-ingest-saved sessionId={} chunkId={} score={} ttl={}",
+                            pending.sessionId, chunk.getId(), result.getScore(), result.getTtlCategory());
+                    return RefineryIngestPipeline.Outcome.SAVED;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            recordFailure(pending, failure);
+            record(pending.sessionId, RagGeneration.ItemOutcome.FAILED, null);
+            return RefineryIngestPipeline.Outcome.FAILED;
+        }
+
+        @Override
+        public void unscored(String sessionId, RuntimeException failure) {
+            record(sessionId, failure == null
+                    ? RagGeneration.ItemOutcome.SKIPPED : RagGeneration.ItemOutcome.FAILED, null);
+        }
+
+        private void record(String sessionId, RagGeneration.ItemOutcome outcome, RagChunk shadowChunk) {
+            if (target != null) {
+                generationRepo.recordItem(target.getId(), sessionId, outcome, shadowChunk);
             }
-            writeState(sessionId, lastMessageSeen, outcome.chunkId, null, 0);
-            log.info("refinery-ingest-saved sessionId={} chunkId={} score={} ttl={}",
-                    sessionId, outcome.chunkId, outcome.score, outcome.ttlCategory);
-            return true;
-        } catch (RuntimeException e) {
-            int nextRetry = existing.map(SessionRefineryState::getRetryCount).orElse(0) + 1;
-            log.warn("refinery-ingest-failed sessionId={} retryCount={} reason={}",
-                    sessionId, nextRetry, e.getMessage(), e);
-            writeState(sessionId, lastMessageSeen, null, e.getMessage(), nextRetry);
-            return false;
         }
     }
 
@@ -291,24 +477,47 @@ public class RefineryAppServiceImpl implements RefineryAppService {
      * 回滚说明：同模型同维度只是文本构成变化，不刷新也兼容（仅少 triggerDescription 增益），
      * 回滚 = 停止调用，无 schema 破坏。
      *
+     * <p>现役 chunk 中有非当前模型的向量时 (换模型 / 换维度), 改走 {@link #reembedIntoShadow} 写影子代,
+     * 不再原地覆盖.</p>
+     *
      * @param limit 本批最多处理条数（防长事务，管理台分批触发）
      * @return 实际刷新条数
      */
     @Override
     public int reembedActive(int limit) {
         List<RagChunk> active = chunkRepo.findActive(clock.instant());
-        int refreshed = 0;
+        String model = embeddingClient.modelName();
+        List<RagChunk> stale = new ArrayList<>();
         for (RagChunk chunk : active) {
-            if (refreshed >= limit) {
-                break;
+            if (!model.equals(chunk.getEmbeddingModel())) {
+                stale.add(chunk);
             }
-            try {
-                float[] vec = embeddingClient.embed(buildEmbedText(chunk.getContent()));
-                if (chunkRepo.updateEmbedding(chunk.getId(), vec, embeddingClient.modelName())) {
-                    refreshed++;
+        }
+        if (generationRepo != null && !stale.isEmpty()) {
+            return reembedIntoShadow(stale, model, limit);
+        }
+        int batchSize = Math.max(1, props.getEmbedding().getBatchSize());
+        int refreshed = 0;
+        int next = 0;
+        while (refreshed < limit && next < active.size()) {
+            // 按剩余额度取批, 一次多输入往返; 批内失败的条目不占额度, 后续批继续补齐
+            int end = Math.min(active.size(), next + Math.min(batchSize, limit - refreshed));
+            List<RagChunk> slice = active.subList(next, end);
+            next = end;
+            List<float[]> vectors = embedSlice(slice);
+            for (int i = 0; i < slice.size(); i++) {
+                RagChunk chunk = slice.get(i);
+                float[] vec = vectors.get(i);
+                if (vec == null) {
+                    continue;
+                }
+                try {
+                    if (chunkRepo.updateEmbedding(chunk.getId(), vec, embeddingClient.modelName())) {
+                        refreshed++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("refinery-reembed-failed chunkId={} reason={}", chunk.getId(), e.getMessage());
                 }
-            } catch (RuntimeException e) {
-                log.warn("refinery-reembed-failed chunkId={} reason={}", chunk.getId(), e.getMessage());
             }
         }
         log.info("refinery-reembed-batch refreshed={} activeTotal={} limit={}",
@@ -316,6 +525,85 @@ public class RefineryAppServiceImpl implements RefineryAppService {
         return refreshed;
     }
 
+    /**
+     * 换模型重嵌入: 新向量写进 REEMBED 影子代, 召回在切换前一直用旧模型的整套向量, 不会新旧维度混读.
+     * 每批只补未处理的 chunk; 现役的旧模型 chunk 全部有了新向量后原子切换. 目标模型变了就放弃旧的一代重来.
+     */
+    private int reembedIntoShadow(List<RagChunk> stale, String model, int limit) {
+        RagGeneration generation = generationRepo.findBuilding(RagGeneration.Kind.REEMBED).orElse(null);
+        if (generation != null && !model.equals(generation.getEmbeddingModel())) {
+            generationRepo.abandon(generation.getId(), clock.instant());
+            generation = null;
+        }
+        if (generation == null) {
+            generation = generationRepo.open(RagGeneration.Kind.REEMBED, new ArrayList<String>(), model,
+                    stale.size(), clock.instant());
+        }
+        Set<String> processed = generationRepo.findProcessedItems(generation.getId());
+        List<RagChunk> pending = new ArrayList<>();
+        for (RagChunk chunk : stale) {
+            if (!processed.contains(chunk.getId())) {
+                pending.add(chunk);
+            }
+        }
+        int batchSize = Math.max(1, props.getEmbedding().getBatchSize());
+        int refreshed = 0;
+        int next = 0;
+        while (refreshed < limit && next < pending.size()) {
+            int end = Math.min(pending.size(), next + Math.min(batchSize, limit - refreshed));
+            List<RagChunk> slice = pending.subList(next, end);
+            next = end;
+            List<float[]> vectors = embedSlice(slice);
+            for (int i = 0; i < slice.size(); i++) {
+                RagChunk chunk = slice.get(i);
+                if (vectors.get(i) == null) {
+                    continue;
+                }
+                generationRepo.recordItem(generation.getId(), chunk.getId(), RagGeneration.ItemOutcome.SAVED,
+                        chunk.withEmbedding(vectors.get(i), model));
+                refreshed++;
+            }
+        }
+        log.info("refinery-reembed-shadow-batch generation={} model={} refreshed={} pending={} limit={}",
+                generation.getId(), model, refreshed, pending.size(), limit);
+        if (refreshed == pending.size()) {
+            int swapped = chunkRepo.swapGeneration(generation, clock.instant());
+            log.info("refinery-reembed-swapped generation={} model={} replaced={}",
+                    generation.getId(), model, swapped);
+        }
+        return refreshed;
+    }
+
+    /**
+     * 整批 embed; 批量请求失败或条数不符时退回逐条, 只让真正失败的 chunk 跳过 (对应位置为 null).
+     */
+    private List<float[]> embedSlice(List<RagChunk> slice) {
+        List<String> texts = new ArrayList<>(slice.size());
+        for (RagChunk chunk : slice) {
+            texts.add(buildEmbedText(chunk.getContent()));
+        }
+        try {
+            List<float[]> vectors = embeddingClient.embedBatch(texts);
+            if (vectors != null && vectors.size() == texts.size()) {
+                return vectors;
+            }
+            log.warn("refinery-reembed-batch-size-mismatch expected={} actual={}",
+                    texts.size(), vectors == null ? null : vectors.size());
+        } catch (RuntimeException e) {
+            log.warn("refinery-reembed-batch-failed size={} reason={}, fallback to single", texts.size(), e.getMessage());
+        }
+        List<float[]> vectors = new ArrayList<>(slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            try {
+                vectors.add(embeddingClient.embed(texts.get(i)));
+            } catch (RuntimeException e) {
+                vectors.add(null);
+                log.warn("refinery-reembed-failed chunkId={} reason={}", slice.get(i).getId(), e.getMessage());
+            }
+        }
+        return vectors;
+    }
+
     @Override
     public RefineryDeleteResult deleteChunk(String id) {
         return new RefineryDeleteResult(id, chunkRepo.deleteById(id));
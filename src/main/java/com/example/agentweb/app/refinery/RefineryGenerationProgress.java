@@ -0,0 +1,92 @@
+package com.example.agentweb.app.refinery;
+
+import com.example.agentweb.domain.refinery.RagGeneration;
+
+import java.time.Instant;
+
+/**
+ * 一代影子构建的进度快照, 供管理台展示. 不带 REBUILD 的会话全集, 只给计数.
+ *
+ * <p>{@code processed} 是已落结论的构建单元数 (含失败), {@code shadowChunks} 是影子集当前条数,
+ * 切换或放弃后影子集清空, 该值归零.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class RefineryGenerationProgress {
+
+    private final long id;
+    private final String kind;
+    private final String status;
+    private final String embeddingModel;
+    private final int total;
+    private final int processed;
+    private final int failed;
+    private final int shadowChunks;
+    private final Instant createdAt;
+    private final Instant finishedAt;
+
+    public RefineryGenerationProgress(long id, String kind, String status, String embeddingModel,
+                                      int total, int processed, int failed, int shadowChunks,
+                                      Instant createdAt, Instant finishedAt) {
+        this.id = id;
+        this.kind = kind;
+        this.status = status;
+        this.embeddingModel = embeddingModel;
+        this.total = total;
+        this.processed = processed;
+        this.failed = failed;
+        this.shadowChunks = shadowChunks;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+    }
+
+    static RefineryGenerationProgress of(RagGeneration generation) {
+        return new RefineryGenerationProgress(generation.getId(), generation.getKind().name(),
+                generation.getStatus().name(), generation.getEmbeddingModel(), generation.getTotal(),
+                generation.getProcessed(), generation.getFailed(), generation.getShadowChunks(),
+                generation.getCreatedAt(), generation.getFinishedAt());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /** {@code REBUILD} | {@code REEMBED}. */
+    public String getKind() {
+        return kind;
+    }
+
+    /** {@code BUILDING} | {@code SWAPPED} | {@code ABANDONED}. */
+    public String getStatus() {
+        return status;
+    }
+
+    public String getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getShadowChunks() {
+        return shadowChunks;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
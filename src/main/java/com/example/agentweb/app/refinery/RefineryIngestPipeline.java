@@ -0,0 +1,314 @@
+package com.example.agentweb.app.refinery;
+
+import com.example.agentweb.domain.refinery.EmbeddingClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量 refine + ingest 的分阶段流水线: 候选 → 评分 (CLI, 全局并发上限) → 批量 embed → 单写者落库.
+ *
+ * <p>评分在虚拟线程上并发, 许可数即 CLI 并发上限, 在多次运行 (定时 tick 与管理台重跑) 之间共享.
+ * 阶段之间是有界队列; 评分线程在结果入队之后才归还许可, 所以 embed 或落库跟不上时会直接压住新的 CLI 调用.
+ * embed 阶段把队列里已就绪的会话合成一批往返, 批量失败退回逐条. 落库只在调用线程上进行, SQLite 不出现并发写.</p>
+ *
+ * <p>失败隔离与逐条路径一致: 单个会话在任一阶段的异常只影响该会话.
+ * 各阶段的业务动作按次传入, 写现役库与写影子代 ({@link RefineryAppService#refineAndIngestInto})
+ * 共用同一组评分许可.</p>
+ *
+ * @param <S> 评分阶段产出, 由 {@link Stages} 解释
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Slf4j
+final class RefineryIngestPipeline<S> {
+
+    private static final long ENQUEUE_POLL_MS = 200L;
+
+    /** 各阶段的业务动作, 由 {@link RefineryAppServiceImpl} 提供. */
+    interface Stages<S> {
+
+        /** 准备 + 评分, 在评分线程上并发执行. 返回 {@code null} 表示该会话无需处理. */
+        S score(String sessionId);
+
+        /** 需要向量时返回待 embed 文本, 否则 {@code null} (低于阈值 / 评分失败). */
+        String embedText(S scored);
+
+        /** 落库, 只在单写者线程上执行; {@code embedFailure} 非空表示该会话 embed 失败. */
+        Outcome persist(S scored, float[] vector, RuntimeException embedFailure);
+
+        /**
+         * 评分阶段没有产出的会话, 在单写者线程上回调: {@code failure} 为 {@code null} 表示无需处理,
+         * 否则是准备或评分抛出的异常.
+         */
+        void unscored(String sessionId, RuntimeException failure);
+    }
+
+    /** 单个会话的最终去向. */
+    enum Outcome {
+        SAVED, DISCARDED, FAILED
+    }
+
+    private final EmbeddingClient embeddingClient;
+    private final Semaphore scoringPermits;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final Clock clock;
+    private final Map<String, Run> latest = new ConcurrentHashMap<String, Run>();
+
+    RefineryIngestPipeline(EmbeddingClient embeddingClient,
+                           int scoringConcurrency, int queueCapacity, int batchSize, Clock clock) {
+        this.embeddingClient = embeddingClient;
+        this.scoringPermits = new Semaphore(Math.max(1, scoringConcurrency), true);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.clock = clock;
+    }
+
+    /**
+     * 阻塞跑完一批会话, 调用线程即落库线程.
+     *
+     * @param origin 来源, 进度按来源保留最近一次
+     * @param stages 本次运行的各阶段动作
+     * @return 结束时的进度快照
+     */
+    RefineryIngestProgress run(String origin, List<String> sessionIds, Stages<S> stages) {
+        Run run = new Run(origin, sessionIds.size(), clock.instant(), stages);
+        latest.put(origin, run);
+        Thread dispatcher = Thread.ofVirtual().name("refinery-score-dispatch")
+                .start(() -> dispatch(sessionIds, run));
+        Thread embedder = Thread.ofVirtual().name("refinery-embed")
+                .start(() -> embedAll(run));
+        try {
+            for (int index = 0; index < run.total; index++) {
+                persist(run.awaitingPersist.take(), run);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("refinery-pipeline-interrupted origin={} total={} persisted={}",
+                    origin, run.total, run.persisted());
+        } finally {
+            run.cancelled = true;
+            dispatcher.interrupt();
+            embedder.interrupt();
+            run.finishedAt = clock.instant();
+        }
+        return run.snapshot();
+    }
+
+    /** 每个来源最近一次运行的进度. */
+    List<RefineryIngestProgress> progress() {
+        List<RefineryIngestProgress> snapshots = new ArrayList<RefineryIngestProgress>();
+        for (Run run : latest.values()) {
+            snapshots.add(run.snapshot());
+        }
+        snapshots.sort((left, right) -> right.getStartedAt().compareTo(left.getStartedAt()));
+        return snapshots;
+    }
+
+    private void dispatch(List<String> sessionIds, Run run) {
+        for (String sessionId : sessionIds) {
+            try {
+                scoringPermits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (run.cancelled) {
+                scoringPermits.release();
+                return;
+            }
+            run.scoring.incrementAndGet();
+            Thread.ofVirtual().name("refinery-score").start(() -> score(sessionId, run));
+        }
+    }
+
+    private void score(String sessionId, Run run) {
+        Item<S> item = new Item<S>(sessionId, null, new IllegalStateException("scoring did not complete"));
+        try {
+            item = new Item<S>(sessionId, run.stages.score(sessionId), null);
+        } catch (RuntimeException e) {
+            log.error("refinery-pipeline-score-failed origin={} sessionId={}", run.origin, sessionId, e);
+            item = new Item<S>(sessionId, null, e);
+        } finally {
+            run.scoring.decrementAndGet();
+            run.scored.incrementAndGet();
+            try {
+                enqueue(run.awaitingEmbedding, item, run);
+            } finally {
+                scoringPermits.release();
+            }
+        }
+    }
+
+    private void embedAll(Run run) {
+        List<Item<S>> batch = new ArrayList<Item<S>>(batchSize);
+        int received = 0;
+        try {
+            while (received < run.total) {
+                batch.add(run.awaitingEmbedding.take());
+                run.awaitingEmbedding.drainTo(batch, Math.min(batchSize, run.total - received) - 1);
+                received += batch.size();
+                embed(batch, run);
+                for (Item<S> item : batch) {
+                    run.awaitingPersist.put(item);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void embed(List<Item<S>> batch, Run run) {
+        List<Item<S>> pending = new ArrayList<Item<S>>(batch.size());
+        List<String> texts = new ArrayList<String>(batch.size());
+        for (Item<S> item : batch) {
+            String text;
+            try {
+                text = item.scored == null ? null : run.stages.embedText(item.scored);
+            } catch (RuntimeException e) {
+                // 只记在该会话上, embed 线程不能因此退出, 否则落库端永远等不到剩余会话
+                log.warn("refinery-pipeline-embed-text-failed origin={} sessionId={}",
+                        run.origin, item.sessionId, e);
+                item.embedFailure = e;
+                continue;
+            }
+            if (text != null) {
+                pending.add(item);
+                texts.add(text);
+            }
+        }
+        if (texts.isEmpty()) {
+            return;
+        }
+        try {
+            List<float[]> vectors = embeddingClient.embedBatch(texts);
+            if (vectors != null && vectors.size() == texts.size()) {
+                for (int index = 0; index < pending.size(); index++) {
+                    pending.get(index).vector = vectors.get(index);
+                }
+                run.embedded.addAndGet(pending.size());
+                return;
+            }
+            log.warn("refinery-pipeline-embed-batch-size-mismatch expected={} actual={}",
+                    texts.size(), vectors == null ? null : vectors.size());
+        } catch (RuntimeException e) {
+            log.warn("refinery-pipeline-embed-batch-failed size={} reason={}, fallback to single",
+                    texts.size(), e.getMessage());
+        }
+        for (int index = 0; index < pending.size(); index++) {
+            try {
+                pending.get(index).vector = embeddingClient.embed(texts.get(index));
+                run.embedded.incrementAndGet();
+            } catch (RuntimeException e) {
+                pending.get(index).embedFailure = e;
+            }
+        }
+    }
+
+    private void persist(Item<S> item, Run run) {
+        if (item.scored == null) {
+            try {
+                run.stages.unscored(item.sessionId, item.scoreFailure);
+            } catch (RuntimeException e) {
+                log.error("refinery-pipeline-persist-failed origin={} sessionId={}", run.origin, item.sessionId, e);
+            }
+            (item.scoreFailure == null ? run.skipped : run.failed).incrementAndGet();
+            return;
+        }
+        Outcome outcome;
+        try {
+            outcome = run.stages.persist(item.scored, item.vector, item.embedFailure);
+        } catch (RuntimeException e) {
+            log.error("refinery-pipeline-persist-failed origin={}", run.origin, e);
+            outcome = Outcome.FAILED;
+        }
+        switch (outcome) {
+            case SAVED:
+                run.saved.incrementAndGet();
+                break;
+            case DISCARDED:
+                run.discarded.incrementAndGet();
+                break;
+            case FAILED:
+            default:
+                run.failed.incrementAndGet();
+                break;
+        }
+    }
+
+    /** 取消后放弃入队, 让评分线程归还许可退出, 不因下游已停而永久阻塞. */
+    private void enqueue(BlockingQueue<Item<S>> queue, Item<S> item, Run run) {
+        try {
+            while (!run.cancelled) {
+                if (queue.offer(item, ENQUEUE_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Item<S> {
+        private final String sessionId;
+        private final S scored;
+        private final RuntimeException scoreFailure;
+        private float[] vector;
+        private RuntimeException embedFailure;
+
+        private Item(String sessionId, S scored, RuntimeException scoreFailure) {
+            this.sessionId = sessionId;
+            this.scored = scored;
+            this.scoreFailure = scoreFailure;
+        }
+    }
+
+    private final class Run {
+        private final String origin;
+        private final int total;
+        private final Instant startedAt;
+        private final Stages<S> stages;
+        private final BlockingQueue<Item<S>> awaitingEmbedding =
+                new ArrayBlockingQueue<Item<S>>(queueCapacity);
+        private final BlockingQueue<Item<S>> awaitingPersist =
+                new ArrayBlockingQueue<Item<S>>(queueCapacity);
+        private final AtomicInteger scoring = new AtomicInteger();
+        private final AtomicInteger scored = new AtomicInteger();
+        private final AtomicInteger embedded = new AtomicInteger();
+        private final AtomicInteger saved = new AtomicInteger();
+        private final AtomicInteger discarded = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Instant finishedAt;
+
+        private Run(String origin, int total, Instant startedAt, Stages<S> stages) {
+            this.origin = origin;
+            this.total = total;
+            this.startedAt = startedAt;
+            this.stages = stages;
+        }
+
+        private int persisted() {
+            return saved.get() + discarded.get() + skipped.get() + failed.get();
+        }
+
+        private RefineryIngestProgress snapshot() {
+            return new RefineryIngestProgress(origin, total, scoring.get(),
+                    awaitingEmbedding.size(), awaitingPersist.size(),
+                    scored.get(), embedded.get(), saved.get(), discarded.get(),
+                    skipped.get(), failed.get(), startedAt, finishedAt);
+        }
+    }
+}
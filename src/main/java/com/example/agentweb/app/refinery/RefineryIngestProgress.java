@@ -0,0 +1,107 @@
+package com.example.agentweb.app.refinery;
+
+import java.time.Instant;
+
+/**
+ * 一次批量 ingest 流水线运行的进度快照, 按来源 ({@code tick} / {@code rebuild}) 保留最近一次.
+ *
+ * <p>{@code scoring} 是正在跑 CLI 评分的会话数, {@code awaitingEmbedding}/{@code awaitingPersist}
+ * 是两段有界队列当前的积压; 其余为累计计数. {@code finishedAt} 为 {@code null} 表示仍在运行.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class RefineryIngestProgress {
+
+    private final String origin;
+    private final int total;
+    private final int scoring;
+    private final int awaitingEmbedding;
+    private final int awaitingPersist;
+    private final int scored;
+    private final int embedded;
+    private final int saved;
+    private final int discarded;
+    private final int skipped;
+    private final int failed;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+
+    public RefineryIngestProgress(String origin, int total, int scoring,
+                                  int awaitingEmbedding, int awaitingPersist,
+                                  int scored, int embedded, int saved, int discarded,
+                                  int skipped, int failed, Instant startedAt, Instant finishedAt) {
+        this.origin = origin;
+        this.total = total;
+        this.scoring = scoring;
+        this.awaitingEmbedding = awaitingEmbedding;
+        this.awaitingPersist = awaitingPersist;
+        this.scored = scored;
+        this.embedded = embedded;
+        this.saved = saved;
+        this.discarded = discarded;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getScoring() {
+        return scoring;
+    }
+
+    public int getAwaitingEmbedding() {
+        return awaitingEmbedding;
+    }
+
+    public int getAwaitingPersist() {
+        return awaitingPersist;
+    }
+
+    public int getScored() {
+        return scored;
+    }
+
+    public int getEmbedded() {
+        return embedded;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    /** 评分低于阈值而丢弃的会话数. */
+    public int getDiscarded() {
+        return discarded;
+    }
+
+    /** 无需评分 (视图不可用 / 策略拦截 / 已处理且无新消息) 的会话数. */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /** 任一阶段失败的会话数, 含已记入 state 待下一轮重试的. */
+    public int getFailed() {
+        return failed;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isRunning() {
+        return finishedAt == null;
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.agentweb.app.refinery;
 
+import java.util.List;
+
 /**
- * refinery "清空并重跑"管理编排端口.
+ * refinery "重跑"管理编排端口.
  *
- * <p>把"最近 N 天有过消息的会话"的 RAG 数据 (chunk + 幂等 state) 清空, 再后台重跑
- * refine+ingest. 不触碰 {@code chat_session} 会话本体与消息.</p>
+ * <p>把"最近 N 天有过消息的会话"重新 refine+ingest 进一代影子集, 整代完成后原子替换这些会话的现役 chunk.
+ * 构建期间召回照常读旧数据. 不触碰 {@code chat_session} 会话本体与消息.</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-05-31
@@ -12,10 +14,20 @@ package com.example.agentweb.app.refinery;
 public interface RefineryRebuildService {
 
     /**
-     * 清空 last_message_at 在最近 {@code days} 天内的会话的 RAG 数据, 并后台重跑.
+     * 为 last_message_at 在最近 {@code days} 天内的会话开启一代影子重建, 并后台重跑.
      *
      * @param days 回溯天数, 调用方负责校验范围
-     * @return 清理统计 + 是否发起重跑
+     * @return 影子代 id + 是否发起重跑
      */
     RebuildResult rebuildRecent(int days);
+
+    /**
+     * 续跑进程退出前未完成的重建代: 只处理尚未落结论的会话, 完成后照常切换. 没有待续的代或已有重跑在跑时什么都不做.
+     *
+     * @return true 已提交续跑
+     */
+    boolean resumeInterrupted();
+
+    /** 最近几代影子构建的进度, 新的在前. */
+    List<RefineryGenerationProgress> generations();
 }
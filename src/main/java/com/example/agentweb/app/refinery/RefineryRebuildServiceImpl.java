@@ -2,26 +2,36 @@ package com.example.agentweb.app.refinery;
 
 import com.example.agentweb.app.logging.TraceContext;
 import com.example.agentweb.domain.chat.SessionRepository;
+import com.example.agentweb.domain.refinery.EmbeddingClient;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
-import com.example.agentweb.domain.refinery.SessionRefineryStateRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RagGenerationRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link RefineryRebuildService} 默认实现.
  *
- * <p>语义: 先抢并发护栏 {@link #rebuildRunning}; 抢不到直接返回 busy (不做任何清理,
- * 避免"清了又没重跑"的空洞)。抢到后<b>同步</b>清空匹配会话的 chunk + state (几条 DELETE, 很快),
- * 再把重跑提交到单线程后台执行器串行跑 {@code refineAndIngest}, 跑完释放护栏。</p>
+ * <p>语义: 先抢并发护栏 {@link #rebuildRunning}; 抢不到直接返回 busy (不开新代, 不动任何数据)。
+ * 抢到后开启一代 REBUILD 影子代 (上一代若仍停在 BUILDING 则放弃), 把重跑提交到单线程后台执行器,
+ * 整批交给 {@code refineAndIngestInto} 流水线写影子集, 全部会话落结论后由
+ * {@link RagChunkRepository#swapGeneration} 一次性替换现役 chunk, 跑完释放护栏。
+ * 构建期间现役 chunk 原样服务召回, 不再有"清空后重跑完之前召回为空"的窗口。</p>
  *
- * <p>与 {@link RefineryAppService} 解耦: 后者只管单会话 ingest, 本类只管批量清理 + 调度。</p>
+ * <p>崩溃续跑: 单元结论逐条落库, {@link #resumeInterrupted()} 只补跑未落结论的会话再切换。
+ * 流水线被中断或有单元没记下结论时不切换, 该代保持 BUILDING 等待续跑。</p>
+ *
+ * <p>与 {@link RefineryAppService} 解耦: 后者只管 ingest, 本类只管开代 + 调度 + 切换。</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-05-31
@@ -32,11 +42,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class RefineryRebuildServiceImpl implements RefineryRebuildService {
 
     private static final long SECONDS_PER_DAY = 86400L;
+    private static final int RECENT_GENERATIONS = 10;
 
     private final SessionRepository sessionRepo;
     private final RagChunkRepository chunkRepo;
-    private final SessionRefineryStateRepository stateRepo;
+    private final RagGenerationRepository generationRepo;
     private final RefineryAppService appService;
+    private final EmbeddingClient embeddingClient;
     private final Executor rebuildExecutor;
     private final Clock clock;
     private final TraceContext traceContext;
@@ -45,15 +57,17 @@ public class RefineryRebuildServiceImpl implements RefineryRebuildService {
 
     public RefineryRebuildServiceImpl(SessionRepository sessionRepo,
                                      RagChunkRepository chunkRepo,
-                                     SessionRefineryStateRepository stateRepo,
+                                     RagGenerationRepository generationRepo,
                                      RefineryAppService appService,
+                                     EmbeddingClient embeddingClient,
                                      @Qualifier("chatRagRebuildExecutor") Executor rebuildExecutor,
                                      @Qualifier("chatRagClock") Clock clock,
                                      TraceContext traceContext) {
         this.sessionRepo = sessionRepo;
         this.chunkRepo = chunkRepo;
-        this.stateRepo = stateRepo;
+        this.generationRepo = generationRepo;
         this.appService = appService;
+        this.embeddingClient = embeddingClient;
         this.rebuildExecutor = rebuildExecutor;
         this.clock = clock;
         this.traceContext = traceContext;
@@ -66,59 +80,98 @@ public class RefineryRebuildServiceImpl implements RefineryRebuildService {
 
         if (!rebuildRunning.compareAndSet(false, true)) {
             log.info("refinery-rebuild-busy days={} matched={}", days, sessionIds.size());
-            return RebuildResult.busy(days, sessionIds.size(), 0);
+            return RebuildResult.busy(days, sessionIds.size());
         }
 
-        int chunksDeleted;
+        RagGeneration generation;
         try {
-            chunksDeleted = clearRagData(sessionIds);
+            Optional<RagGeneration> stale = generationRepo.findBuilding(RagGeneration.Kind.REBUILD);
+            if (stale.isPresent()) {
+                generationRepo.abandon(stale.get().getId(), clock.instant());
+                log.info("refinery-rebuild-superseded generation={}", stale.get().getId());
+            }
+            generation = generationRepo.open(RagGeneration.Kind.REBUILD, sessionIds,
+                    embeddingClient.modelName(), sessionIds.size(), clock.instant());
+            submit(generation);
         } catch (RuntimeException e) {
             rebuildRunning.set(false);
             throw e;
         }
-        log.info("refinery-rebuild-cleared days={} matched={} chunksDeleted={}",
-                days, sessionIds.size(), chunksDeleted);
+        log.info("refinery-rebuild-started days={} matched={} generation={}",
+                days, sessionIds.size(), generation.getId());
+        return RebuildResult.started(days, sessionIds.size(), generation.getId());
+    }
 
+    @Override
+    public boolean resumeInterrupted() {
+        Optional<RagGeneration> building = generationRepo.findBuilding(RagGeneration.Kind.REBUILD);
+        if (!building.isPresent() || !rebuildRunning.compareAndSet(false, true)) {
+            return false;
+        }
         try {
-            rebuildExecutor.execute(() -> reingestAll(sessionIds));
+            submit(building.get());
         } catch (RuntimeException e) {
             rebuildRunning.set(false);
             throw e;
         }
-        return RebuildResult.started(days, sessionIds.size(), chunksDeleted);
+        log.info("refinery-rebuild-resumed generation={} total={} processed={}",
+                building.get().getId(), building.get().getTotal(), building.get().getProcessed());
+        return true;
     }
 
-    /** 同步硬删每个会话的 chunk + 幂等 state, 返回删除的 chunk 总行数. */
-    private int clearRagData(List<String> sessionIds) {
-        int chunksDeleted = 0;
-        for (String sessionId : sessionIds) {
-            chunksDeleted += chunkRepo.deleteBySourceSessionId(sessionId);
-            stateRepo.deleteBySessionId(sessionId);
+    @Override
+    public List<RefineryGenerationProgress> generations() {
+        List<RefineryGenerationProgress> result = new ArrayList<RefineryGenerationProgress>();
+        for (RagGeneration generation : generationRepo.findRecent(RECENT_GENERATIONS)) {
+            result.add(RefineryGenerationProgress.of(generation));
         }
-        return chunksDeleted;
+        return result;
+    }
+
+    private void submit(RagGeneration generation) {
+        rebuildExecutor.execute(() -> build(generation));
     }
 
-    /** 后台串行重跑. 每个会话独立 try-catch, 单个失败不影响其余; 结束释放护栏. */
-    private void reingestAll(List<String> sessionIds) {
+    /** 后台构建 + 切换. 单会话失败由流水线隔离, 不影响其余; 结束释放护栏. */
+    private void build(RagGeneration generation) {
         String traceId = traceContext.newTraceIdIfAbsent();
         long startMs = System.currentTimeMillis();
         int saved = 0;
+        boolean swapped = false;
         try {
-            for (String sessionId : sessionIds) {
-                try {
-                    if (appService.refineAndIngest(sessionId)) {
-                        saved++;
-                    }
-                } catch (RuntimeException e) {
-                    log.error("refinery-rebuild-session-failed sessionId={} traceId={}",
-                            sessionId, traceId, e);
-                }
+            List<String> pending = unprocessed(generation);
+            if (!pending.isEmpty()) {
+                saved = appService.refineAndIngestInto(generation, pending).getSaved();
+            }
+            if (unprocessed(generation).isEmpty()) {
+                int promoted = chunkRepo.swapGeneration(generation, clock.instant());
+                swapped = true;
+                log.info("refinery-rebuild-swapped generation={} promoted={} traceId={}",
+                        generation.getId(), promoted, traceId);
+            } else {
+                log.warn("refinery-rebuild-incomplete generation={} traceId={}, keep building for resume",
+                        generation.getId(), traceId);
             }
+        } catch (RuntimeException e) {
+            log.error("refinery-rebuild-ingest-failed generation={} total={} traceId={}",
+                    generation.getId(), generation.getTotal(), traceId, e);
         } finally {
             rebuildRunning.set(false);
-            log.info("refinery-rebuild-done total={} saved={} elapsedMs={} traceId={}",
-                    sessionIds.size(), saved, System.currentTimeMillis() - startMs, traceId);
+            log.info("refinery-rebuild-done generation={} total={} saved={} swapped={} elapsedMs={} traceId={}",
+                    generation.getId(), generation.getTotal(), saved, swapped,
+                    System.currentTimeMillis() - startMs, traceId);
             traceContext.clear();
         }
     }
+
+    private List<String> unprocessed(RagGeneration generation) {
+        Set<String> processed = generationRepo.findProcessedItems(generation.getId());
+        List<String> pending = new ArrayList<String>();
+        for (String sessionId : generation.getScope()) {
+            if (!processed.contains(sessionId)) {
+                pending.add(sessionId);
+            }
+        }
+        return pending;
+    }
 }
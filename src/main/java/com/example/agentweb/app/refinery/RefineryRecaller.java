@@ -4,12 +4,16 @@ import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
 import com.example.agentweb.domain.refinery.CosineSimilarity;
 import com.example.agentweb.domain.refinery.EmbeddingClient;
+import com.example.agentweb.domain.refinery.RagVectorIndex;
+import com.example.agentweb.domain.refinery.RecallScope;
+import com.example.agentweb.domain.refinery.VectorSearchResult;
 import com.example.agentweb.app.agentrun.WorkspaceContext;
 import com.example.agentweb.app.agentrun.WorkspaceContextResolver;
 import com.example.agentweb.domain.refinery.SourceType;
 import com.example.agentweb.domain.refinery.TrustTier;
 import com.example.agentweb.config.refinery.RefineryProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -18,10 +22,14 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Retrieval and prompt-augmentation service for chat-session vector recall.
@@ -49,82 +57,70 @@ public class RefineryRecaller {
     private final Clock clock;
     private final RecallDetailStore detailStore;
     private final WorkspaceContextResolver workspaceResolver;
+    private final RagVectorIndex vectorIndex;
 
+    @Autowired
     public RefineryRecaller(EmbeddingClient embeddingClient,
                            RagChunkRepository chunkRepo,
                            RefineryProperties props,
                            @Qualifier("chatRagClock") Clock clock,
                            RecallDetailStore detailStore,
-                           WorkspaceContextResolver workspaceResolver) {
+                           WorkspaceContextResolver workspaceResolver,
+                           RagVectorIndex vectorIndex) {
         this.embeddingClient = embeddingClient;
         this.chunkRepo = chunkRepo;
         this.props = props;
         this.clock = clock;
         this.detailStore = detailStore;
         this.workspaceResolver = workspaceResolver;
+        this.vectorIndex = vectorIndex;
+    }
+
+    /** 测试用: 不挂向量索引, 走快照线性扫描. */
+    RefineryRecaller(EmbeddingClient embeddingClient,
+                     RagChunkRepository chunkRepo,
+                     RefineryProperties props,
+                     Clock clock,
+                     RecallDetailStore detailStore,
+                     WorkspaceContextResolver workspaceResolver) {
+        this(embeddingClient, chunkRepo, props, clock, detailStore, workspaceResolver, null);
     }
 
     public List<RagChunk> recall(String query, int topK) {
-        return recallWithFilter(query, topK, buildChatFilter(null)).chunks();
+        return recallWithFilter(query, topK, buildChatScope(null)).chunks();
     }
 
-    private RecallRun recallWithFilter(String query, int topK,
-                                                java.util.function.Predicate<RagChunk> filter) {
+    private RecallRun recallWithFilter(String query, int topK, RecallScope scope) {
         float[] queryVec = embeddingClient.embed(query);
         Instant now = clock.instant();
-        List<RagChunk> active = chunkRepo.findActive(now);
-        Set<String> queryTokens = tokenize(query);
         RefineryProperties.Recall recall = props.getRecall();
         RefineryProperties.Recall.Ranking weights = recall.getRanking();
         double halfLifeDays = recall.getHalfLifeDays();
         double minVectorScore = recall.getMinVectorScore();
-        int belowVectorFloor = 0;
-        int filteredCount = 0;
-        int badVectorCount = 0;
-        Double topVectorScore = null;
-        List<Scored> scored = new ArrayList<>(active.size());
-        for (RagChunk chunk : active) {
-            if (!filter.test(chunk)) {
-                continue;
-            }
-            filteredCount++;
-            try {
-                double vectorSim = CosineSimilarity.cosine(queryVec, chunk.getEmbedding());
-                topVectorScore = topVectorScore == null ? vectorSim : Math.max(topVectorScore, vectorSim);
-                // 余弦硬闸(按 tier 分层, 低可信更高门槛): 语义不相关的 chunk 在融合排序前直接出局
-                double vectorFloor = vectorFloor(recall, chunk.getTier());
-                if (vectorFloor > 0d && vectorSim < vectorFloor) {
-                    belowVectorFloor++;
-                    continue;
-                }
-                ScoreParts parts = scoreParts(chunk, vectorSim, queryTokens,
-                        weights, halfLifeDays, now);
-                scored.add(new Scored(chunk, parts));
-            } catch (RuntimeException e) {
-                badVectorCount++;
-                log.warn("refinery-recall-skip-bad-vector chunkId={} reason={}",
-                        chunk.getId(), e.getMessage());
-            }
-        }
-        scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed());
-        List<Scored> result = applyThresholdAndTopK(scored, topK);
+        ScoringContext ctx = new ScoringContext(queryVec, tokenize(query), recall, weights, halfLifeDays, now);
+        RecallScan scan = isIndexEnabled()
+                ? scanIndexed(ctx, scope, topK)
+                : scanLinear(ctx, scope, topK);
+        List<Scored> result = applyThresholdAndTopK(scan.sortedTop(), topK);
         if (log.isDebugEnabled()) {
-            double topScore = scored.isEmpty() ? 0d : scored.get(0).score;
-            double topCosine = topVectorScore == null ? 0d : topVectorScore;
+            double topScore = scan.topScore == null ? 0d : scan.topScore;
+            double topCosine = scan.topVectorScore == null ? 0d : scan.topVectorScore;
             log.debug("refinery-recall active={} filtered={} belowVecFloor={} badVector={} ranked={} kept={} "
-                            + "topScore={} topCosine={} minVec={} minScore={} minRatio={}",
-                    active.size(), filteredCount, belowVectorFloor, badVectorCount, scored.size(), result.size(),
-                    topScore, topCosine, minVectorScore,
-                    recall.getMinScore(), recall.getMinScoreRatio());
+                            + "truncated={} topScore={} topCosine={} minVec={} minScore={} minRatio={} indexed={} "
+                            + "partitions={}",
+                    scan.activeCount, scan.filteredCount, scan.belowVectorFloor, scan.badVectorCount,
+                    scan.rankedCount, result.size(), scan.truncatedCount, topScore, topCosine, minVectorScore,
+                    recall.getMinScore(), recall.getMinScoreRatio(), scan.indexed, scan.partitions);
         }
         return new RecallRun(result, new RecallStats(
-                active.size(),
-                filteredCount,
-                belowVectorFloor,
-                scored.size(),
-                badVectorCount,
-                topVectorScore,
-                scored.isEmpty() ? null : scored.get(0).score,
+                scan.activeCount,
+                scan.filteredCount,
+                scan.belowVectorFloor,
+                scan.rankedCount,
+                scan.badVectorCount,
+                scan.truncatedCount,
+                scan.topVectorScore,
+                scan.topScore,
                 topK,
                 false,
                 recall.isCrossSourceEnabled(),
@@ -139,6 +135,119 @@ public class RefineryRecaller {
                 props.getEmbedding().getDimension()));
     }
 
+    private boolean isIndexEnabled() {
+        return vectorIndex != null && props.getRecall().getIndex().isEnabled();
+    }
+
+    /** 快照线性扫描: 逐条精确余弦. 索引关闭时的路径, 行为与引入索引前一致. */
+    private RecallScan scanLinear(ScoringContext ctx, RecallScope scope, int topK) {
+        List<RagChunk> active = chunkRepo.findActive(ctx.now);
+        RecallScan scan = scorePartitioned(active, scope, true, ctx, topK, false);
+        scan.activeCount = active.size();
+        return scan;
+    }
+
+    /**
+     * 索引路径: 堆外近似余弦粗筛出候选 id, 回表加载聚合后用原始向量精确重算.
+     * 计数口径与线性扫描一致——粗筛阶段的 below/bad 与精确阶段的累加.
+     * 候选上限只截掉融合后不可能进 topK 的条目, 截掉的条数记入 trace.
+     */
+    private RecallScan scanIndexed(ScoringContext ctx, RecallScope scope, int topK) {
+        VectorSearchResult search = vectorIndex.search(ctx.queryVec, scope,
+                tier -> vectorFloor(ctx.recall, tier), ctx.now, topK, rankHeadroom(ctx.weights));
+        List<RagChunk> candidates = Collections.emptyList();
+        if (!search.candidates().isEmpty()) {
+            List<String> ids = new ArrayList<>(search.candidates().size());
+            for (VectorSearchResult.Candidate candidate : search.candidates()) {
+                ids.add(candidate.chunkId());
+            }
+            candidates = chunkRepo.findByIds(ids);
+        }
+        // 索引与回表之间被归档/改 tier 的 chunk 不再入选 (与快照失效后的下一次召回一致); 范围已由索引计数
+        RecallScan scan = scorePartitioned(candidates, scope, false, ctx, topK, true);
+        scan.activeCount = search.activeCount();
+        scan.filteredCount = search.scopeMatched();
+        scan.belowVectorFloor += search.belowVectorFloor();
+        scan.badVectorCount += search.badVectorCount();
+        scan.topVectorScore = maxOrNull(scan.topVectorScore, search.topRejectedCosine());
+        scan.truncatedCount = search.truncated();
+        return scan;
+    }
+
+    /**
+     * 非向量项 (关键词 Jaccard 与时间衰减分都在 [0,1]) 在融合分里最多能拉开的差距, 折算成余弦单位.
+     * 向量权重不为正时余弦不决定排序, 返回无穷大让索引不做截断.
+     */
+    private static double rankHeadroom(RefineryProperties.Recall.Ranking weights) {
+        double vectorWeight = weights.getVectorWeight();
+        if (!(vectorWeight > 0d)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (Math.abs(weights.getSignalWeight()) + Math.abs(weights.getTimeDecayWeight())) / vectorWeight;
+    }
+
+    /**
+     * 精确打分入口: 候选不足 {@code parallel-threshold} 时在调用线程串行, 否则按 {@code partition-size}
+     * 切成连续区段交给 ForkJoin 公共池. 每个分区独立持有 topK 有界堆与 trace 计数, 合并时计数相加、
+     * 堆互相并入; 排序键为 (融合分降序, chunk id 升序) 全序, 因此合并次序与候选的加载顺序都不影响结果.
+     */
+    private RecallScan scorePartitioned(List<RagChunk> chunks, RecallScope scope, boolean countFiltered,
+                                        ScoringContext ctx, int topK, boolean indexed) {
+        RefineryProperties.Recall recall = ctx.recall;
+        int threshold = recall.getParallelThreshold();
+        if (threshold <= 0 || chunks.size() < threshold) {
+            RecallScan scan = new RecallScan(indexed, topK);
+            scoreRange(chunks, 0, chunks.size(), scope, countFiltered, ctx, scan);
+            return scan;
+        }
+        int partitionSize = Math.max(1, recall.getPartitionSize());
+        return ForkJoinPool.commonPool().invoke(new ScoringTask(
+                chunks, 0, chunks.size(), partitionSize, scope, countFiltered, ctx, topK, indexed));
+    }
+
+    private void scoreRange(List<RagChunk> chunks, int from, int to, RecallScope scope,
+                            boolean countFiltered, ScoringContext ctx, RecallScan scan) {
+        for (int i = from; i < to; i++) {
+            RagChunk chunk = chunks.get(i);
+            if (chunk.getArchivedAt() != null || !scope.admits(chunk)) {
+                continue;
+            }
+            if (countFiltered) {
+                scan.filteredCount++;
+            }
+            scoreExact(chunk, ctx, scan);
+        }
+    }
+
+    private static Double maxOrNull(Double a, Double b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.max(a, b);
+    }
+
+    private void scoreExact(RagChunk chunk, ScoringContext ctx, RecallScan scan) {
+        try {
+            double vectorSim = CosineSimilarity.cosine(ctx.queryVec, ctx.queryNorm,
+                    chunk.getEmbedding(), chunk.getEmbeddingNorm());
+            scan.topVectorScore = scan.topVectorScore == null
+                    ? vectorSim : Math.max(scan.topVectorScore, vectorSim);
+            // 余弦硬闸(按 tier 分层, 低可信更高门槛): 语义不相关的 chunk 在融合排序前直接出局
+            double vectorFloor = vectorFloor(ctx.recall, chunk.getTier());
+            if (vectorFloor > 0d && vectorSim < vectorFloor) {
+                scan.belowVectorFloor++;
+                return;
+            }
+            ScoreParts parts = scoreParts(chunk, vectorSim, ctx.queryTokens,
+                    ctx.weights, ctx.halfLifeDays, ctx.now);
+            scan.offer(new Scored(chunk, parts));
+        } catch (RuntimeException e) {
+            scan.badVectorCount++;
+            log.warn("refinery-recall-skip-bad-vector chunkId={} reason={}",
+                    chunk.getId(), e.getMessage());
+        }
+    }
+
     /**
      * 在已降序排好的候选上套相关性阈值再取 topK. 两道闸 (绝对 {@code minScore} + 相对
      * {@code minScoreRatio}) 默认都关 (配置 {@code <=0}), 此时行为与纯 topK 截断一致。
@@ -296,7 +405,7 @@ public class RefineryRecaller {
         }
         try {
             RecallRun run = recallWithFilter(query, props.getRecall().getTopK(),
-                    buildChatFilter(resolveMinTier(workingDir)));
+                    buildChatScope(resolveMinTier(workingDir)));
             if (run.hits.isEmpty()) {
                 return RecallTrace.noHit(query, userMessage, run.stats, elapsedSince(start));
             }
@@ -351,22 +460,16 @@ public class RefineryRecaller {
     }
 
     /**
-     * chat 召回过滤: 来源过滤叠加 workspace 声明的可信度下限 (tier 门禁, 设计方案 §A2)。
+     * chat 召回范围: 来源过滤叠加 workspace 声明的可信度下限 (tier 门禁, 设计方案 §A2)。
      * {@code minTier=null} 保持现状 (EXPLORATORY 可入); 排障 workspace 声明 PENDING/VERIFIED 后,
      * 未验证 chunk 结构性出局——宁可召回空转, 不注入未验证结论。
      */
-    private java.util.function.Predicate<RagChunk> buildChatFilter(TrustTier minTier) {
-        java.util.function.Predicate<RagChunk> source;
+    private RecallScope buildChatScope(TrustTier minTier) {
+        RecallScope scope = RecallScope.none().with(SourceType.CHAT);
         if (props.getRecall().isCrossSourceEnabled()) {
-            source = c -> c.getSourceType() == SourceType.CHAT
-                    || (c.getSourceType() == SourceType.DIAGNOSE && c.getTier() == TrustTier.VERIFIED);
-        } else {
-            source = c -> c.getSourceType() == SourceType.CHAT;
-        }
-        if (minTier == null) {
-            return source;
+            scope = scope.with(SourceType.DIAGNOSE, TrustTier.VERIFIED);
         }
-        return source.and(c -> c.getTier().ordinal() <= minTier.ordinal());
+        return scope.atLeast(minTier);
     }
 
     /** tier 分层余弦硬闸: 该 tier 未配置时回落全局 minVectorScore. */
@@ -397,6 +500,11 @@ public class RefineryRecaller {
     }
 
     private static final class Scored {
+        /** 排名全序: 融合分降序, 同分按 chunk id 升序 (回表与快照都不保证行序, 不能按列表下标). */
+        static final Comparator<Scored> BEST_FIRST = Comparator.comparingDouble((Scored s) -> s.score)
+                .reversed()
+                .thenComparing(s -> s.chunk.getId());
+
         final RagChunk chunk;
         final double score;
         final ScoreParts parts;
@@ -422,6 +530,136 @@ public class RefineryRecaller {
         }
     }
 
+    /** 单次召回内各候选共享的只读打分参数. */
+    private static final class ScoringContext {
+        final float[] queryVec;
+        final double queryNorm;
+        final Set<String> queryTokens;
+        final RefineryProperties.Recall recall;
+        final RefineryProperties.Recall.Ranking weights;
+        final double halfLifeDays;
+        final Instant now;
+
+        ScoringContext(float[] queryVec, Set<String> queryTokens, RefineryProperties.Recall recall,
+                       RefineryProperties.Recall.Ranking weights, double halfLifeDays, Instant now) {
+            this.queryVec = queryVec;
+            this.queryNorm = CosineSimilarity.norm(queryVec);
+            this.queryTokens = queryTokens;
+            this.recall = recall;
+            this.weights = weights;
+            this.halfLifeDays = halfLifeDays;
+            this.now = now;
+        }
+    }
+
+    /**
+     * 一次扫描 (或其一个分区) 的 topK 有界堆与 trace 计数. 堆顶是当前最差的入围者,
+     * 过闸候选只有优于堆顶才替换; {@link #rankedCount}/{@link #topScore} 覆盖全部过闸候选.
+     */
+    private static final class RecallScan {
+        final boolean indexed;
+        final int capacity;
+        final PriorityQueue<Scored> top;
+        int activeCount;
+        int filteredCount;
+        int belowVectorFloor;
+        int badVectorCount;
+        int rankedCount;
+        int truncatedCount;
+        int partitions = 1;
+        Double topVectorScore;
+        Double topScore;
+
+        RecallScan(boolean indexed, int topK) {
+            this.indexed = indexed;
+            this.capacity = Math.max(0, topK);
+            this.top = new PriorityQueue<>(Math.max(1, capacity + 1), Scored.BEST_FIRST.reversed());
+        }
+
+        void offer(Scored scored) {
+            rankedCount++;
+            topScore = maxOrNull(topScore, scored.score);
+            retain(scored);
+        }
+
+        private void retain(Scored scored) {
+            if (capacity == 0) {
+                return;
+            }
+            if (top.size() < capacity) {
+                top.add(scored);
+            } else if (Scored.BEST_FIRST.compare(scored, top.peek()) < 0) {
+                top.poll();
+                top.add(scored);
+            }
+        }
+
+        /** 并入另一分区: 计数相加, 最值取大, 入围者逐个过堆. */
+        RecallScan merge(RecallScan other) {
+            filteredCount += other.filteredCount;
+            belowVectorFloor += other.belowVectorFloor;
+            badVectorCount += other.badVectorCount;
+            rankedCount += other.rankedCount;
+            partitions += other.partitions;
+            topVectorScore = maxOrNull(topVectorScore, other.topVectorScore);
+            topScore = maxOrNull(topScore, other.topScore);
+            for (Scored scored : other.top) {
+                retain(scored);
+            }
+            return this;
+        }
+
+        /** 入围者按排名降序. */
+        List<Scored> sortedTop() {
+            List<Scored> sorted = new ArrayList<>(top);
+            sorted.sort(Scored.BEST_FIRST);
+            return sorted;
+        }
+    }
+
+    /** 精确打分的 ForkJoin 分区任务: 区段不超过 {@code partitionSize} 时就地打分, 否则二分. */
+    private final class ScoringTask extends RecursiveTask<RecallScan> {
+        private final List<RagChunk> chunks;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+        private final RecallScope scope;
+        private final boolean countFiltered;
+        private final ScoringContext ctx;
+        private final int topK;
+        private final boolean indexed;
+
+        ScoringTask(List<RagChunk> chunks, int from, int to, int partitionSize, RecallScope scope,
+                    boolean countFiltered, ScoringContext ctx, int topK, boolean indexed) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+            this.scope = scope;
+            this.countFiltered = countFiltered;
+            this.ctx = ctx;
+            this.topK = topK;
+            this.indexed = indexed;
+        }
+
+        @Override
+        protected RecallScan compute() {
+            if (to - from <= partitionSize) {
+                RecallScan scan = new RecallScan(indexed, topK);
+                scoreRange(chunks, from, to, scope, countFiltered, ctx, scan);
+                return scan;
+            }
+            int mid = (from + to) >>> 1;
+            ScoringTask left = new ScoringTask(chunks, from, mid, partitionSize, scope,
+                    countFiltered, ctx, topK, indexed);
+            ScoringTask right = new ScoringTask(chunks, mid, to, partitionSize, scope,
+                    countFiltered, ctx, topK, indexed);
+            left.fork();
+            RecallScan rightScan = right.compute();
+            return left.join().merge(rightScan);
+        }
+    }
+
     private static final class RecallRun {
         final List<Scored> hits;
         final RecallStats stats;
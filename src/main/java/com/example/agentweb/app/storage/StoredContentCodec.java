@@ -0,0 +1,42 @@
+package com.example.agentweb.app.storage;
+
+/**
+ * 大文本列（助手 stream-json 正文、ChatRun 事件 payload、恢复检查点）的存储编解码端口。
+ *
+ * <p>{@link #encode} 的结果直接绑定为列值：未压缩时仍是 {@code String}（TEXT），压缩或外置时是
+ * {@code byte[]}（BLOB）。读侧一律用 {@code ResultSet#getObject} 取原值交给 {@link #decode}，
+ * 因此同一列里新旧两种形态可以并存，存量数据无需停机迁移。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface StoredContentCodec {
+
+    /** 不编码；只认 TEXT 原值，遇到已编码的 BLOB 说明调用方漏配了编解码器。 */
+    StoredContentCodec PLAIN = new StoredContentCodec() {
+        @Override
+        public Object encode(String content) {
+            return content;
+        }
+
+        @Override
+        public String decode(Object stored) {
+            if (stored == null || stored instanceof String) {
+                return (String) stored;
+            }
+            throw new IllegalStateException("encoded content requires the configured storage codec");
+        }
+    };
+
+    /**
+     * @param content 原文，可为 null
+     * @return 写入列的值：{@code String} 或 {@code byte[]}
+     */
+    Object encode(String content);
+
+    /**
+     * @param stored 列原值（{@code String} / {@code byte[]} / null）
+     * @return 原文
+     */
+    String decode(Object stored);
+}
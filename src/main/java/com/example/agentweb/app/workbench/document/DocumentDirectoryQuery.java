@@ -17,9 +17,16 @@ public final class DocumentDirectoryQuery {
     private final String repositoryKey;
     private final String relativePath;
     private final int limit;
+    /** 上一页返回的续页游标; 首页为 null。 */
+    private final String cursor;
 
     public DocumentDirectoryQuery(
             String repositoryKey, String relativePath, int limit) {
+        this(repositoryKey, relativePath, limit, null);
+    }
+
+    public DocumentDirectoryQuery(
+            String repositoryKey, String relativePath, int limit, String cursor) {
         this.repositoryKey = DocumentReference.requireRepositoryKey(repositoryKey);
         if (relativePath == null) {
             throw new IllegalArgumentException(
@@ -32,5 +39,6 @@ public final class DocumentDirectoryQuery {
                     "document directory limit must be between 1 and " + MAXIMUM_LIMIT);
         }
         this.limit = limit;
+        this.cursor = cursor == null || cursor.isEmpty() ? null : cursor;
     }
 }
@@ -20,14 +20,24 @@ public final class DocumentDirectoryView {
     private final String path;
     private final List<DocumentDirectoryEntryView> entries;
     private final boolean truncated;
+    /** 取下一页的游标; 未截断时为 null。 */
+    private final String nextCursor;
 
     public DocumentDirectoryView(
             String repositoryKey, String path,
             List<DocumentDirectoryEntryView> entries, boolean truncated) {
+        this(repositoryKey, path, entries, truncated, null);
+    }
+
+    public DocumentDirectoryView(
+            String repositoryKey, String path,
+            List<DocumentDirectoryEntryView> entries, boolean truncated,
+            String nextCursor) {
         this.repositoryKey = Objects.requireNonNull(repositoryKey, "repositoryKey");
         this.path = Objects.requireNonNull(path, "path");
         this.entries = Collections.unmodifiableList(new ArrayList<DocumentDirectoryEntryView>(
                 Objects.requireNonNull(entries, "entries")));
         this.truncated = truncated;
+        this.nextCursor = nextCursor;
     }
 }
@@ -1,5 +1,7 @@
 package com.example.agentweb.app.workbench.run;
 
+import com.example.agentweb.app.chatrun.ChatRunAdmissionLane;
+import com.example.agentweb.app.chatrun.ChatRunAdmissionScheduler;
 import com.example.agentweb.app.chatrun.ChatRunEventAppender;
 import com.example.agentweb.app.chatrun.ChatRunEventDraft;
 import com.example.agentweb.app.chatrun.ChatRunLauncher;
@@ -75,6 +77,7 @@ public class WorkbenchStageRunSubmissionCommitter {
     private final Clock clock;
     private final RuntimeProfileSelector profileSelector;
     private final ChatRunRuntimeSelectionStore selectionStore;
+    private final ChatRunAdmissionScheduler admissionScheduler;
 
     public WorkbenchStageRunSubmissionCommitter(
             WorkbenchRepository workbenchRepository,
@@ -100,7 +103,6 @@ public class WorkbenchStageRunSubmissionCommitter {
                 clock, null, null);
     }
 
-    @Autowired
     public WorkbenchStageRunSubmissionCommitter(
             WorkbenchRepository workbenchRepository,
             WorkspaceSnapshotRepository workspaceSnapshotRepository,
@@ -120,6 +122,34 @@ public class WorkbenchStageRunSubmissionCommitter {
             Clock clock,
             RuntimeProfileSelector profileSelector,
             ChatRunRuntimeSelectionStore selectionStore) {
+        this(workbenchRepository, workspaceSnapshotRepository, snapshotRepository,
+                promptRepository, attachmentRepository, attachmentPolicy,
+                sessionRepository, runRepository, eventAppender, launcher,
+                activityGuard, runQueryService, streamSettings, submissionExecutor,
+                clock, profileSelector, selectionStore, null);
+    }
+
+    @Autowired
+    public WorkbenchStageRunSubmissionCommitter(
+            WorkbenchRepository workbenchRepository,
+            WorkspaceSnapshotRepository workspaceSnapshotRepository,
+            WorkbenchStageRunSnapshotRepository snapshotRepository,
+            WorkbenchStageRunPromptPayloadRepository promptRepository,
+            WorkbenchStageUploadedConversationAttachmentRepository
+                    attachmentRepository,
+            UploadedAttachmentPolicy attachmentPolicy,
+            SessionRepository sessionRepository,
+            ChatRunRepository runRepository,
+            ChatRunEventAppender eventAppender,
+            ChatRunLauncher launcher,
+            ChatRunActivityGuard activityGuard,
+            ChatRunQueryService runQueryService,
+            ChatRunStreamSettings streamSettings,
+            WorkbenchStageRunSubmissionExecutor submissionExecutor,
+            Clock clock,
+            RuntimeProfileSelector profileSelector,
+            ChatRunRuntimeSelectionStore selectionStore,
+            ChatRunAdmissionScheduler admissionScheduler) {
         this.workbenchRepository = Objects.requireNonNull(
                 workbenchRepository, "workbenchRepository");
         this.workspaceSnapshotRepository = Objects.requireNonNull(
@@ -150,6 +180,7 @@ public class WorkbenchStageRunSubmissionCommitter {
         this.clock = Objects.requireNonNull(clock, "clock");
         this.profileSelector = profileSelector;
         this.selectionStore = selectionStore;
+        this.admissionScheduler = admissionScheduler;
     }
 
     public WorkbenchStageRunSubmissionResult commit(
@@ -204,7 +235,7 @@ public class WorkbenchStageRunSubmissionCommitter {
         String sessionId = provisioning.requireCurrentConversationId();
         ChatSession session = requireTrustedSession(provisioning, sessionId);
         activityGuard.requireInactive(sessionId);
-        requireCapacity();
+        requireCapacity(actor);
         Instant now = clock.instant();
         obscureOwner(() -> workbench.prepareStageRun(
                 command.getStageInstanceIdentifier(), candidate.getRunId(),
@@ -239,7 +270,12 @@ public class WorkbenchStageRunSubmissionCommitter {
         eventAppender.afterCommit(new Runnable() {
             @Override
             public void run() {
-                launcher.launch(run.getId());
+                if (admissionScheduler == null) {
+                    launcher.launch(run.getId());
+                } else {
+                    admissionScheduler.submit(run.getId(), actor.getOwnerId(),
+                            ChatRunAdmissionLane.INTERACTIVE, launcher);
+                }
             }
         });
         return WorkbenchStageRunSubmissionResult.from(
@@ -342,7 +378,18 @@ public class WorkbenchStageRunSubmissionCommitter {
         return session;
     }
 
-    private void requireCapacity() {
+    private void requireCapacity(OwnerReference actor) {
+        if (admissionScheduler != null) {
+            admissionScheduler.requireAdmission(
+                    actor.getOwnerId(), ChatRunAdmissionLane.INTERACTIVE);
+            eventAppender.unlessCommitted(new Runnable() {
+                @Override
+                public void run() {
+                    admissionScheduler.withdrawAdmission();
+                }
+            });
+            return;
+        }
         int capacity = Math.max(1, streamSettings.getMaxActiveRuns());
         if (runQueryService.countActiveRuns() >= capacity) {
             throw new RunCapacityExceededException(capacity);
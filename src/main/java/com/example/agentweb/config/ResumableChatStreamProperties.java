@@ -27,5 +27,9 @@ public class ResumableChatStreamProperties implements ChatRunStreamSettings {
     private int flushMaxBytes = 65_536;
     private int subscriberMaxEvents = 1_024;
     private int subscriberMaxBytes = 2_097_152;
+    private int replayTailMaxEvents = 512;
+    private long replayTailMaxBytes = 1_048_576L;
     private int maxActiveRuns = 8;
+    private int maxQueuedRuns = 32;
+    private int interactiveAdmissionWeight = 4;
 }
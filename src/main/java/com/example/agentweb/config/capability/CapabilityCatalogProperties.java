@@ -22,4 +22,6 @@ public class CapabilityCatalogProperties {
     private String approvedUserSkillRoot;
     private String workspaceSkillRoot;
     private String mcpServerRoot = "src/main/resources/capability/mcp-servers";
+    /** 目录监听无事件时，缓存的 Catalog 最多沿用这么久再做一次 stat 复核；兜底收不到事件的文件系统。 */
+    private long catalogRevalidateSeconds = 60L;
 }
@@ -28,6 +28,7 @@ public class RefineryProperties {
     private boolean enabled = false;
 
     private Poll poll = new Poll();
+    private Pipeline pipeline = new Pipeline();
     private Refine refine = new Refine();
     private Embedding embedding = new Embedding();
     private Privacy privacy = new Privacy();
@@ -40,10 +41,23 @@ public class RefineryProperties {
     public static class Poll {
         private int silentMinutes = 30;
         private int intervalSeconds = 300;
-        private int maxPerTick = 5;
+        private int maxPerTick = 15;
         private int maxRetries = 3;
     }
 
+    /**
+     * 批量 ingest 流水线 (定时 tick 与管理台重跑共用): 评分 → 批量 embed → 单写者落库,
+     * 阶段之间是有界队列, 下游跟不上时上游阻塞.
+     */
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /** 同时在跑的 CLI 评分数上限, tick 与重跑共享. 1 = 与历史串行一致. */
+        private int scoringConcurrency = 3;
+        /** 评分→embed、embed→落库两段队列各自的容量. */
+        private int queueCapacity = 32;
+    }
+
     /** LLM 评分 + 结论压缩参数. */
     @Getter
     @Setter
@@ -91,6 +105,21 @@ public class RefineryProperties {
         private int maxInputChars = 8000;
         private int httpConnectTimeoutMs = 5000;
         private int httpReadTimeoutMs = 30000;
+        /** 单次 /embeddings 请求的最大输入条数 (多输入批量往返). */
+        private int batchSize = 16;
+        private Cache cache = new Cache();
+
+        /**
+         * 向量缓存: 键为 (模型, 维度, 规范化文本哈希). 召回 query 中重试、重新生成、定时任务的重复
+         * prompt 直接命中; 容量满按 LRU 淘汰, 超过 TTL 视为未命中.
+         */
+        @Getter
+        @Setter
+        public static class Cache {
+            private boolean enabled = true;
+            private int maxEntries = 2000;
+            private int ttlMinutes = 60;
+        }
     }
 
     /** 入库前对会话文本的脱敏正则. 默认覆盖 API key / JWT / Windows 用户名路径段. */
@@ -149,8 +178,36 @@ public class RefineryProperties {
 
         /** 快照软上限: 活跃 chunk 超过此数不缓存并告警回落直查, 防 heap 意外膨胀; <=0 不设限. */
         private int cacheMaxChunks = 50000;
+
+        /** 精确打分候选数达到此值才按分区并行 (ForkJoin 公共池); 以下在调用线程串行; <=0 始终串行. */
+        private int parallelThreshold = 4096;
+
+        /** 并行打分时每个分区的 chunk 数下限, 分区各持 topK 有界堆与计数后合并. */
+        private int partitionSize = 1024;
+        private Index index = new Index();
         private Ranking ranking = new Ranking();
 
+        /**
+         * 召回向量索引: 归一化向量存放在内存映射文件 (堆外), 按 (来源, tier) bitset 预过滤,
+         * 近似余弦粗筛后只对候选按 id 加载聚合做精确重算. 关闭后回到快照线性扫描.
+         */
+        @Getter
+        @Setter
+        public static class Index {
+            private boolean enabled = true;
+            /** 映射文件目录; 文件是可随时重建的派生数据, 启动时清理残留. */
+            private String path = "data/refinery/vector-index";
+            /** 向量编码: FLOAT32 (无损) / FLOAT16 (半量) / INT8 (逐向量对称量化, 约 1/4). */
+            private String encoding = "INT8";
+            /** 近似余弦相对 tier 硬闸的放宽量, 覆盖量化误差, 保证不漏掉精确余弦过闸的 chunk. */
+            private double rerankMargin = 0.02d;
+            /**
+             * 进入精确重算的候选上限, 按近似余弦取前 N; 防硬闸关闭时全量回表.
+             * 融合后仍可能进 topK 的条目不受此限.
+             */
+            private int maxCandidates = 256;
+        }
+
         /** 重排三维权重 (α 向量 + β 关键词 + γ 时间衰减). 约束 α+β+γ≈1, 不强校验. */
         @Getter
         @Setter
@@ -6,7 +6,9 @@ import com.example.agentweb.app.chatrun.ChatRunLifecycleService;
 import com.example.agentweb.app.chatrun.ChatRunPromptBuilder;
 import com.example.agentweb.app.chatrun.ChatRunQueryService;
 import com.example.agentweb.app.chatrun.ChatRunRuntimeLauncher;
+import com.example.agentweb.app.chatrun.ChatRunRuntimeOutputCheckpointer;
 import com.example.agentweb.app.chatrun.ChatRunRuntimeTerminationReconciler;
+import com.example.agentweb.app.chatrun.ChatRunTelemetry;
 import com.example.agentweb.app.chatrun.RunOriginRoutingChatRunLauncher;
 import com.example.agentweb.app.runtime.ChatExecutionPlanProvider;
 import com.example.agentweb.app.runtime.ExecutionPlanProvider;
@@ -28,6 +30,7 @@ import com.example.agentweb.domain.shared.CanonicalHashing;
 import com.example.agentweb.domain.workbench.WorkbenchRepository;
 import com.example.agentweb.domain.workbench.WorkbenchStageRunPromptPayloadRepository;
 import com.example.agentweb.domain.workbench.WorkbenchStageRunSnapshotRepository;
+import com.example.agentweb.infra.capability.SkillArtifactSource;
 import com.example.agentweb.infra.runtime.AgentProcessKernel;
 import com.example.agentweb.infra.runtime.SqliteChatRunRuntimeSelectionStore;
 import com.example.agentweb.infra.runtime.CodexRuntimeCompatibilityMatrix;
@@ -44,6 +47,7 @@ import com.example.agentweb.infra.runtime.profile.AgentRuntimeProfileCatalog;
 import com.example.agentweb.infra.runtime.profile.AgentRuntimeProfileFileLoader;
 import com.example.agentweb.infra.agentrun.RoutingAgentGateway;
 import com.example.agentweb.app.agentrun.port.AgentRuntime;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -64,6 +68,7 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * 公共 Runtime 基础设施、Provider Registry 与 Chat launcher 切换的生产装配。
@@ -127,9 +132,11 @@ public class CommonRuntimeConfiguration {
     public RuntimeCapabilityMaterializer commonRuntimeCapabilityMaterializer(
             SkillCatalog skillCatalog,
             McpServerCatalog mcpServerCatalog,
-            RuntimeSecretResolver secretResolver) {
+            RuntimeSecretResolver secretResolver,
+            ObjectProvider<SkillArtifactSource> artifactSource) {
         return new RuntimeCapabilityMaterializer(
-                skillCatalog, mcpServerCatalog, secretResolver);
+                skillCatalog, mcpServerCatalog, secretResolver,
+                artifactSource.getIfAvailable());
     }
 
     @Bean
@@ -139,11 +146,13 @@ public class CommonRuntimeConfiguration {
 
     @Bean
     public RuntimeEventDecoder commonRuntimeEventDecoder(
-            RuntimeOutputRedactor outputRedactor) {
+            RuntimeOutputRedactor outputRedactor,
+            ObjectProvider<MeterRegistry> meterRegistry) {
         return new RuntimeEventDecoder(
                 outputRedactor,
                 com.example.agentweb.domain.runtime.RuntimeCommandPolicy.platformDefault(),
-                new com.example.agentweb.infra.cli.CodexEventNormalizer());
+                new com.example.agentweb.infra.cli.CodexEventNormalizer(),
+                meterRegistry.getIfAvailable());
     }
 
     @Bean
@@ -156,8 +165,16 @@ public class CommonRuntimeConfiguration {
         return new RuntimeCleanup();
     }
 
-    @Bean(name = "commonRuntimeMonitorExecutor")
-    public ThreadPoolTaskExecutor commonRuntimeMonitorExecutor() {
+    /**
+     * BLOCKING 模式每次运行一个虚拟线程，阻塞读不占用平台线程池；POLLING 沿用有界平台线程池。
+     * 虚拟线程执行器不随容器关闭等待：活动进程由内核 close() 统一终止。
+     */
+    @Bean(name = "commonRuntimeMonitorExecutor", destroyMethod = "")
+    public Executor commonRuntimeMonitorExecutor(CommonRuntimeProperties properties) {
+        if (properties.getMonitorMode() == AgentProcessKernel.MonitorMode.BLOCKING) {
+            return Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("common-runtime-monitor-", 1L).factory());
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(4);
@@ -177,12 +194,13 @@ public class CommonRuntimeConfiguration {
             RuntimeEventDecoder eventDecoder,
             RuntimeProcessRegistry processRegistry,
             RuntimeCleanup cleanup,
-            @Qualifier("commonRuntimeMonitorExecutor")
-                    ThreadPoolTaskExecutor monitorExecutor) {
+            @Qualifier("commonRuntimeMonitorExecutor") Executor monitorExecutor,
+            CommonRuntimeProperties properties) {
         return new AgentProcessKernel(
                 commandFactory, workspaceMaterializer,
                 capabilityMaterializer, eventDecoder,
-                processRegistry, cleanup, monitorExecutor);
+                processRegistry, cleanup, monitorExecutor,
+                properties.getMonitorMode());
     }
 
     @Bean
@@ -264,10 +282,14 @@ public class CommonRuntimeConfiguration {
             ChatRunLifecycleService lifecycleService,
             ChatRunRuntimeTerminationReconciler terminationReconciler,
             Clock clock,
-            @Qualifier("agentExecutor") Executor executor) {
+            @Qualifier("agentExecutor") Executor executor,
+            ObjectProvider<ChatRunTelemetry> telemetry,
+            ObjectProvider<ChatRunRuntimeOutputCheckpointer> checkpointer) {
         return new ChatRunRuntimeLauncher(
                 runRepository, registry, executionGateway, handleStore,
-                lifecycleService, terminationReconciler, clock, executor);
+                lifecycleService, terminationReconciler, clock, executor,
+                telemetry.getIfAvailable(() -> ChatRunTelemetry.NOOP),
+                checkpointer.getIfAvailable(() -> ChatRunRuntimeOutputCheckpointer.NONE));
     }
 
     @Bean
@@ -1,5 +1,6 @@
 package com.example.agentweb.config.runtime;
 
+import com.example.agentweb.infra.runtime.AgentProcessKernel;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,6 +31,8 @@ public class CommonRuntimeProperties {
     private long chatTimeoutSeconds = 7200L;
     private long chatMaxOutputBytes = 8L * 1024L * 1024L;
     private String profileFile = "data/secrets.properties";
+    /** stdout 监视方式：BLOCKING 为虚拟线程阻塞逐行读取，POLLING 保留原 20ms 轮询。 */
+    private AgentProcessKernel.MonitorMode monitorMode = AgentProcessKernel.MonitorMode.BLOCKING;
 
     @PostConstruct
     public void validate() {
@@ -37,6 +40,7 @@ public class CommonRuntimeProperties {
                 || isBlank(tempRoot)
                 || isBlank(profileFile)
                 || isBlank(compatibilityMatrixVersion)
+                || monitorMode == null
                 || versionProbeTimeoutSeconds < 1L
                 || versionProbeMaxBytes < 1L
                 || chatTimeoutSeconds < 1L
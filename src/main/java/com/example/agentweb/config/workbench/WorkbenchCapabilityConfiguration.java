@@ -2,6 +2,7 @@ package com.example.agentweb.config.workbench;
 
 import com.example.agentweb.domain.capability.CapabilityArtifactRegistry;
 import com.example.agentweb.domain.workbench.stage.WorkbenchStageCapabilityResolver;
+import com.example.agentweb.infra.capability.SkillArtifactSource;
 import com.example.agentweb.infra.capability.SqliteCapabilityArtifactRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -29,6 +30,11 @@ public class WorkbenchCapabilityConfiguration {
                 Path.of(properties.getArtifactRoot()), clock);
     }
 
+    @Bean
+    public SkillArtifactSource skillArtifactSource(WorkbenchCapabilityProperties properties) {
+        return new SkillArtifactSource(Path.of(properties.getArtifactRoot()));
+    }
+
     @Bean
     public WorkbenchStageCapabilityResolver workbenchStageCapabilityResolver(
             CapabilityArtifactRegistry artifactRegistry) {
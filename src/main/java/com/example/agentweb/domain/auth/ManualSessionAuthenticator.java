@@ -41,7 +41,7 @@ public class ManualSessionAuthenticator {
             repository.deleteById(sessionToken);
             return Optional.empty();
         }
-        UserAccount account = userAccountRepository.findById(session.getUserId()).orElse(null);
+        UserAccount account = repository.findAccount(session, userAccountRepository).orElse(null);
         if (account == null || !account.isEnabled()) {
             repository.deleteById(sessionToken);
             return Optional.empty();
@@ -38,4 +38,18 @@ public interface ManualSessionRepository {
      * 批量清理 expiresAt < threshold 的会话。返回受影响行数,供后台 tick 监控。
      */
     int deleteExpiredBefore(Instant threshold);
+
+    /**
+     * 解析会话所属账户。默认直接查账户仓储;缓存实现可把账户随会话条目一起缓存,
+     * 账户写入后由 {@link #evictAccount} 显式失效。
+     */
+    default Optional<UserAccount> findAccount(ManualSession session, UserAccountRepository accounts) {
+        return accounts.findById(session.getUserId());
+    }
+
+    /**
+     * 账户停用、角色变更等写入后调用,丢弃随会话缓存的该账户;无缓存的实现无需处理。
+     */
+    default void evictAccount(String userId) {
+    }
 }
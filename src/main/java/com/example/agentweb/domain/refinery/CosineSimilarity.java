@@ -2,13 +2,23 @@ package com.example.agentweb.domain.refinery;
 
 /**
  * 余弦相似度计算工具. refinery 召回路径用此工具在内存里算 query embedding 与每条 chunk
- * embedding 的相似度, 起步阶段 (< 1 万 chunk) O(N) 扫表足够.
+ * embedding 的相似度.
+ *
+ * <p>点积在 {@code jdk.incubator.vector} 模块可用时 (启动参数 {@code --add-modules jdk.incubator.vector})
+ * 走 {@link SimdDotProduct}, 否则回落标量 double 累加. 两条路径的余弦差异不超过 {@link #SIMD_EPSILON},
+ * 远低于 {@code min-vector-score-by-tier} 阈值的标定粒度 (0.01), 切换路径无需重新标定.
+ * 范数只依赖单侧向量, 调用方应预先算好 (chunk 侧见 {@link RagChunk#getEmbeddingNorm()}).</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-05-28
  */
 public final class CosineSimilarity {
 
+    /** SIMD 与标量路径的余弦绝对误差上界 (4096 维以内). */
+    public static final double SIMD_EPSILON = 1e-5;
+
+    private static final boolean SIMD = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
     private CosineSimilarity() {
     }
 
@@ -21,22 +31,52 @@ public final class CosineSimilarity {
      * @throws IllegalArgumentException 维度不一致或任一向量是零向量
      */
     public static double cosine(float[] a, float[] b) {
+        return cosine(a, norm(a), b, norm(b));
+    }
+
+    /**
+     * 已知两侧 L2 范数时的余弦相似度, 只累加点积. 范数由 {@link #norm(float[])} 预先算好,
+     * 结果与 {@link #cosine(float[], float[])} 一致.
+     *
+     * @throws IllegalArgumentException 维度不一致或任一范数为 0
+     */
+    public static double cosine(float[] a, double normA, float[] b, double normB) {
         if (a.length != b.length) {
             throw new IllegalArgumentException(
                     "dimension mismatch: " + a.length + " vs " + b.length);
         }
-        double dot = 0d;
-        double normA = 0d;
-        double normB = 0d;
-        for (int i = 0; i < a.length; i++) {
-            dot += (double) a[i] * b[i];
-            normA += (double) a[i] * a[i];
-            normB += (double) b[i] * b[i];
-        }
         if (normA == 0d || normB == 0d) {
             throw new IllegalArgumentException(
                     "zero-norm vector has no direction; embedding model output is invalid");
         }
-        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+        return dot(a, b) / (normA * normB);
+    }
+
+    /** 点积; 调用方保证等长. */
+    public static double dot(float[] a, float[] b) {
+        return SIMD ? SimdDotProduct.dot(a, b) : scalarDot(a, b);
+    }
+
+    /** 标量 double 累加点积, 也是 SIMD 路径的精度基准. */
+    public static double scalarDot(float[] a, float[] b) {
+        double sum = 0d;
+        for (int i = 0; i < a.length; i++) {
+            sum += (double) a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /** 向量 L2 范数 (double 累加). */
+    public static double norm(float[] v) {
+        double sum = 0d;
+        for (float x : v) {
+            sum += (double) x * x;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /** 当前进程是否走 SIMD 点积. */
+    public static boolean isSimdEnabled() {
+        return SIMD;
     }
 }
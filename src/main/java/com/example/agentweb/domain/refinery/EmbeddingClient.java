@@ -1,5 +1,8 @@
 package com.example.agentweb.domain.refinery;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 文本 → 向量 抽象. 实现由 infra 层提供 (Ark / 本地模型 / mock).
  *
@@ -18,6 +21,21 @@ public interface EmbeddingClient {
      */
     float[] embed(String text);
 
+    /**
+     * 批量 embed, 结果与入参一一对应. 默认逐条调用 {@link #embed(String)};
+     * 支持多输入请求的实现应覆盖为按批往返, 以摊薄网络与鉴权开销.
+     *
+     * @param texts 待 embed 的文本
+     * @return 与 {@code texts} 等长同序的向量列表
+     */
+    default List<float[]> embedBatch(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
     /**
      * 实现使用的模型名 (例: doubao-embedding-vision).
      * 入库时写入 chunk.embedding_model, 便于后续模型替换时识别老数据.
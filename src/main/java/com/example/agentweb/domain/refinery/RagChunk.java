@@ -48,6 +48,9 @@ public final class RagChunk {
     private final String embeddingModel;
     @Getter
     private final float[] embedding;
+    /** embedding 的 L2 范数, 构造 (即加载) 时算一次, 召回逐条余弦不再重复累加本侧平方和. */
+    @Getter
+    private final double embeddingNorm;
     @Getter
     private final SourceType sourceType;
     @Getter
@@ -72,6 +75,7 @@ public final class RagChunk {
         this.expiresAt = builder.expiresAt;
         this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
         this.embedding = requireNonEmptyEmbedding(builder.embedding);
+        this.embeddingNorm = CosineSimilarity.norm(this.embedding);
         this.archivedAt = builder.archivedAt;
         // Phase 1.3: 子域演进字段, 历史数据走默认值兼容
         this.sourceType = builder.sourceType == null ? SourceType.CHAT : builder.sourceType;
@@ -96,6 +100,30 @@ public final class RagChunk {
         this.archivedAt = when;
     }
 
+    /**
+     * 只换向量与模型标识的副本, 其余字段 (含归档时间与 tier) 原样保留. 用于换模型重嵌入写影子集.
+     */
+    public RagChunk withEmbedding(float[] newEmbedding, String newEmbeddingModel) {
+        return builder()
+                .id(id)
+                .sourceSessionId(sourceSessionId)
+                .sourceMsgRange(sourceMsgRange)
+                .agentType(agentType)
+                .content(content)
+                .score(score)
+                .ttlCategory(ttlCategory)
+                .createdAt(createdAt)
+                .expiresAt(expiresAt)
+                .embeddingModel(newEmbeddingModel)
+                .embedding(newEmbedding)
+                .archivedAt(archivedAt)
+                .sourceType(sourceType)
+                .tier(tier)
+                .env(env)
+                .detailPath(detailPath)
+                .build();
+    }
+
     /** 返回内部 float[] 引用; 调用方不应修改, 否则破坏聚合不变量. */
 
     /**
@@ -1,6 +1,7 @@
 package com.example.agentweb.domain.refinery;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,11 @@ public interface RagChunkRepository {
     /** 按 id 加载, 不存在返回 Optional.empty(). */
     Optional<RagChunk> findById(String id);
 
+    /**
+     * 按 id 批量加载 (含已归档), 供向量索引粗筛后的候选回表. 顺序不保证, 不存在的 id 直接缺席.
+     */
+    List<RagChunk> findByIds(Collection<String> ids);
+
     /**
      * 召回候选: 返回所有未归档且未过期的 chunk 全集 (供内存余弦扫描).
      *
@@ -104,4 +110,16 @@ public interface RagChunkRepository {
      * @return true 命中并更新
      */
     boolean updateEmbedding(String chunkId, float[] embedding, String embeddingModel);
+
+    /**
+     * 用一代影子集原子替换现役 chunk, 并把该代标为 SWAPPED. 一个事务内完成, 召回要么读到整代旧数据,
+     * 要么读到整代新数据.
+     *
+     * <p>REBUILD: 删除已落结论 (非 FAILED) 会话在该代开启前创建的 chunk, 再并入影子 chunk;
+     * 构建期间定时任务新写的 chunk 保留. REEMBED: 只覆盖仍存在的 chunk 的向量与模型标识.</p>
+     *
+     * @return 并入或覆盖的 chunk 数
+     * @throws IllegalStateException 该代已不在 BUILDING (已切换或已放弃), 事务回滚
+     */
+    int swapGeneration(RagGeneration generation, Instant now);
 }
@@ -0,0 +1,87 @@
+package com.example.agentweb.domain.refinery;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 召回库的一代影子构建: 重跑或换模型重嵌入先写影子集, 召回继续读现役 chunk, 完成后一次性切换.
+ *
+ * <p>{@code REBUILD} 的构建单元是会话, 影子集是重新评分后的新 chunk; {@code REEMBED} 的单元是现役 chunk,
+ * 影子集只为换上新模型的向量. 每个单元处理完即落 {@link ItemOutcome}, 进程重启后从未处理的单元续跑.</p>
+ *
+ * <p>{@code processed}/{@code failed}/{@code shadowChunks} 是读取时的统计, 不参与状态迁移.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class RagGeneration {
+
+    /** 影子代类型. */
+    public enum Kind {
+        /** 重新 refine + embed 一批会话. */
+        REBUILD,
+        /** 为现役 chunk 换 embedding 模型 (含维度变化). */
+        REEMBED
+    }
+
+    /** 生命周期: BUILDING → SWAPPED | ABANDONED, 终态不可再变. */
+    public enum Status {
+        BUILDING, SWAPPED, ABANDONED
+    }
+
+    /**
+     * 单个构建单元的结论. 切换时 {@code FAILED} 的会话保留现役 chunk, 其余以影子集为准.
+     */
+    public enum ItemOutcome {
+        SAVED, DISCARDED, SKIPPED, FAILED
+    }
+
+    @Getter
+    private final long id;
+    @Getter
+    private final Kind kind;
+    @Getter
+    private final Status status;
+    /** REBUILD 的会话 id 全集; REEMBED 为空 (单元是切换前的现役 chunk). */
+    @Getter
+    private final List<String> scope;
+    /** 影子集使用的 embedding 模型. */
+    @Getter
+    private final String embeddingModel;
+    @Getter
+    private final int total;
+    @Getter
+    private final int processed;
+    @Getter
+    private final int failed;
+    @Getter
+    private final int shadowChunks;
+    @Getter
+    private final Instant createdAt;
+    @Getter
+    private final Instant finishedAt;
+
+    public RagGeneration(long id, Kind kind, Status status, List<String> scope, String embeddingModel,
+                         int total, int processed, int failed, int shadowChunks,
+                         Instant createdAt, Instant finishedAt) {
+        this.id = id;
+        this.kind = Objects.requireNonNull(kind, "kind");
+        this.status = Objects.requireNonNull(status, "status");
+        this.scope = scope == null ? Collections.<String>emptyList() : Collections.unmodifiableList(scope);
+        this.embeddingModel = Objects.requireNonNull(embeddingModel, "embeddingModel");
+        this.total = total;
+        this.processed = processed;
+        this.failed = failed;
+        this.shadowChunks = shadowChunks;
+        this.createdAt = Objects.requireNonNull(createdAt, "createdAt");
+        this.finishedAt = finishedAt;
+    }
+
+    public boolean isBuilding() {
+        return status == Status.BUILDING;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.agentweb.domain.refinery;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link RagGeneration} 影子代仓库. 实现位于 infra.refinery.persistence.
+ *
+ * <p>只管影子集的写入与进度; 影子集替换现役 chunk 由 {@link RagChunkRepository#swapGeneration}
+ * 在同一事务内完成, 以便召回缓存与向量索引跟着原子切换.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface RagGenerationRepository {
+
+    /**
+     * 开启一代 BUILDING 影子构建.
+     *
+     * @param scope REBUILD 的会话 id 全集, REEMBED 传空列表
+     * @param total 构建单元总数, 仅用于进度展示
+     */
+    RagGeneration open(RagGeneration.Kind kind, List<String> scope, String embeddingModel,
+                       int total, Instant now);
+
+    /** 按类型查仍在构建中的一代 (每种类型至多一代). */
+    Optional<RagGeneration> findBuilding(RagGeneration.Kind kind);
+
+    /** 最近 {@code limit} 代 (含已结束), 按创建时间倒序, 供管理台展示进度. */
+    List<RagGeneration> findRecent(int limit);
+
+    /** 已落结论的构建单元 id, 续跑时据此跳过. */
+    Set<String> findProcessedItems(long generationId);
+
+    /**
+     * 原子地记录一个构建单元: 替换该单元在影子集里的 chunk 并写入结论. 同一单元重复记录以最后一次为准,
+     * 崩溃重放不会在影子集留下重复 chunk.
+     *
+     * @param shadowChunk 写入影子集的 chunk, 无产出时为 {@code null}
+     */
+    void recordItem(long generationId, String itemId, RagGeneration.ItemOutcome outcome, RagChunk shadowChunk);
+
+    /**
+     * 放弃一代仍在构建中的影子集 (丢弃影子 chunk, 保留单元结论供排查).
+     *
+     * @return true 命中 BUILDING 并放弃
+     */
+    boolean abandon(long generationId, Instant now);
+}
@@ -0,0 +1,34 @@
+package com.example.agentweb.domain.refinery;
+
+import java.time.Instant;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 召回专用向量索引端口. 实现位于 infra.refinery.index.
+ *
+ * <p>与 {@link RagChunkRepository#findActive} 的区别: 索引只持有归一化向量与过滤所需的
+ * (来源, tier, 过期时间) 元数据, 不反序列化聚合根; 返回的是按<b>近似</b>余弦筛出的候选 id,
+ * 调用方须按 id 加载聚合并用原始向量精确重算后再排序 (近似误差由实现以 margin 兜底,
+ * 保证不会把精确余弦过闸的 chunk 提前剔除).</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public interface RagVectorIndex {
+
+    /**
+     * 在 {@code scope} 内做向量粗筛.
+     *
+     * @param query       query embedding, 无需预先归一化
+     * @param scope       可见 (来源, tier) 组合
+     * @param vectorFloor  各 tier 的余弦硬闸, {@code <=0} 表示该 tier 不设闸
+     * @param now          当前时刻, 过滤已过期条目
+     * @param topK         调用方最终保留的条数
+     * @param rankHeadroom 融合分里非向量项最多能弥补的余弦差 (已除以向量权重); 候选上限只截掉近似余弦
+     *                     落后第 topK 名超过该余量的条目, 保证截断不改变融合后的 topK
+     * @return 候选与计数; 计数口径与线性扫描一致 (active / filtered / belowVectorFloor / badVector)
+     */
+    VectorSearchResult search(float[] query, RecallScope scope,
+                              ToDoubleFunction<TrustTier> vectorFloor, Instant now,
+                              int topK, double rankHeadroom);
+}
@@ -0,0 +1,85 @@
+package com.example.agentweb.domain.refinery;
+
+import java.util.Objects;
+
+/**
+ * 召回可见范围: 允许进入候选池的 (来源类型, 可信度) 组合.
+ *
+ * <p>以离散组合而非任意谓词表达, 是为了让向量索引能把过滤前置成 bitset 并集
+ * ({@link #pairIndex(SourceType, TrustTier)} 即索引内 bitset 下标), 不必逐条反序列化聚合再判定.
+ * 不可变值对象, {@link #with}/{@link #atLeast} 均返回新实例.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class RecallScope {
+
+    /** (SourceType, TrustTier) 组合总数, 即索引侧 bitset 数组长度. */
+    public static final int PAIR_COUNT = SourceType.values().length * TrustTier.values().length;
+
+    private static final RecallScope NONE = new RecallScope(new boolean[PAIR_COUNT]);
+
+    private final boolean[] admitted;
+
+    private RecallScope(boolean[] admitted) {
+        this.admitted = admitted;
+    }
+
+    /** 空范围, 作为逐步 {@link #with} 的起点. */
+    public static RecallScope none() {
+        return NONE;
+    }
+
+    /** 组合下标: sourceType 主序, tier 次序. */
+    public static int pairIndex(SourceType sourceType, TrustTier tier) {
+        Objects.requireNonNull(sourceType, "sourceType");
+        Objects.requireNonNull(tier, "tier");
+        return sourceType.ordinal() * TrustTier.values().length + tier.ordinal();
+    }
+
+    /** 追加该来源下的全部 tier. */
+    public RecallScope with(SourceType sourceType) {
+        boolean[] next = admitted.clone();
+        for (TrustTier tier : TrustTier.values()) {
+            next[pairIndex(sourceType, tier)] = true;
+        }
+        return new RecallScope(next);
+    }
+
+    /** 追加单个 (来源, tier) 组合. */
+    public RecallScope with(SourceType sourceType, TrustTier tier) {
+        boolean[] next = admitted.clone();
+        next[pairIndex(sourceType, tier)] = true;
+        return new RecallScope(next);
+    }
+
+    /**
+     * 收窄到可信度不低于 {@code minTier} 的组合 (ordinal 越小越可信); {@code minTier=null} 原样返回.
+     */
+    public RecallScope atLeast(TrustTier minTier) {
+        if (minTier == null) {
+            return this;
+        }
+        boolean[] next = admitted.clone();
+        for (SourceType sourceType : SourceType.values()) {
+            for (TrustTier tier : TrustTier.values()) {
+                if (tier.ordinal() > minTier.ordinal()) {
+                    next[pairIndex(sourceType, tier)] = false;
+                }
+            }
+        }
+        return new RecallScope(next);
+    }
+
+    public boolean admits(SourceType sourceType, TrustTier tier) {
+        return admitted[pairIndex(sourceType, tier)];
+    }
+
+    public boolean admits(int pairIndex) {
+        return admitted[pairIndex];
+    }
+
+    public boolean admits(RagChunk chunk) {
+        return admits(chunk.getSourceType(), chunk.getTier());
+    }
+}
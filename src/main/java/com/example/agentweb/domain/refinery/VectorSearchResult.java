@@ -0,0 +1,39 @@
+package com.example.agentweb.domain.refinery;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link RagVectorIndex#search} 的结果: 近似余弦降序的候选 + 与线性扫描同口径的计数.
+ *
+ * @param activeCount      未归档未过期的条目数 (对应线性扫描的 findActive 大小)
+ * @param scopeMatched     落在 {@link RecallScope} 内的条目数
+ * @param belowVectorFloor 近似余弦 (减 margin 后) 仍低于 tier 硬闸而被剔除的条目数
+ * @param badVectorCount   维度不符或零向量、无法计算余弦的条目数
+ * @param truncated        过闸但超出候选上限、且不可能进入融合 topK 而被截掉的条目数; 进召回 trace
+ * @param topRejectedCosine 被硬闸剔除条目中的最高近似余弦, 无则 null; 与候选精确余弦合并出 trace 的 topCosine
+ * @param candidates       候选, 按近似余弦降序
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public record VectorSearchResult(int activeCount,
+                                 int scopeMatched,
+                                 int belowVectorFloor,
+                                 int badVectorCount,
+                                 int truncated,
+                                 Double topRejectedCosine,
+                                 List<Candidate> candidates) {
+
+    public VectorSearchResult {
+        candidates = candidates == null ? Collections.emptyList() : List.copyOf(candidates);
+    }
+
+    /**
+     * 单个候选.
+     *
+     * @param chunkId      chunk 主键
+     * @param approxCosine 索引内 (可能量化过的) 归一化向量点积
+     */
+    public record Candidate(String chunkId, double approxCosine) {
+    }
+}
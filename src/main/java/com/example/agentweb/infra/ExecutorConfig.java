@@ -8,6 +8,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Thread pool for running agent processes and streaming output.
@@ -34,15 +35,14 @@ public class ExecutorConfig {
         return ex;
     }
 
-    @Bean(name = "chatRunSubscriberExecutor")
+    /**
+     * SSE 订阅者的排空任务：每次排空一个虚拟线程，慢客户端只阻塞自己的排空，
+     * 不会占满共享池或因队列满而拒绝其他订阅者。关闭时不等待：连接由 Servlet 容器收尾。
+     */
+    @Bean(name = "chatRunSubscriberExecutor", destroyMethod = "")
     public Executor chatRunSubscriberExecutor() {
-        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
-        ex.setCorePoolSize(4);
-        ex.setMaxPoolSize(16);
-        ex.setQueueCapacity(1024);
-        ex.setThreadNamePrefix("chat-run-sse-");
-        ex.initialize();
-        return ex;
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("chat-run-sse-", 1L).factory());
     }
 
     @Bean
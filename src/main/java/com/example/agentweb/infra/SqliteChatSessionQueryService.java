@@ -1,21 +1,29 @@
 package com.example.agentweb.infra;
 
+import com.example.agentweb.app.ChatMessagePage;
 import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionQueryService;
 import com.example.agentweb.app.ChatSessionSummary;
 import com.example.agentweb.app.SharedSessionView;
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.chat.MessageImageReferences;
 import com.example.agentweb.domain.auth.CurrentUserProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 会话读模型 SQLite 实现。摘要/消息回放与写侧 {@link SqliteSessionRepo} 相同库表，
  * 用户隔离口径与写侧 findById 完全一致（{@code user_id IS NULL OR user_id = ?}）。
  *
+ * <p>分页窗口按消息 ID 键集倒序取 {@code limit + 1} 行判断是否还有更早消息。消息 ID 即 rowid，
+ * {@code idx_chat_message_session_id} 的索引项天然按 (session_id, rowid) 有序，翻到多早都不随偏移量变慢。</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-02
  */
@@ -25,6 +33,17 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
     /** 摘要标题超长截断阈值，与历史 Map 投影行为保持一致。 */
     private static final int TITLE_MAX_CHARS = 50;
 
+    /** 单页消息数上限，防止调用方一次取回整段长会话。 */
+    static final int MAX_PAGE_LIMIT = 200;
+
+    private static final String MESSAGE_COLUMNS =
+            "SELECT m.id, m.role, m.content, m.timestamp, r.payload_json AS recall_json "
+                    + "FROM chat_message m "
+                    + "LEFT JOIN chat_message_recall r ON r.message_id = m.id ";
+
+    private static final String SHARED_HEAD_SQL = "SELECT id, agent_type, created_at, title "
+            + "FROM chat_session WHERE share_token = ? AND session_kind = 'CHAT'";
+
     private static final RowMapper<ChatSessionSummary> SUMMARY_MAPPER = (rs, rowNum) -> {
         String title = rs.getString("title");
         String normalizedTitle = title == null
@@ -42,19 +61,39 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
                 normalizedTitle);
     };
 
-    private static final RowMapper<ChatMessageView> MESSAGE_MAPPER = (rs, rowNum) -> new ChatMessageView(
+    private final RowMapper<ChatMessageView> messageMapper = (rs, rowNum) -> new ChatMessageView(
             rs.getLong("id"),
             rs.getString("role"),
-            rs.getString("content"),
+            decodeContent(rs.getObject("content")),
             rs.getString("timestamp"),
             rs.getString("recall_json"));
 
+    private final RowMapper<ChatMessageView> summaryMessageMapper = (rs, rowNum) -> {
+        StreamJsonToolOutputSummarizer.Summary summary =
+                StreamJsonToolOutputSummarizer.summarize(decodeContent(rs.getObject("content")));
+        return new ChatMessageView(
+                rs.getLong("id"),
+                rs.getString("role"),
+                summary.getContent(),
+                rs.getString("timestamp"),
+                rs.getString("recall_json"),
+                summary.isSummarized() ? Boolean.TRUE : null);
+    };
+
     private final JdbcTemplate jdbc;
     private final CurrentUserProvider currentUserProvider;
+    private final StoredContentCodec contentCodec;
 
     public SqliteChatSessionQueryService(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider) {
+        this(jdbc, currentUserProvider, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteChatSessionQueryService(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider,
+                                         StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
         this.currentUserProvider = currentUserProvider;
+        this.contentCodec = contentCodec;
     }
 
     @Override
@@ -62,10 +101,9 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
         boolean filter = currentUserProvider.shouldFilter();
         String where = " WHERE s.session_kind = 'CHAT'"
                 + (filter ? " AND (s.user_id IS NULL OR s.user_id = ?)" : "");
+        // message_count / first_user_message 由写侧维护，列表分页不再逐行关联子查询 chat_message
         String sql = "SELECT s.id, s.agent_type, s.working_dir, s.created_at, s.resume_id, s.env, s.user_id, "
-                + "  (SELECT COUNT(*) FROM chat_message m WHERE m.session_id = s.id) AS message_count, "
-                + "  COALESCE(s.title, (SELECT m.content FROM chat_message m WHERE m.session_id = s.id "
-                + "    AND m.role = 'user' ORDER BY m.id ASC LIMIT 1)) AS title "
+                + "  s.message_count, COALESCE(s.title, s.first_user_message) AS title "
                 + "FROM chat_session s" + where + " ORDER BY s.created_at DESC LIMIT ? OFFSET ?";
         Object[] args = filter
                 ? new Object[]{currentUserProvider.currentUserId(), limit, offset}
@@ -81,18 +119,50 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
         return loadMessages(sessionId);
     }
 
+    @Override
+    public ChatMessagePage findMessagePage(String sessionId, Long beforeId, int limit) {
+        if (!sessionVisible(sessionId)) {
+            return null;
+        }
+        return loadMessagePage(sessionId, beforeId, limit);
+    }
+
+    @Override
+    public ChatMessageView findMessageView(String sessionId, long messageId) {
+        if (!sessionVisible(sessionId)) {
+            return null;
+        }
+        return loadMessage(sessionId, messageId);
+    }
+
     @Override
     public SharedSessionView findSharedView(String shareToken) {
-        List<SharedSessionView> heads = jdbc.query(
-                "SELECT id, agent_type, created_at, title "
-                        + "FROM chat_session WHERE share_token = ? AND session_kind = 'CHAT'",
-                (rs, rowNum) -> new SharedSessionView(
-                        rs.getString("title"),
-                        rs.getString("agent_type"),
-                        rs.getString("created_at"),
-                        loadMessages(rs.getString("id"))),
-                shareToken);
-        return heads.isEmpty() ? null : heads.get(0);
+        SharedHead head = sharedHead(shareToken);
+        return head == null ? null
+                : new SharedSessionView(head.title, head.agentType, head.createdAt, loadMessages(head.sessionId));
+    }
+
+    @Override
+    public SharedSessionView findSharedView(String shareToken, int limit) {
+        SharedHead head = sharedHead(shareToken);
+        if (head == null) {
+            return null;
+        }
+        ChatMessagePage page = loadMessagePage(head.sessionId, null, limit);
+        return new SharedSessionView(head.title, head.agentType, head.createdAt,
+                page.getMessages(), page.getNextBeforeId());
+    }
+
+    @Override
+    public ChatMessagePage findSharedMessagePage(String shareToken, Long beforeId, int limit) {
+        String sessionId = sharedSessionId(shareToken);
+        return sessionId == null ? null : loadMessagePage(sessionId, beforeId, limit);
+    }
+
+    @Override
+    public ChatMessageView findSharedMessageView(String shareToken, long messageId) {
+        String sessionId = sharedSessionId(shareToken);
+        return sessionId == null ? null : loadMessage(sessionId, messageId);
     }
 
     @Override
@@ -113,15 +183,53 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
     }
 
     private List<ChatMessageView> loadMessages(String sessionId) {
-        return jdbc.query(
-                "SELECT m.id, m.role, m.content, m.timestamp, r.payload_json AS recall_json "
-                        + "FROM chat_message m "
-                        + "LEFT JOIN chat_message_recall r ON r.message_id = m.id "
-                        + "WHERE m.session_id = ? ORDER BY m.id ASC",
-                MESSAGE_MAPPER,
+        return jdbc.query(MESSAGE_COLUMNS + "WHERE m.session_id = ? ORDER BY m.id ASC",
+                messageMapper,
                 sessionId);
     }
 
+    private ChatMessagePage loadMessagePage(String sessionId, Long beforeId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        List<ChatMessageView> newestFirst = beforeId == null
+                ? jdbc.query(MESSAGE_COLUMNS + "WHERE m.session_id = ? ORDER BY m.id DESC LIMIT ?",
+                        summaryMessageMapper, sessionId, pageSize + 1)
+                : jdbc.query(MESSAGE_COLUMNS + "WHERE m.session_id = ? AND m.id < ? ORDER BY m.id DESC LIMIT ?",
+                        summaryMessageMapper, sessionId, beforeId, pageSize + 1);
+        boolean hasMore = newestFirst.size() > pageSize;
+        List<ChatMessageView> page = new ArrayList<ChatMessageView>(
+                hasMore ? newestFirst.subList(0, pageSize) : newestFirst);
+        Collections.reverse(page);
+        Long nextBeforeId = hasMore ? page.get(0).getId() : null;
+        return new ChatMessagePage(page, nextBeforeId);
+    }
+
+    private ChatMessageView loadMessage(String sessionId, long messageId) {
+        List<ChatMessageView> rows = jdbc.query(MESSAGE_COLUMNS + "WHERE m.session_id = ? AND m.id = ?",
+                messageMapper, sessionId, messageId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /** 先读完分享头再取消息，不在头查询的 RowMapper 里嵌套查询占第二个连接。 */
+    private SharedHead sharedHead(String shareToken) {
+        List<SharedHead> heads = jdbc.query(SHARED_HEAD_SQL,
+                (rs, rowNum) -> new SharedHead(
+                        rs.getString("id"),
+                        rs.getString("title"),
+                        rs.getString("agent_type"),
+                        rs.getString("created_at")),
+                shareToken);
+        return heads.isEmpty() ? null : heads.get(0);
+    }
+
+    private String sharedSessionId(String shareToken) {
+        List<String> ids = jdbc.query(SHARED_HEAD_SQL, (rs, rowNum) -> rs.getString("id"), shareToken);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private String decodeContent(Object stored) {
+        return contentCodec.decode(stored);
+    }
+
     /** 会话存在性 + 用户隔离可见性检查，口径与写侧 findById 一致。 */
     private boolean sessionVisible(String sessionId) {
         boolean filter = currentUserProvider.shouldFilter();
@@ -133,4 +241,19 @@ public class SqliteChatSessionQueryService implements ChatSessionQueryService {
         Integer count = jdbc.queryForObject(sql, Integer.class, args);
         return count != null && count > 0;
     }
+
+    /** 分享会话头；消息页在头查询结束后单独读取。 */
+    private static final class SharedHead {
+        private final String sessionId;
+        private final String title;
+        private final String agentType;
+        private final String createdAt;
+
+        private SharedHead(String sessionId, String title, String agentType, String createdAt) {
+            this.sessionId = sessionId;
+            this.title = title;
+            this.agentType = agentType;
+            this.createdAt = createdAt;
+        }
+    }
 }
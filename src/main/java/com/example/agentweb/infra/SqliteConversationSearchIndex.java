@@ -0,0 +1,151 @@
+package com.example.agentweb.infra;
+
+import com.example.agentweb.app.StreamOutputExtractor;
+import com.example.agentweb.app.storage.StoredContentCodec;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话检索的 SQLite 物化：{@code chat_session.message_count / first_user_message} 维护列，
+ * 以及 FTS5(trigram) 全文索引 {@code chat_message_fts}、{@code chat_session_fts}。
+ *
+ * <p>{@code chat_message_fts} 自存被索引的文本（rowid = 消息 id）：user 消息是原文，assistant 消息是从
+ * stream-json 中抽出的正文。assistant 原文可能已被 {@link StoredContentCodec} 压缩或外置，不能再作为
+ * 外部内容表直接读取；只索引正文也避免了给 JSON 键和工具输出建 trigram。写侧 {@link SqliteSessionRepo}
+ * 须在删除消息之前调用 {@link #unindexMessages}，按消息 id 定位要移除的行。
+ * {@code chat_session_fts} 只收录有显式 title 的会话，无 title 的会话靠首条 user 消息在消息索引中命中。</p>
+ *
+ * <p>trigram 分词对中文同样按子串匹配，但检索词至少 3 个字符；更短的关键字由调用方回退到
+ * 维护列上的 LIKE。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public final class SqliteConversationSearchIndex {
+
+    /** snippet 中命中片段的起止标记；前端转义后替换为高亮，避免直接输出 HTML。 */
+    public static final String HIT_START = "\u0002";
+    public static final String HIT_END = "\u0003";
+
+    /** trigram 索引可用的最短检索词（按码点计）。 */
+    public static final int MIN_MATCH_CODE_POINTS = 3;
+
+    private static final int BACKFILL_BATCH = 500;
+    private static final StreamOutputExtractor EXTRACTOR = new StreamOutputExtractor();
+
+    private final JdbcTemplate jdbc;
+    private final StoredContentCodec codec;
+
+    public SqliteConversationSearchIndex(JdbcTemplate jdbc) {
+        this(jdbc, StoredContentCodec.PLAIN);
+    }
+
+    public SqliteConversationSearchIndex(JdbcTemplate jdbc, StoredContentCodec codec) {
+        this.jdbc = jdbc;
+        this.codec = codec;
+    }
+
+    /**
+     * 补维护列并建索引，可重复调用。补列或建表成功的那一次顺带回填存量数据，
+     * 之后只由写侧增量维护。
+     */
+    public void ensureSchema() {
+        boolean countAdded = addColumn("message_count INTEGER NOT NULL DEFAULT 0");
+        boolean firstAdded = addColumn("first_user_message TEXT");
+        if (countAdded || firstAdded) {
+            jdbc.update("UPDATE chat_session SET "
+                    + "message_count = (SELECT COUNT(*) FROM chat_message m WHERE m.session_id = chat_session.id), "
+                    + "first_user_message = (SELECT m.content FROM chat_message m "
+                    + "WHERE m.session_id = chat_session.id AND m.role = 'user' ORDER BY m.id ASC LIMIT 1)");
+        }
+        if (!tableExists("chat_message_fts")) {
+            jdbc.execute("CREATE VIRTUAL TABLE chat_message_fts USING fts5("
+                    + "content, session_id UNINDEXED, tokenize='trigram')");
+            backfillMessages();
+        }
+        if (!tableExists("chat_session_fts")) {
+            jdbc.execute("CREATE VIRTUAL TABLE chat_session_fts USING fts5("
+                    + "title, session_id UNINDEXED, tokenize='trigram')");
+            jdbc.update("INSERT INTO chat_session_fts(title, session_id) "
+                    + "SELECT title, id FROM chat_session WHERE title IS NOT NULL");
+        }
+    }
+
+    void indexSession(String sessionId) {
+        jdbc.update("INSERT INTO chat_session_fts(title, session_id) "
+                + "SELECT title, id FROM chat_session WHERE id = ? AND title IS NOT NULL", sessionId);
+    }
+
+    /** 会话删除是低频管理动作，按 UNINDEXED 列过滤会扫描标题索引，量级与会话数相同。 */
+    void unindexSession(String sessionId) {
+        jdbc.update("DELETE FROM chat_session_fts WHERE session_id = ?", sessionId);
+    }
+
+    void indexMessage(long messageId, String sessionId, String role, String content) {
+        jdbc.update("INSERT INTO chat_message_fts(rowid, content, session_id) VALUES (?, ?, ?)",
+                messageId, indexedText(role, content), sessionId);
+    }
+
+    /** 必须在删除 {@code chat_message} 行之前调用，靠会话内的消息 id 定位索引行。 */
+    void unindexMessages(String sessionId, long fromIdInclusive) {
+        jdbc.update("DELETE FROM chat_message_fts WHERE rowid IN "
+                + "(SELECT id FROM chat_message WHERE session_id = ? AND id >= ?)", sessionId, fromIdInclusive);
+    }
+
+    /** 关键字能否走 trigram 索引；过短时调用方回退 LIKE。 */
+    public static boolean matchable(String keyword) {
+        return keyword != null
+                && keyword.codePointCount(0, keyword.length()) >= MIN_MATCH_CODE_POINTS;
+    }
+
+    /** 把用户输入包成单个 FTS5 短语，双引号转义，避免关键字里的运算符改变查询语义。 */
+    public static String phrase(String keyword) {
+        return "\"" + keyword.replace("\"", "\"\"") + "\"";
+    }
+
+    /** assistant 正文是 stream-json，只索引抽出的文字；其他角色原文入索引。 */
+    static String indexedText(String role, String content) {
+        if (content == null || !"assistant".equals(role)) {
+            return content;
+        }
+        return EXTRACTOR.extractPlainText(content);
+    }
+
+    /** 按 id 分批回填，读一批、写一批，不在打开的游标上写入。 */
+    private void backfillMessages() {
+        long cursor = 0L;
+        while (true) {
+            List<Object[]> batch = new ArrayList<Object[]>(BACKFILL_BATCH);
+            jdbc.query("SELECT id, session_id, role, content FROM chat_message WHERE id > ? ORDER BY id LIMIT ?",
+                    rs -> {
+                        batch.add(new Object[]{rs.getLong("id"),
+                                indexedText(rs.getString("role"), codec.decode(rs.getObject("content"))),
+                                rs.getString("session_id")});
+                    },
+                    cursor, BACKFILL_BATCH);
+            if (batch.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate("INSERT INTO chat_message_fts(rowid, content, session_id) VALUES (?, ?, ?)", batch);
+            cursor = (Long) batch.get(batch.size() - 1)[0];
+        }
+    }
+
+    private boolean addColumn(String definition) {
+        try {
+            jdbc.execute("ALTER TABLE chat_session ADD COLUMN " + definition);
+            return true;
+        } catch (Exception ignored) {
+            // column already exists
+            return false;
+        }
+    }
+
+    private boolean tableExists(String name) {
+        List<String> rows = jdbc.queryForList(
+                "SELECT name FROM sqlite_master WHERE name = ?", String.class, name);
+        return !rows.isEmpty();
+    }
+}
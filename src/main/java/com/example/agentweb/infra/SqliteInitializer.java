@@ -1,5 +1,8 @@
 package com.example.agentweb.infra;
 
+import com.example.agentweb.app.storage.StoredContentCodec;
+import com.example.agentweb.infra.metrics.SqliteMetricRollups;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
@@ -20,9 +23,16 @@ public class SqliteInitializer {
     private static final String CHAT_SESSION_TABLE = "chat_session";
 
     private final JdbcTemplate jdbc;
+    private final StoredContentCodec contentCodec;
 
     public SqliteInitializer(JdbcTemplate jdbc) {
+        this(jdbc, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteInitializer(JdbcTemplate jdbc, StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
+        this.contentCodec = contentCodec;
     }
 
     @PostConstruct
@@ -106,6 +116,8 @@ public class SqliteInitializer {
             // column already exists
         }
         requireStageOnlyChatSessionSchema();
+        // Migration: maintained message_count / first_user_message columns + FTS5 conversation search index
+        new SqliteConversationSearchIndex(jdbc, contentCodec).ensureSchema();
         migrateChatRunOrigin();
         // Migration: drop user suggestion table (建议反馈功能已移除，清理存量表)
         try {
@@ -167,6 +179,8 @@ public class SqliteInitializer {
         migrateChatRecallObservation();
         createToolInvocationStatisticsIndexes();
         migrateWorkbenchWorktree();
+        // Migration: admin dashboard rollup tables + maintenance triggers, after every source table is final
+        new SqliteMetricRollups(jdbc).ensureSchema();
     }
 
     private void migrateWorkbenchWorktree() {
@@ -1,5 +1,6 @@
 package com.example.agentweb.infra;
 
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.auth.CurrentUserProvider;
 import com.example.agentweb.domain.chat.ChatMessage;
 import com.example.agentweb.domain.chat.ChatSession;
@@ -9,6 +10,7 @@ import com.example.agentweb.domain.chat.SessionKind;
 import com.example.agentweb.domain.chat.SessionRepository;
 import com.example.agentweb.domain.shared.AgentType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -24,6 +26,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * assistant 消息正文经 {@link StoredContentCodec} 编码后落库（大段 stream-json 压缩或外置），
+ * 其余角色原文存 TEXT：标题回退、分享图片授权、回退预填都直接在 SQL 里读 user 消息。
+ *
  * @author zhourui(V33215020)
  */
 @Repository
@@ -50,10 +55,25 @@ public class SqliteSessionRepo implements SessionRepository {
 
     private final JdbcTemplate jdbc;
     private final CurrentUserProvider currentUserProvider;
+    private final SqliteConversationSearchIndex searchIndex;
+    private final StoredContentCodec contentCodec;
 
     public SqliteSessionRepo(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider) {
+        this(jdbc, currentUserProvider, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteSessionRepo(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider,
+                             StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
         this.currentUserProvider = currentUserProvider;
+        this.contentCodec = contentCodec;
+        this.searchIndex = new SqliteConversationSearchIndex(jdbc, contentCodec);
+    }
+
+    /** 只有 assistant 正文参与编码，见类注释。 */
+    static boolean encodesContent(String role) {
+        return "assistant".equals(role);
     }
 
     /** {@link #filterUserId()} 的"不过滤"哨兵(admin / 后台无上下文)，用 == 身份比较。 */
@@ -69,15 +89,20 @@ public class SqliteSessionRepo implements SessionRepository {
     }
 
     @Override
+    @Transactional
     public void addSession(ChatSession session) {
         int rows = insertSession(INSERT_SESSION, session);
+        searchIndex.indexSession(session.getId());
         log.debug("session-added sessionId={} affectedRows={}", session.getId(), rows);
     }
 
     @Override
+    @Transactional
     public void saveSession(ChatSession session) {
         int rows = insertSession(INSERT_SESSION_IF_ABSENT, session);
-        if (rows == 0 && session.getRetiredAt() != null) {
+        if (rows > 0) {
+            searchIndex.indexSession(session.getId());
+        } else if (session.getRetiredAt() != null) {
             persistRetirement(session);
         }
         log.debug("session-save sessionId={} affectedRows={}", session.getId(), rows);
@@ -138,23 +163,34 @@ public class SqliteSessionRepo implements SessionRepository {
     @Transactional
     public long addMessageReturningId(String sessionId, ChatMessage message) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
+        Object storedContent = encodesContent(message.getRole())
+                ? contentCodec.encode(message.getContent())
+                : message.getContent();
         jdbc.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(
                     "INSERT INTO chat_message (session_id, role, content, timestamp) VALUES (?, ?, ?, ?)",
                     Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, sessionId);
             ps.setString(2, message.getRole());
-            ps.setString(3, message.getContent());
+            ps.setObject(3, storedContent);
             ps.setString(4, message.getTimestamp().toString());
             return ps;
         }, keyHolder);
+        // message_count / first_user_message 为列表与检索的维护列，随消息写入同事务更新
         jdbc.update(
-                "UPDATE chat_session SET last_message_at = ? WHERE id = ?",
+                "UPDATE chat_session SET last_message_at = ?, message_count = message_count + 1, "
+                        + "first_user_message = CASE WHEN first_user_message IS NULL AND ? = 'user' "
+                        + "THEN ? ELSE first_user_message END WHERE id = ?",
                 message.getTimestamp().toEpochMilli(),
+                message.getRole(),
+                message.getContent(),
                 sessionId
         );
         Number key = keyHolder.getKey();
         long id = key == null ? -1L : key.longValue();
+        if (id > 0L) {
+            searchIndex.indexMessage(id, sessionId, message.getRole(), message.getContent());
+        }
         log.debug("session-message-saved sessionId={} role={} id={} contentLen={}",
                 sessionId, message.getRole(), id, message.getContent() == null ? 0 : message.getContent().length());
         return id;
@@ -211,6 +247,8 @@ public class SqliteSessionRepo implements SessionRepository {
         // 先清召回明细 (按 message_id 关联), 再删消息, 避免 chat_message_recall 残留孤儿行
         jdbc.update("DELETE FROM chat_message_recall WHERE message_id IN "
                 + "(SELECT id FROM chat_message WHERE session_id = ?)", id);
+        searchIndex.unindexMessages(id, 0L);
+        searchIndex.unindexSession(id);
         int msgRows = jdbc.update("DELETE FROM chat_message WHERE session_id = ?", id);
         int sessionRows = jdbc.update("DELETE FROM chat_session WHERE id = ?", id);
         log.info("session-deleted sessionId={} messageRows={} sessionRows={}", id, msgRows, sessionRows);
@@ -225,10 +263,16 @@ public class SqliteSessionRepo implements SessionRepository {
         // 同步清掉被截断消息的召回明细
         jdbc.update("DELETE FROM chat_message_recall WHERE message_id IN "
                 + "(SELECT id FROM chat_message WHERE session_id = ? AND id >= ?)", sessionId, fromId);
+        searchIndex.unindexMessages(sessionId, fromId);
         int deleted = jdbc.update(
                 "DELETE FROM chat_message WHERE session_id = ? AND id >= ?",
                 sessionId, fromId);
-        jdbc.update("UPDATE chat_session SET resume_id = NULL WHERE id = ?", sessionId);
+        // 截断可能删掉首条 user 消息，按剩余消息重算维护列（走 session_id 索引，只涉及本会话）
+        jdbc.update("UPDATE chat_session SET resume_id = NULL, "
+                        + "message_count = (SELECT COUNT(*) FROM chat_message m WHERE m.session_id = ?), "
+                        + "first_user_message = (SELECT m.content FROM chat_message m WHERE m.session_id = ? "
+                        + "AND m.role = 'user' ORDER BY m.id ASC LIMIT 1) WHERE id = ?",
+                sessionId, sessionId, sessionId);
         return deleted;
     }
 
@@ -354,7 +398,7 @@ public class SqliteSessionRepo implements SessionRepository {
                 (rs, rowNum) -> new ChatMessage(
                         rs.getLong("id"),
                         rs.getString("role"),
-                        rs.getString("content"),
+                        contentCodec.decode(rs.getObject("content")),
                         Instant.parse(rs.getString("timestamp"))
                 ),
                 sessionId
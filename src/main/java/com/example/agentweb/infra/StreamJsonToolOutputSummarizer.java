@@ -0,0 +1,125 @@
+package com.example.agentweb.infra;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 把落库的 stream-json 正文压成消息列表用的摘要：{@code type=user} 行里的 tool_result
+ * 输出截成预览，结构化的 {@code tool_use_result} 整体丢弃，其余行原样保留。
+ *
+ * <p>截断后的行仍是前端 {@code parseStreamJson} 能识别的形状——预览放进
+ * {@code tool_result.content}，所以工具块照常渲染，只是内容变短；完整输出由消息详情接口按需取回。
+ * 只有确实省略了内容的正文才标记为摘要（{@link Summary#isSummarized()}），短输出的消息与全文逐字相同。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class StreamJsonToolOutputSummarizer {
+
+    /** 单条工具输出保留的预览字符数。 */
+    static final int PREVIEW_CHARS = 500;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String LF = "\n";
+    private static final String TOOL_RESULT = "tool_result";
+    private static final String TOOL_USE_RESULT = "tool_use_result";
+
+    private StreamJsonToolOutputSummarizer() {
+    }
+
+    /**
+     * @param content 消息正文（stream-json 或纯文本）
+     * @return 摘要结果；没有可省略的工具输出时正文即入参，且不标记为摘要
+     */
+    static Summary summarize(String content) {
+        if (content == null || content.length() <= PREVIEW_CHARS || !content.contains(TOOL_RESULT)) {
+            return new Summary(content, false);
+        }
+        String[] lines = content.split(LF, -1);
+        boolean omitted = false;
+        for (int i = 0; i < lines.length; i++) {
+            String summarized = summarizeLine(lines[i]);
+            if (summarized != null) {
+                lines[i] = summarized;
+                omitted = true;
+            }
+        }
+        return omitted ? new Summary(String.join(LF, lines), true) : new Summary(content, false);
+    }
+
+    /** @return 改写后的行；不需要省略时返回 null */
+    private static String summarizeLine(String line) {
+        if (line.length() <= PREVIEW_CHARS || !line.contains(TOOL_RESULT)) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(line.trim());
+        } catch (Exception ignored) {
+            // 非 JSON 行(历史纯文本)原样保留
+            return null;
+        }
+        if (!(root instanceof ObjectNode) || !"user".equals(root.path("type").asText(""))) {
+            return null;
+        }
+        JsonNode blocks = root.path("message").path("content");
+        if (!blocks.isArray()) {
+            return null;
+        }
+        ObjectNode wrapper = (ObjectNode) root;
+        JsonNode toolUseResult = wrapper.get(TOOL_USE_RESULT);
+        boolean omitted = false;
+        for (JsonNode block : blocks) {
+            if (!(block instanceof ObjectNode) || !TOOL_RESULT.equals(block.path("type").asText(""))) {
+                continue;
+            }
+            ObjectNode toolResult = (ObjectNode) block;
+            JsonNode blockContent = toolResult.get("content");
+            // 与前端取值顺序一致：文本 tool_use_result 优先，其次 content 字符串
+            String output = toolUseResult != null && toolUseResult.isTextual()
+                    ? toolUseResult.textValue()
+                    : (blockContent != null && blockContent.isTextual() ? blockContent.textValue() : null);
+            if (output != null && output.length() > PREVIEW_CHARS) {
+                toolResult.put("content", preview(output));
+                omitted = true;
+            } else if (output != null) {
+                toolResult.put("content", output);
+            } else if (blockContent != null && !blockContent.isNull()) {
+                // 数组形态的 content 前端本就不渲染，摘要里直接去掉
+                toolResult.remove("content");
+                omitted = true;
+            }
+        }
+        if (toolUseResult != null) {
+            wrapper.remove(TOOL_USE_RESULT);
+            omitted = omitted || !toolUseResult.isTextual();
+        }
+        if (!omitted) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(wrapper);
+        } catch (Exception failure) {
+            return null;
+        }
+    }
+
+    private static String preview(String output) {
+        int end = PREVIEW_CHARS;
+        if (Character.isHighSurrogate(output.charAt(end - 1))) {
+            end--;
+        }
+        return output.substring(0, end) + "\n... (共 " + output.length() + " 字符，展开查看完整输出)";
+    }
+
+    /** 摘要正文及是否确实省略了工具输出。 */
+    @Getter
+    @RequiredArgsConstructor
+    static final class Summary {
+        private final String content;
+        private final boolean summarized;
+    }
+}
@@ -5,7 +5,11 @@ import com.example.agentweb.domain.worktree.WorkspaceUploadRoot;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,11 +24,12 @@ import java.util.stream.Stream;
  *
  * <p>限制:
  * <ul>
- *   <li>大小上限 5 MB(由调用方在 controller 入口校验后再落到此处)</li>
+ *   <li>大小上限 5 MB(先按声明大小快速拒绝,写入时再按实际字节数复核)</li>
  *   <li>扩展名白名单:log/txt/json/csv/md/yaml/yml/xml/properties/stacktrace/out/conf/ini</li>
  *   <li>二进制嗅探:前若干字节出现 NUL(0x00) 一律拒绝,挡掉 jar/zip/class/heap dump 等</li>
  *   <li>原文件名 sanitize,只保留 basename,杜绝 {@code ../} 路径穿越</li>
  *   <li>重名时追加 {@code -1/-2/...} 后缀,不覆盖已存在文件</li>
+ *   <li>正文流式写入同目录临时文件后改名,不在堆上缓冲整个附件</li>
  * </ul>
  *
  * <p>按 sessionId 归集到 {@code upload_file/<sessionId>/},会话删除时整目录清理。</p>
@@ -55,26 +60,47 @@ public class UploadFileStore implements UploadFileStorage {
     ));
 
     /**
-     * 把附件字节存到 {@code <workingDir>/upload_file/<sessionId>/} 下,返回落盘绝对路径。
+     * 字节版入口, 供已在内存里的小内容使用; 等价于对其调用流式 {@link #save(String, String, String, InputStream, long)}。
+     *
+     * @param content 文件字节,非空且 <= 5MB
+     * @return 落盘文件的绝对路径
+     * @throws IOException              目录创建或写入失败
+     * @throws IllegalArgumentException 入参非法、扩展名不在白名单、内容像二进制
+     */
+    public String save(String workingDir, String sessionId, String originalName, byte[] content) throws IOException {
+        if (content == null) {
+            throw new IllegalArgumentException("文件内容为空");
+        }
+        return save(workingDir, sessionId, originalName, new ByteArrayInputStream(content), content.length);
+    }
+
+    /**
+     * 把附件流存到 {@code <workingDir>/upload_file/<sessionId>/} 下,返回落盘绝对路径。
+     *
+     * <p>正文按块写入同目录临时文件,写的同时计数并在前 {@value #BINARY_SNIFF_BYTES} 字节里嗅探 NUL,
+     * 超限或命中二进制立即中止并删除临时文件;通过后再改名为最终文件名,整个过程不在堆上缓冲整个附件。</p>
      *
      * <p>{@code sessionId} 为 null/空 时回退到扁平目录,兼容无会话语境调用方。</p>
      *
      * @param workingDir   工作空间目录
      * @param sessionId    会话 ID(可空)
      * @param originalName 浏览器传入的原始文件名(决定扩展名与最终落盘文件名)
-     * @param content      文件字节,非空且 <= 5MB
+     * @param content      文件内容流,调用方负责关闭
+     * @param declaredSize 请求声明的大小,用于在落盘前快速拒绝;实际字节数仍会复核
      * @return 落盘文件的绝对路径
      * @throws IOException              目录创建或写入失败
      * @throws IllegalArgumentException 入参非法、扩展名不在白名单、内容像二进制
      */
-    public String save(String workingDir, String sessionId, String originalName, byte[] content) throws IOException {
+    @Override
+    public String save(String workingDir, String sessionId, String originalName,
+                       InputStream content, long declaredSize) throws IOException {
         if (workingDir == null || workingDir.trim().isEmpty()) {
             throw new IllegalArgumentException("workingDir is empty");
         }
-        if (content == null || content.length == 0) {
+        if (content == null || declaredSize < 1L) {
             throw new IllegalArgumentException("文件内容为空");
         }
-        if (content.length > MAX_FILE_BYTES) {
+        if (declaredSize > MAX_FILE_BYTES) {
             throw new IllegalArgumentException("文件大小不能超过 5MB");
         }
         String safeName = sanitizeFileName(originalName);
@@ -82,19 +108,20 @@ public class UploadFileStore implements UploadFileStorage {
         if (ext == null || !ALLOWED_EXTS.contains(ext)) {
             throw new IllegalArgumentException("仅支持文本类附件:" + ALLOWED_EXTS);
         }
-        if (looksBinary(content)) {
-            throw new IllegalArgumentException("检测到二进制内容,仅允许纯文本附件");
-        }
 
         Path dir = resolveSaveDir(workingDir, sessionId);
         Files.createDirectories(dir);
-        Path target = resolveNonClashingPath(dir, safeName);
-        Files.write(target, content);
-
-        String abs = target.toAbsolutePath().toString();
-        log.info("upload_file 落盘成功 path={} size={} ext={} sessionId={}",
-                abs, content.length, ext, sessionId);
-        return abs;
+        Path temp = Files.createTempFile(dir, ".upload-", ".tmp");
+        try {
+            long size = writeChecked(content, temp);
+            Path target = moveToNonClashingPath(temp, dir, safeName);
+            String abs = target.toAbsolutePath().toString();
+            log.info("upload_file 落盘成功 path={} size={} ext={} sessionId={}",
+                    abs, size, ext, sessionId);
+            return abs;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
     /**
@@ -182,31 +209,61 @@ public class UploadFileStore implements UploadFileStorage {
     }
 
     /**
-     * 重名时在扩展名前追加 {@code -1/-2/...} 后缀。最多 {@value #MAX_RENAME_TRIES} 次,超出抛异常。
+     * 把临时文件改名到不冲突的最终路径。重名时在扩展名前追加 {@code -1/-2/...} 后缀,
+     * 改名不带覆盖选项,并发上传抢到同名时换下一个后缀。最多 {@value #MAX_RENAME_TRIES} 次,超出抛异常。
      */
-    private Path resolveNonClashingPath(Path dir, String fileName) {
-        Path candidate = dir.resolve(fileName);
-        if (!Files.exists(candidate)) {
-            return candidate;
-        }
+    private Path moveToNonClashingPath(Path temp, Path dir, String fileName) throws IOException {
         int dot = fileName.lastIndexOf('.');
         String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
         String ext = dot > 0 ? fileName.substring(dot) : "";
-        for (int i = 1; i <= MAX_RENAME_TRIES; i++) {
-            Path next = dir.resolve(stem + "-" + i + ext);
-            if (!Files.exists(next)) {
-                return next;
+        for (int i = 0; i <= MAX_RENAME_TRIES; i++) {
+            Path candidate = dir.resolve(i == 0 ? fileName : stem + "-" + i + ext);
+            if (Files.exists(candidate)) {
+                continue;
+            }
+            try {
+                return Files.move(temp, candidate);
+            } catch (FileAlreadyExistsException raced) {
+                // 检查与改名之间被并发上传占用,继续尝试下一个后缀
             }
         }
         throw new IllegalStateException("同名文件过多,放弃:" + fileName);
     }
 
+    /**
+     * 流式写入临时文件:累计超过 {@link #MAX_FILE_BYTES} 即拒绝,
+     * 前 {@value #BINARY_SNIFF_BYTES} 字节边写边做二进制嗅探。
+     *
+     * @return 实际写入字节数
+     */
+    private long writeChecked(InputStream content, Path temp) throws IOException {
+        byte[] buffer = new byte[BINARY_SNIFF_BYTES];
+        long total = 0L;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            int n;
+            while ((n = content.read(buffer)) >= 0) {
+                if (total < BINARY_SNIFF_BYTES
+                        && looksBinary(buffer, (int) Math.min(n, BINARY_SNIFF_BYTES - total))) {
+                    throw new IllegalArgumentException("检测到二进制内容,仅允许纯文本附件");
+                }
+                total += n;
+                if (total > MAX_FILE_BYTES) {
+                    throw new IllegalArgumentException("文件大小不能超过 5MB");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        if (total == 0L) {
+            throw new IllegalArgumentException("文件内容为空");
+        }
+        return total;
+    }
+
     /**
      * 朴素二进制嗅探:前 {@value #BINARY_SNIFF_BYTES} 字节出现 NUL 即视作二进制。
      * UTF-8/UTF-16 文本不会出现独立 NUL(UTF-16 文本由 BOM 标识,这里允许误判,挡得更严没坏处)。
      */
-    private boolean looksBinary(byte[] content) {
-        int limit = Math.min(content.length, BINARY_SNIFF_BYTES);
+    private boolean looksBinary(byte[] content, int limit) {
         for (int i = 0; i < limit; i++) {
             if (content[i] == 0) {
                 return true;
@@ -26,6 +26,12 @@ public class AuthProperties {
     /** 本地登录会话有效期，单位秒。 */
     private long sessionTtlSeconds = 604800L;
 
+    /** 进程内会话缓存的最大条目数，0 表示关闭缓存、每次请求直接查库。 */
+    private int sessionCacheMaxEntries = 10_000;
+
+    /** 会话缓存条目最长存活秒数（同时不超过会话自身的 expires_at），0 表示关闭缓存。 */
+    private long sessionCacheTtlSeconds = 60L;
+
     /** 对外规范登录页 URL，留空时使用当前应用下的 {@code /login.html}。 */
     private String loginPageUrl = "";
 
@@ -0,0 +1,241 @@
+package com.example.agentweb.infra.auth;
+
+import com.example.agentweb.domain.auth.ManualSession;
+import com.example.agentweb.domain.auth.ManualSessionRepository;
+import com.example.agentweb.domain.auth.UserAccount;
+import com.example.agentweb.domain.auth.UserAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * {@link ManualSessionRepository} 的进程内缓存装饰器，包裹 {@link SqliteManualSessionRepo}。
+ *
+ * <p>每个鉴权请求（含 SSE 重连、文件树点击、前端轮询）都要按 Cookie 查会话，命中缓存即免去一次
+ * SQLite 查询。只缓存存在且未过期的会话；条目在 {@code expires_at} 与
+ * {@code session-cache-ttl-seconds} 两者较早者失效，容量满按 LRU 淘汰。</p>
+ *
+ * <p>会话解析出的账户随条目一起缓存，鉴权命中时连账户查询也省掉；账户写入（停用、改角色等）经
+ * {@link #evictAccount} 显式丢弃，条目自身的 TTL 兜底直接改库等绕过仓储的变更。只缓存启用中的账户。</p>
+ *
+ * <p>save / deleteById / deleteByUserId / deleteExpiredBefore 写库后立即失效相关条目，
+ * 登出与停用账户不会留下可用缓存。失效会推进代次，与之并发、读库早于失效的加载结果只返回、不回填。</p>
+ *
+ * <p>指标：{@code auth.session.cache}（tag {@code result}=hit/miss）、
+ * {@code auth.session.account.cache}（tag {@code result}=hit/miss）、
+ * {@code auth.session.cache.evictions}（tag {@code cause}=size/expired/invalidated）、
+ * {@code auth.session.cache.size}。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Repository
+@Primary
+public class CachingManualSessionRepo implements ManualSessionRepository {
+
+    private final ManualSessionRepository delegate;
+    private final AuthProperties properties;
+    private final Clock clock;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter accountHitCounter;
+    private final Counter accountMissCounter;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidatedEvictions;
+    private final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75F, true);
+    private long generation;
+
+    @Autowired
+    public CachingManualSessionRepo(SqliteManualSessionRepo delegate, AuthProperties properties,
+                                    MeterRegistry registry) {
+        this(delegate, properties, registry, Clock.systemUTC());
+    }
+
+    /** 测试用: 可替换委托与时钟. */
+    CachingManualSessionRepo(ManualSessionRepository delegate, AuthProperties properties,
+                             MeterRegistry registry, Clock clock) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.clock = clock;
+        this.hitCounter = Counter.builder("auth.session.cache").tag("result", "hit").register(registry);
+        this.missCounter = Counter.builder("auth.session.cache").tag("result", "miss").register(registry);
+        this.accountHitCounter = Counter.builder("auth.session.account.cache").tag("result", "hit")
+                .register(registry);
+        this.accountMissCounter = Counter.builder("auth.session.account.cache").tag("result", "miss")
+                .register(registry);
+        this.sizeEvictions = evictionCounter(registry, "size");
+        this.expiredEvictions = evictionCounter(registry, "expired");
+        this.invalidatedEvictions = evictionCounter(registry, "invalidated");
+        Gauge.builder("auth.session.cache.size", this, CachingManualSessionRepo::cacheSize).register(registry);
+    }
+
+    @Override
+    public void save(ManualSession session) {
+        delegate.save(session);
+        invalidate(cached -> cached.getSessionId().equals(session.getSessionId()));
+    }
+
+    @Override
+    public Optional<ManualSession> findById(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty() || !isCacheEnabled()) {
+            return delegate.findById(sessionId);
+        }
+        long loadGeneration;
+        synchronized (cache) {
+            Entry entry = cache.get(sessionId);
+            if (entry != null) {
+                if (clock.millis() < entry.validUntilMillis) {
+                    hitCounter.increment();
+                    return Optional.of(entry.session);
+                }
+                cache.remove(sessionId);
+                expiredEvictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        missCounter.increment();
+        Optional<ManualSession> loaded = delegate.findById(sessionId);
+        loaded.ifPresent(session -> store(session, loadGeneration));
+        return loaded;
+    }
+
+    @Override
+    public void deleteById(String sessionId) {
+        delegate.deleteById(sessionId);
+        if (sessionId != null) {
+            invalidate(cached -> cached.getSessionId().equals(sessionId));
+        }
+    }
+
+    @Override
+    public int deleteByUserId(String userId) {
+        int rows = delegate.deleteByUserId(userId);
+        invalidate(cached -> cached.getUserId().equals(userId));
+        return rows;
+    }
+
+    @Override
+    public int deleteExpiredBefore(Instant threshold) {
+        int rows = delegate.deleteExpiredBefore(threshold);
+        invalidate(cached -> cached.getExpiresAt().isBefore(threshold));
+        return rows;
+    }
+
+    @Override
+    public Optional<UserAccount> findAccount(ManualSession session, UserAccountRepository accounts) {
+        if (!isCacheEnabled()) {
+            return accounts.findById(session.getUserId());
+        }
+        long loadGeneration;
+        synchronized (cache) {
+            Entry entry = cache.get(session.getSessionId());
+            if (entry != null && entry.account != null && clock.millis() < entry.validUntilMillis) {
+                accountHitCounter.increment();
+                return Optional.of(entry.account);
+            }
+            loadGeneration = generation;
+        }
+        accountMissCounter.increment();
+        Optional<UserAccount> loaded = accounts.findById(session.getUserId());
+        loaded.filter(UserAccount::isEnabled).ifPresent(account -> attach(session, account, loadGeneration));
+        return loaded;
+    }
+
+    @Override
+    public void evictAccount(String userId) {
+        synchronized (cache) {
+            generation++;
+            for (Entry entry : cache.values()) {
+                if (entry.session.getUserId().equals(userId)) {
+                    entry.account = null;
+                }
+            }
+        }
+    }
+
+    /** 账户挂到会话条目上; 条目已不在、换了会话或期间发生过失效时放弃, 下次再查. */
+    private void attach(ManualSession session, UserAccount account, long loadGeneration) {
+        synchronized (cache) {
+            Entry entry = cache.get(session.getSessionId());
+            if (generation != loadGeneration || entry == null
+                    || !entry.session.getUserId().equals(account.getId())) {
+                return;
+            }
+            entry.account = account;
+        }
+    }
+
+    private void store(ManualSession session, long loadGeneration) {
+        long now = clock.millis();
+        long expiresAt = session.getExpiresAt().toEpochMilli();
+        if (expiresAt <= now) {
+            return;
+        }
+        long ttlMillis = Math.max(0L, properties.getSessionCacheTtlSeconds()) * 1000L;
+        Entry entry = new Entry(session, Math.min(expiresAt, now + ttlMillis));
+        int maxEntries = properties.getSessionCacheMaxEntries();
+        synchronized (cache) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            cache.put(session.getSessionId(), entry);
+            Iterator<String> eldest = cache.keySet().iterator();
+            while (cache.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                sizeEvictions.increment();
+            }
+        }
+    }
+
+    private void invalidate(Predicate<ManualSession> matches) {
+        synchronized (cache) {
+            generation++;
+            Iterator<Entry> entries = cache.values().iterator();
+            while (entries.hasNext()) {
+                if (matches.test(entries.next().session)) {
+                    entries.remove();
+                    invalidatedEvictions.increment();
+                }
+            }
+        }
+    }
+
+    private boolean isCacheEnabled() {
+        return properties.getSessionCacheMaxEntries() > 0 && properties.getSessionCacheTtlSeconds() > 0;
+    }
+
+    private double cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static Counter evictionCounter(MeterRegistry registry, String cause) {
+        return Counter.builder("auth.session.cache.evictions").tag("cause", cause).register(registry);
+    }
+
+    private static final class Entry {
+        final ManualSession session;
+        final long validUntilMillis;
+        /** 随会话缓存的账户, 未解析或已失效为 null; 仅在 {@code cache} 锁内读写. */
+        UserAccount account;
+
+        Entry(ManualSession session, long validUntilMillis) {
+            this.session = session;
+            this.validUntilMillis = validUntilMillis;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.agentweb.infra.auth;
+
+import com.example.agentweb.domain.auth.ManualSessionRepository;
+import com.example.agentweb.domain.auth.UserAccount;
+import com.example.agentweb.domain.auth.UserAccountRepository;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * {@link UserAccountRepository} 装饰器，包裹 {@link SqliteUserAccountRepository}。
+ *
+ * <p>会话缓存把解析出的账户随会话条目一起缓存，账户的每次写入（停用、改角色、改密码）都经此处，
+ * 写库后立即调用 {@link ManualSessionRepository#evictAccount}，下一次鉴权重新读到最新状态。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Repository
+@Primary
+public class SessionAwareUserAccountRepo implements UserAccountRepository {
+
+    private final UserAccountRepository delegate;
+    private final ManualSessionRepository sessions;
+
+    public SessionAwareUserAccountRepo(SqliteUserAccountRepository delegate, ManualSessionRepository sessions) {
+        this.delegate = delegate;
+        this.sessions = sessions;
+    }
+
+    @Override
+    public Optional<UserAccount> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public Optional<UserAccount> findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public void save(UserAccount account) {
+        delegate.save(account);
+        sessions.evictAccount(account.getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.agentweb.infra.capability;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 按 Catalog 根缓存已解析的包，包内容只在变化后重新读取与 Hash。
+ *
+ * <p>命中条件：根已被 {@link CatalogRootWatcher} 监听、上次校验后没有事件、且未超过复核间隔。
+ * 否则重新列出包入口并逐包比较 {@link CatalogPackageStamp}，只解析戳变化的包。
+ * 戳在解析之前取，解析期间的写入会在下一次校验时被发现。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class CatalogPackageCache<T> {
+
+    private final CatalogRootWatcher watcher;
+    private final long revalidateNanos;
+    private final Map<String, RootSnapshot<T>> roots = new HashMap<String, RootSnapshot<T>>();
+
+    /**
+     * @param watcher 为 {@code null} 时每次调用都做 stat 校验
+     */
+    CatalogPackageCache(CatalogRootWatcher watcher, Duration revalidateInterval) {
+        this.watcher = watcher;
+        this.revalidateNanos = revalidateInterval == null ? 0L : revalidateInterval.toNanos();
+    }
+
+    /**
+     * @param units  列出根下的包入口（manifest 或 {@code SKILL.md}），包目录为入口所在目录
+     * @param parser 读取并 Hash 单个包
+     */
+    synchronized List<T> discover(Path realRoot, Object variant,
+                                  Function<Path, List<Path>> units,
+                                  BiFunction<Path, Path, T> parser) {
+        String key = realRoot + "\u0000" + variant;
+        long generation = watcher == null ? CatalogRootWatcher.UNWATCHED
+                : watcher.generation(realRoot);
+        long now = System.nanoTime();
+        RootSnapshot<T> previous = roots.get(key);
+        if (previous != null && generation != CatalogRootWatcher.UNWATCHED
+                && previous.generation == generation
+                && now - previous.validatedAt < revalidateNanos) {
+            return previous.values;
+        }
+        Map<Path, CachedPackage<T>> packages = new HashMap<Path, CachedPackage<T>>();
+        List<T> values = new ArrayList<T>();
+        for (Path unit : units.apply(realRoot)) {
+            CatalogPackageStamp stamp = CatalogPackageStamp.of(unit.getParent());
+            CachedPackage<T> cached = previous == null ? null : previous.packages.get(unit);
+            T value = cached != null && cached.stamp.equals(stamp)
+                    ? cached.value : parser.apply(realRoot, unit);
+            packages.put(unit, new CachedPackage<T>(stamp, value));
+            values.add(value);
+        }
+        RootSnapshot<T> snapshot = new RootSnapshot<T>(generation, now, packages,
+                Collections.unmodifiableList(values));
+        roots.put(key, snapshot);
+        return snapshot.values;
+    }
+
+    private static final class RootSnapshot<T> {
+        private final long generation;
+        private final long validatedAt;
+        private final Map<Path, CachedPackage<T>> packages;
+        private final List<T> values;
+
+        private RootSnapshot(long generation, long validatedAt,
+                             Map<Path, CachedPackage<T>> packages, List<T> values) {
+            this.generation = generation;
+            this.validatedAt = validatedAt;
+            this.packages = packages;
+            this.values = values;
+        }
+    }
+
+    private static final class CachedPackage<T> {
+        private final CatalogPackageStamp stamp;
+        private final T value;
+
+        private CachedPackage(CatalogPackageStamp stamp, T value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+}
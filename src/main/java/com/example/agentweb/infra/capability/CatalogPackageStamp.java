@@ -0,0 +1,67 @@
+package com.example.agentweb.infra.capability;
+
+import com.example.agentweb.domain.capability.CapabilityCatalogException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 包目录下每个条目的类型、大小、修改时间与 inode，不读内容。
+ *
+ * <p>相等即视为包内容未变，可复用上次读取与 Hash 的结果；写临时文件再改名的整文件替换
+ * （如 {@code rsync -t} 默认行为）即使保留 mtime 也会换 inode，同样能被识别。</p>
+ *
+ * <p>不含 ctime：收紧权限、被其他路径链接等只改元数据的操作都会推进 ctime，
+ * 含了戳就容易对不上，每次运行都要重新归档与 Hash。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class CatalogPackageStamp {
+
+    private final Map<String, String> entries;
+
+    private CatalogPackageStamp(Map<String, String> entries) {
+        this.entries = entries;
+    }
+
+    static CatalogPackageStamp of(Path packageDirectory) {
+        Map<String, String> entries = new TreeMap<String, String>();
+        try (Stream<Path> paths = Files.walk(packageDirectory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                entries.put(packageDirectory.relativize(path).toString(), attributes(path));
+            }
+        } catch (IOException | java.io.UncheckedIOException failure) {
+            throw new CapabilityCatalogException("CATALOG_READ_FAILED",
+                    "cannot stat catalog package: " + packageDirectory, failure);
+        }
+        return new CatalogPackageStamp(entries);
+    }
+
+    private static String attributes(Path path) throws IOException {
+        BasicFileAttributes basic = Files.readAttributes(
+                path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        return (basic.isDirectory() ? "d" : basic.isSymbolicLink() ? "l" : "f")
+                + ':' + basic.size()
+                + ':' + basic.lastModifiedTime().toInstant()
+                + ':' + basic.fileKey();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CatalogPackageStamp
+                && entries.equals(((CatalogPackageStamp) other).entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entries);
+    }
+}
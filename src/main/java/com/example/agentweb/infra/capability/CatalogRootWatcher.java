@@ -0,0 +1,150 @@
+package com.example.agentweb.infra.capability;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 用 {@link WatchService} 给 Catalog 根维护变更代数：根下任意目录出现事件即递增。
+ *
+ * <p>不起后台线程，每次取代数前非阻塞地排空已投递的事件；新建目录随即补注册。
+ * 无法注册（平台不支持、inotify 配额耗尽）的根返回 -1，调用方据此每次回退到 stat 校验。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Slf4j
+final class CatalogRootWatcher implements AutoCloseable {
+
+    static final long UNWATCHED = -1L;
+
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+    private final Map<Path, Long> generations = new HashMap<Path, Long>();
+    private final Set<Path> unwatchable = new HashSet<Path>();
+    private WatchService service;
+    private long sequence;
+    private boolean closed;
+
+    /**
+     * 根的当前变更代数；首次调用时注册整棵目录树。
+     */
+    synchronized long generation(Path realRoot) {
+        if (closed || unwatchable.contains(realRoot)) {
+            return UNWATCHED;
+        }
+        drain();
+        Long current = generations.get(realRoot);
+        if (current != null) {
+            return current;
+        }
+        try {
+            registerTree(realRoot);
+        } catch (IOException | RuntimeException failure) {
+            unwatchable.add(realRoot);
+            log.warn("capability-catalog-watch-unavailable root={} reason={}",
+                    realRoot, failure.toString());
+            return UNWATCHED;
+        }
+        long generation = ++sequence;
+        generations.put(realRoot, generation);
+        return generation;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        directories.clear();
+        generations.clear();
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // 关闭阶段不影响已返回的 Catalog 结果。
+            }
+        }
+    }
+
+    private void drain() {
+        if (service == null) {
+            return;
+        }
+        WatchKey key;
+        try {
+            while ((key = service.poll()) != null) {
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory != null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        registerCreated(directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+                if (directory != null) {
+                    changed(directory);
+                } else {
+                    // 丢失对应目录的事件无法定位，所有根都视为已变更
+                    generations.replaceAll((root, generation) -> ++sequence);
+                }
+            }
+        } catch (ClosedWatchServiceException ignored) {
+            generations.clear();
+        }
+    }
+
+    private void registerCreated(Path created) {
+        if (!Files.isDirectory(created, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            registerTree(created);
+        } catch (IOException | RuntimeException failure) {
+            for (Path root : generations.keySet()) {
+                if (created.startsWith(root)) {
+                    unwatchable.add(root);
+                }
+            }
+            generations.keySet().removeAll(unwatchable);
+        }
+    }
+
+    private void changed(Path directory) {
+        for (Map.Entry<Path, Long> entry : generations.entrySet()) {
+            if (directory.startsWith(entry.getKey())) {
+                entry.setValue(++sequence);
+            }
+        }
+    }
+
+    private void registerTree(Path directory) throws IOException {
+        if (service == null) {
+            service = FileSystems.getDefault().newWatchService();
+        }
+        List<Path> tree;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            tree = paths.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                    .collect(Collectors.toList());
+        }
+        for (Path path : tree) {
+            directories.put(path.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY),
+                    path);
+        }
+    }
+}
@@ -39,13 +39,24 @@ final class CodexSkillPackageReader {
     static List<SkillPackage> discover(
             Path realRoot, SkillTrustSource trustSource) {
         List<SkillPackage> packages = new ArrayList<SkillPackage>();
+        for (Path entry : packageEntries(realRoot)) {
+            packages.add(read(realRoot, entry, trustSource));
+        }
+        return Collections.unmodifiableList(packages);
+    }
+
+    /**
+     * 根下没有同目录 {@code manifest.yml} 的 {@code SKILL.md}，每个对应一个 Codex Skill 包。
+     */
+    static List<Path> packageEntries(Path realRoot) {
+        List<Path> packageEntries = new ArrayList<Path>();
         for (Path entry : entries(realRoot)) {
             if (!Files.isRegularFile(
                     entry.resolveSibling("manifest.yml"), LinkOption.NOFOLLOW_LINKS)) {
-                packages.add(read(realRoot, entry, trustSource));
+                packageEntries.add(entry);
             }
         }
-        return Collections.unmodifiableList(packages);
+        return packageEntries;
     }
 
     private static List<Path> entries(Path realRoot) {
@@ -62,7 +73,7 @@ final class CodexSkillPackageReader {
         }
     }
 
-    private static SkillPackage read(
+    static SkillPackage read(
             Path realRoot, Path entry, SkillTrustSource trustSource) {
         List<CapabilityCatalogFiles.CatalogFile> files = packageFiles(
                 realRoot, entry.getParent());
@@ -31,6 +31,8 @@ import java.util.stream.Stream;
 /**
  * Skill Package 的内容寻址不可变文件存储。
  *
+ * <p>包文件写入后即设为只读；Runtime 物化时只读取并复制，不引用存储中的 inode。</p>
+ *
  * @author alex
  * @since 2026-08-05
  */
@@ -95,6 +97,41 @@ final class ContentAddressedSkillArtifactStore {
                 new String(entryBytes, StandardCharsets.UTF_8), resources, total);
     }
 
+    Path artifactDirectory(String artifactKey) {
+        return resolveArtifactDirectory(secureRoot(), artifactKey);
+    }
+
+    /**
+     * 已归档包的入口与资源文件（相对路径 → 存储文件，入口在前），并确保均为只读。
+     */
+    Map<String, Path> sealedFiles(String artifactKey, SkillManifest manifest) {
+        Path root = secureRoot();
+        Path artifactDirectory = resolveArtifactDirectory(root, artifactKey);
+        secureDirectoryTree(root, artifactDirectory);
+        Map<String, Path> files = new LinkedHashMap<String, Path>();
+        files.put(manifest.getEntryPath(),
+                sealedFile(artifactDirectory, manifest.getEntryPath()));
+        for (String resourcePath : manifest.getResourcePaths()) {
+            files.put(resourcePath, sealedFile(artifactDirectory, resourcePath));
+        }
+        return Collections.unmodifiableMap(files);
+    }
+
+    private Path sealedFile(Path artifactDirectory, String relativePath) {
+        Path target = resolvePackageFile(artifactDirectory, relativePath);
+        secureDirectoryTree(artifactDirectory, target.getParent());
+        if (!Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)
+                || Files.isSymbolicLink(target)) {
+            throw integrity("Skill Artifact file is missing or unsafe");
+        }
+        try {
+            secureFile(target);
+        } catch (IOException failure) {
+            throw integrity("cannot seal Skill Artifact file", failure);
+        }
+        return target;
+    }
+
     private void requireCompletePackage(SkillPackage skillPackage) {
         if (skillPackage == null) {
             throw new IllegalArgumentException("Skill Package is required");
@@ -294,7 +331,7 @@ final class ContentAddressedSkillArtifactStore {
     private void secureFile(Path file) throws IOException {
         try {
             Files.setPosixFilePermissions(
-                    file, PosixFilePermissions.fromString("rw-------"));
+                    file, PosixFilePermissions.fromString("r--------"));
         } catch (UnsupportedOperationException ignored) {
             // 非 POSIX 平台由服务进程账户边界保护。
         }
@@ -10,11 +10,13 @@ import com.example.agentweb.domain.capability.McpSecretReference;
 import com.example.agentweb.domain.capability.McpServerCatalog;
 import com.example.agentweb.domain.capability.McpServerDefinition;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -27,6 +29,8 @@ import java.util.Set;
 /**
  * 管理员受控目录中的 MCP Server 可信 Catalog。
  *
+ * <p>文件系统定义按 manifest 缓存，文件戳变化才重新解析；配置库中的 JSON 与上次相同时复用上次解析结果。</p>
+ *
  * @author alex
  * @since 2026-07-23
  */
@@ -39,6 +43,9 @@ public class FileSystemMcpServerCatalog implements McpServerCatalog {
     private final Path root;
     private final CapabilitySourceConfigurationRepository sourceConfigurationRepository;
     private final JsonMcpServerCatalog jsonCatalog;
+    private final CatalogRootWatcher watcher;
+    private final CatalogPackageCache<McpServerDefinition> definitions;
+    private volatile ParsedJson lastParsed;
 
     @Autowired
     public FileSystemMcpServerCatalog(
@@ -48,12 +55,17 @@ public class FileSystemMcpServerCatalog implements McpServerCatalog {
         this.root = Paths.get(properties.getMcpServerRoot());
         this.sourceConfigurationRepository = sourceConfigurationRepository;
         this.jsonCatalog = new JsonMcpServerCatalog(objectMapper);
+        this.watcher = new CatalogRootWatcher();
+        this.definitions = new CatalogPackageCache<McpServerDefinition>(
+                watcher, Duration.ofSeconds(properties.getCatalogRevalidateSeconds()));
     }
 
     public FileSystemMcpServerCatalog(Path root) {
         this.root = root;
         this.sourceConfigurationRepository = null;
         this.jsonCatalog = null;
+        this.watcher = null;
+        this.definitions = new CatalogPackageCache<McpServerDefinition>(null, null);
     }
 
     @Override
@@ -62,19 +74,34 @@ public class FileSystemMcpServerCatalog implements McpServerCatalog {
             java.util.Optional<com.example.agentweb.domain.capability.CapabilitySourceConfiguration>
                     configuration = sourceConfigurationRepository.find();
             if (configuration.isPresent()) {
-                return jsonCatalog.parse(configuration.get().getMcpConfigurationJson())
-                        .getDefinitions();
+                return parseJson(configuration.get().getMcpConfigurationJson());
             }
         }
         return discoverFileSystem();
     }
 
+    @PreDestroy
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    private List<McpServerDefinition> parseJson(String json) {
+        ParsedJson parsed = lastParsed;
+        if (parsed != null && parsed.json.equals(json)) {
+            return parsed.definitions;
+        }
+        List<McpServerDefinition> definitions = jsonCatalog.parse(json).getDefinitions();
+        lastParsed = new ParsedJson(json, definitions);
+        return definitions;
+    }
+
     private List<McpServerDefinition> discoverFileSystem() {
         Path realRoot = CapabilityCatalogFiles.realRoot(root);
-        List<McpServerDefinition> definitions = new ArrayList<McpServerDefinition>();
-        for (Path manifestPath : CapabilityCatalogFiles.manifests(realRoot)) {
-            definitions.add(parse(realRoot, manifestPath));
-        }
+        List<McpServerDefinition> definitions = new ArrayList<McpServerDefinition>(
+                this.definitions.discover(realRoot, "mcp",
+                        CapabilityCatalogFiles::manifests, this::parse));
         definitions.sort(Comparator.comparing(McpServerDefinition::getId)
                 .thenComparing(McpServerDefinition::getVersion));
         return Collections.unmodifiableList(definitions);
@@ -163,4 +190,13 @@ public class FileSystemMcpServerCatalog implements McpServerCatalog {
         }
     }
 
+    private static final class ParsedJson {
+        private final String json;
+        private final List<McpServerDefinition> definitions;
+
+        private ParsedJson(String json, List<McpServerDefinition> definitions) {
+            this.json = json;
+            this.definitions = definitions;
+        }
+    }
 }
@@ -11,6 +11,7 @@ import com.example.agentweb.domain.capability.SkillDependency;
 import com.example.agentweb.domain.capability.SkillManifest;
 import com.example.agentweb.domain.capability.SkillPackage;
 import com.example.agentweb.domain.capability.SkillTrustSource;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -18,6 +19,7 @@ import org.springframework.util.StringUtils;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -30,6 +32,9 @@ import java.util.Set;
 /**
  * 按受控信任根热发现 Skill 的文件系统 Catalog。
  *
+ * <p>已解析的包按根缓存，只有包目录的文件戳变化后才重新读取与计算 Package Hash；
+ * Spring 装配的实例另用 {@link CatalogRootWatcher} 在根无变化时连 stat 也省掉。</p>
+ *
  * @author alex
  * @since 2026-07-23
  */
@@ -38,6 +43,9 @@ public class FileSystemSkillCatalog implements SkillCatalog {
 
     private final List<TrustedRoot> fallbackRoots;
     private final CapabilitySourceConfigurationRepository sourceConfigurationRepository;
+    private final CatalogRootWatcher watcher;
+    private final CatalogPackageCache<SkillPackage> manifestPackages;
+    private final CatalogPackageCache<SkillPackage> codexPackages;
 
     @Autowired
     public FileSystemSkillCatalog(
@@ -51,11 +59,23 @@ public class FileSystemSkillCatalog implements SkillCatalog {
         addOptional(configured, properties.getWorkspaceSkillRoot(), SkillTrustSource.WORKSPACE);
         this.fallbackRoots = Collections.unmodifiableList(configured);
         this.sourceConfigurationRepository = sourceConfigurationRepository;
+        this.watcher = new CatalogRootWatcher();
+        Duration revalidate = Duration.ofSeconds(properties.getCatalogRevalidateSeconds());
+        this.manifestPackages = new CatalogPackageCache<SkillPackage>(watcher, revalidate);
+        this.codexPackages = new CatalogPackageCache<SkillPackage>(watcher, revalidate);
     }
 
     public FileSystemSkillCatalog(Path root, SkillTrustSource trustSource) {
+        this(root, trustSource, null, null);
+    }
+
+    FileSystemSkillCatalog(Path root, SkillTrustSource trustSource,
+                           CatalogRootWatcher watcher, Duration revalidateInterval) {
         this.fallbackRoots = Collections.singletonList(new TrustedRoot(root, trustSource));
         this.sourceConfigurationRepository = null;
+        this.watcher = watcher;
+        this.manifestPackages = new CatalogPackageCache<SkillPackage>(watcher, revalidateInterval);
+        this.codexPackages = new CatalogPackageCache<SkillPackage>(watcher, revalidateInterval);
     }
 
     @Override
@@ -63,17 +83,26 @@ public class FileSystemSkillCatalog implements SkillCatalog {
         List<SkillPackage> packages = new ArrayList<SkillPackage>();
         for (TrustedRoot trustedRoot : currentRoots()) {
             Path realRoot = CapabilityCatalogFiles.realRoot(trustedRoot.getPath());
-            for (Path manifest : CapabilityCatalogFiles.manifests(realRoot)) {
-                packages.add(parse(realRoot, manifest, trustedRoot.getTrustSource()));
-            }
-            packages.addAll(CodexSkillPackageReader.discover(
-                    realRoot, trustedRoot.getTrustSource()));
+            SkillTrustSource trustSource = trustedRoot.getTrustSource();
+            packages.addAll(manifestPackages.discover(realRoot, trustSource,
+                    CapabilityCatalogFiles::manifests,
+                    (root, manifest) -> parse(root, manifest, trustSource)));
+            packages.addAll(codexPackages.discover(realRoot, trustSource,
+                    CodexSkillPackageReader::packageEntries,
+                    (root, entry) -> CodexSkillPackageReader.read(root, entry, trustSource)));
         }
         packages.sort(Comparator.comparing((SkillPackage value) -> value.getManifest().getId())
                 .thenComparing(value -> value.getManifest().getVersion()));
         return Collections.unmodifiableList(packages);
     }
 
+    @PreDestroy
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
     private List<TrustedRoot> currentRoots() {
         if (sourceConfigurationRepository == null) {
             return fallbackRoots;
@@ -0,0 +1,67 @@
+package com.example.agentweb.infra.capability;
+
+import com.example.agentweb.domain.capability.SkillPackage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 为 Runtime 物化提供 Skill Package 在内容寻址存储中已校验的只读文件，由调用方复制为独立副本。
+ *
+ * <p>首次使用时归档并复验内容，之后只比较存储目录的 {@link CatalogPackageStamp}；
+ * 戳变化才重新读取与 Hash。存储不可用或内容不符时返回 {@code null}，由调用方回退为写入字节。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Slf4j
+public final class SkillArtifactSource {
+
+    private final ContentAddressedSkillArtifactStore store;
+    private final Map<String, VerifiedArtifact> verified = new HashMap<String, VerifiedArtifact>();
+
+    public SkillArtifactSource(Path artifactRoot) {
+        this.store = new ContentAddressedSkillArtifactStore(artifactRoot);
+    }
+
+    /**
+     * @return 相对路径到存储文件的映射，入口文件在前；不可用时为 {@code null}
+     */
+    public synchronized Map<String, Path> verifiedFiles(SkillPackage skillPackage) {
+        String key = skillPackage.getPackageHash() + '\0'
+                + skillPackage.getManifest().getEntryPath() + '\0'
+                + skillPackage.getManifest().getResourcePaths();
+        VerifiedArtifact cached = verified.remove(key);
+        try {
+            if (cached != null && cached.stamp.equals(CatalogPackageStamp.of(cached.directory))) {
+                verified.put(key, cached);
+                return cached.files;
+            }
+            String artifactKey = store.archive(skillPackage).getArtifactKey();
+            Map<String, Path> files = store.sealedFiles(artifactKey, skillPackage.getManifest());
+            Path directory = store.artifactDirectory(artifactKey);
+            verified.put(key, new VerifiedArtifact(
+                    directory, CatalogPackageStamp.of(directory), files));
+            return files;
+        } catch (RuntimeException failure) {
+            log.warn("skill-artifact-source-unavailable package-hash={} reason={}",
+                    skillPackage.getPackageHash(), failure.getMessage());
+            return null;
+        }
+    }
+
+    private static final class VerifiedArtifact {
+        private final Path directory;
+        private final CatalogPackageStamp stamp;
+        private final Map<String, Path> files;
+
+        private VerifiedArtifact(Path directory, CatalogPackageStamp stamp,
+                                 Map<String, Path> files) {
+            this.directory = directory;
+            this.stamp = stamp;
+            this.files = files;
+        }
+    }
+}
@@ -6,24 +6,47 @@ import com.example.agentweb.app.chatrun.ChatRunEventHub;
 import com.example.agentweb.app.chatrun.ChatRunEventSubscription;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.config.ResumableChatStreamProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * In-memory live fan-out hub. Each subscriber owns a bounded asynchronous queue,
- * so CLI output threads only enqueue and never perform network IO.
+ * In-memory live fan-out hub. Each subscriber owns a bounded lock-free ring
+ * ({@link SubscriberRingBuffer}), so CLI output threads only enqueue and never
+ * perform network IO or contend with a subscriber's drain.
+ *
+ * <p>Overflow keeps the configured semantics: a subscriber whose pending events
+ * would exceed {@code subscriber-max-events} or {@code subscriber-max-bytes} is
+ * closed as a slow consumer. Drains run on the {@code chatRunSubscriberExecutor}
+ * (one virtual thread per drain), so a stalled SSE client parks only its own drain.</p>
+ *
+ * <p>Each live run also keeps a {@link ReplayTail} of its latest published events, bounded by
+ * {@code replay-tail-max-events} and {@code replay-tail-max-bytes}, so a reconnect whose cursor is
+ * still inside it is replayed without touching SQLite. The tail is appended before fan-out, which
+ * lets a subscriber opened concurrently with a publish find the event in either place, and it is
+ * dropped once the terminal event is published; completed runs replay from the store.</p>
+ *
+ * <p>Metrics: {@code chat.run.hub.publish.latency} (fan-out enqueue per publish call),
+ * {@code chat.run.hub.drain.lag} (enqueue to hand-off to the SSE consumer),
+ * {@code chat.run.hub.subscribers}, {@code chat.run.hub.slow.consumer.closed},
+ * {@code chat.run.hub.replay.tail.bytes}.</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-07-22
@@ -32,18 +55,44 @@ import java.util.concurrent.atomic.AtomicLong;
 @Slf4j
 public class InMemoryChatRunEventHub implements ChatRunEventHub {
 
+    private static final String TERMINAL_EVENT = "terminal";
+
     private final Map<ChatRunId, Set<Subscriber>> subscribers =
             new ConcurrentHashMap<ChatRunId, Set<Subscriber>>();
+    private final Map<ChatRunId, ReplayTail> tails = new ConcurrentHashMap<ChatRunId, ReplayTail>();
     private final AtomicLong slowConsumerClosed = new AtomicLong();
     private final int maxEvents;
     private final int maxBytes;
+    private final int tailMaxEvents;
+    private final long tailMaxBytes;
     private final Executor executor;
+    private final Timer publishLatency;
+    private final Timer drainLag;
 
+    @Autowired
     public InMemoryChatRunEventHub(ResumableChatStreamProperties properties,
-                                   @Qualifier("chatRunSubscriberExecutor") Executor executor) {
+                                   @Qualifier("chatRunSubscriberExecutor") Executor executor,
+                                   MeterRegistry registry) {
         this.maxEvents = Math.max(1, properties.getSubscriberMaxEvents());
         this.maxBytes = Math.max(1, properties.getSubscriberMaxBytes());
+        this.tailMaxEvents = Math.max(0, properties.getReplayTailMaxEvents());
+        this.tailMaxBytes = Math.max(0L, properties.getReplayTailMaxBytes());
         this.executor = executor;
+        this.publishLatency = Timer.builder("chat.run.hub.publish.latency").publishPercentileHistogram()
+                .register(registry);
+        this.drainLag = Timer.builder("chat.run.hub.drain.lag").publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("chat.run.hub.subscribers", this, InMemoryChatRunEventHub::totalSubscriberCount)
+                .register(registry);
+        FunctionCounter.builder("chat.run.hub.slow.consumer.closed", slowConsumerClosed, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("chat.run.hub.replay.tail.bytes", this, InMemoryChatRunEventHub::tailBytes)
+                .baseUnit("bytes").register(registry);
+    }
+
+    /** 测试用: 不关心指标时使用独立注册表. */
+    InMemoryChatRunEventHub(ResumableChatStreamProperties properties, Executor executor) {
+        this(properties, executor, new SimpleMeterRegistry());
     }
 
     @Override
@@ -59,15 +108,20 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
         if (events == null || events.isEmpty()) {
             return;
         }
+        long started = System.nanoTime();
         for (ChatRunEvent event : events) {
+            retain(event);
             Set<Subscriber> runSubscribers = subscribers.get(event.getRunId());
-            if (runSubscribers == null) {
-                continue;
+            if (runSubscribers != null) {
+                for (Subscriber subscriber : runSubscribers) {
+                    subscriber.offer(event, started);
+                }
             }
-            for (Subscriber subscriber : runSubscribers) {
-                subscriber.offer(event);
+            if (TERMINAL_EVENT.equals(event.getEventType())) {
+                tails.remove(event.getRunId());
             }
         }
+        publishLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
     }
 
     @Override
@@ -76,6 +130,12 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
         return found == null ? 0 : found.size();
     }
 
+    @Override
+    public Optional<List<ChatRunEvent>> findRecentAfter(ChatRunId runId, long afterExclusive) {
+        ReplayTail tail = tails.get(runId);
+        return tail == null ? Optional.<List<ChatRunEvent>>empty() : tail.after(afterExclusive);
+    }
+
     @Override
     public int totalSubscriberCount() {
         int total = 0;
@@ -90,35 +150,45 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
         return slowConsumerClosed.get();
     }
 
+    private void retain(ChatRunEvent event) {
+        if (tailMaxEvents <= 0 || tailMaxBytes <= 0L || TERMINAL_EVENT.equals(event.getEventType())) {
+            return;
+        }
+        tails.computeIfAbsent(event.getRunId(), ignored -> new ReplayTail(tailMaxEvents, tailMaxBytes))
+                .append(event);
+    }
+
+    private double tailBytes() {
+        long total = 0L;
+        for (ReplayTail tail : tails.values()) {
+            total += tail.bytes();
+        }
+        return total;
+    }
+
     private final class Subscriber implements ChatRunEventSubscription {
 
         private final ChatRunId runId;
         private final ChatRunEventConsumer consumer;
-        private final Queue<ChatRunEvent> queue = new ArrayDeque<ChatRunEvent>();
+        private final SubscriberRingBuffer<ChatRunEvent> queue =
+                new SubscriberRingBuffer<ChatRunEvent>(maxEvents);
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final AtomicLong lastDeliveredSeq = new AtomicLong();
         private final AtomicBoolean draining = new AtomicBoolean(false);
-        private boolean active;
-        private boolean closed;
-        private long lastDeliveredSeq;
-        private int queuedBytes;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile boolean active;
 
         private Subscriber(ChatRunId runId, ChatRunEventConsumer consumer) {
             this.runId = runId;
             this.consumer = consumer;
         }
 
-        private void offer(ChatRunEvent event) {
-            boolean overflow;
-            synchronized (this) {
-                if (closed || event.getSeq() <= lastDeliveredSeq) {
-                    return;
-                }
-                overflow = queue.size() >= maxEvents
-                        || queuedBytes + event.getPayloadSize() > maxBytes;
-                if (!overflow) {
-                    queue.offer(event);
-                    queuedBytes += event.getPayloadSize();
-                }
+        private void offer(ChatRunEvent event, long enqueuedAtNanos) {
+            if (closed.get() || event.getSeq() <= lastDeliveredSeq.get()) {
+                return;
             }
+            boolean overflow = queuedBytes.addAndGet(event.getPayloadSize()) > maxBytes
+                    || !queue.offer(event, enqueuedAtNanos);
             if (overflow) {
                 closeForOverflow();
                 return;
@@ -128,42 +198,30 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
 
         @Override
         public void activateAfter(long highWatermark) {
-            synchronized (this) {
-                if (closed) {
-                    return;
-                }
-                lastDeliveredSeq = Math.max(lastDeliveredSeq, highWatermark);
-                active = true;
+            if (closed.get()) {
+                return;
             }
+            lastDeliveredSeq.accumulateAndGet(highWatermark, Math::max);
+            active = true;
             scheduleDrainIfReady();
         }
 
         @Override
         public void close() {
-            closeInternal(false);
+            closeInternal();
         }
 
         private void closeForOverflow() {
             log.warn("chat-run-subscriber-closed runId={} reason=SLOW_CONSUMER", runId.getValue());
-            if (closeInternal(true)) {
+            if (closeInternal()) {
                 slowConsumerClosed.incrementAndGet();
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        consumer.overflow();
-                    }
-                });
+                executor.execute(consumer::overflow);
             }
         }
 
-        private boolean closeInternal(boolean overflow) {
-            synchronized (this) {
-                if (closed) {
-                    return false;
-                }
-                closed = true;
-                queue.clear();
-                queuedBytes = 0;
+        private boolean closeInternal() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
             }
             Set<Subscriber> runSubscribers = subscribers.get(runId);
             if (runSubscribers != null) {
@@ -172,43 +230,40 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
                     subscribers.remove(runId, runSubscribers);
                 }
             }
+            scheduleDrainIfReady();
             return true;
         }
 
+        /** A closed subscriber still gets one drain pass so pending events are released. */
         private void scheduleDrainIfReady() {
-            synchronized (this) {
-                if (closed || !active || queue.isEmpty()) {
-                    return;
-                }
+            if (queue.isEmpty() || !(active || closed.get())) {
+                return;
             }
             if (draining.compareAndSet(false, true)) {
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        drain();
-                    }
-                });
+                executor.execute(this::drain);
             }
         }
 
         private void drain() {
             try {
                 while (true) {
-                    ChatRunEvent next;
-                    synchronized (this) {
-                        if (closed || !active) {
-                            return;
-                        }
-                        next = queue.poll();
-                        if (next == null) {
-                            return;
-                        }
-                        queuedBytes -= next.getPayloadSize();
-                        if (next.getSeq() <= lastDeliveredSeq) {
-                            continue;
-                        }
-                        lastDeliveredSeq = next.getSeq();
+                    if (closed.get()) {
+                        discardQueued();
+                        return;
+                    }
+                    if (!active) {
+                        return;
+                    }
+                    ChatRunEvent next = queue.poll();
+                    if (next == null) {
+                        return;
                     }
+                    queuedBytes.addAndGet(-next.getPayloadSize());
+                    if (next.getSeq() <= lastDeliveredSeq.get()) {
+                        continue;
+                    }
+                    lastDeliveredSeq.set(next.getSeq());
+                    drainLag.record(System.nanoTime() - queue.lastPolledEnqueuedAt(), TimeUnit.NANOSECONDS);
                     consumer.accept(next);
                 }
             } catch (RuntimeException ex) {
@@ -220,5 +275,12 @@ public class InMemoryChatRunEventHub implements ChatRunEventHub {
                 scheduleDrainIfReady();
             }
         }
+
+        private void discardQueued() {
+            while (queue.poll() != null) {
+                // released for GC; the subscriber no longer accepts events
+            }
+            queuedBytes.set(0L);
+        }
     }
 }
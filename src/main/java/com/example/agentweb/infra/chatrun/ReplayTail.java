@@ -0,0 +1,82 @@
+package com.example.agentweb.infra.chatrun;
+
+import com.example.agentweb.app.chatrun.ChatRunEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One run's most recently published events, contiguous by sequence and bounded by event count and
+ * payload bytes. Out-of-order or gapped publishes restart the window instead of leaving a hole, so
+ * any range the tail answers for is complete.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class ReplayTail {
+
+    private final int maxEvents;
+    private final long maxBytes;
+    private final ArrayDeque<ChatRunEvent> events = new ArrayDeque<ChatRunEvent>();
+    private long bytes;
+
+    ReplayTail(int maxEvents, long maxBytes) {
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized void append(ChatRunEvent event) {
+        if (!events.isEmpty()) {
+            long last = events.peekLast().getSeq();
+            if (event.getSeq() <= last) {
+                return;
+            }
+            if (event.getSeq() != last + 1L) {
+                events.clear();
+                bytes = 0L;
+            }
+        }
+        events.addLast(event);
+        bytes += event.getPayloadSize();
+        while (!events.isEmpty() && (events.size() > maxEvents || bytes > maxBytes)) {
+            bytes -= events.pollFirst().getPayloadSize();
+        }
+    }
+
+    /**
+     * Events after {@code afterExclusive}, or empty when the window does not reach back to the
+     * cursor or the cursor is ahead of it.
+     */
+    synchronized Optional<List<ChatRunEvent>> after(long afterExclusive) {
+        if (events.isEmpty()) {
+            return Optional.empty();
+        }
+        long first = events.peekFirst().getSeq();
+        long last = events.peekLast().getSeq();
+        if (afterExclusive + 1L < first || afterExclusive > last) {
+            return Optional.empty();
+        }
+        if (afterExclusive == last) {
+            return Optional.of(Collections.<ChatRunEvent>emptyList());
+        }
+        List<ChatRunEvent> found = new ArrayList<ChatRunEvent>((int) (last - afterExclusive));
+        Iterator<ChatRunEvent> newestFirst = events.descendingIterator();
+        while (newestFirst.hasNext()) {
+            ChatRunEvent event = newestFirst.next();
+            if (event.getSeq() <= afterExclusive) {
+                break;
+            }
+            found.add(event);
+        }
+        Collections.reverse(found);
+        return Optional.of(found);
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+}
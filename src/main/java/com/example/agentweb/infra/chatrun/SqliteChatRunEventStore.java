@@ -3,31 +3,69 @@ package com.example.agentweb.infra.chatrun;
 import com.example.agentweb.app.chatrun.ChatRunEvent;
 import com.example.agentweb.app.chatrun.ChatRunEventDraft;
 import com.example.agentweb.app.chatrun.ChatRunEventStore;
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.domain.chatrun.EventSequenceRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * SQLite append-only event store for resumable chat streams.
  *
+ * <p>{@link #appendAssigned} writes a flushed batch as multi-row {@code INSERT ... VALUES (...),(...)}
+ * statements of at most {@value #ROWS_PER_STATEMENT} rows (six bound parameters each, under SQLite's
+ * default 999 limit), so SQLite compiles one statement per 128 events instead of one per event. The
+ * full-size statement text is built once; the caller's transaction makes the whole batch one WAL commit.</p>
+ *
+ * <p>Payloads go through {@link StoredContentCodec}: large ones are stored compressed (or spilled to the
+ * content blob store) while {@code payload_size} keeps the original size.</p>
+ *
+ * <p>Metrics: {@code chat.run.event.store.append.latency} (INSERT statements of one batch, excluding
+ * the surrounding commit).</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-22
  */
 @Repository
 public class SqliteChatRunEventStore implements ChatRunEventStore {
 
+    static final int ROWS_PER_STATEMENT = 128;
+
+    private static final String INSERT_PREFIX = "INSERT INTO chat_run_event "
+            + "(run_id, seq, event_type, payload, payload_size, created_at) VALUES ";
+    private static final int COLUMNS = 6;
+    private static final String FULL_BATCH_SQL = insertSql(ROWS_PER_STATEMENT);
+
     private final JdbcTemplate jdbc;
+    private final Timer appendLatency;
+    private final StoredContentCodec payloadCodec;
 
-    public SqliteChatRunEventStore(JdbcTemplate jdbc) {
+    @Autowired
+    public SqliteChatRunEventStore(JdbcTemplate jdbc, MeterRegistry registry, StoredContentCodec payloadCodec) {
         this.jdbc = jdbc;
+        this.appendLatency = Timer.builder("chat.run.event.store.append.latency")
+                .publishPercentileHistogram().register(registry);
+        this.payloadCodec = payloadCodec;
+    }
+
+    public SqliteChatRunEventStore(JdbcTemplate jdbc, MeterRegistry registry) {
+        this(jdbc, registry, StoredContentCodec.PLAIN);
+    }
+
+    /** 测试用: 不关心指标时使用独立注册表. */
+    public SqliteChatRunEventStore(JdbcTemplate jdbc) {
+        this(jdbc, new SimpleMeterRegistry());
     }
 
     @Override
@@ -40,18 +78,28 @@ public class SqliteChatRunEventStore implements ChatRunEventStore {
         if (expectedSize != drafts.size()) {
             throw new IllegalArgumentException("event sequence range does not match batch size");
         }
+        long started = System.nanoTime();
         List<ChatRunEvent> persisted = new ArrayList<ChatRunEvent>(drafts.size());
         long sequence = range.getStartInclusive();
-        for (ChatRunEventDraft draft : drafts) {
-            int payloadSize = draft.getPayload().getBytes(StandardCharsets.UTF_8).length;
-            jdbc.update("INSERT INTO chat_run_event "
-                            + "(run_id, seq, event_type, payload, payload_size, created_at) VALUES (?,?,?,?,?,?)",
-                    runId.getValue(), sequence, draft.getEventType(), draft.getPayload(),
-                    payloadSize, createdAt.toEpochMilli());
-            persisted.add(new ChatRunEvent(runId, sequence, draft.getEventType(), draft.getPayload(),
-                    payloadSize, createdAt));
-            sequence++;
+        for (int from = 0; from < drafts.size(); from += ROWS_PER_STATEMENT) {
+            int rows = Math.min(ROWS_PER_STATEMENT, drafts.size() - from);
+            Object[] args = new Object[rows * COLUMNS];
+            int arg = 0;
+            for (int i = from; i < from + rows; i++) {
+                ChatRunEventDraft draft = drafts.get(i);
+                args[arg++] = runId.getValue();
+                args[arg++] = sequence;
+                args[arg++] = draft.getEventType();
+                args[arg++] = payloadCodec.encode(draft.getPayload());
+                args[arg++] = draft.getPayloadSize();
+                args[arg++] = createdAt.toEpochMilli();
+                persisted.add(new ChatRunEvent(runId, sequence, draft.getEventType(), draft.getPayload(),
+                        draft.getPayloadSize(), createdAt));
+                sequence++;
+            }
+            jdbc.update(rows == ROWS_PER_STATEMENT ? FULL_BATCH_SQL : insertSql(rows), args);
         }
+        appendLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         return persisted;
     }
 
@@ -75,16 +123,31 @@ public class SqliteChatRunEventStore implements ChatRunEventStore {
 
     @Override
     public int deleteBefore(Instant cutoff, int limit) {
-        return jdbc.update("DELETE FROM chat_run_event WHERE rowid IN ("
+        // 终态 Run 的输出检查点只服务于完成前的恢复，随事件一起按批清理; 计入返回行数, 批次循环据此判断是否清完
+        int checkpoints = jdbc.update("DELETE FROM chat_run_output_checkpoint WHERE rowid IN ("
+                        + "SELECT c.rowid FROM chat_run_output_checkpoint c JOIN chat_run r ON r.id=c.run_id "
+                        + "WHERE c.created_at<? AND r.status NOT IN ('PENDING','RUNNING','CANCEL_REQUESTED') "
+                        + "LIMIT ?)",
+                cutoff.toEpochMilli(), limit);
+        return checkpoints + jdbc.update("DELETE FROM chat_run_event WHERE rowid IN ("
                         + "SELECT e.rowid FROM chat_run_event e JOIN chat_run r ON r.id=e.run_id "
                         + "WHERE e.created_at<? AND r.status NOT IN ('PENDING','RUNNING','CANCEL_REQUESTED') "
                         + "ORDER BY e.created_at ASC LIMIT ?)",
                 cutoff.toEpochMilli(), limit);
     }
 
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * 14);
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?,?,?,?,?,?)" : ",(?,?,?,?,?,?)");
+        }
+        return sql.toString();
+    }
+
     private ChatRunEvent map(ResultSet rs, int rowNum) throws SQLException {
         return new ChatRunEvent(ChatRunId.of(rs.getString("run_id")), rs.getLong("seq"),
-                rs.getString("event_type"), rs.getString("payload"), rs.getInt("payload_size"),
+                rs.getString("event_type"), payloadCodec.decode(rs.getObject("payload")), rs.getInt("payload_size"),
                 Instant.ofEpochMilli(rs.getLong("created_at")));
     }
 }
@@ -4,9 +4,11 @@ import com.example.agentweb.app.chatrun.ActiveChatRunView;
 import com.example.agentweb.app.chatrun.ChatRunExecutionContext;
 import com.example.agentweb.app.chatrun.ChatRunHistoryMessageView;
 import com.example.agentweb.app.chatrun.ChatRunQueryService;
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.auth.CurrentUserProvider;
 import com.example.agentweb.domain.chatrun.ChatRunStatus;
 import com.example.agentweb.domain.shared.AgentType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
@@ -27,11 +29,19 @@ public class SqliteChatRunQueryService implements ChatRunQueryService {
     private final JdbcTemplate jdbc;
     private final CurrentUserProvider currentUserProvider;
     private final SqliteTransientLockRetry lockRetry;
+    private final StoredContentCodec contentCodec;
 
     public SqliteChatRunQueryService(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider) {
+        this(jdbc, currentUserProvider, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteChatRunQueryService(JdbcTemplate jdbc, CurrentUserProvider currentUserProvider,
+                                     StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
         this.currentUserProvider = currentUserProvider;
         this.lockRetry = new SqliteTransientLockRetry();
+        this.contentCodec = contentCodec;
     }
 
     @Override
@@ -101,7 +111,7 @@ public class SqliteChatRunQueryService implements ChatRunQueryService {
     private List<ChatRunHistoryMessageView> loadHistory(String sessionId, long beforeMessageId) {
         return jdbc.query("SELECT role, content FROM chat_message WHERE session_id=? AND id<? ORDER BY id ASC",
                 (rs, rowNum) -> new ChatRunHistoryMessageView(
-                        rs.getString("role"), rs.getString("content")),
+                        rs.getString("role"), contentCodec.decode(rs.getObject("content"))),
                 sessionId, beforeMessageId);
     }
 }
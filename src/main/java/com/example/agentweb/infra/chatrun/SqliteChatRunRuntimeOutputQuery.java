@@ -1,16 +1,22 @@
 package com.example.agentweb.infra.chatrun;
 
+import com.example.agentweb.app.chatrun.ChatRunRuntimeOutputCheckpointer;
 import com.example.agentweb.app.chatrun.ChatRunRuntimeOutputQuery;
 import com.example.agentweb.app.chatrun.RecoveredRuntimeOutput;
 import com.example.agentweb.app.runtime.port.RuntimeHandle;
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
-import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,83 +29,134 @@ import java.util.Objects;
  * 按 seq 交错重建为 stream-json NDJSON（与 Chat 路径的 {@code StreamChunkHandler}
  * 累积格式一致），使前端 {@code parseStreamJson()} 能解析出 text / tool segments。</p>
  *
+ * <p>运行中按 {@code recovery-checkpoint-events} 把已提交事件压缩为
+ * {@code chat_run_output_checkpoint} 分段；恢复时直接拼接分段，只逐行解析最后检查点之后的事件，
+ * 且逐行流式处理结果集而不先物化整个事件列表。事件 payload 与检查点正文都经
+ * {@link StoredContentCodec} 编解码，大段内容在库里是压缩形态。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
 @Repository
 public class SqliteChatRunRuntimeOutputQuery
-        implements ChatRunRuntimeOutputQuery {
+        implements ChatRunRuntimeOutputQuery, ChatRunRuntimeOutputCheckpointer {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    private static final String TAIL_SQL = "SELECT seq, event_type, payload, payload_size "
+            + "FROM chat_run_event "
+            + "WHERE run_id=? AND seq>? "
+            + "AND event_type IN ('agent_chunk','tool_started','tool_finished') "
+            + "ORDER BY seq ASC";
+
     private final JdbcTemplate jdbc;
     private final long maximumOutputBytes;
+    private final int checkpointIntervalEvents;
+    private final StoredContentCodec contentCodec;
+
+    public SqliteChatRunRuntimeOutputQuery(JdbcTemplate jdbc, long maximumOutputBytes) {
+        this(jdbc, maximumOutputBytes, 0);
+    }
+
+    public SqliteChatRunRuntimeOutputQuery(
+            JdbcTemplate jdbc, long maximumOutputBytes, int checkpointIntervalEvents) {
+        this(jdbc, maximumOutputBytes, checkpointIntervalEvents, StoredContentCodec.PLAIN);
+    }
 
+    @Autowired
     public SqliteChatRunRuntimeOutputQuery(
             JdbcTemplate jdbc,
             @Value("${agent.runtime.recovery-max-output-bytes:10485760}")
-                    long maximumOutputBytes) {
+                    long maximumOutputBytes,
+            @Value("${agent.runtime.recovery-checkpoint-events:256}")
+                    int checkpointIntervalEvents,
+            StoredContentCodec contentCodec) {
         this.jdbc = Objects.requireNonNull(jdbc, "jdbc");
+        this.contentCodec = Objects.requireNonNull(contentCodec, "contentCodec");
         if (maximumOutputBytes < 1L) {
             throw new IllegalArgumentException(
                     "runtime recovery output limit must be positive");
         }
         this.maximumOutputBytes = maximumOutputBytes;
+        this.checkpointIntervalEvents = Math.max(0, checkpointIntervalEvents);
     }
 
     @Override
     public RecoveredRuntimeOutput load(
             ChatRunId runId, RuntimeHandle handle) {
         requireMatchingHandle(runId, handle);
-        List<EventRow> rows = jdbc.query(
-                "SELECT seq, event_type, payload, payload_size "
-                        + "FROM chat_run_event "
-                        + "WHERE run_id=? "
-                        + "AND event_type IN ('agent_chunk','tool_started','tool_finished') "
-                        + "ORDER BY seq ASC",
-                (resultSet, rowNumber) -> new EventRow(
-                        resultSet.getLong("seq"),
-                        resultSet.getString("event_type"),
-                        resultSet.getString("payload"),
-                        resultSet.getInt("payload_size")),
-                runId.getValue());
-        StringBuilder output = new StringBuilder();
-        long outputBytes = 0L;
-        long previousSeq = 0L;
-        long previousRuntimeSequence = -1L;
-        for (EventRow row : rows) {
-            if (row.seq <= previousSeq) {
-                return RecoveredRuntimeOutput.incomplete();
-            }
-            ParsedEvent parsed = toStreamJson(row);
-            if (parsed == null
-                    || parsed.runtimeSequence <= previousRuntimeSequence) {
-                return RecoveredRuntimeOutput.incomplete();
-            }
-            byte[] encoded = parsed.json.getBytes(StandardCharsets.UTF_8);
-            long separatorBytes = output.length() == 0 ? 0L : 1L;
-            if (encoded.length > maximumOutputBytes - outputBytes - separatorBytes) {
+        Checkpoint checkpoint = latestCheckpoint(runId);
+        if (checkpoint.outputBytes > maximumOutputBytes) {
+            return RecoveredRuntimeOutput.incomplete();
+        }
+        // 字符数不超过 UTF-8 字节数，按检查点累计字节预分配即可覆盖已压缩部分
+        StringBuilder output = new StringBuilder(
+                (int) Math.min(checkpoint.outputBytes + 8192L, Integer.MAX_VALUE - 8L));
+        if (checkpoint.segmentNo > 0) {
+            int[] segments = new int[1];
+            jdbc.query("SELECT content FROM chat_run_output_checkpoint "
+                            + "WHERE run_id=? AND segment_no<=? ORDER BY segment_no ASC",
+                    (RowCallbackHandler) resultSet -> {
+                        segments[0]++;
+                        output.append(contentCodec.decode(resultSet.getObject("content")));
+                    },
+                    runId.getValue(), checkpoint.segmentNo);
+            if (segments[0] != checkpoint.segmentNo) {
                 return RecoveredRuntimeOutput.incomplete();
             }
-            if (separatorBytes > 0L) {
-                output.append('\n');
-            }
-            output.append(parsed.json);
-            outputBytes += separatorBytes + encoded.length;
-            previousSeq = row.seq;
-            previousRuntimeSequence = parsed.runtimeSequence;
         }
-        return RecoveredRuntimeOutput.complete(output.toString());
+        Transcript tail = new Transcript(output, checkpoint);
+        jdbc.query(TAIL_SQL, tail, runId.getValue(), checkpoint.lastSeq);
+        return tail.complete
+                ? RecoveredRuntimeOutput.complete(output.toString())
+                : RecoveredRuntimeOutput.incomplete();
+    }
+
+    @Override
+    public int checkpointIntervalEvents() {
+        return checkpointIntervalEvents;
+    }
+
+    @Override
+    public void checkpoint(ChatRunId runId) {
+        Objects.requireNonNull(runId, "runId");
+        Checkpoint previous = latestCheckpoint(runId);
+        Transcript segment = new Transcript(new StringBuilder(), previous);
+        jdbc.query(TAIL_SQL, segment, runId.getValue(), previous.lastSeq);
+        if (!segment.complete || segment.events == 0) {
+            return;
+        }
+        // 并发写同一段号时保留先到者；两者都是同一前缀上的合法压缩结果
+        jdbc.update("INSERT OR IGNORE INTO chat_run_output_checkpoint "
+                        + "(run_id, segment_no, last_seq, last_runtime_sequence, output_bytes, "
+                        + "content, created_at) VALUES (?,?,?,?,?,?,?)",
+                runId.getValue(), previous.segmentNo + 1, segment.lastSeq,
+                segment.lastRuntimeSequence, segment.outputBytes,
+                contentCodec.encode(segment.content.toString()), Instant.now().toEpochMilli());
     }
 
-    private ParsedEvent toStreamJson(EventRow row) {
+    private Checkpoint latestCheckpoint(ChatRunId runId) {
+        List<Checkpoint> rows = jdbc.query(
+                "SELECT segment_no, last_seq, last_runtime_sequence, output_bytes "
+                        + "FROM chat_run_output_checkpoint WHERE run_id=? "
+                        + "ORDER BY segment_no DESC LIMIT 1",
+                (resultSet, rowNumber) -> new Checkpoint(
+                        resultSet.getInt("segment_no"),
+                        resultSet.getLong("last_seq"),
+                        resultSet.getLong("last_runtime_sequence"),
+                        resultSet.getLong("output_bytes")),
+                runId.getValue());
+        return rows.isEmpty() ? Checkpoint.NONE : rows.get(0);
+    }
+
+    private ParsedEvent toStreamJson(
+            String eventType, String payload, int payloadSize) {
         try {
-            if (row.payload == null) return null;
-            if (row.payloadSize
-                    != row.payload.getBytes(StandardCharsets.UTF_8).length) {
+            if (payload == null) return null;
+            if (payloadSize != utf8Length(payload)) {
                 return null;
             }
-            JsonNode root = MAPPER.readTree(row.payload);
+            JsonNode root = MAPPER.readTree(payload);
             JsonNode seqNode = root.get("runtimeSequence");
             if (seqNode == null || !seqNode.canConvertToLong()
                     || seqNode.longValue() < 0L) {
@@ -107,7 +164,7 @@ public class SqliteChatRunRuntimeOutputQuery
             }
             long runtimeSequence = seqNode.longValue();
             String json;
-            switch (row.eventType) {
+            switch (eventType) {
                 case "agent_chunk":
                     json = agentChunkStreamJson(root);
                     break;
@@ -223,18 +280,98 @@ public class SqliteChatRunRuntimeOutputQuery
         }
     }
 
-    private static final class EventRow {
-        private final long seq;
-        private final String eventType;
-        private final String payload;
-        private final int payloadSize;
+    /** 与 {@code String.getBytes(UTF_8).length} 一致（孤立代理项编码为单字节 '?'），但不分配数组。 */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0L;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1L;
+            } else if (c < 0x800) {
+                bytes += 2L;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4L;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1L;
+            } else {
+                bytes += 3L;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 从某个检查点之后逐行续接 stream-json；任一行损坏、乱序或超出上限即标记不完整并忽略后续行。
+     */
+    private final class Transcript implements RowCallbackHandler {
+        private final StringBuilder content;
+        private long outputBytes;
+        private long lastSeq;
+        private long lastRuntimeSequence;
+        private int events;
+        private boolean complete = true;
+
+        private Transcript(StringBuilder content, Checkpoint from) {
+            this.content = content;
+            this.outputBytes = from.outputBytes;
+            this.lastSeq = from.lastSeq;
+            this.lastRuntimeSequence = from.lastRuntimeSequence;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            if (complete) {
+                complete = accept(resultSet.getLong("seq"),
+                        resultSet.getString("event_type"),
+                        contentCodec.decode(resultSet.getObject("payload")),
+                        resultSet.getInt("payload_size"));
+            }
+        }
 
-        private EventRow(
+        private boolean accept(
                 long seq, String eventType, String payload, int payloadSize) {
-            this.seq = seq;
-            this.eventType = eventType;
-            this.payload = payload;
-            this.payloadSize = payloadSize;
+            if (seq <= lastSeq) {
+                return false;
+            }
+            ParsedEvent parsed = toStreamJson(eventType, payload, payloadSize);
+            if (parsed == null
+                    || parsed.runtimeSequence <= lastRuntimeSequence) {
+                return false;
+            }
+            long encodedBytes = utf8Length(parsed.json);
+            long separatorBytes = outputBytes == 0L ? 0L : 1L;
+            if (encodedBytes > maximumOutputBytes - outputBytes - separatorBytes) {
+                return false;
+            }
+            if (separatorBytes > 0L) {
+                content.append('\n');
+            }
+            content.append(parsed.json);
+            outputBytes += separatorBytes + encodedBytes;
+            lastSeq = seq;
+            lastRuntimeSequence = parsed.runtimeSequence;
+            events++;
+            return true;
+        }
+    }
+
+    private static final class Checkpoint {
+        private static final Checkpoint NONE = new Checkpoint(0, 0L, -1L, 0L);
+
+        private final int segmentNo;
+        private final long lastSeq;
+        private final long lastRuntimeSequence;
+        private final long outputBytes;
+
+        private Checkpoint(
+                int segmentNo, long lastSeq, long lastRuntimeSequence, long outputBytes) {
+            this.segmentNo = segmentNo;
+            this.lastSeq = lastSeq;
+            this.lastRuntimeSequence = lastRuntimeSequence;
+            this.outputBytes = outputBytes;
         }
     }
 
@@ -2,6 +2,8 @@ package com.example.agentweb.infra.chatrun;
 
 import com.example.agentweb.app.chatrun.ShellCommandToolNameResolver;
 import com.example.agentweb.app.chatrun.ToolInvocationStatisticsQueryService;
+import com.example.agentweb.infra.metrics.SqliteMetricRollups;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -18,49 +20,68 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * 概览与日趋势在注入 {@link SqliteMetricRollups} 时读小时预聚合（按会话保留一行，去重会话数仍可精确合并），
+ * 不足一小时的首尾与未封存的桶扫明细补齐；按 Run、工具名筛选以及排行、会话下钻仍直接查明细。
+ *
  * @author alex
  */
 @Service
 public class SqliteToolInvocationStatisticsQueryService implements ToolInvocationStatisticsQueryService {
     private static final ZoneId STATISTICS_ZONE = ZoneId.systemDefault();
+    private static final String DETAIL_ROWS = "SELECT session_id,provider,invocation_kind,status,source,started_at,"
+            + "1 n,input_truncated,output_truncated,CASE WHEN source='LIVE' AND started_at IS NOT NULL "
+            + "AND completed_at>=started_at THEN 1 ELSE 0 END duration_available FROM chat_tool_invocation";
+    private static final String ROLLUP_ROWS = "SELECT session_id,provider,invocation_kind,status,source,"
+            + "CASE WHEN bucket<0 THEN NULL ELSE bucket END started_at,invocation_count n,"
+            + "input_truncated_sum input_truncated,output_truncated_sum output_truncated,"
+            + "duration_available_count duration_available FROM metric_tool_invocation_hourly";
     private final JdbcTemplate jdbc;
     private final ShellCommandToolNameResolver commandNameResolver;
+    /** 为 null 时概览与趋势直接查明细。 */
+    private final SqliteMetricRollups rollups;
 
     public SqliteToolInvocationStatisticsQueryService(JdbcTemplate jdbc,
                                                        ShellCommandToolNameResolver commandNameResolver) {
+        this(jdbc, commandNameResolver, null);
+    }
+
+    @Autowired
+    public SqliteToolInvocationStatisticsQueryService(JdbcTemplate jdbc,
+                                                       ShellCommandToolNameResolver commandNameResolver,
+                                                       SqliteMetricRollups rollups) {
         this.jdbc = jdbc;
         this.commandNameResolver = commandNameResolver;
+        this.rollups = rollups;
     }
 
     @Override
     public Overview overview(Filter filter) {
-        SqlFilter sql = filter(filter, null, false);
-        return jdbc.queryForObject("SELECT COUNT(*),COUNT(DISTINCT session_id),"
-                        + sum("status='SUCCEEDED'") + "," + sum("status='FAILED'") + ","
-                        + sum("status='INCOMPLETE'") + "," + sum("status='STARTED'") + ","
-                        + sum("status='UNKNOWN'") + "," + sum("provider='CLAUDE'") + ","
-                        + sum("provider='CODEX'") + "," + sum("provider='NATIVE'") + ","
-                        + sum("invocation_kind='TOOL_USE'") + "," + sum("invocation_kind='COMMAND_EXECUTION'") + ","
-                        + sum("invocation_kind='SKILL'") + ",COALESCE(SUM(input_truncated),0),"
-                        + "COALESCE(SUM(output_truncated),0)," + sum("source='LIVE'") + ","
-                        + sum("source='HISTORY_MIGRATION'") + ","
-                        + sum("source='LIVE' AND started_at IS NOT NULL AND completed_at>=started_at")
-                        + " FROM chat_tool_invocation" + sql.where,
-                (rs, rowNum) -> mapOverview(rs), sql.arguments.toArray());
+        SqlFilter rows = rows(filter, false);
+        return jdbc.queryForObject("SELECT COALESCE(SUM(n),0),COUNT(DISTINCT session_id),"
+                        + weighted("status='SUCCEEDED'") + "," + weighted("status='FAILED'") + ","
+                        + weighted("status='INCOMPLETE'") + "," + weighted("status='STARTED'") + ","
+                        + weighted("status='UNKNOWN'") + "," + weighted("provider='CLAUDE'") + ","
+                        + weighted("provider='CODEX'") + "," + weighted("provider='NATIVE'") + ","
+                        + weighted("invocation_kind='TOOL_USE'") + "," + weighted("invocation_kind='COMMAND_EXECUTION'") + ","
+                        + weighted("invocation_kind='SKILL'") + ",COALESCE(SUM(input_truncated),0),"
+                        + "COALESCE(SUM(output_truncated),0)," + weighted("source='LIVE'") + ","
+                        + weighted("source='HISTORY_MIGRATION'") + ",COALESCE(SUM(duration_available),0)"
+                        + " FROM (" + rows.where + ")",
+                (rs, rowNum) -> mapOverview(rs), rows.arguments.toArray());
     }
 
     @Override
     public List<DailyPoint> dailyTrend(Filter filter) {
-        SqlFilter sql = filter(filter, null, false);
-        List<DailyPoint> found = jdbc.query("SELECT date(started_at/1000,'unixepoch','localtime') day,COUNT(*),"
-                        + "COUNT(DISTINCT session_id)," + sum("status='SUCCEEDED'") + ","
-                        + sum("status='FAILED'") + "," + sum("status='INCOMPLETE'") + ","
-                        + sum("provider='CLAUDE'") + "," + sum("provider='CODEX'")
-                        + " FROM chat_tool_invocation" + sql.where + " GROUP BY day ORDER BY day",
+        SqlFilter rows = rows(filter, true);
+        List<DailyPoint> found = jdbc.query("SELECT date(started_at/1000,'unixepoch','localtime') day,SUM(n),"
+                        + "COUNT(DISTINCT session_id)," + weighted("status='SUCCEEDED'") + ","
+                        + weighted("status='FAILED'") + "," + weighted("status='INCOMPLETE'") + ","
+                        + weighted("provider='CLAUDE'") + "," + weighted("provider='CODEX'")
+                        + " FROM (" + rows.where + ") GROUP BY day ORDER BY day",
                 (rs, n) -> DailyPoint.builder().date(rs.getString(1)).invocationCount(rs.getLong(2))
                         .conversationCount(rs.getLong(3)).succeededCount(rs.getLong(4)).failedCount(rs.getLong(5))
                         .incompleteCount(rs.getLong(6)).claudeCount(rs.getLong(7)).codexCount(rs.getLong(8)).build(),
-                sql.arguments.toArray());
+                rows.arguments.toArray());
         if (filter.getStartedAfter() == null || filter.getStartedBefore() == null) return found;
         Map<String, DailyPoint> byDate = new HashMap<>();
         for (DailyPoint point : found) byDate.put(point.getDate(), point);
@@ -134,14 +155,44 @@ public class SqliteToolInvocationStatisticsQueryService implements ToolInvocatio
         return result;
     }
 
+    /**
+     * 概览/趋势的逐行数据源（{@code where} 为完整子查询）：列为会话、维度、started_at、调用数 n 与各计数列。
+     * 预聚合只覆盖区间内、水位之前的整点桶，其余部分取明细，两段不重叠。
+     */
+    private SqlFilter rows(Filter filter, boolean dailyTrend) {
+        SqlFilter detail = filter(filter, null, false);
+        boolean rollupDimensions = (filter.getRunId() == null || filter.getRunId().trim().isEmpty())
+                && filter.getAnalysisName() == null;
+        if (rollups == null || !rollupDimensions || dailyTrend && !hourAlignedZone()) {
+            return new SqlFilter(DETAIL_ROWS + detail.where, detail.arguments);
+        }
+        long sealed = rollups.refresh(SqliteMetricRollups.Hourly.TOOL_INVOCATION);
+        Long after = filter.getStartedAfter();
+        Long before = filter.getStartedBefore();
+        // 无时间筛选时 started_at 为空的行（-1 桶）也计入，与明细口径一致
+        long from = after == null && before == null ? Long.MIN_VALUE
+                : after == null ? 0L : SqliteMetricRollups.ceilHour(Math.max(0L, after));
+        long to = before == null ? sealed : Math.min(sealed, SqliteMetricRollups.floorHour(before));
+        List<String> clauses = new ArrayList<>(); List<Object> args = new ArrayList<>();
+        clauses.add("bucket>=?"); args.add(from);
+        clauses.add("bucket<?"); args.add(to);
+        dimensions(clauses, args, filter, null);
+        args.addAll(detail.arguments); args.add(from); args.add(to);
+        return new SqlFilter(ROLLUP_ROWS + " WHERE " + String.join(" AND ", clauses) + " UNION ALL " + DETAIL_ROWS
+                + (detail.where.isEmpty() ? " WHERE " : detail.where + " AND ") + "(started_at<? OR started_at>=?)", args);
+    }
+
+    /** 整点桶按起点换算本地日期，要求时区偏移是整小时。 */
+    private boolean hourAlignedZone() {
+        return STATISTICS_ZONE.getRules().getOffset(Instant.now()).getTotalSeconds() % 3600 == 0
+                && STATISTICS_ZONE.getRules().getStandardOffset(Instant.now()).getTotalSeconds() % 3600 == 0;
+    }
+
     private SqlFilter filter(Filter filter, String forcedKind, boolean omitAnalysisName) {
         List<String> clauses = new ArrayList<>(); List<Object> args = new ArrayList<>();
         if (filter.getStartedAfter() != null) { clauses.add("started_at>=?"); args.add(filter.getStartedAfter()); }
         if (filter.getStartedBefore() != null) { clauses.add("started_at<?"); args.add(filter.getStartedBefore()); }
-        equal(clauses, args, "provider", filter.getProvider());
-        equal(clauses, args, "invocation_kind", forcedKind == null ? filter.getInvocationKind() : forcedKind);
-        equal(clauses, args, "status", filter.getStatus()); equal(clauses, args, "source", filter.getSource());
-        equal(clauses, args, "trigger_source", filter.getTriggerSource()); equal(clauses, args, "session_id", filter.getSessionId());
+        dimensions(clauses, args, filter, forcedKind);
         equal(clauses, args, "run_id", filter.getRunId());
         if (!omitAnalysisName && filter.getAnalysisName() != null) {
             String column = "SKILL".equals(forcedKind) ? "skill_name" : "tool_name";
@@ -150,6 +201,13 @@ public class SqliteToolInvocationStatisticsQueryService implements ToolInvocatio
         return new SqlFilter(clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses), args);
     }
 
+    private void dimensions(List<String> clauses, List<Object> args, Filter filter, String forcedKind) {
+        equal(clauses, args, "provider", filter.getProvider());
+        equal(clauses, args, "invocation_kind", forcedKind == null ? filter.getInvocationKind() : forcedKind);
+        equal(clauses, args, "status", filter.getStatus()); equal(clauses, args, "source", filter.getSource());
+        equal(clauses, args, "trigger_source", filter.getTriggerSource()); equal(clauses, args, "session_id", filter.getSessionId());
+    }
+
     private void equal(List<String> clauses, List<Object> args, String column, String value) {
         if (value != null && !value.trim().isEmpty()) { clauses.add(column + "=?"); args.add(value.trim()); }
     }
@@ -163,6 +221,7 @@ public class SqliteToolInvocationStatisticsQueryService implements ToolInvocatio
         return qualified;
     }
     private String sum(String condition) { return "COALESCE(SUM(CASE WHEN " + condition + " THEN 1 ELSE 0 END),0)"; }
+    private String weighted(String condition) { return "COALESCE(SUM(CASE WHEN " + condition + " THEN n ELSE 0 END),0)"; }
     private Double rate(long numerator, long denominator) { return denominator == 0 ? null : numerator * 1.0 / denominator; }
 
     private Overview mapOverview(ResultSet rs) throws SQLException {
@@ -0,0 +1,89 @@
+package com.example.agentweb.infra.chatrun;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free MPSC ring used as one live subscriber's pending queue.
+ *
+ * <p>Producers claim a position with a CAS on {@code tail} only while fewer than {@code limit}
+ * elements are outstanding, then publish the element with a volatile slot write. The single
+ * consumer (the subscriber's drain, serialized by its {@code draining} flag) reads the slot at
+ * {@code head}, clears it and advances {@code head}. A claimed but not yet published slot reads
+ * as empty; the producer's own post-publish drain check picks it up.</p>
+ *
+ * <p>Slots are preallocated to the next power of two above {@code limit}, and each slot also
+ * records its enqueue time for drain-lag metrics.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class SubscriberRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final long[] enqueuedAt;
+    private final int mask;
+    private final int limit;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private long lastPolledEnqueuedAt;
+
+    SubscriberRingBuffer(int limit) {
+        if (limit < 1 || limit > (1 << 30)) {
+            throw new IllegalArgumentException("limit must be between 1 and 2^30");
+        }
+        int capacity = Integer.highestOneBit(limit);
+        if (capacity < limit) {
+            capacity <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<E>(capacity);
+        this.enqueuedAt = new long[capacity];
+        this.mask = capacity - 1;
+        this.limit = limit;
+    }
+
+    /** Multi-producer. Returns false when {@code limit} elements are already outstanding. */
+    boolean offer(E element, long enqueuedAtNanos) {
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head >= limit) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                int index = (int) claimed & mask;
+                enqueuedAt[index] = enqueuedAtNanos;
+                slots.set(index, element);
+                return true;
+            }
+        }
+    }
+
+    /** Single consumer only. Returns null when empty or the next claimed slot is not yet published. */
+    E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        lastPolledEnqueuedAt = enqueuedAt[index];
+        slots.lazySet(index, null);
+        head = position + 1;
+        return element;
+    }
+
+    /** Single consumer only: enqueue time of the element most recently returned by {@link #poll()}. */
+    long lastPolledEnqueuedAt() {
+        return lastPolledEnqueuedAt;
+    }
+
+    /** True when the next element to consume has not been published. Safe from any thread. */
+    boolean isEmpty() {
+        return slots.get((int) head & mask) == null;
+    }
+
+    /** Claimed positions not yet consumed; includes claims still being published. */
+    int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+}
@@ -59,6 +59,63 @@ public class CodexEventNormalizer {
         }
     }
 
+    /**
+     * 判断一条已解析的 codex 事件经 {@link #normalize(String)} 是否会产出至少一条前端事件,
+     * 规则与各 {@code map*} 方法的非空分支一一对应, 但不构造输出 JSON。
+     * <p>供 Runtime 解码热路径只做识别、不需要前端事件文本时使用, 避免每行再解析一遍并序列化。
+     */
+    public boolean recognizes(JsonNode node) {
+        String type = readText(node, "type");
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+            case EVENT_THREAD_STARTED:
+                String threadId = readText(node, "thread_id");
+                return threadId != null && !threadId.isEmpty();
+            case EVENT_TURN_COMPLETED:
+            case EVENT_TURN_FAILED:
+                return true;
+            case EVENT_ITEM_STARTED:
+                return recognizesItemStarted(node.get("item"));
+            case EVENT_ITEM_COMPLETED:
+                return recognizesItemCompleted(node.get("item"));
+            default:
+                return false;
+        }
+    }
+
+    private boolean recognizesItemStarted(JsonNode item) {
+        String itemType = readText(item, "type");
+        if (ITEM_COMMAND_EXECUTION.equals(itemType)) {
+            return true;
+        }
+        return ITEM_MCP_TOOL_CALL.equals(itemType) && readText(item, "id") != null;
+    }
+
+    private boolean recognizesItemCompleted(JsonNode item) {
+        String itemType = readText(item, "type");
+        if (ITEM_AGENT_MESSAGE.equals(itemType)) {
+            return readText(item, "text") != null;
+        }
+        if (ITEM_COMMAND_EXECUTION.equals(itemType)) {
+            return true;
+        }
+        if (ITEM_FILE_CHANGE.equals(itemType)) {
+            JsonNode changes = item.get("changes");
+            if (changes == null || !changes.isArray()) {
+                return false;
+            }
+            for (JsonNode change : changes) {
+                if (readText(change, "path") != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ITEM_MCP_TOOL_CALL.equals(itemType) && readText(item, "id") != null;
+    }
+
     private List<String> dispatch(String type, JsonNode node) {
         if (type == null) {
             return Collections.emptyList();
@@ -0,0 +1,32 @@
+package com.example.agentweb.infra.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 后台定期追平小时预聚合，看板读请求通常只剩当前小时和少量脏桶要处理。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class MetricRollupRefreshScheduler {
+
+    private final SqliteMetricRollups rollups;
+
+    public MetricRollupRefreshScheduler(SqliteMetricRollups rollups) {
+        this.rollups = rollups;
+    }
+
+    @Scheduled(initialDelayString = "${agent.metrics.rollup-refresh-ms:300000}",
+            fixedDelayString = "${agent.metrics.rollup-refresh-ms:300000}")
+    public void refresh() {
+        try {
+            rollups.refreshAll();
+        } catch (RuntimeException e) {
+            log.warn("metric-rollup-refresh-failed error={}", e.toString());
+        }
+    }
+}
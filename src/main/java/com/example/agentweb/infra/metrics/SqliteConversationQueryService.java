@@ -5,6 +5,9 @@ import com.example.agentweb.app.metrics.ConversationMessage;
 import com.example.agentweb.app.metrics.ConversationPage;
 import com.example.agentweb.app.metrics.ConversationQueryService;
 import com.example.agentweb.app.metrics.ConversationRecord;
+import com.example.agentweb.app.storage.StoredContentCodec;
+import com.example.agentweb.infra.SqliteConversationSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
@@ -18,7 +21,11 @@ import java.util.List;
  * {@link ConversationQueryService} 的 SQLite 实现:对 chat_session / chat_message 做只读投影。
  *
  * <p>读侧:不经聚合根、不返回半截聚合;admin 全量视角,刻意不拼 user_id 隔离条件。
- * 关键字走 LIKE,标题为空时由首条 user 消息兜底。</p>
+ * 标题为空时由首条 user 消息兜底,消息数与首条 user 消息均读写侧维护列,不做逐行子查询。</p>
+ *
+ * <p>关键字不少于 3 个字符时走 FTS5(trigram) 索引,命中会话标题或任一 user/assistant 消息,按 bm25
+ * 排序(标题命中加权)并返回高亮片段;更短的关键字回退到展示标题 LIKE。两种情况都另按用户名/工号
+ * LIKE 匹配,这类命中排在全文命中之后。</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-06-07
@@ -28,49 +35,89 @@ public class SqliteConversationQueryService implements ConversationQueryService
 
     /**
      * 展示标题表达式:真实 title 优先,为空时回退首条 user 消息。
-     * SELECT 投影与关键字 WHERE 共用同一表达式,保证「搜得到 = 看得到」。
+     * SELECT 投影与短关键字 WHERE 共用同一表达式,保证「搜得到 = 看得到」。
      */
-    private static final String DISPLAY_TITLE_EXPR =
-            "COALESCE(s.title, (SELECT m.content FROM chat_message m "
-                    + "WHERE m.session_id = s.id AND m.role = 'user' ORDER BY m.id ASC LIMIT 1))";
+    private static final String DISPLAY_TITLE_EXPR = "COALESCE(s.title, s.first_user_message)";
+
+    private static final String RECORD_COLUMNS =
+            "s.id, s.agent_type, s.user_id, s.user_name, s.client_ip, s.created_at, "
+                    + "s.last_message_at, s.feedback_rating, s.message_count, "
+                    + DISPLAY_TITLE_EXPR + " AS display_title";
 
-    /** 列表行投影:展示标题 COALESCE(title, 首条 user 消息),并子查询消息数。 */
+    /** 列表行投影:展示标题 COALESCE(title, 首条 user 消息),无检索片段。 */
     private static final String LIST_SELECT =
-            "SELECT s.id, s.agent_type, s.user_id, s.user_name, s.client_ip, s.created_at, "
-                    + "s.last_message_at, s.feedback_rating, "
-                    + "(SELECT COUNT(*) FROM chat_message m WHERE m.session_id = s.id) AS message_count, "
-                    + DISPLAY_TITLE_EXPR + " AS display_title "
-                    + "FROM chat_session s";
+            "SELECT " + RECORD_COLUMNS + ", NULL AS snippet FROM chat_session s";
+
+    /**
+     * 全文命中:消息与标题两路各取 bm25(rank 越小越相关),按会话取最佳一条及其片段。
+     * 同一 MATCH 参数出现两次。
+     */
+    private static final String FTS_HITS =
+            "WITH hits AS ("
+                    + "SELECT session_id, rank AS score, "
+                    + "snippet(chat_message_fts, 0, char(2), char(3), '…', 16) AS snip "
+                    + "FROM chat_message_fts WHERE chat_message_fts MATCH ? "
+                    + "UNION ALL "
+                    + "SELECT session_id, rank * 2 AS score, "
+                    + "snippet(chat_session_fts, 0, char(2), char(3), '…', 16) AS snip "
+                    + "FROM chat_session_fts WHERE chat_session_fts MATCH ?), "
+                    + "best AS (SELECT session_id, MIN(score) AS score, snip FROM hits GROUP BY session_id) ";
+
+    private static final String FTS_FROM =
+            " FROM chat_session s LEFT JOIN best b ON b.session_id = s.id "
+                    + "WHERE (b.session_id IS NOT NULL OR s.user_name LIKE ? OR s.user_id LIKE ?)";
 
     private static final RowMapper<ConversationRecord> RECORD_MAPPER = (rs, rowNum) -> mapRecord(rs);
 
-    private static final RowMapper<ConversationMessage> MESSAGE_MAPPER = (rs, rowNum) -> {
+    private final RowMapper<ConversationMessage> messageMapper = (rs, rowNum) -> {
         ConversationMessage m = new ConversationMessage();
         m.setRole(rs.getString("role"));
-        m.setContent(rs.getString("content"));
+        m.setContent(decodeContent(rs.getObject("content")));
         m.setTimestamp(rs.getString("timestamp"));
         return m;
     };
 
     private final JdbcTemplate jdbc;
+    private final StoredContentCodec contentCodec;
 
     public SqliteConversationQueryService(JdbcTemplate jdbc) {
+        this(jdbc, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteConversationQueryService(JdbcTemplate jdbc, StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
+        this.contentCodec = contentCodec;
     }
 
     @Override
     public ConversationPage list(int page, int size, String keyword) {
-        String like = StringUtils.hasText(keyword) ? "%" + keyword.trim() + "%" : null;
-        String where = like == null ? ""
-                : " WHERE (" + DISPLAY_TITLE_EXPR + " LIKE ? OR s.user_name LIKE ? OR s.user_id LIKE ?)";
-
-        long total = countTotal(where, like);
         int offset = (page - 1) * size;
-        String sql = LIST_SELECT + where + " ORDER BY s.created_at DESC LIMIT ? OFFSET ?";
-        List<ConversationRecord> rows = like == null
-                ? jdbc.query(sql, RECORD_MAPPER, size, offset)
-                : jdbc.query(sql, RECORD_MAPPER, like, like, like, size, offset);
-        return new ConversationPage(rows, total, page, size);
+        if (!StringUtils.hasText(keyword)) {
+            Long total = jdbc.queryForObject("SELECT COUNT(*) FROM chat_session", Long.class);
+            List<ConversationRecord> rows = jdbc.query(
+                    LIST_SELECT + " ORDER BY s.created_at DESC LIMIT ? OFFSET ?", RECORD_MAPPER, size, offset);
+            return new ConversationPage(rows, total == null ? 0L : total, page, size);
+        }
+        String trimmed = keyword.trim();
+        String like = "%" + trimmed + "%";
+        if (!SqliteConversationSearchIndex.matchable(trimmed)) {
+            String where = " WHERE (" + DISPLAY_TITLE_EXPR + " LIKE ? OR s.user_name LIKE ? OR s.user_id LIKE ?)";
+            Long total = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM chat_session s" + where, Long.class, like, like, like);
+            List<ConversationRecord> rows = jdbc.query(
+                    LIST_SELECT + where + " ORDER BY s.created_at DESC LIMIT ? OFFSET ?",
+                    RECORD_MAPPER, like, like, like, size, offset);
+            return new ConversationPage(rows, total == null ? 0L : total, page, size);
+        }
+        String match = SqliteConversationSearchIndex.phrase(trimmed);
+        Long total = jdbc.queryForObject(
+                FTS_HITS + "SELECT COUNT(*)" + FTS_FROM, Long.class, match, match, like, like);
+        List<ConversationRecord> rows = jdbc.query(
+                FTS_HITS + "SELECT " + RECORD_COLUMNS + ", b.snip AS snippet" + FTS_FROM
+                        + " ORDER BY b.score IS NULL, b.score, s.created_at DESC LIMIT ? OFFSET ?",
+                RECORD_MAPPER, match, match, like, like, size, offset);
+        return new ConversationPage(rows, total == null ? 0L : total, page, size);
     }
 
     @Override
@@ -82,19 +129,15 @@ public class SqliteConversationQueryService implements ConversationQueryService
         }
         List<ConversationMessage> messages = jdbc.query(
                 "SELECT role, content, timestamp FROM chat_message WHERE session_id = ? ORDER BY id ASC",
-                MESSAGE_MAPPER, sessionId);
+                messageMapper, sessionId);
         ConversationDetail detail = new ConversationDetail();
         detail.setRecord(records.get(0));
         detail.setMessages(messages);
         return detail;
     }
 
-    private long countTotal(String where, String like) {
-        String sql = "SELECT COUNT(*) FROM chat_session s" + where;
-        Long total = like == null
-                ? jdbc.queryForObject(sql, Long.class)
-                : jdbc.queryForObject(sql, Long.class, like, like, like);
-        return total == null ? 0L : total;
+    private String decodeContent(Object stored) {
+        return contentCodec.decode(stored);
     }
 
     private static ConversationRecord mapRecord(ResultSet rs) throws SQLException {
@@ -110,6 +153,7 @@ public class SqliteConversationQueryService implements ConversationQueryService
         long lastMessageAt = rs.getLong("last_message_at");
         r.setLastMessageAt(rs.wasNull() ? null : lastMessageAt);
         r.setFeedbackRating(rs.getString("feedback_rating"));
+        r.setSnippet(rs.getString("snippet"));
         return r;
     }
 }
@@ -0,0 +1,296 @@
+package com.example.agentweb.infra.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 管理后台看板的预聚合表，替代每次打开看板都对明细表做的 GROUP BY 全表扫描。
+ *
+ * <ul>
+ *   <li>{@code metric_session_daily}：会话按 UTC 日 × agent_type × feedback_rating 计数，由 chat_session 上的
+ *   触发器随写入增减，与明细始终一致；启动时整表重算一次，兜住触发器缺席期间的写入。</li>
+ *   <li>{@code metric_recall_hourly}、{@code metric_recall_hit_hourly}、{@code metric_tool_invocation_hourly}：
+ *   按小时桶聚合，由 {@link #refresh} 追平。{@code metric_rollup_state.sealed_before} 是水位：早于它的桶已
+ *   封存进预聚合表，之后的桶（含当前小时）由读侧直接扫明细补齐。</li>
+ * </ul>
+ *
+ * <p>明细表上的触发器只在改动落到已封存的桶时记一条 {@code metric_rollup_dirty}，下次追平按桶从明细整桶
+ * 重算，迟到的状态回写、按会话删除、历史迁移补录都不会让预聚合与明细失配。当前小时的写入不产生任何额外行。
+ * 触发器体含分号，不能放进按分号切分的 schema.sql，由 {@link #ensureSchema} 建立。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+public class SqliteMetricRollups {
+
+    public static final long HOUR_MILLIS = 3_600_000L;
+
+    /** 工具调用 started_at 为空的行归入该桶；只在不带时间筛选的查询里计入。 */
+    public static final long NULL_TIME_BUCKET = -1L;
+
+    /** 单个事务最多封存的桶数：首次回填按天分段提交，不长时间占住写锁。 */
+    private static final int SEAL_BUCKETS_PER_TX = 24;
+    private static final int DIRTY_BUCKETS_PER_TX = 200;
+
+    /** 按小时桶追平的预聚合。 */
+    public enum Hourly {
+        RECALL("recall_hourly", "chat_recall_attempt", "created_at"),
+        TOOL_INVOCATION("tool_invocation_hourly", "chat_tool_invocation", "started_at");
+
+        private final String key;
+        private final String sourceTable;
+        private final String timeColumn;
+
+        Hourly(String key, String sourceTable, String timeColumn) {
+            this.key = key;
+            this.sourceTable = sourceTable;
+            this.timeColumn = timeColumn;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+
+    @Autowired
+    public SqliteMetricRollups(JdbcTemplate jdbc) {
+        this(jdbc, Clock.systemUTC());
+    }
+
+    SqliteMetricRollups(JdbcTemplate jdbc, Clock clock) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+        this.clock = clock;
+    }
+
+    public static long floorHour(long epochMillis) {
+        return Math.floorDiv(epochMillis, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+
+    public static long ceilHour(long epochMillis) {
+        return -Math.floorDiv(-epochMillis, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+
+    /** 建表、建触发器并重算会话日聚合，可重复调用；须在明细表全部迁移完成之后执行。 */
+    public void ensureSchema() {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_rollup_state ("
+                + "rollup TEXT PRIMARY KEY, sealed_before INTEGER NOT NULL, refreshed_at INTEGER NOT NULL)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_rollup_dirty ("
+                + "rollup TEXT NOT NULL, bucket INTEGER NOT NULL, PRIMARY KEY (rollup, bucket))");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_session_daily ("
+                + "day TEXT NOT NULL, agent_type TEXT NOT NULL, feedback_rating TEXT NOT NULL, "
+                + "session_count INTEGER NOT NULL, PRIMARY KEY (day, agent_type, feedback_rating))");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_recall_hourly ("
+                + "bucket INTEGER NOT NULL, status TEXT, env TEXT, embedding_model TEXT, recall_enabled INTEGER, "
+                + "attempt_count INTEGER NOT NULL, hit_count_sum INTEGER NOT NULL, "
+                + "latency_sum INTEGER NOT NULL, latency_count INTEGER NOT NULL)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_metric_recall_hourly_bucket ON metric_recall_hourly(bucket)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_recall_hit_hourly ("
+                + "bucket INTEGER NOT NULL, dimension TEXT NOT NULL, value TEXT NOT NULL, "
+                + "status TEXT, env TEXT, embedding_model TEXT, attempt_count INTEGER NOT NULL)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_metric_recall_hit_hourly_bucket "
+                + "ON metric_recall_hit_hourly(bucket)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS metric_tool_invocation_hourly ("
+                + "bucket INTEGER NOT NULL, session_id TEXT, provider TEXT, invocation_kind TEXT, status TEXT, "
+                + "source TEXT, trigger_source TEXT, invocation_count INTEGER NOT NULL, "
+                + "input_truncated_sum INTEGER NOT NULL, output_truncated_sum INTEGER NOT NULL, "
+                + "duration_available_count INTEGER NOT NULL)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_metric_tool_invocation_hourly_bucket "
+                + "ON metric_tool_invocation_hourly(bucket)");
+        createTriggers();
+        tx.executeWithoutResult(status -> {
+            jdbc.update("DELETE FROM metric_session_daily");
+            jdbc.update("INSERT INTO metric_session_daily (day, agent_type, feedback_rating, session_count) "
+                    + "SELECT substr(created_at, 1, 10), agent_type, IFNULL(feedback_rating, ''), COUNT(*) "
+                    + "FROM chat_session GROUP BY 1, 2, 3");
+        });
+    }
+
+    /**
+     * 把水位推进到当前小时的起点并重算脏桶。
+     *
+     * @return 水位：{@code bucket < 水位} 的桶可直接读预聚合表
+     */
+    public synchronized long refresh(Hourly rollup) {
+        long target = floorHour(clock.millis());
+        Long sealed = sealedBefore(rollup);
+        if (sealed == null) {
+            sealed = tx.execute(status -> initialize(rollup, target));
+        }
+        while (sealed < target) {
+            long from = sealed;
+            long to = Math.min(target, from + SEAL_BUCKETS_PER_TX * HOUR_MILLIS);
+            tx.executeWithoutResult(status -> {
+                recompute(rollup, from, to);
+                jdbc.update("UPDATE metric_rollup_state SET sealed_before = ?, refreshed_at = ? WHERE rollup = ?",
+                        to, clock.millis(), rollup.key);
+            });
+            sealed = to;
+        }
+        while (true) {
+            List<Long> dirty = jdbc.queryForList("SELECT bucket FROM metric_rollup_dirty WHERE rollup = ? "
+                    + "ORDER BY bucket LIMIT ?", Long.class, rollup.key, DIRTY_BUCKETS_PER_TX);
+            if (dirty.isEmpty()) {
+                break;
+            }
+            // 先删标记再重算：重算期间落进来的改动会重新打标，留给下一轮
+            tx.executeWithoutResult(status -> {
+                for (Long bucket : dirty) {
+                    jdbc.update("DELETE FROM metric_rollup_dirty WHERE rollup = ? AND bucket = ?", rollup.key, bucket);
+                    recompute(rollup, bucket, bucket == NULL_TIME_BUCKET ? 0L : bucket + HOUR_MILLIS);
+                }
+            });
+        }
+        return sealed;
+    }
+
+    public void refreshAll() {
+        for (Hourly rollup : Hourly.values()) {
+            refresh(rollup);
+        }
+    }
+
+    private Long sealedBefore(Hourly rollup) {
+        List<Long> found = jdbc.queryForList("SELECT sealed_before FROM metric_rollup_state WHERE rollup = ?",
+                Long.class, rollup.key);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /** 首次追平：水位从明细最早的桶起步；无时间的工具调用桶此刻即封存。 */
+    private long initialize(Hourly rollup, long target) {
+        Long earliest = jdbc.queryForObject("SELECT MIN(" + rollup.timeColumn + ") FROM " + rollup.sourceTable,
+                Long.class);
+        long start = earliest == null ? target : Math.min(target, floorHour(earliest));
+        jdbc.update("INSERT INTO metric_rollup_state (rollup, sealed_before, refreshed_at) VALUES (?, ?, ?)",
+                rollup.key, start, clock.millis());
+        if (rollup == Hourly.TOOL_INVOCATION) {
+            recompute(rollup, NULL_TIME_BUCKET, 0L);
+        }
+        return start;
+    }
+
+    /** 从明细整段重算 {@code [from, to)} 内的桶。 */
+    private void recompute(Hourly rollup, long from, long to) {
+        if (rollup == Hourly.RECALL) {
+            jdbc.update("DELETE FROM metric_recall_hourly WHERE bucket >= ? AND bucket < ?", from, to);
+            jdbc.update("INSERT INTO metric_recall_hourly (bucket, status, env, embedding_model, recall_enabled, "
+                    + "attempt_count, hit_count_sum, latency_sum, latency_count) "
+                    + "SELECT created_at / 3600000 * 3600000, status, env, embedding_model, recall_enabled, "
+                    + "COUNT(*), SUM(hit_count), COALESCE(SUM(latency_ms), 0), COUNT(latency_ms) "
+                    + "FROM chat_recall_attempt WHERE created_at >= ? AND created_at < ? "
+                    + "GROUP BY 1, 2, 3, 4, 5", from, to);
+            jdbc.update("DELETE FROM metric_recall_hit_hourly WHERE bucket >= ? AND bucket < ?", from, to);
+            jdbc.update("INSERT INTO metric_recall_hit_hourly (bucket, dimension, value, status, env, "
+                    + "embedding_model, attempt_count) "
+                    + recallHitAggregate("source_type") + " UNION ALL " + recallHitAggregate("tier"),
+                    from, to, from, to);
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        String window;
+        if (from < 0L) {
+            window = "started_at IS NULL OR (started_at >= 0 AND started_at < ?)";
+        } else {
+            window = "started_at >= ? AND started_at < ?";
+            args.add(from);
+        }
+        args.add(to);
+        jdbc.update("DELETE FROM metric_tool_invocation_hourly WHERE bucket >= ? AND bucket < ?", from, to);
+        jdbc.update("INSERT INTO metric_tool_invocation_hourly (bucket, session_id, provider, invocation_kind, "
+                + "status, source, trigger_source, invocation_count, input_truncated_sum, output_truncated_sum, "
+                + "duration_available_count) "
+                + "SELECT CASE WHEN started_at IS NULL THEN -1 ELSE started_at / 3600000 * 3600000 END, "
+                + "session_id, provider, invocation_kind, status, source, trigger_source, COUNT(*), "
+                + "COALESCE(SUM(input_truncated), 0), COALESCE(SUM(output_truncated), 0), "
+                + "SUM(CASE WHEN source = 'LIVE' AND started_at IS NOT NULL AND completed_at >= started_at "
+                + "THEN 1 ELSE 0 END) "
+                + "FROM chat_tool_invocation WHERE " + window + " GROUP BY 1, 2, 3, 4, 5, 6, 7", args.toArray());
+    }
+
+    private static String recallHitAggregate(String dimension) {
+        return "SELECT a.created_at / 3600000 * 3600000, '" + dimension + "', h." + dimension + ", "
+                + "a.status, a.env, a.embedding_model, COUNT(DISTINCT a.id) "
+                + "FROM chat_recall_attempt a JOIN chat_recall_hit h ON h.attempt_id = a.id "
+                + "WHERE a.created_at >= ? AND a.created_at < ? AND h." + dimension + " IS NOT NULL "
+                + "GROUP BY 1, 3, 4, 5, 6";
+    }
+
+    private void createTriggers() {
+        trigger("metric_session_daily_insert", "AFTER INSERT ON chat_session",
+                sessionIncrement("NEW"));
+        trigger("metric_session_daily_delete", "AFTER DELETE ON chat_session",
+                sessionDecrement("OLD"));
+        trigger("metric_session_daily_update",
+                "AFTER UPDATE OF created_at, agent_type, feedback_rating ON chat_session",
+                sessionDecrement("OLD"), sessionIncrement("NEW"));
+
+        trigger("metric_recall_attempt_insert", "AFTER INSERT ON chat_recall_attempt",
+                markDirty(Hourly.RECALL, recallBucket("NEW")));
+        trigger("metric_recall_attempt_delete", "AFTER DELETE ON chat_recall_attempt",
+                markDirty(Hourly.RECALL, recallBucket("OLD")));
+        trigger("metric_recall_attempt_update", "AFTER UPDATE OF status, env, embedding_model, recall_enabled, "
+                        + "hit_count, latency_ms, created_at ON chat_recall_attempt",
+                markDirty(Hourly.RECALL, recallBucket("OLD")), markDirty(Hourly.RECALL, recallBucket("NEW")));
+        trigger("metric_recall_hit_insert", "AFTER INSERT ON chat_recall_hit",
+                markDirty(Hourly.RECALL, hitAttemptBucket("NEW")));
+        trigger("metric_recall_hit_delete", "AFTER DELETE ON chat_recall_hit",
+                markDirty(Hourly.RECALL, hitAttemptBucket("OLD")));
+        trigger("metric_recall_hit_update", "AFTER UPDATE OF attempt_id, source_type, tier ON chat_recall_hit",
+                markDirty(Hourly.RECALL, hitAttemptBucket("OLD")), markDirty(Hourly.RECALL, hitAttemptBucket("NEW")));
+
+        trigger("metric_tool_invocation_insert", "AFTER INSERT ON chat_tool_invocation",
+                markDirty(Hourly.TOOL_INVOCATION, toolBucket("NEW")));
+        trigger("metric_tool_invocation_delete", "AFTER DELETE ON chat_tool_invocation",
+                markDirty(Hourly.TOOL_INVOCATION, toolBucket("OLD")));
+        trigger("metric_tool_invocation_update", "AFTER UPDATE OF session_id, provider, invocation_kind, status, "
+                        + "source, trigger_source, input_truncated, output_truncated, started_at, completed_at "
+                        + "ON chat_tool_invocation",
+                markDirty(Hourly.TOOL_INVOCATION, toolBucket("OLD")),
+                markDirty(Hourly.TOOL_INVOCATION, toolBucket("NEW")));
+    }
+
+    private void trigger(String name, String event, String... statements) {
+        jdbc.execute("CREATE TRIGGER IF NOT EXISTS " + name + " " + event + " BEGIN "
+                + String.join("; ", statements) + "; END");
+    }
+
+    private static String sessionIncrement(String row) {
+        return "INSERT INTO metric_session_daily (day, agent_type, feedback_rating, session_count) VALUES ("
+                + "substr(" + row + ".created_at, 1, 10), " + row + ".agent_type, "
+                + "IFNULL(" + row + ".feedback_rating, ''), 1) "
+                + "ON CONFLICT (day, agent_type, feedback_rating) DO UPDATE SET session_count = session_count + 1";
+    }
+
+    private static String sessionDecrement(String row) {
+        return "UPDATE metric_session_daily SET session_count = session_count - 1 "
+                + "WHERE day = substr(" + row + ".created_at, 1, 10) AND agent_type = " + row + ".agent_type "
+                + "AND feedback_rating = IFNULL(" + row + ".feedback_rating, '')";
+    }
+
+    /** 只给已封存的桶打标；从未追平过（无水位行）时首次追平会整段重算，无需打标。 */
+    private static String markDirty(Hourly rollup, String bucket) {
+        return "INSERT OR IGNORE INTO metric_rollup_dirty (rollup, bucket) "
+                + "SELECT s.rollup, b.bucket FROM (SELECT " + bucket + " AS bucket) b "
+                + "JOIN metric_rollup_state s ON s.rollup = '" + rollup.key + "' AND b.bucket < s.sealed_before";
+    }
+
+    private static String recallBucket(String row) {
+        return row + ".created_at / 3600000 * 3600000";
+    }
+
+    private static String hitAttemptBucket(String row) {
+        return "(SELECT created_at / 3600000 * 3600000 FROM chat_recall_attempt WHERE id = " + row + ".attempt_id)";
+    }
+
+    private static String toolBucket(String row) {
+        return "CASE WHEN " + row + ".started_at IS NULL THEN -1 ELSE " + row + ".started_at / 3600000 * 3600000 END";
+    }
+}
@@ -3,6 +3,7 @@ package com.example.agentweb.infra.metrics;
 import com.example.agentweb.app.metrics.DailyTrendPoint;
 import com.example.agentweb.app.metrics.MetricsOverview;
 import com.example.agentweb.app.metrics.MetricsQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
@@ -21,6 +22,9 @@ import java.util.Map;
  *
  * <p>读侧投影:不经聚合根、不返回半截聚合,SQL 内不含业务判断(分类/比率在 Java 侧由分布算出)。</p>
  *
+ * <p>注入 {@link SqliteMetricRollups} 时读触发器维护的 {@code metric_session_daily},结果与直接聚合明细一致;
+ * 趋势按 UTC 日取数。</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-06-07
  */
@@ -29,9 +33,17 @@ public class SqliteMetricsQueryService implements MetricsQueryService {
 
     private static final String FEEDBACK_CORRECT = "CORRECT";
     private final JdbcTemplate jdbc;
+    /** 为 null 时直接聚合 chat_session。 */
+    private final SqliteMetricRollups rollups;
 
     public SqliteMetricsQueryService(JdbcTemplate jdbc) {
+        this(jdbc, null);
+    }
+
+    @Autowired
+    public SqliteMetricsQueryService(JdbcTemplate jdbc, SqliteMetricRollups rollups) {
         this.jdbc = jdbc;
+        this.rollups = rollups;
     }
 
     @Override
@@ -42,6 +54,10 @@ public class SqliteMetricsQueryService implements MetricsQueryService {
     }
 
     private void fillChat(MetricsOverview.Chat chat) {
+        if (rollups != null) {
+            fillChatFromRollup(chat);
+            return;
+        }
         chat.setTotal(scalarLong("SELECT COUNT(*) FROM chat_session"));
         chat.setByAgentType(groupCount("SELECT agent_type, COUNT(*) FROM chat_session GROUP BY agent_type"));
         Map<String, Long> feedback = groupCount(
@@ -50,12 +66,25 @@ public class SqliteMetricsQueryService implements MetricsQueryService {
         chat.setAccuracyRate(ratio(feedback.getOrDefault(FEEDBACK_CORRECT, 0L), sum(feedback)));
     }
 
+    private void fillChatFromRollup(MetricsOverview.Chat chat) {
+        chat.setTotal(scalarLong("SELECT COALESCE(SUM(session_count), 0) FROM metric_session_daily"));
+        chat.setByAgentType(groupCount("SELECT agent_type, SUM(session_count) FROM metric_session_daily "
+                + "GROUP BY agent_type HAVING SUM(session_count) > 0"));
+        Map<String, Long> feedback = groupCount("SELECT feedback_rating, SUM(session_count) FROM metric_session_daily "
+                + "WHERE feedback_rating <> '' GROUP BY feedback_rating HAVING SUM(session_count) > 0");
+        chat.setFeedback(feedback);
+        chat.setAccuracyRate(ratio(feedback.getOrDefault(FEEDBACK_CORRECT, 0L), sum(feedback)));
+    }
+
     @Override
     public List<DailyTrendPoint> trend(int days) {
         LocalDate firstDay = LocalDate.now(ZoneOffset.UTC).minusDays(days - 1L);
         long cutoffSeconds = firstDay.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
         String cutoffIso = Instant.ofEpochSecond(cutoffSeconds).toString();
-        Map<String, Long> chatByDay = groupCount(
+        Map<String, Long> chatByDay = rollups != null
+                ? groupCount("SELECT day, SUM(session_count) FROM metric_session_daily WHERE day >= ? GROUP BY day",
+                firstDay.toString())
+                : groupCount(
                 "SELECT substr(created_at, 1, 10), COUNT(*) FROM chat_session WHERE created_at >= ? GROUP BY 1",
                 cutoffIso);
 
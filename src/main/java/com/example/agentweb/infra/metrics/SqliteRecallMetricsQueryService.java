@@ -10,6 +10,7 @@ import com.example.agentweb.app.metrics.RecallMetricsFilter;
 import com.example.agentweb.app.metrics.RecallMetricsQueryService;
 import com.example.agentweb.app.metrics.RecallMetricsSummary;
 import com.example.agentweb.app.metrics.RecallScorePoint;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
@@ -18,13 +19,20 @@ import org.springframework.stereotype.Component;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * SQLite read-side implementation for recall metrics.
  *
+ * <p>With {@link SqliteMetricRollups} injected, {@link #summary} reads whole hours from the hourly rollups
+ * and scans the detail tables only for the partial first/last hour and the not-yet-sealed tail. Session
+ * and hit-source/tier filters are not rollup dimensions and keep the detail-table path, as do the
+ * drill-down lists, score samples and top chunks.</p>
+ *
  * @author codex
  * @since 2026-06-12
  */
@@ -40,15 +48,30 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
     private static final String HIT_COLUMNS = "attempt_id, rank_no, chunk_id, source_session_id, "
             + "source_msg_range, title, conclusion, final_score, vector_score, signal_score, time_score, "
             + "embedding_model, source_type, tier, env, chunk_score, chunk_created_at, created_at";
+    private static final String[] HIT_DIMENSIONS = {"source_type", "tier"};
     private final JdbcTemplate jdbc;
+    /** Null keeps every summary on the detail tables. */
+    private final SqliteMetricRollups rollups;
 
     public SqliteRecallMetricsQueryService(JdbcTemplate jdbc) {
+        this(jdbc, null);
+    }
+
+    @Autowired
+    public SqliteRecallMetricsQueryService(JdbcTemplate jdbc, SqliteMetricRollups rollups) {
         this.jdbc = jdbc;
+        this.rollups = rollups;
     }
 
     @Override
     public RecallMetricsSummary summary(RecallMetricsFilter query) {
         Filter filter = buildAttemptFilter(query, null, true);
+        if (rollups != null && (query == null || query.getSessionId() == null && !query.hasHitFilter())) {
+            RecallMetricsSummary summary = summaryFromRollup(
+                    query == null ? RecallMetricsFilter.timeRange(null, null) : query);
+            summary.setScoreSamples(scoreSamples(filter));
+            return summary;
+        }
         RecallMetricsSummary summary = new RecallMetricsSummary();
         Map<String, Long> byStatus = groupCount("SELECT status, COUNT(*) FROM chat_recall_attempt "
                 + filter.where + " GROUP BY status", filter.args);
@@ -77,6 +100,87 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
 
         long attempts = scalarLong("SELECT COUNT(*) FROM chat_recall_attempt "
                 + filter.where + " AND recall_enabled = 1", filter.args);
+        fillCounts(summary, byStatus, attempts);
+        summary.setAvgHitCount(scalarDouble("SELECT AVG(hit_count) FROM chat_recall_attempt "
+                + filter.where + " AND status = 'HIT'", filter.args));
+        summary.setAvgLatencyMs(scalarDouble("SELECT AVG(latency_ms) FROM chat_recall_attempt "
+                + filter.where + " AND status IN ('HIT','NO_HIT','ERROR')", filter.args));
+        summary.setEnvBuckets(bucketMetrics("env", filter));
+        summary.setEmbeddingModelBuckets(bucketMetrics("embedding_model", filter));
+        summary.setSourceTypeBuckets(hitBucketMetrics("source_type", joinedFilter));
+        summary.setTierBuckets(hitBucketMetrics("tier", joinedFilter));
+        summary.setScoreSamples(scoreSamples(filter));
+        return summary;
+    }
+
+    /**
+     * Rollup rows cover the whole hours inside the range and before the watermark; the detail query covers
+     * everything else in the range. The two parts never overlap, so their counts and sums add up exactly.
+     */
+    private RecallMetricsSummary summaryFromRollup(RecallMetricsFilter query) {
+        long sealed = rollups.refresh(SqliteMetricRollups.Hourly.RECALL);
+        long from = query.getFrom() == null ? Long.MIN_VALUE : SqliteMetricRollups.ceilHour(query.getFrom());
+        long to = query.getTo() == null || query.getTo() == Long.MAX_VALUE
+                ? sealed : Math.min(sealed, SqliteMetricRollups.floorHour(query.getTo() + 1));
+        Filter dimensions = buildAttemptFilter(new RecallMetricsFilter(query.getStatus(), null, null, null,
+                query.getEmbeddingModel(), query.getEnv(), null, null), null, false);
+        List<Object> rollupArgs = new ArrayList<>(dimensions.args);
+        rollupArgs.add(from);
+        rollupArgs.add(to);
+        Filter attemptFilter = buildAttemptFilter(query, null, false);
+        List<Object> attemptArgs = new ArrayList<>(attemptFilter.args);
+        attemptArgs.add(from);
+        attemptArgs.add(to);
+        Filter joinedFilter = buildJoinedFilter(query, "a", "h");
+        List<Object> hitArgs = new ArrayList<>();
+        StringBuilder hitSql = new StringBuilder();
+        for (String dimension : HIT_DIMENSIONS) {
+            if (hitSql.length() > 0) {
+                hitSql.append(" UNION ALL ");
+            }
+            hitSql.append("SELECT '").append(dimension).append("', h.").append(dimension)
+                    .append(", a.status, COUNT(DISTINCT a.id) FROM chat_recall_attempt a ")
+                    .append("JOIN chat_recall_hit h ON h.attempt_id = a.id ").append(joinedFilter.where)
+                    .append(" AND (a.created_at < ? OR a.created_at >= ?) AND h.").append(dimension)
+                    .append(" IS NOT NULL GROUP BY 2, 3");
+            hitArgs.addAll(joinedFilter.args);
+            hitArgs.add(from);
+            hitArgs.add(to);
+        }
+
+        RecallAggregate aggregate = new RecallAggregate();
+        jdbc.query("SELECT status, env, embedding_model, recall_enabled, SUM(attempt_count), SUM(hit_count_sum), "
+                        + "SUM(latency_sum), SUM(latency_count) FROM metric_recall_hourly " + dimensions.where
+                        + " AND bucket >= ? AND bucket < ? GROUP BY 1, 2, 3, 4",
+                aggregate::addAttempts, rollupArgs.toArray());
+        jdbc.query("SELECT status, env, embedding_model, recall_enabled, COUNT(*), SUM(hit_count), "
+                        + "COALESCE(SUM(latency_ms), 0), COUNT(latency_ms) FROM chat_recall_attempt "
+                        + attemptFilter.where + " AND (created_at < ? OR created_at >= ?) GROUP BY 1, 2, 3, 4",
+                aggregate::addAttempts, attemptArgs.toArray());
+        jdbc.query("SELECT dimension, value, status, SUM(attempt_count) FROM metric_recall_hit_hourly "
+                        + dimensions.where + " AND bucket >= ? AND bucket < ? GROUP BY 1, 2, 3",
+                aggregate::addHits, rollupArgs.toArray());
+        jdbc.query(hitSql.toString(), aggregate::addHits, hitArgs.toArray());
+
+        RecallMetricsSummary summary = new RecallMetricsSummary();
+        summary.setByStatus(new LinkedHashMap<>(aggregate.byStatus));
+        summary.setByEmbeddingModel(new LinkedHashMap<>(aggregate.byEmbeddingModel));
+        summary.setByEnv(new LinkedHashMap<>(aggregate.byEnv));
+        summary.setBySourceType(new LinkedHashMap<>(aggregate.byHit.get("source_type")));
+        summary.setByTier(new LinkedHashMap<>(aggregate.byHit.get("tier")));
+        fillCounts(summary, summary.getByStatus(), aggregate.enabledAttempts);
+        summary.setAvgHitCount(aggregate.hitAttempts == 0L
+                ? null : (double) aggregate.hitCountSum / aggregate.hitAttempts);
+        summary.setAvgLatencyMs(aggregate.latencyCount == 0L
+                ? null : (double) aggregate.latencySum / aggregate.latencyCount);
+        summary.setEnvBuckets(RecallAggregate.buckets(aggregate.envBuckets));
+        summary.setEmbeddingModelBuckets(RecallAggregate.buckets(aggregate.embeddingModelBuckets));
+        summary.setSourceTypeBuckets(RecallAggregate.buckets(aggregate.hitBuckets.get("source_type")));
+        summary.setTierBuckets(RecallAggregate.buckets(aggregate.hitBuckets.get("tier")));
+        return summary;
+    }
+
+    private void fillCounts(RecallMetricsSummary summary, Map<String, Long> byStatus, long attempts) {
         long hit = byStatus.getOrDefault("HIT", 0L);
         long noHit = byStatus.getOrDefault("NO_HIT", 0L);
         long error = byStatus.getOrDefault("ERROR", 0L);
@@ -97,16 +201,6 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
         summary.setUserVisibleHitRate(ratio(hit, executed));
         summary.setNoHitRate(ratio(noHit, hit + noHit));
         summary.setErrorRate(ratio(error, executed));
-        summary.setAvgHitCount(scalarDouble("SELECT AVG(hit_count) FROM chat_recall_attempt "
-                + filter.where + " AND status = 'HIT'", filter.args));
-        summary.setAvgLatencyMs(scalarDouble("SELECT AVG(latency_ms) FROM chat_recall_attempt "
-                + filter.where + " AND status IN ('HIT','NO_HIT','ERROR')", filter.args));
-        summary.setEnvBuckets(bucketMetrics("env", filter));
-        summary.setEmbeddingModelBuckets(bucketMetrics("embedding_model", filter));
-        summary.setSourceTypeBuckets(hitBucketMetrics("source_type", joinedFilter));
-        summary.setTierBuckets(hitBucketMetrics("tier", joinedFilter));
-        summary.setScoreSamples(scoreSamples(filter));
-        return summary;
     }
 
     @Override
@@ -390,12 +484,12 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
         return hit;
     };
 
-    private static final RowMapper<RecallBucketMetric> BUCKET_MAPPER = (rs, rowNum) -> {
+    private static final RowMapper<RecallBucketMetric> BUCKET_MAPPER = (rs, rowNum) -> bucketMetric(
+            rs.getString(1), rs.getLong("hit_count"), rs.getLong("no_hit_count"), rs.getLong("error_count"));
+
+    private static RecallBucketMetric bucketMetric(String key, long hit, long noHit, long error) {
         RecallBucketMetric metric = new RecallBucketMetric();
-        metric.setKey(rs.getString(1));
-        long hit = rs.getLong("hit_count");
-        long noHit = rs.getLong("no_hit_count");
-        long error = rs.getLong("error_count");
+        metric.setKey(key);
         long executed = hit + noHit + error;
         metric.setHitCount(hit);
         metric.setNoHitCount(noHit);
@@ -404,7 +498,7 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
         metric.setQualityHitRate(executed == 0L && hit + noHit == 0L ? null : ratioStatic(hit, hit + noHit));
         metric.setUserVisibleHitRate(ratioStatic(hit, executed));
         return metric;
-    };
+    }
 
     private static final RowMapper<RecallScorePoint> SCORE_POINT_MAPPER = (rs, rowNum) -> {
         RecallScorePoint point = new RecallScorePoint();
@@ -437,6 +531,88 @@ public class SqliteRecallMetricsQueryService implements RecallMetricsQueryServic
         return denominator == 0L ? null : (double) numerator / denominator;
     }
 
+    /** Merges rollup rows and detail rows with the same semantics as the detail-table summary queries. */
+    private static final class RecallAggregate {
+        final Map<String, Long> byStatus = new TreeMap<>();
+        final Map<String, Long> byEmbeddingModel = new TreeMap<>();
+        final Map<String, Long> byEnv = new TreeMap<>();
+        final Map<String, long[]> envBuckets = new TreeMap<>();
+        final Map<String, long[]> embeddingModelBuckets = new TreeMap<>();
+        final Map<String, Map<String, Long>> byHit = new HashMap<>();
+        final Map<String, Map<String, long[]>> hitBuckets = new HashMap<>();
+        long enabledAttempts;
+        long hitAttempts;
+        long hitCountSum;
+        long latencySum;
+        long latencyCount;
+
+        RecallAggregate() {
+            for (String dimension : HIT_DIMENSIONS) {
+                byHit.put(dimension, new TreeMap<>());
+                hitBuckets.put(dimension, new TreeMap<>());
+            }
+        }
+
+        /** Columns: status, env, embedding_model, recall_enabled, attempts, hit_count sum, latency sum/count. */
+        void addAttempts(ResultSet rs) throws SQLException {
+            String status = rs.getString(1);
+            String env = rs.getString(2);
+            String model = rs.getString(3);
+            long attempts = rs.getLong(5);
+            byStatus.merge(status == null ? "unknown" : status, attempts, Long::sum);
+            if (rs.getInt(4) == 1) {
+                enabledAttempts += attempts;
+            }
+            if ("HIT".equals(status)) {
+                hitAttempts += attempts;
+                hitCountSum += rs.getLong(6);
+            }
+            if (!executed(status)) {
+                return;
+            }
+            latencySum += rs.getLong(7);
+            latencyCount += rs.getLong(8);
+            if (env != null) {
+                byEnv.merge(env, attempts, Long::sum);
+                count(envBuckets, env, status, attempts);
+            }
+            if (model != null) {
+                byEmbeddingModel.merge(model, attempts, Long::sum);
+                count(embeddingModelBuckets, model, status, attempts);
+            }
+        }
+
+        /** Columns: dimension, value, attempt status, distinct attempts. */
+        void addHits(ResultSet rs) throws SQLException {
+            String dimension = rs.getString(1);
+            String value = rs.getString(2);
+            String status = rs.getString(3);
+            long attempts = rs.getLong(4);
+            byHit.get(dimension).merge(value, attempts, Long::sum);
+            if (executed(status)) {
+                count(hitBuckets.get(dimension), value, status, attempts);
+            }
+        }
+
+        static boolean executed(String status) {
+            return "HIT".equals(status) || "NO_HIT".equals(status) || "ERROR".equals(status);
+        }
+
+        static void count(Map<String, long[]> buckets, String key, String status, long attempts) {
+            long[] counts = buckets.computeIfAbsent(key, ignored -> new long[3]);
+            counts["HIT".equals(status) ? 0 : "NO_HIT".equals(status) ? 1 : 2] += attempts;
+        }
+
+        static List<RecallBucketMetric> buckets(Map<String, long[]> buckets) {
+            List<RecallBucketMetric> out = new ArrayList<>(buckets.size());
+            for (Map.Entry<String, long[]> entry : buckets.entrySet()) {
+                long[] counts = entry.getValue();
+                out.add(bucketMetric(entry.getKey(), counts[0], counts[1], counts[2]));
+            }
+            return out;
+        }
+    }
+
     private static final class Filter {
         final String where;
         final List<Object> args;
@@ -41,8 +41,8 @@ public class RefineryHttpConfig {
     }
 
     /**
-     * "清空并重跑"管理操作的后台执行器: 单线程串行, 避免一次拉起大量 CLI 子进程,
-     * 与 scheduler 的串行 ingest 语义一致. 关闭态不创建 Bean。
+     * "清空并重跑"管理操作的后台执行器: 单线程, 同一时刻只有一批重跑; 批内 CLI 并发由
+     * ingest 流水线的评分许可统一限流, 与 scheduler 共享. 关闭态不创建 Bean。
      */
     @Bean(name = "chatRagRebuildExecutor", destroyMethod = "shutdown")
     public ExecutorService chatRagRebuildExecutor() {
@@ -12,7 +12,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +25,9 @@ import java.util.Map;
  * <p>启动时 {@link #validateDimension()} 通过 {@code @PostConstruct} 触发一次,
  * 校验返回向量长度与配置 {@code dimension} 一致, 不一致直接 fail-fast.</p>
  *
+ * <p>{@link #embedBatch(List)} 以 {@code input} 数组发多输入请求, 每批至多 {@code batch-size} 条,
+ * 按响应 {@code data[].index} 回填顺序.</p>
+ *
  * <p>仅在 {@code agent.refinery.enabled=true} 时注册. 关闭态下整个 refinery 链路不参与启动校验.</p>
  *
  * @author zhourui(V33215020)
@@ -63,6 +68,33 @@ public class ArkEmbeddingClient implements EmbeddingClient {
         return parseEmbedding(resp);
     }
 
+    @Override
+    public List<float[]> embedBatch(List<String> texts) {
+        if (texts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int batchSize = Math.max(1, props.getEmbedding().getBatchSize());
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            vectors.addAll(postBatch(texts.subList(from, Math.min(texts.size(), from + batchSize))));
+        }
+        return vectors;
+    }
+
+    private List<float[]> postBatch(List<String> texts) {
+        List<String> inputs = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            inputs.add(truncate(text));
+        }
+        Map<String, Object> body = new HashMap<>(2);
+        body.put("model", props.getEmbedding().getModel());
+        body.put("input", inputs);
+
+        String url = props.getEmbedding().getEndpoint() + EMBED_PATH;
+        Map<?, ?> resp = restTemplate.postForObject(url, new HttpEntity<>(body, authHeaders()), Map.class);
+        return parseEmbeddings(resp, inputs.size());
+    }
+
     @Override
     public String modelName() {
         return props.getEmbedding().getModel();
@@ -106,18 +138,45 @@ public class ArkEmbeddingClient implements EmbeddingClient {
         return headers;
     }
 
-    @SuppressWarnings("unchecked")
     private float[] parseEmbedding(Map<?, ?> resp) {
-        if (resp == null || !(resp.get("data") instanceof List)) {
-            throw new IllegalStateException("ark response missing data field: " + resp);
-        }
-        List<Map<String, Object>> data = (List<Map<String, Object>>) resp.get("data");
+        List<Map<String, Object>> data = dataOf(resp);
         if (data.isEmpty()) {
             throw new IllegalStateException("ark response data array is empty");
         }
-        Object embedding = data.get(0).get("embedding");
+        return toVector(data.get(0).get("embedding"), 0);
+    }
+
+    /** 多输入响应: 条数必须与输入一致; 带 index 时按 index 归位, 否则按数组顺序. */
+    private List<float[]> parseEmbeddings(Map<?, ?> resp, int expected) {
+        List<Map<String, Object>> data = dataOf(resp);
+        if (data.size() != expected) {
+            throw new IllegalStateException(
+                    "ark response data size mismatch: expected=" + expected + " actual=" + data.size());
+        }
+        float[][] ordered = new float[expected][];
+        for (int i = 0; i < data.size(); i++) {
+            Map<String, Object> item = data.get(i);
+            int position = item.get("index") instanceof Number ? ((Number) item.get("index")).intValue() : i;
+            if (position < 0 || position >= expected || ordered[position] != null) {
+                throw new IllegalStateException("ark response data[" + i + "].index invalid: " + position);
+            }
+            ordered[position] = toVector(item.get("embedding"), i);
+        }
+        return Arrays.asList(ordered);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> dataOf(Map<?, ?> resp) {
+        if (resp == null || !(resp.get("data") instanceof List)) {
+            throw new IllegalStateException("ark response missing data field: " + resp);
+        }
+        return (List<Map<String, Object>>) resp.get("data");
+    }
+
+    @SuppressWarnings("unchecked")
+    private float[] toVector(Object embedding, int position) {
         if (!(embedding instanceof List)) {
-            throw new IllegalStateException("ark response data[0].embedding missing or not array");
+            throw new IllegalStateException("ark response data[" + position + "].embedding missing or not array");
         }
         List<Number> raw = (List<Number>) embedding;
         float[] vec = new float[raw.size()];
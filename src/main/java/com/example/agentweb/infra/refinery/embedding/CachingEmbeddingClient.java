@@ -0,0 +1,247 @@
+package com.example.agentweb.infra.refinery.embedding;
+
+import com.example.agentweb.config.refinery.RefineryProperties;
+import com.example.agentweb.domain.refinery.EmbeddingClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EmbeddingClient} 的缓存 + 计量装饰器, 包裹 {@link ArkEmbeddingClient}.
+ *
+ * <p>缓存键 = (模型, 维度, 规范化文本的 SHA-256): 规范化只做 NFC + 首尾去空白 + 连续空白折叠,
+ * 不改大小写与标点, 因此命中的两段文本对模型而言语义等价. 容量满按 LRU 淘汰,
+ * 超过 {@code ttl-minutes} 视为未命中; 换模型或维度自然换键, 无需手动清空.</p>
+ *
+ * <p>{@link #embedBatch(List)} 先逐条查缓存, 批内重复文本合并, 只把未命中的一次性交给
+ * 委托方的多输入请求. 返回的向量是副本, 调用方修改不会污染缓存.</p>
+ *
+ * <p>指标: {@code refinery.embedding.cache} (tag {@code result}=hit/miss),
+ * {@code refinery.embedding.latency} (远端往返, tag {@code op}=single/batch),
+ * {@code refinery.embedding.batch.size} (每次远端批量的输入条数), {@code refinery.embedding.cache.size}.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "agent.refinery", name = "enabled", havingValue = "true")
+public class CachingEmbeddingClient implements EmbeddingClient {
+
+    private static final Pattern WHITESPACE_RUN = Pattern.compile("\\s+");
+
+    private final EmbeddingClient delegate;
+    private final RefineryProperties props;
+    private final LongSupplier nanoTime;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Timer singleTimer;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+    private final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75F, true);
+
+    @Autowired
+    public CachingEmbeddingClient(ArkEmbeddingClient delegate, RefineryProperties props, MeterRegistry registry) {
+        this(delegate, props, registry, System::nanoTime);
+    }
+
+    /** 测试用: 可替换委托与时钟. */
+    CachingEmbeddingClient(EmbeddingClient delegate, RefineryProperties props, MeterRegistry registry,
+                           LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.props = props;
+        this.nanoTime = nanoTime;
+        this.hitCounter = Counter.builder("refinery.embedding.cache").tag("result", "hit").register(registry);
+        this.missCounter = Counter.builder("refinery.embedding.cache").tag("result", "miss").register(registry);
+        this.singleTimer = Timer.builder("refinery.embedding.latency").tag("op", "single").register(registry);
+        this.batchTimer = Timer.builder("refinery.embedding.latency").tag("op", "batch").register(registry);
+        this.batchSize = DistributionSummary.builder("refinery.embedding.batch.size").register(registry);
+        Gauge.builder("refinery.embedding.cache.size", this, CachingEmbeddingClient::cacheSize).register(registry);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        if (!isCacheEnabled()) {
+            return timedSingle(text);
+        }
+        String key = keyOf(text);
+        float[] cached = lookup(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached.clone();
+        }
+        missCounter.increment();
+        float[] vector = timedSingle(text);
+        store(key, vector);
+        return vector.clone();
+    }
+
+    @Override
+    public List<float[]> embedBatch(List<String> texts) {
+        if (texts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!isCacheEnabled()) {
+            return timedBatch(texts);
+        }
+        float[][] result = new float[texts.size()][];
+        Map<String, List<Integer>> missPositions = new LinkedHashMap<>();
+        Map<String, String> missTexts = new HashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String key = keyOf(texts.get(i));
+            float[] cached = lookup(key);
+            if (cached != null) {
+                hitCounter.increment();
+                result[i] = cached.clone();
+                continue;
+            }
+            missCounter.increment();
+            missPositions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            missTexts.putIfAbsent(key, texts.get(i));
+        }
+        if (!missPositions.isEmpty()) {
+            List<String> keys = new ArrayList<>(missPositions.keySet());
+            List<String> pending = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                pending.add(missTexts.get(key));
+            }
+            List<float[]> fetched = timedBatch(pending);
+            for (int k = 0; k < keys.size(); k++) {
+                float[] vector = fetched.get(k);
+                store(keys.get(k), vector);
+                for (int position : missPositions.get(keys.get(k))) {
+                    result[position] = vector.clone();
+                }
+            }
+        }
+        List<float[]> vectors = new ArrayList<>(result.length);
+        for (float[] vector : result) {
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    private float[] timedSingle(String text) {
+        long start = nanoTime.getAsLong();
+        try {
+            return delegate.embed(text);
+        } finally {
+            singleTimer.record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<float[]> timedBatch(List<String> texts) {
+        batchSize.record(texts.size());
+        long start = nanoTime.getAsLong();
+        List<float[]> vectors;
+        try {
+            vectors = delegate.embedBatch(texts);
+        } finally {
+            batchTimer.record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS);
+        }
+        if (vectors == null || vectors.size() != texts.size()) {
+            throw new IllegalStateException("embedding batch size mismatch: expected=" + texts.size()
+                    + " actual=" + (vectors == null ? null : vectors.size()));
+        }
+        return vectors;
+    }
+
+    private boolean isCacheEnabled() {
+        RefineryProperties.Embedding.Cache config = props.getEmbedding().getCache();
+        return config.isEnabled() && config.getMaxEntries() > 0;
+    }
+
+    private float[] lookup(String key) {
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (nanoTime.getAsLong() - entry.storedAtNanos > ttlNanos()) {
+                cache.remove(key);
+                return null;
+            }
+            return entry.vector;
+        }
+    }
+
+    private void store(String key, float[] vector) {
+        int maxEntries = props.getEmbedding().getCache().getMaxEntries();
+        synchronized (cache) {
+            cache.put(key, new Entry(vector.clone(), nanoTime.getAsLong()));
+            while (cache.size() > maxEntries) {
+                String eldest = cache.keySet().iterator().next();
+                cache.remove(eldest);
+            }
+        }
+    }
+
+    private long ttlNanos() {
+        return TimeUnit.MINUTES.toNanos(Math.max(0, props.getEmbedding().getCache().getTtlMinutes()));
+    }
+
+    private double cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** 缓存键: 模型 + 维度 + 规范化文本 SHA-256, 原文不驻留内存. */
+    String keyOf(String text) {
+        String normalized = text == null ? "" : WHITESPACE_RUN.matcher(
+                Normalizer.normalize(text, Normalizer.Form.NFC).trim()).replaceAll(" ");
+        return delegate.modelName() + '|' + delegate.dimension() + '|' + sha256(normalized);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static final class Entry {
+        final float[] vector;
+        final long storedAtNanos;
+
+        Entry(float[] vector, long storedAtNanos) {
+            this.vector = vector;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,695 @@
+package com.example.agentweb.infra.refinery.index;
+
+import com.example.agentweb.config.refinery.RefineryProperties;
+import com.example.agentweb.domain.refinery.CosineSimilarity;
+import com.example.agentweb.domain.refinery.RagChunk;
+import com.example.agentweb.domain.refinery.RagVectorIndex;
+import com.example.agentweb.domain.refinery.RecallScope;
+import com.example.agentweb.domain.refinery.SourceType;
+import com.example.agentweb.domain.refinery.TrustTier;
+import com.example.agentweb.domain.refinery.VectorSearchResult;
+import com.example.agentweb.infra.refinery.persistence.EmbeddingCodec;
+import com.example.agentweb.infra.refinery.persistence.SqliteRagChunkRepo;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link RagVectorIndex} 的内存映射实现.
+ *
+ * <p>归一化向量按 {@link VectorEncoding} 写入 {@link MappedVectorStore} (堆外, page cache 托管);
+ * heap 上每条只留 id、(来源, tier) 组合下标与过期时间, 另按组合维护 bitset, 召回时先把
+ * {@link RecallScope} 展开为 bitset 并集再逐位扫描. 与 {@code CachingRagChunkRepo} 快照的区别:
+ * 不反序列化聚合根、不设条数软上限, 规模增长只线性增加映射页.</p>
+ *
+ * <p>一致性: 单条写经 {@code on*} 增量应用——写时复制 bitset 后发布新一代, 追加写映射文件的新槽位,
+ * 删除只清 bit (墓碑); 墓碑过半或无法增量表达的写走 {@link #invalidate()}, 在后台流式重建,
+ * 重建期间检索继续读旧一代. 重建期间到达的增量照常应用到旧一代并记下, 新一代发布前在写锁内重放;
+ * 增量操作幂等, 因此与重建读库的先后交错都不会丢写.
+ * 读者只读 volatile 发布的一代, 正在扫描旧一代的读者不受影响: 检索期间持有该代映射文件的引用,
+ * 重建只让旧文件退役, 最后一个读者释放后才关闭并删除.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class MappedRagVectorIndex implements RagVectorIndex {
+
+    private static final String FILE_PREFIX = "vector-index-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int TIER_COUNT = TrustTier.values().length;
+    private static final TrustTier[] TIERS = TrustTier.values();
+
+    private final SqliteRagChunkRepo source;
+    private final RefineryProperties props;
+    private final AtomicLong writeVersion = new AtomicLong();
+    private final AtomicLong generationSeq = new AtomicLong();
+    private final Object writeLock = new Object();
+    private final Executor rebuildExecutor;
+    /** 当前一代的 id → 槽位, 仅写者在 {@link #writeLock} 下访问; 新一代发布时整体换掉. */
+    private Map<String, Integer> slotById = new HashMap<>();
+    /** 后台重建在途时记录的增量, 新一代发布前重放; 无重建时为 null. 仅在 {@link #writeLock} 下访问. */
+    private List<Consumer<GenerationWriter>> pendingDeltas;
+    private volatile boolean rebuilding;
+    private volatile boolean closed;
+    private volatile Generation current;
+    private volatile boolean staleFilesCleaned;
+
+    @Autowired
+    public MappedRagVectorIndex(SqliteRagChunkRepo source, RefineryProperties props) {
+        this(source, props, task -> Thread.ofVirtual().name("vector-index-rebuild").start(task));
+    }
+
+    /** 测试用: 注入重建执行器. */
+    MappedRagVectorIndex(SqliteRagChunkRepo source, RefineryProperties props, Executor rebuildExecutor) {
+        this.source = source;
+        this.props = props;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    /** 无法增量表达的写: 推进写版本并在后台全量重建, 建好前检索仍读旧一代. */
+    public void invalidate() {
+        writeVersion.incrementAndGet();
+        synchronized (writeLock) {
+            scheduleRebuild();
+        }
+    }
+
+    /** 新增 chunk; 已存在同 id 时忽略 (与 INSERT OR IGNORE 同语义), 已归档的不入索引. */
+    public void onSaved(RagChunk chunk) {
+        if (chunk.getArchivedAt() != null) {
+            return;
+        }
+        mutate(writer -> {
+            if (!writer.contains(chunk.getId())) {
+                writer.append(chunk.getId(), chunk.getSourceType(), chunk.getTier(),
+                        chunk.getExpiresAt(), chunk.getEmbedding());
+            }
+        });
+    }
+
+    /** 归档或硬删: 清除对应槽位. */
+    public void onRemoved(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mutate(writer -> {
+            for (String id : ids) {
+                writer.remove(id);
+            }
+        });
+    }
+
+    /** 改 tier: 只移动 bitset 归属, 向量不动. */
+    public void onRetiered(String id, TrustTier tier) {
+        mutate(writer -> writer.retier(id, tier));
+    }
+
+    /** 重嵌入: 旧槽位置墓碑, 新向量追加. 聚合已归档时只删除. */
+    public void onReplaced(RagChunk chunk) {
+        mutate(writer -> {
+            writer.remove(chunk.getId());
+            if (chunk.getArchivedAt() == null) {
+                writer.append(chunk.getId(), chunk.getSourceType(), chunk.getTier(),
+                        chunk.getExpiresAt(), chunk.getEmbedding());
+            }
+        });
+    }
+
+    /** TTL 批量归档: 移除 expires_at &lt;= cutoff 的槽位, 与 SQL 谓词同口径. */
+    public void onExpiredBefore(Instant cutoff) {
+        long cutoffMillis = cutoff.toEpochMilli();
+        mutate(writer -> writer.removeExpiredBefore(cutoffMillis));
+    }
+
+    /**
+     * 在写锁下对当前一代做增量修改并发布. 尚未构建时跳过——首次构建会直接读到这次写;
+     * 后台重建在途时同时记下, 由重建线程重放到新一代上.
+     */
+    private void mutate(Consumer<GenerationWriter> op) {
+        synchronized (writeLock) {
+            Generation gen = current;
+            if (gen == null) {
+                return;
+            }
+            if (pendingDeltas != null) {
+                pendingDeltas.add(op);
+            }
+            GenerationWriter writer = GenerationWriter.from(gen, slotById);
+            op.accept(writer);
+            if (!writer.changed) {
+                return;
+            }
+            current = writer.publish(gen.version);
+            if (writer.tombstones * 2 > Math.max(writer.size, 64)) {
+                // 墓碑过半: 扫描与映射页都在为死槽付费, 后台整体重建压实
+                invalidate();
+            }
+        }
+    }
+
+    /** 写锁内调用: 已有一代可读且没有重建在途时, 把重建交给后台执行器. */
+    private void scheduleRebuild() {
+        if (current == null || closed || rebuilding) {
+            return;
+        }
+        rebuilding = true;
+        pendingDeltas = new ArrayList<>();
+        try {
+            rebuildExecutor.execute(this::rebuildInBackground);
+        } catch (RejectedExecutionException e) {
+            rebuilding = false;
+            pendingDeltas = null;
+            log.warn("vector-index-rebuild-rejected reason={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 后台重建: 写锁外流式读库构建新一代, 写锁内重放期间记下的增量后发布并退役旧一代.
+     * 构建期间写版本再次推进时接着重建, 直到发布的一代追上写版本.
+     */
+    private void rebuildInBackground() {
+        for (;;) {
+            long version = writeVersion.get();
+            Map<String, Integer> slots = new HashMap<>();
+            Generation rebuilt;
+            try {
+                rebuilt = build(version, slots);
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    rebuilding = false;
+                    pendingDeltas = null;
+                }
+                // 旧一代继续服务, 下次检索发现版本落后会再次调度
+                log.warn("vector-index-rebuild-failed reason={}", e.getMessage(), e);
+                return;
+            }
+            synchronized (writeLock) {
+                if (closed) {
+                    rebuilt.store.close();
+                    rebuilding = false;
+                    pendingDeltas = null;
+                    return;
+                }
+                GenerationWriter writer = GenerationWriter.from(rebuilt, slots);
+                for (Consumer<GenerationWriter> delta : pendingDeltas) {
+                    delta.accept(writer);
+                }
+                Generation retired = current;
+                current = writer.changed ? writer.publish(version) : rebuilt;
+                slotById = slots;
+                if (retired != null) {
+                    // 只退役: 仍在扫描旧一代的读者释放后才关闭并删除
+                    retired.store.close();
+                }
+                if (writeVersion.get() == version) {
+                    rebuilding = false;
+                    pendingDeltas = null;
+                    return;
+                }
+                pendingDeltas = new ArrayList<>();
+            }
+        }
+    }
+
+    @Override
+    public VectorSearchResult search(float[] query, RecallScope scope,
+                                     ToDoubleFunction<TrustTier> vectorFloor, Instant now,
+                                     int topK, double rankHeadroom) {
+        Generation gen = acquireGeneration();
+        try {
+            return search(gen, query, scope, vectorFloor, now, topK, rankHeadroom);
+        } finally {
+            gen.store.release();
+        }
+    }
+
+    /**
+     * 扫描一代. 候选按近似余弦取前 {@code max-candidates}, 被挤出的条目只有在不可能进入融合 topK 时
+     * 才真正截掉: 确定能过精确硬闸 (近似余弦 &ge; 闸 + margin) 的第 topK 名记作基准, 落后基准
+     * 超过 {@code rankHeadroom + 2·margin} 的条目即使非向量项拿满也追不上, 其余照样交给精确重算.
+     */
+    private VectorSearchResult search(Generation gen, float[] query, RecallScope scope,
+                                      ToDoubleFunction<TrustTier> vectorFloor, Instant now,
+                                      int topK, double rankHeadroom) {
+        RefineryProperties.Recall.Index config = props.getRecall().getIndex();
+        long nowMillis = now.toEpochMilli();
+        BitSet matched = gen.scopeBits(scope);
+        int active = gen.countUnexpired(gen.live, nowMillis);
+        float[] q = normalizedOrNull(query, gen.dimension);
+        if (q == null) {
+            int scopeMatched = gen.countUnexpired(matched, nowMillis);
+            log.warn("vector-index-query-unusable queryDim={} indexDim={}", query.length, gen.dimension);
+            return new VectorSearchResult(active, scopeMatched, 0, scopeMatched, 0, null, null);
+        }
+        double margin = config.getRerankMargin();
+        double[] floors = new double[TIER_COUNT];
+        double[] sureFloors = new double[TIER_COUNT];
+        for (TrustTier tier : TIERS) {
+            double floor = vectorFloor.applyAsDouble(tier);
+            floors[tier.ordinal()] = floor > 0d ? floor - margin : Double.NEGATIVE_INFINITY;
+            sureFloors[tier.ordinal()] = floor > 0d ? floor + margin : Double.NEGATIVE_INFINITY;
+        }
+        int maxCandidates = Math.max(1, config.getMaxCandidates());
+        RankBar bar = new RankBar(topK, rankHeadroom + 2 * margin);
+        PriorityQueue<VectorSearchResult.Candidate> top = new PriorityQueue<>(
+                Comparator.comparingDouble(VectorSearchResult.Candidate::approxCosine));
+        List<VectorSearchResult.Candidate> overflow = new ArrayList<>();
+        int pruneAt = maxCandidates;
+        int scopeMatched = 0;
+        int belowFloor = 0;
+        int bad = 0;
+        int truncated = 0;
+        Double topRejected = null;
+        float[] scratch = new float[gen.dimension];
+        for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+            if (gen.expiresAt[slot] <= nowMillis) {
+                continue;
+            }
+            scopeMatched++;
+            if (gen.bad.get(slot)) {
+                bad++;
+                continue;
+            }
+            gen.store.read(gen.storeSlot[slot], scratch);
+            double approx = CosineSimilarity.dot(q, scratch);
+            if (approx < floors[gen.pairs[slot] % TIER_COUNT]) {
+                belowFloor++;
+                topRejected = topRejected == null ? approx : Math.max(topRejected, approx);
+                continue;
+            }
+            top.add(new VectorSearchResult.Candidate(gen.ids[slot], approx));
+            if (approx >= sureFloors[gen.pairs[slot] % TIER_COUNT]) {
+                bar.offer(approx);
+            }
+            if (top.size() > maxCandidates) {
+                VectorSearchResult.Candidate evicted = top.poll();
+                if (bar.mayRank(evicted.approxCosine())) {
+                    overflow.add(evicted);
+                    if (overflow.size() > pruneAt) {
+                        truncated += bar.prune(overflow);
+                        pruneAt = Math.max(maxCandidates, overflow.size() * 2);
+                    }
+                } else {
+                    truncated++;
+                }
+            }
+        }
+        truncated += bar.prune(overflow);
+        List<VectorSearchResult.Candidate> candidates = new ArrayList<>(top.size() + overflow.size());
+        candidates.addAll(top);
+        candidates.addAll(overflow);
+        candidates.sort(Comparator.comparingDouble(VectorSearchResult.Candidate::approxCosine).reversed());
+        if (truncated > 0 || !overflow.isEmpty()) {
+            log.debug("vector-index-candidates-truncated kept={} widened={} truncated={}",
+                    candidates.size(), overflow.size(), truncated);
+        }
+        return new VectorSearchResult(active, scopeMatched, belowFloor, bad, truncated, topRejected, candidates);
+    }
+
+    /**
+     * 取当前一代并持有其映射文件的引用, 用完须 {@code store.release()}.
+     * 登记失败说明这一代在读取与登记之间已退役且读者散尽, 重取即可拿到新一代.
+     */
+    private Generation acquireGeneration() {
+        for (;;) {
+            Generation gen = currentGeneration();
+            if (gen.store.retain()) {
+                return gen;
+            }
+        }
+    }
+
+    /**
+     * 已有一代时直接返回 (版本落后则顺带调度后台重建, 不等它); 只有首次没有任何一代可读时才在写锁内同步构建.
+     */
+    private Generation currentGeneration() {
+        Generation gen = current;
+        if (gen != null) {
+            if (gen.version != writeVersion.get() && !rebuilding) {
+                synchronized (writeLock) {
+                    scheduleRebuild();
+                }
+            }
+            return gen;
+        }
+        synchronized (writeLock) {
+            gen = current;
+            if (gen == null) {
+                Map<String, Integer> slots = new HashMap<>();
+                gen = build(writeVersion.get(), slots);
+                current = gen;
+                slotById = slots;
+            }
+            return gen;
+        }
+    }
+
+    /** 流式读 SQLite 构建新一代, id → 槽位写入 {@code slots}; 不碰当前一代, 可在写锁外执行. */
+    private Generation build(long version, Map<String, Integer> slots) {
+        long start = System.currentTimeMillis();
+        Path dir = Paths.get(props.getRecall().getIndex().getPath());
+        cleanStaleFiles(dir);
+        int dimension = props.getEmbedding().getDimension();
+        VectorEncoding encoding = VectorEncoding.parse(props.getRecall().getIndex().getEncoding());
+        MappedVectorStore store = MappedVectorStore.create(
+                dir.resolve(FILE_PREFIX + generationSeq.incrementAndGet() + FILE_SUFFIX), encoding, dimension);
+        GenerationWriter writer = GenerationWriter.empty(store, slots);
+        try {
+            source.forEachUnarchivedVector((id, sourceType, tier, expiresAt, embedding) ->
+                    writer.append(id, sourceType, tier, expiresAt,
+                            embedding.length == dimension * 4 ? EmbeddingCodec.decode(embedding) : null));
+        } catch (RuntimeException e) {
+            slots.clear();
+            store.close();
+            throw e;
+        }
+        Generation gen = writer.publish(version);
+        log.info("vector-index-rebuilt size={} bad={} encoding={} dim={} elapsedMs={}",
+                gen.size, gen.bad.cardinality(), encoding, dimension, System.currentTimeMillis() - start);
+        return gen;
+    }
+
+    /** 首次构建前清理上次进程残留的映射文件 (Windows 上关闭时可能删不掉). */
+    private void cleanStaleFiles(Path dir) {
+        if (staleFilesCleaned || !Files.isDirectory(dir)) {
+            staleFilesCleaned = true;
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.debug("vector-index-stale-file-kept file={} reason={}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("vector-index-stale-clean-failed dir={} reason={}", dir, e.getMessage());
+        }
+        staleFilesCleaned = true;
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (writeLock) {
+            closed = true;
+            if (current != null) {
+                current.store.close();
+                current = null;
+            }
+            slotById.clear();
+            pendingDeltas = null;
+        }
+    }
+
+    /** 归一化 query; 维度不符或零向量返回 null (与逐条余弦抛错同口径, 调用方按 badVector 计). */
+    private static float[] normalizedOrNull(float[] vector, int dimension) {
+        if (vector.length != dimension) {
+            return null;
+        }
+        double norm = 0d;
+        for (float v : vector) {
+            norm += (double) v * v;
+        }
+        if (norm == 0d) {
+            return null;
+        }
+        double inv = 1d / Math.sqrt(norm);
+        float[] out = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            out[i] = (float) (vector[i] * inv);
+        }
+        return out;
+    }
+
+    /**
+     * 候选截断的基准线: 维护确定能过精确硬闸的前 topK 个近似余弦, 第 topK 名减去 {@code slack}
+     * 以下的条目不可能进入融合 topK. 基准只升不降, 因此扫描中途判为可截的条目结束时仍可截.
+     */
+    private static final class RankBar {
+        final int topK;
+        final double slack;
+        final PriorityQueue<Double> best = new PriorityQueue<>();
+
+        RankBar(int topK, double slack) {
+            this.topK = Math.max(0, topK);
+            this.slack = slack;
+        }
+
+        void offer(double approx) {
+            if (topK == 0) {
+                return;
+            }
+            best.add(approx);
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+
+        boolean mayRank(double approx) {
+            if (topK == 0) {
+                return false;
+            }
+            return best.size() < topK || approx >= best.peek() - slack;
+        }
+
+        /** 按当前基准剔除已不可能入围的溢出候选, 返回剔除条数. */
+        int prune(List<VectorSearchResult.Candidate> overflow) {
+            int before = overflow.size();
+            overflow.removeIf(candidate -> !mayRank(candidate.approxCosine()));
+            return before - overflow.size();
+        }
+    }
+
+    /**
+     * 索引的一代, 发布后只读. {@code ids}/{@code expiresAt}/{@code storeSlot} 与后续代共享
+     * (后续代只写本代 {@link #size} 之后的下标), bitset 与 {@code pairs} 每代独立.
+     */
+    private static final class Generation {
+        final long version;
+        final MappedVectorStore store;
+        final int dimension;
+        final int size;
+        final int tombstones;
+        final String[] ids;
+        final byte[] pairs;
+        final long[] expiresAt;
+        final int[] storeSlot;
+        final BitSet[] pairBits;
+        final BitSet live;
+        final BitSet bad;
+
+        Generation(long version, GenerationWriter w) {
+            this.version = version;
+            this.store = w.store;
+            this.dimension = w.store.dimension();
+            this.size = w.size;
+            this.tombstones = w.tombstones;
+            this.ids = w.ids;
+            this.pairs = w.pairs;
+            this.expiresAt = w.expiresAt;
+            this.storeSlot = w.storeSlot;
+            this.pairBits = w.pairBits;
+            this.live = w.live;
+            this.bad = w.bad;
+        }
+
+        BitSet scopeBits(RecallScope scope) {
+            BitSet union = new BitSet(size);
+            for (int pair = 0; pair < RecallScope.PAIR_COUNT; pair++) {
+                if (scope.admits(pair)) {
+                    union.or(pairBits[pair]);
+                }
+            }
+            return union;
+        }
+
+        int countUnexpired(BitSet bits, long nowMillis) {
+            int count = 0;
+            for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+                if (expiresAt[slot] > nowMillis) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 写时复制的可变视图: 从上一代派生时 bitset/pairs 先复制, 数组容量不足才整体扩容,
+     * {@link #publish} 后交出所有权, 不得再修改.
+     */
+    private static final class GenerationWriter {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        final MappedVectorStore store;
+        final Map<String, Integer> slotById;
+        String[] ids;
+        byte[] pairs;
+        long[] expiresAt;
+        int[] storeSlot;
+        final BitSet[] pairBits;
+        final BitSet live;
+        final BitSet bad;
+        int size;
+        int tombstones;
+        boolean changed;
+        private float[] buffer;
+
+        private GenerationWriter(MappedVectorStore store, Map<String, Integer> slotById, String[] ids,
+                                 byte[] pairs, long[] expiresAt, int[] storeSlot, BitSet[] pairBits,
+                                 BitSet live, BitSet bad, int size, int tombstones) {
+            this.store = store;
+            this.slotById = slotById;
+            this.ids = ids;
+            this.pairs = pairs;
+            this.expiresAt = expiresAt;
+            this.storeSlot = storeSlot;
+            this.pairBits = pairBits;
+            this.live = live;
+            this.bad = bad;
+            this.size = size;
+            this.tombstones = tombstones;
+        }
+
+        static GenerationWriter empty(MappedVectorStore store, Map<String, Integer> slotById) {
+            BitSet[] pairBits = new BitSet[RecallScope.PAIR_COUNT];
+            for (int i = 0; i < pairBits.length; i++) {
+                pairBits[i] = new BitSet();
+            }
+            return new GenerationWriter(store, slotById, new String[INITIAL_CAPACITY], new byte[INITIAL_CAPACITY],
+                    new long[INITIAL_CAPACITY], new int[INITIAL_CAPACITY], pairBits, new BitSet(), new BitSet(), 0, 0);
+        }
+
+        static GenerationWriter from(Generation gen, Map<String, Integer> slotById) {
+            BitSet[] pairBits = new BitSet[gen.pairBits.length];
+            for (int i = 0; i < pairBits.length; i++) {
+                pairBits[i] = (BitSet) gen.pairBits[i].clone();
+            }
+            return new GenerationWriter(gen.store, slotById, gen.ids, gen.pairs.clone(), gen.expiresAt,
+                    gen.storeSlot, pairBits, (BitSet) gen.live.clone(), (BitSet) gen.bad.clone(),
+                    gen.size, gen.tombstones);
+        }
+
+        void append(String id, SourceType sourceType, TrustTier tier, Instant expires, float[] embedding) {
+            ensureCapacity();
+            int slot = size;
+            int pair = RecallScope.pairIndex(sourceType, tier);
+            ids[slot] = id;
+            pairs[slot] = (byte) pair;
+            expiresAt[slot] = expires == null ? Long.MAX_VALUE : expires.toEpochMilli();
+            if (normalizeInto(embedding)) {
+                storeSlot[slot] = store.append(buffer);
+            } else {
+                storeSlot[slot] = -1;
+                bad.set(slot);
+            }
+            pairBits[pair].set(slot);
+            live.set(slot);
+            slotById.put(id, slot);
+            size = slot + 1;
+            changed = true;
+        }
+
+        boolean contains(String id) {
+            return slotById.containsKey(id);
+        }
+
+        void remove(String id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            live.clear(slot);
+            pairBits[pairs[slot]].clear(slot);
+            tombstones++;
+            changed = true;
+        }
+
+        void retier(String id, TrustTier tier) {
+            Integer slot = slotById.get(id);
+            if (slot == null) {
+                return;
+            }
+            int oldPair = pairs[slot];
+            int newPair = RecallScope.pairIndex(SourceType.values()[oldPair / TIER_COUNT], tier);
+            if (oldPair == newPair) {
+                return;
+            }
+            pairBits[oldPair].clear(slot);
+            pairBits[newPair].set(slot);
+            pairs[slot] = (byte) newPair;
+            changed = true;
+        }
+
+        void removeExpiredBefore(long cutoffMillis) {
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                if (expiresAt[slot] <= cutoffMillis) {
+                    remove(ids[slot]);
+                }
+            }
+        }
+
+        Generation publish(long version) {
+            return new Generation(version, this);
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            pairs = Arrays.copyOf(pairs, capacity);
+            expiresAt = Arrays.copyOf(expiresAt, capacity);
+            storeSlot = Arrays.copyOf(storeSlot, capacity);
+        }
+
+        /** 复制并归一化进写者缓冲; 维度不符或零向量返回 false (按 badVector 计). */
+        private boolean normalizeInto(float[] embedding) {
+            int dimension = store.dimension();
+            if (embedding == null || embedding.length != dimension) {
+                return false;
+            }
+            if (buffer == null) {
+                buffer = new float[dimension];
+            }
+            double norm = 0d;
+            for (float v : embedding) {
+                norm += (double) v * v;
+            }
+            if (norm == 0d) {
+                return false;
+            }
+            double inv = 1d / Math.sqrt(norm);
+            for (int i = 0; i < dimension; i++) {
+                buffer[i] = (float) (embedding[i] * inv);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.agentweb.infra.refinery.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 定长槽位的内存映射向量文件. 文件按固定大小分段映射 (单个 MappedByteBuffer 上限 2GB),
+ * 槽位只追加不改写, 读取一律走绝对偏移, 因此并发读与单写者追加可以共存:
+ * 写者先写槽位字节, 再经 volatile 发布槽位数 ({@link #size()}), 读者只访问已发布槽位.
+ *
+ * <p>向量页由 OS page cache 管理, 不计入 Java heap; 进程内只保留分段引用.
+ * 文件是派生数据, 最后一个引用释放时关闭并删除 (Windows 上映射未回收前删除会失败, 留给下次启动清理).</p>
+ *
+ * <p>生命周期按引用计数: 创建者持有一个引用, {@link #close()} 只交出它 (退役);
+ * 检索前 {@link #retain()}、读完 {@link #release()}, 退役时仍在扫描的读者读完后才真正关闭.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Slf4j
+final class MappedVectorStore implements Closeable {
+
+    /** 单段目标大小; 远小于 2GB 上限, 扩容粒度也不至于太粗. */
+    private static final long SEGMENT_TARGET_BYTES = 256L * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final VectorEncoding encoding;
+    private final int dimension;
+    private final int slotBytes;
+    private final int slotsPerSegment;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean retired = new AtomicBoolean();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile int size;
+
+    private MappedVectorStore(Path file, FileChannel channel, VectorEncoding encoding, int dimension) {
+        this.file = file;
+        this.channel = channel;
+        this.encoding = encoding;
+        this.dimension = dimension;
+        this.slotBytes = encoding.slotBytes(dimension);
+        this.slotsPerSegment = (int) Math.max(1L, SEGMENT_TARGET_BYTES / slotBytes);
+    }
+
+    static MappedVectorStore create(Path file, VectorEncoding encoding, int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new MappedVectorStore(file, channel, encoding, dimension);
+        } catch (IOException e) {
+            throw new UncheckedIOException("vector index file create failed: " + file, e);
+        }
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    VectorEncoding encoding() {
+        return encoding;
+    }
+
+    /** 已发布槽位数. */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 追加一个已归一化向量, 返回槽位号. 单写者调用 (由索引的写锁保证).
+     */
+    int append(float[] normalized) {
+        if (normalized.length != dimension) {
+            throw new IllegalArgumentException(
+                    "dimension mismatch: " + normalized.length + " vs " + dimension);
+        }
+        int slot = size;
+        MappedByteBuffer segment = segmentForWrite(slot / slotsPerSegment);
+        encoding.write(segment, (slot % slotsPerSegment) * slotBytes, normalized);
+        size = slot + 1;
+        return slot;
+    }
+
+    /** 把槽位解码到 {@code dst} (长度须等于维度), 线程安全. */
+    void read(int slot, float[] dst) {
+        MappedByteBuffer segment = segments[slot / slotsPerSegment];
+        encoding.read(segment, (slot % slotsPerSegment) * slotBytes, dst);
+    }
+
+    private MappedByteBuffer segmentForWrite(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        long segmentBytes = (long) slotsPerSegment * slotBytes;
+        try {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                    index * segmentBytes, segmentBytes);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            MappedByteBuffer[] next = Arrays.copyOf(current, index + 1);
+            next[index] = mapped;
+            segments = next;
+            return mapped;
+        } catch (IOException e) {
+            throw new UncheckedIOException("vector index segment map failed: " + file, e);
+        }
+    }
+
+    /**
+     * 读者登记. 已退役且引用归零 (文件已删) 时返回 false, 调用方应改取当前一代.
+     */
+    boolean retain() {
+        for (;;) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** 释放一个引用; 归零时关闭通道并删除文件. */
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            destroy();
+        }
+    }
+
+    /** 退役: 交出创建者引用, 重复调用无效. 在途读者全部释放后才真正关闭. */
+    @Override
+    public void close() {
+        if (retired.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private void destroy() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("vector-index-channel-close-failed file={} reason={}", file, e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("vector-index-file-delete-deferred file={} reason={}", file, e.getMessage());
+        }
+    }
+}
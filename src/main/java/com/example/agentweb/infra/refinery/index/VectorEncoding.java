@@ -0,0 +1,109 @@
+package com.example.agentweb.infra.refinery.index;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * 向量索引槽位的编码方式. 入参向量一律先归一化, 因此各分量落在 [-1, 1].
+ *
+ * <ul>
+ *   <li>{@code FLOAT32}: 原样 4 字节/分量, 无损</li>
+ *   <li>{@code FLOAT16}: IEEE 754 半精度 2 字节/分量, 相对误差约 1e-3</li>
+ *   <li>{@code INT8}: 逐向量对称量化, 槽位头 4 字节存 scale (=max|x|/127), 其后 1 字节/分量</li>
+ * </ul>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public enum VectorEncoding {
+
+    FLOAT32 {
+        @Override
+        int slotBytes(int dimension) {
+            return dimension * Float.BYTES;
+        }
+
+        @Override
+        void write(ByteBuffer buf, int offset, float[] normalized) {
+            for (int i = 0; i < normalized.length; i++) {
+                buf.putFloat(offset + i * Float.BYTES, normalized[i]);
+            }
+        }
+
+        @Override
+        void read(ByteBuffer buf, int offset, float[] dst) {
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] = buf.getFloat(offset + i * Float.BYTES);
+            }
+        }
+    },
+
+    FLOAT16 {
+        @Override
+        int slotBytes(int dimension) {
+            return dimension * Short.BYTES;
+        }
+
+        @Override
+        void write(ByteBuffer buf, int offset, float[] normalized) {
+            for (int i = 0; i < normalized.length; i++) {
+                buf.putShort(offset + i * Short.BYTES, Float.floatToFloat16(normalized[i]));
+            }
+        }
+
+        @Override
+        void read(ByteBuffer buf, int offset, float[] dst) {
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] = Float.float16ToFloat(buf.getShort(offset + i * Short.BYTES));
+            }
+        }
+    },
+
+    INT8 {
+        @Override
+        int slotBytes(int dimension) {
+            return Float.BYTES + dimension;
+        }
+
+        @Override
+        void write(ByteBuffer buf, int offset, float[] normalized) {
+            float maxAbs = 0f;
+            for (float v : normalized) {
+                maxAbs = Math.max(maxAbs, Math.abs(v));
+            }
+            float scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+            buf.putFloat(offset, scale);
+            int base = offset + Float.BYTES;
+            for (int i = 0; i < normalized.length; i++) {
+                int q = Math.round(normalized[i] / scale);
+                buf.put(base + i, (byte) Math.max(-127, Math.min(127, q)));
+            }
+        }
+
+        @Override
+        void read(ByteBuffer buf, int offset, float[] dst) {
+            float scale = buf.getFloat(offset);
+            int base = offset + Float.BYTES;
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] = buf.get(base + i) * scale;
+            }
+        }
+    };
+
+    /** 单个槽位占用字节数. */
+    abstract int slotBytes(int dimension);
+
+    /** 把已归一化向量编码写入 {@code buf} 的绝对偏移处 (不改 position, 可与并发读共存). */
+    abstract void write(ByteBuffer buf, int offset, float[] normalized);
+
+    /** 从绝对偏移处解码到 {@code dst}; {@code dst.length} 即维度. */
+    abstract void read(ByteBuffer buf, int offset, float[] dst);
+
+    /** 解析配置值, 大小写不敏感; 空值按 INT8. */
+    static VectorEncoding parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return INT8;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
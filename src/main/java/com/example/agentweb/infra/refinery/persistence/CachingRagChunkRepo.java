@@ -3,30 +3,53 @@ package com.example.agentweb.infra.refinery.persistence;
 import com.example.agentweb.domain.refinery.ArchiveReason;
 import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
 import com.example.agentweb.domain.refinery.SourceType;
 import com.example.agentweb.domain.refinery.TrustTier;
 import com.example.agentweb.config.refinery.RefineryProperties;
+import com.example.agentweb.infra.refinery.index.MappedRagVectorIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * {@link RagChunkRepository} 的进程内快照缓存装饰器 (设计方案 §B4).
  *
- * <p>只加速召回读路径 {@link #findActive}: 快照持有全量活跃 chunk (含解码 embedding),
- * "未过期"谓词在读取时内存过滤——TTL 自然到期无需失效; 任一写路径置空快照, 下次读全量重载
- * (单写者进程, 万条量级重载 <100ms, 不做增量维护). admin 分页/统计等低频读保持直查.</p>
+ * <p>只加速召回读路径 {@link #findActive}: 快照持有全量活跃 chunk (含解码 embedding 与预算范数),
+ * "未过期"谓词在读取时内存过滤——TTL 自然到期无需失效. 写路径在 DB 写成功后对快照做增量
+ * (直接改已发布的并发 map, 单次写只动受影响条目, 不整表复制): 新增/改 tier/重嵌入按 id 回读单行替换,
+ * 归档/删除按 id 摘除, TTL 批量归档按同一谓词摘除. 增量幂等, 且与首次全量加载在同一把锁下串行,
+ * 交错时不会丢写; 回读单行与改 map 也在这把锁内, 并发归档/删除不会被回读到的旧行覆盖回来;
+ * 读者无锁弱一致地遍历, 每个条目要么是改前、要么是改后的整行. admin 分页/统计等低频读保持直查.</p>
  *
  * <p>护栏: {@code agent.refinery.recall.cache-enabled} 关闭或活跃池超
  * {@code cache-max-chunks} 软上限时自动回落直查, 防 heap 意外膨胀.
  * 快照返回共享实例, 调用方不得原地修改聚合状态.</p>
  *
+ * <p>召回主路径已改走 {@link MappedRagVectorIndex} (堆外、无软上限), 写路径同步把同一增量转给索引;
+ * 本快照继续服务索引关闭时的线性扫描与重嵌入等全量读.</p>
+ *
+ * <p>影子代切换 ({@link #swapGeneration}) 改动面不可增量表达, 整体丢弃快照与索引, 下次读取重新加载.</p>
+ *
+ * <p>指标: {@code refinery.chunk.cache.reload} 全量加载次数, {@code refinery.chunk.cache.delta}
+ * 按 {@code op} 计的增量次数, {@code refinery.chunk.cache.bypass} 超软上限回落次数,
+ * {@code refinery.chunk.cache.size} 当前快照条数 (未加载或回落时为 0).</p>
+ *
  * @author zhourui(V33215020)
  * @since 2026-07-02
  */
@@ -37,11 +60,35 @@ public class CachingRagChunkRepo implements RagChunkRepository {
 
     private final SqliteRagChunkRepo delegate;
     private final RefineryProperties props;
-    private volatile List<RagChunk> snapshot;
+    private final MappedRagVectorIndex vectorIndex;
+    private final MeterRegistry registry;
+    private final Counter reloadCounter;
+    private final Counter bypassCounter;
+    private final Object writeLock = new Object();
+    /** 已发布快照; null = 尚未加载 / 已回落直查. 只在 {@link #writeLock} 下替换或修改. */
+    private volatile Snapshot snapshot;
 
-    public CachingRagChunkRepo(SqliteRagChunkRepo delegate, RefineryProperties props) {
+    @Autowired
+    public CachingRagChunkRepo(SqliteRagChunkRepo delegate, RefineryProperties props,
+                               MappedRagVectorIndex vectorIndex, MeterRegistry registry) {
         this.delegate = delegate;
         this.props = props;
+        this.vectorIndex = vectorIndex;
+        this.registry = registry;
+        this.reloadCounter = Counter.builder("refinery.chunk.cache.reload").register(registry);
+        this.bypassCounter = Counter.builder("refinery.chunk.cache.bypass").register(registry);
+        Gauge.builder("refinery.chunk.cache.size", this, CachingRagChunkRepo::snapshotSize)
+                .register(registry);
+    }
+
+    /** 测试用: 不挂向量索引, 只验证快照语义. */
+    CachingRagChunkRepo(SqliteRagChunkRepo delegate, RefineryProperties props, MeterRegistry registry) {
+        this(delegate, props, null, registry);
+    }
+
+    /** 测试用: 不挂向量索引, 指标落本地 registry. */
+    CachingRagChunkRepo(SqliteRagChunkRepo delegate, RefineryProperties props) {
+        this(delegate, props, new SimpleMeterRegistry());
     }
 
     @Override
@@ -49,37 +96,53 @@ public class CachingRagChunkRepo implements RagChunkRepository {
         if (!props.getRecall().isCacheEnabled()) {
             return delegate.findActive(now);
         }
-        List<RagChunk> cached = snapshot;
+        Snapshot cached = snapshot;
         if (cached == null) {
             cached = reload(now);
             if (cached == null) {
                 return delegate.findActive(now);
             }
         }
-        return filterUnexpired(cached, now);
+        return filterUnexpired(cached.chunks.values(), now);
     }
 
-    /** 全量重载快照; 超软上限时返回 null 表示回落直查 (不缓存). */
-    private List<RagChunk> reload(Instant now) {
-        int maxChunks = props.getRecall().getCacheMaxChunks();
-        List<RagChunk> loaded = maxChunks > 0
-                ? delegate.findActiveLimited(now, maxChunks + 1)
-                : delegate.findActive(now);
-        if (maxChunks > 0 && loaded.size() > maxChunks) {
-            log.warn("rag-chunk-cache-bypass activeCount={} exceeds cacheMaxChunks={}, fallback to direct query",
-                    loaded.size(), maxChunks);
-            return null;
-        }
-        snapshot = loaded;
-        if (log.isDebugEnabled() && !loaded.isEmpty()) {
-            long embeddingBytes = (long) loaded.size() * loaded.get(0).getEmbedding().length * 4L;
-            log.debug("rag-chunk-cache-reloaded count={} estEmbeddingMB={}",
-                    loaded.size(), embeddingBytes / 1024 / 1024);
+    /**
+     * 全量加载快照 (写锁内, 与增量串行); 超软上限时返回 null 表示回落直查 (不缓存).
+     * 加载谓词用 {@code now}, 之后到期的条目仍靠读时过滤.
+     */
+    private Snapshot reload(Instant now) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            int maxChunks = props.getRecall().getCacheMaxChunks();
+            List<RagChunk> loaded = maxChunks > 0
+                    ? delegate.findActiveLimited(now, maxChunks + 1)
+                    : delegate.findActive(now);
+            if (maxChunks > 0 && loaded.size() > maxChunks) {
+                bypassCounter.increment();
+                log.warn("rag-chunk-cache-bypass activeCount={} exceeds cacheMaxChunks={}, fallback to direct query",
+                        loaded.size(), maxChunks);
+                return null;
+            }
+            Map<String, RagChunk> byId = new ConcurrentHashMap<String, RagChunk>(loaded.size() * 2);
+            for (RagChunk chunk : loaded) {
+                byId.put(chunk.getId(), chunk);
+            }
+            Snapshot reloaded = new Snapshot(byId);
+            snapshot = reloaded;
+            reloadCounter.increment();
+            if (log.isDebugEnabled() && !loaded.isEmpty()) {
+                long embeddingBytes = (long) loaded.size() * loaded.get(0).getEmbedding().length * 4L;
+                log.debug("rag-chunk-cache-reloaded count={} estEmbeddingMB={}",
+                        loaded.size(), embeddingBytes / 1024 / 1024);
+            }
+            return reloaded;
         }
-        return loaded;
     }
 
-    private List<RagChunk> filterUnexpired(List<RagChunk> chunks, Instant now) {
+    private List<RagChunk> filterUnexpired(Collection<RagChunk> chunks, Instant now) {
         List<RagChunk> result = new ArrayList<RagChunk>(chunks.size());
         for (RagChunk chunk : chunks) {
             if (chunk.getExpiresAt() == null || chunk.getExpiresAt().isAfter(now)) {
@@ -89,56 +152,142 @@ public class CachingRagChunkRepo implements RagChunkRepository {
         return result;
     }
 
-    private void invalidate() {
-        snapshot = null;
+    /**
+     * 在写锁内原地对已发布快照应用一次增量; 尚未加载时跳过 (下次全量加载自然包含本次写).
+     * 增量后超软上限则整体丢弃快照, 交给下次读按软上限决定是否回落.
+     */
+    private void applyDelta(String op, Consumer<Map<String, RagChunk>> delta) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            registry.counter("refinery.chunk.cache.delta", "op", op).increment();
+            delta.accept(current.chunks);
+            int maxChunks = props.getRecall().getCacheMaxChunks();
+            if (maxChunks > 0 && current.chunks.size() > maxChunks) {
+                snapshot = null;
+            }
+        }
+    }
+
+    /**
+     * 按 DB 当前行替换快照条目: 不存在或已归档即摘除, 返回回读结果 (可空).
+     * 回读与发布在同一把写锁内: 锁外回读时, 其间提交的归档/删除先摘除、再被这里回读到的旧行覆盖, 条目就复活了.
+     * 调用方若还要把回读结果转给索引, 也须在写锁内完成, 理由相同.
+     */
+    private RagChunk refreshOne(String op, String id) {
+        synchronized (writeLock) {
+            RagChunk fresh = delegate.findById(id).orElse(null);
+            applyDelta(op, chunks -> {
+                if (fresh == null || fresh.getArchivedAt() != null) {
+                    chunks.remove(id);
+                } else {
+                    chunks.put(id, fresh);
+                }
+            });
+            return fresh;
+        }
+    }
+
+    private double snapshotSize() {
+        Snapshot current = snapshot;
+        return current == null ? 0d : current.chunks.size();
     }
 
     @Override
     public void save(RagChunk chunk) {
         delegate.save(chunk);
-        invalidate();
+        synchronized (writeLock) {
+            // INSERT OR IGNORE: 以 DB 落盘行为准, 同 id 重复 save 不会覆盖快照
+            RagChunk persisted = refreshOne("save", chunk.getId());
+            if (vectorIndex != null && persisted != null) {
+                vectorIndex.onSaved(persisted);
+            }
+        }
     }
 
     @Override
     public boolean markArchived(String id, Instant when, ArchiveReason reason) {
         boolean changed = delegate.markArchived(id, when, reason);
-        invalidate();
+        if (changed) {
+            removeIds("archive", Collections.singletonList(id));
+        }
         return changed;
     }
 
     @Override
     public int archiveExpiredBefore(Instant cutoff) {
         int rows = delegate.archiveExpiredBefore(cutoff);
-        invalidate();
+        if (rows > 0) {
+            // 与 SQL 谓词同口径: expires_at IS NOT NULL AND expires_at <= cutoff
+            synchronized (writeLock) {
+                applyDelta("expire", chunks -> chunks.values().removeIf(
+                        c -> c.getExpiresAt() != null && !c.getExpiresAt().isAfter(cutoff)));
+                if (vectorIndex != null) {
+                    vectorIndex.onExpiredBefore(cutoff);
+                }
+            }
+        }
         return rows;
     }
 
     @Override
     public boolean updateTier(String chunkId, TrustTier tier) {
         boolean changed = delegate.updateTier(chunkId, tier);
-        invalidate();
+        if (changed) {
+            synchronized (writeLock) {
+                refreshOne("retier", chunkId);
+                if (vectorIndex != null) {
+                    vectorIndex.onRetiered(chunkId, tier);
+                }
+            }
+        }
         return changed;
     }
 
     @Override
     public int deleteBySourceSessionId(String sessionId) {
         int rows = delegate.deleteBySourceSessionId(sessionId);
-        invalidate();
+        if (rows > 0) {
+            applyDelta("delete", chunks -> chunks.values().removeIf(
+                    c -> sessionId.equals(c.getSourceSessionId())));
+            // 索引不持有 sourceSessionId; 低频的 admin 操作, 直接全量重建
+            if (vectorIndex != null) {
+                vectorIndex.invalidate();
+            }
+        }
         return rows;
     }
 
     @Override
     public boolean deleteById(String id) {
         boolean deleted = delegate.deleteById(id);
-        invalidate();
+        if (deleted) {
+            removeIds("delete", Collections.singletonList(id));
+        }
         return deleted;
     }
 
+    private void removeIds(String op, List<String> ids) {
+        synchronized (writeLock) {
+            applyDelta(op, chunks -> chunks.keySet().removeAll(ids));
+            if (vectorIndex != null) {
+                vectorIndex.onRemoved(ids);
+            }
+        }
+    }
+
     @Override
     public Optional<RagChunk> findById(String id) {
         return delegate.findById(id);
     }
 
+    @Override
+    public List<RagChunk> findByIds(Collection<String> ids) {
+        return delegate.findByIds(ids);
+    }
+
     @Override
     public Map<SourceType, Integer> countActiveBySourceType() {
         return delegate.countActiveBySourceType();
@@ -168,7 +317,46 @@ public class CachingRagChunkRepo implements RagChunkRepository {
     @Override
     public boolean updateEmbedding(String chunkId, float[] embedding, String embeddingModel) {
         boolean changed = delegate.updateEmbedding(chunkId, embedding, embeddingModel);
-        invalidate();
+        if (changed) {
+            synchronized (writeLock) {
+                RagChunk fresh = refreshOne("reembed", chunkId);
+                if (vectorIndex != null) {
+                    if (fresh != null) {
+                        vectorIndex.onReplaced(fresh);
+                    } else {
+                        vectorIndex.onRemoved(Collections.singletonList(chunkId));
+                    }
+                }
+            }
+        }
         return changed;
     }
+
+    /**
+     * 影子代切换: DB 事务提交后在写锁内丢弃快照并让索引整体重建, 与增量和全量加载串行.
+     * 读者要么仍在旧版本上读完整代旧数据, 要么在下一次加载时读到提交后的整代新数据, 不会看到半代.
+     */
+    @Override
+    public int swapGeneration(RagGeneration generation, Instant now) {
+        synchronized (writeLock) {
+            int rows = delegate.swapGeneration(generation, now);
+            if (snapshot != null) {
+                registry.counter("refinery.chunk.cache.delta", "op", "swap").increment();
+                snapshot = null;
+            }
+            if (vectorIndex != null) {
+                vectorIndex.invalidate();
+            }
+            return rows;
+        }
+    }
+
+    /** 一次全量加载的结果; 之后的增量在写锁内原地修改, 读者无锁遍历. */
+    private static final class Snapshot {
+        final Map<String, RagChunk> chunks;
+
+        Snapshot(Map<String, RagChunk> chunks) {
+            this.chunks = chunks;
+        }
+    }
 }
@@ -4,6 +4,7 @@ import com.example.agentweb.domain.shared.AgentType;
 import com.example.agentweb.domain.refinery.ArchiveReason;
 import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
 import com.example.agentweb.domain.refinery.RefinedContent;
 import com.example.agentweb.domain.refinery.SourceType;
 import com.example.agentweb.domain.refinery.TrustTier;
@@ -13,13 +14,18 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.UncheckedIOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
@@ -43,27 +49,42 @@ public class SqliteRagChunkRepo implements RagChunkRepository {
     private static final TypeReference<List<String>> STRING_LIST = new TypeReference<List<String>>() {
     };
 
-    private static final String COLUMNS =
+    static final String COLUMNS =
             "id, source_session_id, source_msg_range, title, trigger_signals, trigger_description, "
                     + "context, process, conclusion, ttl_category, score, created_at, expires_at, "
                     + "archived_at, agent_type, embedding_model, embedding, source_type, tier, env, "
                     + "detail_path";
 
+    static final String PLACEHOLDERS = String.join(", ", Collections.nCopies(21, "?"));
+
     /** "可召回"判定: 未归档且未过期. findActive / findPage(activeOnly) / count(activeOnly) 共用, 防口径漂移. */
     private static final String ACTIVE_WHERE =
             "archived_at IS NULL AND (expires_at IS NULL OR expires_at > ?)";
 
+    /** IN 子句单批 id 数, 远低于 SQLite 绑定参数上限. */
+    private static final int ID_BATCH_SIZE = 500;
+
     private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
 
     public SqliteRagChunkRepo(JdbcTemplate jdbc) {
         this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
     }
 
     @Override
     public void save(RagChunk chunk) {
         int rows = jdbc.update(
-                "INSERT OR IGNORE INTO chat_rag_chunk (" + COLUMNS
-                        + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                "INSERT OR IGNORE INTO chat_rag_chunk (" + COLUMNS + ") VALUES (" + PLACEHOLDERS + ")",
+                rowValues(chunk));
+        log.debug("refinery-chunk-saved id={} session={} sourceType={} tier={} score={} affectedRows={}",
+                chunk.getId(), chunk.getSourceSessionId(),
+                chunk.getSourceType(), chunk.getTier(), chunk.getScore(), rows);
+    }
+
+    /** 按 {@link #COLUMNS} 顺序展开一条 chunk 的列值, 影子集写入共用. */
+    static Object[] rowValues(RagChunk chunk) {
+        return new Object[]{
                 chunk.getId(),
                 chunk.getSourceSessionId(),
                 chunk.getSourceMsgRange(),
@@ -85,10 +106,7 @@ public class SqliteRagChunkRepo implements RagChunkRepository {
                 chunk.getTier().name(),
                 chunk.getEnv(),
                 chunk.getDetailPath()
-        );
-        log.debug("refinery-chunk-saved id={} session={} sourceType={} tier={} score={} affectedRows={}",
-                chunk.getId(), chunk.getSourceSessionId(),
-                chunk.getSourceType(), chunk.getTier(), chunk.getScore(), rows);
+        };
     }
 
     @Override
@@ -116,6 +134,45 @@ public class SqliteRagChunkRepo implements RagChunkRepository {
                 now.toEpochMilli(), limit);
     }
 
+    @Override
+    public List<RagChunk> findByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> all = new ArrayList<>(ids);
+        List<RagChunk> result = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += ID_BATCH_SIZE) {
+            List<String> batch = all.subList(from, Math.min(all.size(), from + ID_BATCH_SIZE));
+            String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+            result.addAll(jdbc.query(
+                    "SELECT " + COLUMNS + " FROM chat_rag_chunk WHERE id IN (" + placeholders + ")",
+                    ROW_MAPPER,
+                    batch.toArray()));
+        }
+        return result;
+    }
+
+    /**
+     * 流式遍历全部未归档 chunk 的向量与过滤元数据, 供向量索引重建. 逐行回调原始 BLOB,
+     * 不构造聚合根, 重建期间 heap 只保留当前行.
+     */
+    public void forEachUnarchivedVector(VectorRowHandler handler) {
+        jdbc.query(
+                "SELECT id, source_type, tier, expires_at, embedding FROM chat_rag_chunk WHERE archived_at IS NULL",
+                (RowCallbackHandler) rs -> handler.handle(
+                        rs.getString("id"),
+                        SourceType.valueOf(rs.getString("source_type")),
+                        TrustTier.valueOf(rs.getString("tier")),
+                        fromEpochOrNull(rs, "expires_at"),
+                        rs.getBytes("embedding")));
+    }
+
+    /** {@link #forEachUnarchivedVector} 的逐行回调. */
+    @FunctionalInterface
+    public interface VectorRowHandler {
+        void handle(String id, SourceType sourceType, TrustTier tier, Instant expiresAt, byte[] embedding);
+    }
+
     @Override
     public boolean markArchived(String id, Instant when, ArchiveReason reason) {
         int rows = jdbc.update(
@@ -245,6 +302,41 @@ public class SqliteRagChunkRepo implements RagChunkRepository {
                 EmbeddingCodec.encode(embedding), embeddingModel, chunkId) > 0;
     }
 
+    @Override
+    public int swapGeneration(RagGeneration generation, Instant now) {
+        long id = generation.getId();
+        Integer swapped = transactions.execute(status -> {
+            int rows;
+            if (generation.getKind() == RagGeneration.Kind.REBUILD) {
+                int retired = jdbc.update("DELETE FROM chat_rag_chunk WHERE created_at < ? AND source_session_id IN ("
+                                + "SELECT item_id FROM chat_rag_generation_item WHERE generation = ? AND outcome <> ?)",
+                        generation.getCreatedAt().toEpochMilli(), id, RagGeneration.ItemOutcome.FAILED.name());
+                rows = jdbc.update("INSERT OR IGNORE INTO chat_rag_chunk (" + COLUMNS + ") SELECT " + COLUMNS
+                        + " FROM chat_rag_shadow_chunk WHERE generation = ?", id);
+                log.info("refinery-generation-rebuild-swapped generation={} retired={} promoted={}",
+                        id, retired, rows);
+            } else {
+                rows = jdbc.update("UPDATE chat_rag_chunk SET "
+                        + "embedding = (SELECT s.embedding FROM chat_rag_shadow_chunk s "
+                        + "WHERE s.generation = ? AND s.id = chat_rag_chunk.id), "
+                        + "embedding_model = (SELECT s.embedding_model FROM chat_rag_shadow_chunk s "
+                        + "WHERE s.generation = ? AND s.id = chat_rag_chunk.id) "
+                        + "WHERE id IN (SELECT id FROM chat_rag_shadow_chunk WHERE generation = ?)", id, id, id);
+                log.info("refinery-generation-reembed-swapped generation={} model={} replaced={}",
+                        id, generation.getEmbeddingModel(), rows);
+            }
+            jdbc.update("DELETE FROM chat_rag_shadow_chunk WHERE generation = ?", id);
+            int marked = jdbc.update("UPDATE chat_rag_generation SET status = ?, finished_at = ? "
+                            + "WHERE id = ? AND status = ?", RagGeneration.Status.SWAPPED.name(),
+                    now.toEpochMilli(), id, RagGeneration.Status.BUILDING.name());
+            if (marked == 0) {
+                throw new IllegalStateException("generation " + id + " is no longer building");
+            }
+            return rows;
+        });
+        return swapped == null ? 0 : swapped;
+    }
+
     private static Instant fromEpochOrNull(ResultSet rs, String column) throws SQLException {
         long value = rs.getLong(column);
         return rs.wasNull() ? null : Instant.ofEpochMilli(value);
@@ -0,0 +1,179 @@
+package com.example.agentweb.infra.refinery.persistence;
+
+import com.example.agentweb.domain.refinery.RagChunk;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RagGenerationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link RagGenerationRepository} 的 SQLite 实现.
+ *
+ * <p>代的元数据在 {@code chat_rag_generation}, 单元结论在 {@code chat_rag_generation_item},
+ * 影子 chunk 在 {@code chat_rag_shadow_chunk} (列编码与 {@link SqliteRagChunkRepo} 共用).
+ * 进度统计在读取时按代聚合, 不单独维护计数列.</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Repository
+@Slf4j
+public class SqliteRagGenerationRepo implements RagGenerationRepository {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<List<String>>() {
+    };
+
+    private static final String SELECT = "SELECT g.id, g.kind, g.status, g.scope_json, g.embedding_model, "
+            + "g.total, g.created_at, g.finished_at, "
+            + "(SELECT COUNT(*) FROM chat_rag_generation_item i WHERE i.generation = g.id) AS processed, "
+            + "(SELECT COUNT(*) FROM chat_rag_generation_item i WHERE i.generation = g.id "
+            + "AND i.outcome = 'FAILED') AS failed, "
+            + "(SELECT COUNT(*) FROM chat_rag_shadow_chunk s WHERE s.generation = g.id) AS shadow_chunks "
+            + "FROM chat_rag_generation g ";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public SqliteRagGenerationRepo(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+    }
+
+    @Override
+    public RagGeneration open(RagGeneration.Kind kind, List<String> scope, String embeddingModel,
+                              int total, Instant now) {
+        String scopeJson = serializeScope(scope);
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO chat_rag_generation (kind, status, scope_json, embedding_model, total, created_at) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, kind.name());
+            ps.setString(2, RagGeneration.Status.BUILDING.name());
+            ps.setString(3, scopeJson);
+            ps.setString(4, embeddingModel);
+            ps.setInt(5, total);
+            ps.setLong(6, now.toEpochMilli());
+            return ps;
+        }, keys);
+        long id = keys.getKey().longValue();
+        log.info("refinery-generation-opened generation={} kind={} model={} total={}",
+                id, kind, embeddingModel, total);
+        return new RagGeneration(id, kind, RagGeneration.Status.BUILDING, scope, embeddingModel,
+                total, 0, 0, 0, now, null);
+    }
+
+    @Override
+    public Optional<RagGeneration> findBuilding(RagGeneration.Kind kind) {
+        List<RagGeneration> found = jdbc.query(SELECT + "WHERE g.kind = ? AND g.status = ? ORDER BY g.id DESC LIMIT 1",
+                ROW_MAPPER, kind.name(), RagGeneration.Status.BUILDING.name());
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    @Override
+    public List<RagGeneration> findRecent(int limit) {
+        return jdbc.query(SELECT + "ORDER BY g.id DESC LIMIT ?", ROW_MAPPER, limit);
+    }
+
+    @Override
+    public Set<String> findProcessedItems(long generationId) {
+        return new HashSet<String>(jdbc.queryForList(
+                "SELECT item_id FROM chat_rag_generation_item WHERE generation = ?", String.class, generationId));
+    }
+
+    @Override
+    public void recordItem(long generationId, String itemId, RagGeneration.ItemOutcome outcome,
+                           RagChunk shadowChunk) {
+        transactions.executeWithoutResult(status -> {
+            jdbc.update("DELETE FROM chat_rag_shadow_chunk WHERE generation = ? AND item_id = ?",
+                    generationId, itemId);
+            if (shadowChunk != null) {
+                Object[] row = SqliteRagChunkRepo.rowValues(shadowChunk);
+                Object[] args = new Object[row.length + 2];
+                args[0] = generationId;
+                args[1] = itemId;
+                System.arraycopy(row, 0, args, 2, row.length);
+                jdbc.update("INSERT INTO chat_rag_shadow_chunk (generation, item_id, " + SqliteRagChunkRepo.COLUMNS
+                        + ") VALUES (?, ?, " + SqliteRagChunkRepo.PLACEHOLDERS + ")", args);
+            }
+            jdbc.update("INSERT OR REPLACE INTO chat_rag_generation_item (generation, item_id, outcome) "
+                    + "VALUES (?, ?, ?)", generationId, itemId, outcome.name());
+        });
+    }
+
+    @Override
+    public boolean abandon(long generationId, Instant now) {
+        Boolean abandoned = transactions.execute(status -> {
+            int rows = jdbc.update("UPDATE chat_rag_generation SET status = ?, finished_at = ? "
+                            + "WHERE id = ? AND status = ?", RagGeneration.Status.ABANDONED.name(),
+                    now.toEpochMilli(), generationId, RagGeneration.Status.BUILDING.name());
+            if (rows > 0) {
+                jdbc.update("DELETE FROM chat_rag_shadow_chunk WHERE generation = ?", generationId);
+            }
+            return rows > 0;
+        });
+        if (Boolean.TRUE.equals(abandoned)) {
+            log.info("refinery-generation-abandoned generation={}", generationId);
+        }
+        return Boolean.TRUE.equals(abandoned);
+    }
+
+    private static String serializeScope(List<String> scope) {
+        if (scope == null || scope.isEmpty()) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(scope);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> deserializeScope(String json) {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return MAPPER.readValue(json, STRING_LIST);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final RowMapper<RagGeneration> ROW_MAPPER = (rs, rowNum) -> {
+        long finishedAt = rs.getLong("finished_at");
+        boolean unfinished = rs.wasNull();
+        return new RagGeneration(
+                rs.getLong("id"),
+                RagGeneration.Kind.valueOf(rs.getString("kind")),
+                RagGeneration.Status.valueOf(rs.getString("status")),
+                deserializeScope(rs.getString("scope_json")),
+                rs.getString("embedding_model"),
+                rs.getInt("total"),
+                rs.getInt("processed"),
+                rs.getInt("failed"),
+                rs.getInt("shadow_chunks"),
+                Instant.ofEpochMilli(rs.getLong("created_at")),
+                unfinished ? null : Instant.ofEpochMilli(finishedAt));
+    };
+}
@@ -1,6 +1,7 @@
 package com.example.agentweb.infra.refinery.scheduling;
 
 import com.example.agentweb.app.refinery.RefineryAppService;
+import com.example.agentweb.app.refinery.RefineryIngestProgress;
 import com.example.agentweb.domain.chat.SessionRepository;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
 import com.example.agentweb.domain.refinery.SessionRefineryState;
@@ -21,9 +22,9 @@ import java.util.List;
 
 /**
  * refinery 定时调度器. {@code agent.refinery.enabled=true} 时启动注册 fixedDelay,
- * 每轮 tick 拉取 last_message_at &lt; now - silentMinutes 的会话, 串行交给 AppService 评分.
+ * 每轮 tick 拉取 last_message_at &lt; now - silentMinutes 的会话, 整批交给 AppService 的 ingest 流水线.
  *
- * <p>tick 内每个 sessionId 独立 try-catch, 任意异常不会让 scheduler 死掉.</p>
+ * <p>单会话失败由流水线隔离; 这里再兜一层 try-catch, 任意异常不会让 scheduler 死掉.</p>
  *
  * @author zhourui(V33215020)
  * @since 2026-05-28
@@ -34,6 +35,7 @@ import java.util.List;
 public class ChatRefineryTrigger {
 
     private static final long SECONDS_PER_MINUTE = 60L;
+    private static final String ORIGIN = "tick";
 
     private final RefineryAppService appService;
     private final SessionRepository sessionRepo;
@@ -83,14 +85,13 @@ public class ChatRefineryTrigger {
             return;
         }
         int saved = 0;
-        for (String sessionId : candidates) {
+        if (!candidates.isEmpty()) {
             try {
-                if (appService.refineAndIngest(sessionId)) {
-                    saved++;
-                }
+                RefineryIngestProgress progress = appService.refineAndIngestAll(ORIGIN, candidates);
+                saved = progress.getSaved();
             } catch (RuntimeException e) {
-                log.error("refinery-tick-session-failed sessionId={} traceId={}",
-                        sessionId, traceId, e);
+                log.error("refinery-tick-ingest-failed candidateCount={} traceId={}",
+                        candidates.size(), traceId, e);
             }
         }
         try {
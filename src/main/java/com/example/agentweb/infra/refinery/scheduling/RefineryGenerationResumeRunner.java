@@ -0,0 +1,36 @@
+package com.example.agentweb.infra.refinery.scheduling;
+
+import com.example.agentweb.app.refinery.RefineryRebuildService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时续跑上次进程退出前未切换的重建影子代; 续跑在后台执行器上进行, 不阻塞启动.
+ * 续跑失败只记日志, 该代保持 BUILDING, 下次启动或管理台重跑时再处理.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@ConditionalOnProperty(prefix = "agent.refinery", name = "enabled", havingValue = "true")
+@Slf4j
+public class RefineryGenerationResumeRunner implements ApplicationRunner {
+
+    private final RefineryRebuildService rebuildService;
+
+    public RefineryGenerationResumeRunner(RefineryRebuildService rebuildService) {
+        this.rebuildService = rebuildService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            rebuildService.resumeInterrupted();
+        } catch (RuntimeException e) {
+            log.error("refinery-generation-resume-failed", e);
+        }
+    }
+}
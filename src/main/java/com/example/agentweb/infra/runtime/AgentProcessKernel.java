@@ -37,7 +37,9 @@ import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ThreadFactory;
@@ -59,6 +61,10 @@ import com.example.agentweb.app.agentrun.port.AgentRunInvocation;
  * <p>子进程继承服务进程的 CLI 登录态；若 Profile 显式配置 API Key，则仅在
  * {@code ProcessBuilder.start()} 前注入方言要求的环境变量，并在启动后清理父进程映射。</p>
  *
+ * <p>stdout 读取有两种 {@link MonitorMode}：{@code POLLING} 以 {@code ready()} + 20ms 休眠轮询；
+ * {@code BLOCKING} 在监视线程（生产装配为虚拟线程）上阻塞 {@code readLine()}，整体超时、停止与
+ * 进程退出后的排空宽限由调度器截止任务终止进程树或关闭流来驱动，逐行输出无轮询延迟。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
@@ -66,6 +72,12 @@ public final class AgentProcessKernel implements AutoCloseable {
 
     private static final long MONITOR_INTERVAL_MILLIS = 20L;
 
+    /** stdout 监视方式，见类注释。 */
+    public enum MonitorMode {
+        POLLING,
+        BLOCKING
+    }
+
     private static ThreadFactory namedFactory(String prefix) {
         AtomicInteger counter = new AtomicInteger(0);
         return runnable -> {
@@ -83,6 +95,7 @@ public final class AgentProcessKernel implements AutoCloseable {
     private final RuntimeProcessRegistry processRegistry;
     private final RuntimeCleanup cleanup;
     private final Executor monitorExecutor;
+    private final MonitorMode monitorMode;
     private final LongSupplier toolNanoTimeSource;
     private final RuntimeAttachmentVerifier attachmentVerifier;
     private final ScheduledExecutorService watchdogScheduler;
@@ -113,7 +126,33 @@ public final class AgentProcessKernel implements AutoCloseable {
                               Executor monitorExecutor) {
         this(commandFactory, workspaceMaterializer, capabilityMaterializer,
                 eventDecoder, processRegistry, cleanup, monitorExecutor,
-                System::nanoTime);
+                MonitorMode.POLLING);
+    }
+
+    public AgentProcessKernel(RuntimeCommandFactory commandFactory,
+                              RuntimeWorkspaceMaterializer workspaceMaterializer,
+                              RuntimeCapabilityMaterializer capabilityMaterializer,
+                              RuntimeEventDecoder eventDecoder,
+                              RuntimeProcessRegistry processRegistry,
+                              RuntimeCleanup cleanup,
+                              Executor monitorExecutor,
+                              MonitorMode monitorMode) {
+        this(commandFactory, workspaceMaterializer, capabilityMaterializer,
+                eventDecoder, processRegistry, cleanup, monitorExecutor,
+                monitorMode, System::nanoTime);
+    }
+
+    AgentProcessKernel(RuntimeCommandFactory commandFactory,
+                       RuntimeWorkspaceMaterializer workspaceMaterializer,
+                       RuntimeCapabilityMaterializer capabilityMaterializer,
+                       RuntimeEventDecoder eventDecoder,
+                       RuntimeProcessRegistry processRegistry,
+                       RuntimeCleanup cleanup,
+                       Executor monitorExecutor,
+                       LongSupplier toolNanoTimeSource) {
+        this(commandFactory, workspaceMaterializer, capabilityMaterializer,
+                eventDecoder, processRegistry, cleanup, monitorExecutor,
+                MonitorMode.POLLING, toolNanoTimeSource);
     }
 
     AgentProcessKernel(RuntimeCommandFactory commandFactory,
@@ -123,6 +162,7 @@ public final class AgentProcessKernel implements AutoCloseable {
                        RuntimeProcessRegistry processRegistry,
                        RuntimeCleanup cleanup,
                        Executor monitorExecutor,
+                       MonitorMode monitorMode,
                        LongSupplier toolNanoTimeSource) {
         this.commandFactory = Objects.requireNonNull(commandFactory, "commandFactory");
         this.workspaceMaterializer = Objects.requireNonNull(
@@ -133,6 +173,7 @@ public final class AgentProcessKernel implements AutoCloseable {
         this.processRegistry = Objects.requireNonNull(processRegistry, "processRegistry");
         this.cleanup = Objects.requireNonNull(cleanup, "cleanup");
         this.monitorExecutor = Objects.requireNonNull(monitorExecutor, "monitorExecutor");
+        this.monitorMode = Objects.requireNonNull(monitorMode, "monitorMode");
         this.toolNanoTimeSource = Objects.requireNonNull(
                 toolNanoTimeSource, "toolNanoTimeSource");
         this.attachmentVerifier = new RuntimeAttachmentVerifier();
@@ -258,7 +299,11 @@ public final class AgentProcessKernel implements AutoCloseable {
             context.writeInput();
             context.emit(RuntimeEventType.STARTED, "runtime started");
             context.startWatchdog();
-            monitorExecutor.execute(() -> monitor(context));
+            if (monitorMode == MonitorMode.BLOCKING) {
+                monitorExecutor.execute(() -> monitorBlocking(context));
+            } else {
+                monitorExecutor.execute(() -> monitor(context));
+            }
             return handle;
         } catch (Exception ex) {
             if (capabilities != null) {
@@ -462,21 +507,7 @@ public final class AgentProcessKernel implements AutoCloseable {
                 }
             }
             exitCode = waitForExit(context.getProcess());
-            if (reason == null) {
-                reason = context.timeoutTerminationReason();
-            }
-            if (reason == null
-                    && processRegistry.observe(context.getHandle()).getState()
-                    == RuntimeState.STOP_REQUESTED) {
-                reason = RuntimeTerminationReason.REQUESTED_STOP;
-            }
-            if (reason == null) {
-                if (turnFailed || exitCode != 0) {
-                    reason = RuntimeTerminationReason.PROCESS_FAILURE;
-                } else {
-                    reason = RuntimeTerminationReason.COMPLETED;
-                }
-            }
+            reason = exitReason(context, reason, turnFailed, exitCode);
             if (reason == RuntimeTerminationReason.COMPLETED) {
                 // Codex emits turn.completed before its process has necessarily exited. The
                 // one-second drain guard may therefore terminate a still-lingering process,
@@ -498,6 +529,109 @@ public final class AgentProcessKernel implements AutoCloseable {
         }
     }
 
+    /**
+     * 阻塞式监视：逐行 {@code readLine()} 直到 EOF 或出现停止原因。整体超时由调度任务标记并终止
+     * 进程树，停止请求同样终止进程树，两者都以 EOF 唤醒读取；若进程已退出但后代仍持有 stdout，
+     * 排空宽限到期后由 {@link #finishBlocking} 关闭流并直接收尾，读取线程随后静默退出。
+     */
+    private void monitorBlocking(ExecutionContext context) {
+        context.armBlockingDeadlines(
+                () -> {
+                    context.markPlanTimeout();
+                    terminateProcessTree(context.getProcess());
+                },
+                () -> monitorExecutor.execute(() -> finishBlocking(context, null)));
+        RuntimeTerminationReason reason = null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                context.getProcess().getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while (reason == null && (line = reader.readLine()) != null) {
+                synchronized (context) {
+                    if (context.isFinished()) {
+                        return;
+                    }
+                    ConsumeResult result = consume(context, line);
+                    context.recordTurnFailed(result.isTurnFailed());
+                    reason = result.getStopReason();
+                    context.recordStopReason(reason);
+                }
+            }
+            if (reason != null) {
+                terminateProcessTree(context.getProcess());
+            }
+        } catch (IOException | RuntimeException ex) {
+            if (!context.isOutputClosed()) {
+                reason = requestedOrFailure(context);
+                terminateProcessTree(context.getProcess());
+            }
+        } finally {
+            closeQuietly(reader);
+        }
+        finishBlocking(context, reason);
+    }
+
+    private void finishBlocking(ExecutionContext context, RuntimeTerminationReason stopReason) {
+        if (!context.markFinished()) {
+            return;
+        }
+        context.closeOutput();
+        RuntimeTerminationReason reason = stopReason != null ? stopReason : context.getStopReason();
+        int exitCode = -1;
+        try {
+            if (reason == null) {
+                // stdout 已 EOF 但进程可能仍在运行；整体超时/停止会终止进程树，这里无需轮询。
+                context.getProcess().waitFor();
+            }
+            exitCode = waitForExit(context.getProcess());
+            reason = exitReason(context, reason, context.isTurnFailed(), exitCode);
+            if (reason == RuntimeTerminationReason.COMPLETED) {
+                exitCode = 0;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            reason = requestedOrFailure(context);
+            terminateProcessTree(context.getProcess());
+            exitCode = waitForExitQuietly(context.getProcess());
+        } catch (RuntimeException ex) {
+            reason = requestedOrFailure(context);
+            terminateProcessTree(context.getProcess());
+            exitCode = waitForExitQuietly(context.getProcess());
+        } finally {
+            complete(context, exitCode, reason == null
+                    ? RuntimeTerminationReason.PROCESS_FAILURE : reason);
+        }
+    }
+
+    private RuntimeTerminationReason exitReason(ExecutionContext context,
+                                                RuntimeTerminationReason reason,
+                                                boolean turnFailed, int exitCode) {
+        if (reason == null) {
+            reason = context.timeoutTerminationReason();
+        }
+        if (reason == null
+                && processRegistry.observe(context.getHandle()).getState()
+                == RuntimeState.STOP_REQUESTED) {
+            reason = RuntimeTerminationReason.REQUESTED_STOP;
+        }
+        if (reason == null) {
+            if (turnFailed || exitCode != 0) {
+                reason = RuntimeTerminationReason.PROCESS_FAILURE;
+            } else {
+                reason = RuntimeTerminationReason.COMPLETED;
+            }
+        }
+        return reason;
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // 读取端关闭失败不影响终态与清理。
+        }
+    }
+
     private ConsumeResult consume(ExecutionContext context, String line) {
         context.recordActivity();
         if (context.isLegacy() && line.trim().isEmpty()) {
@@ -560,6 +694,7 @@ public final class AgentProcessKernel implements AutoCloseable {
     private void complete(ExecutionContext context, int exitCode,
                           RuntimeTerminationReason reason) {
         context.closeWatchdog();
+        context.cancelBlockingDeadlines();
         context.releaseTiming();
         eventDecoder.clearExecution(context.getHandle().getExecutionId());
         context.getCapabilities().close();
@@ -789,6 +924,14 @@ public final class AgentProcessKernel implements AutoCloseable {
         private final RuntimeProcessRegistry processRegistry;
         private final AtomicLong sequence = new AtomicLong();
         private final AtomicBoolean stopEventEmitted = new AtomicBoolean();
+        private final AtomicBoolean planTimedOut = new AtomicBoolean();
+        private final AtomicBoolean turnFailed = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicBoolean outputClosed = new AtomicBoolean();
+        private final AtomicReference<RuntimeTerminationReason> stopReason =
+                new AtomicReference<RuntimeTerminationReason>();
+        private volatile ScheduledFuture<?> planDeadline;
+        private volatile ScheduledFuture<?> drainDeadline;
         private final AtomicReference<StreamProcessWatchdog.TimeoutReason> timeoutReason =
                 new AtomicReference<StreamProcessWatchdog.TimeoutReason>();
         private volatile StreamProcessWatchdog watchdog;
@@ -881,6 +1024,7 @@ public final class AgentProcessKernel implements AutoCloseable {
         }
 
         private void markPlanTimeout() {
+            planTimedOut.set(true);
             if (legacyBridge != null) {
                 markTimeout(legacyBridge.planTimeoutReason());
             }
@@ -939,12 +1083,89 @@ public final class AgentProcessKernel implements AutoCloseable {
 
         private RuntimeTerminationReason timeoutTerminationReason() {
             StreamProcessWatchdog.TimeoutReason timeout = timeoutReason.get();
-            if (timeout == null) {
+            if (timeout == null && !planTimedOut.get()) {
                 return null;
             }
             return RuntimeTerminationReason.TIMEOUT;
         }
 
+        /**
+         * 阻塞模式的截止任务：计划超时到点执行 {@code onPlanTimeout}；进程退出后再等排空宽限，
+         * 仍未收尾则执行 {@code onDrainExpired}。调度器已关闭时放弃，由 close() 的停止路径兜底。
+         */
+        private void armBlockingDeadlines(Runnable onPlanTimeout, Runnable onDrainExpired) {
+            long remaining = plan.getRuntimeLimits().getTimeout().toNanos()
+                    - (System.nanoTime() - startedNanos);
+            try {
+                planDeadline = watchdogScheduler.schedule(
+                        onPlanTimeout, Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ignored) {
+                return;
+            }
+            process.onExit().thenRun(() -> {
+                if (finished.get()) {
+                    return;
+                }
+                try {
+                    drainDeadline = watchdogScheduler.schedule(
+                            onDrainExpired, drainGraceNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException ignored) {
+                    onDrainExpired.run();
+                }
+            });
+        }
+
+        private void cancelBlockingDeadlines() {
+            cancel(planDeadline);
+            cancel(drainDeadline);
+        }
+
+        private static void cancel(ScheduledFuture<?> future) {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        /** 与逐行消费共用对象锁，保证收尾后不再有输出事件越过 TERMINATED。 */
+        private synchronized boolean markFinished() {
+            return finished.compareAndSet(false, true);
+        }
+
+        private boolean isFinished() {
+            return finished.get();
+        }
+
+        /** 关闭 stdout 以唤醒仍阻塞的读取；随后的 IOException 视为 EOF 而非失败。 */
+        private void closeOutput() {
+            if (outputClosed.compareAndSet(false, true)) {
+                closeQuietly(process.getInputStream());
+            }
+        }
+
+        private boolean isOutputClosed() {
+            return outputClosed.get();
+        }
+
+        private void recordTurnFailed(boolean failed) {
+            if (failed) {
+                turnFailed.set(true);
+            }
+        }
+
+        private boolean isTurnFailed() {
+            return turnFailed.get();
+        }
+
+        private void recordStopReason(RuntimeTerminationReason reason) {
+            if (reason != null) {
+                stopReason.compareAndSet(null, reason);
+            }
+        }
+
+        private RuntimeTerminationReason getStopReason() {
+            return stopReason.get();
+        }
+
         private void completeLegacy(int exitCode) {
             if (legacyBridge != null) {
                 legacyBridge.complete(exitCode);
@@ -0,0 +1,114 @@
+package com.example.agentweb.infra.runtime;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 以流式 {@link JsonParser} 读取一行 Provider NDJSON，只物化 {@link RuntimeEventDecoder}
+ * 与 Codex 识别规则会读取的字段，其余子树 {@link JsonParser#skipChildren()} 跳过、不建节点。
+ *
+ * <p>返回的是原始行的裁剪树：保留下来的字段与 {@code ObjectMapper.readTree} 的对应子树逐值一致；
+ * 与 {@code readTree} 相同，只读取第一个 JSON 值，重复键以最后一次出现为准。非对象根或非法 JSON
+ * 返回 {@code null}。对象形状的字段若不是对象、纯文本字段若不是字符串则视为缺失——解码器对这两类
+ * 值的读取结果与缺失时相同。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class ProviderLineReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Shape WHOLE = new Shape(null, false);
+    private static final Shape TEXT = new Shape(null, true);
+
+    private static final Shape ITEM = Shape.object(
+            "type", WHOLE, "id", WHOLE, "text", WHOLE, "command", WHOLE, "cwd", WHOLE,
+            "exit_code", WHOLE, "status", WHOLE, "aggregated_output", WHOLE,
+            "server", WHOLE, "tool", WHOLE, "changes", WHOLE);
+    private static final Shape EVENT = Shape.object(
+            "type", WHOLE, "index", WHOLE,
+            "delta", Shape.object("type", WHOLE, "text", WHOLE,
+                    "partial_json", WHOLE, "tool_use_id", WHOLE),
+            "content_block", Shape.object("type", WHOLE, "id", WHOLE,
+                    "name", WHOLE, "input", WHOLE));
+    private static final Shape ROOT = Shape.object(
+            "type", TEXT, "subtype", TEXT, "thread_id", WHOLE, "tool_use_result", TEXT,
+            "item", ITEM, "message", Shape.object("content", WHOLE), "event", EVENT);
+
+    private ProviderLineReader() {
+    }
+
+    static ObjectNode read(String providerLine) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(providerLine)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readObject(parser, ROOT);
+        } catch (IOException | RuntimeException failure) {
+            return null;
+        }
+    }
+
+    /** 当前 token 为 START_OBJECT；返回时停在对应的 END_OBJECT。 */
+    private static ObjectNode readObject(JsonParser parser, Shape shape) throws IOException {
+        ObjectNode node = MAPPER.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            Shape field = shape.fields.get(name);
+            if (field == null) {
+                parser.skipChildren();
+            } else if (field.fields != null) {
+                if (value == JsonToken.START_OBJECT) {
+                    node.set(name, readObject(parser, field));
+                } else {
+                    parser.skipChildren();
+                    node.remove(name);
+                }
+            } else if (field.textOnly) {
+                if (value == JsonToken.VALUE_STRING) {
+                    node.put(name, parser.getText());
+                } else {
+                    parser.skipChildren();
+                    node.remove(name);
+                }
+            } else {
+                JsonNode whole = parser.readValueAsTree();
+                node.set(name, whole);
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new IOException("unterminated provider object");
+        }
+        return node;
+    }
+
+    /** 字段形状：{@code fields} 为 null 时整棵子树保留（{@code textOnly} 时只保留字符串值）。 */
+    private static final class Shape {
+
+        private final Map<String, Shape> fields;
+        private final boolean textOnly;
+
+        private Shape(Map<String, Shape> fields, boolean textOnly) {
+            this.fields = fields;
+            this.textOnly = textOnly;
+        }
+
+        private static Shape object(Object... namesAndShapes) {
+            Map<String, Shape> fields = new HashMap<String, Shape>();
+            for (int i = 0; i < namesAndShapes.length; i += 2) {
+                fields.put((String) namesAndShapes[i], (Shape) namesAndShapes[i + 1]);
+            }
+            return new Shape(Collections.unmodifiableMap(fields), false);
+        }
+    }
+}
@@ -11,11 +11,16 @@ import com.example.agentweb.domain.capability.ResolvedMcpServerBinding;
 import com.example.agentweb.domain.capability.ResolvedSkillBinding;
 import com.example.agentweb.domain.capability.SkillCatalog;
 import com.example.agentweb.domain.capability.SkillPackage;
+import com.example.agentweb.infra.capability.SkillArtifactSource;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
@@ -32,6 +37,10 @@ import java.util.regex.Pattern;
 /**
  * 将 Snapshot 中选中的 Skill/MCP 与可信 Catalog exact 重验后物化到单次 Runtime。
  *
+ * <p>配置了 {@link SkillArtifactSource} 时，Skill 文件从内容寻址存储中已校验的文件复制为独立副本，
+ * 不与存储共享 inode：Runtime 与服务同属一个用户，共享 inode 时它能改回权限并原地改写存储，
+ * 连带污染并发与后续的 Run。未配置或存储不可用时写入 Catalog 字节。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
@@ -49,14 +58,22 @@ public final class RuntimeCapabilityMaterializer {
     private final SkillCatalog skillCatalog;
     private final McpServerCatalog mcpServerCatalog;
     private final RuntimeSecretResolver secretResolver;
+    private final SkillArtifactSource artifactSource;
 
     public RuntimeCapabilityMaterializer(
             SkillCatalog skillCatalog, McpServerCatalog mcpServerCatalog,
             RuntimeSecretResolver secretResolver) {
+        this(skillCatalog, mcpServerCatalog, secretResolver, null);
+    }
+
+    public RuntimeCapabilityMaterializer(
+            SkillCatalog skillCatalog, McpServerCatalog mcpServerCatalog,
+            RuntimeSecretResolver secretResolver, SkillArtifactSource artifactSource) {
         this.skillCatalog = Objects.requireNonNull(skillCatalog, "skillCatalog");
         this.mcpServerCatalog = Objects.requireNonNull(
                 mcpServerCatalog, "mcpServerCatalog");
         this.secretResolver = Objects.requireNonNull(secretResolver, "secretResolver");
+        this.artifactSource = artifactSource;
     }
 
     public RuntimeCapabilityMaterialization materialize(
@@ -206,12 +223,16 @@ public final class RuntimeCapabilityMaterializer {
             }
             createSecureDirectory(root.resolve(id));
             createSecureDirectory(packageRoot);
-            Path entry = writePackageFile(packageRoot,
-                    selectedSkill.skill.getManifest().getEntryPath(),
-                    selectedSkill.skill.getEntryContent().getBytes(StandardCharsets.UTF_8));
+            Map<String, Path> stored = artifactSource == null ? null
+                    : artifactSource.verifiedFiles(selectedSkill.skill);
+            String entryPath = selectedSkill.skill.getManifest().getEntryPath();
+            Path entry = writePackageFile(packageRoot, entryPath,
+                    selectedSkill.skill.getEntryContent().getBytes(StandardCharsets.UTF_8),
+                    stored == null ? null : stored.get(entryPath));
             for (Map.Entry<String, byte[]> resource
                     : selectedSkill.skill.getResourceContents().entrySet()) {
-                writePackageFile(packageRoot, resource.getKey(), resource.getValue());
+                writePackageFile(packageRoot, resource.getKey(), resource.getValue(),
+                        stored == null ? null : stored.get(resource.getKey()));
             }
             materialized.add(
                     new RuntimeCapabilityMaterialization.MaterializedSkill(
@@ -267,7 +288,8 @@ public final class RuntimeCapabilityMaterializer {
         return value;
     }
 
-    private Path writePackageFile(Path packageRoot, String relativePath, byte[] bytes)
+    private Path writePackageFile(
+            Path packageRoot, String relativePath, byte[] bytes, Path stored)
             throws IOException {
         if (relativePath == null || relativePath.trim().isEmpty()) {
             throw new IllegalStateException("Skill package path must not be blank");
@@ -285,11 +307,43 @@ public final class RuntimeCapabilityMaterializer {
             Files.createDirectories(parent);
             secureDirectory(parent);
         }
+        if (stored != null) {
+            return copyPackageFile(stored, target);
+        }
         Files.write(target, bytes);
         secureFile(target);
         return target;
     }
 
+    /**
+     * 经 {@link FileChannel#transferTo} 写入同目录临时文件，收紧权限后改名就位；存储文件只读不写。
+     */
+    private Path copyPackageFile(Path stored, Path target) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), ".skill-", ".tmp");
+        try {
+            try (FileChannel input = FileChannel.open(stored,
+                    StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS);
+                 FileChannel output = FileChannel.open(temporary,
+                         StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                         LinkOption.NOFOLLOW_LINKS)) {
+                long size = input.size();
+                long position = 0L;
+                while (position < size) {
+                    long moved = input.transferTo(position, size - position, output);
+                    if (moved <= 0L) {
+                        throw new IllegalStateException("Skill artifact changed during copy");
+                    }
+                    position += moved;
+                }
+            }
+            secureFile(temporary);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
     private Map<String, SkillPackage> indexSkills(List<SkillPackage> packages) {
         if (packages == null || packages.contains(null)) {
             throw new IllegalStateException("Skill Catalog result is invalid");
@@ -12,6 +12,8 @@ import com.example.agentweb.infra.cli.CodexEventNormalizer;
 import com.example.agentweb.infra.cli.CliDialect;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 
 import java.io.IOException;
@@ -23,15 +25,21 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
  * 将 Provider JSONL 输出解码为已脱敏、有界的公共 Runtime Event。
  *
- * <p>事件识别委托给 {@link CodexEventNormalizer}（与 Chat 路径复用同一套归一化逻辑），
+ * <p>事件识别委托给 {@link CodexEventNormalizer#recognizes}（与 Chat 路径复用同一套归一化规则），
  * 未识别事件直接跳过（返回 {@link DecodedEvent#skipped()}），不产生 RuntimeEvent。
  * Workbench 特有的 {@code file_change} / {@code mcp_tool_call} 语义在识别后额外提取。</p>
  *
+ * <p>每行只经 {@link ProviderLineReader} 流式解析一次，仅物化解码会读取的字段；
+ * Claude {@code input_json_delta} 片段按 JSON 结构闭合与否决定是否尝试解析，不再逐片段整串重解析。</p>
+ *
+ * <p>传入 {@link MeterRegistry} 时每行解码耗时记入 {@code runtime.event.decode.latency}。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
@@ -53,14 +61,15 @@ public final class RuntimeEventDecoder {
     private final RuntimeOutputRedactor outputRedactor;
     private final RuntimeCommandPolicy commandPolicy;
     private final CodexEventNormalizer codexNormalizer;
+    private final Timer decodeLatency;
     private final Map<String, Map<String, String>> claudeToolNamesByExecution =
             new ConcurrentHashMap<String, Map<String, String>>();
     private final Map<String, Set<String>> claudeToolInputsByExecution =
             new ConcurrentHashMap<String, Set<String>>();
     private final Map<String, Map<Integer, String>> claudeToolIdsByBlockExecution =
             new ConcurrentHashMap<String, Map<Integer, String>>();
-    private final Map<String, Map<String, StringBuilder>> claudeToolInputFragmentsByExecution =
-            new ConcurrentHashMap<String, Map<String, StringBuilder>>();
+    private final Map<String, Map<String, PartialToolInput>> claudeToolInputFragmentsByExecution =
+            new ConcurrentHashMap<String, Map<String, PartialToolInput>>();
     private final Set<String> claudeStreamingTextExecutions =
             ConcurrentHashMap.newKeySet();
 
@@ -77,12 +86,22 @@ public final class RuntimeEventDecoder {
     public RuntimeEventDecoder(RuntimeOutputRedactor outputRedactor,
                                RuntimeCommandPolicy commandPolicy,
                                CodexEventNormalizer codexNormalizer) {
+        this(outputRedactor, commandPolicy, codexNormalizer, null);
+    }
+
+    public RuntimeEventDecoder(RuntimeOutputRedactor outputRedactor,
+                               RuntimeCommandPolicy commandPolicy,
+                               CodexEventNormalizer codexNormalizer,
+                               MeterRegistry registry) {
         this.outputRedactor = Objects.requireNonNull(
                 outputRedactor, "outputRedactor");
         this.commandPolicy = Objects.requireNonNull(
                 commandPolicy, "commandPolicy");
         this.codexNormalizer = Objects.requireNonNull(
                 codexNormalizer, "codexNormalizer");
+        this.decodeLatency = registry == null ? null
+                : Timer.builder("runtime.event.decode.latency")
+                        .publishPercentileHistogram().register(registry);
     }
 
     public DecodedEvent decode(String executionId, long sequence,
@@ -109,13 +128,30 @@ public final class RuntimeEventDecoder {
             String executionId, long sequence, String providerLine,
             RuntimeCapabilityMaterialization capabilities,
             WorkspaceLayout workspaceLayout, CliDialect dialect) {
+        if (decodeLatency == null) {
+            return decodeLine(executionId, sequence, providerLine, capabilities,
+                    workspaceLayout, dialect);
+        }
+        long started = System.nanoTime();
+        try {
+            return decodeLine(executionId, sequence, providerLine, capabilities,
+                    workspaceLayout, dialect);
+        } finally {
+            decodeLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private DecodedEvent decodeLine(
+            String executionId, long sequence, String providerLine,
+            RuntimeCapabilityMaterialization capabilities,
+            WorkspaceLayout workspaceLayout, CliDialect dialect) {
         Objects.requireNonNull(providerLine, "providerLine");
         if (dialect != null && dialect.type() != com.example.agentweb.domain.shared.AgentType.CODEX) {
             List<String> normalized = dialect.normalizeChunk(providerLine);
             if (normalized == null || normalized.isEmpty()) {
                 return DecodedEvent.skipped();
             }
-            JsonNode root = parseObject(providerLine);
+            JsonNode root = ProviderLineReader.read(providerLine);
             String type = providerEventType(root);
             RuntimeEventType eventType = "result".equals(type)
                     && root != null && "error".equals(root.path("subtype").asText())
@@ -135,11 +171,10 @@ public final class RuntimeEventDecoder {
                     type.isEmpty() ? "cli output" : type, assistantText,
                     semanticEvents), type, eventType == RuntimeEventType.DIAGNOSTIC, false);
         }
-        JsonNode root = parseObject(providerLine);
+        JsonNode root = ProviderLineReader.read(providerLine);
         String providerEventType = providerEventType(root);
 
-        boolean chatRecognized = !codexNormalizer.normalize(providerLine)
-                .isEmpty();
+        boolean chatRecognized = codexNormalizer.recognizes(root);
         boolean workbenchRecognized = !chatRecognized
                 && isWorkbenchSpecificEvent(root, providerEventType);
         if (!chatRecognized && !workbenchRecognized) {
@@ -315,18 +350,20 @@ public final class RuntimeEventDecoder {
         if (tool == null || partial == null || partial.isEmpty()) {
             return Collections.emptyList();
         }
-        Map<String, StringBuilder> fragments = claudeToolInputFragmentsByExecution.computeIfAbsent(
-                executionId, ignored -> new ConcurrentHashMap<String, StringBuilder>());
-        StringBuilder accumulated = fragments.computeIfAbsent(
-                callId, ignored -> new StringBuilder());
+        Map<String, PartialToolInput> fragments = claudeToolInputFragmentsByExecution.computeIfAbsent(
+                executionId, ignored -> new ConcurrentHashMap<String, PartialToolInput>());
+        PartialToolInput accumulated = fragments.computeIfAbsent(
+                callId, ignored -> new PartialToolInput());
         if (partial.length() > RuntimeEvent.MAX_SAFE_PAYLOAD_LENGTH
                 || accumulated.length()
                 > RuntimeEvent.MAX_SAFE_PAYLOAD_LENGTH - partial.length()) {
             fragments.remove(callId);
             return Collections.emptyList();
         }
-        accumulated.append(partial);
-        JsonNode input = parseObject(accumulated.toString());
+        if (!accumulated.append(partial)) {
+            return Collections.emptyList();
+        }
+        JsonNode input = parseObject(accumulated.text());
         if (input == null || !input.isObject()) {
             return Collections.emptyList();
         }
@@ -424,7 +461,7 @@ public final class RuntimeEventDecoder {
     }
 
     public String providerEventType(String providerLine) {
-        return providerEventType(parseObject(providerLine));
+        return providerEventType(ProviderLineReader.read(providerLine));
     }
 
     void clearExecution(String executionId) {
@@ -753,6 +790,77 @@ public final class RuntimeEventDecoder {
         }
     }
 
+    /**
+     * 单个 tool call 的 {@code input_json_delta} 累积缓冲。
+     *
+     * <p>边追加边做轻量结构扫描（对象/数组深度、字符串与转义），只有首个值是 JSON 对象且
+     * 深度回到 0 时才值得整串解析一次：此前任何前缀都不可能解析为对象，此后首值已确定，
+     * 解析失败也不会因后续片段而成功。</p>
+     */
+    private static final class PartialToolInput {
+
+        private final StringBuilder text = new StringBuilder();
+        private boolean started;
+        private boolean objectRoot;
+        private boolean inString;
+        private boolean escaped;
+        private int depth;
+        private boolean closed;
+        private boolean attempted;
+
+        private int length() {
+            return text.length();
+        }
+
+        private String text() {
+            return text.toString();
+        }
+
+        /** @return 本次追加后是否需要尝试解析（首值刚闭合且尚未尝试过） */
+        private boolean append(String partial) {
+            text.append(partial);
+            if (!closed && (!started || objectRoot)) {
+                scan(partial);
+            }
+            if (!closed || attempted) {
+                return false;
+            }
+            attempted = true;
+            return true;
+        }
+
+        private void scan(String partial) {
+            for (int i = 0; i < partial.length() && !closed; i++) {
+                char c = partial.charAt(i);
+                if (!started) {
+                    if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                        continue;
+                    }
+                    started = true;
+                    objectRoot = c == '{';
+                    if (!objectRoot) {
+                        return;
+                    }
+                    depth = 1;
+                } else if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    closed = true;
+                }
+            }
+        }
+    }
+
     @Getter
     private static final class SemanticProjection {
 
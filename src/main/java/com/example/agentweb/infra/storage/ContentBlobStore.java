@@ -0,0 +1,210 @@
+package com.example.agentweb.infra.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 外置大块内容的内容寻址文件库：文件名即内容的 SHA-256，按前两位分目录
+ * （{@code <root>/ab/abcdef...}）。同一内容只存一份，写入用临时文件 + 原子改名，
+ * 并发写同一内容互不干扰。
+ *
+ * <p>库里只存已压缩的字节，不解释格式；引用关系在数据库列里，文件本身不知道被谁引用，
+ * 所以删除行时不删文件，由 {@link #sweep} 对照仍被引用的哈希集合回收。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class ContentBlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+
+    public ContentBlobStore(@Value("${agent.storage.blob-root:data/blobs}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 内容已存在时复用原文件并把修改时间刷到现在：新行即将引用它，
+     * 不刷新的话 {@link #sweep} 会把它当成过了宽限期的孤儿删掉。
+     *
+     * @return 内容哈希（64 位小写十六进制），即 {@link #get} 的键
+     */
+    public String put(byte[] content) {
+        String hash = sha256(content);
+        Path target = pathOf(hash);
+        try {
+            if (touch(target)) {
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, content);
+                if (!moveIntoPlace(temp, target)) {
+                    touch(target);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write content blob " + hash, e);
+        }
+        return hash;
+    }
+
+    public byte[] get(String hash) {
+        try {
+            return Files.readAllBytes(pathOf(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException("content blob missing or unreadable: " + hash, e);
+        }
+    }
+
+    /** 文件数与总字节，供存储报告展示。 */
+    public Usage usage() {
+        long[] totals = new long[2];
+        forEachBlob((hash, file) -> {
+            totals[0]++;
+            totals[1] += Files.size(file);
+        });
+        return new Usage(totals[0], totals[1]);
+    }
+
+    /**
+     * 删除不在 {@code live} 中且修改时间早于 {@code modifiedBefore} 的文件。宽限期用来避开
+     * 刚写完文件、引用行还没提交的窗口。
+     *
+     * @return 删除的文件数
+     */
+    public int sweep(Set<String> live, Instant modifiedBefore) {
+        int[] deleted = new int[1];
+        forEachBlob((hash, file) -> {
+            if (live.contains(hash)
+                    || !Files.getLastModifiedTime(file).toInstant().isBefore(modifiedBefore)) {
+                return;
+            }
+            if (Files.deleteIfExists(file)) {
+                deleted[0]++;
+            }
+        });
+        return deleted[0];
+    }
+
+    Path pathOf(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("invalid content blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private void forEachBlob(BlobVisitor visitor) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(root)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (HASH.matcher(name).matches()) {
+                            visitor.visit(name, file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to scan content blobs under " + root, e);
+        }
+    }
+
+    /** @return 是否由本次写入落位；{@code false} 表示目标已被并发写入的同一内容占据 */
+    private static boolean moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException raced) {
+            // 并发写入了同一内容，已存在的文件与本次字节相同
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warn("content-blob-atomic-move-unsupported root={}", target.getParent());
+            if (!Files.exists(target)) {
+                Files.move(temp, target);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** 刷新已存在文件的修改时间；文件不存在（含刚被回收）时返回 {@code false}。 */
+    private static boolean touch(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException absent) {
+            return false;
+        }
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlobVisitor {
+        void visit(String hash, Path file) throws IOException;
+    }
+
+    /** 外置文件占用。 */
+    public static final class Usage {
+        private final long files;
+        private final long bytes;
+
+        Usage(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.agentweb.infra.storage;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 定期回收外置文件：Run 事件保留期清理和会话删除只删行，被引用的文件在这里按引用集合回收。
+ * 一小时宽限期覆盖「文件已写、引用行未提交」的窗口。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+public class ContentBlobSweepScheduler {
+
+    private static final Duration GRACE = Duration.ofHours(1);
+
+    private final StoredContentMigrator migrator;
+
+    public ContentBlobSweepScheduler(StoredContentMigrator migrator) {
+        this.migrator = migrator;
+    }
+
+    @Scheduled(initialDelayString = "${agent.storage.blob-sweep-ms:86400000}",
+            fixedDelayString = "${agent.storage.blob-sweep-ms:86400000}")
+    public void sweep() {
+        migrator.sweepOrphanBlobs(Instant.now().minus(GRACE));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.agentweb.infra.storage;
+
+import com.example.agentweb.app.storage.StoredContentCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 以 raw DEFLATE + 预置字典压缩大文本列，压缩后仍过大的外置到 {@link ContentBlobStore}。
+ *
+ * <p>编码后的 BLOB 布局：{@code [格式 1B][字典版本 1B][原文 UTF-8 字节数 4B 大端][载荷]}。
+ * 格式 {@value #FORMAT_INLINE} 的载荷是压缩字节，格式 {@value #FORMAT_SPILLED} 的载荷是外置文件
+ * 的 64 位十六进制哈希。短文本、压不下去的文本保持 TEXT 原样，读侧零开销。</p>
+ *
+ * <p>字典取自 Claude / Codex 归一化 stream-json 与 Runtime 事件 payload 里反复出现的键和结构，
+ * 对几百字节的单行事件效果最明显；字典内容一经写入数据就不可修改，调整只能新增版本。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+public class DeflateStoredContentCodec implements StoredContentCodec {
+
+    static final byte FORMAT_INLINE = 1;
+    static final byte FORMAT_SPILLED = 2;
+    static final byte DICTIONARY_V1 = 1;
+    static final int HEADER_BYTES = 6;
+
+    /** 压缩后不足原文该比例才落 BLOB，否则省下的空间抵不过解压开销。 */
+    private static final double MAX_KEPT_RATIO = 0.9;
+
+    /** 越靠后的片段在 DEFLATE 中距离越短、收益越大，最常见的行放在末尾。 */
+    private static final byte[] DICTIONARY_V1_BYTES = String.join("",
+            "{\"runtimeSequence\":0,\"callId\":\"call_\",\"tool\":\"\",\"status\":\"SUCCEEDED\",",
+            "\"outputContent\":\"\",\"commandContent\":\"\",\"exitCode\":0,\"durationMs\":0}",
+            "{\"type\":\"system\",\"subtype\":\"init\",\"session_id\":\"\",\"thread_id\":\"\"}",
+            "{\"type\":\"result\",\"subtype\":\"success\",\"is_error\":false,\"result\":\"",
+            "\"usage\":{\"input_tokens\":0,\"output_tokens\":0,\"cache_read_input_tokens\":0}",
+            "{\"type\":\"assistant\",\"message\":{\"id\":\"msg_\",\"type\":\"message\",\"role\":\"assistant\",",
+            "\"content\":[{\"type\":\"text\",\"text\":\"",
+            "{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_stop\",\"index\":0}}\n",
+            "{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_start\",\"index\":0,",
+            "\"content_block\":{\"type\":\"tool_use\",\"id\":\"call_\",\"name\":\"\",\"input\":{}}}}\n",
+            "{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\",\"index\":0,",
+            "\"delta\":{\"type\":\"input_json_delta\",\"partial_json\":\"{\\\"command\\\":\\\"",
+            "{\"type\":\"user\",\"message\":{\"role\":\"user\",\"content\":[{\"type\":\"tool_result\",",
+            "\"tool_use_id\":\"call_\",\"content\":\"\"}]},\"tool_use_result\":\"",
+            "{\"runtimeSequence\":0,\"content\":\"",
+            "\"}}}\n{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\",\"index\":0,",
+            "\"delta\":{\"type\":\"text_delta\",\"text\":\"").getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+    private final int compressMinBytes;
+    private final int spillMinBytes;
+    private final ContentBlobStore blobStore;
+
+    @Autowired
+    public DeflateStoredContentCodec(@Value("${agent.storage.compression-enabled:true}") boolean enabled,
+                                     @Value("${agent.storage.compress-min-bytes:512}") int compressMinBytes,
+                                     @Value("${agent.storage.spill-min-bytes:262144}") int spillMinBytes,
+                                     ContentBlobStore blobStore) {
+        this.enabled = enabled;
+        this.compressMinBytes = compressMinBytes;
+        this.spillMinBytes = spillMinBytes;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public Object encode(String content) {
+        byte[] raw = encodableBytes(content);
+        byte[] compressed = raw == null ? null : compressWorthwhile(raw);
+        if (compressed == null) {
+            return content;
+        }
+        if (compressed.length >= spillMinBytes) {
+            byte[] hash = blobStore.put(compressed).getBytes(StandardCharsets.US_ASCII);
+            return header(FORMAT_SPILLED, raw.length, hash.length).put(hash).array();
+        }
+        return header(FORMAT_INLINE, raw.length, compressed.length).put(compressed).array();
+    }
+
+    /**
+     * 估算 {@link #encode} 写入库内的字节数（外置格式按头 + 哈希计），不落外置文件，供迁移 dry-run 使用。
+     */
+    long estimateStoredBytes(String content) {
+        if (content == null) {
+            return 0L;
+        }
+        byte[] raw = encodableBytes(content);
+        byte[] compressed = raw == null ? null : compressWorthwhile(raw);
+        if (compressed == null) {
+            return content.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return HEADER_BYTES + (compressed.length >= spillMinBytes ? 64 : compressed.length);
+    }
+
+    /** @return 需要尝试压缩的原文字节；关闭压缩或原文过短时返回 null */
+    private byte[] encodableBytes(String content) {
+        if (!enabled || content == null || content.length() < compressMinBytes / 3) {
+            return null;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        return raw.length < compressMinBytes ? null : raw;
+    }
+
+    /** @return 压缩字节；压缩收益不足时返回 null，原文保持 TEXT */
+    private static byte[] compressWorthwhile(byte[] raw) {
+        byte[] compressed = deflate(raw);
+        return HEADER_BYTES + compressed.length > raw.length * MAX_KEPT_RATIO ? null : compressed;
+    }
+
+    @Override
+    public String decode(Object stored) {
+        if (stored == null || stored instanceof String) {
+            return (String) stored;
+        }
+        if (!(stored instanceof byte[])) {
+            throw new IllegalStateException("unsupported stored content type: " + stored.getClass().getName());
+        }
+        byte[] encoded = (byte[]) stored;
+        if (encoded.length < HEADER_BYTES || encoded[1] != DICTIONARY_V1) {
+            throw new IllegalStateException("unknown stored content header");
+        }
+        int rawLength = rawLength(encoded);
+        byte[] payload;
+        if (encoded[0] == FORMAT_INLINE) {
+            payload = encoded;
+        } else if (encoded[0] == FORMAT_SPILLED) {
+            payload = blobStore.get(spilledHash(encoded));
+        } else {
+            throw new IllegalStateException("unknown stored content format: " + encoded[0]);
+        }
+        int offset = payload == encoded ? HEADER_BYTES : 0;
+        return new String(inflate(payload, offset, rawLength), StandardCharsets.UTF_8);
+    }
+
+    /** 编码值记录的原文 UTF-8 字节数；TEXT 原值的调用方自行按 UTF-8 计算。 */
+    static int rawLength(byte[] encoded) {
+        return ByteBuffer.wrap(encoded, 2, 4).getInt();
+    }
+
+    /** 外置格式的文件哈希；非外置格式返回 null。 */
+    static String spilledHash(byte[] encoded) {
+        if (encoded.length <= HEADER_BYTES || encoded[0] != FORMAT_SPILLED) {
+            return null;
+        }
+        return new String(encoded, HEADER_BYTES, encoded.length - HEADER_BYTES, StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer header(byte format, int rawLength, int payloadLength) {
+        return ByteBuffer.allocate(HEADER_BYTES + payloadLength)
+                .put(format).put(DICTIONARY_V1).putInt(rawLength);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY_V1_BYTES);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload, int offset, int rawLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY_V1_BYTES);
+            inflater.setInput(payload, offset, payload.length - offset);
+            byte[] raw = new byte[rawLength];
+            int filled = 0;
+            while (filled < rawLength) {
+                int n = inflater.inflate(raw, filled, rawLength - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                filled += n;
+            }
+            if (filled != rawLength) {
+                throw new IllegalStateException("stored content is truncated");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("stored content is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.agentweb.infra.storage;
+
+/**
+ * 经 {@link DeflateStoredContentCodec} 编码存储的列。同一列里 TEXT 与 BLOB 并存：
+ * TEXT 是未压缩原文，BLOB 是带格式头的编码值。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+enum EncodedColumn {
+
+    /** 只有 assistant 正文编码；user 消息要被 SQL 直接读取（首条消息、标题回退等）。 */
+    CHAT_MESSAGE("chat_message", "content", "role = 'assistant'"),
+    RUN_EVENT_PAYLOAD("chat_run_event", "payload", null),
+    OUTPUT_CHECKPOINT("chat_run_output_checkpoint", "content", null);
+
+    private final String table;
+    private final String column;
+    private final String rowFilter;
+
+    EncodedColumn(String table, String column, String rowFilter) {
+        this.table = table;
+        this.column = column;
+        this.rowFilter = rowFilter;
+    }
+
+    String table() {
+        return table;
+    }
+
+    String column() {
+        return column;
+    }
+
+    /** 该列可编码行的附加条件；无条件时为 {@code 1=1}。 */
+    String rowFilter() {
+        return rowFilter == null ? "1=1" : rowFilter;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.agentweb.infra.storage;
+
+import com.example.agentweb.app.metrics.StorageFootprint;
+import com.example.agentweb.app.metrics.StorageMetricsQueryService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link StorageMetricsQueryService} 的 SQLite 实现。TEXT 行直接在 SQL 里求和；编码行只取 6 字节格式头
+ * 流式累加原文长度，不解压、不读外置文件。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+public class SqliteStorageMetricsQueryService implements StorageMetricsQueryService {
+
+    private final JdbcTemplate jdbc;
+    private final ContentBlobStore blobStore;
+
+    public SqliteStorageMetricsQueryService(JdbcTemplate jdbc, ContentBlobStore blobStore) {
+        this.jdbc = jdbc;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public StorageFootprint footprint() {
+        StorageFootprint footprint = new StorageFootprint();
+        long raw = 0L;
+        long stored = 0L;
+        for (EncodedColumn encoded : EncodedColumn.values()) {
+            StorageFootprint.Column column = columnFootprint(encoded);
+            footprint.getColumns().add(column);
+            raw += column.getRawBytes();
+            stored += column.getStoredBytes();
+        }
+        ContentBlobStore.Usage usage = blobStore.usage();
+        footprint.setBlobFiles(usage.getFiles());
+        footprint.setBlobBytes(usage.getBytes());
+        footprint.setDatabaseBytes(scalarLong("PRAGMA page_count") * scalarLong("PRAGMA page_size"));
+        footprint.setOverallRatio(ratio(stored + usage.getBytes(), raw));
+        return footprint;
+    }
+
+    private StorageFootprint.Column columnFootprint(EncodedColumn encoded) {
+        String col = encoded.column();
+        StorageFootprint.Column column = new StorageFootprint.Column();
+        column.setTable(encoded.table());
+        column.setColumn(col);
+        jdbc.query("SELECT COUNT(*), COALESCE(SUM(length(CAST(" + col + " AS BLOB))), 0) FROM " + encoded.table()
+                        + " WHERE typeof(" + col + ") = 'text' AND " + encoded.rowFilter(),
+                rs -> {
+                    column.setTextRows(rs.getLong(1));
+                    column.setRawBytes(rs.getLong(2));
+                    column.setStoredBytes(rs.getLong(2));
+                });
+        jdbc.query("SELECT substr(" + col + ", 1, " + DeflateStoredContentCodec.HEADER_BYTES + "), length(" + col
+                        + ") FROM " + encoded.table()
+                        + " WHERE typeof(" + col + ") = 'blob' AND " + encoded.rowFilter(),
+                rs -> {
+                    byte[] header = rs.getBytes(1);
+                    if (header == null || header.length < DeflateStoredContentCodec.HEADER_BYTES) {
+                        return;
+                    }
+                    if (header[0] == DeflateStoredContentCodec.FORMAT_SPILLED) {
+                        column.setSpilledRows(column.getSpilledRows() + 1);
+                    } else {
+                        column.setInlineRows(column.getInlineRows() + 1);
+                    }
+                    column.setRawBytes(column.getRawBytes() + DeflateStoredContentCodec.rawLength(header));
+                    column.setStoredBytes(column.getStoredBytes() + rs.getLong(2));
+                });
+        column.setRatio(ratio(column.getStoredBytes(), column.getRawBytes()));
+        return column;
+    }
+
+    private long scalarLong(String sql) {
+        Long value = jdbc.queryForObject(sql, Long.class);
+        return value == null ? 0L : value;
+    }
+
+    private static Double ratio(long stored, long raw) {
+        return raw == 0L ? null : (double) stored / raw;
+    }
+}
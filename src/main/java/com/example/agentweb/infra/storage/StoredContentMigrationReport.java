@@ -0,0 +1,40 @@
+package com.example.agentweb.infra.storage;
+
+import lombok.Getter;
+
+/**
+ * 存量大文本列改写为编码存储的统计；dry-run 时 {@code storedBytes} 为估算值。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Getter
+public class StoredContentMigrationReport {
+    private long scannedRows;
+    private long encodedRows;
+    private long spilledRows;
+    private long rawBytes;
+    private long storedBytes;
+    private long sweptBlobs;
+
+    void scanned(long raw, long stored, boolean encoded, boolean spilled) {
+        scannedRows++;
+        rawBytes += raw;
+        storedBytes += stored;
+        if (encoded) encodedRows++;
+        if (spilled) spilledRows++;
+    }
+
+    void swept(int count) { sweptBlobs += count; }
+
+    @Override
+    public String toString() {
+        return "StoredContentMigrationReport{" +
+                "scannedRows=" + scannedRows +
+                ", encodedRows=" + encodedRows +
+                ", spilledRows=" + spilledRows +
+                ", rawBytes=" + rawBytes +
+                ", storedBytes=" + storedBytes +
+                ", sweptBlobs=" + sweptBlobs + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.agentweb.infra.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 一次性迁移入口：{@code app.migration.stored-content.enabled=true} 启动时把存量 TEXT 改写为编码存储，
+ * 非 dry-run 时随后回收孤立的外置文件。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@ConditionalOnProperty(name = "app.migration.stored-content.enabled", havingValue = "true")
+@Slf4j
+public class StoredContentMigrationRunner implements ApplicationRunner {
+
+    private static final Duration BLOB_GRACE = Duration.ofHours(1);
+
+    private final StoredContentMigrator migrator;
+    private final boolean dryRun;
+    private final int batchSize;
+
+    public StoredContentMigrationRunner(StoredContentMigrator migrator,
+            @Value("${app.migration.stored-content.dry-run:true}") boolean dryRun,
+            @Value("${app.migration.stored-content.batch-size:200}") int batchSize) {
+        this.migrator = migrator;
+        this.dryRun = dryRun;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        StoredContentMigrationReport report = migrator.migrate(dryRun, batchSize);
+        if (!dryRun) {
+            report.swept(migrator.sweepOrphanBlobs(Instant.now().minus(BLOB_GRACE)));
+        }
+        log.info("stored-content-migration-finished dryRun={} report={}", dryRun, report);
+    }
+}
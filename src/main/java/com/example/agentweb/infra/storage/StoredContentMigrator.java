@@ -0,0 +1,116 @@
+package com.example.agentweb.infra.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把编码前写入的 TEXT 行改写为编码存储，并回收不再被引用的外置文件。
+ *
+ * <p>按 rowid 分批：读一批、逐行编码、再批量回写，回写条件带 {@code typeof(col)='text'}，
+ * 与线上写入并发时不会覆盖别人已编码的行。改写本身幂等，中断后重跑即可续上。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class StoredContentMigrator {
+
+    private final JdbcTemplate jdbc;
+    private final DeflateStoredContentCodec codec;
+    private final ContentBlobStore blobStore;
+
+    public StoredContentMigrator(JdbcTemplate jdbc, DeflateStoredContentCodec codec, ContentBlobStore blobStore) {
+        this.jdbc = jdbc;
+        this.codec = codec;
+        this.blobStore = blobStore;
+    }
+
+    public StoredContentMigrationReport migrate(boolean dryRun, int batchSize) {
+        StoredContentMigrationReport report = new StoredContentMigrationReport();
+        for (EncodedColumn column : EncodedColumn.values()) {
+            migrateColumn(column, dryRun, Math.max(1, batchSize), report);
+        }
+        return report;
+    }
+
+    /**
+     * 删除没有任何行引用、且早于 {@code modifiedBefore} 的外置文件。
+     *
+     * @return 删除的文件数
+     */
+    public int sweepOrphanBlobs(Instant modifiedBefore) {
+        Set<String> live = new HashSet<String>();
+        for (EncodedColumn column : EncodedColumn.values()) {
+            // 外置值只有头 + 哈希，直接取整列值
+            jdbc.query("SELECT " + column.column() + " FROM " + column.table()
+                            + " WHERE typeof(" + column.column() + ") = 'blob'"
+                            + " AND substr(" + column.column() + ", 1, 1) = x'02'",
+                    rs -> {
+                        String hash = DeflateStoredContentCodec.spilledHash(rs.getBytes(1));
+                        if (hash != null) {
+                            live.add(hash);
+                        }
+                    });
+        }
+        int deleted = blobStore.sweep(live, modifiedBefore);
+        if (deleted > 0) {
+            log.info("content-blob-swept deleted={} live={}", deleted, live.size());
+        }
+        return deleted;
+    }
+
+    private void migrateColumn(EncodedColumn column, boolean dryRun, int batchSize,
+                               StoredContentMigrationReport report) {
+        String select = "SELECT rowid, " + column.column() + " FROM " + column.table()
+                + " WHERE rowid > ? AND typeof(" + column.column() + ") = 'text' AND " + column.rowFilter()
+                + " ORDER BY rowid LIMIT ?";
+        String update = "UPDATE " + column.table() + " SET " + column.column() + " = ?"
+                + " WHERE rowid = ? AND typeof(" + column.column() + ") = 'text'";
+        long cursor = 0L;
+        long encoded = 0L;
+        while (true) {
+            List<Object[]> rows = new ArrayList<Object[]>(batchSize);
+            jdbc.query(select, rs -> {
+                rows.add(new Object[]{rs.getString(2), rs.getLong(1)});
+            }, cursor, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<Object[]>(rows.size());
+            for (Object[] row : rows) {
+                String text = (String) row[0];
+                long rawBytes = text.getBytes(StandardCharsets.UTF_8).length;
+                if (dryRun) {
+                    long stored = codec.estimateStoredBytes(text);
+                    report.scanned(rawBytes, stored, stored != rawBytes, false);
+                    continue;
+                }
+                Object value = codec.encode(text);
+                if (value instanceof byte[]) {
+                    byte[] bytes = (byte[]) value;
+                    report.scanned(rawBytes, bytes.length, true,
+                            DeflateStoredContentCodec.spilledHash(bytes) != null);
+                    updates.add(new Object[]{bytes, row[1]});
+                } else {
+                    report.scanned(rawBytes, rawBytes, false, false);
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbc.batchUpdate(update, updates);
+                encoded += updates.size();
+            }
+            cursor = (Long) rows.get(rows.size() - 1)[1];
+        }
+        log.info("stored-content-migrated table={} column={} dryRun={} encodedRows={}",
+                column.table(), column.column(), dryRun, encoded);
+    }
+}
@@ -4,15 +4,17 @@ import com.example.agentweb.app.workbench.attachment.UploadedAttachmentStorageEx
 import com.example.agentweb.app.workbench.attachment.port.StoredUploadedAttachment;
 import com.example.agentweb.app.workbench.attachment.port.UploadedAttachmentStorageRequest;
 import com.example.agentweb.app.workbench.attachment.port.UploadedConversationAttachmentStorage;
-import com.example.agentweb.domain.shared.CanonicalHashing;
 import com.example.agentweb.domain.shared.DomainText;
 import com.example.agentweb.domain.workbench.UploadedAttachmentContentSignature;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
@@ -24,13 +26,21 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Git 忽略根下的上传附件临时存储；所有物理身份均由服务端生成。
  *
+ * <p>上传正文流式写入临时文件, 同一遍计算 SHA-256 与内容签名, 不在堆上缓冲整个附件;
+ * 入库后对象置为只读。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
@@ -38,18 +48,23 @@ public final class FileSystemUploadedConversationAttachmentStorage
         implements UploadedConversationAttachmentStorage {
 
     private static final int BUFFER_SIZE = 8192;
+    private static final int SIGNATURE_BYTES = 16;
     private static final int STORAGE_KEY_BYTES = 32;
     private static final int MAXIMUM_KEY_ATTEMPTS = 8;
     private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS =
             PosixFilePermissions.fromString("rwx------");
     private static final Set<PosixFilePermission> STORED_FILE_PERMISSIONS =
             PosixFilePermissions.fromString("rw-------");
+    private static final Set<PosixFilePermission> SEALED_FILE_PERMISSIONS =
+            PosixFilePermissions.fromString("r--------");
     private static final Set<PosixFilePermission> RUNTIME_FILE_PERMISSIONS =
             PosixFilePermissions.fromString("r--------");
 
     private final Path configuredRoot;
     private final long maximumBytes;
     private final SecureRandom random;
+    private final Map<String, VerifiedObject> verified =
+            new ConcurrentHashMap<String, VerifiedObject>();
 
     public FileSystemUploadedConversationAttachmentStorage(
             Path configuredRoot, long maximumBytes) {
@@ -79,22 +94,28 @@ public final class FileSystemUploadedConversationAttachmentStorage
         Path root = requireRoot();
         Path temporary = null;
         try {
-            byte[] content = readExact(
-                    request.getInputStream(), request.getDeclaredSize());
             String storageKey = nextStorageKey(root);
             Path destination = root.resolve(storageKey);
             temporary = Files.createTempFile(root, ".upload-", ".tmp");
             secureFile(temporary, STORED_FILE_PERMISSIONS);
-            Files.write(temporary, content,
+            ContentInspector inspector = new ContentInspector();
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream output = Files.newOutputStream(temporary,
                     StandardOpenOption.WRITE,
                     StandardOpenOption.TRUNCATE_EXISTING,
-                    LinkOption.NOFOLLOW_LINKS);
+                    LinkOption.NOFOLLOW_LINKS)) {
+                size = streamExact(request.getInputStream(),
+                        request.getDeclaredSize(), output, digest, inspector);
+            }
             moveAtomically(temporary, destination);
-            secureFile(destination, STORED_FILE_PERMISSIONS);
             temporary = null;
+            secureFile(destination, SEALED_FILE_PERMISSIONS);
+            String sha256 = hex(digest.digest());
+            verified.put(storageKey, new VerifiedObject(
+                    sha256, size, stamp(attributes(destination))));
             return new StoredUploadedAttachment(
-                    storageKey, CanonicalHashing.sha256(content), content.length,
-                    signature(content));
+                    storageKey, sha256, size, inspector.signature());
         } catch (IOException | RuntimeException failure) {
             deleteQuietly(temporary);
             if (failure instanceof UploadedAttachmentStorageException) {
@@ -104,6 +125,13 @@ public final class FileSystemUploadedConversationAttachmentStorage
         }
     }
 
+    /**
+     * 复制到 Runtime 目录。入库时已在写入同一遍里算出并记下 Hash, 之后只要对象的
+     * inode、大小与 mtime 未变就直接信任, 不再整文件重读; 未记录 (如进程重启后) 时
+     * 流式重算一次再记下。副本经 {@link FileChannel#transferTo} 写成独立文件, 不与存储对象
+     * 共享 inode: Runtime 进程与服务同属一个用户, 共享 inode 时它能改回权限并原地改写已入库的上传。
+     * 进程启动紧前仍由 Runtime 侧对副本做 exact Hash 核验。
+     */
     @Override
     public void copyVerified(
             String storageKey, Path destination,
@@ -120,30 +148,16 @@ public final class FileSystemUploadedConversationAttachmentStorage
         Path temporary = null;
         try {
             requireStoredRegularFile(source, expectedSize);
-            BasicFileAttributes before = attributes(source);
-            byte[] content;
-            try (InputStream input = Files.newInputStream(
-                    source, StandardOpenOption.READ,
-                    LinkOption.NOFOLLOW_LINKS)) {
-                content = readExact(input, expectedSize);
-            }
-            BasicFileAttributes after = attributes(source);
-            requireStoredRegularFile(source, expectedSize);
-            if (!sameIdentity(before, after)
-                    || !source.equals(source.toRealPath())
-                    || !expectedHash.equals(CanonicalHashing.sha256(content))) {
-                throw unavailable("uploaded attachment changed before materialization");
-            }
+            String stamp = requireVerified(key, source, expectedHash, expectedSize);
             Path target = requireRuntimeDestination(destination);
             temporary = Files.createTempFile(
                     target.getParent(), ".attachment-", ".tmp");
-            Files.write(temporary, content,
-                    StandardOpenOption.WRITE,
-                    StandardOpenOption.TRUNCATE_EXISTING,
-                    LinkOption.NOFOLLOW_LINKS);
+            transfer(source, temporary, expectedSize);
+            if (!stamp.equals(stamp(attributes(source)))) {
+                throw unavailable("uploaded attachment changed before materialization");
+            }
             secureFile(temporary, RUNTIME_FILE_PERMISSIONS);
             moveAtomically(temporary, target);
-            secureFile(target, RUNTIME_FILE_PERMISSIONS);
             temporary = null;
         } catch (IOException | RuntimeException failure) {
             deleteQuietly(temporary);
@@ -168,6 +182,7 @@ public final class FileSystemUploadedConversationAttachmentStorage
                 throw unavailable("uploaded attachment cleanup target is invalid");
             }
             Files.delete(candidate);
+            verified.remove(key);
         } catch (IOException failure) {
             throw unavailable("uploaded attachment could not be cleaned");
         }
@@ -189,10 +204,9 @@ public final class FileSystemUploadedConversationAttachmentStorage
         }
     }
 
-    private byte[] readExact(InputStream input, long declaredSize)
-            throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream(
-                (int) Math.min(declaredSize, BUFFER_SIZE));
+    private long streamExact(
+            InputStream input, long declaredSize, OutputStream output,
+            MessageDigest digest, ContentInspector inspector) throws IOException {
         byte[] buffer = new byte[BUFFER_SIZE];
         long total = 0L;
         int count;
@@ -204,15 +218,98 @@ public final class FileSystemUploadedConversationAttachmentStorage
             if (total > maximumBytes || total > declaredSize) {
                 throw unavailable("uploaded attachment exceeded its declared size");
             }
+            digest.update(buffer, 0, count);
+            inspector.accept(buffer, count);
             output.write(buffer, 0, count);
         }
         if (total != declaredSize || total < 1L) {
             throw unavailable("uploaded attachment size changed during upload");
         }
-        return output.toByteArray();
+        return total;
     }
 
-    private UploadedAttachmentContentSignature signature(byte[] content) {
+    /**
+     * 返回可信的对象戳。已记录且戳未变时不读内容; 否则流式重算 Hash,
+     * 并要求重算前后文件身份不变。
+     */
+    private String requireVerified(
+            String key, Path source, String expectedHash, long expectedSize)
+            throws IOException {
+        BasicFileAttributes before = attributes(source);
+        String stamp = stamp(before);
+        VerifiedObject known = verified.get(key);
+        if (known != null && known.stamp.equals(stamp)
+                && known.size == expectedSize) {
+            if (!known.sha256.equals(expectedHash)) {
+                throw unavailable("uploaded attachment changed before materialization");
+            }
+            return stamp;
+        }
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0L;
+        try (InputStream input = Files.newInputStream(
+                source, StandardOpenOption.READ,
+                LinkOption.NOFOLLOW_LINKS)) {
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                total += count;
+                if (total > expectedSize) {
+                    throw unavailable("uploaded attachment changed before materialization");
+                }
+                digest.update(buffer, 0, count);
+            }
+        }
+        BasicFileAttributes after = attributes(source);
+        requireStoredRegularFile(source, expectedSize);
+        if (total != expectedSize
+                || !sameIdentity(before, after)
+                || !source.equals(source.toRealPath())
+                || !expectedHash.equals(hex(digest.digest()))) {
+            throw unavailable("uploaded attachment changed before materialization");
+        }
+        verified.put(key, new VerifiedObject(expectedHash, expectedSize, stamp));
+        return stamp;
+    }
+
+    private void transfer(Path source, Path target, long expectedSize)
+            throws IOException {
+        try (FileChannel input = FileChannel.open(source,
+                StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS);
+             FileChannel output = FileChannel.open(target,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     LinkOption.NOFOLLOW_LINKS)) {
+            long position = 0L;
+            while (position < expectedSize) {
+                long moved = input.transferTo(
+                        position, expectedSize - position, output);
+                if (moved <= 0L) {
+                    throw unavailable("uploaded attachment changed before materialization");
+                }
+                position += moved;
+            }
+        }
+    }
+
+    /**
+     * inode + 大小 + mtime。不含 ctime: 收紧权限等元数据变动会更新 ctime, 含了就每次都要重算。
+     */
+    private String stamp(BasicFileAttributes attributes) {
+        return attributes.fileKey() + ":" + attributes.size() + ":"
+                + attributes.lastModifiedTime().toInstant();
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException failure) {
+            throw new IllegalStateException("SHA-256 is unavailable");
+        }
+    }
+
+    private static UploadedAttachmentContentSignature signature(
+            byte[] content, boolean safeText) {
         if (startsWith(content, 0x4d, 0x5a)) {
             return UploadedAttachmentContentSignature.PE_EXECUTABLE;
         }
@@ -248,31 +345,12 @@ public final class FileSystemUploadedConversationAttachmentStorage
         if (startsWithText(content, "%PDF-")) {
             return UploadedAttachmentContentSignature.PDF;
         }
-        if (isSafeUtf8Text(content)) {
+        if (safeText) {
             return UploadedAttachmentContentSignature.TEXT;
         }
         return UploadedAttachmentContentSignature.BINARY_UNKNOWN;
     }
 
-    private boolean isSafeUtf8Text(byte[] content) {
-        try {
-            String decoded = StandardCharsets.UTF_8.newDecoder()
-                    .onMalformedInput(CodingErrorAction.REPORT)
-                    .onUnmappableCharacter(CodingErrorAction.REPORT)
-                    .decode(ByteBuffer.wrap(content)).toString();
-            for (int index = 0; index < decoded.length(); index++) {
-                char value = decoded.charAt(index);
-                if (value == 0 || (Character.isISOControl(value)
-                        && value != '\n' && value != '\r' && value != '\t')) {
-                    return false;
-                }
-            }
-            return true;
-        } catch (CharacterCodingException failure) {
-            return false;
-        }
-    }
-
     private String nextStorageKey(Path root) throws IOException {
         for (int attempt = 0; attempt < MAXIMUM_KEY_ATTEMPTS; attempt++) {
             byte[] bytes = new byte[STORAGE_KEY_BYTES];
@@ -354,7 +432,7 @@ public final class FileSystemUploadedConversationAttachmentStorage
         }
     }
 
-    private boolean startsWith(byte[] content, int... prefix) {
+    private static boolean startsWith(byte[] content, int... prefix) {
         if (content.length < prefix.length) {
             return false;
         }
@@ -366,11 +444,11 @@ public final class FileSystemUploadedConversationAttachmentStorage
         return true;
     }
 
-    private boolean startsWithText(byte[] content, String prefix) {
+    private static boolean startsWithText(byte[] content, String prefix) {
         return startsWith(content, toUnsignedBytes(prefix));
     }
 
-    private int[] toUnsignedBytes(String value) {
+    private static int[] toUnsignedBytes(String value) {
         byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
         int[] result = new int[bytes.length];
         for (int index = 0; index < bytes.length; index++) {
@@ -407,4 +485,86 @@ public final class FileSystemUploadedConversationAttachmentStorage
         return "FileSystemUploadedConversationAttachmentStorage{configuredRoot, "
                 + "maximumBytes}";
     }
+
+    /** 入库或首次重验时记下的 Hash 与对象戳。 */
+    private static final class VerifiedObject {
+        private final String sha256;
+        private final long size;
+        private final String stamp;
+
+        private VerifiedObject(String sha256, long size, String stamp) {
+            this.sha256 = sha256;
+            this.size = size;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * 边写边判定内容签名: 保留文件头供魔数比对, 并增量做严格 UTF-8 解码,
+     * 与整块解码后逐字符检查控制符的判定一致。
+     */
+    private static final class ContentInspector {
+        private final byte[] head = new byte[SIGNATURE_BYTES];
+        private int headLength;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private final ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE + 8);
+        private final CharBuffer decoded = CharBuffer.allocate(BUFFER_SIZE + 8);
+        private boolean safeText = true;
+
+        private void accept(byte[] buffer, int count) {
+            if (headLength < head.length) {
+                int copied = Math.min(count, head.length - headLength);
+                System.arraycopy(buffer, 0, head, headLength, copied);
+                headLength += copied;
+            }
+            if (!safeText) {
+                return;
+            }
+            pending.put(buffer, 0, count);
+            pending.flip();
+            decode(false);
+            pending.compact();
+        }
+
+        private UploadedAttachmentContentSignature signature() {
+            if (safeText) {
+                pending.flip();
+                decode(true);
+                if (safeText) {
+                    decoded.clear();
+                    safeText = !decoder.flush(decoded).isError();
+                }
+            }
+            return FileSystemUploadedConversationAttachmentStorage.signature(
+                    Arrays.copyOf(head, headLength), safeText);
+        }
+
+        private void decode(boolean endOfInput) {
+            while (true) {
+                decoded.clear();
+                CoderResult result = decoder.decode(pending, decoded, endOfInput);
+                decoded.flip();
+                if (result.isError() || !safeCharacters(decoded)) {
+                    safeText = false;
+                    return;
+                }
+                if (!result.isOverflow()) {
+                    return;
+                }
+            }
+        }
+
+        private boolean safeCharacters(CharBuffer characters) {
+            for (int index = characters.position(); index < characters.limit(); index++) {
+                char value = characters.get(index);
+                if (value == 0 || (Character.isISOControl(value)
+                        && value != '\n' && value != '\r' && value != '\t')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
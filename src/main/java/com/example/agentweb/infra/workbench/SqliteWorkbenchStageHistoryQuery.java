@@ -1,11 +1,13 @@
 package com.example.agentweb.infra.workbench;
 
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.app.workbench.run.WorkbenchStageHistoryQuery;
 import com.example.agentweb.domain.chat.SessionKind;
 import com.example.agentweb.domain.workbench.WorkbenchDomainException;
 import com.example.agentweb.domain.workbench.WorkbenchPromptHistoryDelivery;
 import com.example.agentweb.domain.workbench.WorkbenchStageConversationHistory;
 import com.example.agentweb.domain.workbench.stage.WorkbenchStageConversationProvisioning;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -56,9 +58,17 @@ public class SqliteWorkbenchStageHistoryQuery
                     + "ORDER BY m.id";
 
     private final JdbcTemplate jdbc;
+    private final StoredContentCodec contentCodec;
 
     public SqliteWorkbenchStageHistoryQuery(JdbcTemplate jdbc) {
+        this(jdbc, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteWorkbenchStageHistoryQuery(
+            JdbcTemplate jdbc, StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
+        this.contentCodec = contentCodec;
     }
 
     @Override
@@ -74,7 +84,7 @@ public class SqliteWorkbenchStageHistoryQuery
                 (resultSet, rowNumber) -> new HistoryRow(
                         resultSet.getString("session_id"),
                         resultSet.getString("role"),
-                        resultSet.getString("content")),
+                        contentCodec.decode(resultSet.getObject("content"))),
                 provisioning.getWorkbenchId().getValue(),
                 provisioning.getWorkbenchVersion(),
                 provisioning.getOwner().getOwnerId(),
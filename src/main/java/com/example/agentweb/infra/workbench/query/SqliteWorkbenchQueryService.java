@@ -1,5 +1,6 @@
 package com.example.agentweb.infra.workbench.query;
 
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.app.workbench.query.WorkbenchDetailView;
 import com.example.agentweb.app.workbench.query.WorkbenchListCursor;
 import com.example.agentweb.app.workbench.query.WorkbenchListItemView;
@@ -13,10 +14,12 @@ import com.example.agentweb.domain.workbench.stage.WorkbenchStageSnapshot;
 import com.example.agentweb.infra.workbench.WorkbenchStageSnapshotJsonMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -77,11 +80,19 @@ public class SqliteWorkbenchQueryService implements WorkbenchQueryService {
 
     private final JdbcTemplate jdbc;
     private final WorkbenchStageSnapshotJsonMapper stageSnapshotJsonMapper;
+    private final StoredContentCodec contentCodec;
 
     public SqliteWorkbenchQueryService(JdbcTemplate jdbc) {
+        this(jdbc, StoredContentCodec.PLAIN);
+    }
+
+    @Autowired
+    public SqliteWorkbenchQueryService(
+            JdbcTemplate jdbc, StoredContentCodec contentCodec) {
         this.jdbc = jdbc;
         this.stageSnapshotJsonMapper =
                 new WorkbenchStageSnapshotJsonMapper(new ObjectMapper());
+        this.contentCodec = contentCodec;
     }
 
     @Override
@@ -322,7 +333,18 @@ public class SqliteWorkbenchQueryService implements WorkbenchQueryService {
                 > MAX_MESSAGE_CONTENT_BYTES) {
             throw new WorkbenchStageConversationMessageTooLargeException();
         }
-        return resultSet.getString("content");
+        Object stored = resultSet.getObject("content");
+        if (stored instanceof String) {
+            return (String) stored;
+        }
+        // 压缩存储的行在库里很小，上限按解码后的原文再判一次
+        String content = contentCodec.decode(stored);
+        if (content != null
+                && content.getBytes(StandardCharsets.UTF_8).length
+                > MAX_MESSAGE_CONTENT_BYTES) {
+            throw new WorkbenchStageConversationMessageTooLargeException();
+        }
+        return content;
     }
 
     private List<WorkbenchDetailView.StageView> loadStages(
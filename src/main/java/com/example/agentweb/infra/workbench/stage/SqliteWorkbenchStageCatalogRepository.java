@@ -18,17 +18,29 @@ import com.example.agentweb.domain.workbench.stage.WorkbenchStageDraft;
 import com.example.agentweb.domain.workbench.stage.WorkbenchStageDraftContent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Workbench Stage Catalog 的 SQLite 聚合仓储。
  *
+ * <p>读取走内存快照: 快照以 Catalog 戳 ({@code catalog_version} + {@code updated_at})
+ * 为键, 命中时只查单行 Catalog 记录。Draft 保存不递增 {@code catalog_version} 但会刷新
+ * {@code updated_at}, 因此戳覆盖所有经 {@link #save} 的写入; 本进程的写入另有写计数兜底,
+ * 同一毫秒内的两次保存也不会读到旧快照。未命中时按表批量加载, 在内存中拼装。</p>
+ *
  * @author alex
  * @since 2026-08-05
  */
@@ -40,6 +52,8 @@ public class SqliteWorkbenchStageCatalogRepository
 
     private final JdbcTemplate jdbcTemplate;
     private final StageDraftJsonMapper jsonMapper;
+    private final AtomicLong writes = new AtomicLong();
+    private volatile CatalogSnapshot snapshot;
 
     public SqliteWorkbenchStageCatalogRepository(
             JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
@@ -54,6 +68,7 @@ public class SqliteWorkbenchStageCatalogRepository
     @Override
     @Transactional(readOnly = true)
     public WorkbenchStageCatalog find() {
+        long writesSeen = writes.get();
         List<CatalogRow> catalogs = jdbcTemplate.query(
                 "SELECT catalog_version, updated_at FROM workbench_stage_catalog "
                         + "WHERE singleton_id = ?",
@@ -65,26 +80,12 @@ public class SqliteWorkbenchStageCatalogRepository
             return WorkbenchStageCatalog.empty();
         }
         CatalogRow catalog = catalogs.get(0);
-        List<WorkbenchStageDefinition> definitions = jdbcTemplate.query(
-                "SELECT definition_identifier, current_published_revision, disabled, "
-                        + "created_by_id, created_by_name, created_at, updated_by_id, "
-                        + "updated_by_name, updated_at, version "
-                        + "FROM workbench_stage_definition ORDER BY definition_identifier",
-                (resultSet, rowNumber) -> restoreDefinition(
-                        resultSet.getString("definition_identifier"),
-                        nullableLong(resultSet, "current_published_revision"),
-                        resultSet.getInt("disabled") != 0,
-                        StageCatalogEditor.create(
-                                resultSet.getString("created_by_id"),
-                                resultSet.getString("created_by_name")),
-                        Instant.ofEpochMilli(resultSet.getLong("created_at")),
-                        StageCatalogEditor.create(
-                                resultSet.getString("updated_by_id"),
-                                resultSet.getString("updated_by_name")),
-                        Instant.ofEpochMilli(resultSet.getLong("updated_at")),
-                        resultSet.getLong("version")));
-        return WorkbenchStageCatalog.restore(
-                catalog.catalogVersion, catalog.updatedAt, definitions);
+        CatalogSnapshot cached = snapshot;
+        if (cached == null || !cached.matches(catalog, writesSeen)) {
+            cached = new CatalogSnapshot(catalog, writesSeen, loadDefinitions());
+            snapshot = cached;
+        }
+        return cached.restore();
     }
 
     @Override
@@ -99,54 +100,95 @@ public class SqliteWorkbenchStageCatalogRepository
         }
         WorkbenchStageDefinition definition =
                 catalog.requireDefinition(changedDefinitionIdentifier);
-        requireCatalogState(expectedCatalogVersion);
-        persistDefinition(definition, expectedDefinitionVersion);
-        persistDraft(definition);
-        persistRevisions(definition);
-        persistCatalog(catalog, expectedCatalogVersion);
+        writes.incrementAndGet();
+        try {
+            requireCatalogState(expectedCatalogVersion);
+            persistDefinition(definition, expectedDefinitionVersion);
+            persistDraft(definition);
+            persistRevisions(definition);
+            persistCatalog(catalog, expectedCatalogVersion);
+        } finally {
+            invalidateOnCompletion();
+        }
     }
 
-    private WorkbenchStageDefinition restoreDefinition(
-            String identifier, Long currentRevisionNumber, boolean disabled,
-            StageCatalogEditor createdBy, Instant createdAt,
-            StageCatalogEditor updatedBy, Instant updatedAt, long version) {
-        List<WorkbenchStageDefinitionRevision> revisions = revisions(identifier);
-        WorkbenchStageDefinitionRevision current = currentRevision(
-                currentRevisionNumber, revisions);
-        WorkbenchStageDraft draft = draft(identifier);
-        return WorkbenchStageDefinition.restore(
-                identifier, draft, current, revisions, disabled,
-                createdBy, createdAt, updatedBy, updatedAt, version);
+    /**
+     * 冷加载: 每张表一条全量查询, 在内存里按 (Definition, Revision) 拼装,
+     * 查询数与 Definition / Revision 数量无关。
+     */
+    private List<DefinitionFacts> loadDefinitions() {
+        Map<String, WorkbenchStageDraft> drafts = drafts();
+        Map<String, List<WorkbenchStageDefinitionRevision>> revisions =
+                revisions(commands(), skills(), mcpServers());
+        return jdbcTemplate.query(
+                "SELECT definition_identifier, current_published_revision, disabled, "
+                        + "created_by_id, created_by_name, created_at, updated_by_id, "
+                        + "updated_by_name, updated_at, version "
+                        + "FROM workbench_stage_definition ORDER BY definition_identifier",
+                (resultSet, rowNumber) -> {
+                    String identifier = resultSet.getString("definition_identifier");
+                    List<WorkbenchStageDefinitionRevision> history = revisions.getOrDefault(
+                            identifier,
+                            Collections.<WorkbenchStageDefinitionRevision>emptyList());
+                    return new DefinitionFacts(identifier, drafts.get(identifier),
+                            currentRevision(nullableLong(resultSet,
+                                    "current_published_revision"), history),
+                            history, resultSet.getInt("disabled") != 0,
+                            StageCatalogEditor.create(
+                                    resultSet.getString("created_by_id"),
+                                    resultSet.getString("created_by_name")),
+                            Instant.ofEpochMilli(resultSet.getLong("created_at")),
+                            StageCatalogEditor.create(
+                                    resultSet.getString("updated_by_id"),
+                                    resultSet.getString("updated_by_name")),
+                            Instant.ofEpochMilli(resultSet.getLong("updated_at")),
+                            resultSet.getLong("version"));
+                });
     }
 
-    private WorkbenchStageDraft draft(String identifier) {
-        List<WorkbenchStageDraft> drafts = jdbcTemplate.query(
-                "SELECT based_on_published_revision, draft_content_json, draft_hash, "
-                        + "saved_by_id, saved_by_name, saved_at "
-                        + "FROM workbench_stage_draft WHERE definition_identifier = ?",
-                (resultSet, rowNumber) -> WorkbenchStageDraft.restore(
-                        nullableLong(resultSet, "based_on_published_revision"),
-                        jsonMapper.draft(resultSet.getString("draft_content_json")),
-                        resultSet.getString("draft_hash"),
-                        StageCatalogEditor.create(
-                                resultSet.getString("saved_by_id"),
-                                resultSet.getString("saved_by_name")),
-                        Instant.ofEpochMilli(resultSet.getLong("saved_at"))),
-                identifier);
-        return drafts.stream().findFirst().orElse(null);
+    private Map<String, WorkbenchStageDraft> drafts() {
+        Map<String, WorkbenchStageDraft> drafts =
+                new HashMap<String, WorkbenchStageDraft>();
+        jdbcTemplate.query(
+                "SELECT definition_identifier, based_on_published_revision, "
+                        + "draft_content_json, draft_hash, saved_by_id, saved_by_name, "
+                        + "saved_at FROM workbench_stage_draft",
+                (RowCallbackHandler) resultSet -> drafts.put(
+                        resultSet.getString("definition_identifier"),
+                        WorkbenchStageDraft.restore(
+                                nullableLong(resultSet, "based_on_published_revision"),
+                                jsonMapper.draft(resultSet.getString("draft_content_json")),
+                                resultSet.getString("draft_hash"),
+                                StageCatalogEditor.create(
+                                        resultSet.getString("saved_by_id"),
+                                        resultSet.getString("saved_by_name")),
+                                Instant.ofEpochMilli(resultSet.getLong("saved_at")))));
+        return drafts;
     }
 
-    private List<WorkbenchStageDefinitionRevision> revisions(String identifier) {
-        return jdbcTemplate.query(
-                "SELECT revision_number, sequence_number, display_name, description, "
-                        + "stage_rules, allowed_run_modes_json, definition_hash, "
-                        + "created_by_id, created_by_name, published_at "
+    private Map<String, List<WorkbenchStageDefinitionRevision>> revisions(
+            Map<RevisionKey, List<StageCommandReference>> commands,
+            Map<RevisionKey, List<StageSkillReference>> skills,
+            Map<RevisionKey, List<StageMcpServerReference>> mcpServers) {
+        Map<String, List<WorkbenchStageDefinitionRevision>> revisions =
+                new HashMap<String, List<WorkbenchStageDefinitionRevision>>();
+        jdbcTemplate.query(
+                "SELECT definition_identifier, revision_number, sequence_number, "
+                        + "display_name, description, stage_rules, allowed_run_modes_json, "
+                        + "definition_hash, created_by_id, created_by_name, published_at "
                         + "FROM workbench_stage_definition_revision "
-                        + "WHERE definition_identifier = ? ORDER BY revision_number",
-                (resultSet, rowNumber) -> {
+                        + "ORDER BY definition_identifier, revision_number",
+                (RowCallbackHandler) resultSet -> {
+                    String identifier = resultSet.getString("definition_identifier");
                     long revisionNumber = resultSet.getLong("revision_number");
-                    ResolvedStageCapabilities capabilities = capabilities(
-                            identifier, revisionNumber);
+                    RevisionKey key = new RevisionKey(identifier, revisionNumber);
+                    ResolvedStageCapabilities capabilities = new ResolvedStageCapabilities(
+                            commands.getOrDefault(key,
+                                    Collections.<StageCommandReference>emptyList()),
+                            skills.getOrDefault(key,
+                                    Collections.<StageSkillReference>emptyList()),
+                            mcpServers.getOrDefault(key,
+                                    Collections.<StageMcpServerReference>emptyList()));
                     WorkbenchStageDraftContent content =
                             WorkbenchStageDraftContent.create(
                                     resultSet.getInt("sequence_number"),
@@ -158,54 +200,76 @@ public class SqliteWorkbenchStageCatalogRepository
                                     commandSelections(capabilities),
                                     skillSelections(capabilities),
                                     mcpSelections(capabilities));
-                    return WorkbenchStageDefinitionRevision.restore(
-                            identifier, revisionNumber, content, capabilities,
-                            resultSet.getString("definition_hash"),
-                            StageCatalogEditor.create(
-                                    resultSet.getString("created_by_id"),
-                                    resultSet.getString("created_by_name")),
-                            Instant.ofEpochMilli(resultSet.getLong("published_at")));
-                }, identifier);
+                    revisions.computeIfAbsent(identifier,
+                            ignored -> new ArrayList<WorkbenchStageDefinitionRevision>())
+                            .add(WorkbenchStageDefinitionRevision.restore(
+                                    identifier, revisionNumber, content, capabilities,
+                                    resultSet.getString("definition_hash"),
+                                    StageCatalogEditor.create(
+                                            resultSet.getString("created_by_id"),
+                                            resultSet.getString("created_by_name")),
+                                    Instant.ofEpochMilli(resultSet.getLong("published_at"))));
+                });
+        return revisions;
     }
 
-    private ResolvedStageCapabilities capabilities(
-            String identifier, long revisionNumber) {
-        List<StageCommandReference> commands = jdbcTemplate.query(
-                "SELECT capability_identifier, capability_version, capability_hash "
+    private Map<RevisionKey, List<StageCommandReference>> commands() {
+        Map<RevisionKey, List<StageCommandReference>> commands =
+                new HashMap<RevisionKey, List<StageCommandReference>>();
+        jdbcTemplate.query(
+                "SELECT definition_identifier, revision_number, capability_identifier, "
+                        + "capability_version, capability_hash "
                         + "FROM workbench_stage_definition_command "
-                        + "WHERE definition_identifier = ? AND revision_number = ? "
-                        + "ORDER BY command_order",
-                (resultSet, rowNumber) -> new StageCommandReference(
-                        resultSet.getString("capability_identifier"),
-                        resultSet.getString("capability_version"),
-                        resultSet.getString("capability_hash")),
-                identifier, revisionNumber);
-        List<StageSkillReference> skills = jdbcTemplate.query(
-                "SELECT capability_identifier, capability_version, capability_hash, required "
+                        + "ORDER BY definition_identifier, revision_number, command_order",
+                (RowCallbackHandler) resultSet -> commands.computeIfAbsent(
+                        RevisionKey.of(resultSet),
+                        ignored -> new ArrayList<StageCommandReference>())
+                        .add(new StageCommandReference(
+                                resultSet.getString("capability_identifier"),
+                                resultSet.getString("capability_version"),
+                                resultSet.getString("capability_hash"))));
+        return commands;
+    }
+
+    private Map<RevisionKey, List<StageSkillReference>> skills() {
+        Map<RevisionKey, List<StageSkillReference>> skills =
+                new HashMap<RevisionKey, List<StageSkillReference>>();
+        jdbcTemplate.query(
+                "SELECT definition_identifier, revision_number, capability_identifier, "
+                        + "capability_version, capability_hash, required "
                         + "FROM workbench_stage_definition_skill "
-                        + "WHERE definition_identifier = ? AND revision_number = ? "
-                        + "ORDER BY skill_order",
-                (resultSet, rowNumber) -> new StageSkillReference(
-                        resultSet.getString("capability_identifier"),
-                        resultSet.getString("capability_version"),
-                        resultSet.getString("capability_hash"),
-                        resultSet.getInt("required") != 0),
-                identifier, revisionNumber);
-        List<StageMcpServerReference> mcpServers = jdbcTemplate.query(
-                "SELECT capability_identifier, capability_version, capability_hash, "
-                        + "required, maximum_access, transport "
-                        + "FROM workbench_stage_definition_mcp_server "
-                        + "WHERE definition_identifier = ? AND revision_number = ? "
-                        + "ORDER BY mcp_order",
-                (resultSet, rowNumber) -> new StageMcpServerReference(
-                        resultSet.getString("capability_identifier"),
-                        resultSet.getString("capability_version"),
-                        resultSet.getString("capability_hash"),
-                        resultSet.getInt("required") != 0,
-                        CapabilityAccess.valueOf(resultSet.getString("maximum_access")),
-                        resultSet.getString("transport")),
-                identifier, revisionNumber);
-        return new ResolvedStageCapabilities(commands, skills, mcpServers);
+                        + "ORDER BY definition_identifier, revision_number, skill_order",
+                (RowCallbackHandler) resultSet -> skills.computeIfAbsent(
+                        RevisionKey.of(resultSet),
+                        ignored -> new ArrayList<StageSkillReference>())
+                        .add(new StageSkillReference(
+                                resultSet.getString("capability_identifier"),
+                                resultSet.getString("capability_version"),
+                                resultSet.getString("capability_hash"),
+                                resultSet.getInt("required") != 0)));
+        return skills;
+    }
+
+    private Map<RevisionKey, List<StageMcpServerReference>> mcpServers() {
+        Map<RevisionKey, List<StageMcpServerReference>> mcpServers =
+                new HashMap<RevisionKey, List<StageMcpServerReference>>();
+        jdbcTemplate.query(
+                "SELECT definition_identifier, revision_number, capability_identifier, "
+                        + "capability_version, capability_hash, required, maximum_access, "
+                        + "transport FROM workbench_stage_definition_mcp_server "
+                        + "ORDER BY definition_identifier, revision_number, mcp_order",
+                (RowCallbackHandler) resultSet -> mcpServers.computeIfAbsent(
+                        RevisionKey.of(resultSet),
+                        ignored -> new ArrayList<StageMcpServerReference>())
+                        .add(new StageMcpServerReference(
+                                resultSet.getString("capability_identifier"),
+                                resultSet.getString("capability_version"),
+                                resultSet.getString("capability_hash"),
+                                resultSet.getInt("required") != 0,
+                                CapabilityAccess.valueOf(
+                                        resultSet.getString("maximum_access")),
+                                resultSet.getString("transport"))));
+        return mcpServers;
     }
 
     private List<StageCommandSelection> commandSelections(
@@ -448,6 +512,24 @@ public class SqliteWorkbenchStageCatalogRepository
         }
     }
 
+    /**
+     * 写入开始时已递增一次写计数; 事务结束 (提交或回滚) 后再递增一次,
+     * 让写入期间加载的快照在下次读取时一律失效。
+     */
+    private void invalidateOnCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writes.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        writes.incrementAndGet();
+                    }
+                });
+    }
+
     private Long nullableLong(java.sql.ResultSet resultSet, String column)
             throws java.sql.SQLException {
         long value = resultSet.getLong(column);
@@ -481,4 +563,109 @@ public class SqliteWorkbenchStageCatalogRepository
             this.updatedAt = updatedAt;
         }
     }
+
+    /**
+     * 某个 Catalog 戳下的不可变事实; 每次读取据此还原出新的可变聚合,
+     * 调用方对聚合的修改不会回写快照。
+     */
+    private static final class CatalogSnapshot {
+        private final CatalogRow catalog;
+        private final long writes;
+        private final List<DefinitionFacts> definitions;
+
+        private CatalogSnapshot(
+                CatalogRow catalog, long writes, List<DefinitionFacts> definitions) {
+            this.catalog = catalog;
+            this.writes = writes;
+            this.definitions = definitions;
+        }
+
+        private boolean matches(CatalogRow current, long currentWrites) {
+            return writes == currentWrites
+                    && catalog.catalogVersion == current.catalogVersion
+                    && Objects.equals(catalog.updatedAt, current.updatedAt);
+        }
+
+        private WorkbenchStageCatalog restore() {
+            List<WorkbenchStageDefinition> restored =
+                    new ArrayList<WorkbenchStageDefinition>(definitions.size());
+            for (DefinitionFacts facts : definitions) {
+                restored.add(facts.restore());
+            }
+            return WorkbenchStageCatalog.restore(
+                    catalog.catalogVersion, catalog.updatedAt, restored);
+        }
+    }
+
+    /** Draft 与 Revision 本身不可变, 可在多次还原之间共享。 */
+    private static final class DefinitionFacts {
+        private final String identifier;
+        private final WorkbenchStageDraft draft;
+        private final WorkbenchStageDefinitionRevision current;
+        private final List<WorkbenchStageDefinitionRevision> revisions;
+        private final boolean disabled;
+        private final StageCatalogEditor createdBy;
+        private final Instant createdAt;
+        private final StageCatalogEditor updatedBy;
+        private final Instant updatedAt;
+        private final long version;
+
+        private DefinitionFacts(
+                String identifier, WorkbenchStageDraft draft,
+                WorkbenchStageDefinitionRevision current,
+                List<WorkbenchStageDefinitionRevision> revisions, boolean disabled,
+                StageCatalogEditor createdBy, Instant createdAt,
+                StageCatalogEditor updatedBy, Instant updatedAt, long version) {
+            this.identifier = identifier;
+            this.draft = draft;
+            this.current = current;
+            this.revisions = Collections.unmodifiableList(revisions);
+            this.disabled = disabled;
+            this.createdBy = createdBy;
+            this.createdAt = createdAt;
+            this.updatedBy = updatedBy;
+            this.updatedAt = updatedAt;
+            this.version = version;
+        }
+
+        private WorkbenchStageDefinition restore() {
+            return WorkbenchStageDefinition.restore(
+                    identifier, draft, current, revisions, disabled,
+                    createdBy, createdAt, updatedBy, updatedAt, version);
+        }
+    }
+
+    private static final class RevisionKey {
+        private final String identifier;
+        private final long revisionNumber;
+
+        private RevisionKey(String identifier, long revisionNumber) {
+            this.identifier = identifier;
+            this.revisionNumber = revisionNumber;
+        }
+
+        private static RevisionKey of(java.sql.ResultSet resultSet)
+                throws java.sql.SQLException {
+            return new RevisionKey(resultSet.getString("definition_identifier"),
+                    resultSet.getLong("revision_number"));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof RevisionKey)) {
+                return false;
+            }
+            RevisionKey that = (RevisionKey) other;
+            return revisionNumber == that.revisionNumber
+                    && identifier.equals(that.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * identifier.hashCode() + Long.hashCode(revisionNumber);
+        }
+    }
 }
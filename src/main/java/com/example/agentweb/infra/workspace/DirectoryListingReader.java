@@ -0,0 +1,56 @@
+package com.example.agentweb.infra.workspace;
+
+import com.example.agentweb.app.fs.DirectoryListing;
+import com.example.agentweb.app.fs.DirectoryListingSource;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 不带缓存的目录列举: 一次 {@link DirectoryStream} 遍历, 每个子项只做一次 NOFOLLOW 属性读取。
+ * 符号链接与遍历期间消失的子项直接跳过。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public class DirectoryListingReader implements DirectoryListingSource {
+
+    @Override
+    public DirectoryListing list(Path directory) throws IOException {
+        List<DirectoryListing.Entry> entries = new ArrayList<DirectoryListing.Entry>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(
+                            child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException vanished) {
+                    continue;
+                }
+                if (attributes.isSymbolicLink() || child.getFileName() == null) {
+                    continue;
+                }
+                entries.add(new DirectoryListing.Entry(
+                        child.getFileName().toString(),
+                        attributes.isDirectory(), attributes.isRegularFile(),
+                        attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        return new DirectoryListing(entries);
+    }
+
+    /**
+     * 目录自身的身份 + mtime。子项增删改名会推进目录 mtime; 目录被替换时 fileKey 变化。
+     */
+    String stamp(Path directory) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(
+                directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        return attributes.fileKey() + ":" + attributes.lastModifiedTime().toInstant();
+    }
+}
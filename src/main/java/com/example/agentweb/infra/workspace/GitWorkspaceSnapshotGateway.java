@@ -30,9 +30,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
- * 顺序采集多仓库 Git 状态并通过二次 HEAD/branch 核验保证窗口稳定。
+ * 并行采集多仓库 Git 状态并通过二次 HEAD/branch 核验保证窗口稳定。
+ *
+ * <p>每个仓库固定 status + 整库 diff 两次进程；已跟踪文件的状态从整库 diff 按路径切段得到，
+ * 与逐文件 {@code git diff --binary HEAD -- <path>} 字节一致，切不出的路径才回退单独执行。</p>
  *
  * @author alex
  * @since 2026-08-01
@@ -42,12 +53,14 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
 
     private static final int DEFAULT_MAXIMUM_CHANGED_FILE_BYTES = 8 * 1024 * 1024;
     private static final Duration DEFAULT_CAPTURE_TIMEOUT = Duration.ofSeconds(60);
+    private static final int DEFAULT_CAPTURE_PARALLELISM = 4;
 
     private final Clock clock;
     private final WorkspaceGitCommandRunner git;
     private final int maximumChangedFiles;
     private final int maximumChangedFileBytes;
     private final Duration captureTimeout;
+    private final int captureParallelism;
 
     @Autowired
     public GitWorkspaceSnapshotGateway(
@@ -59,27 +72,35 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
             @Value("${agent.workbench.workspace.max-changed-files:10000}")
             int maximumChangedFiles,
             @Value("${agent.workbench.workspace.capture-timeout-seconds:60}")
-            long captureTimeoutSeconds) {
+            long captureTimeoutSeconds,
+            @Value("${agent.workbench.workspace.capture-parallelism:4}")
+            int captureParallelism) {
         this(clock, new ProcessWorkspaceGitCommandRunner(
                         Duration.ofSeconds(gitCommandTimeoutSeconds), maximumGitOutputBytes),
                 maximumChangedFiles, maximumGitOutputBytes,
-                Duration.ofSeconds(captureTimeoutSeconds));
+                Duration.ofSeconds(captureTimeoutSeconds), captureParallelism);
     }
 
     GitWorkspaceSnapshotGateway(Clock clock, WorkspaceGitCommandRunner git,
                                 int maximumChangedFiles) {
+        this(clock, git, maximumChangedFiles, DEFAULT_CAPTURE_PARALLELISM);
+    }
+
+    GitWorkspaceSnapshotGateway(Clock clock, WorkspaceGitCommandRunner git,
+                                int maximumChangedFiles, int captureParallelism) {
         this(clock, git, maximumChangedFiles, DEFAULT_MAXIMUM_CHANGED_FILE_BYTES,
-                DEFAULT_CAPTURE_TIMEOUT);
+                DEFAULT_CAPTURE_TIMEOUT, captureParallelism);
     }
 
     private GitWorkspaceSnapshotGateway(Clock clock, WorkspaceGitCommandRunner git,
                                         int maximumChangedFiles,
                                         int maximumChangedFileBytes,
-                                        Duration captureTimeout) {
+                                        Duration captureTimeout,
+                                        int captureParallelism) {
         if (clock == null || git == null) {
             throw new IllegalArgumentException("workspace snapshot clock and Git runner are required");
         }
-        if (maximumChangedFiles < 1 || maximumChangedFileBytes < 1) {
+        if (maximumChangedFiles < 1 || maximumChangedFileBytes < 1 || captureParallelism < 1) {
             throw new IllegalArgumentException("workspace snapshot limits must be positive");
         }
         if (captureTimeout == null || captureTimeout.isZero() || captureTimeout.isNegative()) {
@@ -90,6 +111,7 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
         this.maximumChangedFiles = maximumChangedFiles;
         this.maximumChangedFileBytes = maximumChangedFileBytes;
         this.captureTimeout = captureTimeout;
+        this.captureParallelism = captureParallelism;
     }
 
     @Override
@@ -120,14 +142,18 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
     }
 
     private CaptureAttempt captureAttempt(RepositoryScope scope, long deadline) {
+        List<RepositoryCapture> captures = inParallel(scope.getRepositories(), deadline,
+                repository -> {
+                    Path root = requireCurrentRepository(repository);
+                    RepositoryIdentity identity = identity(repository.getRepositoryKey(), root);
+                    return new RepositoryCapture(identity,
+                            baseline(repository.getRepositoryKey(), root, identity));
+                });
         List<RepositoryBaseline> baselines = new ArrayList<RepositoryBaseline>();
         List<RepositoryIdentity> identities = new ArrayList<RepositoryIdentity>();
-        for (ResolvedRepository repository : scope.getRepositories()) {
-            requireBeforeDeadline(deadline);
-            Path root = requireCurrentRepository(repository);
-            RepositoryIdentity identity = identity(repository.getRepositoryKey(), root);
-            identities.add(identity);
-            baselines.add(baseline(repository.getRepositoryKey(), root, identity));
+        for (RepositoryCapture capture : captures) {
+            identities.add(capture.identity);
+            baselines.add(capture.baseline);
         }
         return new CaptureAttempt(baselines, identities);
     }
@@ -140,19 +166,21 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
         byte[] status = statusResult.getOutput();
         byte[] diff = required(root, "git", "diff", "--binary", "HEAD", "--")
                 .getOutput();
-        List<ChangedFileEvidence> files = changedFiles(root, status);
+        List<ChangedFileEvidence> files = changedFiles(root, status, diff);
         String diffHash = diffHash(status, diff, files);
         return RepositoryBaseline.capture(repositoryKey, root.toString(), identity.branch,
                 identity.head, status.length == 0, diffHash, files, clock.instant());
     }
 
-    private List<ChangedFileEvidence> changedFiles(Path root, byte[] statusOutput) {
+    private List<ChangedFileEvidence> changedFiles(Path root, byte[] statusOutput,
+                                                   byte[] diffOutput) {
         List<String> entries = zeroSeparated(statusOutput);
         if (entries.size() > maximumChangedFiles) {
             throw failure(WorkspaceFailureCode.WORKSPACE_GIT_UNAVAILABLE,
                     "workspace changed file count exceeds the configured limit", null);
         }
         List<ChangedFileEvidence> files = new ArrayList<ChangedFileEvidence>();
+        TrackedDiffSections sections = null;
         for (String entry : entries) {
             if (entry.length() < 4 || entry.charAt(2) != ' ') {
                 throw failure(WorkspaceFailureCode.WORKSPACE_GIT_UNAVAILABLE,
@@ -161,8 +189,18 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
             String status = entry.substring(0, 2);
             String relativePath = entry.substring(3);
             Path candidate = relativeCandidate(root, relativePath);
-            byte[] state = "??".equals(status)
-                    ? untrackedState(root, candidate) : trackedState(root, relativePath);
+            byte[] state;
+            if ("??".equals(status)) {
+                state = untrackedState(root, candidate);
+            } else {
+                if (sections == null) {
+                    sections = trackedSections(root, diffOutput);
+                }
+                state = sections.stateOf(relativePath);
+                if (state == null) {
+                    state = trackedState(root, relativePath);
+                }
+            }
             String fingerprint = CanonicalHashing.sha256((status + ':'
                     + CanonicalHashing.sha256(state)).getBytes(StandardCharsets.UTF_8));
             files.add(ChangedFileEvidence.observed(relativePath, status, fingerprint));
@@ -188,6 +226,19 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
         return CanonicalHashing.sha256(canonical.toString());
     }
 
+    /**
+     * 整库 diff 里出现重命名配对时换一次 {@code --no-renames} 输出再切段：单路径 diff 从不配对，
+     * 关闭重命名后的各段才与之一致。{@code diffHash} 仍按原整库输出计算。
+     */
+    private TrackedDiffSections trackedSections(Path root, byte[] diffOutput) {
+        TrackedDiffSections sections = TrackedDiffSections.parse(diffOutput);
+        if (sections.isComplete()) {
+            return sections;
+        }
+        return TrackedDiffSections.parse(required(root,
+                "git", "diff", "--binary", "--no-renames", "HEAD", "--").getOutput());
+    }
+
     private byte[] trackedState(Path root, String relativePath) {
         return required(root, "git", "diff", "--binary", "HEAD", "--", relativePath)
                 .getOutput();
@@ -246,14 +297,54 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
     }
 
     private boolean isStable(CaptureAttempt attempt, long deadline) {
-        for (RepositoryIdentity captured : attempt.identities) {
-            requireBeforeDeadline(deadline);
-            RepositoryIdentity verified = identity(captured.repositoryKey, captured.root);
-            if (!captured.sameBranchAndHead(verified)) {
-                return false;
+        List<Boolean> verified = inParallel(attempt.identities, deadline,
+                captured -> captured.sameBranchAndHead(
+                        identity(captured.repositoryKey, captured.root)));
+        return !verified.contains(Boolean.FALSE);
+    }
+
+    /**
+     * 按输入顺序返回结果，失败时抛出顺序上第一个仓库的异常并取消其余任务；单仓库直接在调用线程执行。
+     */
+    private <T, R> List<R> inParallel(List<T> items, long deadline, Function<T, R> task) {
+        List<R> results = new ArrayList<R>(items.size());
+        if (items.size() < 2 || captureParallelism < 2) {
+            for (T item : items) {
+                requireBeforeDeadline(deadline);
+                results.add(task.apply(item));
             }
+            return results;
+        }
+        requireBeforeDeadline(deadline);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(captureParallelism, items.size()),
+                Thread.ofVirtual().name("workspace-capture-", 1L).factory());
+        try {
+            List<Future<R>> futures = new ArrayList<Future<R>>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> task.apply(item)));
+            }
+            for (Future<R> future : futures) {
+                results.add(future.get(Math.max(0L, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw failure(WorkspaceFailureCode.WORKSPACE_GIT_UNAVAILABLE,
+                    "workspace capture failed", ex.getCause());
+        } catch (TimeoutException | CancellationException ex) {
+            throw failure(WorkspaceFailureCode.WORKSPACE_GIT_UNAVAILABLE,
+                    "workspace capture exceeded its configured timeout", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw failure(WorkspaceFailureCode.WORKSPACE_GIT_UNAVAILABLE,
+                    "workspace capture was interrupted", ex);
+        } finally {
+            executor.shutdownNow();
         }
-        return true;
     }
 
     private RepositoryIdentity identity(String repositoryKey, Path root) {
@@ -373,6 +464,16 @@ public class GitWorkspaceSnapshotGateway implements WorkspaceSnapshotGateway {
         }
     }
 
+    private static final class RepositoryCapture {
+        private final RepositoryIdentity identity;
+        private final RepositoryBaseline baseline;
+
+        private RepositoryCapture(RepositoryIdentity identity, RepositoryBaseline baseline) {
+            this.identity = identity;
+            this.baseline = baseline;
+        }
+    }
+
     private static final class CaptureAttempt {
         private final List<RepositoryBaseline> baselines;
         private final List<RepositoryIdentity> identities;
@@ -0,0 +1,233 @@
+package com.example.agentweb.infra.workspace;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把一次整库 {@code git diff --binary HEAD --} 输出按 {@code diff --git} 段切分到路径。
+ *
+ * <p>单路径 {@code git diff --binary HEAD -- <path>} 的输出就是整库输出里该路径的段（类型变更时是相邻两段），
+ * 以下情况除外，需由调用方回退到单路径命令：重命名/复制配对段（单路径 diff 从不配对）、
+ * 带 pathspec 通配或 magic 的路径（单路径命令会匹配到其他文件）、
+ * 以及无法按默认 {@code a/}、{@code b/} 前缀解析的段头或混入的 Git 诊断行。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class TrackedDiffSections {
+
+    private static final byte[] SECTION_HEADER = ascii("diff --git ");
+    private static final byte[][] PAIRING_LINES = {
+            ascii("rename from "), ascii("copy from "), ascii("similarity index "),
+            ascii("dissimilarity index ")
+    };
+    private static final byte[][] DIAGNOSTIC_LINES = {
+            ascii("warning: "), ascii("error: "), ascii("fatal: "), ascii("hint: ")
+    };
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Map<String, byte[]> sections;
+    private final boolean complete;
+
+    private TrackedDiffSections(Map<String, byte[]> sections, boolean complete) {
+        this.sections = sections;
+        this.complete = complete;
+    }
+
+    static TrackedDiffSections parse(byte[] diff) {
+        List<Integer> starts = new ArrayList<Integer>();
+        boolean complete = true;
+        for (int line = 0; line < diff.length; line = nextLine(diff, line)) {
+            if (startsWith(diff, line, SECTION_HEADER)) {
+                starts.add(line);
+            } else if (starts.isEmpty() || startsWithAny(diff, line, DIAGNOSTIC_LINES)
+                    || startsWithAny(diff, line, PAIRING_LINES)) {
+                complete = false;
+            }
+        }
+        Map<String, ByteArrayOutputStream> byPath = new HashMap<String, ByteArrayOutputStream>();
+        for (int index = 0; index < starts.size(); index++) {
+            int start = starts.get(index);
+            int end = index + 1 < starts.size() ? starts.get(index + 1) : diff.length;
+            String path = headerPath(diff, start + SECTION_HEADER.length,
+                    lineContentEnd(diff, start));
+            if (path == null) {
+                complete = false;
+                continue;
+            }
+            byPath.computeIfAbsent(path, key -> new ByteArrayOutputStream())
+                    .write(diff, start, end - start);
+        }
+        Map<String, byte[]> sections = new HashMap<String, byte[]>();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : byPath.entrySet()) {
+            sections.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return new TrackedDiffSections(sections, complete);
+    }
+
+    /**
+     * 所有段都能无歧义地归属到单一路径。
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 与 {@code git diff --binary HEAD -- <path>} 字节一致的输出；无法保证一致时返回 {@code null}。
+     */
+    byte[] stateOf(String path) {
+        if (!complete || hasPathspecMagic(path)) {
+            return null;
+        }
+        byte[] section = sections.get(path);
+        return section == null ? EMPTY : section;
+    }
+
+    private static boolean hasPathspecMagic(String path) {
+        if (path.startsWith(":")) {
+            return true;
+        }
+        for (int index = 0; index < path.length(); index++) {
+            char value = path.charAt(index);
+            if (value == '*' || value == '?' || value == '[' || value == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 {@code a/<path> b/<path>}；未重命名的段两侧路径相同，不加引号时据此定位分隔空格。
+     */
+    private static String headerPath(byte[] diff, int from, int to) {
+        byte[] source;
+        byte[] target;
+        if (from < to && diff[from] == '"') {
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            int next = unquote(diff, from, to, first);
+            if (next < 0 || next >= to || diff[next] != ' ') {
+                return null;
+            }
+            next++;
+            if (next < to && diff[next] == '"') {
+                ByteArrayOutputStream second = new ByteArrayOutputStream();
+                if (unquote(diff, next, to, second) != to) {
+                    return null;
+                }
+                target = second.toByteArray();
+            } else {
+                target = copy(diff, next, to);
+            }
+            source = first.toByteArray();
+        } else {
+            int length = to - from;
+            if (length < 7 || length % 2 == 0 || diff[from + length / 2] != ' ') {
+                return null;
+            }
+            source = copy(diff, from, from + length / 2);
+            target = copy(diff, from + length / 2 + 1, to);
+        }
+        if (source.length < 3 || source.length != target.length
+                || source[0] != 'a' || source[1] != '/' || target[0] != 'b' || target[1] != '/') {
+            return null;
+        }
+        for (int index = 2; index < source.length; index++) {
+            if (source[index] != target[index]) {
+                return null;
+            }
+        }
+        String path = new String(source, 2, source.length - 2, StandardCharsets.UTF_8);
+        return path.indexOf('\uFFFD') >= 0 ? null : path;
+    }
+
+    /**
+     * 还原 Git {@code quote_c_style} 引号路径，返回右引号之后的位置；格式不符时返回 -1。
+     */
+    private static int unquote(byte[] value, int from, int to, ByteArrayOutputStream out) {
+        for (int index = from + 1; index < to; index++) {
+            byte current = value[index];
+            if (current == '"') {
+                return index + 1;
+            }
+            if (current != '\\') {
+                out.write(current);
+                continue;
+            }
+            if (++index >= to) {
+                return -1;
+            }
+            switch (value[index]) {
+                case 'a': out.write(7); break;
+                case 'b': out.write(8); break;
+                case 't': out.write('\t'); break;
+                case 'n': out.write('\n'); break;
+                case 'v': out.write(11); break;
+                case 'f': out.write('\f'); break;
+                case 'r': out.write('\r'); break;
+                case '"': out.write('"'); break;
+                case '\\': out.write('\\'); break;
+                default:
+                    if (index + 2 >= to || !isOctal(value[index]) || !isOctal(value[index + 1])
+                            || !isOctal(value[index + 2])) {
+                        return -1;
+                    }
+                    out.write(((value[index] - '0') << 6) | ((value[index + 1] - '0') << 3)
+                            | (value[index + 2] - '0'));
+                    index += 2;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isOctal(byte value) {
+        return value >= '0' && value <= '7';
+    }
+
+    private static int nextLine(byte[] value, int from) {
+        int end = lineContentEnd(value, from);
+        return end < value.length ? end + 1 : end;
+    }
+
+    private static int lineContentEnd(byte[] value, int from) {
+        int index = from;
+        while (index < value.length && value[index] != '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean startsWithAny(byte[] value, int from, byte[][] prefixes) {
+        for (byte[] prefix : prefixes) {
+            if (startsWith(value, from, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] value, int from, byte[] prefix) {
+        if (value.length - from < prefix.length) {
+            return false;
+        }
+        for (int index = 0; index < prefix.length; index++) {
+            if (value[from + index] != prefix[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] copy(byte[] value, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(value, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.agentweb.infra.workspace;
+
+import com.example.agentweb.app.fs.DirectoryListing;
+import com.example.agentweb.app.fs.DirectoryListingSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 按目录缓存列举快照, 反复进出同一目录时不再遍历。
+ *
+ * <p>命中需同时满足两条: 该目录的 {@link WatchService} 注册自快照读出后没有投递事件
+ * (覆盖子项内容变化带来的 size / mtime 变动), 且目录自身的 inode + mtime 未变
+ * (覆盖增删改名, 不依赖异步投递的事件是否已到)。无法注册监听 (平台不支持、inotify 配额耗尽)
+ * 的目录不缓存, 每次直接遍历。</p>
+ *
+ * <p>不起后台线程, 每次访问前非阻塞地排空已投递的事件。按 LRU 最多保留
+ * {@value #DEFAULT_CAPACITY} 个目录, 淘汰时一并取消监听; 遍历本身在锁外进行。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Component
+@Slf4j
+public class WatchedDirectoryListingCache implements DirectoryListingSource, AutoCloseable {
+
+    static final int DEFAULT_CAPACITY = 128;
+    private static final long UNWATCHED = -1L;
+
+    private final DirectoryListingReader reader;
+    private final Map<Path, Slot> slots;
+    private WatchService service;
+    private boolean closed;
+
+    @Autowired
+    public WatchedDirectoryListingCache() {
+        this(new DirectoryListingReader(), DEFAULT_CAPACITY);
+    }
+
+    WatchedDirectoryListingCache(DirectoryListingReader reader, int capacity) {
+        this.reader = Objects.requireNonNull(reader, "reader");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.slots = new LinkedHashMap<Path, Slot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Slot> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                eldest.getValue().key.cancel();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public DirectoryListing list(Path directory) throws IOException {
+        Objects.requireNonNull(directory, "directory");
+        String before = reader.stamp(directory);
+        long generation;
+        synchronized (this) {
+            drain();
+            Slot slot = slots.get(directory);
+            if (slot != null && slot.listing != null && before.equals(slot.stamp)) {
+                return slot.listing;
+            }
+            generation = watch(directory);
+        }
+        DirectoryListing listing = reader.list(directory);
+        if (generation == UNWATCHED || !before.equals(reader.stamp(directory))) {
+            return listing;
+        }
+        synchronized (this) {
+            drain();
+            Slot slot = slots.get(directory);
+            // 遍历期间出现过事件则代数已推进, 这份结果不进缓存
+            if (slot != null && slot.generation == generation) {
+                slot.listing = listing;
+                slot.stamp = before;
+            }
+        }
+        return listing;
+    }
+
+    /** 当前缓存的目录数, 供测试与诊断。 */
+    synchronized int size() {
+        return slots.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        slots.clear();
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // 关闭阶段不影响已返回的列举结果。
+            }
+        }
+    }
+
+    private long watch(Path directory) {
+        if (closed) {
+            return UNWATCHED;
+        }
+        Slot slot = slots.get(directory);
+        if (slot != null) {
+            return slot.generation;
+        }
+        try {
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+            }
+            WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            slots.put(directory, new Slot(key));
+            return 0L;
+        } catch (IOException | RuntimeException failure) {
+            log.debug("fs-listing-watch-unavailable dir={} reason={}", directory, failure.toString());
+            return UNWATCHED;
+        }
+    }
+
+    private void drain() {
+        if (service == null) {
+            return;
+        }
+        try {
+            WatchKey key;
+            while ((key = service.poll()) != null) {
+                key.pollEvents();
+                Path directory = (Path) key.watchable();
+                Slot slot = slots.get(directory);
+                boolean valid = key.reset();
+                if (slot == null || slot.key != key) {
+                    continue;
+                }
+                if (valid) {
+                    slot.generation++;
+                    slot.listing = null;
+                    slot.stamp = null;
+                } else {
+                    slots.remove(directory);
+                }
+            }
+        } catch (ClosedWatchServiceException ignored) {
+            slots.clear();
+        }
+    }
+
+    private static final class Slot {
+        private final WatchKey key;
+        private long generation;
+        private DirectoryListing listing;
+        private String stamp;
+
+        private Slot(WatchKey key) {
+            this.key = key;
+        }
+    }
+}
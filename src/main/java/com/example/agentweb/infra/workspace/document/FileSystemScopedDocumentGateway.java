@@ -1,5 +1,9 @@
 package com.example.agentweb.infra.workspace.document;
 
+import com.example.agentweb.app.fs.DirectoryListing;
+import com.example.agentweb.app.fs.DirectoryListingSource;
+import com.example.agentweb.app.fs.DirectoryPage;
+import com.example.agentweb.app.fs.DirectoryPageQuery;
 import com.example.agentweb.app.workbench.WorkspaceFailureCode;
 import com.example.agentweb.app.workbench.WorkspaceOperationException;
 import com.example.agentweb.app.workbench.document.DocumentContentView;
@@ -17,53 +21,52 @@ import com.example.agentweb.domain.workbench.DocumentReference;
 import com.example.agentweb.domain.workspace.RepositoryScope;
 import com.example.agentweb.domain.workspace.WorkspaceSensitivePathPolicy;
 import com.example.agentweb.domain.worktree.WorkspacePathPolicy;
+import com.example.agentweb.infra.workspace.DirectoryListingReader;
 import com.example.agentweb.infra.workspace.ScopedPathResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Objects;
-import java.util.PriorityQueue;
 
 /**
  * Repository Scope 与运行期 Workspace 白名单双重约束的文件系统文档适配器。
  *
+ * <p>目录树读 {@link DirectoryListingSource} 共享的列举快照, 按游标分页, 敏感路径在分页时滤除。</p>
+ *
  * @author alex
  * @since 2026-08-01
  */
 @Component
 public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
 
-    private static final Comparator<DocumentDirectoryEntryView> ENTRY_ORDER =
-            Comparator.comparingInt(FileSystemScopedDocumentGateway::kindOrder)
-                    .thenComparing(DocumentDirectoryEntryView::getName,
-                            String.CASE_INSENSITIVE_ORDER)
-                    .thenComparing(DocumentDirectoryEntryView::getName);
-
     private final ScopedPathResolver pathResolver;
     private final WorkspacePathPolicy workspacePathPolicy;
     private final WorkbenchDocumentProperties properties;
     private final DocumentTypeResolver typeResolver;
     private final StableDocumentReader stableReader;
+    private final DirectoryListingSource listings;
 
-    @Autowired
     public FileSystemScopedDocumentGateway(
             ScopedPathResolver pathResolver,
             WorkspacePathPolicy workspacePathPolicy,
             WorkbenchDocumentProperties properties,
             DocumentTypeResolver typeResolver) {
         this(pathResolver, workspacePathPolicy, properties, typeResolver,
-                new StableDocumentReader());
+                new DirectoryListingReader());
+    }
+
+    @Autowired
+    public FileSystemScopedDocumentGateway(
+            ScopedPathResolver pathResolver,
+            WorkspacePathPolicy workspacePathPolicy,
+            WorkbenchDocumentProperties properties,
+            DocumentTypeResolver typeResolver,
+            DirectoryListingSource listings) {
+        this(pathResolver, workspacePathPolicy, properties, typeResolver,
+                new StableDocumentReader(), listings);
     }
 
     FileSystemScopedDocumentGateway(
@@ -72,12 +75,24 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
             WorkbenchDocumentProperties properties,
             DocumentTypeResolver typeResolver,
             StableDocumentReader stableReader) {
+        this(pathResolver, workspacePathPolicy, properties, typeResolver,
+                stableReader, new DirectoryListingReader());
+    }
+
+    FileSystemScopedDocumentGateway(
+            ScopedPathResolver pathResolver,
+            WorkspacePathPolicy workspacePathPolicy,
+            WorkbenchDocumentProperties properties,
+            DocumentTypeResolver typeResolver,
+            StableDocumentReader stableReader,
+            DirectoryListingSource listings) {
         this.pathResolver = Objects.requireNonNull(pathResolver, "pathResolver");
         this.workspacePathPolicy = Objects.requireNonNull(
                 workspacePathPolicy, "workspacePathPolicy");
         this.properties = Objects.requireNonNull(properties, "properties");
         this.typeResolver = Objects.requireNonNull(typeResolver, "typeResolver");
         this.stableReader = Objects.requireNonNull(stableReader, "stableReader");
+        this.listings = Objects.requireNonNull(listings, "listings");
         properties.validate();
     }
 
@@ -87,26 +102,12 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
         Objects.requireNonNull(query, "query");
         int limit = Math.min(query.getLimit(), properties.getMaxDirectoryEntries());
         Path directory = allowedDirectory(resolveDirectory(scope, query));
-        PriorityQueue<DocumentDirectoryEntryView> selected =
-                new PriorityQueue<DocumentDirectoryEntryView>(
-                        limit, ENTRY_ORDER.reversed());
-        boolean truncated = false;
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
-            for (Path child : stream) {
-                DocumentDirectoryEntryView entry = entry(query, child);
-                if (entry == null) {
-                    continue;
-                }
-                if (selected.size() == limit) {
-                    truncated = true;
-                    if (ENTRY_ORDER.compare(entry, selected.peek()) < 0) {
-                        selected.poll();
-                        selected.add(entry);
-                    }
-                } else {
-                    selected.add(entry);
-                }
-            }
+        DirectoryPage<DocumentDirectoryEntryView> page;
+        try {
+            page = listings.list(directory).page(
+                    new DirectoryPageQuery(null, DirectoryPageQuery.Sort.NAME, false,
+                            query.getCursor(), limit),
+                    child -> entry(query, child));
         } catch (IOException ex) {
             throw notFound(ex);
         }
@@ -114,11 +115,9 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
         if (!directory.equals(verifiedAfter)) {
             throw changed();
         }
-        List<DocumentDirectoryEntryView> entries =
-                new ArrayList<DocumentDirectoryEntryView>(selected);
-        Collections.sort(entries, ENTRY_ORDER);
         return new DocumentDirectoryView(
-                query.getRepositoryKey(), query.getRelativePath(), entries, truncated);
+                query.getRepositoryKey(), query.getRelativePath(), page.getEntries(),
+                page.getNextCursor() != null, page.getNextCursor());
     }
 
     @Override
@@ -243,9 +242,8 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
     }
 
     private DocumentDirectoryEntryView entry(
-            DocumentDirectoryQuery query, Path child) {
-        String name = child.getFileName() == null
-                ? "" : child.getFileName().toString();
+            DocumentDirectoryQuery query, DirectoryListing.Entry child) {
+        String name = child.getName();
         String relativePath = query.getRelativePath().isEmpty()
                 ? name : query.getRelativePath() + "/" + name;
         try {
@@ -253,24 +251,18 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
             if (WorkspaceSensitivePathPolicy.isSensitive(relativePath)) {
                 return null;
             }
-            BasicFileAttributes attributes = Files.readAttributes(
-                    child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
-            if (attributes.isSymbolicLink() || attributes.isOther()) {
-                return null;
-            }
-            if (attributes.isDirectory()) {
+            if (child.isDirectory()) {
                 return new DocumentDirectoryEntryView(
                         name, relativePath, DocumentEntryKind.DIRECTORY,
-                        null, attributes.lastModifiedTime().toMillis());
+                        null, child.getLastModified());
             }
-            if (attributes.isRegularFile()) {
+            if (child.isRegularFile()) {
                 return new DocumentDirectoryEntryView(
                         name, relativePath, DocumentEntryKind.FILE,
-                        Long.valueOf(attributes.size()),
-                        attributes.lastModifiedTime().toMillis());
+                        Long.valueOf(child.getSize()), child.getLastModified());
             }
             return null;
-        } catch (IOException | IllegalArgumentException ex) {
+        } catch (IllegalArgumentException ex) {
             return null;
         }
     }
@@ -316,8 +308,4 @@ public class FileSystemScopedDocumentGateway implements ScopedDocumentGateway {
                 DocumentFailureCode.WORKBENCH_DOCUMENT_CHANGED_DURING_READ,
                 "document directory changed during listing");
     }
-
-    private static int kindOrder(DocumentDirectoryEntryView entry) {
-        return entry.getKind() == DocumentEntryKind.DIRECTORY ? 0 : 1;
-    }
 }
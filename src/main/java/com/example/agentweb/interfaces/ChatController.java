@@ -1,6 +1,7 @@
 package com.example.agentweb.interfaces;
 
 import com.example.agentweb.app.ChatAppService;
+import com.example.agentweb.app.ChatMessagePage;
 import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionQueryService;
 import com.example.agentweb.app.ChatSessionSummary;
@@ -111,6 +112,33 @@ public class ChatController {
         return messages;
     }
 
+    /**
+     * 最新往前的一页消息摘要；{@code beforeId} 取上一页返回的 {@code nextBeforeId}。
+     */
+    @GetMapping("/session/{id}/message-page")
+    public ChatMessagePage getMessagePage(@PathVariable("id") String id,
+                                          @RequestParam(value = "beforeId", required = false) Long beforeId,
+                                          @RequestParam(value = "limit", defaultValue = "30") int limit) {
+        ChatMessagePage page = sessionQueryService.findMessagePage(id, beforeId, limit);
+        if (page == null) {
+            throw new IllegalArgumentException("Session not found: " + id);
+        }
+        return page;
+    }
+
+    /**
+     * 单条消息完整正文，用于展开摘要中省略的工具输出。
+     */
+    @GetMapping("/session/{id}/messages/{messageId}")
+    public ChatMessageView getMessage(@PathVariable("id") String id,
+                                      @PathVariable("messageId") long messageId) {
+        ChatMessageView message = sessionQueryService.findMessageView(id, messageId);
+        if (message == null) {
+            throw new IllegalArgumentException("Message not found: " + messageId);
+        }
+        return message;
+    }
+
     @DeleteMapping("/session/{id}")
     public SuccessResponse deleteSession(@PathVariable("id") String id) {
         MdcContext.putSessionId(id);
@@ -2,6 +2,10 @@ package com.example.agentweb.interfaces;
 
 import com.example.agentweb.app.UploadFileStorage;
 import com.example.agentweb.app.UploadPicStorage;
+import com.example.agentweb.app.fs.DirectoryListing;
+import com.example.agentweb.app.fs.DirectoryListingSource;
+import com.example.agentweb.app.fs.DirectoryPage;
+import com.example.agentweb.app.fs.DirectoryPageQuery;
 import com.example.agentweb.app.setting.WorkspaceSettingsQueryService;
 import com.example.agentweb.domain.worktree.WorkspacePathPolicy;
 import com.example.agentweb.interfaces.dto.SuccessResponse;
@@ -22,12 +26,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -45,19 +51,28 @@ public class FsController {
     /** 聊天附件上传大小上限:5 MB。 */
     private static final long MAX_FILE_UPLOAD_BYTES = 5L * 1024L * 1024L;
 
+    /** 目录列举默认页大小。 */
+    private static final int DEFAULT_LIST_LIMIT = 500;
+
+    /** 目录列举续页游标响应头。 */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final WorkspaceSettingsQueryService workspaceSettingsQueryService;
     private final WorkspacePathPolicy pathPolicy;
     private final UploadPicStorage uploadPicStore;
     private final UploadFileStorage uploadFileStore;
+    private final DirectoryListingSource directoryListings;
 
     public FsController(WorkspaceSettingsQueryService workspaceSettingsQueryService,
                         UploadPicStorage uploadPicStore,
                         UploadFileStorage uploadFileStore,
-                        WorkspacePathPolicy pathPolicy) {
+                        WorkspacePathPolicy pathPolicy,
+                        DirectoryListingSource directoryListings) {
         this.workspaceSettingsQueryService = workspaceSettingsQueryService;
         this.uploadPicStore = uploadPicStore;
         this.uploadFileStore = uploadFileStore;
         this.pathPolicy = pathPolicy;
+        this.directoryListings = directoryListings;
     }
 
     @GetMapping(value = "/roots", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -65,48 +80,55 @@ public class FsController {
         return workspaceSettingsQueryService.get().effectiveWorkspaceRoots();
     }
 
+    /**
+     * 列目录:目录在前,按 {@code sort}(name/size/modified)与 {@code order}(asc/desc)排序,
+     * {@code filter} 按名称子串过滤(忽略大小写)。
+     *
+     * <p>始终分页:每次最多返回 {@code limit} 项(缺省 {@value #DEFAULT_LIST_LIMIT}),
+     * 还有后续时在响应头 {@value #NEXT_CURSOR_HEADER} 给出游标,带上 {@code cursor} 再请求即取下一页;
+     * 调用方须跟随游标取完整目录。父目录链接 {@code ..} 只出现在首页。
+     * 目录内容来自 {@link DirectoryListingSource} 的共享快照,反复进出同一目录不重复遍历。</p>
+     */
     @GetMapping(value = "/list", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<Map<String, Object>> list(@RequestParam(value = "path", required = false) String path) {
+    public ResponseEntity<List<Map<String, Object>>> list(
+            @RequestParam(value = "path", required = false) String path,
+            @RequestParam(value = "filter", required = false) String filter,
+            @RequestParam(value = "sort", defaultValue = "name") String sort,
+            @RequestParam(value = "order", defaultValue = "asc") String order,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit)
+            throws IOException {
         String requested = StringUtils.hasText(path) ? path : defaultRoot();
         String base = pathPolicy.requireExistingDirectory(requested);
-        File dir = new File(base);
-
-        File[] children = dir.listFiles();
-        List<Map<String, Object>> dirs = new ArrayList<Map<String, Object>>();
-        List<Map<String, Object>> files = new ArrayList<Map<String, Object>>();
-        if (children != null) {
-            for (File f : children) {
-                if (Files.isSymbolicLink(f.toPath())) {
-                    continue;
-                }
-                Map<String, Object> m = new HashMap<String, Object>(8);
-                m.put("name", f.getName());
-                m.put("path", f.getAbsolutePath());
-                m.put("dir", f.isDirectory());
-                m.put("size", f.length());
-                m.put("lastModified", f.lastModified());
-                if (f.isDirectory()) {
-                    dirs.add(m);
-                } else {
-                    files.add(m);
-                }
-            }
-        }
+        DirectoryPageQuery query = new DirectoryPageQuery(filter, parseSort(sort), parseDescending(order),
+                cursor, limit == null ? DEFAULT_LIST_LIMIT : limit.intValue());
+        DirectoryPage<DirectoryListing.Entry> page = directoryListings.list(Paths.get(base)).page(query);
 
-        List<Map<String, Object>> out = new ArrayList<Map<String, Object>>(dirs.size() + files.size() + 1);
+        List<Map<String, Object>> out = new ArrayList<Map<String, Object>>(page.getEntries().size() + 1);
         // Parent link
         Path p = Paths.get(base);
         Path parent = p.getParent();
-        if (parent != null && pathPolicy.isExistingPathAllowed(parent.toString())) {
+        if (query.getCursor() == null && parent != null && pathPolicy.isExistingPathAllowed(parent.toString())) {
             Map<String, Object> up = new HashMap<String, Object>(4);
             up.put("name", "..");
             up.put("path", parent.toString());
             up.put("dir", Boolean.TRUE);
             out.add(up);
         }
-        out.addAll(dirs);
-        out.addAll(files);
-        return out;
+        for (DirectoryListing.Entry entry : page.getEntries()) {
+            Map<String, Object> m = new HashMap<String, Object>(8);
+            m.put("name", entry.getName());
+            m.put("path", p.resolve(entry.getName()).toString());
+            m.put("dir", entry.isDirectory());
+            m.put("size", entry.getSize());
+            m.put("lastModified", entry.getLastModified());
+            out.add(m);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(out);
     }
 
     @PostMapping(value = "/upload", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -153,7 +175,8 @@ public class FsController {
      * 上传聊天附件(文本类:log/txt/json/csv/...):落到 {@code <workingDir>/upload_file/<sessionId>/},
      * 返回服务器绝对路径,供前端拼进消息文本。
      *
-     * <p>5MB 上限、扩展名白名单、二进制嗅探拒绝、原文件名 sanitize 等校验由 {@link UploadFileStorage} 实现完成。</p>
+     * <p>5MB 上限、扩展名白名单、二进制嗅探拒绝、原文件名 sanitize 等校验由 {@link UploadFileStorage} 实现完成;
+     * 正文以流交给存储端口边读边落盘,不经 {@code getBytes()} 整块读入堆。</p>
      */
     @PostMapping(value = "/upload-file", produces = MediaType.APPLICATION_JSON_VALUE)
     public UploadResponse uploadChatFile(@RequestParam("path") String path,
@@ -163,7 +186,10 @@ public class FsController {
         if (file.getSize() > MAX_FILE_UPLOAD_BYTES) {
             throw new IllegalArgumentException("文件大小不能超过 5MB");
         }
-        String saved = uploadFileStore.save(workingDir, sessionId, file.getOriginalFilename(), file.getBytes());
+        String saved;
+        try (InputStream in = file.getInputStream()) {
+            saved = uploadFileStore.save(workingDir, sessionId, file.getOriginalFilename(), in, file.getSize());
+        }
         return new UploadResponse(true, saved, file.getSize());
     }
 
@@ -236,6 +262,24 @@ public class FsController {
         return workspaceSettingsQueryService.get().getDefaultWorkspace();
     }
 
+    private DirectoryPageQuery.Sort parseSort(String sort) {
+        try {
+            return DirectoryPageQuery.Sort.valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("sort must be one of name/size/modified");
+        }
+    }
+
+    private boolean parseDescending(String order) {
+        if ("asc".equalsIgnoreCase(order)) {
+            return false;
+        }
+        if ("desc".equalsIgnoreCase(order)) {
+            return true;
+        }
+        throw new IllegalArgumentException("order must be asc or desc");
+    }
+
     private void requireSafeFileName(String fileName) {
         if (!StringUtils.hasText(fileName) || fileName.length() > 255
                 || ".".equals(fileName) || "..".equals(fileName)
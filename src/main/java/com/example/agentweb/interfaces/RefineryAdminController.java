@@ -5,6 +5,8 @@ import com.example.agentweb.app.refinery.RefineryAdminQueryService;
 import com.example.agentweb.app.refinery.RefineryAppService;
 import com.example.agentweb.app.refinery.RefineryChunkPage;
 import com.example.agentweb.app.refinery.RefineryDeleteResult;
+import com.example.agentweb.app.refinery.RefineryGenerationProgress;
+import com.example.agentweb.app.refinery.RefineryIngestProgress;
 import com.example.agentweb.app.refinery.RefineryRebuildService;
 import com.example.agentweb.app.refinery.RebuildResult;
 import com.example.agentweb.interfaces.dto.ChatRagChunkPageResponse;
@@ -25,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -61,6 +64,7 @@ public class RefineryAdminController {
 
     /**
      * 存量 chunk 重嵌入（M4 triggerDescription 迁移）：按批刷新活跃 chunk 向量，管理台手动分批触发。
+     * 换了 embedding 模型时写进 REEMBED 影子代, 补齐后原子切换, 进度见 {@link #generations()}。
      *
      * @param limit 本批上限, 默认 100, 范围 [1,1000]
      */
@@ -76,8 +80,9 @@ public class RefineryAdminController {
     }
 
     /**
-     * 清空 last_message_at 在最近 {@code days} 天内的会话的 RAG 数据(chunk + 幂等 state),
-     * 并后台串行重跑 refine+ingest。只清 RAG 数据, 不动会话本体与消息。
+     * 后台把 last_message_at 在最近 {@code days} 天内的会话重新 refine+ingest 进一代影子集,
+     * 整代完成后原子替换这些会话的现役 chunk, 期间召回照常读旧数据。不动会话本体与消息。
+     * 进度见 {@link #generations()} 与 {@link #ingestProgress()}。
      *
      * @param days 回溯天数, 默认 7, 范围 [1,90]
      */
@@ -94,6 +99,22 @@ public class RefineryAdminController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 批量 ingest 流水线进度: 定时 tick 与管理台重跑各保留最近一次, 运行中的含各阶段实时积压。
+     */
+    @GetMapping("/ingest-progress")
+    public ResponseEntity<List<RefineryIngestProgress>> ingestProgress() {
+        return ResponseEntity.ok(refineryAppService.ingestProgress());
+    }
+
+    /**
+     * 最近几代影子构建 (重跑 / 换模型重嵌入) 的进度与状态, 新的在前。
+     */
+    @GetMapping("/generations")
+    public ResponseEntity<List<RefineryGenerationProgress>> generations() {
+        return ResponseEntity.ok(rebuildService.generations());
+    }
+
     /**
      * 分页列出召回库存. {@code status=active} 只看可召回 (未归档未过期), 其余值看全部;
      * 每项另带实时算出的 {@code status} (ACTIVE/ARCHIVED) 供前端"状态"列展示。
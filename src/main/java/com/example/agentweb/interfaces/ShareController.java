@@ -1,6 +1,8 @@
 package com.example.agentweb.interfaces;
 
 import com.example.agentweb.app.ChatAppService;
+import com.example.agentweb.app.ChatMessagePage;
+import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionQueryService;
 import com.example.agentweb.app.SharedSessionView;
 import com.example.agentweb.domain.worktree.WorkspacePathPolicy;
@@ -13,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.File;
@@ -51,22 +54,53 @@ public class ShareController {
 
     /**
      * Public endpoint: get shared session messages by token (no auth required).
+     * With {@code limit}, only the newest page of summarized messages is returned.
      */
     @GetMapping(path = "/api/share/{token}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public SharedSessionView getShared(@PathVariable("token") String token) {
-        SharedSessionView view = sessionQueryService.findSharedView(token);
+    public SharedSessionView getShared(@PathVariable("token") String token,
+                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        SharedSessionView view = limit == null
+                ? sessionQueryService.findSharedView(token)
+                : sessionQueryService.findSharedView(token, limit);
         if (view == null) {
             throw new IllegalArgumentException("Shared session not found");
         }
         return view;
     }
 
+    /**
+     * Public endpoint: one newest-first page of summarized messages, paged by {@code beforeId}.
+     */
+    @GetMapping(path = "/api/share/{token}/messages", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChatMessagePage getSharedMessages(@PathVariable("token") String token,
+                                             @RequestParam(value = "beforeId", required = false) Long beforeId,
+                                             @RequestParam(value = "limit", defaultValue = "30") int limit) {
+        ChatMessagePage page = sessionQueryService.findSharedMessagePage(token, beforeId, limit);
+        if (page == null) {
+            throw new IllegalArgumentException("Shared session not found");
+        }
+        return page;
+    }
+
+    /**
+     * Public endpoint: full content of one shared message, for expanding a summarized tool output.
+     */
+    @GetMapping(path = "/api/share/{token}/messages/{messageId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChatMessageView getSharedMessage(@PathVariable("token") String token,
+                                            @PathVariable("messageId") long messageId) {
+        ChatMessageView message = sessionQueryService.findSharedMessageView(token, messageId);
+        if (message == null) {
+            throw new IllegalArgumentException("Shared message not found");
+        }
+        return message;
+    }
+
     /**
      * 公开分享图片端点。token 和消息中的精确图片引用共同构成授权。
      */
     @GetMapping(path = "/api/share/{token}/image")
     public ResponseEntity<Resource> image(@PathVariable("token") String token,
-                                          @org.springframework.web.bind.annotation.RequestParam("path") String path) {
+                                          @RequestParam("path") String path) {
         if (!sessionQueryService.isSharedImageReferenced(token, path)) {
             throw new IllegalArgumentException("Shared image not found");
         }
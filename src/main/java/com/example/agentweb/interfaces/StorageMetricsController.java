@@ -0,0 +1,31 @@
+package com.example.agentweb.interfaces;
+
+import com.example.agentweb.app.metrics.StorageFootprint;
+import com.example.agentweb.app.metrics.StorageMetricsQueryService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 管理后台存储占用报告。路径落在 {@code /api/metrics} 前缀内,由 {@code AdminAuthFilter} 把关。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@RestController
+@RequestMapping(path = "/api/metrics/storage", produces = MediaType.APPLICATION_JSON_VALUE)
+public class StorageMetricsController {
+
+    private final StorageMetricsQueryService queryService;
+
+    public StorageMetricsController(StorageMetricsQueryService queryService) {
+        this.queryService = queryService;
+    }
+
+    @GetMapping
+    public ResponseEntity<StorageFootprint> footprint() {
+        return ResponseEntity.ok(queryService.footprint());
+    }
+}
@@ -66,10 +66,11 @@ public class WorkbenchDocumentController {
             @RequestParam("repositoryKey") String repositoryKey,
             @RequestParam(value = "path", defaultValue = "") String relativePath,
             @RequestParam(value = "limit", defaultValue = "" + DEFAULT_TREE_LIMIT)
-                    int limit) {
+                    int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
         return appService.listTree(
                 currentOwner(), WorkbenchId.of(workbenchId),
-                new DocumentDirectoryQuery(repositoryKey, relativePath, limit));
+                new DocumentDirectoryQuery(repositoryKey, relativePath, limit, cursor));
     }
 
     @GetMapping(path = "/content", produces = MediaType.APPLICATION_JSON_VALUE)
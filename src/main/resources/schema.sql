@@ -31,6 +31,9 @@ CREATE TABLE IF NOT EXISTS chat_message (
 
 CREATE INDEX IF NOT EXISTS idx_chat_message_session_id ON chat_message(session_id);
 
+-- 会话列表按创建时间倒序分页；消息数与首条 user 消息是写侧维护列，见 SqliteConversationSearchIndex
+CREATE INDEX IF NOT EXISTS idx_chat_session_created ON chat_session(created_at);
+
 -- 一次聊天执行的独立生命周期。recall_enabled 是提交时快照，后台线程不再信任浏览器状态。
 CREATE TABLE IF NOT EXISTS chat_run (
     id                    TEXT PRIMARY KEY,
@@ -136,6 +139,21 @@ CREATE TABLE IF NOT EXISTS chat_run_event (
 CREATE INDEX IF NOT EXISTS idx_chat_run_event_created
     ON chat_run_event(created_at);
 
+-- 公共 Runtime 输出恢复检查点。每段保存上一段之后已压缩的 stream-json 片段（非首段以换行开头），
+-- last_seq 之前的事件恢复时不再重放；output_bytes 为截至本段的累计 UTF-8 字节数。
+CREATE TABLE IF NOT EXISTS chat_run_output_checkpoint (
+    run_id                TEXT    NOT NULL,
+    segment_no            INTEGER NOT NULL,
+    last_seq              INTEGER NOT NULL,
+    last_runtime_sequence INTEGER NOT NULL,
+    output_bytes          INTEGER NOT NULL,
+    content               TEXT    NOT NULL,
+    created_at            INTEGER NOT NULL,
+    PRIMARY KEY (run_id, segment_no),
+    CHECK (segment_no > 0),
+    CHECK (output_bytes >= 0)
+);
+
 -- 对话工具调用旁路结构化投影。原 chat_message.content 与 SSE 仍是聊天展示事实源。
 CREATE TABLE IF NOT EXISTS chat_tool_invocation (
     id                    INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -280,6 +298,55 @@ CREATE TABLE IF NOT EXISTS chat_session_rag_state (
     retry_count             INTEGER NOT NULL DEFAULT 0
 );
 
+-- 召回库影子代: 重跑 / 换模型重嵌入先写 chat_rag_shadow_chunk, 召回继续读 chat_rag_chunk,
+-- 整代完成后在一个事务内切换. 单元结论逐条落 chat_rag_generation_item, 重启后从未处理的单元续跑.
+CREATE TABLE IF NOT EXISTS chat_rag_generation (
+    id               INTEGER PRIMARY KEY AUTOINCREMENT,
+    kind             TEXT    NOT NULL,                  -- REBUILD | REEMBED
+    status           TEXT    NOT NULL,                  -- BUILDING | SWAPPED | ABANDONED
+    scope_json       TEXT,                              -- REBUILD 的会话 id 全集
+    embedding_model  TEXT    NOT NULL,
+    total            INTEGER NOT NULL DEFAULT 0,
+    created_at       INTEGER NOT NULL,                  -- epoch millis
+    finished_at      INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS chat_rag_generation_item (
+    generation  INTEGER NOT NULL,
+    item_id     TEXT    NOT NULL,                       -- REBUILD 为会话 id, REEMBED 为 chunk id
+    outcome     TEXT    NOT NULL,                       -- SAVED | DISCARDED | SKIPPED | FAILED
+    PRIMARY KEY (generation, item_id)
+);
+
+-- 列与 chat_rag_chunk 的召回列一致, 切换时整行 INSERT ... SELECT.
+CREATE TABLE IF NOT EXISTS chat_rag_shadow_chunk (
+    generation           INTEGER NOT NULL,
+    item_id              TEXT    NOT NULL,
+    id                   TEXT    NOT NULL,
+    source_session_id    TEXT    NOT NULL,
+    source_msg_range     TEXT,
+    title                TEXT    NOT NULL,
+    trigger_signals      TEXT,
+    trigger_description  TEXT,
+    context              TEXT,
+    process              TEXT,
+    conclusion           TEXT,
+    ttl_category         TEXT    NOT NULL,
+    score                REAL    NOT NULL,
+    created_at           INTEGER NOT NULL,
+    expires_at           INTEGER,
+    archived_at          INTEGER,
+    agent_type           TEXT    NOT NULL,
+    embedding_model      TEXT    NOT NULL,
+    embedding            BLOB    NOT NULL,
+    source_type          TEXT    NOT NULL,
+    tier                 TEXT    NOT NULL,
+    env                  TEXT    NOT NULL,
+    detail_path          TEXT,
+    PRIMARY KEY (generation, id)
+);
+CREATE INDEX IF NOT EXISTS idx_chat_rag_shadow_chunk_item ON chat_rag_shadow_chunk(generation, item_id);
+
 -- below-threshold(评分 < score-threshold) 被丢弃的会话留痕, 供管理台"已丢弃(低分)"展示与阈值校准.
 -- 不进 chat_rag_chunk: 无 embedding 不参与召回, 独立表干净隔离, 不污染召回全表扫描.
 -- 注意: 注释内不能出现分号, SqliteInitializer 按分号切分语句.
@@ -5,6 +5,7 @@ import com.example.agentweb.app.setting.WorkspaceSettingsQueryService;
 import com.example.agentweb.app.UploadFileStorage;
 import com.example.agentweb.app.UploadPicStorage;
 import com.example.agentweb.infra.RealPathWorkspacePolicy;
+import com.example.agentweb.infra.workspace.WatchedDirectoryListingCache;
 import com.example.agentweb.interfaces.FsController;
 import com.example.agentweb.interfaces.GlobalExceptionHandler;
 import com.example.agentweb.domain.setting.WorkspaceSettings;
@@ -20,8 +21,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.FileSystemUtils;
 
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -56,7 +59,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @since 2026-05-25
  */
 @WebMvcTest(FsController.class)
-@Import({GlobalExceptionHandler.class, RealPathWorkspacePolicy.class})
+@Import({GlobalExceptionHandler.class, RealPathWorkspacePolicy.class, WatchedDirectoryListingCache.class})
 public class FsControllerTest {
 
     /** 受 agent.fs.roots 许可的根目录;上传校验以此为准,而非 OS 用户目录。 */
@@ -308,6 +311,96 @@ public class FsControllerTest {
         }
     }
 
+    @Test
+    public void list_should_page_by_cursor_and_show_parent_only_on_first_page() throws Exception {
+        Path workDir = Files.createTempDirectory(fsRoot, "list-page-");
+        try {
+            Files.createDirectory(workDir.resolve("z-dir"));
+            Files.write(workDir.resolve("a.txt"), "a".getBytes());
+            Files.write(workDir.resolve("b.txt"), "b".getBytes());
+
+            MvcResult first = mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(3))
+                    .andExpect(jsonPath("$[0].name").value(".."))
+                    .andExpect(jsonPath("$[1].name").value("z-dir"))
+                    .andExpect(jsonPath("$[2].name").value("a.txt"))
+                    .andExpect(header().exists("X-Next-Cursor"))
+                    .andReturn();
+
+            mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("limit", "2")
+                            .param("cursor", first.getResponse().getHeader("X-Next-Cursor")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].name").value("b.txt"))
+                    .andExpect(header().doesNotExist("X-Next-Cursor"));
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    @Test
+    public void list_without_limit_should_page_by_default_and_follow_cursor() throws Exception {
+        Path workDir = Files.createTempDirectory(fsRoot, "list-all-");
+        try {
+            for (int i = 0; i < 501; i++) {
+                Files.write(workDir.resolve(String.format("f%03d.txt", i)), "x".getBytes());
+            }
+
+            String cursor = mvc.perform(get("/api/fs/list").param("path", workDir.toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(501))
+                    .andExpect(jsonPath("$[500].name").value("f499.txt"))
+                    .andExpect(header().exists("X-Next-Cursor"))
+                    .andReturn().getResponse().getHeader("X-Next-Cursor");
+            mvc.perform(get("/api/fs/list").param("path", workDir.toString()).param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].name").value("f500.txt"))
+                    .andExpect(header().doesNotExist("X-Next-Cursor"));
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    @Test
+    public void list_should_filter_by_name_and_sort_by_size_desc() throws Exception {
+        Path workDir = Files.createTempDirectory(fsRoot, "list-sort-");
+        try {
+            Files.write(workDir.resolve("small.log"), "1".getBytes());
+            Files.write(workDir.resolve("large.log"), "1234567".getBytes());
+            Files.write(workDir.resolve("other.txt"), "123456789".getBytes());
+
+            mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("filter", "LOG")
+                            .param("sort", "size")
+                            .param("order", "desc"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(3))
+                    .andExpect(jsonPath("$[1].name").value("large.log"))
+                    .andExpect(jsonPath("$[2].name").value("small.log"));
+            mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("sort", "owner"))
+                    .andExpect(status().isBadRequest());
+            mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("cursor", "not-a-cursor"))
+                    .andExpect(status().isBadRequest());
+            mvc.perform(get("/api/fs/list")
+                            .param("path", workDir.toString())
+                            .param("limit", String.valueOf(Integer.MAX_VALUE)))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
     @Test
     public void list_outside_roots_should_be_rejected() throws Exception {
         Path outside = Files.createTempDirectory(fsRoot.getParent(), "agentweb-list-outside-");
@@ -471,10 +564,10 @@ public class FsControllerTest {
     public void uploadFile_should_delegate_to_store() throws Exception {
         Path workDir = Files.createTempDirectory(fsRoot, "upfile-");
         try {
-            // 走 UploadFileStorage mock,返回固定路径,验 Controller 透传 file.bytes/originalName/sessionId
+            // 走 UploadFileStorage mock,返回固定路径,验 Controller 透传 file 流/大小/originalName/sessionId
             String realWorkDir = workDir.toRealPath().toString();
             String stubReturn = Paths.get(realWorkDir, "upload_file", "s", "app.log").toString();
-            when(uploadFileStore.save(eq(realWorkDir), eq("s"), eq("app.log"), any(byte[].class)))
+            when(uploadFileStore.save(eq(realWorkDir), eq("s"), eq("app.log"), any(InputStream.class), eq(9L)))
                     .thenReturn(stubReturn);
 
             MockMultipartFile file = new MockMultipartFile("file", "app.log", "text/plain",
@@ -488,7 +581,7 @@ public class FsControllerTest {
                     .andExpect(jsonPath("$.success").value(true))
                     .andExpect(jsonPath("$.path", containsString("app.log")));
 
-            verify(uploadFileStore).save(eq(realWorkDir), eq("s"), eq("app.log"), any(byte[].class));
+            verify(uploadFileStore).save(eq(realWorkDir), eq("s"), eq("app.log"), any(InputStream.class), eq(9L));
         } finally {
             FileSystemUtils.deleteRecursively(workDir);
         }
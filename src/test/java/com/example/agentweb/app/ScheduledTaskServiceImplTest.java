@@ -6,6 +6,9 @@ import com.example.agentweb.app.agentrun.PromptAssemblyResult;
 import com.example.agentweb.app.agentrun.PromptAssemblyService;
 import com.example.agentweb.app.agentrun.PromptPart;
 import com.example.agentweb.app.agentrun.RunRecallPolicyFactory;
+import com.example.agentweb.app.chatrun.ChatRunAdmissionScheduler;
+import com.example.agentweb.app.chatrun.ChatRunQueryService;
+import com.example.agentweb.app.chatrun.ChatRunStreamSettings;
 import com.example.agentweb.domain.auth.CurrentUserProvider;
 import com.example.agentweb.domain.auth.LoginUser;
 import com.example.agentweb.domain.auth.UserContext;
@@ -22,6 +25,9 @@ import org.mockito.ArgumentCaptor;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -29,6 +35,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -128,6 +135,43 @@ public class ScheduledTaskServiceImplTest {
                 anyLong(), any(), any());
     }
 
+    @Test
+    public void doExecute_with_admission_should_return_without_running_and_record_after_hand_off() throws Exception {
+        ScheduledTaskRepository taskRepo = mock(ScheduledTaskRepository.class);
+        SessionRepository sessionRepo = mock(SessionRepository.class);
+        AgentGateway gateway = mock(AgentGateway.class);
+        PromptAssemblyService promptAssemblyService = mock(PromptAssemblyService.class);
+        stubPromptAssemblyPassThrough(promptAssemblyService);
+        ChatRunStreamSettings settings = mock(ChatRunStreamSettings.class);
+        when(settings.getMaxActiveRuns()).thenReturn(1);
+        when(settings.getMaxQueuedRuns()).thenReturn(4);
+        when(settings.getInteractiveAdmissionWeight()).thenReturn(2);
+        ChatRunQueryService queryService = mock(ChatRunQueryService.class);
+        when(queryService.findActiveRunIds()).thenReturn(Collections.<String>emptyList());
+        List<Runnable> handedOff = new ArrayList<Runnable>();
+        ChatRunAdmissionScheduler admission = new ChatRunAdmissionScheduler(settings, queryService,
+                handedOff::add);
+        ScheduledTaskServiceImpl service = new ScheduledTaskServiceImpl(taskRepo, sessionRepo,
+                mock(SessionCache.class), gateway, new CurrentUserProvider(userContext),
+                promptAssemblyService, new RunRecallPolicyFactory(new AgentRunProperties()),
+                Clock.fixed(Instant.parse("2026-07-23T08:00:00Z"), ZoneOffset.UTC), admission);
+        ScheduledTask task = task("owned-task", "p", "alice");
+        when(taskRepo.findById("tid")).thenReturn(task);
+
+        service.executeTask("tid");
+
+        // 调度线程只负责排队, 不等 Agent 结束
+        verify(gateway, never()).runStream(any(), any(), any(), any(), any(), any(), anyLong(), any(), any());
+        verify(taskRepo, never()).update(task);
+        assertEquals(1, admission.activeCount());
+
+        handedOff.get(0).run();
+
+        verify(gateway).runStream(any(), any(), any(), any(), any(), any(), anyLong(), any(), any());
+        verify(taskRepo).update(task);
+        assertEquals(0, admission.activeCount());
+    }
+
     private void stubPromptAssemblyPassThrough(PromptAssemblyService service) {
         when(service.assemble(any(AgentRunContext.class))).thenAnswer(inv -> {
             AgentRunContext context = inv.getArgument(0);
@@ -0,0 +1,215 @@
+package com.example.agentweb.app.chatrun;
+
+import com.example.agentweb.domain.chatrun.ChatRunId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ChatRun 准入调度：槽位占用/释放、有界队列与预留、按用户轮转、交互车道优先与后台任务异步执行。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class ChatRunAdmissionSchedulerTest {
+
+    private ChatRunStreamSettings settings;
+    private ChatRunQueryService queryService;
+    private List<String> launched;
+    private ChatRunLauncher launcher;
+    private ChatRunAdmissionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        settings = mock(ChatRunStreamSettings.class);
+        when(settings.getMaxActiveRuns()).thenReturn(1);
+        when(settings.getMaxQueuedRuns()).thenReturn(8);
+        when(settings.getInteractiveAdmissionWeight()).thenReturn(2);
+        queryService = mock(ChatRunQueryService.class);
+        when(queryService.findActiveRunIds()).thenReturn(Collections.<String>emptyList());
+        launched = Collections.synchronizedList(new ArrayList<String>());
+        launcher = runId -> launched.add(runId.getValue());
+        scheduler = new ChatRunAdmissionScheduler(settings, queryService, Runnable::run);
+    }
+
+    @Test
+    void free_slot_should_launch_immediately_and_full_slots_should_queue_in_order() {
+        assertEquals(0, scheduler.requireAdmission("alice", ChatRunAdmissionLane.INTERACTIVE));
+        assertEquals(0, submit("run-1", "alice"));
+        assertEquals(1, scheduler.requireAdmission("bob", ChatRunAdmissionLane.INTERACTIVE));
+        assertEquals(1, submit("run-2", "bob"));
+        assertEquals(2, submit("run-3", "carol"));
+
+        assertEquals(Collections.singletonList("run-1"), launched);
+        assertEquals(1, scheduler.activeCount());
+        assertEquals(2, scheduler.queuedCount());
+
+        scheduler.release(ChatRunId.of("run-1"));
+        assertEquals(Arrays.asList("run-1", "run-2"), launched);
+        scheduler.release(ChatRunId.of("run-2"));
+        assertEquals(Arrays.asList("run-1", "run-2", "run-3"), launched);
+        assertEquals(0, scheduler.queuedCount());
+    }
+
+    @Test
+    void queued_users_should_be_admitted_round_robin() {
+        submit("running", "alice");
+        submit("alice-1", "alice");
+        submit("alice-2", "alice");
+        submit("alice-3", "alice");
+        assertEquals(2, submit("bob-1", "bob"));
+
+        drainAll("running", "alice-1", "bob-1", "alice-2", "alice-3");
+    }
+
+    @Test
+    void background_lane_should_yield_to_interactive_runs_up_to_the_weight() {
+        submit("running", "alice");
+        assertEquals(1, scheduler.submitBackground("cron", () -> launched.add("background")));
+        submit("chat-1", "bob");
+        submit("chat-2", "carol");
+        assertEquals(4, submit("chat-3", "dave"));
+
+        scheduler.release(ChatRunId.of("running"));
+        scheduler.release(ChatRunId.of("chat-1"));
+        scheduler.release(ChatRunId.of("chat-2"));
+
+        // 后台任务执行结束即释放自己的槽位, chat-3 随之放行
+        assertEquals(Arrays.asList("running", "chat-1", "chat-2", "background", "chat-3"), launched);
+        assertEquals(1, scheduler.activeCount());
+    }
+
+    @Test
+    void background_work_should_not_block_the_caller_and_hold_its_slot_until_it_finishes() {
+        List<Runnable> handedOff = new ArrayList<Runnable>();
+        scheduler = new ChatRunAdmissionScheduler(settings, queryService, handedOff::add);
+
+        assertEquals(0, scheduler.submitBackground("cron", () -> launched.add("background")));
+        assertEquals(1, handedOff.size());
+        assertTrue(launched.isEmpty());
+        assertEquals(1, submit("chat-1", "bob"));
+
+        handedOff.get(0).run();
+
+        assertEquals(Arrays.asList("background", "chat-1"), launched);
+        assertEquals(1, scheduler.activeCount());
+    }
+
+    @Test
+    void rejected_background_hand_off_should_release_its_slot() {
+        scheduler = new ChatRunAdmissionScheduler(settings, queryService, task -> {
+            throw new RejectedExecutionException("pool saturated");
+        });
+
+        scheduler.submitBackground("cron", () -> launched.add("never"));
+
+        assertEquals(0, scheduler.activeCount());
+        assertEquals(0, submit("run-1", "alice"));
+        assertFalse(launched.contains("never"));
+    }
+
+    @Test
+    void full_queue_should_reject_with_capacity_exception() {
+        when(settings.getMaxQueuedRuns()).thenReturn(1);
+        submit("run-1", "alice");
+        submit("run-2", "alice");
+
+        assertThrows(RunCapacityExceededException.class,
+                () -> scheduler.requireAdmission("bob", ChatRunAdmissionLane.INTERACTIVE));
+        assertThrows(RunCapacityExceededException.class,
+                () -> scheduler.submitBackground("cron", () -> launched.add("never")));
+        assertFalse(launched.contains("never"));
+    }
+
+    @Test
+    void reserved_admissions_should_count_against_the_queue_limit_until_submitted_or_withdrawn() {
+        when(settings.getMaxQueuedRuns()).thenReturn(1);
+        submit("running", "alice");
+
+        assertEquals(1, scheduler.requireAdmission("bob", ChatRunAdmissionLane.INTERACTIVE));
+        assertThrows(RunCapacityExceededException.class,
+                () -> scheduler.requireAdmission("carol", ChatRunAdmissionLane.INTERACTIVE));
+
+        scheduler.withdrawAdmission();
+        assertEquals(1, scheduler.requireAdmission("carol", ChatRunAdmissionLane.INTERACTIVE));
+        assertEquals(1, submit("carol-1", "carol"));
+        assertThrows(RunCapacityExceededException.class, () -> submit("dave-1", "dave"));
+        assertEquals(1, scheduler.queuedCount());
+    }
+
+    @Test
+    void queued_position_should_follow_the_queue_as_runs_are_admitted() {
+        submit("running", "alice");
+        submit("run-2", "bob");
+        submit("run-3", "carol");
+        assertEquals(2, scheduler.positionOf(ChatRunId.of("run-3")));
+
+        scheduler.release(ChatRunId.of("running"));
+
+        assertEquals(0, scheduler.positionOf(ChatRunId.of("run-2")));
+        assertEquals(1, scheduler.positionOf(ChatRunId.of("run-3")));
+        assertEquals(0, scheduler.positionOf(ChatRunId.of("running")));
+    }
+
+    @Test
+    void releasing_a_queued_run_should_withdraw_it_without_launching() {
+        submit("run-1", "alice");
+        submit("cancelled", "bob");
+        submit("run-3", "carol");
+
+        scheduler.release(ChatRunId.of("cancelled"));
+        scheduler.release(ChatRunId.of("run-1"));
+
+        assertEquals(Arrays.asList("run-1", "run-3"), launched);
+        assertEquals(0, scheduler.queuedCount());
+    }
+
+    @Test
+    void active_runs_should_be_seeded_from_the_store_once() {
+        when(queryService.findActiveRunIds()).thenReturn(Collections.singletonList("survivor"));
+
+        assertEquals(1, scheduler.requireAdmission("alice", ChatRunAdmissionLane.INTERACTIVE));
+        assertEquals(1, submit("run-1", "alice"));
+        scheduler.release(ChatRunId.of("survivor"));
+
+        assertEquals(Collections.singletonList("run-1"), launched);
+        verify(queryService, times(1)).findActiveRunIds();
+    }
+
+    @Test
+    void failed_launch_should_release_its_slot() {
+        ChatRunLauncher broken = runId -> {
+            throw new IllegalStateException("executor rejected");
+        };
+        scheduler.submit(ChatRunId.of("broken"), "alice", ChatRunAdmissionLane.INTERACTIVE, broken);
+
+        assertEquals(0, scheduler.activeCount());
+        assertEquals(0, submit("run-2", "bob"));
+    }
+
+    private int submit(String runId, String userId) {
+        return scheduler.submit(ChatRunId.of(runId), userId, ChatRunAdmissionLane.INTERACTIVE, launcher);
+    }
+
+    private void drainAll(String... expectedOrder) {
+        for (int i = 0; i < expectedOrder.length; i++) {
+            assertEquals(expectedOrder[i], launched.get(i));
+            scheduler.release(ChatRunId.of(expectedOrder[i]));
+        }
+        assertEquals(Arrays.asList(expectedOrder), launched);
+    }
+}
@@ -30,6 +30,7 @@ import org.mockito.InOrder;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -253,6 +254,41 @@ class ChatRunAppServiceImplTest {
         verify(runRepository, never()).add(any());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_when_slots_are_full_should_queue_and_publish_position_instead_of_rejecting() {
+        when(sessionRepository.findById("session-1")).thenReturn(session("session-1"));
+        when(runRepository.findBySessionAndIdempotencyKey("session-1", "key-3"))
+                .thenReturn(Optional.<ChatRun>empty());
+        when(sessionRepository.addMessageReturningId(eq("session-1"), any())).thenReturn(11L);
+        when(settings.getMaxQueuedRuns()).thenReturn(4);
+        when(queryService.findActiveRunIds()).thenReturn(Arrays.asList(
+                "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8"));
+        ChatRunAdmissionScheduler scheduler = new ChatRunAdmissionScheduler(settings, queryService,
+                Runnable::run);
+        ChatRunIdGenerator idGenerator = mock(ChatRunIdGenerator.class);
+        when(idGenerator.nextId()).thenReturn(ChatRunId.of("run-1"));
+        ChatRunAppServiceImpl queueing = new ChatRunAppServiceImpl(sessionRepository, runRepository,
+                eventStore, new ChatRunEventAppender(runRepository, eventStore, eventHub,
+                new AfterCommitExecutor()), launcher, queryService, idGenerator,
+                Clock.fixed(NOW, ZoneOffset.UTC), settings, activityGuard, action -> action.get(),
+                agentCatalogService, terminalFinalizer, null, null, null, null, scheduler);
+
+        queueing.submit(new SubmitChatRunCommand("session-1", "question", null, true, "key-3"));
+
+        ArgumentCaptor<List<ChatRunEventDraft>> drafts = ArgumentCaptor.forClass(List.class);
+        verify(eventStore).appendAssigned(eq(ChatRunId.of("run-1")), any(), drafts.capture(), eq(NOW));
+        assertEquals(2, drafts.getValue().size());
+        assertEquals("queued", drafts.getValue().get(1).getEventType());
+        assertEquals("{\"position\":1}", drafts.getValue().get(1).getPayload());
+        verify(launcher, never()).launch(any());
+        verify(queryService, never()).countActiveRuns();
+
+        scheduler.release(ChatRunId.of("a1"));
+
+        verify(launcher).launch(ChatRunId.of("run-1"));
+    }
+
     @Test
     void find_should_hide_run_when_owning_session_is_invisible() {
         ChatRun run = ChatRun.submit(ChatRunId.of("run-1"), "other-session", 10L, "key", NOW);
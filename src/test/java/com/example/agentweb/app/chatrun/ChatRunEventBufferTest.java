@@ -8,6 +8,7 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.scheduling.TaskScheduler;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -83,6 +84,18 @@ class ChatRunEventBufferTest {
         assertEquals(1, batch.getValue().size());
     }
 
+    @Test
+    void flush_should_report_batch_size_bytes_and_latency() {
+        ChatRunTelemetry telemetry = mock(ChatRunTelemetry.class);
+        ChatRunEventBuffer buffer = new ChatRunEventBuffer(
+                runId, lifecycleService, scheduler, settings, clock, error -> { }, telemetry);
+
+        buffer.append("chunk", "one");
+        buffer.append("chunk", "two");
+
+        verify(telemetry).bufferFlushed(eq(2), eq(6), any(Duration.class));
+    }
+
     @Test
     void persistence_failure_should_notify_once_and_reject_later_appends() {
         settings.setFlushMaxEvents(1);
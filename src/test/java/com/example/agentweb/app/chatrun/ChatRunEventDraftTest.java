@@ -0,0 +1,32 @@
+package com.example.agentweb.app.chatrun;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class ChatRunEventDraftTest {
+
+    @Test
+    void payload_size_should_match_utf8_encoding() {
+        String[] payloads = {"", "{\"status\":\"RUNNING\"}", "中文", "é", "emoji 😀 done",
+                "lone \uD83D surrogate", "trailing \uDE00", "\uD83D"};
+
+        for (String payload : payloads) {
+            assertEquals(payload.getBytes(StandardCharsets.UTF_8).length,
+                    new ChatRunEventDraft("chunk", payload).getPayloadSize(), payload);
+        }
+    }
+
+    @Test
+    void blank_type_or_null_payload_should_be_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ChatRunEventDraft(" ", "{}"));
+        assertThrows(IllegalArgumentException.class, () -> new ChatRunEventDraft("chunk", null));
+    }
+}
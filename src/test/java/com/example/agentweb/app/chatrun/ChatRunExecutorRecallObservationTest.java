@@ -189,7 +189,7 @@ class ChatRunExecutorRecallObservationTest {
                 Collections.singletonList(new ScoredRecallHit("chunk-1", 1, "title", "conclusion",
                         "source-s1", "1-2", 0.9d, 0.8d, 0.1d, 0.2d,
                         "qwen", "CHAT", "EXPLORATORY", "test", 0.8d, Instant.now())),
-                new RecallStats(1, 1, 0, 1, 0, 0.8d, 0.9d, 3,
+                new RecallStats(1, 1, 0, 1, 0, 0, 0.8d, 0.9d, 3,
                         false, false, 30d, 0.6d, 0d, 0d, 0.7d, 0.2d, 0.1d,
                         "qwen", 1024), 9L);
     }
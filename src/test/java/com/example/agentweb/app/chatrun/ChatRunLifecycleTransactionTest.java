@@ -12,6 +12,7 @@ import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.domain.chatrun.ChatRunStatus;
 import com.example.agentweb.domain.diagnosis.DiagnosisCheckpoint;
 import com.example.agentweb.domain.diagnosis.DiagnosisCheckpointRepository;
+import com.example.agentweb.infra.SqliteConversationSearchIndex;
 import com.example.agentweb.infra.SqliteSessionRepo;
 import com.example.agentweb.infra.chatrun.SqliteChatRunEventStore;
 import com.example.agentweb.infra.chatrun.SqliteChatRunRepository;
@@ -129,7 +130,7 @@ class ChatRunLifecycleTransactionTest {
 
     private void createSchema() {
         jdbc.execute("CREATE TABLE chat_session (id TEXT PRIMARY KEY, agent_type TEXT NOT NULL, "
-                + "working_dir TEXT NOT NULL, created_at TEXT NOT NULL, resume_id TEXT, "
+                + "working_dir TEXT NOT NULL, created_at TEXT NOT NULL, resume_id TEXT, title TEXT, "
                 + "last_message_at INTEGER, session_kind TEXT NOT NULL DEFAULT 'CHAT', "
                 + "context_id TEXT, retired_at TEXT)");
         jdbc.execute("CREATE TABLE chat_message (id INTEGER PRIMARY KEY AUTOINCREMENT, "
@@ -149,5 +150,6 @@ class ChatRunLifecycleTransactionTest {
         jdbc.execute("CREATE TABLE chat_run_event (run_id TEXT NOT NULL, seq INTEGER NOT NULL, "
                 + "event_type TEXT NOT NULL, payload TEXT NOT NULL, payload_size INTEGER NOT NULL, "
                 + "created_at INTEGER NOT NULL, PRIMARY KEY(run_id, seq))");
+        new SqliteConversationSearchIndex(jdbc).ensureSchema();
     }
 }
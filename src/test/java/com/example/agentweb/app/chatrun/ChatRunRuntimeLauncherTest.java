@@ -23,8 +23,11 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Arrays;
 import java.util.concurrent.Executor;
@@ -286,6 +289,92 @@ class ChatRunRuntimeLauncherTest {
                 any(String.class), any());
     }
 
+    @Test
+    void spawnAndFirstOutputShouldBeReportedOncePerRun() {
+        ChatRunTelemetry telemetry = mock(ChatRunTelemetry.class);
+        ChatRunRuntimeLauncher instrumented = new ChatRunRuntimeLauncher(
+                runRepository, planProviderRegistry, executionGateway,
+                handleStore, lifecycleService, terminationReconciler,
+                Clock.fixed(NOW, ZoneOffset.UTC), Runnable::run, telemetry);
+        AtomicReference<RuntimeEventSink> sinkReference = new AtomicReference<RuntimeEventSink>();
+        captureSinkAndReturnHandle(sinkReference);
+        when(handleStore.find(RUN_ID)).thenReturn(Optional.of(HANDLE));
+        instrumented.launch(RUN_ID);
+
+        sinkReference.get().onEvent(event(1L, RuntimeEventType.STARTED, "runtime started"));
+        sinkReference.get().onEvent(event(2L, RuntimeEventType.OUTPUT, "first output"));
+        sinkReference.get().onEvent(event(3L, RuntimeEventType.OUTPUT, "second output"));
+
+        verify(telemetry).processSpawned(Duration.ofSeconds(2));
+        verify(telemetry, times(1)).firstProviderOutput(Duration.ZERO);
+    }
+
+    @Test
+    void outputCheckpointShouldBeWrittenEveryConfiguredSemanticEvents() {
+        ChatRunRuntimeOutputCheckpointer checkpointer =
+                mock(ChatRunRuntimeOutputCheckpointer.class);
+        when(checkpointer.checkpointIntervalEvents()).thenReturn(3);
+        doThrow(new IllegalStateException("disk full"))
+                .doNothing().when(checkpointer).checkpoint(RUN_ID);
+        ChatRunRuntimeLauncher checkpointing = new ChatRunRuntimeLauncher(
+                runRepository, planProviderRegistry, executionGateway,
+                handleStore, lifecycleService, terminationReconciler,
+                Clock.fixed(NOW, ZoneOffset.UTC), Runnable::run,
+                ChatRunTelemetry.NOOP, checkpointer);
+        AtomicReference<RuntimeEventSink> sinkReference = new AtomicReference<RuntimeEventSink>();
+        captureSinkAndReturnHandle(sinkReference);
+        when(handleStore.find(RUN_ID)).thenReturn(Optional.of(HANDLE));
+        checkpointing.launch(RUN_ID);
+
+        for (long sequence = 1L; sequence <= 4L; sequence++) {
+            sinkReference.get().onEvent(new RuntimeEvent(
+                    RUN_ID.getValue(), sequence, RuntimeEventType.OUTPUT, "chunk", null,
+                    Arrays.asList(RuntimeSemanticEvent.agentChunk("a"),
+                            RuntimeSemanticEvent.agentChunk("b"))));
+        }
+
+        verify(checkpointer, times(2)).checkpoint(RUN_ID);
+        verify(lifecycleService, times(8)).append(
+                eq(RUN_ID), eq("agent_chunk"), any(String.class));
+    }
+
+    @Test
+    void outputCheckpointShouldRunOnExecutorAndCoalesceWhileInFlight() {
+        ChatRunRuntimeOutputCheckpointer checkpointer =
+                mock(ChatRunRuntimeOutputCheckpointer.class);
+        when(checkpointer.checkpointIntervalEvents()).thenReturn(2);
+        List<Runnable> queued = new ArrayList<Runnable>();
+        ChatRunRuntimeLauncher checkpointing = new ChatRunRuntimeLauncher(
+                runRepository, planProviderRegistry, executionGateway,
+                handleStore, lifecycleService, terminationReconciler,
+                Clock.fixed(NOW, ZoneOffset.UTC), queued::add,
+                ChatRunTelemetry.NOOP, checkpointer);
+        AtomicReference<RuntimeEventSink> sinkReference = new AtomicReference<RuntimeEventSink>();
+        captureSinkAndReturnHandle(sinkReference);
+        when(handleStore.find(RUN_ID)).thenReturn(Optional.of(HANDLE));
+        checkpointing.launch(RUN_ID);
+        queued.remove(0).run();
+
+        for (long sequence = 1L; sequence <= 3L; sequence++) {
+            sinkReference.get().onEvent(new RuntimeEvent(
+                    RUN_ID.getValue(), sequence, RuntimeEventType.OUTPUT, "chunk", null,
+                    Arrays.asList(RuntimeSemanticEvent.agentChunk("a"),
+                            RuntimeSemanticEvent.agentChunk("b"))));
+        }
+
+        verify(checkpointer, never()).checkpoint(RUN_ID);
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        verify(checkpointer, times(1)).checkpoint(RUN_ID);
+
+        sinkReference.get().onEvent(new RuntimeEvent(
+                RUN_ID.getValue(), 4L, RuntimeEventType.OUTPUT, "chunk", null,
+                Arrays.asList(RuntimeSemanticEvent.agentChunk("c"))));
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        verify(checkpointer, times(2)).checkpoint(RUN_ID);
+    }
+
     @Test
     void requestedStopTerminationShouldUseSameUnifiedReconciler() {
         AtomicReference<RuntimeEventSink> sinkReference = new AtomicReference<RuntimeEventSink>();
@@ -27,6 +27,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -88,6 +89,56 @@ class ChatRunSubscriptionServiceTest {
         order.verify(subscription).activateAfter(3L);
     }
 
+    @Test
+    void subscribe_inside_hot_tail_should_replay_from_memory_without_querying_store() {
+        ChatRun run = runningRunWithSequence(3L);
+        when(runRepository.findById(runId)).thenReturn(Optional.of(run));
+        when(sessionRepository.findById("session-1")).thenReturn(session());
+        ChatRunEvent second = event(2L, "chunk", "two");
+        ChatRunEvent third = event(3L, "chunk", "three");
+        when(eventHub.findRecentAfter(runId, 1L))
+                .thenReturn(Optional.of(Arrays.asList(second, third)));
+        ChatRunEventSubscription subscription = mock(ChatRunEventSubscription.class);
+        when(eventHub.open(eq(runId), any(ChatRunEventConsumer.class))).thenReturn(subscription);
+        when(scheduler.scheduleAtFixedRate(any(Runnable.class), any(java.time.Duration.class)))
+                .thenReturn(mock(ScheduledFuture.class));
+        ChatRunStreamSink sink = mock(ChatRunStreamSink.class);
+
+        service.subscribe("run-1", 1L, sink);
+
+        org.mockito.InOrder order = inOrder(eventHub, sink, subscription);
+        order.verify(eventHub).open(eq(runId), any(ChatRunEventConsumer.class));
+        order.verify(eventHub).findRecentAfter(runId, 1L);
+        order.verify(sink).send(second);
+        order.verify(sink).send(third);
+        order.verify(subscription).activateAfter(3L);
+        verifyNoInteractions(eventStore);
+        verify(runRepository, times(1)).findById(runId);
+    }
+
+    @Test
+    void hot_tail_dropped_after_registration_should_fall_back_to_store() {
+        ChatRun run = runningRunWithSequence(2L);
+        when(runRepository.findById(runId)).thenReturn(Optional.of(run));
+        when(sessionRepository.findById("session-1")).thenReturn(session());
+        when(eventHub.findRecentAfter(runId, 1L))
+                .thenReturn(Optional.of(Collections.singletonList(event(2L, "chunk", "two"))))
+                .thenReturn(Optional.empty());
+        ChatRunEventSubscription subscription = mock(ChatRunEventSubscription.class);
+        when(eventHub.open(eq(runId), any(ChatRunEventConsumer.class))).thenReturn(subscription);
+        when(eventStore.findEarliestSequence(runId)).thenReturn(1L);
+        ChatRunEvent terminal = event(2L, "terminal", "{\"status\":\"SUCCEEDED\"}");
+        when(eventStore.findAfterThrough(runId, 1L, 2L, 500))
+                .thenReturn(Collections.singletonList(terminal));
+        ChatRunStreamSink sink = mock(ChatRunStreamSink.class);
+
+        service.subscribe("run-1", 1L, sink);
+
+        verify(sink).send(terminal);
+        verify(sink).complete();
+        verify(subscription, never()).activateAfter(any(Long.class));
+    }
+
     @Test
     void subscribe_with_expired_cursor_should_return_snapshot_metadata_without_opening_hub() {
         ChatRun run = runningRunWithSequence(900L);
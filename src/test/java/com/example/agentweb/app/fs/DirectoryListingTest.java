@@ -0,0 +1,143 @@
+package com.example.agentweb.app.fs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 目录快照的排序、过滤与键集游标分页。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class DirectoryListingTest {
+
+    @Test
+    void defaultOrderShouldPutDirectoriesFirstThenNameIgnoringCase() {
+        DirectoryListing listing = new DirectoryListing(Arrays.asList(
+                file("b.txt", 1, 10), dir("src"), file("A.md", 2, 20), dir("Docs")));
+
+        assertEquals(Arrays.asList("Docs", "src", "A.md", "b.txt"), names(listing.getEntries()));
+    }
+
+    @Test
+    void cursorShouldWalkAllPagesWithoutRepeats() {
+        List<DirectoryListing.Entry> entries = new ArrayList<DirectoryListing.Entry>();
+        for (int i = 0; i < 7; i++) {
+            entries.add(file("f" + i + ".log", i, i));
+        }
+        DirectoryListing listing = new DirectoryListing(entries);
+
+        List<String> seen = new ArrayList<String>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            DirectoryPage<DirectoryListing.Entry> page = listing.page(
+                    new DirectoryPageQuery(null, DirectoryPageQuery.Sort.NAME, false, cursor, 3));
+            seen.addAll(names(page.getEntries()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(names(entries), seen);
+    }
+
+    @Test
+    void cursorShouldResumeAfterAnchorEvenWhenListingChangedBetweenPages() {
+        DirectoryListing before = new DirectoryListing(Arrays.asList(
+                file("a.txt", 1, 1), file("c.txt", 1, 1), file("e.txt", 1, 1)));
+        DirectoryPage<DirectoryListing.Entry> first = before.page(DirectoryPageQuery.firstPage(2));
+
+        DirectoryListing after = new DirectoryListing(Arrays.asList(
+                file("a.txt", 1, 1), file("b.txt", 1, 1), file("d.txt", 1, 1),
+                file("e.txt", 1, 1)));
+        DirectoryPage<DirectoryListing.Entry> second = after.page(new DirectoryPageQuery(
+                null, DirectoryPageQuery.Sort.NAME, false, first.getNextCursor(), 2));
+
+        assertEquals(Arrays.asList("a.txt", "c.txt"), names(first.getEntries()));
+        assertEquals(Arrays.asList("d.txt", "e.txt"), names(second.getEntries()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void sizeDescendingWithFilterShouldKeepDirectoriesFirstAndBreakTiesByName() {
+        DirectoryListing listing = new DirectoryListing(Arrays.asList(
+                file("gc-1.LOG", 30, 1), file("gc-2.log", 30, 1), file("big.log", 90, 1),
+                file("readme.md", 500, 1), dir("logs")));
+
+        DirectoryPage<DirectoryListing.Entry> page = listing.page(new DirectoryPageQuery(
+                " log ", DirectoryPageQuery.Sort.SIZE, true, null, 2));
+        DirectoryPage<DirectoryListing.Entry> rest = listing.page(new DirectoryPageQuery(
+                "log", DirectoryPageQuery.Sort.SIZE, true, page.getNextCursor(), 2));
+
+        assertEquals(Arrays.asList("logs", "big.log"), names(page.getEntries()));
+        assertNotNull(page.getNextCursor());
+        assertEquals(Arrays.asList("gc-2.log", "gc-1.LOG"), names(rest.getEntries()));
+        assertNull(rest.getNextCursor());
+    }
+
+    @Test
+    void hiddenViewsShouldNotConsumePageSlots() {
+        DirectoryListing listing = new DirectoryListing(Arrays.asList(
+                file(".env", 1, 1), file("a.txt", 1, 1), file("b.txt", 1, 1), file(".tmp", 1, 1)));
+        List<String> mapped = new ArrayList<String>();
+
+        DirectoryPage<String> page = listing.page(DirectoryPageQuery.firstPage(2), entry -> {
+            mapped.add(entry.getName());
+            return entry.getName().startsWith(".") ? null : entry.getName().toUpperCase();
+        });
+
+        assertEquals(Arrays.asList("A.TXT", "B.TXT"), page.getEntries());
+        assertNull(page.getNextCursor(), "后面只剩隐藏项时不给续页游标");
+        assertEquals(Arrays.asList(".env", ".tmp", "a.txt", "b.txt"), mapped, "每个子项只映射一次");
+    }
+
+    @Test
+    void unpagedQueryShouldReturnEveryMatchWithoutCursor() {
+        List<DirectoryListing.Entry> entries = new ArrayList<DirectoryListing.Entry>();
+        for (int i = 0; i < DirectoryPageQuery.MAXIMUM_LIMIT + 1; i++) {
+            entries.add(file("f" + i + ".log", i, i));
+        }
+        DirectoryListing listing = new DirectoryListing(entries);
+
+        DirectoryPage<DirectoryListing.Entry> page = listing.page(
+                DirectoryPageQuery.unpaged(null, DirectoryPageQuery.Sort.NAME, false));
+
+        assertEquals(entries.size(), page.getEntries().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void malformedCursorOrLimitShouldBeRejected() {
+        DirectoryListing listing = new DirectoryListing(Arrays.asList(file("a.txt", 1, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> listing.page(new DirectoryPageQuery(
+                null, DirectoryPageQuery.Sort.NAME, false, "%%%", 10)));
+        assertThrows(IllegalArgumentException.class, () -> DirectoryPageQuery.firstPage(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> DirectoryPageQuery.firstPage(DirectoryPageQuery.MAXIMUM_LIMIT + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> DirectoryPageQuery.firstPage(Integer.MAX_VALUE));
+    }
+
+    private static DirectoryListing.Entry file(String name, long size, long lastModified) {
+        return new DirectoryListing.Entry(name, false, true, size, lastModified);
+    }
+
+    private static DirectoryListing.Entry dir(String name) {
+        return new DirectoryListing.Entry(name, true, false, 4096L, 0L);
+    }
+
+    private static List<String> names(List<DirectoryListing.Entry> entries) {
+        return entries.stream().map(DirectoryListing.Entry::getName).collect(Collectors.toList());
+    }
+}
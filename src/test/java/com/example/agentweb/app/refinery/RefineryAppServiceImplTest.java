@@ -7,6 +7,8 @@ import com.example.agentweb.domain.refinery.DiscardedRefineRecord;
 import com.example.agentweb.domain.refinery.DiscardedRefineRepository;
 import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RagGenerationRepository;
 import com.example.agentweb.domain.refinery.SessionRefineryState;
 import com.example.agentweb.domain.refinery.SessionRefineryStateRepository;
 import com.example.agentweb.domain.refinery.ConversationTurn;
@@ -63,6 +65,7 @@ public class RefineryAppServiceImplTest {
     @Mock private RagChunkRepository chunkRepo;
     @Mock private SessionRefineryStateRepository stateRepo;
     @Mock private DiscardedRefineRepository discardedRepo;
+    @Mock private RagGenerationRepository generationRepo;
 
     private RefineryProperties props;
     private TrustTierPolicy tierPolicy;
@@ -435,6 +438,195 @@ public class RefineryAppServiceImplTest {
         verify(stateRepo, never()).save(any());
     }
 
+    @Test
+    public void refineAndIngestAll_isolates_each_session_and_persists_outcomes_like_single_path() {
+        for (String id : Arrays.asList("sess-a", "sess-b", "sess-low", "sess-bad")) {
+            when(viewBuilder.build(id)).thenReturn(Optional.of(newView(id)));
+        }
+        when(refinery.refine(any())).thenAnswer(invocation -> {
+            String id = invocation.<ConversationView>getArgument(0).getSourceId();
+            if ("sess-bad".equals(id)) {
+                throw new RefineException("cli crashed");
+            }
+            return "sess-low".equals(id) ? lowScoreResult() : highScoreResult();
+        });
+        when(embeddingClient.embedBatch(any())).thenAnswer(invocation -> {
+            List<float[]> vectors = new ArrayList<>();
+            for (int i = 0; i < invocation.<List<String>>getArgument(0).size(); i++) {
+                vectors.add(new float[]{0.1f, 0.2f, 0.3f});
+            }
+            return vectors;
+        });
+
+        RefineryIngestProgress progress = service.refineAndIngestAll("tick",
+                Arrays.asList("sess-a", "sess-missing", "sess-b", "sess-low", "sess-bad"));
+
+        assertEquals(5, progress.getTotal());
+        assertEquals(2, progress.getSaved());
+        assertEquals(1, progress.getDiscarded());
+        assertEquals(1, progress.getSkipped());
+        assertEquals(1, progress.getFailed());
+        assertEquals(2, progress.getEmbedded());
+        assertFalse(progress.isRunning());
+        verify(chunkRepo, org.mockito.Mockito.times(2)).save(any());
+        verify(embeddingClient, never()).embed(any());
+        ArgumentCaptor<SessionRefineryState> states = ArgumentCaptor.forClass(SessionRefineryState.class);
+        verify(stateRepo, org.mockito.Mockito.times(4)).save(states.capture());
+        for (SessionRefineryState state : states.getAllValues()) {
+            if ("sess-bad".equals(state.getSessionId())) {
+                assertEquals("cli crashed", state.getLastError());
+                assertEquals(1, state.getRetryCount());
+            } else if ("sess-low".equals(state.getSessionId())) {
+                assertEquals(SessionRefineryState.LAST_ERROR_BELOW_THRESHOLD, state.getLastError());
+            } else {
+                assertNotNull(state.getLastChunkId());
+            }
+        }
+        assertEquals("tick", service.ingestProgress().get(0).getOrigin());
+    }
+
+    @Test
+    public void refineAndIngestAll_bounds_concurrent_cli_scoring_by_configured_limit() {
+        props.getPipeline().setScoringConcurrency(2);
+        service = new RefineryAppServiceImpl(
+                viewBuilder, refinery, tierPolicy, embeddingClient,
+                chunkRepo, stateRepo, discardedRepo, props, Clock.fixed(NOW, ZoneOffset.UTC));
+        List<String> ids = Arrays.asList("s1", "s2", "s3", "s4", "s5", "s6");
+        for (String id : ids) {
+            when(viewBuilder.build(id)).thenReturn(Optional.of(newView(id)));
+        }
+        java.util.concurrent.atomic.AtomicInteger active = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger peak = new java.util.concurrent.atomic.AtomicInteger();
+        when(refinery.refine(any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(50L);
+            active.decrementAndGet();
+            return highScoreResult();
+        });
+        when(embeddingClient.embedBatch(any())).thenThrow(new IllegalStateException("batch down"));
+        when(embeddingClient.embed(any())).thenReturn(new float[]{0.1f, 0.2f, 0.3f});
+
+        RefineryIngestProgress progress = service.refineAndIngestAll("rebuild", ids);
+
+        assertEquals(2, peak.get());
+        assertEquals(6, progress.getSaved());
+        verify(chunkRepo, org.mockito.Mockito.times(6)).save(any());
+    }
+
+    @Test
+    public void refineAndIngestAll_embedding_failure_records_retry_state_without_chunk() {
+        for (String id : Arrays.asList("sess-1", "sess-2")) {
+            when(viewBuilder.build(id)).thenReturn(Optional.of(newView(id)));
+        }
+        when(refinery.refine(any())).thenReturn(highScoreResult());
+        when(embeddingClient.embedBatch(any())).thenThrow(new IllegalStateException("ark 502"));
+        when(embeddingClient.embed(any())).thenThrow(new IllegalStateException("ark 502"));
+
+        RefineryIngestProgress progress = service.refineAndIngestAll("tick",
+                Arrays.asList("sess-1", "sess-2"));
+
+        assertEquals(2, progress.getFailed());
+        verify(chunkRepo, never()).save(any());
+        ArgumentCaptor<SessionRefineryState> states = ArgumentCaptor.forClass(SessionRefineryState.class);
+        verify(stateRepo, org.mockito.Mockito.times(2)).save(states.capture());
+        for (SessionRefineryState state : states.getAllValues()) {
+            assertEquals("ark 502", state.getLastError());
+            assertEquals(1, state.getRetryCount());
+        }
+    }
+
+    @Test
+    public void refineAndIngestInto_rebuilds_processed_sessions_into_shadow_generation_only() {
+        service = new RefineryAppServiceImpl(
+                viewBuilder, refinery, tierPolicy, embeddingClient, chunkRepo, stateRepo, discardedRepo,
+                generationRepo, props, Clock.fixed(NOW, ZoneOffset.UTC));
+        for (String id : Arrays.asList("sess-a", "sess-low", "sess-bad")) {
+            when(viewBuilder.build(id)).thenReturn(Optional.of(newView(id)));
+        }
+        // sess-a 已处理且无新消息: 定时 ingest 会跳过, 影子重建仍要重评
+        when(stateRepo.findBySessionId("sess-a")).thenReturn(Optional.of(new SessionRefineryState(
+                "sess-a", NOW, NOW.minusSeconds(7000), "old-chunk", null, 0)));
+        when(refinery.refine(any())).thenAnswer(invocation -> {
+            String id = invocation.<ConversationView>getArgument(0).getSourceId();
+            if ("sess-bad".equals(id)) {
+                throw new RefineException("cli crashed");
+            }
+            return "sess-low".equals(id) ? lowScoreResult() : highScoreResult();
+        });
+        when(embeddingClient.embedBatch(any())).thenReturn(
+                java.util.Collections.singletonList(new float[]{0.1f, 0.2f, 0.3f}));
+        RagGeneration generation = new RagGeneration(3L, RagGeneration.Kind.REBUILD,
+                RagGeneration.Status.BUILDING, Arrays.asList("sess-a", "sess-missing", "sess-low", "sess-bad"),
+                "doubao-embedding-vision", 4, 0, 0, 0, NOW, null);
+
+        RefineryIngestProgress progress = service.refineAndIngestInto(generation,
+                Arrays.asList("sess-a", "sess-missing", "sess-low", "sess-bad"));
+
+        assertEquals("rebuild", progress.getOrigin());
+        assertEquals(1, progress.getSaved());
+        verify(chunkRepo, never()).save(any());
+        ArgumentCaptor<RagChunk> shadow = ArgumentCaptor.forClass(RagChunk.class);
+        verify(generationRepo).recordItem(
+                org.mockito.ArgumentMatchers.eq(3L), org.mockito.ArgumentMatchers.eq("sess-a"),
+                org.mockito.ArgumentMatchers.eq(RagGeneration.ItemOutcome.SAVED), shadow.capture());
+        assertEquals("sess-a", shadow.getValue().getSourceSessionId());
+        verify(generationRepo).recordItem(3L, "sess-missing", RagGeneration.ItemOutcome.SKIPPED, null);
+        verify(generationRepo).recordItem(3L, "sess-low", RagGeneration.ItemOutcome.DISCARDED, null);
+        verify(generationRepo).recordItem(3L, "sess-bad", RagGeneration.ItemOutcome.FAILED, null);
+    }
+
+    @Test
+    public void reembedActive_model_switch_writes_shadow_generation_and_swaps_once_complete() {
+        service = new RefineryAppServiceImpl(
+                viewBuilder, refinery, tierPolicy, embeddingClient, chunkRepo, stateRepo, discardedRepo,
+                generationRepo, props, Clock.fixed(NOW, ZoneOffset.UTC));
+        when(embeddingClient.modelName()).thenReturn("qwen3-embedding");
+        RagChunk done = reembedChunk("c-done", "a");
+        RagChunk pending = reembedChunk("c-pending", "b");
+        RagChunk current = reembedChunk("c-current", "c").withEmbedding(new float[]{0.5f}, "qwen3-embedding");
+        when(chunkRepo.findActive(any())).thenReturn(Arrays.asList(done, pending, current));
+        RagGeneration generation = new RagGeneration(8L, RagGeneration.Kind.REEMBED,
+                RagGeneration.Status.BUILDING, null, "qwen3-embedding", 2, 1, 0, 1, NOW, null);
+        when(generationRepo.findBuilding(RagGeneration.Kind.REEMBED)).thenReturn(Optional.of(generation));
+        when(generationRepo.findProcessedItems(8L)).thenReturn(java.util.Collections.singleton("c-done"));
+        when(embeddingClient.embed(any())).thenReturn(new float[]{0.9f, 0.8f});
+
+        int refreshed = service.reembedActive(10);
+
+        assertEquals(1, refreshed);
+        ArgumentCaptor<RagChunk> shadow = ArgumentCaptor.forClass(RagChunk.class);
+        verify(generationRepo).recordItem(org.mockito.ArgumentMatchers.eq(8L),
+                org.mockito.ArgumentMatchers.eq("c-pending"),
+                org.mockito.ArgumentMatchers.eq(RagGeneration.ItemOutcome.SAVED), shadow.capture());
+        assertEquals("qwen3-embedding", shadow.getValue().getEmbeddingModel());
+        assertEquals(2, shadow.getValue().getEmbedding().length);
+        verify(chunkRepo, never()).updateEmbedding(any(), any(), any());
+        verify(chunkRepo).swapGeneration(generation, NOW);
+    }
+
+    @Test
+    public void reembedActive_model_switch_partial_batch_keeps_serving_old_vectors() {
+        service = new RefineryAppServiceImpl(
+                viewBuilder, refinery, tierPolicy, embeddingClient, chunkRepo, stateRepo, discardedRepo,
+                generationRepo, props, Clock.fixed(NOW, ZoneOffset.UTC));
+        when(embeddingClient.modelName()).thenReturn("qwen3-embedding");
+        when(chunkRepo.findActive(any())).thenReturn(Arrays.asList(
+                reembedChunk("c-1", "a"), reembedChunk("c-2", "b"), reembedChunk("c-3", "c")));
+        when(generationRepo.findBuilding(RagGeneration.Kind.REEMBED)).thenReturn(Optional.empty());
+        RagGeneration opened = new RagGeneration(9L, RagGeneration.Kind.REEMBED,
+                RagGeneration.Status.BUILDING, null, "qwen3-embedding", 3, 0, 0, 0, NOW, null);
+        when(generationRepo.open(RagGeneration.Kind.REEMBED, new ArrayList<String>(), "qwen3-embedding", 3, NOW))
+                .thenReturn(opened);
+        when(generationRepo.findProcessedItems(9L)).thenReturn(java.util.Collections.<String>emptySet());
+        when(embeddingClient.embed(any())).thenReturn(new float[]{0.9f, 0.8f});
+
+        int refreshed = service.reembedActive(2);
+
+        assertEquals(2, refreshed);
+        verify(chunkRepo, never()).swapGeneration(any(), any());
+        verify(chunkRepo, never()).updateEmbedding(any(), any(), any());
+    }
+
     private SessionRefineryState capturedState() {
         ArgumentCaptor<SessionRefineryState> captor = ArgumentCaptor.forClass(SessionRefineryState.class);
         verify(stateRepo).save(captor.capture());
@@ -538,6 +730,29 @@ public class RefineryAppServiceImplTest {
                 .updateEmbedding(org.mockito.ArgumentMatchers.eq("c-ok"), any(), any());
     }
 
+    @Test
+    public void reembedActive_should_embed_in_batches_bounded_by_remaining_limit() {
+        props.getEmbedding().setBatchSize(2);
+        when(chunkRepo.findActive(any())).thenReturn(Arrays.asList(
+                reembedChunk("c-1", "a"), reembedChunk("c-2", "b"),
+                reembedChunk("c-3", "c"), reembedChunk("c-4", "d")));
+        when(embeddingClient.embedBatch(org.mockito.ArgumentMatchers.anyList())).thenAnswer(inv -> {
+            List<String> texts = inv.getArgument(0);
+            return new java.util.ArrayList<>(java.util.Collections.nCopies(texts.size(), new float[]{0.1f}));
+        });
+        when(chunkRepo.updateEmbedding(any(), any(), any())).thenReturn(true);
+
+        int refreshed = service.reembedActive(3);
+
+        org.junit.jupiter.api.Assertions.assertEquals(3, refreshed);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        org.mockito.ArgumentCaptor<List<String>> batches = (org.mockito.ArgumentCaptor) org.mockito.ArgumentCaptor.forClass(List.class);
+        org.mockito.Mockito.verify(embeddingClient, org.mockito.Mockito.times(2)).embedBatch(batches.capture());
+        org.junit.jupiter.api.Assertions.assertEquals(2, batches.getAllValues().get(0).size());
+        org.junit.jupiter.api.Assertions.assertEquals(1, batches.getAllValues().get(1).size());
+        org.mockito.Mockito.verify(embeddingClient, org.mockito.Mockito.never()).embed(any());
+    }
+
     private RagChunk reembedChunk(String id, String triggerDescription) {
         return RagChunk.builder()
                 .id(id)
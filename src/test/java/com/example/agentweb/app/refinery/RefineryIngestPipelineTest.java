@@ -0,0 +1,85 @@
+package com.example.agentweb.app.refinery;
+
+import com.example.agentweb.domain.refinery.EmbeddingClient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流水线的失败隔离: embed 文本构造抛异常只让该会话失败, 其余会话照常落库, 运行不会挂住。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class RefineryIngestPipelineTest {
+
+    @Test
+    void embedTextFailureShouldFailOnlyThatSessionAndStillReachPersist() {
+        EmbeddingClient embeddingClient = mock(EmbeddingClient.class);
+        when(embeddingClient.embedBatch(any())).thenAnswer(invocation -> {
+            List<float[]> vectors = new ArrayList<>();
+            for (int i = 0; i < invocation.<List<String>>getArgument(0).size(); i++) {
+                vectors.add(new float[]{0.1f});
+            }
+            return vectors;
+        });
+        RefineryIngestPipeline<String> pipeline = new RefineryIngestPipeline<String>(
+                embeddingClient, 2, 1, 4, Clock.fixed(Instant.parse("2026-10-17T00:00:00Z"), ZoneOffset.UTC));
+        NullPointerException broken = new NullPointerException("triggerDescription");
+        Map<String, RuntimeException> embedFailures = new ConcurrentHashMap<String, RuntimeException>();
+
+        RefineryIngestProgress progress = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> pipeline.run("tick", Arrays.asList("s1", "bad", "s2", "s3"),
+                        new RefineryIngestPipeline.Stages<String>() {
+                            @Override
+                            public String score(String sessionId) {
+                                return sessionId;
+                            }
+
+                            @Override
+                            public String embedText(String scored) {
+                                if ("bad".equals(scored)) {
+                                    throw broken;
+                                }
+                                return "text-" + scored;
+                            }
+
+                            @Override
+                            public RefineryIngestPipeline.Outcome persist(String scored, float[] vector,
+                                                                          RuntimeException embedFailure) {
+                                if (embedFailure != null) {
+                                    embedFailures.put(scored, embedFailure);
+                                    return RefineryIngestPipeline.Outcome.FAILED;
+                                }
+                                return RefineryIngestPipeline.Outcome.SAVED;
+                            }
+
+                            @Override
+                            public void unscored(String sessionId, RuntimeException failure) {
+                            }
+                        }));
+
+        assertEquals(3, progress.getSaved());
+        assertEquals(1, progress.getFailed());
+        assertEquals(3, progress.getEmbedded());
+        assertSame(broken, embedFailures.get("bad"));
+        assertEquals(1, embedFailures.size());
+        assertNull(embedFailures.get("s1"));
+    }
+}
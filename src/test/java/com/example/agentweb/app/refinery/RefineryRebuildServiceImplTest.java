@@ -2,8 +2,10 @@ package com.example.agentweb.app.refinery;
 
 import com.example.agentweb.app.logging.TraceContext;
 import com.example.agentweb.domain.chat.SessionRepository;
+import com.example.agentweb.domain.refinery.EmbeddingClient;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
-import com.example.agentweb.domain.refinery.SessionRefineryStateRepository;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RagGenerationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +18,10 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +30,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -46,8 +58,9 @@ public class RefineryRebuildServiceImplTest {
 
     @Mock private SessionRepository sessionRepo;
     @Mock private RagChunkRepository chunkRepo;
-    @Mock private SessionRefineryStateRepository stateRepo;
+    @Mock private RagGenerationRepository generationRepo;
     @Mock private RefineryAppService appService;
+    @Mock private EmbeddingClient embeddingClient;
     @Mock private TraceContext traceContext;
 
     private final Executor directExecutor = Runnable::run;
@@ -57,65 +70,122 @@ public class RefineryRebuildServiceImplTest {
 
     @BeforeEach
     public void setUp() {
-        service = new RefineryRebuildServiceImpl(
-                sessionRepo, chunkRepo, stateRepo, appService, directExecutor, fixedClock, traceContext);
+        service = newService(directExecutor);
         when(traceContext.newTraceIdIfAbsent()).thenReturn("trace-1");
+        when(embeddingClient.modelName()).thenReturn("qwen3-embedding");
+        when(generationRepo.findBuilding(RagGeneration.Kind.REBUILD)).thenReturn(Optional.empty());
+        when(generationRepo.open(eq(RagGeneration.Kind.REBUILD), anyList(), eq("qwen3-embedding"),
+                anyInt(), eq(NOW)))
+                .thenAnswer(inv -> generation(42L, inv.getArgument(1)));
+        when(appService.refineAndIngestInto(any(RagGeneration.class), anyList())).thenReturn(
+                new RefineryIngestProgress("rebuild", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, NOW, NOW));
+    }
+
+    private RefineryRebuildServiceImpl newService(Executor executor) {
+        return new RefineryRebuildServiceImpl(sessionRepo, chunkRepo, generationRepo, appService,
+                embeddingClient, executor, fixedClock, traceContext);
+    }
+
+    private static RagGeneration generation(long id, List<String> scope) {
+        return new RagGeneration(id, RagGeneration.Kind.REBUILD, RagGeneration.Status.BUILDING, scope,
+                "qwen3-embedding", scope.size(), 0, 0, 0, NOW, null);
     }
 
     @Test
-    public void rebuildRecent_queries_sessions_by_afterMs_clears_chunk_and_state_then_reruns_each_session() {
+    public void rebuildRecent_builds_shadow_generation_without_touching_live_chunks_then_swaps() {
         when(sessionRepo.findIdsWithLastMessageAfter(NOW.minusSeconds(7 * SECONDS_PER_DAY).toEpochMilli()))
                 .thenReturn(Arrays.asList("s1", "s2"));
-        when(chunkRepo.deleteBySourceSessionId("s1")).thenReturn(2);
-        when(chunkRepo.deleteBySourceSessionId("s2")).thenReturn(3);
+        when(generationRepo.findProcessedItems(42L)).thenReturn(
+                Collections.<String>emptySet(), new HashSet<String>(Arrays.asList("s1", "s2")));
 
         RebuildResult result = service.rebuildRecent(7);
 
-        // 清理: 每个会话删 chunk + 删 state
-        verify(chunkRepo).deleteBySourceSessionId("s1");
-        verify(chunkRepo).deleteBySourceSessionId("s2");
-        verify(stateRepo).deleteBySessionId("s1");
-        verify(stateRepo).deleteBySessionId("s2");
-        // 重跑: 直跑 executor 下每个会话各调一次
-        verify(appService).refineAndIngest("s1");
-        verify(appService).refineAndIngest("s2");
+        // 构建期间不删现役 chunk / state, 召回照常
+        verify(chunkRepo, never()).deleteBySourceSessionId(anyString());
+        verify(appService).refineAndIngestInto(any(RagGeneration.class), eq(Arrays.asList("s1", "s2")));
+        verify(chunkRepo).swapGeneration(any(RagGeneration.class), eq(NOW));
 
         assertTrue(result.isStarted());
         assertEquals(7, result.getDays());
         assertEquals(2, result.getMatchedSessions());
-        assertEquals(5, result.getChunksDeleted());
+        assertEquals(42L, result.getGeneration());
         assertEquals(2, result.getQueued());
     }
 
     @Test
-    public void rebuildRecent_no_matching_sessions_should_be_started_with_zero_counts_no_repo_writes() {
-        when(sessionRepo.findIdsWithLastMessageAfter(org.mockito.ArgumentMatchers.anyLong()))
-                .thenReturn(java.util.Collections.emptyList());
+    public void rebuildRecent_no_matching_sessions_should_swap_empty_generation_without_pipeline() {
+        when(sessionRepo.findIdsWithLastMessageAfter(anyLong())).thenReturn(Collections.<String>emptyList());
+        when(generationRepo.findProcessedItems(42L)).thenReturn(Collections.<String>emptySet());
 
         RebuildResult result = service.rebuildRecent(3);
 
         assertTrue(result.isStarted());
         assertEquals(0, result.getMatchedSessions());
-        assertEquals(0, result.getChunksDeleted());
-        verify(appService, never()).refineAndIngest(org.mockito.ArgumentMatchers.anyString());
+        verify(appService, never()).refineAndIngestInto(any(RagGeneration.class), anyList());
+        verify(chunkRepo).swapGeneration(any(RagGeneration.class), eq(NOW));
     }
 
     @Test
-    public void rebuildRecent_single_session_refine_throws_does_not_affect_others_still_started() {
-        when(sessionRepo.findIdsWithLastMessageAfter(org.mockito.ArgumentMatchers.anyLong()))
-                .thenReturn(Arrays.asList("bad", "good"));
-        when(appService.refineAndIngest("bad")).thenThrow(new RuntimeException("boom"));
-        when(appService.refineAndIngest("good")).thenReturn(true);
+    public void rebuildRecent_supersedes_generation_left_building() {
+        when(sessionRepo.findIdsWithLastMessageAfter(anyLong())).thenReturn(Collections.<String>emptyList());
+        when(generationRepo.findBuilding(RagGeneration.Kind.REBUILD))
+                .thenReturn(Optional.of(generation(7L, Arrays.asList("old"))));
+        when(generationRepo.findProcessedItems(42L)).thenReturn(Collections.<String>emptySet());
 
-        RebuildResult result = service.rebuildRecent(7);
+        service.rebuildRecent(7);
 
-        assertTrue(result.isStarted());
-        verify(appService).refineAndIngest("bad");
-        verify(appService).refineAndIngest("good");
+        verify(generationRepo).abandon(7L, NOW);
+    }
+
+    @Test
+    public void rebuildRecent_incomplete_generation_is_not_swapped() {
+        when(sessionRepo.findIdsWithLastMessageAfter(anyLong())).thenReturn(Arrays.asList("s1", "s2"));
+        // 流水线被中断: s2 没有落结论
+        when(generationRepo.findProcessedItems(42L)).thenReturn(
+                Collections.<String>emptySet(), new HashSet<String>(Collections.singletonList("s1")));
+
+        service.rebuildRecent(7);
+
+        verify(chunkRepo, never()).swapGeneration(any(RagGeneration.class), any(Instant.class));
+    }
+
+    @Test
+    public void rebuildRecent_pipeline_throws_still_releases_guard_for_next_rebuild() {
+        when(sessionRepo.findIdsWithLastMessageAfter(anyLong())).thenReturn(Arrays.asList("bad", "good"));
+        when(generationRepo.findProcessedItems(42L)).thenReturn(Collections.<String>emptySet());
+        when(appService.refineAndIngestInto(any(RagGeneration.class), anyList()))
+                .thenThrow(new RuntimeException("boom"));
+
+        RebuildResult first = service.rebuildRecent(7);
+        RebuildResult second = service.rebuildRecent(7);
+
+        assertTrue(first.isStarted());
+        assertTrue(second.isStarted());
+        verify(chunkRepo, never()).swapGeneration(any(RagGeneration.class), any(Instant.class));
+    }
+
+    @Test
+    public void resumeInterrupted_reruns_only_unprocessed_sessions_then_swaps() {
+        RagGeneration building = generation(9L, Arrays.asList("s1", "s2", "s3"));
+        when(generationRepo.findBuilding(RagGeneration.Kind.REBUILD)).thenReturn(Optional.of(building));
+        when(generationRepo.findProcessedItems(9L)).thenReturn(
+                new HashSet<String>(Collections.singletonList("s2")),
+                new HashSet<String>(Arrays.asList("s1", "s2", "s3")));
+
+        assertTrue(service.resumeInterrupted());
+
+        verify(appService).refineAndIngestInto(building, Arrays.asList("s1", "s3"));
+        verify(chunkRepo).swapGeneration(building, NOW);
+    }
+
+    @Test
+    public void resumeInterrupted_nothing_building_is_noop() {
+        assertFalse(service.resumeInterrupted());
+        verify(appService, never()).refineAndIngestInto(any(RagGeneration.class), anyList());
     }
 
     @Test
-    public void rebuildRecent_rebuild_already_in_progress_returns_busy_no_duplicate_cleanup_or_submission() throws Exception {
+    public void rebuildRecent_rebuild_already_in_progress_returns_busy_without_opening_generation() throws Exception {
         // 用阻塞 executor 模拟"上一轮还在后台跑", 占住护栏
         CountDownLatch release = new CountDownLatch(1);
         CountDownLatch started = new CountDownLatch(1);
@@ -134,24 +204,24 @@ public class RefineryRebuildServiceImplTest {
             t.setDaemon(true);
             t.start();
         };
-        RefineryRebuildServiceImpl blocking = new RefineryRebuildServiceImpl(
-                sessionRepo, chunkRepo, stateRepo, appService, blockingExecutor, fixedClock, traceContext);
-        when(sessionRepo.findIdsWithLastMessageAfter(org.mockito.ArgumentMatchers.anyLong()))
-                .thenReturn(Arrays.asList("s1"));
-        when(chunkRepo.deleteBySourceSessionId("s1")).thenReturn(1);
+        RefineryRebuildServiceImpl blocking = newService(blockingExecutor);
+        when(sessionRepo.findIdsWithLastMessageAfter(anyLong())).thenReturn(Arrays.asList("s1"));
+        when(generationRepo.findProcessedItems(42L)).thenReturn(Collections.<String>emptySet());
 
         RebuildResult first = blocking.rebuildRecent(7);
         assertTrue(started.await(2, TimeUnit.SECONDS));
         assertTrue(first.isStarted());
 
-        // 护栏被占, 第二次应 busy: 不再清理 (deleteBySourceSessionId 仍只被第一次调过 1 次)
+        // 护栏被占, 第二次应 busy: 不开新代 (open 仍只被第一次调过 1 次)
         RebuildResult second = blocking.rebuildRecent(7);
         assertFalse(second.isStarted());
         assertEquals("rebuild-in-progress", second.getReason());
-        assertEquals(0, second.getChunksDeleted());
+        assertEquals(0L, second.getGeneration());
         assertEquals(0, second.getQueued());
+        assertFalse(blocking.resumeInterrupted());
 
         release.countDown();
-        verify(chunkRepo).deleteBySourceSessionId("s1"); // 仅第一次清理过一次
+        verify(generationRepo).open(eq(RagGeneration.Kind.REBUILD), anyList(), eq("qwen3-embedding"),
+                anyInt(), eq(NOW));
     }
 }
@@ -3,6 +3,8 @@ package com.example.agentweb.app.refinery;
 import com.example.agentweb.domain.shared.AgentType;
 import com.example.agentweb.domain.refinery.RagChunk;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
+import com.example.agentweb.domain.refinery.RagVectorIndex;
+import com.example.agentweb.domain.refinery.VectorSearchResult;
 import com.example.agentweb.domain.refinery.EmbeddingClient;
 import com.example.agentweb.domain.refinery.RefinedContent;
 import com.example.agentweb.domain.refinery.SourceType;
@@ -28,6 +30,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -562,6 +568,109 @@ public class RefineryRecallerTest {
                 "γ=0.1 旧默认下, score 被稀释, 0.1 的 cosine 差距仍主导排序");
     }
 
+    @Test
+    public void recall_with_vector_index_rescores_candidates_exactly_and_skips_snapshot() {
+        RagVectorIndex index = mock(RagVectorIndex.class);
+        RefineryRecaller indexed = new RefineryRecaller(embeddingClient, chunkRepo, props,
+                Clock.fixed(NOW, ZoneOffset.UTC), detailStore, workspaceResolver, index);
+        props.getRecall().setMinVectorScore(0.5d);
+        when(embeddingClient.embed("q")).thenReturn(new float[]{1f, 0f, 0f});
+        RagChunk near = chunkOf("c-near", new float[]{0.99f, 0.1f, 0f}, "近");
+        RagChunk mid = chunkOf("c-mid", new float[]{0.7f, 0.7f, 0f}, "中");
+        when(index.search(any(), any(), any(), eq(NOW), anyInt(), anyDouble())).thenReturn(new VectorSearchResult(
+                5, 4, 1, 1, 3, 0.3d, Arrays.asList(
+                        new VectorSearchResult.Candidate("c-near", 0.99d),
+                        new VectorSearchResult.Candidate("c-mid", 0.7d))));
+        when(chunkRepo.findByIds(Arrays.asList("c-near", "c-mid"))).thenReturn(Arrays.asList(mid, near));
+
+        RecallTrace trace = indexed.traceForChat("q", null);
+
+        assertEquals(2, trace.getHits().size());
+        assertEquals("c-near", trace.getHits().get(0).getChunkId());
+        assertEquals(5, trace.getStats().getActiveCount());
+        assertEquals(4, trace.getStats().getFilteredCount());
+        assertEquals(1, trace.getStats().getBelowVectorFloor());
+        assertEquals(1, trace.getStats().getBadVectorCount());
+        assertEquals(2, trace.getStats().getRankedCount());
+        assertEquals(3, trace.getStats().getTruncatedCount(), "索引截断计数进 trace");
+        verify(chunkRepo, never()).findActive(any());
+    }
+
+    @Test
+    public void recall_with_vector_index_disabled_falls_back_to_snapshot_scan() {
+        RagVectorIndex index = mock(RagVectorIndex.class);
+        props.getRecall().getIndex().setEnabled(false);
+        RefineryRecaller linear = new RefineryRecaller(embeddingClient, chunkRepo, props,
+                Clock.fixed(NOW, ZoneOffset.UTC), detailStore, workspaceResolver, index);
+        when(embeddingClient.embed("q")).thenReturn(new float[]{1f, 0f, 0f});
+        when(chunkRepo.findActive(NOW)).thenReturn(Collections.singletonList(
+                chunkOf("only", new float[]{0.5f, 0.5f, 0f}, "x")));
+
+        List<RagChunk> hits = linear.recall("q", 3);
+
+        assertEquals(1, hits.size());
+        verify(index, never()).search(any(), any(), any(), any(), anyInt(), anyDouble());
+    }
+
+    @Test
+    public void traceForChat_partitionedScoring_matchesSequentialHitsAndStats() {
+        props.getRecall().setTopK(5);
+        props.getRecall().setMinVectorScore(0.2d);
+        java.util.Random random = new java.util.Random(11);
+        List<RagChunk> pool = new java.util.ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            float[] vec = i % 50 == 0
+                    ? new float[]{1f, 0f}
+                    : new float[]{(float) random.nextGaussian(), (float) random.nextGaussian(), 0.5f};
+            pool.add(i % 7 == 0
+                    ? chunkOfWithSource("d" + i, vec, "t", SourceType.DIAGNOSE, TrustTier.VERIFIED)
+                    : chunkOf("c" + i, vec, "t"));
+        }
+        when(embeddingClient.embed("q")).thenReturn(new float[]{1f, 0.2f, 0.1f});
+        when(chunkRepo.findActive(NOW)).thenReturn(pool);
+
+        RecallTrace sequential = recaller.traceForChat("q", null);
+        props.getRecall().setParallelThreshold(1);
+        props.getRecall().setPartitionSize(7);
+        RecallTrace partitioned = recaller.traceForChat("q", null);
+
+        assertEquals(hitIds(sequential), hitIds(partitioned));
+        RecallStats a = sequential.getStats();
+        RecallStats b = partitioned.getStats();
+        assertEquals(a.getActiveCount(), b.getActiveCount());
+        assertEquals(a.getFilteredCount(), b.getFilteredCount());
+        assertEquals(a.getBelowVectorFloor(), b.getBelowVectorFloor());
+        assertEquals(a.getRankedCount(), b.getRankedCount());
+        assertEquals(a.getBadVectorCount(), b.getBadVectorCount());
+        assertEquals(a.getTopVectorScore(), b.getTopVectorScore());
+        assertEquals(a.getTopFinalScore(), b.getTopFinalScore());
+        assertTrue(b.getBadVectorCount() > 0 && b.getBelowVectorFloor() > 0);
+    }
+
+    @Test
+    public void recall_partitionedScoring_breaksTiesByChunkId() {
+        props.getRecall().setParallelThreshold(1);
+        props.getRecall().setPartitionSize(1);
+        when(embeddingClient.embed("q")).thenReturn(new float[]{1f, 0f, 0f});
+        when(chunkRepo.findActive(NOW)).thenReturn(Arrays.asList(
+                chunkOf("t3", new float[]{0.8f, 0.6f, 0f}, "x"),
+                chunkOf("t2", new float[]{0.8f, 0.6f, 0f}, "x"),
+                chunkOf("t4", new float[]{0.8f, 0.6f, 0f}, "x"),
+                chunkOf("t1", new float[]{0.8f, 0.6f, 0f}, "x")));
+
+        List<RagChunk> hits = recaller.recall("q", 2);
+
+        assertEquals(Arrays.asList("t1", "t2"), Arrays.asList(hits.get(0).getId(), hits.get(1).getId()));
+    }
+
+    private static List<String> hitIds(RecallTrace trace) {
+        List<String> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < trace.getHits().size(); i++) {
+            ids.add(trace.getHits().get(i).getChunkId());
+        }
+        return ids;
+    }
+
     private RagChunk chunkWithScore(String id, float[] vec, double score) {
         return RagChunk.builder()
                 .id(id)
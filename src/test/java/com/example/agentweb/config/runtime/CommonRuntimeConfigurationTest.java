@@ -16,6 +16,7 @@ import com.example.agentweb.app.runtime.ExecutionPlanProvider;
 import com.example.agentweb.app.runtime.ExecutionPlanProviderRegistry;
 import com.example.agentweb.app.runtime.port.AgentExecutionGateway;
 import com.example.agentweb.app.runtime.port.RuntimePreflightGateway;
+import com.example.agentweb.app.storage.StoredContentCodec;
 import com.example.agentweb.domain.capability.McpServerCatalog;
 import com.example.agentweb.domain.capability.SkillCatalog;
 import com.example.agentweb.domain.chat.SessionRepository;
@@ -135,6 +136,12 @@ class CommonRuntimeConfigurationTest {
     })
     static class RuntimeTestDependencies {
 
+        /** SqliteChatRunRuntimeOutputQuery 的内容编解码依赖; 本测试只验装配, 用直通实现即可。 */
+        @Bean
+        StoredContentCodec storedContentCodec() {
+            return StoredContentCodec.PLAIN;
+        }
+
         @Bean(name = "agentExecutor")
         Executor agentExecutor() {
             return Runnable::run;
@@ -2,8 +2,11 @@ package com.example.agentweb.domain.refinery;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author zhourui(V33215020)
@@ -57,4 +60,43 @@ public class CosineSimilarityTest {
         assertThrows(IllegalArgumentException.class, () -> CosineSimilarity.cosine(zero, nonZero));
         assertThrows(IllegalArgumentException.class, () -> CosineSimilarity.cosine(nonZero, zero));
     }
+
+    @Test
+    public void precomputed_norm_overload_matches_two_arg_cosine() {
+        float[] a = {3f, 4f, 0f};
+        float[] b = {1f, 2f, 2f};
+        assertEquals(CosineSimilarity.cosine(a, b),
+                CosineSimilarity.cosine(a, CosineSimilarity.norm(a), b, CosineSimilarity.norm(b)), EPS);
+        assertEquals(5d, CosineSimilarity.norm(a), EPS);
+    }
+
+    @Test
+    public void simd_dot_matches_scalar_within_documented_epsilon() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "需 --add-modules jdk.incubator.vector");
+        Random random = new Random(7);
+        // 覆盖不足一个向量宽度、非整倍数尾部与生产常见维度
+        for (int dim : new int[]{3, 17, 1024, 1536, 3072, 4096, 4099}) {
+            for (int round = 0; round < 20; round++) {
+                float[] a = gaussian(random, dim);
+                float[] b = gaussian(random, dim);
+                double normA = CosineSimilarity.norm(a);
+                double normB = CosineSimilarity.norm(b);
+                double scalar = CosineSimilarity.scalarDot(a, b) / (normA * normB);
+                double simd = SimdDotProduct.dot(a, b) / (normA * normB);
+                assertEquals(scalar, simd, CosineSimilarity.SIMD_EPSILON, "dim=" + dim);
+            }
+            float[] a = gaussian(random, dim);
+            assertEquals(1.0, SimdDotProduct.dot(a, a) / (CosineSimilarity.norm(a) * CosineSimilarity.norm(a)),
+                    CosineSimilarity.SIMD_EPSILON, "self cosine dim=" + dim);
+        }
+    }
+
+    private static float[] gaussian(Random random, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
 }
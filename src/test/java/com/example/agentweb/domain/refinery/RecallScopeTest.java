@@ -0,0 +1,60 @@
+package com.example.agentweb.domain.refinery;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public class RecallScopeTest {
+
+    @Test
+    public void with_source_admits_every_tier_of_that_source_only() {
+        RecallScope scope = RecallScope.none().with(SourceType.CHAT);
+
+        for (TrustTier tier : TrustTier.values()) {
+            assertTrue(scope.admits(SourceType.CHAT, tier));
+            assertFalse(scope.admits(SourceType.DIAGNOSE, tier));
+        }
+    }
+
+    @Test
+    public void atLeast_drops_less_trusted_tiers_across_sources() {
+        RecallScope scope = RecallScope.none()
+                .with(SourceType.CHAT)
+                .with(SourceType.DIAGNOSE, TrustTier.VERIFIED)
+                .atLeast(TrustTier.PENDING);
+
+        assertTrue(scope.admits(SourceType.CHAT, TrustTier.VERIFIED));
+        assertTrue(scope.admits(SourceType.CHAT, TrustTier.PENDING));
+        assertFalse(scope.admits(SourceType.CHAT, TrustTier.EXPLORATORY));
+        assertTrue(scope.admits(SourceType.DIAGNOSE, TrustTier.VERIFIED));
+        assertFalse(scope.admits(SourceType.DIAGNOSE, TrustTier.PENDING));
+    }
+
+    @Test
+    public void scope_is_immutable_and_null_min_tier_is_noop() {
+        RecallScope base = RecallScope.none();
+        RecallScope chat = base.with(SourceType.CHAT);
+
+        assertFalse(base.admits(SourceType.CHAT, TrustTier.EXPLORATORY));
+        assertTrue(chat.atLeast(null).admits(SourceType.CHAT, TrustTier.EXPLORATORY));
+    }
+
+    @Test
+    public void pair_index_is_dense_and_unique() {
+        boolean[] seen = new boolean[RecallScope.PAIR_COUNT];
+        for (SourceType source : SourceType.values()) {
+            for (TrustTier tier : TrustTier.values()) {
+                int index = RecallScope.pairIndex(source, tier);
+                assertFalse(seen[index]);
+                seen[index] = true;
+            }
+        }
+        assertEquals(SourceType.values().length * TrustTier.values().length, seen.length);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.agentweb.infra;
 
+import com.example.agentweb.app.ChatMessagePage;
 import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionSummary;
 import com.example.agentweb.app.SharedSessionView;
@@ -71,6 +72,7 @@ public class SqliteChatSessionQueryServiceTest {
                 + "role TEXT NOT NULL, content TEXT NOT NULL, timestamp TEXT NOT NULL)");
         jdbc.execute("CREATE TABLE chat_message_recall ("
                 + "message_id INTEGER PRIMARY KEY, payload_json TEXT NOT NULL)");
+        new SqliteConversationSearchIndex(jdbc).ensureSchema();
         userContext = new StubUserContext();
         CurrentUserProvider provider = new CurrentUserProvider(userContext);
         repo = new SqliteSessionRepo(jdbc, provider);
@@ -175,6 +177,96 @@ public class SqliteChatSessionQueryServiceTest {
         assertNull(query.findMessageViews("stage-retired"));
     }
 
+    @Test
+    public void findMessagePage_should_page_newest_first_by_keyset_cursor() {
+        repo.saveSession(newSession("sess-1", Instant.parse("2026-05-25T10:00:00Z")));
+        List<Long> ids = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(repo.addMessageReturningId("sess-1", new ChatMessage(
+                    i % 2 == 0 ? "user" : "assistant", "m" + i, Instant.parse("2026-05-25T10:01:00Z"))));
+        }
+
+        ChatMessagePage newest = query.findMessagePage("sess-1", null, 2);
+        assertEquals(2, newest.getMessages().size());
+        assertEquals(ids.get(3), newest.getMessages().get(0).getId(), "页内按 id 升序");
+        assertEquals(ids.get(4), newest.getMessages().get(1).getId());
+        assertEquals(ids.get(3), newest.getNextBeforeId());
+
+        ChatMessagePage middle = query.findMessagePage("sess-1", newest.getNextBeforeId(), 2);
+        assertEquals(ids.get(1), middle.getMessages().get(0).getId());
+        assertEquals(ids.get(1), middle.getNextBeforeId());
+
+        ChatMessagePage oldest = query.findMessagePage("sess-1", middle.getNextBeforeId(), 2);
+        assertEquals(1, oldest.getMessages().size());
+        assertEquals(ids.get(0), oldest.getMessages().get(0).getId());
+        assertNull(oldest.getNextBeforeId(), "已无更早消息");
+    }
+
+    @Test
+    public void findMessagePage_should_summarize_tool_output_and_findMessageView_should_return_full_content() {
+        repo.saveSession(newSession("sess-1", Instant.parse("2026-05-25T10:00:00Z")));
+        String bulk = repeat('o', 5000);
+        String content = "{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\","
+                + "\"delta\":{\"type\":\"text_delta\",\"text\":\"done\"}}}\n"
+                + "{\"type\":\"user\",\"message\":{\"content\":[{\"type\":\"tool_result\","
+                + "\"tool_use_id\":\"t1\",\"content\":\"ok\"}]},\"tool_use_result\":\"" + bulk + "\"}";
+        long toolMsg = repo.addMessageReturningId("sess-1",
+                new ChatMessage("assistant", content, Instant.parse("2026-05-25T10:01:00Z")));
+        repo.addMessageReturningId("sess-1",
+                new ChatMessage("assistant", "short", Instant.parse("2026-05-25T10:02:00Z")));
+
+        List<ChatMessageView> page = query.findMessagePage("sess-1", null, 10).getMessages();
+
+        ChatMessageView summary = page.get(0);
+        assertEquals(Boolean.TRUE, summary.getSummarized());
+        assertFalse(summary.getContent().contains(bulk));
+        assertTrue(summary.getContent().contains("\"text\":\"done\""), "非工具输出行原样保留");
+        assertTrue(summary.getContent().length() < 1000);
+        assertNull(page.get(1).getSummarized(), "没有可省略内容的消息不是摘要");
+        assertEquals("short", page.get(1).getContent());
+
+        ChatMessageView full = query.findMessageView("sess-1", toolMsg);
+        assertEquals(content, full.getContent());
+        assertNull(full.getSummarized());
+        assertNull(query.findMessageView("other-session", toolMsg));
+    }
+
+    @Test
+    public void findMessagePage_should_hide_other_users_session_when_isolated() {
+        userContext.userId = "bob";
+        ChatSession bobSession = newSession("sess-bob", Instant.parse("2026-05-25T10:00:00Z"));
+        bobSession.setUserId("bob");
+        repo.saveSession(bobSession);
+        long msg = repo.addMessageReturningId("sess-bob",
+                new ChatMessage("user", "q", Instant.parse("2026-05-25T10:01:00Z")));
+
+        userContext.userId = "alice";
+        assertNull(query.findMessagePage("sess-bob", null, 10));
+        assertNull(query.findMessageView("sess-bob", msg));
+    }
+
+    @Test
+    public void findSharedView_with_limit_should_return_newest_page_and_cursor() {
+        repo.saveSession(newSession("sess-1", Instant.parse("2026-05-26T08:00:00Z")));
+        jdbc.update("UPDATE chat_session SET share_token = ? WHERE id = ?", "tok-page", "sess-1");
+        long first = repo.addMessageReturningId("sess-1",
+                new ChatMessage("user", "q1", Instant.parse("2026-05-26T08:01:00Z")));
+        long second = repo.addMessageReturningId("sess-1",
+                new ChatMessage("assistant", "a1", Instant.parse("2026-05-26T08:02:00Z")));
+
+        SharedSessionView view = query.findSharedView("tok-page", 1);
+
+        assertEquals(1, view.getMessages().size());
+        assertEquals(second, view.getMessages().get(0).getId());
+        assertEquals(second, view.getNextBeforeId());
+        ChatMessagePage older = query.findSharedMessagePage("tok-page", view.getNextBeforeId(), 1);
+        assertEquals(first, older.getMessages().get(0).getId());
+        assertNull(older.getNextBeforeId());
+        assertEquals("a1", query.findSharedMessageView("tok-page", second).getContent());
+        assertNull(query.findSharedMessagePage("nope", null, 1));
+        assertNull(query.findSharedMessageView("nope", second));
+    }
+
     @Test
     public void findSharedView_should_return_meta_and_messages_by_token() {
         ChatSession session = newSession("sess-1", Instant.parse("2026-05-26T08:00:00Z"));
@@ -72,6 +72,7 @@ public class SqliteSessionRepoIsolationTest {
         jdbc.execute("CREATE TABLE chat_message ("
                 + "id INTEGER PRIMARY KEY AUTOINCREMENT, session_id TEXT NOT NULL, "
                 + "role TEXT NOT NULL, content TEXT NOT NULL, timestamp TEXT NOT NULL)");
+        new SqliteConversationSearchIndex(jdbc).ensureSchema();
         userContext = new StubUserContext();
         provider = new CurrentUserProvider(userContext);
         repo = new SqliteSessionRepo(jdbc, provider);
@@ -5,6 +5,8 @@ import com.example.agentweb.domain.chat.ChatSession;
 import com.example.agentweb.domain.chat.Feedback;
 import com.example.agentweb.domain.chat.FeedbackRating;
 import com.example.agentweb.domain.chat.SessionKind;
+import com.example.agentweb.infra.storage.ContentBlobStore;
+import com.example.agentweb.infra.storage.DeflateStoredContentCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -62,7 +64,9 @@ public class SqliteSessionRepoTest {
                         + "user_name TEXT,"
                         + "session_kind TEXT NOT NULL DEFAULT 'CHAT',"
                         + "context_id TEXT,"
-                        + "retired_at TEXT)"
+                        + "retired_at TEXT,"
+                        + "message_count INTEGER NOT NULL DEFAULT 0,"
+                        + "first_user_message TEXT)"
         );
         jdbc.execute(
                 "CREATE TABLE chat_message ("
@@ -96,6 +100,7 @@ public class SqliteSessionRepoTest {
                         + "last_error TEXT,"
                         + "retry_count INTEGER NOT NULL DEFAULT 0)"
         );
+        new SqliteConversationSearchIndex(jdbc).ensureSchema();
         repo = new SqliteSessionRepo(jdbc, new com.example.agentweb.domain.auth.CurrentUserProvider(() -> java.util.Optional.empty()));
     }
 
@@ -379,6 +384,77 @@ public class SqliteSessionRepoTest {
         assertEquals(ratedAt.toEpochMilli(), stored.getUpdatedAt().toEpochMilli());
     }
 
+    @Test
+    public void maintained_counts_and_search_index_should_follow_add_truncate_and_delete() {
+        ChatSession session = newSession("sess-search", "/tmp/work", AgentType.CLAUDE);
+        session.setTitle("网关超时排查");
+        repo.saveSession(session);
+        repo.addMessage("sess-search", new com.example.agentweb.domain.chat.ChatMessage(
+                "assistant", "欢迎使用助手", Instant.parse("2026-05-25T10:00:00Z")));
+        long firstUserId = repo.addMessageReturningId("sess-search", new com.example.agentweb.domain.chat.ChatMessage(
+                "user", "nginx 返回 502", Instant.parse("2026-05-25T10:00:01Z")));
+        repo.addMessage("sess-search", new com.example.agentweb.domain.chat.ChatMessage(
+                "user", "upstream keepalive", Instant.parse("2026-05-25T10:00:02Z")));
+
+        assertEquals(3, sessionColumn("message_count", Integer.class));
+        assertEquals("nginx 返回 502", sessionColumn("first_user_message", String.class));
+        assertEquals(1, ftsHits("chat_message_fts", "\"keepalive\""));
+        assertEquals(1, ftsHits("chat_session_fts", "\"超时排\""));
+
+        repo.truncateFrom("sess-search", firstUserId);
+
+        assertEquals(1, sessionColumn("message_count", Integer.class));
+        assertNull(sessionColumn("first_user_message", String.class));
+        assertEquals(0, ftsHits("chat_message_fts", "\"keepalive\""));
+        assertEquals(0, ftsHits("chat_message_fts", "\"nginx\""));
+        assertEquals(1, ftsHits("chat_message_fts", "\"使用助\""));
+
+        repo.deleteById("sess-search");
+
+        assertEquals(0, ftsHits("chat_message_fts", "\"使用助\"") + ftsHits("chat_session_fts", "\"超时排\""));
+        jdbc.execute("INSERT INTO chat_message_fts(chat_message_fts) VALUES('integrity-check')");
+    }
+
+    @Test
+    public void assistant_content_should_be_stored_compressed_and_still_searchable() {
+        SqliteSessionRepo compressing = new SqliteSessionRepo(jdbc,
+                new com.example.agentweb.domain.auth.CurrentUserProvider(() -> java.util.Optional.empty()),
+                new DeflateStoredContentCodec(true, 512, 1 << 20,
+                        new ContentBlobStore(tempDir.resolve("blobs").toString())));
+        compressing.saveSession(newSession("sess-search", "/tmp/work", AgentType.CLAUDE));
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            answer.append("{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\",")
+                    .append("\"delta\":{\"type\":\"text_delta\",\"text\":\"重启网关 \"}}}\n");
+        }
+        String question = "网关为什么超时";
+        compressing.addMessage("sess-search", new com.example.agentweb.domain.chat.ChatMessage(
+                "user", question, Instant.parse("2026-05-25T10:00:00Z")));
+        compressing.addMessage("sess-search", new com.example.agentweb.domain.chat.ChatMessage(
+                "assistant", answer.toString(), Instant.parse("2026-05-25T10:00:01Z")));
+
+        List<String> types = jdbc.queryForList(
+                "SELECT typeof(content) FROM chat_message WHERE session_id = 'sess-search' ORDER BY id", String.class);
+        assertEquals(java.util.Arrays.asList("text", "blob"), types);
+        ChatSession loaded = compressing.findById("sess-search");
+        assertEquals(question, loaded.getMessages().get(0).getContent());
+        assertEquals(answer.toString(), loaded.getMessages().get(1).getContent());
+        assertEquals(question, sessionColumn("first_user_message", String.class));
+        assertEquals(1, ftsHits("chat_message_fts", "\"重启网关\""));
+        // 索引的是抽出的正文，不含 stream-json 键
+        assertEquals(0, ftsHits("chat_message_fts", "\"text_delta\""));
+    }
+
+    private <T> T sessionColumn(String column, Class<T> type) {
+        return jdbc.queryForObject("SELECT " + column + " FROM chat_session WHERE id = 'sess-search'", type);
+    }
+
+    private int ftsHits(String table, String match) {
+        Integer hits = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + table + " MATCH ?", Integer.class, match);
+        return hits == null ? 0 : hits;
+    }
+
     @Test
     public void deleteById_should_cascade_delete_messages() {
         ChatSession session = newSession("sess-1", "/tmp/work", AgentType.CLAUDE);
@@ -0,0 +1,81 @@
+package com.example.agentweb.infra;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * stream-json 摘要：长工具输出截成预览且保持前端可解析，其余正文不变。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class StreamJsonToolOutputSummarizerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void long_textual_tool_use_result_should_become_truncated_block_content() throws Exception {
+        String bulk = repeat('x', 3000);
+        String line = "{\"type\":\"user\",\"message\":{\"content\":[{\"type\":\"tool_result\","
+                + "\"tool_use_id\":\"t1\",\"content\":\"ok\"}]},\"tool_use_result\":\"" + bulk + "\"}";
+        String text = "{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\","
+                + "\"delta\":{\"type\":\"text_delta\",\"text\":\"hi\"}}}";
+
+        StreamJsonToolOutputSummarizer.Summary summary =
+                StreamJsonToolOutputSummarizer.summarize(text + "\n" + line);
+
+        assertTrue(summary.isSummarized());
+        String[] lines = summary.getContent().split("\n", 2);
+        assertEquals(text, lines[0]);
+        JsonNode root = MAPPER.readTree(lines[1]);
+        assertFalse(root.has("tool_use_result"));
+        String preview = root.path("message").path("content").get(0).path("content").asText();
+        assertTrue(preview.startsWith(repeat('x', StreamJsonToolOutputSummarizer.PREVIEW_CHARS) + "\n"));
+        assertTrue(preview.contains("共 3000 字符"));
+        assertEquals("t1", root.path("message").path("content").get(0).path("tool_use_id").asText());
+    }
+
+    @Test
+    void structured_tool_use_result_should_be_dropped() throws Exception {
+        String line = "{\"type\":\"user\",\"message\":{\"content\":[{\"type\":\"tool_result\","
+                + "\"content\":\"ok\"}]},\"tool_use_result\":{\"stdout\":\"" + repeat('y', 2000) + "\"}}";
+
+        StreamJsonToolOutputSummarizer.Summary summary = StreamJsonToolOutputSummarizer.summarize(line);
+
+        assertTrue(summary.isSummarized());
+        JsonNode root = MAPPER.readTree(summary.getContent());
+        assertFalse(root.has("tool_use_result"));
+        assertEquals("ok", root.path("message").path("content").get(0).path("content").asText());
+    }
+
+    @Test
+    void content_without_bulk_tool_output_should_be_returned_as_is() {
+        String shortResult = "{\"type\":\"user\",\"message\":{\"content\":[{\"type\":\"tool_result\","
+                + "\"content\":\"ok\"}]},\"tool_use_result\":\"fine\"}";
+        String plain = repeat('z', 2000) + " tool_result mentioned in plain text";
+
+        assertUnchanged(shortResult);
+        assertUnchanged(plain);
+        assertUnchanged(null);
+    }
+
+    private static void assertUnchanged(String content) {
+        StreamJsonToolOutputSummarizer.Summary summary = StreamJsonToolOutputSummarizer.summarize(content);
+        assertFalse(summary.isSummarized());
+        assertSame(content, summary.getContent());
+    }
+
+    private static String repeat(char c, int times) {
+        StringBuilder sb = new StringBuilder(times);
+        for (int i = 0; i < times; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
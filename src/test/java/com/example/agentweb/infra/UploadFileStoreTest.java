@@ -3,7 +3,9 @@ package com.example.agentweb.infra;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -148,6 +150,52 @@ public class UploadFileStoreTest {
         assertTrue(ex.getMessage().contains("二进制"));
     }
 
+    @Test
+    public void save_stream_writesContentAndLeavesNoTempFile(@TempDir Path workingDir) throws IOException {
+        byte[] content = textBytes("streamed line\n");
+        String saved = store.save(workingDir.toString(), "s", "stream.log",
+                new ByteArrayInputStream(content), content.length);
+
+        assertArrayEqualsBytes(content, Files.readAllBytes(Paths.get(saved)));
+        assertEquals(1, listNames(workingDir.resolve("upload_file").resolve("s")).length);
+    }
+
+    @Test
+    public void save_stream_understatedSize_rejectedByActualBytes(@TempDir Path workingDir) {
+        byte[] huge = new byte[(int) UploadFileStore.MAX_FILE_BYTES + 1];
+        Arrays.fill(huge, (byte) 'A');
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                store.save(workingDir.toString(), "s", "big.log", new ByteArrayInputStream(huge), 10L));
+        assertTrue(ex.getMessage().contains("5MB"));
+        assertEquals(0, listNames(workingDir.resolve("upload_file").resolve("s")).length,
+                "中止时临时文件应被删除");
+    }
+
+    @Test
+    public void save_stream_nulAcrossReadChunks_rejected(@TempDir Path workingDir) {
+        // 逐字节读的流:NUL 落在第一次 read 之后仍需命中嗅探窗口
+        byte[] content = new byte[]{'o', 'k', 0x00, 'x'};
+        InputStream trickle = new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                store.save(workingDir.toString(), "s", "fake.log", trickle, content.length));
+        assertTrue(ex.getMessage().contains("二进制"));
+    }
+
+    @Test
+    public void save_stream_declaredEmptyOrOversize_rejectedBeforeWriting(@TempDir Path workingDir) {
+        assertThrows(IllegalArgumentException.class, () ->
+                store.save(workingDir.toString(), "s", "a.log", new ByteArrayInputStream(new byte[0]), 0L));
+        assertThrows(IllegalArgumentException.class, () ->
+                store.save(workingDir.toString(), "s", "a.log", new ByteArrayInputStream(textBytes("x")),
+                        UploadFileStore.MAX_FILE_BYTES + 1));
+        assertFalse(Files.exists(workingDir.resolve("upload_file")));
+    }
+
     @Test
     public void save_workingDirEmpty_rejected() {
         assertThrows(IllegalArgumentException.class, () ->
@@ -235,6 +283,11 @@ public class UploadFileStoreTest {
                 () -> store.deleteSessionFiles(workingDir.toString(), "../../outside"));
     }
 
+    private static String[] listNames(Path dir) {
+        String[] names = dir.toFile().list();
+        return names == null ? new String[0] : names;
+    }
+
     private static void assertArrayEqualsBytes(byte[] expected, byte[] actual) {
         assertEquals(expected.length, actual.length);
         for (int i = 0; i < expected.length; i++) {
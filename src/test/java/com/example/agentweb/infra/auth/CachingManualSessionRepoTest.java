@@ -0,0 +1,226 @@
+package com.example.agentweb.infra.auth;
+
+import com.example.agentweb.domain.auth.ManualSession;
+import com.example.agentweb.domain.auth.UserAccount;
+import com.example.agentweb.domain.auth.UserAccountRepository;
+import com.example.agentweb.domain.auth.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 会话缓存装饰器: 真实 SQLite 委托 + 可拨动时钟, 断言查库次数、失效与指标.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class CachingManualSessionRepoTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteManualSessionRepo delegate;
+    private AuthProperties properties;
+    private SimpleMeterRegistry meters;
+    private MutableClock clock;
+    private CachingManualSessionRepo repo;
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource ds = new SQLiteDataSource();
+        ds.setUrl("jdbc:sqlite:" + tempDir.resolve("session-cache-test.db").toAbsolutePath());
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("CREATE TABLE manual_session ("
+                + "session_id TEXT PRIMARY KEY, user_id TEXT NOT NULL, user_name TEXT NOT NULL, "
+                + "created_at INTEGER NOT NULL, expires_at INTEGER NOT NULL)");
+        delegate = spy(new SqliteManualSessionRepo(jdbc));
+        properties = new AuthProperties();
+        properties.setSessionCacheMaxEntries(2);
+        properties.setSessionCacheTtlSeconds(60L);
+        meters = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2026-10-17T00:00:00Z"));
+        repo = new CachingManualSessionRepo(delegate, properties, meters, clock);
+    }
+
+    @Test
+    void repeated_lookup_should_hit_cache_until_ttl_elapses() {
+        ManualSession session = session("u1", 3600);
+        repo.save(session);
+
+        assertTrue(repo.findById(session.getSessionId()).isPresent());
+        assertTrue(repo.findById(session.getSessionId()).isPresent());
+        assertTrue(repo.findById(session.getSessionId()).isPresent());
+        verify(delegate, times(1)).findById(session.getSessionId());
+
+        clock.advance(Duration.ofSeconds(61));
+        assertTrue(repo.findById(session.getSessionId()).isPresent());
+
+        verify(delegate, times(2)).findById(session.getSessionId());
+        assertEquals(2.0, meters.get("auth.session.cache").tag("result", "hit").counter().count());
+        assertEquals(2.0, meters.get("auth.session.cache").tag("result", "miss").counter().count());
+        assertEquals(1.0, meters.get("auth.session.cache.evictions").tag("cause", "expired").counter().count());
+    }
+
+    @Test
+    void entry_should_not_outlive_session_expires_at() {
+        ManualSession session = session("u1", 10);
+        repo.save(session);
+        repo.findById(session.getSessionId());
+
+        clock.advance(Duration.ofSeconds(10));
+        ManualSession reloaded = repo.findById(session.getSessionId()).orElseThrow();
+
+        assertTrue(reloaded.isExpired(clock), "expired row is returned from the store for the caller to purge");
+        verify(delegate, times(2)).findById(session.getSessionId());
+        repo.findById(session.getSessionId());
+        verify(delegate, times(3)).findById(session.getSessionId());
+    }
+
+    @Test
+    void logout_and_user_revocation_should_invalidate_immediately() {
+        ManualSession first = session("u1", 3600);
+        ManualSession second = session("u2", 3600);
+        repo.save(first);
+        repo.save(second);
+        repo.findById(first.getSessionId());
+        repo.findById(second.getSessionId());
+
+        repo.deleteById(first.getSessionId());
+        assertEquals(1, repo.deleteByUserId("u2"));
+
+        assertFalse(repo.findById(first.getSessionId()).isPresent());
+        assertFalse(repo.findById(second.getSessionId()).isPresent());
+        assertEquals(2.0, meters.get("auth.session.cache.evictions").tag("cause", "invalidated").counter().count());
+        assertEquals(0.0, meters.get("auth.session.cache.size").gauge().value());
+    }
+
+    @Test
+    void capacity_should_evict_least_recently_used_session() {
+        ManualSession a = session("u1", 3600);
+        ManualSession b = session("u1", 3600);
+        ManualSession c = session("u1", 3600);
+        repo.save(a);
+        repo.save(b);
+        repo.save(c);
+        repo.findById(a.getSessionId());
+        repo.findById(b.getSessionId());
+        repo.findById(a.getSessionId());
+        repo.findById(c.getSessionId());
+
+        repo.findById(a.getSessionId());
+        repo.findById(b.getSessionId());
+
+        verify(delegate, times(1)).findById(a.getSessionId());
+        verify(delegate, times(2)).findById(b.getSessionId());
+        assertEquals(2.0, meters.get("auth.session.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void account_should_be_cached_with_session_entry_until_evicted_or_expired() {
+        UserAccountRepository accounts = mock(UserAccountRepository.class);
+        when(accounts.findById("u1")).thenReturn(Optional.of(account("u1", UserRole.ADMIN, true)));
+        ManualSession session = session("u1", 3600);
+        repo.save(session);
+        ManualSession cached = repo.findById(session.getSessionId()).orElseThrow();
+
+        repo.findAccount(cached, accounts);
+        assertEquals(UserRole.ADMIN, repo.findAccount(cached, accounts).orElseThrow().getRole());
+        verify(accounts, times(1)).findById("u1");
+
+        when(accounts.findById("u1")).thenReturn(Optional.of(account("u1", UserRole.USER, true)));
+        repo.evictAccount("u1");
+        assertEquals(UserRole.USER, repo.findAccount(cached, accounts).orElseThrow().getRole(),
+                "角色变更后显式失效, 下一次鉴权读到新角色");
+        verify(accounts, times(2)).findById("u1");
+
+        clock.advance(Duration.ofSeconds(61));
+        ManualSession reloaded = repo.findById(session.getSessionId()).orElseThrow();
+        repo.findAccount(reloaded, accounts);
+        verify(accounts, times(3)).findById("u1");
+        assertEquals(1.0, meters.get("auth.session.account.cache").tag("result", "hit").counter().count());
+        assertEquals(3.0, meters.get("auth.session.account.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void disabled_account_should_not_be_cached() {
+        UserAccountRepository accounts = mock(UserAccountRepository.class);
+        when(accounts.findById("u1")).thenReturn(Optional.of(account("u1", UserRole.USER, false)));
+        ManualSession session = session("u1", 3600);
+        repo.save(session);
+        ManualSession cached = repo.findById(session.getSessionId()).orElseThrow();
+
+        assertFalse(repo.findAccount(cached, accounts).orElseThrow().isEnabled());
+        repo.findAccount(cached, accounts);
+
+        verify(accounts, times(2)).findById("u1");
+    }
+
+    @Test
+    void zero_capacity_should_bypass_cache() {
+        properties.setSessionCacheMaxEntries(0);
+        ManualSession session = session("u1", 3600);
+        repo.save(session);
+
+        repo.findById(session.getSessionId());
+        repo.findById(session.getSessionId());
+
+        verify(delegate, times(2)).findById(session.getSessionId());
+    }
+
+    private UserAccount account(String userId, UserRole role, boolean enabled) {
+        Instant now = clock.instant();
+        return UserAccount.restore(userId, "name-" + userId, "encoded", role, enabled, now, now);
+    }
+
+    private ManualSession session(String userId, long ttlSeconds) {
+        return ManualSession.create(userId, "name-" + userId, ttlSeconds, clock);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
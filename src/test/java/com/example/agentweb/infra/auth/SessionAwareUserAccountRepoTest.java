@@ -0,0 +1,36 @@
+package com.example.agentweb.infra.auth;
+
+import com.example.agentweb.domain.auth.ManualSessionRepository;
+import com.example.agentweb.domain.auth.UserAccount;
+import com.example.agentweb.domain.auth.UserRole;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Instant;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 账户仓储装饰器: 写库后失效随会话缓存的账户.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class SessionAwareUserAccountRepoTest {
+
+    @Test
+    void save_should_evict_cached_account_after_write() {
+        SqliteUserAccountRepository delegate = mock(SqliteUserAccountRepository.class);
+        ManualSessionRepository sessions = mock(ManualSessionRepository.class);
+        SessionAwareUserAccountRepo repo = new SessionAwareUserAccountRepo(delegate, sessions);
+        Instant now = Instant.parse("2026-10-17T00:00:00Z");
+        UserAccount disabled = UserAccount.restore("u1", "alice", "encoded", UserRole.USER, false, now, now);
+
+        repo.save(disabled);
+
+        InOrder order = inOrder(delegate, sessions);
+        order.verify(delegate).save(disabled);
+        order.verify(sessions).evictAccount("u1");
+    }
+}
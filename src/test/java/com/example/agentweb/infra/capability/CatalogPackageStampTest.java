@@ -0,0 +1,58 @@
+package com.example.agentweb.infra.capability;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 包戳: 建链与收紧权限等只改元数据的操作不改变戳, 内容或整文件替换会改变。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class CatalogPackageStampTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hardLinkAndPermissionChangeShouldKeepStamp() throws Exception {
+        Path store = Files.createDirectory(tempDir.resolve("store"));
+        Path file = Files.write(store.resolve("SKILL.md"), bytes("skill"));
+        CatalogPackageStamp before = CatalogPackageStamp.of(store);
+
+        Files.createLink(tempDir.resolve("linked.md"), file);
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("r--------"));
+
+        assertEquals(before, CatalogPackageStamp.of(store));
+    }
+
+    @Test
+    void replacedFileShouldChangeStampEvenWithSameSizeAndMtime() throws Exception {
+        Path store = Files.createDirectory(tempDir.resolve("store"));
+        Path file = Files.write(store.resolve("SKILL.md"), bytes("skill"));
+        FileTime modified = Files.getLastModifiedTime(file);
+        FileTime directoryModified = Files.getLastModifiedTime(store);
+        CatalogPackageStamp before = CatalogPackageStamp.of(store);
+
+        Path replacement = Files.write(tempDir.resolve("replacement.md"), bytes("SKILL"));
+        Files.setLastModifiedTime(replacement, modified);
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.setLastModifiedTime(store, directoryModified);
+
+        assertNotEquals(before, CatalogPackageStamp.of(store));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
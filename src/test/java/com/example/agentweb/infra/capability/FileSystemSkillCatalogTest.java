@@ -12,12 +12,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -64,6 +67,56 @@ class FileSystemSkillCatalogTest {
         assertEquals(2, catalog.discover().size());
     }
 
+    @Test
+    void should_ReuseParsedPackage_When_PackageFilesAreUnchanged() throws IOException {
+        // Given
+        Path changing = writeSkill(tempDir, "changing", "references/rules.md");
+        writeSkill(tempDir, "stable", "references/rules.md");
+        FileSystemSkillCatalog catalog = new FileSystemSkillCatalog(
+                tempDir, SkillTrustSource.PLATFORM, null, null);
+        List<SkillPackage> first = catalog.discover();
+
+        // When
+        Files.write(changing.resolve("references/rules.md"),
+                "changed rules".getBytes(StandardCharsets.UTF_8));
+        List<SkillPackage> second = catalog.discover();
+
+        // Then
+        assertSame(findSkill(first, "stable"), findSkill(second, "stable"));
+        assertNotSame(findSkill(first, "changing"), findSkill(second, "changing"));
+        assertNotEquals(findSkill(first, "changing").getPackageHash(),
+                findSkill(second, "changing").getPackageHash());
+    }
+
+    @Test
+    void should_ServeWatchedRootFromCache_Until_WatchServiceReportsChange()
+            throws Exception {
+        // Given
+        Path skillDir = writeSkill(tempDir, "watched", "references/rules.md");
+        CatalogRootWatcher watcher = new CatalogRootWatcher();
+        FileSystemSkillCatalog catalog = new FileSystemSkillCatalog(
+                tempDir, SkillTrustSource.PLATFORM, watcher, Duration.ofHours(1L));
+        try {
+            SkillPackage first = catalog.discover().get(0);
+            assertSame(first, catalog.discover().get(0));
+
+            // When
+            Files.write(skillDir.resolve("references/rules.md"),
+                    "changed rules".getBytes(StandardCharsets.UTF_8));
+
+            // Then
+            long deadline = System.nanoTime() + Duration.ofSeconds(10L).toNanos();
+            SkillPackage current = catalog.discover().get(0);
+            while (current == first && System.nanoTime() < deadline) {
+                Thread.sleep(20L);
+                current = catalog.discover().get(0);
+            }
+            assertNotEquals(first.getPackageHash(), current.getPackageHash());
+        } finally {
+            catalog.close();
+        }
+    }
+
     @Test
     void should_DiscoverAllCodexSkills_When_RootContainsNestedSkillDirectories()
             throws IOException {
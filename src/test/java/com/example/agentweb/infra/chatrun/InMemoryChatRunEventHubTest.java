@@ -5,12 +5,16 @@ import com.example.agentweb.app.chatrun.ChatRunEventConsumer;
 import com.example.agentweb.app.chatrun.ChatRunEventSubscription;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.config.ResumableChatStreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -19,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -120,6 +125,130 @@ class InMemoryChatRunEventHubTest {
         assertEquals(0, hub.totalSubscriberCount());
     }
 
+    @Test
+    void byte_budget_overflow_should_close_subscriber_like_event_budget() throws Exception {
+        InMemoryChatRunEventHub hub = hub(10, 8);
+        ChatRunId runId = ChatRunId.of("run-1");
+        CountDownLatch overflow = new CountDownLatch(1);
+        hub.open(runId, new ChatRunEventConsumer() {
+            @Override
+            public void accept(ChatRunEvent event) {
+            }
+
+            @Override
+            public void overflow() {
+                overflow.countDown();
+            }
+        });
+
+        hub.publish(Collections.singletonList(event(runId, 1L, "12345")));
+        hub.publish(Collections.singletonList(event(runId, 2L, "12345")));
+
+        assertTrue(overflow.await(2, TimeUnit.SECONDS));
+        assertEquals(0, hub.subscriberCount(runId));
+        assertEquals(1L, hub.slowConsumerClosedTotal());
+    }
+
+    @Test
+    void virtual_thread_drains_should_deliver_every_event_in_order_to_each_subscriber() throws Exception {
+        ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try {
+            ResumableChatStreamProperties properties = new ResumableChatStreamProperties();
+            properties.setSubscriberMaxEvents(4096);
+            properties.setSubscriberMaxBytes(1 << 20);
+            InMemoryChatRunEventHub hub = new InMemoryChatRunEventHub(properties, virtualThreads, registry);
+            ChatRunId runId = ChatRunId.of("run-1");
+            int subscriberCount = 8;
+            int eventCount = 2000;
+            List<List<Long>> delivered = new ArrayList<List<Long>>();
+            CountDownLatch done = new CountDownLatch(subscriberCount);
+            for (int i = 0; i < subscriberCount; i++) {
+                List<Long> seqs = new CopyOnWriteArrayList<Long>();
+                delivered.add(seqs);
+                CountDownLatch last = new CountDownLatch(eventCount);
+                hub.open(runId, new ChatRunEventConsumer() {
+                    @Override
+                    public void accept(ChatRunEvent event) {
+                        seqs.add(event.getSeq());
+                        last.countDown();
+                        if (last.getCount() == 0L) {
+                            done.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void overflow() {
+                    }
+                }).activateAfter(0L);
+            }
+            assertEquals(subscriberCount, ((Number) registry.get("chat.run.hub.subscribers")
+                    .gauge().value()).intValue());
+
+            for (long seq = 1; seq <= eventCount; seq++) {
+                hub.publish(Collections.singletonList(event(runId, seq, "e")));
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (List<Long> seqs : delivered) {
+                assertEquals(eventCount, seqs.size());
+                for (int i = 0; i < eventCount; i++) {
+                    assertEquals(i + 1L, seqs.get(i).longValue());
+                }
+            }
+            assertEquals(eventCount, registry.get("chat.run.hub.publish.latency").timer().count());
+            assertEquals((long) eventCount * subscriberCount,
+                    registry.get("chat.run.hub.drain.lag").timer().count());
+            assertEquals(0L, hub.slowConsumerClosedTotal());
+            assertEquals(0.0, registry.get("chat.run.hub.slow.consumer.closed").functionCounter().count());
+        } finally {
+            virtualThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void replay_tail_should_serve_recent_cursor_and_drop_after_terminal() {
+        InMemoryChatRunEventHub hub = hub(10, 1024);
+        ChatRunId runId = ChatRunId.of("run-1");
+        hub.publish(Arrays.asList(event(runId, 1L, "one"), event(runId, 2L, "two")));
+        hub.publish(Collections.singletonList(event(runId, 3L, "three")));
+
+        assertEquals(Arrays.asList(2L, 3L), seqs(hub.findRecentAfter(runId, 1L)));
+        assertEquals(Collections.<Long>emptyList(), seqs(hub.findRecentAfter(runId, 3L)));
+        assertFalse(hub.findRecentAfter(runId, 4L).isPresent());
+        assertFalse(hub.findRecentAfter(ChatRunId.of("other"), 0L).isPresent());
+
+        hub.publish(Collections.singletonList(
+                new ChatRunEvent(runId, 4L, "terminal", "{}", 2, Instant.now())));
+
+        assertFalse(hub.findRecentAfter(runId, 1L).isPresent());
+    }
+
+    @Test
+    void replay_tail_should_fall_back_once_cursor_leaves_the_window() {
+        ResumableChatStreamProperties properties = new ResumableChatStreamProperties();
+        properties.setReplayTailMaxEvents(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryChatRunEventHub hub = new InMemoryChatRunEventHub(properties, executor, registry);
+        ChatRunId runId = ChatRunId.of("run-1");
+        for (long seq = 1; seq <= 4; seq++) {
+            hub.publish(Collections.singletonList(event(runId, seq, "e")));
+        }
+
+        assertEquals(Collections.singletonList(4L), seqs(hub.findRecentAfter(runId, 3L)));
+        assertEquals(Arrays.asList(3L, 4L), seqs(hub.findRecentAfter(runId, 2L)));
+        assertFalse(hub.findRecentAfter(runId, 1L).isPresent());
+        assertEquals(2.0, registry.get("chat.run.hub.replay.tail.bytes").gauge().value());
+    }
+
+    private static List<Long> seqs(Optional<List<ChatRunEvent>> events) {
+        List<Long> seqs = new ArrayList<Long>();
+        for (ChatRunEvent event : events.orElseThrow()) {
+            seqs.add(event.getSeq());
+        }
+        return seqs;
+    }
+
     private InMemoryChatRunEventHub hub(int maxEvents, int maxBytes) {
         ResumableChatStreamProperties properties = new ResumableChatStreamProperties();
         properties.setSubscriberMaxEvents(maxEvents);
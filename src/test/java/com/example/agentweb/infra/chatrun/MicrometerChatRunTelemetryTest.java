@@ -0,0 +1,74 @@
+package com.example.agentweb.infra.chatrun;
+
+import com.example.agentweb.app.chatrun.ChatRunAdmissionScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ChatRun 流水线指标：计时器、批量分布与准入 Gauge 的名称和取值。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class MicrometerChatRunTelemetryTest {
+
+    private SimpleMeterRegistry registry;
+    private ChatRunAdmissionScheduler admissionScheduler;
+    private MicrometerChatRunTelemetry telemetry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        admissionScheduler = mock(ChatRunAdmissionScheduler.class);
+        telemetry = new MicrometerChatRunTelemetry(registry, admissionScheduler);
+    }
+
+    @Test
+    void stage_latencies_should_be_recorded_as_timers() {
+        telemetry.processSpawned(Duration.ofMillis(1500));
+        telemetry.firstProviderOutput(Duration.ofMillis(800));
+        telemetry.firstProviderOutput(Duration.ofSeconds(-1));
+
+        assertEquals(1500.0, registry.get("chat.run.spawn.latency").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2L, registry.get("chat.run.first.output.latency").timer().count());
+        assertEquals(800.0, registry.get("chat.run.first.output.latency").timer()
+                .totalTime(TimeUnit.MILLISECONDS), "negative durations clamp to zero");
+    }
+
+    @Test
+    void flush_and_replay_should_record_batch_distributions() {
+        telemetry.bufferFlushed(3, 120, Duration.ofMillis(4));
+        telemetry.bufferFlushed(1, 30, Duration.ofMillis(2));
+        telemetry.replayPage(500, Duration.ofMillis(12));
+        telemetry.replayServed(true);
+        telemetry.replayServed(true);
+        telemetry.replayServed(false);
+
+        assertEquals(2L, registry.get("chat.run.buffer.flush.latency").timer().count());
+        assertEquals(4.0, registry.get("chat.run.buffer.flush.events").summary().totalAmount());
+        assertEquals(150.0, registry.get("chat.run.buffer.flush.bytes").summary().totalAmount());
+        assertEquals(500.0, registry.get("chat.run.replay.page.events").summary().max());
+        assertEquals(12.0, registry.get("chat.run.replay.page.latency").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2.0, registry.get("chat.run.replay").tag("source", "memory").counter().count());
+        assertEquals(1.0, registry.get("chat.run.replay").tag("source", "store").counter().count());
+    }
+
+    @Test
+    void admission_gauges_should_follow_scheduler_counts() {
+        when(admissionScheduler.activeCount()).thenReturn(4);
+        when(admissionScheduler.queuedCount()).thenReturn(2);
+
+        assertEquals(4.0, registry.get("chat.run.admission.active").gauge().value());
+        assertEquals(2.0, registry.get("chat.run.admission.queued").gauge().value());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.agentweb.infra.chatrun;
+
+import com.example.agentweb.app.chatrun.ChatRunEvent;
+import com.example.agentweb.domain.chatrun.ChatRunId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class ReplayTailTest {
+
+    private final ChatRunId runId = ChatRunId.of("run-1");
+
+    @Test
+    void byte_limit_should_evict_oldest_events() {
+        ReplayTail tail = new ReplayTail(100, 10L);
+        tail.append(event(1L, "aaaa"));
+        tail.append(event(2L, "bbbb"));
+        tail.append(event(3L, "cccc"));
+
+        assertEquals(8L, tail.bytes());
+        assertEquals(Arrays.asList(2L, 3L), seqs(tail, 1L));
+        assertFalse(tail.after(0L).isPresent());
+    }
+
+    @Test
+    void gap_should_restart_window_and_duplicates_should_be_ignored() {
+        ReplayTail tail = new ReplayTail(100, 1024L);
+        tail.append(event(1L, "a"));
+        tail.append(event(2L, "b"));
+        tail.append(event(2L, "b"));
+        assertEquals(Arrays.asList(1L, 2L), seqs(tail, 0L));
+
+        tail.append(event(5L, "e"));
+        tail.append(event(4L, "d"));
+
+        assertFalse(tail.after(2L).isPresent(), "events 3 and 4 are not in the window");
+        assertEquals(Collections.singletonList(5L), seqs(tail, 4L));
+        assertEquals(1L, tail.bytes());
+    }
+
+    @Test
+    void oversized_event_should_leave_tail_empty() {
+        ReplayTail tail = new ReplayTail(100, 4L);
+        tail.append(event(1L, "too large"));
+
+        assertEquals(0L, tail.bytes());
+        assertFalse(tail.after(0L).isPresent());
+    }
+
+    private List<Long> seqs(ReplayTail tail, long afterExclusive) {
+        List<Long> seqs = new ArrayList<Long>();
+        for (ChatRunEvent event : tail.after(afterExclusive).orElseThrow()) {
+            seqs.add(event.getSeq());
+        }
+        return seqs;
+    }
+
+    private ChatRunEvent event(long seq, String payload) {
+        return new ChatRunEvent(runId, seq, "chunk", payload, payload.length(), Instant.now());
+    }
+}
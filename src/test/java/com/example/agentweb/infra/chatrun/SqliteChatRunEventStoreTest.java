@@ -4,6 +4,9 @@ import com.example.agentweb.app.chatrun.ChatRunEvent;
 import com.example.agentweb.app.chatrun.ChatRunEventDraft;
 import com.example.agentweb.domain.chatrun.ChatRunId;
 import com.example.agentweb.domain.chatrun.EventSequenceRange;
+import com.example.agentweb.infra.storage.ContentBlobStore;
+import com.example.agentweb.infra.storage.DeflateStoredContentCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -12,6 +15,7 @@ import org.sqlite.SQLiteDataSource;
 
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -62,6 +66,26 @@ class SqliteChatRunEventStoreTest {
         assertEquals("中文", replay.get(0).getPayload());
     }
 
+    @Test
+    void large_payload_should_be_stored_compressed_and_replayed_verbatim() {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            payload.append("{\"runtimeSequence\":").append(i).append(",\"content\":\"chunk\"}");
+        }
+        SqliteChatRunEventStore compressing = new SqliteChatRunEventStore(jdbc, new SimpleMeterRegistry(),
+                new DeflateStoredContentCodec(true, 512, 1 << 20,
+                        new ContentBlobStore(tempDir.resolve("blobs").toString())));
+
+        compressing.appendAssigned(runId, new EventSequenceRange(1L, 1L),
+                Arrays.asList(new ChatRunEventDraft("agent_chunk", payload.toString())), now);
+
+        assertEquals("blob", jdbc.queryForObject(
+                "SELECT typeof(payload) FROM chat_run_event WHERE run_id='run-1'", String.class));
+        ChatRunEvent replayed = compressing.findAfterThrough(runId, 0L, 1L, 10).get(0);
+        assertEquals(payload.toString(), replayed.getPayload());
+        assertEquals(payload.length(), replayed.getPayloadSize());
+    }
+
     @Test
     void append_should_reject_range_size_mismatch_and_duplicate_sequence() {
         List<ChatRunEventDraft> one = Arrays.asList(new ChatRunEventDraft("chunk", "a"));
@@ -74,6 +98,28 @@ class SqliteChatRunEventStoreTest {
                 () -> store.appendAssigned(runId, new EventSequenceRange(1L, 1L), one, now));
     }
 
+    @Test
+    void append_should_split_large_batch_across_multi_row_statements() {
+        int count = SqliteChatRunEventStore.ROWS_PER_STATEMENT * 2 + 7;
+        List<ChatRunEventDraft> drafts = new ArrayList<ChatRunEventDraft>(count);
+        for (int i = 0; i < count; i++) {
+            drafts.add(new ChatRunEventDraft("chunk", "第" + i + "段"));
+        }
+
+        List<ChatRunEvent> appended = store.appendAssigned(runId,
+                new EventSequenceRange(11L, 10L + count), drafts, now);
+
+        assertEquals(count, appended.size());
+        assertEquals(10L + count, appended.get(count - 1).getSeq());
+        List<ChatRunEvent> replay = store.findAfterThrough(runId, 10L, 10L + count, count + 1);
+        assertEquals(count, replay.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(11L + i, replay.get(i).getSeq());
+            assertEquals("第" + i + "段", replay.get(i).getPayload());
+            assertEquals(drafts.get(i).getPayloadSize(), replay.get(i).getPayloadSize());
+        }
+    }
+
     @Test
     void empty_store_should_report_zero_earliest_sequence() {
         assertEquals(0L, store.findEarliestSequence(runId));
@@ -89,12 +135,24 @@ class SqliteChatRunEventStoreTest {
                 Arrays.asList(new ChatRunEventDraft("terminal", "{}")), old);
         store.appendAssigned(ChatRunId.of("active"), new EventSequenceRange(1L, 1L),
                 Arrays.asList(new ChatRunEventDraft("chunk", "a")), old);
+        insertCheckpoint("terminal", old);
+        insertCheckpoint("active", old);
 
         int deleted = store.deleteBefore(now.minusSeconds(24L * 60L * 60L), 5_000);
 
-        assertEquals(1, deleted);
+        assertEquals(2, deleted);
         assertEquals(0, store.findAfterThrough(ChatRunId.of("terminal"), 0L, 1L, 10).size());
         assertEquals(1, store.findAfterThrough(ChatRunId.of("active"), 0L, 1L, 10).size());
+        assertEquals(Integer.valueOf(1), jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_run_output_checkpoint WHERE run_id='active'", Integer.class));
+        assertEquals(Integer.valueOf(0), jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_run_output_checkpoint WHERE run_id='terminal'", Integer.class));
+    }
+
+    private void insertCheckpoint(String runId, Instant createdAt) {
+        jdbc.update("INSERT INTO chat_run_output_checkpoint (run_id, segment_no, last_seq, "
+                        + "last_runtime_sequence, output_bytes, content, created_at) VALUES (?,?,?,?,?,?,?)",
+                runId, 1, 1L, 1L, 1L, "a", createdAt.toEpochMilli());
     }
 
     private void insertRun(String id, String status, Instant createdAt) {
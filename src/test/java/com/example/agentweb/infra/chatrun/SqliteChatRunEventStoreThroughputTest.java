@@ -0,0 +1,115 @@
+package com.example.agentweb.infra.chatrun;
+
+import com.example.agentweb.app.chatrun.ChatRunEventDraft;
+import com.example.agentweb.domain.chatrun.ChatRunId;
+import com.example.agentweb.domain.chatrun.EventSequenceRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Events/sec of the multi-row append path against the former one-statement-per-event loop,
+ * both inside one transaction on a WAL database. Excluded from the default run via the
+ * {@code perf} tag; numbers are published through {@link TestReporter}.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Tag("perf")
+class SqliteChatRunEventStoreThroughputTest {
+
+    private static final int BATCH_SIZE = 512;
+    private static final int BATCHES = 40;
+    private static final String SINGLE_ROW_SQL = "INSERT INTO chat_run_event "
+            + "(run_id, seq, event_type, payload, payload_size, created_at) VALUES (?,?,?,?,?,?)";
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transactions;
+    private SqliteChatRunEventStore store;
+    private final Instant now = Instant.parse("2026-10-17T10:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("chat-run-event-perf.db").toAbsolutePath());
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("PRAGMA journal_mode=WAL");
+        SqliteChatRunRepositoryTest.createSchema(jdbc);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        store = new SqliteChatRunEventStore(jdbc);
+    }
+
+    @Test
+    void batched_append_should_outpace_single_row_inserts(TestReporter reporter) {
+        List<ChatRunEventDraft> drafts = drafts();
+        // 预热: 两条路径各跑一次, 让 JIT 与 SQLite 页缓存就位
+        appendSingleRow(ChatRunId.of("warm-single"), drafts, 1L);
+        appendBatched(ChatRunId.of("warm-batched"), drafts, 1L);
+
+        double singleRate = measure("single", drafts, false);
+        double batchedRate = measure("batched", drafts, true);
+
+        reporter.publishEntry("single-row-events-per-sec", String.format("%.0f", singleRate));
+        reporter.publishEntry("batched-events-per-sec", String.format("%.0f", batchedRate));
+        assertEquals(Long.valueOf((long) BATCH_SIZE * BATCHES), jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_run_event WHERE run_id='batched'", Long.class));
+        assertTrue(batchedRate > singleRate,
+                "batched=" + batchedRate + " single=" + singleRate);
+    }
+
+    private double measure(String run, List<ChatRunEventDraft> drafts, boolean batched) {
+        ChatRunId runId = ChatRunId.of(run);
+        long start = System.nanoTime();
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long first = 1L + (long) batch * BATCH_SIZE;
+            if (batched) {
+                appendBatched(runId, drafts, first);
+            } else {
+                appendSingleRow(runId, drafts, first);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000D;
+        return BATCH_SIZE * BATCHES / seconds;
+    }
+
+    private void appendBatched(ChatRunId runId, List<ChatRunEventDraft> drafts, long first) {
+        transactions.executeWithoutResult(status -> store.appendAssigned(runId,
+                new EventSequenceRange(first, first + drafts.size() - 1L), drafts, now));
+    }
+
+    private void appendSingleRow(ChatRunId runId, List<ChatRunEventDraft> drafts, long first) {
+        transactions.executeWithoutResult(status -> {
+            long sequence = first;
+            for (ChatRunEventDraft draft : drafts) {
+                jdbc.update(SINGLE_ROW_SQL, runId.getValue(), sequence++, draft.getEventType(),
+                        draft.getPayload(), draft.getPayloadSize(), now.toEpochMilli());
+            }
+        });
+    }
+
+    private static List<ChatRunEventDraft> drafts() {
+        List<ChatRunEventDraft> drafts = new ArrayList<ChatRunEventDraft>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            drafts.add(new ChatRunEventDraft("chunk",
+                    "{\"type\":\"agent_message_delta\",\"delta\":\"token-" + i + " 输出片段\"}"));
+        }
+        return drafts;
+    }
+}
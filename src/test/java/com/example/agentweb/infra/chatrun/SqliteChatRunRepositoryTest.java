@@ -223,5 +223,10 @@ class SqliteChatRunRepositoryTest {
                 + "event_type TEXT NOT NULL, payload TEXT NOT NULL, payload_size INTEGER NOT NULL, "
                 + "created_at INTEGER NOT NULL, PRIMARY KEY(run_id, seq), CHECK(seq > 0), "
                 + "CHECK(payload_size >= 0))");
+        jdbc.execute("CREATE TABLE chat_run_output_checkpoint (run_id TEXT NOT NULL, "
+                + "segment_no INTEGER NOT NULL, last_seq INTEGER NOT NULL, "
+                + "last_runtime_sequence INTEGER NOT NULL, output_bytes INTEGER NOT NULL, "
+                + "content TEXT NOT NULL, created_at INTEGER NOT NULL, "
+                + "PRIMARY KEY(run_id, segment_no), CHECK(segment_no > 0), CHECK(output_bytes >= 0))");
     }
 }
@@ -156,6 +156,76 @@ class SqliteChatRunRuntimeOutputQueryTest {
                 () -> new SqliteChatRunRuntimeOutputQuery(jdbc, 0L));
     }
 
+    @Test
+    void loadAfterCheckpointsShouldEqualFullReplayAndReadOnlyTheTail() {
+        SqliteChatRunRuntimeOutputQuery query =
+                new SqliteChatRunRuntimeOutputQuery(jdbc, 4096L, 2);
+        for (String runId : new String[] {"run-full", "run-checkpointed"}) {
+            insert(runId, 1L, "agent_chunk", chunkPayload(1L, "一"));
+            insert(runId, 2L, "runtime_diagnostic",
+                    payload(2L, "DIAGNOSTIC", "ignored"));
+            insert(runId, 3L, "agent_chunk", chunkPayload(3L, "two"));
+        }
+        query.checkpoint(ChatRunId.of("run-checkpointed"));
+        query.checkpoint(ChatRunId.of("run-checkpointed"));
+        for (String runId : new String[] {"run-full", "run-checkpointed"}) {
+            insert(runId, 4L, "agent_chunk", chunkPayload(4L, "三"));
+        }
+        query.checkpoint(ChatRunId.of("run-checkpointed"));
+        for (String runId : new String[] {"run-full", "run-checkpointed"}) {
+            insert(runId, 5L, "agent_chunk", chunkPayload(5L, "tail"));
+        }
+
+        RecoveredRuntimeOutput full = query.load(ChatRunId.of("run-full"),
+                new RuntimeHandle("run-full", "handle-full"));
+        RecoveredRuntimeOutput checkpointed = query.load(
+                ChatRunId.of("run-checkpointed"),
+                new RuntimeHandle("run-checkpointed", "handle-checkpointed"));
+
+        assertEquals(2, query.checkpointIntervalEvents());
+        assertEquals(Integer.valueOf(2), jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_run_output_checkpoint WHERE run_id=?",
+                Integer.class, "run-checkpointed"), "empty tail must not add a segment");
+        assertTrue(checkpointed.isComplete());
+        assertEquals(full.getContent(), checkpointed.getContent());
+        assertEquals(4, checkpointed.getContent().split("\\n").length);
+
+        // 已压缩的事件不再解析：损坏检查点之前的行不影响恢复，之后的行仍按原规则校验
+        jdbc.update("UPDATE chat_run_event SET payload='not-json' "
+                + "WHERE run_id='run-checkpointed' AND seq=1");
+        assertEquals(full.getContent(), query.load(
+                ChatRunId.of("run-checkpointed"),
+                new RuntimeHandle("run-checkpointed", "handle-checkpointed")).getContent());
+        insert("run-checkpointed", 6L, "agent_chunk", chunkPayload(5L, "duplicate"));
+        assertFalse(query.load(ChatRunId.of("run-checkpointed"),
+                new RuntimeHandle("run-checkpointed", "handle-checkpointed")).isComplete());
+    }
+
+    @Test
+    void checkpointShouldNotPersistMalformedOrOversizedSegments() {
+        insert("run-malformed", 1L, "agent_chunk", chunkPayload(1L, "ok"));
+        insert("run-malformed", 2L, "agent_chunk", "not-json");
+        insert("run-limit", 1L, "agent_chunk", chunkPayload(1L, "中文"));
+        SqliteChatRunRuntimeOutputQuery query =
+                new SqliteChatRunRuntimeOutputQuery(jdbc, 5L);
+
+        query.checkpoint(ChatRunId.of("run-malformed"));
+        query.checkpoint(ChatRunId.of("run-limit"));
+
+        assertEquals(Integer.valueOf(0), jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_run_output_checkpoint", Integer.class));
+        assertFalse(query.load(ChatRunId.of("run-limit"),
+                new RuntimeHandle("run-limit", "handle-limit")).isComplete());
+    }
+
+    @Test
+    void utf8LengthShouldMatchEncoderIncludingUnpairedSurrogates() {
+        for (String text : new String[] {"", "ascii", "é中文", "\uD83D\uDE00", "x\uD83Dy", "\uDE00"}) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length,
+                    SqliteChatRunRuntimeOutputQuery.utf8Length(text), text);
+        }
+    }
+
     private void insert(
             String runId, long sequence, String eventType,
             String payload) {
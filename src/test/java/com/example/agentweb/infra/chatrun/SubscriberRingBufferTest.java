@@ -0,0 +1,122 @@
+package com.example.agentweb.infra.chatrun;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class SubscriberRingBufferTest {
+
+    @Test
+    void offer_should_reject_at_limit_even_when_capacity_is_larger() {
+        SubscriberRingBuffer<String> ring = new SubscriberRingBuffer<String>(3);
+
+        assertTrue(ring.offer("a", 1L));
+        assertTrue(ring.offer("b", 2L));
+        assertTrue(ring.offer("c", 3L));
+        assertFalse(ring.offer("d", 4L));
+        assertEquals(3, ring.size());
+
+        assertEquals("a", ring.poll());
+        assertEquals(1L, ring.lastPolledEnqueuedAt());
+        assertTrue(ring.offer("d", 4L));
+    }
+
+    @Test
+    void poll_should_preserve_fifo_across_wrap_around() {
+        SubscriberRingBuffer<Integer> ring = new SubscriberRingBuffer<Integer>(4);
+        List<Integer> polled = new ArrayList<Integer>();
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(ring.offer(i, i));
+            if (i % 3 == 2) {
+                Integer next;
+                while ((next = ring.poll()) != null) {
+                    polled.add(next);
+                }
+            }
+        }
+        Integer next;
+        while ((next = ring.poll()) != null) {
+            polled.add(next);
+        }
+
+        assertEquals(50, polled.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, polled.get(i).intValue());
+        }
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrent_producers_should_never_lose_or_duplicate_elements() throws Exception {
+        final SubscriberRingBuffer<Integer> ring = new SubscriberRingBuffer<Integer>(64);
+        final int producers = 4;
+        final int perProducer = 5_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i, 0L)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        int received = 0;
+        while (received < seen.length && System.nanoTime() < deadline) {
+            Integer next = ring.poll();
+            if (next == null) {
+                Thread.yield();
+                continue;
+            }
+            assertFalse(seen[next], "duplicate " + next);
+            seen[next] = true;
+            int producer = next / perProducer;
+            assertTrue(next % perProducer > lastPerProducer[producer], "per-producer order");
+            lastPerProducer[producer] = next % perProducer;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertEquals(seen.length, received);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void constructor_should_reject_non_positive_limit() {
+        assertThrows(IllegalArgumentException.class, () -> new SubscriberRingBuffer<String>(0));
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -268,4 +269,33 @@ class CodexEventNormalizerTest {
         assertEquals("result", json.get("type").asText());
         assertEquals("success", json.get("subtype").asText());
     }
+
+    // ── recognizes: 与 normalize 非空判定一致, 不构造输出 ──
+
+    @Test
+    void recognizes_shouldAgreeWithNormalizeNonEmpty() throws Exception {
+        String[] lines = {
+                "{\"type\":\"thread.started\",\"thread_id\":\"t-1\"}",
+                "{\"type\":\"thread.started\",\"thread_id\":\"\"}",
+                "{\"type\":\"turn.started\"}",
+                "{\"type\":\"turn.completed\"}",
+                "{\"type\":\"turn.failed\",\"error\":{\"message\":\"boom\"}}",
+                "{\"type\":\"error\",\"message\":\"reconnecting\"}",
+                "{\"type\":\"item.started\",\"item\":{\"id\":\"c\",\"type\":\"command_execution\"}}",
+                "{\"type\":\"item.started\",\"item\":{\"type\":\"mcp_tool_call\"}}",
+                "{\"type\":\"item.completed\",\"item\":{\"type\":\"agent_message\",\"text\":null}}",
+                "{\"type\":\"item.completed\",\"item\":{\"type\":\"agent_message\",\"text\":\"hi\"}}",
+                "{\"type\":\"item.completed\",\"item\":{\"type\":\"file_change\",\"changes\":[{\"kind\":\"add\"}]}}",
+                "{\"type\":\"item.completed\",\"item\":{\"type\":\"file_change\",\"changes\":[{\"path\":\"a\"}]}}",
+                "{\"type\":\"item.completed\",\"item\":{\"id\":\"m\",\"type\":\"mcp_tool_call\"}}",
+                "{\"type\":\"item.completed\",\"item\":\"not an object\"}",
+                "{\"type\":7}"
+        };
+
+        for (String line : lines) {
+            assertEquals(!normalizer.normalize(line).isEmpty(),
+                    normalizer.recognizes(MAPPER.readTree(line)), line);
+        }
+        assertFalse(normalizer.recognizes(null));
+    }
 }
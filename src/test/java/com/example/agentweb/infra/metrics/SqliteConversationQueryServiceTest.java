@@ -3,6 +3,7 @@ package com.example.agentweb.infra.metrics;
 import com.example.agentweb.app.metrics.ConversationDetail;
 import com.example.agentweb.app.metrics.ConversationPage;
 import com.example.agentweb.app.metrics.ConversationRecord;
+import com.example.agentweb.infra.SqliteConversationSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -10,6 +11,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.sqlite.SQLiteDataSource;
 
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -39,6 +42,8 @@ public class SqliteConversationQueryServiceTest {
         service = new SqliteConversationQueryService(jdbc);
         createTables();
         seedData();
+        // 种子数据直插表,由补列/建索引的一次性回填生成维护列与全文索引
+        new SqliteConversationSearchIndex(jdbc).ensureSchema();
     }
 
     @Test
@@ -102,6 +107,38 @@ public class SqliteConversationQueryServiceTest {
         assertEquals("s1", page.getRows().get(0).getSessionId());
     }
 
+    @Test
+    void list_fullTextMatchesMessageBodyWithHighlightedSnippet() {
+        ConversationPage page = service.list(1, 10, "助手回答");
+
+        assertEquals(1L, page.getTotal());
+        ConversationRecord s1 = page.getRows().get(0);
+        assertEquals("s1", s1.getSessionId());
+        assertEquals("\u0002助手回答\u0003", s1.getSnippet());
+    }
+
+    @Test
+    void list_fullTextRanksTitleAndBodyHitsBeforeUserNameOnlyMatches() {
+        insertSession("s4", "CLAUDE", "2026-04-04T00:00:00Z", "配置部署脚本", null, "E10004", "赵六", null);
+        insertSession("s5", "CLAUDE", "2026-05-05T00:00:00Z", null, null, "E10005", "配置部署组", null);
+        jdbc.update("INSERT INTO chat_session_fts(title, session_id) VALUES ('配置部署脚本', 's4')");
+
+        List<ConversationRecord> rows = service.list(1, 10, "配置部署").getRows();
+
+        assertEquals(3, rows.size());
+        assertEquals(new HashSet<String>(Arrays.asList("s2", "s4")),
+                new HashSet<String>(Arrays.asList(rows.get(0).getSessionId(), rows.get(1).getSessionId())));
+        assertTrue(rows.get(0).getSnippet().contains("\u0002配置部署\u0003"));
+        // 仅用户名命中的会话排在全文命中之后,且没有片段
+        assertEquals("s5", rows.get(2).getSessionId());
+        assertNull(rows.get(2).getSnippet());
+    }
+
+    @Test
+    void list_keywordWithFtsOperatorsIsTreatedAsPhrase() {
+        assertEquals(0L, service.list(1, 10, "\"OR* NEAR(").getTotal());
+    }
+
     @Test
     void detail_returnsRecordWithMessagesInOrder() {
         ConversationDetail detail = service.detail("s1");
@@ -0,0 +1,176 @@
+package com.example.agentweb.infra.metrics;
+
+import com.example.agentweb.app.chatrun.ShellCommandToolNameResolver;
+import com.example.agentweb.app.chatrun.ToolInvocationStatisticsQueryService;
+import com.example.agentweb.app.metrics.RecallMetricsFilter;
+import com.example.agentweb.infra.SqliteInitializer;
+import com.example.agentweb.infra.chatrun.SqliteToolInvocationStatisticsQueryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 预聚合读路径与明细读路径逐字段一致：真实 schema + 触发器，覆盖整点/非整点区间、未封存的当前小时、
+ * 迟到回写、删除与无时间的工具调用。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class SqliteMetricRollupsTest {
+
+    private static final long HOUR = SqliteMetricRollups.HOUR_MILLIS;
+    /** 2026-10-17T10:30Z，当前小时从 10:00 开始，水位追平到这里。 */
+    private static final long NOW = Instant.parse("2026-10-17T10:30:00Z").toEpochMilli();
+    private static final long TEN = SqliteMetricRollups.floorHour(NOW);
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private JdbcTemplate jdbc;
+    private SqliteMetricRollups rollups;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SQLiteDataSource ds = new SQLiteDataSource();
+        ds.setUrl("jdbc:sqlite:" + tempDir.resolve("rollups.db"));
+        jdbc = new JdbcTemplate(ds);
+        new SqliteInitializer(jdbc).init();
+        rollups = new SqliteMetricRollups(jdbc, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+    }
+
+    @Test
+    void sessionRollup_shouldFollowInsertsFeedbackAndDeletes() throws Exception {
+        session("s1", "CLAUDE", "2026-10-15T08:00:00Z", null);
+        session("s2", "CODEX", "2026-10-16T23:59:59.500Z", "CORRECT");
+        session("s3", "CLAUDE", "2026-10-17T09:00:00Z", "INCORRECT");
+        jdbc.update("UPDATE chat_session SET feedback_rating = 'CORRECT' WHERE id = 's1'");
+        jdbc.update("DELETE FROM chat_session WHERE id = 's3'");
+
+        SqliteMetricsQueryService fromRollup = new SqliteMetricsQueryService(jdbc, rollups);
+        SqliteMetricsQueryService fromDetail = new SqliteMetricsQueryService(jdbc);
+
+        assertSame(fromDetail.overview(), fromRollup.overview());
+        assertEquals(2L, fromRollup.overview().getChat().getFeedback().get("CORRECT"));
+        assertSame(fromDetail.trend(30), fromRollup.trend(30));
+    }
+
+    @Test
+    void recallSummary_shouldMatchDetailForWholeAndPartialHoursAndLateWrites() throws Exception {
+        attempt("a1", "s1", TEN - 5 * HOUR + 10, "HIT", "test", "qwen", 3, 100L);
+        attempt("a2", "s1", TEN - 5 * HOUR + 20, "NO_HIT", "test", "qwen", 0, 200L);
+        attempt("a3", "s2", TEN - 3 * HOUR, "ERROR", "prod", null, 0, null);
+        attempt("a4", "s2", TEN - 2 * HOUR + 5, "HIT", null, "bge", 1, 50L);
+        attempt("a5", "s3", TEN - HOUR + 1, "SKIPPED", "test", "qwen", 0, null);
+        attempt("a6", "s3", TEN + 60_000, "HIT", "test", "qwen", 2, 70L);
+        hit("a1", 1, "CHAT", "EXPLORATORY");
+        hit("a1", 2, "CHAT", "VERIFIED");
+        hit("a4", 1, "ISSUE_LOG", "VERIFIED");
+        hit("a6", 1, "CHAT", "VERIFIED");
+
+        SqliteRecallMetricsQueryService fromRollup = new SqliteRecallMetricsQueryService(jdbc, rollups);
+        SqliteRecallMetricsQueryService fromDetail = new SqliteRecallMetricsQueryService(jdbc);
+        RecallMetricsFilter[] filters = {
+                null,
+                RecallMetricsFilter.timeRange(TEN - 5 * HOUR + 15, TEN - HOUR + 1),
+                RecallMetricsFilter.timeRange(TEN - 4 * HOUR, TEN + HOUR),
+                new RecallMetricsFilter("HIT", null, null, null, null, null, null, null),
+                new RecallMetricsFilter(null, null, 0L, NOW, "qwen", "test", null, null),
+                new RecallMetricsFilter(null, "s1", null, null, null, null, null, null),
+                new RecallMetricsFilter(null, null, null, null, null, null, "CHAT", null)
+        };
+        for (RecallMetricsFilter filter : filters) {
+            assertSame(fromDetail.summary(filter), fromRollup.summary(filter));
+        }
+
+        // 已封存桶上的迟到回写、删除与补写命中，都要在下次读取时反映出来
+        jdbc.update("UPDATE chat_recall_attempt SET status = 'HIT', hit_count = 4 WHERE id = 'a2'");
+        hit("a2", 1, "ISSUE_LOG", "EXPLORATORY");
+        jdbc.update("DELETE FROM chat_recall_hit WHERE attempt_id = 'a4'");
+        jdbc.update("DELETE FROM chat_recall_attempt WHERE session_id = 's2'");
+        attempt("a7", "s4", TEN - 4 * HOUR, "NO_HIT", "prod", "bge", 0, 300L);
+        for (RecallMetricsFilter filter : filters) {
+            assertSame(fromDetail.summary(filter), fromRollup.summary(filter));
+        }
+    }
+
+    @Test
+    void toolStatistics_shouldMatchDetailIncludingUntimedRowsAndLateWrites() throws Exception {
+        invocation("s1", "CLAUDE", "TOOL_USE", "SUCCEEDED", "LIVE", TEN - 30 * HOUR, TEN - 30 * HOUR + 10, 1);
+        invocation("s1", "CLAUDE", "TOOL_USE", "FAILED", "LIVE", TEN - 30 * HOUR + 100, null, 0);
+        invocation("s2", "CODEX", "COMMAND_EXECUTION", "STARTED", "LIVE", TEN - 2 * HOUR + 7, null, 0);
+        invocation("s2", "CODEX", "COMMAND_EXECUTION", "SUCCEEDED", "HISTORY_MIGRATION", null, null, 1);
+        invocation("s3", "CLAUDE", "SKILL", "INCOMPLETE", "LIVE", TEN - HOUR, TEN - HOUR + 5, 0);
+        invocation("s3", "CLAUDE", "TOOL_USE", "SUCCEEDED", "LIVE", TEN + 1000, TEN + 2000, 0);
+
+        SqliteToolInvocationStatisticsQueryService fromRollup = new SqliteToolInvocationStatisticsQueryService(
+                jdbc, new ShellCommandToolNameResolver(json), rollups);
+        SqliteToolInvocationStatisticsQueryService fromDetail = new SqliteToolInvocationStatisticsQueryService(
+                jdbc, new ShellCommandToolNameResolver(json));
+        ToolInvocationStatisticsQueryService.Filter[] filters = {
+                ToolInvocationStatisticsQueryService.Filter.builder().build(),
+                ToolInvocationStatisticsQueryService.Filter.builder()
+                        .startedAfter(TEN - 30 * HOUR + 50).startedBefore(TEN + HOUR).build(),
+                ToolInvocationStatisticsQueryService.Filter.builder().startedBefore(TEN).build(),
+                ToolInvocationStatisticsQueryService.Filter.builder().provider("CODEX").build(),
+                ToolInvocationStatisticsQueryService.Filter.builder().sessionId("s1").status("FAILED").build()
+        };
+        for (ToolInvocationStatisticsQueryService.Filter filter : filters) {
+            assertSame(fromDetail.overview(filter), fromRollup.overview(filter));
+            assertSame(fromDetail.dailyTrend(filter), fromRollup.dailyTrend(filter));
+        }
+
+        jdbc.update("UPDATE chat_tool_invocation SET status = 'SUCCEEDED', completed_at = ? "
+                + "WHERE session_id = 's2' AND started_at IS NOT NULL", TEN - HOUR);
+        jdbc.update("UPDATE chat_tool_invocation SET output_truncated = 0 WHERE started_at IS NULL");
+        jdbc.update("DELETE FROM chat_tool_invocation WHERE status = 'FAILED'");
+        invocation("s4", "NATIVE", "TOOL_USE", "UNKNOWN", "HISTORY_MIGRATION", TEN - 40 * HOUR, null, 0);
+        for (ToolInvocationStatisticsQueryService.Filter filter : filters) {
+            assertSame(fromDetail.overview(filter), fromRollup.overview(filter));
+            assertSame(fromDetail.dailyTrend(filter), fromRollup.dailyTrend(filter));
+        }
+    }
+
+    private void assertSame(Object expected, Object actual) throws Exception {
+        assertEquals(json.writeValueAsString(expected), json.writeValueAsString(actual));
+    }
+
+    private void session(String id, String agentType, String createdAt, String rating) {
+        jdbc.update("INSERT INTO chat_session (id, agent_type, working_dir, created_at, feedback_rating) "
+                + "VALUES (?, ?, '/tmp', ?, ?)", id, agentType, createdAt, rating);
+    }
+
+    private void attempt(String id, String sessionId, long createdAt, String status, String env,
+                         String model, int hitCount, Long latency) {
+        jdbc.update("INSERT INTO chat_recall_attempt (id, session_id, user_message_id, query, recall_enabled, env, "
+                        + "status, hit_count, embedding_model, latency_ms, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, 'q', ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, sessionId, createdAt, "SKIPPED".equals(status) ? 0 : 1, env, status, hitCount, model, latency,
+                createdAt, createdAt);
+    }
+
+    private void hit(String attemptId, int rank, String sourceType, String tier) {
+        jdbc.update("INSERT INTO chat_recall_hit (attempt_id, rank_no, chunk_id, source_type, tier, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, 0)", attemptId, rank, attemptId + "-" + rank, sourceType, tier);
+    }
+
+    private void invocation(String sessionId, String provider, String kind, String status, String source,
+                            Long startedAt, Long completedAt, int outputTruncated) {
+        jdbc.update("INSERT INTO chat_tool_invocation (session_id, provider, invocation_index, invocation_kind, "
+                        + "tool_name, trigger_source, status, input_truncated, output_truncated, started_at, "
+                        + "completed_at, created_at, updated_at, source) "
+                        + "VALUES (?, ?, 0, ?, ?, 'AGENT', ?, 0, ?, ?, ?, 0, 0, ?)",
+                sessionId, provider, kind, "COMMAND_EXECUTION".equals(kind) ? null : "SKILL".equals(kind)
+                        ? "Skill" : "Bash", status, outputTruncated, startedAt, completedAt, source);
+    }
+}
@@ -209,7 +209,7 @@ class SqliteRecallObservationRecorderTest {
     }
 
     private RecallStats stats() {
-        return new RecallStats(5, 4, 2, 2, 1,
+        return new RecallStats(5, 4, 2, 2, 1, 0,
                 0.91d, 0.88d, 3, false, true, 30d,
                 0.6d, 0.1d, 0.5d, 0.7d, 0.2d, 0.1d,
                 "qwen", 1024);
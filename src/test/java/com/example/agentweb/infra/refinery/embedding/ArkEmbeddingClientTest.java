@@ -127,6 +127,34 @@ public class ArkEmbeddingClientTest {
         server.verify();
     }
 
+    @Test
+    public void embed_batch_should_send_input_array_and_order_by_index() {
+        server.expect(requestTo(ENDPOINT + "/embeddings"))
+                .andExpect(jsonPath("$.input[0]").value("a"))
+                .andExpect(jsonPath("$.input[1]").value("abcdefghij"))
+                .andRespond(withSuccess(
+                        "{\"data\":[{\"index\":1,\"embedding\":[0.4, 0.5, 0.6]},"
+                                + "{\"index\":0,\"embedding\":[0.1, 0.2, 0.3]}]}",
+                        MediaType.APPLICATION_JSON));
+
+        java.util.List<float[]> vectors = client.embedBatch(java.util.Arrays.asList("a", "abcdefghijklmn"));
+
+        assertArrayEquals(new float[]{0.1f, 0.2f, 0.3f}, vectors.get(0), 1e-6f);
+        assertArrayEquals(new float[]{0.4f, 0.5f, 0.6f}, vectors.get(1), 1e-6f);
+        server.verify();
+    }
+
+    @Test
+    public void embed_batch_response_count_mismatch_should_throw() {
+        server.expect(requestTo(ENDPOINT + "/embeddings"))
+                .andRespond(withSuccess(
+                        "{\"data\":[{\"index\":0,\"embedding\":[0.1, 0.2, 0.3]}]}",
+                        MediaType.APPLICATION_JSON));
+
+        assertThrows(IllegalStateException.class,
+                () -> client.embedBatch(java.util.Arrays.asList("a", "b")));
+    }
+
     @Test
     public void model_name_should_reflect_config() {
         assertEquals(MODEL, client.modelName());
@@ -0,0 +1,123 @@
+package com.example.agentweb.infra.refinery.embedding;
+
+import com.example.agentweb.config.refinery.RefineryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 向量缓存装饰器 + Ark 多输入批量: 经本地桩端点走真实 HTTP, 断言往返次数、命中计数与顺序.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class CachingEmbeddingClientTest {
+
+    private StubEmbeddingServer stub;
+    private RefineryProperties props;
+    private SimpleMeterRegistry meters;
+    private AtomicLong clock;
+    private CachingEmbeddingClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new StubEmbeddingServer(4);
+        props = new RefineryProperties();
+        props.getEmbedding().setEndpoint(stub.endpoint());
+        props.getEmbedding().setModel("m");
+        props.getEmbedding().setDimension(4);
+        props.getEmbedding().setBatchSize(3);
+        meters = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        client = new CachingEmbeddingClient(new ArkEmbeddingClient(props, new RestTemplate()),
+                props, meters, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void embed_repeatedQuery_isServedFromCache_afterWhitespaceNormalization() {
+        float[] first = client.embed("订单 超时");
+        float[] second = client.embed("  订单   超时\n");
+
+        assertArrayEquals(stub.vectorOf("订单 超时"), first, 1e-6f);
+        assertArrayEquals(first, second, 0f);
+        assertEquals(List.of(1), stub.requestSizes());
+        assertEquals(1.0, meters.get("refinery.embedding.cache").tag("result", "hit").counter().count());
+        assertEquals(1.0, meters.get("refinery.embedding.cache").tag("result", "miss").counter().count());
+        assertEquals(1L, meters.get("refinery.embedding.latency").tag("op", "single").timer().count());
+    }
+
+    @Test
+    void embed_returnsCopies_soCallerMutationDoesNotPoisonCache() {
+        client.embed("q")[0] = 42f;
+
+        assertArrayEquals(stub.vectorOf("q"), client.embed("q"), 1e-6f);
+    }
+
+    @Test
+    void embed_expiredEntry_isRefetched() {
+        props.getEmbedding().getCache().setTtlMinutes(1);
+        client.embed("q");
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        client.embed("q");
+
+        assertEquals(List.of(1, 1), stub.requestSizes());
+    }
+
+    @Test
+    void embed_lruEvictsLeastRecentlyUsed() {
+        props.getEmbedding().getCache().setMaxEntries(2);
+        client.embed("a");
+        client.embed("b");
+        client.embed("a");
+        client.embed("c");
+
+        client.embed("a");
+        client.embed("b");
+
+        assertEquals(4, stub.requestSizes().size(), "a 最近用过被保留, b 被淘汰后重取");
+    }
+
+    @Test
+    void embedBatch_sendsOnlyMisses_inMultiInputRequests_andKeepsOrder() {
+        client.embed("b");
+        List<String> texts = Arrays.asList("a", "b", "c", "a", "d", "e");
+
+        List<float[]> vectors = client.embedBatch(texts);
+
+        assertEquals(texts.size(), vectors.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertArrayEquals(stub.vectorOf(texts.get(i)), vectors.get(i), 1e-6f, texts.get(i));
+        }
+        assertEquals(List.of(1, 3, 1), stub.requestSizes(), "b 命中缓存, 重复的 a 合并, 余下 4 条按 batch-size=3 分两批");
+        assertEquals(4.0, meters.get("refinery.embedding.batch.size").summary().totalAmount());
+        assertEquals(1L, meters.get("refinery.embedding.latency").tag("op", "batch").timer().count());
+    }
+
+    @Test
+    void cacheDisabled_passesThroughButStillRecordsLatency() {
+        props.getEmbedding().getCache().setEnabled(false);
+
+        client.embed("q");
+        client.embed("q");
+
+        assertEquals(List.of(1, 1), stub.requestSizes());
+        assertEquals(2L, meters.get("refinery.embedding.latency").tag("op", "single").timer().count());
+    }
+}
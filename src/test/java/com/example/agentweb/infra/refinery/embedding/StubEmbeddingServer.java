@@ -0,0 +1,89 @@
+package com.example.agentweb.infra.refinery.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 本地 OpenAI 兼容 {@code /embeddings} 桩: 单条/多输入都支持, 向量由文本内容确定性生成,
+ * 响应 {@code data} 故意倒序并带 {@code index}, 用来验证客户端按 index 归位.
+ * 记录每次请求的输入条数, 供断言往返次数.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+final class StubEmbeddingServer implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final int dimension;
+    private final List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+
+    StubEmbeddingServer(int dimension) throws IOException {
+        this.dimension = dimension;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/embeddings", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    List<Integer> requestSizes() {
+        return requestSizes;
+    }
+
+    /** 桩对某文本返回的向量, 测试用来比对. */
+    float[] vectorOf(String text) {
+        float[] vec = new float[dimension];
+        int seed = text.hashCode();
+        for (int i = 0; i < dimension; i++) {
+            seed = seed * 31 + i;
+            vec[i] = (seed % 1000) / 1000f;
+        }
+        return vec;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode body = mapper.readTree(exchange.getRequestBody());
+        JsonNode input = body.get("input");
+        List<String> texts = new ArrayList<>();
+        if (input.isArray()) {
+            input.forEach(node -> texts.add(node.asText()));
+        } else {
+            texts.add(input.asText());
+        }
+        requestSizes.add(texts.size());
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            List<Float> values = new ArrayList<>(dimension);
+            for (float v : vectorOf(texts.get(i))) {
+                values.add(v);
+            }
+            data.add(Map.of("index", i, "embedding", values));
+        }
+        Collections.reverse(data);
+        byte[] response = mapper.writeValueAsBytes(Map.of("data", data));
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
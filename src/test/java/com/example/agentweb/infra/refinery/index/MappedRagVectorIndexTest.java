@@ -0,0 +1,412 @@
+package com.example.agentweb.infra.refinery.index;
+
+import com.example.agentweb.config.refinery.RefineryProperties;
+import com.example.agentweb.domain.shared.AgentType;
+import com.example.agentweb.domain.refinery.RagChunk;
+import com.example.agentweb.domain.refinery.RecallScope;
+import com.example.agentweb.domain.refinery.RefinedContent;
+import com.example.agentweb.domain.refinery.SourceType;
+import com.example.agentweb.domain.refinery.TrustTier;
+import com.example.agentweb.domain.refinery.TtlCategory;
+import com.example.agentweb.domain.refinery.VectorSearchResult;
+import com.example.agentweb.infra.refinery.persistence.EmbeddingCodec;
+import com.example.agentweb.infra.refinery.persistence.SqliteRagChunkRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存映射向量索引: bitset 预过滤、近似粗筛计数口径、增量发布与写版本驱动重建、各编码近似精度.
+ * Infra 轻量集成, 真实 SQLite + 临时目录映射文件, 不起 Spring.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class MappedRagVectorIndexTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T10:00:00Z");
+    private static final RecallScope CHAT_ONLY = RecallScope.none().with(SourceType.CHAT);
+    private static final int TOP_K = 10;
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbc;
+    private RefineryProperties props;
+    private MappedRagVectorIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource ds = new SQLiteDataSource();
+        ds.setUrl("jdbc:sqlite:" + tempDir.resolve("index-test.db"));
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("CREATE TABLE chat_rag_chunk ("
+                + "id TEXT PRIMARY KEY,"
+                + "source_session_id TEXT NOT NULL,"
+                + "title TEXT NOT NULL,"
+                + "ttl_category TEXT NOT NULL,"
+                + "score REAL NOT NULL,"
+                + "created_at INTEGER NOT NULL,"
+                + "expires_at INTEGER,"
+                + "archived_at INTEGER,"
+                + "agent_type TEXT NOT NULL,"
+                + "embedding_model TEXT NOT NULL,"
+                + "embedding BLOB NOT NULL,"
+                + "source_type TEXT NOT NULL DEFAULT 'CHAT',"
+                + "tier TEXT NOT NULL DEFAULT 'EXPLORATORY')");
+        props = new RefineryProperties();
+        props.getEmbedding().setDimension(3);
+        props.getRecall().getIndex().setPath(tempDir.resolve("index").toString());
+        index = new MappedRagVectorIndex(new SqliteRagChunkRepo(jdbc), props, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    @Test
+    void search_prefiltersByScope_andCountsLikeLinearScan() {
+        insert("near", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.99f, 0.1f, 0f});
+        insert("far", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0f, 0f, 1f});
+        insert("wrong-dim", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f});
+        insert("diag", SourceType.DIAGNOSE, TrustTier.VERIFIED, null, new float[]{1f, 0f, 0f});
+        archived("archived", new float[]{1f, 0f, 0f});
+
+        VectorSearchResult result = index.search(new float[]{2f, 0f, 0f}, CHAT_ONLY, tier -> 0.5d, NOW, TOP_K, 0d);
+
+        assertEquals(4, result.activeCount(), "未归档未过期条目 (含维度不符的)");
+        assertEquals(3, result.scopeMatched(), "DIAGNOSE 不在 CHAT 范围内");
+        assertEquals(1, result.badVectorCount());
+        assertEquals(1, result.belowVectorFloor());
+        assertEquals(1, result.candidates().size());
+        assertEquals("near", result.candidates().get(0).chunkId());
+    }
+
+    @Test
+    void search_expiredEntriesAreSkippedAtReadTime() {
+        insert("short", SourceType.CHAT, TrustTier.EXPLORATORY, NOW.plusSeconds(10), new float[]{1f, 0f, 0f});
+        insert("long", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+
+        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+        VectorSearchResult later = index.search(unit(), CHAT_ONLY, tier -> 0d, NOW.plusSeconds(11), TOP_K, 0d);
+
+        assertEquals(1, later.activeCount());
+        assertEquals("long", later.candidates().get(0).chunkId());
+    }
+
+    @Test
+    void search_isServedFromGeneration_untilInvalidated() {
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        assertEquals(1, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+
+        insert("c2", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        assertEquals(1, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size(),
+                "未通知写版本, 仍读旧一代");
+
+        index.invalidate();
+
+        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+    }
+
+    @Test
+    void deltas_arePublishedWithoutRebuild() {
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        insert("c2", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+        insert("c-ghost", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+
+        index.onSaved(chunk("c3", TrustTier.EXPLORATORY, new float[]{0f, 1f, 0f}));
+        index.onRemoved(List.of("c1"));
+        index.onRetiered("c2", TrustTier.VERIFIED);
+        index.onReplaced(chunk("c3", TrustTier.EXPLORATORY, new float[]{0.9f, 0.43f, 0f}));
+
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY.atLeast(TrustTier.VERIFIED), tier -> 0d,
+                NOW, TOP_K, 0d);
+        assertEquals(2, result.activeCount(), "ghost 未经增量, 不可见 = 没有触发重建");
+        assertEquals(1, result.candidates().size());
+        assertEquals("c2", result.candidates().get(0).chunkId());
+        VectorSearchResult all = index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d);
+        assertEquals("c3", all.candidates().get(1).chunkId());
+        assertEquals(0.902d, all.candidates().get(1).approxCosine(), 1e-2, "重嵌入后按新向量打分");
+    }
+
+    @Test
+    void onExpiredBefore_dropsEntriesWithSamePredicateAsSql() {
+        insert("short", SourceType.CHAT, TrustTier.EXPLORATORY, NOW.plusSeconds(10), new float[]{1f, 0f, 0f});
+        insert("long", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d);
+
+        index.onExpiredBefore(NOW.plusSeconds(10));
+
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d);
+        assertEquals(1, result.activeCount());
+        assertEquals("long", result.candidates().get(0).chunkId());
+    }
+
+    @Test
+    void deltasBeforeFirstBuild_areNoopsAndRebuildSeesDb() {
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+
+        index.onRemoved(List.of("c1"));
+
+        assertEquals(1, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+    }
+
+    @Test
+    void rebuild_keepsOldGenerationFileUntilInFlightSearchFinishes() throws Exception {
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d);
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            // 阈值回调在取到一代之后、扫描之前: 让读者停在旧一代上
+            Future<VectorSearchResult> paused = reader.submit(() -> index.search(unit(), CHAT_ONLY, tier -> {
+                scanning.countDown();
+                awaitQuietly(resume);
+                return 0d;
+            }, NOW, TOP_K, 0d));
+            assertTrue(scanning.await(5, TimeUnit.SECONDS));
+
+            insert("c2", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+            index.invalidate();
+            assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+            assertEquals(2, indexFiles(), "旧一代仍有读者, 映射文件不得关闭删除");
+
+            resume.countDown();
+            assertEquals(1, paused.get(5, TimeUnit.SECONDS).candidates().size(), "在途读者读完整的旧一代");
+            assertEquals(1, indexFiles(), "最后一个读者释放后旧文件删除");
+        } finally {
+            resume.countDown();
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentSearches_duringRepeatedRebuilds_neverFailAndLeaveOneFile() throws Exception {
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        insert("c2", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.9f, 0.43f, 0f});
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean rebuilding = new AtomicBoolean(true);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                results.add(readers.submit(() -> {
+                    int searches = 0;
+                    while (rebuilding.get() || searches == 0) {
+                        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d)
+                                .candidates().size());
+                        searches++;
+                    }
+                    return searches;
+                }));
+            }
+            for (int i = 0; i < 50; i++) {
+                index.invalidate();
+                index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d);
+            }
+            rebuilding.set(false);
+            for (Future<Integer> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            rebuilding.set(false);
+            readers.shutdownNow();
+        }
+
+        assertEquals(1, indexFiles());
+    }
+
+    @Test
+    void search_tierFloorsAreAppliedPerEntry() {
+        insert("verified", SourceType.CHAT, TrustTier.VERIFIED, null, new float[]{0.62f, 0.785f, 0f});
+        insert("exploratory", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.62f, 0.785f, 0f});
+
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY,
+                tier -> tier == TrustTier.VERIFIED ? 0.6d : 0.7d, NOW, TOP_K, 0d);
+
+        assertEquals(1, result.candidates().size());
+        assertEquals("verified", result.candidates().get(0).chunkId());
+        assertEquals(0.62d, result.topRejectedCosine(), 5e-3);
+    }
+
+    @Test
+    void search_candidateCapKeepsHighestApproxCosine() {
+        props.getRecall().getIndex().setMaxCandidates(2);
+        insert("a", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.9f, 0.43f, 0f});
+        insert("b", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.5f, 0.86f, 0f});
+        insert("c", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, 2, 0d);
+
+        assertEquals(1, result.truncated());
+        assertEquals(2, result.candidates().size());
+        assertEquals("c", result.candidates().get(0).chunkId());
+        assertEquals("a", result.candidates().get(1).chunkId());
+        assertNull(result.topRejectedCosine());
+    }
+
+    @Test
+    void search_candidateCapKeepsEntriesThatFusionCouldStillRankIntoTopK() {
+        props.getRecall().getIndex().setMaxCandidates(1);
+        insert("a", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.9f, 0.43f, 0f});
+        insert("b", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.5f, 0.86f, 0f});
+        insert("c", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+
+        // 非向量项最多补 0.2 余弦: a (0.90) 落后第 1 名 (1.0) 不到 0.2+2·margin, 仍可能反超, 超出上限也保留
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, 1, 0.2d);
+
+        assertEquals(1, result.truncated(), "只截掉不可能进 topK 的 b");
+        assertEquals(2, result.candidates().size());
+        assertEquals("c", result.candidates().get(0).chunkId());
+        assertEquals("a", result.candidates().get(1).chunkId());
+    }
+
+    @Test
+    void search_candidatesBelowExactFloorMargin_doNotRaiseTruncationBar() {
+        props.getRecall().getIndex().setMaxCandidates(1);
+        insert("edge", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{0.99f, 0.141f, 0f});
+        insert("next", SourceType.CHAT, TrustTier.VERIFIED, null, new float[]{0.9f, 0.43f, 0f});
+
+        // edge 近似余弦 0.99 只比硬闸高不到 margin, 精确重算可能出局, 不能拿它当截断基准
+        VectorSearchResult result = index.search(unit(), CHAT_ONLY,
+                tier -> tier == TrustTier.EXPLORATORY ? 0.98d : 0d, NOW, 1, 0d);
+
+        assertEquals(0, result.truncated());
+        assertEquals(2, result.candidates().size());
+    }
+
+    @Test
+    void invalidate_rebuildsInBackground_servingOldGenerationAndReplayingConcurrentDeltas() {
+        index.close();
+        List<Runnable> rebuilds = new ArrayList<>();
+        index = new MappedRagVectorIndex(new SqliteRagChunkRepo(jdbc), props, rebuilds::add);
+        insert("c1", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        insert("c2", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size());
+
+        insert("c3", SourceType.CHAT, TrustTier.EXPLORATORY, null, new float[]{1f, 0f, 0f});
+        index.invalidate();
+        index.invalidate();
+
+        assertEquals(1, rebuilds.size(), "重建在途时不重复调度");
+        assertEquals(2, index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates().size(),
+                "新一代建好前继续读旧一代, 检索不等重建");
+        index.onRemoved(List.of("c1"));
+        index.onSaved(chunk("c4", TrustTier.EXPLORATORY, new float[]{1f, 0f, 0f}));
+        assertEquals(List.of("c2", "c4"), ids(index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d)),
+                "重建期间的增量照常作用于旧一代");
+
+        rebuilds.get(0).run();
+
+        assertEquals(List.of("c2", "c3", "c4"), ids(index.search(unit(), CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d)),
+                "新一代读到 c3, 并重放了重建期间的删除与新增");
+        assertEquals(1, rebuilds.size());
+    }
+
+    @Test
+    void everyEncoding_approximatesExactCosineWithinRerankMargin() {
+        int dim = 256;
+        props.getEmbedding().setDimension(dim);
+        java.util.Random random = new java.util.Random(42);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            float[] v = new float[dim];
+            for (int d = 0; d < dim; d++) {
+                v[d] = (float) random.nextGaussian();
+            }
+            vectors.add(v);
+            insert("v" + i, SourceType.CHAT, TrustTier.EXPLORATORY, null, v);
+        }
+        float[] query = vectors.get(0).clone();
+        for (VectorEncoding encoding : VectorEncoding.values()) {
+            props.getRecall().getIndex().setEncoding(encoding.name());
+            index.invalidate();
+            for (VectorSearchResult.Candidate candidate
+                    : index.search(query, CHAT_ONLY, tier -> 0d, NOW, TOP_K, 0d).candidates()) {
+                int i = Integer.parseInt(candidate.chunkId().substring(1));
+                double exact = com.example.agentweb.domain.refinery.CosineSimilarity.cosine(query, vectors.get(i));
+                assertTrue(Math.abs(candidate.approxCosine() - exact) < props.getRecall().getIndex().getRerankMargin(),
+                        encoding + " approx drift too large for " + candidate.chunkId());
+            }
+        }
+    }
+
+    private static List<String> ids(VectorSearchResult result) {
+        List<String> ids = new ArrayList<>();
+        for (VectorSearchResult.Candidate candidate : result.candidates()) {
+            ids.add(candidate.chunkId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private long indexFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir.resolve("index"))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".bin")).count();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static float[] unit() {
+        return new float[]{1f, 0f, 0f};
+    }
+
+    private void insert(String id, SourceType sourceType, TrustTier tier, Instant expiresAt, float[] vec) {
+        jdbc.update("INSERT INTO chat_rag_chunk (id, source_session_id, title, ttl_category, score, "
+                        + "created_at, expires_at, agent_type, embedding_model, embedding, source_type, tier) "
+                        + "VALUES (?, 's', 't', 'GENERAL', 0.5, ?, ?, 'CLAUDE', 'm', ?, ?, ?)",
+                id, NOW.toEpochMilli(), expiresAt == null ? null : expiresAt.toEpochMilli(),
+                EmbeddingCodec.encode(vec), sourceType.name(), tier.name());
+    }
+
+    private static RagChunk chunk(String id, TrustTier tier, float[] vec) {
+        return RagChunk.builder()
+                .id(id)
+                .sourceSessionId("s")
+                .agentType(AgentType.CLAUDE)
+                .content(new RefinedContent("t", Collections.singletonList("sig"), "c", "p", "x"))
+                .score(0.5)
+                .ttlCategory(TtlCategory.GENERAL)
+                .createdAt(NOW)
+                .embeddingModel("m")
+                .embedding(vec)
+                .sourceType(SourceType.CHAT)
+                .tier(tier)
+                .build();
+    }
+
+    private void archived(String id, float[] vec) {
+        insert(id, SourceType.CHAT, TrustTier.EXPLORATORY, null, vec);
+        jdbc.update("UPDATE chat_rag_chunk SET archived_at = ? WHERE id = ?", NOW.toEpochMilli(), id);
+    }
+}
@@ -8,6 +8,7 @@ import com.example.agentweb.domain.refinery.SourceType;
 import com.example.agentweb.domain.refinery.TrustTier;
 import com.example.agentweb.domain.refinery.TtlCategory;
 import com.example.agentweb.config.refinery.RefineryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -18,15 +19,19 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
- * 快照缓存装饰器 (设计方案 §B4): 召回读路径零 SQL, 写路径失效重载,
+ * 快照缓存装饰器 (设计方案 §B4): 召回读路径零 SQL, 写路径增量维护,
  * TTL 到期靠读时过滤, 超软上限自动回落直查. Infra 轻量集成, 真实 SQLite, 不起 Spring.
  *
  * @author zhourui(V33215020)
@@ -42,6 +47,7 @@ class CachingRagChunkRepoTest {
     private JdbcTemplate jdbc;
     private SqliteRagChunkRepo delegate;
     private RefineryProperties props;
+    private SimpleMeterRegistry meters;
     private CachingRagChunkRepo repo;
 
     @BeforeEach
@@ -76,11 +82,12 @@ class CachingRagChunkRepoTest {
                 + "adopt_count INTEGER NOT NULL DEFAULT 0)");
         delegate = spy(new SqliteRagChunkRepo(jdbc));
         props = new RefineryProperties();
-        repo = new CachingRagChunkRepo(delegate, props);
+        meters = new SimpleMeterRegistry();
+        repo = new CachingRagChunkRepo(delegate, props, meters);
     }
 
     @Test
-    void findActive_isServedFromSnapshot_untilWriteInvalidates() {
+    void findActive_isServedFromSnapshot_andSaveAppliesDeltaWithoutReload() {
         repo.save(chunk("c1", null));
         assertEquals(1, repo.findActive(NOW).size());
 
@@ -91,12 +98,70 @@ class CachingRagChunkRepoTest {
 
         repo.save(chunk("c2", null));
 
-        assertEquals(3, repo.findActive(NOW).size(),
-                "save 应失效快照, 重载后连 ghost 一起可见");
+        assertEquals(2, repo.findActive(NOW).size(),
+                "save 只把新行并入快照, 不全量重载 (ghost 仍不可见)");
+        verify(delegate, times(1)).findActiveLimited(any(Instant.class), anyInt());
+    }
+
+    @Test
+    void updateTier_replacesSingleChunkInSnapshot() {
+        repo.save(chunk("c1", null));
+        repo.save(chunk("c2", null));
+        assertEquals(2, repo.findActive(NOW).size());
+
+        repo.updateTier("c1", TrustTier.VERIFIED);
+
+        RagChunk c1 = repo.findActive(NOW).stream()
+                .filter(c -> "c1".equals(c.getId())).findFirst().orElseThrow();
+        assertEquals(TrustTier.VERIFIED, c1.getTier());
+        assertEquals(1.0, meters.get("refinery.chunk.cache.reload").counter().count());
+    }
+
+    @Test
+    void updateEmbedding_replacesVectorAndPrecomputedNorm() {
+        repo.save(chunk("c1", null));
+        assertEquals(1, repo.findActive(NOW).size());
+
+        repo.updateEmbedding("c1", new float[]{3f, 4f}, "m2");
+
+        RagChunk c1 = repo.findActive(NOW).get(0);
+        assertArrayEquals(new float[]{3f, 4f}, c1.getEmbedding());
+        assertEquals(5d, c1.getEmbeddingNorm(), 1e-9);
+        assertEquals("m2", c1.getEmbeddingModel());
+    }
+
+    @Test
+    void deleteBySourceSessionId_dropsOnlyThatSessionsChunks() {
+        repo.save(chunk("c1", null));
+        insertRowBypassingRepo("c-ghost");
+        repo.save(chunk("c2", null));
+        assertEquals(3, repo.findActive(NOW).size());
+
+        repo.deleteBySourceSessionId("s1");
+
+        assertEquals(1, repo.findActive(NOW).size());
+        assertEquals("c-ghost", repo.findActive(NOW).get(0).getId());
     }
 
     @Test
-    void markArchived_invalidatesSnapshot() {
+    void metrics_countReloadsDeltasAndSnapshotSize() {
+        repo.save(chunk("c1", null));
+        repo.findActive(NOW);
+        repo.save(chunk("c2", null));
+        repo.deleteById("c1");
+        repo.markArchived("c-missing", NOW, ArchiveReason.NEGATIVE_VERDICT);
+
+        assertEquals(1.0, meters.get("refinery.chunk.cache.reload").counter().count());
+        assertEquals(1.0, meters.get("refinery.chunk.cache.delta").tag("op", "save").counter().count(),
+                "首次 save 时快照尚未加载, 不计增量");
+        assertEquals(1.0, meters.get("refinery.chunk.cache.delta").tag("op", "delete").counter().count());
+        assertNull(meters.find("refinery.chunk.cache.delta").tag("op", "archive").counter(),
+                "未命中行的归档不产生增量");
+        assertEquals(1.0, meters.get("refinery.chunk.cache.size").gauge().value());
+    }
+
+    @Test
+    void markArchived_dropsChunkFromSnapshot() {
         repo.save(chunk("c1", null));
         repo.save(chunk("c2", null));
         assertEquals(2, repo.findActive(NOW).size());
@@ -107,6 +172,30 @@ class CachingRagChunkRepoTest {
         assertEquals("c2", repo.findActive(NOW).get(0).getId());
     }
 
+    @Test
+    void archiveCommittedDuringRefreshReadBack_isNotOverwrittenByStaleRow() throws Exception {
+        repo.save(chunk("c1", null));
+        assertEquals(1, repo.findActive(NOW).size());
+        Thread archiver = new Thread(() -> repo.markArchived("c1", NOW, ArchiveReason.NEGATIVE_VERDICT));
+        doAnswer(invocation -> {
+            Object stale = invocation.callRealMethod();
+            // 回读之后、发布之前插入一次完整的归档
+            archiver.start();
+            long deadline = System.currentTimeMillis() + 5_000L;
+            while (archiver.getState() != Thread.State.BLOCKED
+                    && archiver.getState() != Thread.State.TERMINATED
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5L);
+            }
+            return stale;
+        }).when(delegate).findById("c1");
+
+        repo.updateTier("c1", TrustTier.VERIFIED);
+        archiver.join(5_000L);
+
+        assertEquals(0, repo.findActive(NOW).size(), "已归档 chunk 不得被回读到的旧行带回快照");
+    }
+
     @Test
     void ttlExpiry_isFilteredAtReadTime_withoutAnyWrite() {
         repo.save(chunk("c-short", NOW.plusSeconds(10)));
@@ -142,10 +231,11 @@ class CachingRagChunkRepoTest {
                 "超软上限不缓存, 绕过写立即可见 = 已回落直查");
         verify(delegate, times(2)).findActiveLimited(eq(NOW), eq(2));
         verify(delegate, times(2)).findActive(NOW);
+        assertEquals(2.0, meters.get("refinery.chunk.cache.bypass").counter().count());
     }
 
     @Test
-    void archiveExpiredBefore_invalidatesSnapshot() {
+    void archiveExpiredBefore_dropsExpiredFromSnapshot() {
         repo.save(chunk("c-short", NOW.plusSeconds(10)));
         assertEquals(1, repo.findActive(NOW).size());
 
@@ -0,0 +1,233 @@
+package com.example.agentweb.infra.refinery.persistence;
+
+import com.example.agentweb.domain.shared.AgentType;
+import com.example.agentweb.domain.refinery.RagChunk;
+import com.example.agentweb.domain.refinery.RagGeneration;
+import com.example.agentweb.domain.refinery.RefinedContent;
+import com.example.agentweb.domain.refinery.TtlCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 影子代: 单元结论可重放, 切换在一个事务内完成且只作用于本代已落结论的会话.
+ * 真实 SQLite, 表结构与 schema.sql 一致.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+public class SqliteRagGenerationRepoTest {
+
+    private static final Instant T0 = Instant.parse("2026-10-17T10:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbc;
+    private SqliteRagGenerationRepo generations;
+    private SqliteRagChunkRepo chunks;
+
+    @BeforeEach
+    public void setUp() {
+        File dbFile = tempDir.resolve("refinery-generation-test.db").toFile();
+        SQLiteDataSource ds = new SQLiteDataSource();
+        ds.setUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("CREATE TABLE chat_rag_chunk ("
+                + "id TEXT PRIMARY KEY,"
+                + "source_session_id TEXT NOT NULL,"
+                + "source_msg_range TEXT,"
+                + "title TEXT NOT NULL,"
+                + "trigger_signals TEXT,"
+                + "context TEXT,"
+                + "process TEXT,"
+                + "conclusion TEXT,"
+                + "ttl_category TEXT NOT NULL,"
+                + "score REAL NOT NULL,"
+                + "created_at INTEGER NOT NULL,"
+                + "expires_at INTEGER,"
+                + "archived_at INTEGER,"
+                + "agent_type TEXT NOT NULL,"
+                + "embedding_model TEXT NOT NULL,"
+                + "embedding BLOB NOT NULL,"
+                + "source_type TEXT NOT NULL DEFAULT 'CHAT',"
+                + "tier TEXT NOT NULL DEFAULT 'EXPLORATORY',"
+                + "env TEXT NOT NULL DEFAULT 'unknown',"
+                + "detail_path TEXT,"
+                + "archive_reason TEXT,"
+                + "trigger_description TEXT,"
+                + "inject_count INTEGER NOT NULL DEFAULT 0,"
+                + "adopt_count INTEGER NOT NULL DEFAULT 0)");
+        jdbc.execute("CREATE TABLE chat_rag_generation ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "kind TEXT NOT NULL,"
+                + "status TEXT NOT NULL,"
+                + "scope_json TEXT,"
+                + "embedding_model TEXT NOT NULL,"
+                + "total INTEGER NOT NULL DEFAULT 0,"
+                + "created_at INTEGER NOT NULL,"
+                + "finished_at INTEGER)");
+        jdbc.execute("CREATE TABLE chat_rag_generation_item ("
+                + "generation INTEGER NOT NULL,"
+                + "item_id TEXT NOT NULL,"
+                + "outcome TEXT NOT NULL,"
+                + "PRIMARY KEY (generation, item_id))");
+        jdbc.execute("CREATE TABLE chat_rag_shadow_chunk ("
+                + "generation INTEGER NOT NULL,"
+                + "item_id TEXT NOT NULL,"
+                + "id TEXT NOT NULL,"
+                + "source_session_id TEXT NOT NULL,"
+                + "source_msg_range TEXT,"
+                + "title TEXT NOT NULL,"
+                + "trigger_signals TEXT,"
+                + "trigger_description TEXT,"
+                + "context TEXT,"
+                + "process TEXT,"
+                + "conclusion TEXT,"
+                + "ttl_category TEXT NOT NULL,"
+                + "score REAL NOT NULL,"
+                + "created_at INTEGER NOT NULL,"
+                + "expires_at INTEGER,"
+                + "archived_at INTEGER,"
+                + "agent_type TEXT NOT NULL,"
+                + "embedding_model TEXT NOT NULL,"
+                + "embedding BLOB NOT NULL,"
+                + "source_type TEXT NOT NULL,"
+                + "tier TEXT NOT NULL,"
+                + "env TEXT NOT NULL,"
+                + "detail_path TEXT,"
+                + "PRIMARY KEY (generation, id))");
+        generations = new SqliteRagGenerationRepo(jdbc);
+        chunks = new SqliteRagChunkRepo(jdbc);
+    }
+
+    @Test
+    public void record_item_replay_should_replace_shadow_chunk_and_progress_counts_should_follow() {
+        RagGeneration gen = generations.open(RagGeneration.Kind.REBUILD, Arrays.asList("s1", "s2", "s3"),
+                "m", 3, T0);
+
+        generations.recordItem(gen.getId(), "s1", RagGeneration.ItemOutcome.SAVED, chunk("c1-a", "s1", T0));
+        generations.recordItem(gen.getId(), "s1", RagGeneration.ItemOutcome.SAVED, chunk("c1-b", "s1", T0));
+        generations.recordItem(gen.getId(), "s2", RagGeneration.ItemOutcome.FAILED, null);
+
+        RagGeneration building = generations.findBuilding(RagGeneration.Kind.REBUILD).orElseThrow();
+        assertEquals(Arrays.asList("s1", "s2", "s3"), building.getScope());
+        assertEquals(3, building.getTotal());
+        assertEquals(2, building.getProcessed());
+        assertEquals(1, building.getFailed());
+        assertEquals(1, building.getShadowChunks(), "同一单元重放应替换而非累加影子 chunk");
+        assertEquals(new HashSet<String>(Arrays.asList("s1", "s2")), generations.findProcessedItems(gen.getId()));
+        assertTrue(chunks.findActive(T0).isEmpty(), "影子 chunk 切换前不进现役集");
+    }
+
+    @Test
+    public void rebuild_swap_should_replace_pre_generation_chunks_of_concluded_sessions_only() {
+        chunks.save(chunk("old-s1", "s1", T0.minusSeconds(3600)));
+        chunks.save(chunk("old-s2", "s2", T0.minusSeconds(3600)));
+        chunks.save(chunk("old-s3", "s3", T0.minusSeconds(3600)));
+        RagGeneration gen = generations.open(RagGeneration.Kind.REBUILD, Arrays.asList("s1", "s2", "s3"),
+                "m", 3, T0);
+        chunks.save(chunk("tick-s1", "s1", T0.plusSeconds(10)));
+        generations.recordItem(gen.getId(), "s1", RagGeneration.ItemOutcome.SAVED, chunk("new-s1", "s1", T0));
+        generations.recordItem(gen.getId(), "s2", RagGeneration.ItemOutcome.DISCARDED, null);
+        generations.recordItem(gen.getId(), "s3", RagGeneration.ItemOutcome.FAILED, null);
+
+        int promoted = chunks.swapGeneration(gen, T0.plusSeconds(60));
+
+        assertEquals(1, promoted);
+        List<String> live = ids(chunks.findActive(T0.plusSeconds(60)));
+        assertEquals(new HashSet<String>(Arrays.asList("new-s1", "tick-s1", "old-s3")), new HashSet<String>(live),
+                "构建开始后写入的 chunk 与失败会话的旧 chunk 应保留");
+        RagGeneration swapped = generations.findRecent(1).get(0);
+        assertEquals(RagGeneration.Status.SWAPPED, swapped.getStatus());
+        assertEquals(T0.plusSeconds(60), swapped.getFinishedAt());
+        assertEquals(0, swapped.getShadowChunks());
+    }
+
+    @Test
+    public void reembed_swap_should_overwrite_vectors_in_place() {
+        chunks.save(chunk("c1", "s1", T0.minusSeconds(3600)));
+        chunks.save(chunk("c2", "s2", T0.minusSeconds(3600)));
+        RagGeneration gen = generations.open(RagGeneration.Kind.REEMBED, Collections.<String>emptyList(),
+                "m2", 2, T0);
+        RagChunk c1 = chunks.findById("c1").orElseThrow();
+        generations.recordItem(gen.getId(), "c1", RagGeneration.ItemOutcome.SAVED,
+                c1.withEmbedding(new float[]{0.9f, 0.8f}, "m2"));
+
+        assertEquals(1, chunks.swapGeneration(gen, T0.plusSeconds(5)));
+
+        RagChunk reembedded = chunks.findById("c1").orElseThrow();
+        assertEquals("m2", reembedded.getEmbeddingModel());
+        assertArrayEquals(new float[]{0.9f, 0.8f}, reembedded.getEmbedding());
+        assertEquals(c1.getCreatedAt(), reembedded.getCreatedAt());
+        assertEquals("m", chunks.findById("c2").orElseThrow().getEmbeddingModel(), "影子集外的 chunk 不动");
+    }
+
+    @Test
+    public void swap_twice_should_throw_and_leave_live_set_untouched() {
+        chunks.save(chunk("old-s1", "s1", T0.minusSeconds(3600)));
+        RagGeneration gen = generations.open(RagGeneration.Kind.REBUILD, Collections.singletonList("s1"),
+                "m", 1, T0);
+        generations.recordItem(gen.getId(), "s1", RagGeneration.ItemOutcome.SAVED, chunk("new-s1", "s1", T0));
+        chunks.swapGeneration(gen, T0.plusSeconds(1));
+        chunks.save(chunk("later-s1", "s1", T0.minusSeconds(10)));
+
+        assertThrows(IllegalStateException.class, () -> chunks.swapGeneration(gen, T0.plusSeconds(2)));
+        assertTrue(chunks.findById("later-s1").isPresent(), "已切换的代再切换应整体回滚");
+    }
+
+    @Test
+    public void abandon_should_drop_shadow_chunks_and_only_apply_once() {
+        RagGeneration gen = generations.open(RagGeneration.Kind.REBUILD, Collections.singletonList("s1"),
+                "m", 1, T0);
+        generations.recordItem(gen.getId(), "s1", RagGeneration.ItemOutcome.SAVED, chunk("new-s1", "s1", T0));
+
+        assertTrue(generations.abandon(gen.getId(), T0.plusSeconds(1)));
+        assertFalse(generations.abandon(gen.getId(), T0.plusSeconds(2)));
+
+        assertFalse(generations.findBuilding(RagGeneration.Kind.REBUILD).isPresent());
+        RagGeneration abandoned = generations.findRecent(10).get(0);
+        assertEquals(RagGeneration.Status.ABANDONED, abandoned.getStatus());
+        assertNotNull(abandoned.getFinishedAt());
+        assertEquals(0, abandoned.getShadowChunks());
+    }
+
+    private static List<String> ids(List<RagChunk> list) {
+        String[] ids = new String[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
+
+    private static RagChunk chunk(String id, String sessionId, Instant createdAt) {
+        return RagChunk.builder()
+                .id(id)
+                .sourceSessionId(sessionId)
+                .agentType(AgentType.CLAUDE)
+                .content(new RefinedContent("t", null, "c", "p", "co"))
+                .score(0.7)
+                .ttlCategory(TtlCategory.GENERAL)
+                .createdAt(createdAt)
+                .embeddingModel("m")
+                .embedding(new float[]{0.1f, 0.2f})
+                .build();
+    }
+}
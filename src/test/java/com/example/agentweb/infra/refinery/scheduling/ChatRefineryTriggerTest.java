@@ -1,6 +1,7 @@
 package com.example.agentweb.infra.refinery.scheduling;
 
 import com.example.agentweb.app.refinery.RefineryAppService;
+import com.example.agentweb.app.refinery.RefineryIngestProgress;
 import com.example.agentweb.domain.chat.SessionRepository;
 import com.example.agentweb.domain.refinery.RagChunkRepository;
 import com.example.agentweb.config.refinery.RefineryProperties;
@@ -19,8 +20,10 @@ import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -55,6 +58,8 @@ public class ChatRefineryTriggerTest {
     public void tick_should_compute_threshold_from_silent_minutes_and_call_app_service() {
         when(sessionRepo.findIdsWithLastMessageBefore(anyLong(), anyString(), anyInt(), anyInt()))
                 .thenReturn(Arrays.asList("sess-1", "sess-2"));
+        when(appService.refineAndIngestAll(eq("tick"), anyList())).thenReturn(
+                new RefineryIngestProgress("tick", 2, 0, 0, 0, 2, 1, 1, 1, 0, 0, NOW, NOW));
 
         scheduler.tick();
 
@@ -71,8 +76,7 @@ public class ChatRefineryTriggerTest {
         assertEquals(3, maxRetries.getValue().intValue());
         assertEquals(5, limit.getValue().intValue());
 
-        verify(appService).refineAndIngest("sess-1");
-        verify(appService).refineAndIngest("sess-2");
+        verify(appService).refineAndIngestAll("tick", Arrays.asList("sess-1", "sess-2"));
     }
 
     @Test
@@ -82,21 +86,20 @@ public class ChatRefineryTriggerTest {
 
         scheduler.tick();
 
-        verify(appService, never()).refineAndIngest(anyString());
+        verify(appService, never()).refineAndIngestAll(anyString(), anyList());
     }
 
     @Test
-    public void tick_when_one_session_throws_should_not_affect_other_sessions() {
+    public void tick_when_ingest_pipeline_throws_should_still_archive_expired_chunks() {
         when(sessionRepo.findIdsWithLastMessageBefore(anyLong(), anyString(), anyInt(), anyInt()))
                 .thenReturn(Arrays.asList("sess-a", "sess-b", "sess-c"));
-        when(appService.refineAndIngest("sess-b"))
+        when(appService.refineAndIngestAll(eq("tick"), anyList()))
                 .thenThrow(new RuntimeException("network down"));
 
         scheduler.tick();
 
-        verify(appService).refineAndIngest("sess-a");
-        verify(appService).refineAndIngest("sess-b");
-        verify(appService).refineAndIngest("sess-c");
+        verify(appService).refineAndIngestAll("tick", Arrays.asList("sess-a", "sess-b", "sess-c"));
+        verify(chunkRepo).archiveExpiredBefore(NOW);
     }
 
     @Test
@@ -106,6 +109,6 @@ public class ChatRefineryTriggerTest {
 
         scheduler.tick();
 
-        verify(appService, never()).refineAndIngest(anyString());
+        verify(appService, never()).refineAndIngestAll(anyString(), anyList());
     }
 }
@@ -195,6 +195,98 @@ class AgentProcessKernelTest {
         assertRuntimeRootEmpty(tempDir.resolve("runtime-stop"));
     }
 
+    @Test
+    void blockingMonitorStreamsLinesBeforeProcessExits() throws Exception {
+        Path primary = Files.createDirectory(tempDir.resolve("primary-blocking"));
+        Path script = script("streaming.sh", "#!/bin/sh\n"
+                + "cat >/dev/null\n"
+                + "printf '%s\\n' \"{\\\"type\\\":\\\"item.completed\\\","
+                + "\\\"item\\\":{\\\"type\\\":\\\"agent_message\\\","
+                + "\\\"text\\\":\\\"first\\\"}}\"\n"
+                + "sleep 1\n"
+                + "printf '%s\\n' '{\"type\":\"turn.completed\"}'\n");
+        RuntimeProcessRegistry registry = new RuntimeProcessRegistry();
+        AgentProcessKernel kernel = blockingKernel(script, "runtime-blocking", registry);
+        AgentExecutionPlan plan = RuntimePlanFixtures.readOnly("exec-blocking", primary,
+                Collections.singletonList(primary));
+        Events events = new Events();
+
+        RuntimeHandle handle = kernel.start(plan, events, new CodexCliDialect(),
+                new AgentCliProperties.Client(), null);
+
+        assertTrue(events.output.await(5L, TimeUnit.SECONDS));
+        assertTrue(kernel.observe(handle).getState() != RuntimeState.TERMINATED,
+                "first output must be delivered while the process is still running");
+        events.awaitTerminal();
+        assertEquals(RuntimeTerminationReason.COMPLETED,
+                kernel.observe(handle).termination().orElseThrow(AssertionError::new).getReason());
+        assertStrictlyIncreasingSequences(events.events);
+        assertRuntimeRootEmpty(tempDir.resolve("runtime-blocking"));
+    }
+
+    @Test
+    void blockingMonitorEnforcesTimeoutAndStopThroughDeadlines() throws Exception {
+        Path primary = Files.createDirectory(tempDir.resolve("primary-blocking-limits"));
+        Path idle = script("blocking-idle.sh", "#!/bin/sh\nsleep 20\n");
+        AgentProcessKernel timeoutKernel = blockingKernel(
+                idle, "runtime-blocking-timeout", new RuntimeProcessRegistry());
+        AgentExecutionPlan timeoutPlan = RuntimePlanFixtures.plan("exec-blocking-timeout", primary,
+                Collections.singletonList(primary), Collections.<Path>emptyList(),
+                SandboxMode.READ_ONLY, Duration.ofMillis(150L), 1024L);
+        Events timeoutEvents = new Events();
+
+        RuntimeHandle timeoutHandle = timeoutKernel.start(timeoutPlan, timeoutEvents);
+        timeoutEvents.awaitTerminal();
+
+        assertEquals(RuntimeTerminationReason.TIMEOUT,
+                timeoutKernel.observe(timeoutHandle).termination()
+                        .orElseThrow(AssertionError::new).getReason());
+
+        Path childPid = tempDir.resolve("blocking-child.pid");
+        Path tree = script("blocking-tree.sh", "#!/bin/sh\n"
+                + "sleep 20 &\n"
+                + "printf '%s' \"$!\" > '" + childPid + "'\n"
+                + "wait\n");
+        AgentProcessKernel stopKernel = blockingKernel(
+                tree, "runtime-blocking-stop", new RuntimeProcessRegistry());
+        Events stopEvents = new Events();
+        RuntimeHandle stopHandle = stopKernel.start(RuntimePlanFixtures.readOnly(
+                "exec-blocking-stop", primary, Collections.singletonList(primary)), stopEvents);
+        awaitFile(childPid);
+        String pid = new String(Files.readAllBytes(childPid), StandardCharsets.UTF_8);
+
+        stopKernel.requestStop(stopHandle);
+
+        stopEvents.awaitTerminal();
+        assertEquals(RuntimeTerminationReason.REQUESTED_STOP,
+                stopKernel.observe(stopHandle).termination()
+                        .orElseThrow(AssertionError::new).getReason());
+        assertEventuallyNotAlive(pid);
+        assertRuntimeRootEmpty(tempDir.resolve("runtime-blocking-stop"));
+    }
+
+    @Test
+    void blockingMonitorFinishesAfterDrainGraceWhenDescendantHoldsStdout() throws Exception {
+        Path primary = Files.createDirectory(tempDir.resolve("primary-blocking-orphan"));
+        Path script = script("orphan-stdout.sh", "#!/bin/sh\n"
+                + "cat >/dev/null\n"
+                + "sleep 6 &\n"
+                + "exit 0\n");
+        AgentProcessKernel kernel = blockingKernel(
+                script, "runtime-blocking-orphan", new RuntimeProcessRegistry());
+        Events events = new Events();
+        long started = System.nanoTime();
+
+        RuntimeHandle handle = kernel.start(RuntimePlanFixtures.readOnly(
+                "exec-blocking-orphan", primary, Collections.singletonList(primary)), events);
+
+        events.awaitTerminal();
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(4L),
+                "drain grace must not wait for the orphaned stdout holder");
+        assertEquals(RuntimeTerminationReason.COMPLETED,
+                kernel.observe(handle).termination().orElseThrow(AssertionError::new).getReason());
+    }
+
     @Test
     void launchesWithExactMcpOverridesAndRedactsResolvedMcpSecret() throws Exception {
         Path primary = Files.createDirectory(tempDir.resolve("primary-mcp"));
@@ -356,6 +448,24 @@ class AgentProcessKernelTest {
                 event.getSafePayload().contains("git push")));
     }
 
+    private AgentProcessKernel blockingKernel(Path command, String runtimeDirectory,
+                                              RuntimeProcessRegistry registry) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("runtime-kernel-test-", 1L).factory());
+        executors.add(executor);
+        AgentProcessKernel kernel = new AgentProcessKernel(
+                new RuntimeCommandFactory(command.toString()),
+                new RuntimeWorkspaceMaterializer(tempDir.resolve(runtimeDirectory)),
+                new RuntimeCapabilityMaterializer(
+                        Collections::emptyList, Collections::emptyList,
+                        reference -> new char[0]),
+                new RuntimeEventDecoder(new RuntimeOutputRedactor()),
+                registry, new RuntimeCleanup(), executor,
+                AgentProcessKernel.MonitorMode.BLOCKING);
+        kernels.add(kernel);
+        return kernel;
+    }
+
     private AgentProcessKernel kernel(Path command, String runtimeDirectory,
                                       RuntimeProcessRegistry registry) {
         return kernel(command, runtimeDirectory, registry,
@@ -493,10 +603,14 @@ class AgentProcessKernelTest {
 
         private final List<RuntimeEvent> events = new CopyOnWriteArrayList<RuntimeEvent>();
         private final CountDownLatch terminal = new CountDownLatch(1);
+        private final CountDownLatch output = new CountDownLatch(1);
 
         @Override
         public void onEvent(RuntimeEvent event) {
             events.add(event);
+            if (event.getType() == RuntimeEventType.OUTPUT) {
+                output.countDown();
+            }
             if (event.getType() == RuntimeEventType.TERMINATED) {
                 terminal.countDown();
             }
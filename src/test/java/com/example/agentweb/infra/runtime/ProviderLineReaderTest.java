@@ -0,0 +1,85 @@
+package com.example.agentweb.infra.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provider 行流式裁剪解析：保留字段与整树解析一致，其余子树跳过。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class ProviderLineReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void keepsDecoderFieldsAndSkipsUnknownSubtrees() throws Exception {
+        String line = "{\"type\":\"item.completed\",\"usage\":{\"input_tokens\":10},"
+                + "\"item\":{\"id\":\"cmd-1\",\"type\":\"command_execution\","
+                + "\"command\":\"ls\",\"aggregated_output\":\"a\\nb\",\"exit_code\":0,"
+                + "\"arguments\":{\"deep\":[[1,2],{\"x\":true}]}}}";
+
+        ObjectNode root = ProviderLineReader.read(line);
+
+        assertNotNull(root);
+        assertFalse(root.has("usage"));
+        assertFalse(root.get("item").has("arguments"));
+        JsonNode full = MAPPER.readTree(line).get("item");
+        for (String field : new String[]{"id", "type", "command", "aggregated_output", "exit_code"}) {
+            assertEquals(full.get(field), root.get("item").get(field), field);
+        }
+    }
+
+    @Test
+    void keepsWholeClaudeMessageContentAndToolInput() throws Exception {
+        String content = "[{\"type\":\"tool_use\",\"id\":\"t1\",\"name\":\"Bash\","
+                + "\"input\":{\"command\":\"ls\",\"opts\":[1,{\"a\":null}]}}]";
+        String line = "{\"type\":\"assistant\",\"message\":{\"id\":\"m1\",\"content\":"
+                + content + "},\"event\":{\"type\":\"content_block_start\",\"index\":1,"
+                + "\"content_block\":{\"type\":\"tool_use\",\"id\":\"t1\",\"name\":\"Bash\","
+                + "\"input\":{\"command\":\"ls\"},\"cache\":{}}}}";
+
+        ObjectNode root = ProviderLineReader.read(line);
+
+        assertEquals(MAPPER.readTree(content), root.path("message").get("content"));
+        assertFalse(root.path("message").has("id"));
+        assertEquals(MAPPER.readTree("{\"command\":\"ls\"}"),
+                root.path("event").path("content_block").get("input"));
+        assertFalse(root.path("event").path("content_block").has("cache"));
+        assertEquals(1, root.path("event").get("index").intValue());
+    }
+
+    @Test
+    void duplicateKeysFollowLastOccurrenceLikeReadTree() {
+        ObjectNode replaced = ProviderLineReader.read(
+                "{\"type\":\"x\",\"item\":{\"text\":\"first\"},\"item\":{\"text\":\"last\"}}");
+        ObjectNode removed = ProviderLineReader.read(
+                "{\"item\":{\"text\":\"first\"},\"item\":\"scalar\",\"type\":\"a\",\"type\":5}");
+
+        assertEquals("last", replaced.path("item").path("text").asText());
+        assertNull(removed.get("item"));
+        assertNull(removed.get("type"));
+    }
+
+    @Test
+    void readsOnlyFirstValueAndRejectsNonObjects() {
+        ObjectNode first = ProviderLineReader.read("{\"type\":\"turn.completed\"} {\"type\":\"x\"");
+
+        assertEquals("turn.completed", first.get("type").asText());
+        assertNull(ProviderLineReader.read(""));
+        assertNull(ProviderLineReader.read("[1,2]"));
+        assertNull(ProviderLineReader.read("\"text\""));
+        assertNull(ProviderLineReader.read("{\"type\":\"a\",\"item\":{\"text\":\"open\"}"));
+        assertNull(ProviderLineReader.read("{\"ignored\":\"bad \\q escape\",\"type\":\"a\"}"));
+        assertTrue(ProviderLineReader.read("{}").isEmpty());
+    }
+}
@@ -23,12 +23,16 @@ import com.example.agentweb.domain.capability.SkillPackage;
 import com.example.agentweb.domain.capability.SkillTrustSource;
 import com.example.agentweb.domain.shared.AgentType;
 import com.example.agentweb.domain.shared.CanonicalHashing;
+import com.example.agentweb.infra.capability.FileSystemSkillCatalog;
+import com.example.agentweb.infra.capability.SkillArtifactSource;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
@@ -40,6 +44,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -123,6 +128,50 @@ class RuntimeCapabilityMaterializerTest {
                 () -> actual.applySecretEnvironment(environment));
     }
 
+    @Test
+    void copiesSkillFilesFromContentAddressedArtifactAsIndependentFilesPerRun()
+            throws Exception {
+        Path skillRoot = Files.createDirectories(tempDir.resolve("catalog/java-tdd"));
+        Files.createDirectories(skillRoot.resolve("references"));
+        Files.writeString(skillRoot.resolve("SKILL.md"), "---\n"
+                + "name: java-tdd\n"
+                + "description: Develop Java changes with TDD\n"
+                + "---\n\n# java-tdd\n");
+        Files.writeString(skillRoot.resolve("references/workflow.md"), "red green refactor");
+        FileSystemSkillCatalog catalog = new FileSystemSkillCatalog(
+                tempDir.resolve("catalog"), SkillTrustSource.APPROVED_USER);
+        SkillPackage skill = catalog.discover().get(0);
+        Path primary = Files.createDirectory(tempDir.resolve("primary-copied"));
+        AgentExecutionPlan plan = plan(primary, binding(skill, null));
+        RuntimeCapabilityMaterializer materializer =
+                new RuntimeCapabilityMaterializer(catalog, Collections::emptyList,
+                        reference -> null,
+                        new SkillArtifactSource(tempDir.resolve("artifacts")));
+
+        Path first = materializer.materialize(plan,
+                new RuntimeWorkspaceMaterializer(tempDir.resolve("runtime-copied-1"))
+                        .materialize(plan)).getSkills().get(0).getEntryPath();
+        Path second = materializer.materialize(plan,
+                new RuntimeWorkspaceMaterializer(tempDir.resolve("runtime-copied-2"))
+                        .materialize(plan)).getSkills().get(0).getEntryPath();
+
+        assertEquals(skill.getEntryContent(), Files.readString(second));
+        assertEquals("red green refactor", Files.readString(
+                second.getParent().resolve("references/workflow.md")));
+        assertNotEquals(Files.readAttributes(first, BasicFileAttributes.class).fileKey(),
+                Files.readAttributes(second, BasicFileAttributes.class).fileKey());
+        assertEquals(PosixFilePermissions.fromString("rw-------"),
+                Files.getPosixFilePermissions(second));
+
+        // 一个 Run 改写自己的副本不影响存储与其他 Run
+        Files.writeString(first, "tampered");
+        Path third = materializer.materialize(plan,
+                new RuntimeWorkspaceMaterializer(tempDir.resolve("runtime-copied-3"))
+                        .materialize(plan)).getSkills().get(0).getEntryPath();
+        assertEquals(skill.getEntryContent(), Files.readString(second));
+        assertEquals(skill.getEntryContent(), Files.readString(third));
+    }
+
     @Test
     void rejectsChangedSkillPackageHashAndRemovesPartialMaterialization()
             throws Exception {
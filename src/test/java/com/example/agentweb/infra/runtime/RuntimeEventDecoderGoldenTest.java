@@ -0,0 +1,118 @@
+package com.example.agentweb.infra.runtime;
+
+import com.example.agentweb.app.runtime.port.RuntimeEvent;
+import com.example.agentweb.app.runtime.port.RuntimeSemanticEvent;
+import com.example.agentweb.app.runtime.port.SandboxMode;
+import com.example.agentweb.app.runtime.port.WorkspaceLayout;
+import com.example.agentweb.domain.runtime.RuntimeCommandPolicy;
+import com.example.agentweb.infra.cli.ClaudeCliDialect;
+import com.example.agentweb.infra.cli.CliDialect;
+import com.example.agentweb.infra.cli.CodexEventNormalizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link RuntimeEventDecoder} 的黄金文件等价性回归。
+ *
+ * <p>逐行解码现有 Codex / e2e NDJSON fixture 与 Claude stream-json fixture，把每个
+ * {@link RuntimeEventDecoder.DecodedEvent} 渲染成规范文本后与
+ * {@code runtime-decoder-golden/expected/*.golden} 整体比对。期望文件由改为流式解析之前的
+ * 整树解码器生成，任何字段投影、识别或工具输入拼接上的偏差都会在这里显形。</p>
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class RuntimeEventDecoderGoldenTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    private static final String PRIMARY_ROOT = "/workspace/primary";
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "codex-fixtures/hello-world.jsonl",
+            "codex-fixtures/long-output.jsonl",
+            "codex-fixtures/resume.jsonl",
+            "codex-fixtures/tool-call.jsonl",
+            "codex-fixtures/tool-call-fail.jsonl",
+            "codex-fixtures/turn-failed-badmodel.jsonl",
+            "tests/e2e/fixtures/codex-json-stub.events.ndjson",
+            "runtime-decoder-golden/workbench-runtime-stub.jsonl",
+            "runtime-decoder-golden/codex-edge-cases.jsonl",
+            "runtime-decoder-golden/claude-stream.jsonl"
+    })
+    void decodedEventsShouldMatchGoldenFile(String fixture) throws IOException {
+        String name = fixture.substring(fixture.lastIndexOf('/') + 1, fixture.lastIndexOf('.'));
+        CliDialect dialect = name.startsWith("claude") ? new ClaudeCliDialect() : null;
+
+        String actual = render(name, readLines(fixture), dialect);
+
+        assertEquals(read("runtime-decoder-golden/expected/" + name + ".golden"), actual,
+                "decoded events drifted from golden file for " + fixture);
+    }
+
+    static String render(String name, List<String> lines, CliDialect dialect)
+            throws JsonProcessingException {
+        RuntimeEventDecoder decoder = new RuntimeEventDecoder(
+                new RuntimeOutputRedactor(), RuntimeCommandPolicy.platformDefault(),
+                new CodexEventNormalizer());
+        WorkspaceLayout layout = new WorkspaceLayout(PRIMARY_ROOT,
+                Collections.singletonList(PRIMARY_ROOT),
+                Collections.singletonList(PRIMARY_ROOT), SandboxMode.WORKSPACE_WRITE);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            long sequence = i + 1L;
+            RuntimeEventDecoder.DecodedEvent decoded = decoder.decode(
+                    "golden-" + name, sequence, lines.get(i), null, layout, dialect);
+            RuntimeEvent event = decoded.getEvent();
+            out.append('#').append(sequence);
+            if (event == null) {
+                out.append(" skipped\n");
+                continue;
+            }
+            out.append(' ').append(event.getType())
+                    .append(" provider=").append(MAPPER.writeValueAsString(decoded.getProviderEventType()))
+                    .append(" turnFailed=").append(decoded.isTurnFailed())
+                    .append(" blocked=").append(decoded.isOperationBlocked())
+                    .append(" payload=").append(MAPPER.writeValueAsString(event.getSafePayload()))
+                    .append(" assistant=").append(MAPPER.writeValueAsString(event.getNormalizedAssistantText()))
+                    .append('\n');
+            for (RuntimeSemanticEvent semantic : event.getSemanticEvents()) {
+                out.append("    ").append(semantic.getEventType()).append(' ')
+                        .append(MAPPER.writeValueAsString(semantic.getData())).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<String> readLines(String fixture) throws IOException {
+        return Arrays.asList(read(fixture).split("\n", -1));
+    }
+
+    /** classpath 优先；e2e fixture 不在 test resources 下，按仓库根目录相对路径读取。 */
+    private static String read(String path) throws IOException {
+        try (InputStream in = RuntimeEventDecoderGoldenTest.class.getClassLoader()
+                .getResourceAsStream(path)) {
+            if (in != null) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        assertTrue(Files.exists(Paths.get(path)), "fixture not found: " + path);
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+}
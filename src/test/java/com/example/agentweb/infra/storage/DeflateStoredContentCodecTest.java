@@ -0,0 +1,128 @@
+package com.example.agentweb.infra.storage;
+
+import com.example.agentweb.app.storage.StoredContentCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 编码存储：短文本与压不动的文本保持原样，重复 JSON 压缩入库，超大内容外置并可回收。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class DeflateStoredContentCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void short_content_should_stay_text() {
+        DeflateStoredContentCodec codec = codec(true, 1 << 20);
+        String shortText = "{\"type\":\"result\"}";
+        String belowThreshold = DeflateStoredContentCodecTest.streamJson(4);
+
+        assertSame(shortText, codec.encode(shortText));
+        assertSame(belowThreshold, codec.encode(belowThreshold));
+        assertNull(codec.encode(null));
+        assertEquals(shortText, codec.decode(shortText));
+        assertEquals(belowThreshold.getBytes(java.nio.charset.StandardCharsets.UTF_8).length,
+                codec.estimateStoredBytes(belowThreshold));
+    }
+
+    @Test
+    void repetitive_stream_json_should_round_trip_through_inline_blob() {
+        DeflateStoredContentCodec codec = codec(true, 1 << 20);
+        String content = streamJson(100);
+
+        Object stored = codec.encode(content);
+
+        assertTrue(stored instanceof byte[]);
+        byte[] encoded = (byte[]) stored;
+        assertEquals(DeflateStoredContentCodec.FORMAT_INLINE, encoded[0]);
+        assertEquals(content.getBytes(java.nio.charset.StandardCharsets.UTF_8).length,
+                DeflateStoredContentCodec.rawLength(encoded));
+        assertTrue(encoded.length * 10 < content.length());
+        assertEquals(encoded.length, codec.estimateStoredBytes(content));
+        assertEquals(content, codec.decode(encoded));
+    }
+
+    @Test
+    void large_content_should_spill_to_blob_store_and_be_swept_once_unreferenced() throws Exception {
+        ContentBlobStore store = new ContentBlobStore(tempDir.resolve("blobs").toString());
+        DeflateStoredContentCodec codec = new DeflateStoredContentCodec(true, 512, 64, store);
+        String content = streamJson(500);
+
+        byte[] encoded = (byte[]) codec.encode(content);
+
+        String hash = DeflateStoredContentCodec.spilledHash(encoded);
+        assertNotNull(hash);
+        assertEquals(DeflateStoredContentCodec.HEADER_BYTES + 64, encoded.length);
+        assertEquals(content, codec.decode(encoded));
+        assertEquals(1L, store.usage().getFiles());
+
+        Files.setLastModifiedTime(store.pathOf(hash), FileTime.from(Instant.parse("2026-01-01T00:00:00Z")));
+        assertEquals(0, store.sweep(Collections.singleton(hash), Instant.now()));
+        assertEquals(1, store.sweep(Collections.<String>emptySet(), Instant.now()));
+        assertEquals(0L, store.usage().getFiles());
+    }
+
+    @Test
+    void disabled_codec_should_still_decode_previously_encoded_rows() {
+        String content = streamJson(50);
+        byte[] encoded = (byte[]) codec(true, 1 << 20).encode(content);
+        DeflateStoredContentCodec disabled = codec(false, 1 << 20);
+
+        assertSame(content, disabled.encode(content));
+        assertEquals(content, disabled.decode(encoded));
+        assertThrows(IllegalStateException.class, () -> StoredContentCodec.PLAIN.decode(encoded));
+    }
+
+    @Test
+    void deduplicated_put_should_refresh_mtime_so_sweep_keeps_the_reused_blob() throws Exception {
+        ContentBlobStore store = new ContentBlobStore(tempDir.resolve("blobs").toString());
+        byte[] content = streamJson(20).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        String hash = store.put(content);
+        Files.setLastModifiedTime(store.pathOf(hash), FileTime.from(Instant.parse("2026-01-01T00:00:00Z")));
+        Instant graceCutoff = Instant.now().minusSeconds(60L);
+
+        // 旧孤儿被新的、尚未提交的行去重复用: 不刷新修改时间就会被回收
+        assertEquals(hash, store.put(content));
+
+        assertEquals(0, store.sweep(Collections.<String>emptySet(), graceCutoff));
+        assertEquals(1L, store.usage().getFiles());
+    }
+
+    @Test
+    void blob_store_should_reject_malformed_hash() {
+        ContentBlobStore store = new ContentBlobStore(tempDir.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> store.get("../../etc/passwd"));
+    }
+
+    private DeflateStoredContentCodec codec(boolean enabled, int spillMinBytes) {
+        return new DeflateStoredContentCodec(enabled, 512, spillMinBytes,
+                new ContentBlobStore(tempDir.resolve("blobs").toString()));
+    }
+
+    static String streamJson(int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("{\"type\":\"stream_event\",\"event\":{\"type\":\"content_block_delta\",\"index\":0,")
+                    .append("\"delta\":{\"type\":\"text_delta\",\"text\":\"第 ").append(i).append(" 段\"}}}\n");
+        }
+        return sb.toString();
+    }
+}
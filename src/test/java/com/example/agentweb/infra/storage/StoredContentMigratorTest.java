@@ -0,0 +1,114 @@
+package com.example.agentweb.infra.storage;
+
+import com.example.agentweb.app.metrics.StorageFootprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 存量迁移与存储报告：真实 SQLite + @TempDir，不起 Spring。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class StoredContentMigratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbc;
+    private DeflateStoredContentCodec codec;
+    private ContentBlobStore blobStore;
+    private StoredContentMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource ds = new SQLiteDataSource();
+        ds.setUrl("jdbc:sqlite:" + tempDir.resolve("storage-test.db"));
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("CREATE TABLE chat_message (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "session_id TEXT, role TEXT, content TEXT NOT NULL, timestamp TEXT)");
+        jdbc.execute("CREATE TABLE chat_run_event (run_id TEXT NOT NULL, seq INTEGER NOT NULL, "
+                + "event_type TEXT NOT NULL, payload TEXT NOT NULL, payload_size INTEGER NOT NULL, "
+                + "created_at INTEGER NOT NULL, PRIMARY KEY (run_id, seq))");
+        jdbc.execute("CREATE TABLE chat_run_output_checkpoint (run_id TEXT NOT NULL, segment_no INTEGER NOT NULL, "
+                + "last_seq INTEGER NOT NULL, last_runtime_sequence INTEGER NOT NULL, output_bytes INTEGER NOT NULL, "
+                + "content TEXT NOT NULL, created_at INTEGER NOT NULL, PRIMARY KEY (run_id, segment_no))");
+        blobStore = new ContentBlobStore(tempDir.resolve("blobs").toString());
+        codec = new DeflateStoredContentCodec(true, 512, 1 << 20, blobStore);
+        migrator = new StoredContentMigrator(jdbc, codec, blobStore);
+    }
+
+    @Test
+    void dry_run_should_estimate_without_rewriting_rows() {
+        String answer = DeflateStoredContentCodecTest.streamJson(60);
+        insertMessage("assistant", answer);
+
+        StoredContentMigrationReport report = migrator.migrate(true, 10);
+
+        assertEquals(1L, report.getScannedRows());
+        assertEquals(1L, report.getEncodedRows());
+        assertTrue(report.getStoredBytes() < report.getRawBytes());
+        assertEquals("text", jdbc.queryForObject("SELECT typeof(content) FROM chat_message", String.class));
+    }
+
+    @Test
+    void migrate_should_encode_assistant_messages_events_and_checkpoints_but_not_user_messages() {
+        String bulk = DeflateStoredContentCodecTest.streamJson(60);
+        insertMessage("user", bulk);
+        for (int i = 0; i < 3; i++) {
+            insertMessage("assistant", bulk);
+        }
+        insertMessage("assistant", "短回答");
+        jdbc.update("INSERT INTO chat_run_event VALUES ('run-1', 1, 'agent_chunk', ?, ?, 0)",
+                bulk, bulk.length());
+        jdbc.update("INSERT INTO chat_run_output_checkpoint VALUES ('run-1', 1, 1, 0, ?, ?, 0)",
+                bulk.length(), bulk);
+
+        StoredContentMigrationReport report = migrator.migrate(false, 2);
+
+        assertEquals(6L, report.getScannedRows());
+        assertEquals(5L, report.getEncodedRows());
+        assertEquals(2, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM chat_message WHERE typeof(content) = 'text'", Integer.class));
+        assertEquals(bulk, codec.decode(jdbc.queryForObject(
+                "SELECT payload FROM chat_run_event", byte[].class)));
+        assertEquals(0L, migrator.migrate(false, 2).getEncodedRows());
+
+        StorageFootprint footprint = new SqliteStorageMetricsQueryService(jdbc, blobStore).footprint();
+        StorageFootprint.Column messages = footprint.getColumns().get(0);
+        assertEquals("chat_message", messages.getTable());
+        assertEquals(1L, messages.getTextRows());
+        assertEquals(3L, messages.getInlineRows());
+        assertTrue(messages.getRatio() < 0.2);
+        assertTrue(footprint.getDatabaseBytes() > 0L);
+    }
+
+    @Test
+    void sweep_should_keep_referenced_blobs_and_remove_orphans() {
+        DeflateStoredContentCodec spilling = new DeflateStoredContentCodec(true, 512, 64, blobStore);
+        String kept = DeflateStoredContentCodecTest.streamJson(400);
+        jdbc.update("INSERT INTO chat_run_event VALUES ('run-1', 1, 'agent_chunk', ?, ?, 0)",
+                spilling.encode(kept), kept.length());
+        spilling.encode(DeflateStoredContentCodecTest.streamJson(500));
+        assertEquals(2L, blobStore.usage().getFiles());
+
+        int deleted = migrator.sweepOrphanBlobs(Instant.now().plusSeconds(60));
+
+        assertEquals(1, deleted);
+        assertEquals(kept, spilling.decode(jdbc.queryForObject("SELECT payload FROM chat_run_event", byte[].class)));
+    }
+
+    private void insertMessage(String role, String content) {
+        jdbc.update("INSERT INTO chat_message (session_id, role, content, timestamp) VALUES ('s1', ?, ?, 't')",
+                role, content);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.agentweb.infra.workbench;
 import com.example.agentweb.app.workbench.attachment.UploadedAttachmentStorageException;
 import com.example.agentweb.app.workbench.attachment.port.StoredUploadedAttachment;
 import com.example.agentweb.app.workbench.attachment.port.UploadedAttachmentStorageRequest;
+import com.example.agentweb.domain.shared.CanonicalHashing;
 import com.example.agentweb.domain.workbench.UploadedAttachmentContentSignature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -10,12 +11,17 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -96,6 +102,102 @@ class FileSystemUploadedConversationAttachmentStorageTest {
                         stored.getSha256(), stored.getSize()));
     }
 
+    @Test
+    void copyShouldNotShareStoredInodeAndTrustRecordedHashUntilStampChanges() throws Exception {
+        Path root = tempDir.resolve("uploads-copy");
+        FileSystemUploadedConversationAttachmentStorage storage =
+                new FileSystemUploadedConversationAttachmentStorage(root, 1024L);
+        byte[] content = "approved".getBytes(StandardCharsets.UTF_8);
+        StoredUploadedAttachment stored = storage.store(
+                new UploadedAttachmentStorageRequest(
+                        new ByteArrayInputStream(content), content.length));
+        Path runtimeDirectory = Files.createDirectory(tempDir.resolve("runtime-copy"));
+        Path storedPath = root.resolve(stored.getStorageKey());
+
+        Path first = runtimeDirectory.resolve("first.txt");
+        storage.copyVerified(stored.getStorageKey(), first,
+                stored.getSha256(), stored.getSize());
+        assertArrayEquals(content, Files.readAllBytes(first));
+        assertNotEquals(fileKey(storedPath), fileKey(first));
+        assertEquals(CanonicalHashing.sha256(content), stored.getSha256());
+
+        // Runtime 与服务同属一个用户, 改回权限改写副本也不能波及已入库对象
+        Files.setPosixFilePermissions(first, PosixFilePermissions.fromString("rw-------"));
+        Files.write(first, "modified".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(content, Files.readAllBytes(storedPath));
+        assertEquals("r--------", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(storedPath)));
+
+        // 同长度篡改并改动 mtime: 记录失效, 重算 Hash 后必须拒绝
+        Files.setPosixFilePermissions(storedPath,
+                PosixFilePermissions.fromString("rw-------"));
+        Files.write(storedPath, "tampered".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(storedPath, FileTime.from(
+                Files.getLastModifiedTime(storedPath).toInstant().plusSeconds(5)));
+        assertThrows(UploadedAttachmentStorageException.class,
+                () -> storage.copyVerified(stored.getStorageKey(),
+                        runtimeDirectory.resolve("second.txt"),
+                        stored.getSha256(), stored.getSize()));
+        assertFalse(Files.exists(runtimeDirectory.resolve("second.txt")));
+    }
+
+    @Test
+    void restartedStorageShouldReverifyUnrecordedObjectOnce() throws Exception {
+        Path root = tempDir.resolve("uploads-restart");
+        byte[] content = "persisted".getBytes(StandardCharsets.UTF_8);
+        StoredUploadedAttachment stored =
+                new FileSystemUploadedConversationAttachmentStorage(root, 1024L)
+                        .store(new UploadedAttachmentStorageRequest(
+                                new ByteArrayInputStream(content), content.length));
+        FileSystemUploadedConversationAttachmentStorage restarted =
+                new FileSystemUploadedConversationAttachmentStorage(root, 1024L);
+        Path runtimeDirectory = Files.createDirectory(tempDir.resolve("runtime-restart"));
+
+        assertThrows(UploadedAttachmentStorageException.class,
+                () -> restarted.copyVerified(stored.getStorageKey(),
+                        runtimeDirectory.resolve("wrong.txt"),
+                        repeat('a'), stored.getSize()));
+        restarted.copyVerified(stored.getStorageKey(),
+                runtimeDirectory.resolve("right.txt"),
+                stored.getSha256(), stored.getSize());
+
+        assertArrayEquals(content,
+                Files.readAllBytes(runtimeDirectory.resolve("right.txt")));
+    }
+
+    @Test
+    void streamedMultiBufferUploadShouldHashAndClassifyLikeWholeContent() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 40_000) {
+            text.append("行内容 line ").append(text.length()).append('\n');
+        }
+        byte[] content = text.toString().getBytes(StandardCharsets.UTF_8);
+        FileSystemUploadedConversationAttachmentStorage storage =
+                new FileSystemUploadedConversationAttachmentStorage(
+                        tempDir.resolve("uploads-large"), 1024L * 1024L);
+
+        StoredUploadedAttachment stored = storage.store(
+                new UploadedAttachmentStorageRequest(
+                        new ByteArrayInputStream(content), content.length));
+        byte[] withControl = content.clone();
+        withControl[withControl.length - 2] = 0x07;
+        StoredUploadedAttachment binary = storage.store(
+                new UploadedAttachmentStorageRequest(
+                        new ByteArrayInputStream(withControl), withControl.length));
+
+        assertEquals(CanonicalHashing.sha256(content), stored.getSha256());
+        assertEquals(content.length, stored.getSize());
+        assertEquals(UploadedAttachmentContentSignature.TEXT,
+                stored.getContentSignature());
+        assertEquals(UploadedAttachmentContentSignature.BINARY_UNKNOWN,
+                binary.getContentSignature());
+    }
+
+    private Object fileKey(Path path) throws Exception {
+        return Files.readAttributes(path, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS).fileKey();
+    }
+
     private String repeat(char value) {
         return String.join("", Collections.nCopies(64,
                 Character.toString(value)));
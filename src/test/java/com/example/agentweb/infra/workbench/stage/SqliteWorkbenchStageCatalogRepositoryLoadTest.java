@@ -0,0 +1,157 @@
+package com.example.agentweb.infra.workbench.stage;
+
+import com.example.agentweb.domain.capability.CapabilityAccess;
+import com.example.agentweb.domain.shared.CanonicalHashing;
+import com.example.agentweb.domain.workbench.RunMode;
+import com.example.agentweb.domain.workbench.stage.ResolvedStageCapabilities;
+import com.example.agentweb.domain.workbench.stage.StageCatalogEditor;
+import com.example.agentweb.domain.workbench.stage.StageCommandReference;
+import com.example.agentweb.domain.workbench.stage.StageCommandSelection;
+import com.example.agentweb.domain.workbench.stage.StageMcpServerReference;
+import com.example.agentweb.domain.workbench.stage.StageMcpServerSelection;
+import com.example.agentweb.domain.workbench.stage.StageSkillReference;
+import com.example.agentweb.domain.workbench.stage.StageSkillSelection;
+import com.example.agentweb.domain.workbench.stage.WorkbenchStageCatalog;
+import com.example.agentweb.domain.workbench.stage.WorkbenchStageDraftContent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stage Catalog 读取延迟基准: 满额 Definition (聚合上限 32) × 多 Revision 下,
+ * 冷加载 (批量查询 + 内存拼装) 与快照命中各自的单次耗时。
+ * 默认 {@code mvn test} 不跑, 需显式打开 {@code perf} 组, 结果经 {@link TestReporter} 输出。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Tag("perf")
+class SqliteWorkbenchStageCatalogRepositoryLoadTest {
+
+    private static final int DEFINITIONS = 32;
+    private static final int REVISIONS_PER_DEFINITION = 24;
+    private static final int ROUNDS = 20;
+    private static final StageCatalogEditor ADMINISTRATOR =
+            StageCatalogEditor.create("admin-1", "Alex");
+    private static final Instant CREATED_AT = Instant.parse("2026-10-17T08:00:00Z");
+
+    @TempDir
+    Path tempDirectory;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDirectory.resolve("stage-catalog-perf.db"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("PRAGMA journal_mode=WAL");
+        SqliteWorkbenchStageCatalogRepositoryTest.createTables(jdbcTemplate);
+        seed(newRepository());
+    }
+
+    @Test
+    void snapshot_hit_should_outpace_cold_load(TestReporter reporter) {
+        // 预热: 让 JIT 与 SQLite 页缓存就位
+        assertEquals(DEFINITIONS, newRepository().find().getDefinitions().size());
+
+        long coldStart = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            newRepository().find();
+        }
+        double coldMillis = (System.nanoTime() - coldStart) / 1_000_000D / ROUNDS;
+
+        SqliteWorkbenchStageCatalogRepository warm = newRepository();
+        warm.find();
+        long warmStart = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            warm.find();
+        }
+        double warmMillis = (System.nanoTime() - warmStart) / 1_000_000D / ROUNDS;
+
+        reporter.publishEntry("revisions",
+                String.valueOf(DEFINITIONS * REVISIONS_PER_DEFINITION));
+        reporter.publishEntry("cold-load-ms", String.format("%.2f", coldMillis));
+        reporter.publishEntry("snapshot-hit-ms", String.format("%.3f", warmMillis));
+        assertEquals(REVISIONS_PER_DEFINITION, warm.find()
+                .requireDefinition("stage-0").getRevisionHistory().size());
+        assertTrue(warmMillis < coldMillis, "warm=" + warmMillis + " cold=" + coldMillis);
+    }
+
+    private SqliteWorkbenchStageCatalogRepository newRepository() {
+        return new SqliteWorkbenchStageCatalogRepository(jdbcTemplate, new ObjectMapper());
+    }
+
+    /** 直接在同一个聚合上连续发布, 避免每轮 find 把种子数据的准备时间拉成平方级。 */
+    private void seed(SqliteWorkbenchStageCatalogRepository repository) {
+        WorkbenchStageCatalog catalog = repository.find();
+        Instant at = CREATED_AT;
+        for (int definition = 0; definition < DEFINITIONS; definition++) {
+            String identifier = "stage-" + definition;
+            int sequence = definition + 1;
+            at = at.plusSeconds(1);
+            catalog.createDraft(identifier, draft(sequence, identifier + " r1"),
+                    ADMINISTRATOR, at);
+            repository.save(catalog, catalog.getCatalogVersion(), identifier, 0L);
+            long definitionVersion = 1L;
+            for (int revision = 1; revision <= REVISIONS_PER_DEFINITION; revision++) {
+                if (revision > 1) {
+                    at = at.plusSeconds(1);
+                    catalog.saveDraft(identifier, definitionVersion,
+                            draft(sequence, identifier + " r" + revision), ADMINISTRATOR, at);
+                    repository.save(catalog, catalog.getCatalogVersion(), identifier,
+                            definitionVersion);
+                    definitionVersion++;
+                }
+                long catalogVersion = catalog.getCatalogVersion();
+                at = at.plusSeconds(1);
+                catalog.publishDraft(identifier, catalogVersion, definitionVersion,
+                        resolved(revision), ADMINISTRATOR, at);
+                repository.save(catalog, catalogVersion, identifier, definitionVersion);
+                definitionVersion++;
+            }
+        }
+    }
+
+    private WorkbenchStageDraftContent draft(int sequenceNumber, String name) {
+        return WorkbenchStageDraftContent.create(
+                sequenceNumber, name, "阶段说明", "遵循阶段规则",
+                Set.of(RunMode.DISCUSS_READ_ONLY),
+                Arrays.asList(new StageCommandSelection("architecture-review", "1.0.0"),
+                        new StageCommandSelection("test-plan", "2.1.0")),
+                Arrays.asList(new StageSkillSelection("java-style", "1.0.0", true)),
+                Arrays.asList(new StageMcpServerSelection("repository-query", "1.0.0", false),
+                        new StageMcpServerSelection("issue-tracker", "3.0.0", true)));
+    }
+
+    private ResolvedStageCapabilities resolved(int revision) {
+        return new ResolvedStageCapabilities(
+                Arrays.asList(
+                        new StageCommandReference("architecture-review", "1.0.0",
+                                CanonicalHashing.sha256("command-" + revision)),
+                        new StageCommandReference("test-plan", "2.1.0",
+                                CanonicalHashing.sha256("test-plan"))),
+                Arrays.asList(new StageSkillReference("java-style", "1.0.0",
+                        CanonicalHashing.sha256("skill"), true)),
+                Arrays.asList(
+                        new StageMcpServerReference("repository-query", "1.0.0",
+                                CanonicalHashing.sha256("mcp"), false,
+                                CapabilityAccess.READ, "STDIO"),
+                        new StageMcpServerReference("issue-tracker", "3.0.0",
+                                CanonicalHashing.sha256("tracker"), true,
+                                CapabilityAccess.READ, "HTTP")));
+    }
+}
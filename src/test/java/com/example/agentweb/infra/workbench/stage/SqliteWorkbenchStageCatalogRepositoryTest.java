@@ -55,7 +55,7 @@ class SqliteWorkbenchStageCatalogRepositoryTest {
         SQLiteDataSource dataSource = new SQLiteDataSource();
         dataSource.setUrl("jdbc:sqlite:" + tempDirectory.resolve("stage-catalog.db"));
         jdbcTemplate = new JdbcTemplate(dataSource);
-        createTables();
+        createTables(jdbcTemplate);
         repository = new SqliteWorkbenchStageCatalogRepository(
                 jdbcTemplate, new ObjectMapper());
     }
@@ -140,9 +140,81 @@ class SqliteWorkbenchStageCatalogRepositoryTest {
         jdbcTemplate.update("UPDATE workbench_stage_definition_revision "
                 + "SET definition_hash = ? WHERE definition_identifier = ?",
                 "0".repeat(64), "solution-design");
+        SqliteWorkbenchStageCatalogRepository coldRepository =
+                new SqliteWorkbenchStageCatalogRepository(
+                        jdbcTemplate, new ObjectMapper());
 
         // When / Then
-        assertThrows(IllegalStateException.class, repository::find);
+        assertThrows(IllegalStateException.class, coldRepository::find);
+    }
+
+    @Test
+    void should_ServeSnapshot_Until_CatalogStampChanges() {
+        // Given
+        publishedCatalog();
+        jdbcTemplate.update("UPDATE workbench_stage_definition_revision "
+                + "SET display_name = ? WHERE definition_identifier = ?",
+                "绕过仓储的修改", "solution-design");
+
+        // When
+        String cached = repository.find().requireDefinition("solution-design")
+                .getCurrentPublishedRevision().getDisplayName();
+        jdbcTemplate.update("UPDATE workbench_stage_catalog SET updated_at = ?",
+                CREATED_AT.plusSeconds(600).toEpochMilli());
+
+        // Then
+        assertEquals("技术方案", cached);
+        assertThrows(IllegalStateException.class, repository::find,
+                "戳变化后应重新加载, 篡改的 Revision 哈希校验失败");
+    }
+
+    @Test
+    void should_ReturnIndependentAggregates_When_SnapshotIsShared() {
+        // Given
+        WorkbenchStageCatalog first = publishedCatalog();
+
+        // When
+        first.saveDraft("solution-design", 2L, draft(25, "未保存的修改"),
+                ADMINISTRATOR, CREATED_AT.plusSeconds(120));
+        WorkbenchStageDefinition reloaded = repository.find()
+                .requireDefinition("solution-design");
+
+        // Then
+        assertFalse(reloaded.hasDraft());
+        assertEquals(2L, reloaded.getVersion());
+    }
+
+    @Test
+    void should_LoadEveryRevisionWithItsOwnCapabilities() {
+        // Given
+        WorkbenchStageCatalog catalog = publishedCatalog();
+        catalog.saveDraft("solution-design", 2L, draft(25, "技术方案 v2"),
+                ADMINISTRATOR, CREATED_AT.plusSeconds(120));
+        repository.save(catalog, 2L, "solution-design", 2L);
+        WorkbenchStageCatalog withDraft = repository.find();
+        withDraft.publishDraft("solution-design", 2L, 3L, new ResolvedStageCapabilities(
+                        Collections.singletonList(new StageCommandReference(
+                                "architecture-review", "1.0.0",
+                                CanonicalHashing.sha256("command"))),
+                        Collections.emptyList(), Collections.singletonList(
+                        new StageMcpServerReference("repository-query", "1.0.0",
+                                CanonicalHashing.sha256("mcp-v2"), false,
+                                CapabilityAccess.READ, "STDIO"))),
+                ADMINISTRATOR, CREATED_AT.plusSeconds(180));
+        repository.save(withDraft, 2L, "solution-design", 3L);
+
+        // When
+        WorkbenchStageDefinition restored = new SqliteWorkbenchStageCatalogRepository(
+                jdbcTemplate, new ObjectMapper()).find()
+                .requireDefinition("solution-design");
+
+        // Then
+        assertEquals(2, restored.getRevisionHistory().size());
+        assertEquals(CanonicalHashing.sha256("mcp"), restored.getRevisionHistory().get(0)
+                .getMcpServerReferences().get(0).getDefinitionHash());
+        assertEquals(CanonicalHashing.sha256("mcp-v2"), restored.getCurrentPublishedRevision()
+                .getMcpServerReferences().get(0).getDefinitionHash());
+        assertEquals(25, restored.getCurrentPublishedRevision().getSequenceNumber());
     }
 
     private WorkbenchStageCatalog publishedCatalog() {
@@ -182,7 +254,7 @@ class SqliteWorkbenchStageCatalogRepositoryTest {
                         CapabilityAccess.READ, "STDIO")));
     }
 
-    private void createTables() {
+    static void createTables(JdbcTemplate jdbcTemplate) {
         jdbcTemplate.execute("CREATE TABLE workbench_stage_catalog ("
                 + "singleton_id INTEGER PRIMARY KEY, catalog_version INTEGER NOT NULL,"
                 + "updated_at INTEGER)");
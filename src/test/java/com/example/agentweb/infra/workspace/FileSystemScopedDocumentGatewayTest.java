@@ -35,6 +35,7 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -123,6 +124,31 @@ class FileSystemScopedDocumentGatewayTest {
         assertTrue(view.isTruncated());
     }
 
+    @Test
+    void listTreeCursorShouldContinueAfterLastVisibleEntryAndSkipSensitiveOnes()
+            throws Exception {
+        Files.write(repository.resolve(".env"), bytes("SECRET=value"));
+        Files.write(repository.resolve("a.txt"), bytes("a"));
+        Files.write(repository.resolve("b.txt"), bytes("b"));
+        Files.write(repository.resolve("c.txt"), bytes("c"));
+        gateway = new FileSystemScopedDocumentGateway(
+                new ScopedPathResolver(), pathPolicy, properties,
+                new DocumentTypeResolver(), new DirectoryListingReader());
+
+        DocumentDirectoryView first = gateway.listTree(scope,
+                new DocumentDirectoryQuery("service/api", "", 2));
+        DocumentDirectoryView second = gateway.listTree(scope,
+                new DocumentDirectoryQuery("service/api", "", 2, first.getNextCursor()));
+
+        assertEquals(Arrays.asList("a.txt", "b.txt"), first.getEntries().stream()
+                .map(entry -> entry.getName()).collect(Collectors.toList()));
+        assertTrue(first.isTruncated());
+        assertEquals(Collections.singletonList("c.txt"), second.getEntries().stream()
+                .map(entry -> entry.getName()).collect(Collectors.toList()));
+        assertFalse(second.isTruncated());
+        assertNull(second.getNextCursor());
+    }
+
     @Test
     void readAndDownloadShouldReturnFullRawHashAndDefensiveSnapshot() throws Exception {
         byte[] text = "# 设计".getBytes(StandardCharsets.UTF_8);
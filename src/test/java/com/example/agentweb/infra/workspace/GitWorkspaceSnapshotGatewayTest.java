@@ -2,6 +2,8 @@ package com.example.agentweb.infra.workspace;
 
 import com.example.agentweb.app.workbench.WorkspaceFailureCode;
 import com.example.agentweb.app.workbench.WorkspaceOperationException;
+import com.example.agentweb.domain.shared.CanonicalHashing;
+import com.example.agentweb.domain.workspace.ChangedFileEvidence;
 import com.example.agentweb.domain.workspace.RepositoryScope;
 import com.example.agentweb.domain.workspace.RepositorySelection;
 import com.example.agentweb.domain.workspace.SnapshotPurpose;
@@ -18,8 +20,13 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -74,6 +81,83 @@ class GitWorkspaceSnapshotGatewayTest {
         assertEquals(NOW, dirty.getCapturedAt());
     }
 
+    @Test
+    void trackedFingerprintsShouldMatchPerPathDiffForEveryEntryShape() throws Exception {
+        Path workspace = Files.createDirectories(tempDir.resolve("fingerprint-workspace"));
+        Path repository = GitWorkspaceTestSupport.repository(workspace, "agent-web");
+        String[] committed = {"plain.txt", "sp ace.txt", "q\"uote.txt", "\u00fcn\u00ef.txt",
+                "bin.dat", "star*.txt", "startle.txt", "mode.sh", "deleted.txt", "moved.txt",
+                "kind", "dir/reverted.txt"};
+        for (String path : committed) {
+            write(repository, path, "original " + path + "\n");
+        }
+        Files.write(repository.resolve("bin.dat"), new byte[]{0, 1, 2, 3});
+        GitWorkspaceTestSupport.git(repository, "add", "-A");
+        GitWorkspaceTestSupport.git(repository, "commit", "-m", "fixtures");
+        for (String path : new String[]{"plain.txt", "sp ace.txt", "q\"uote.txt",
+                "\u00fcn\u00ef.txt", "star*.txt", "startle.txt"}) {
+            write(repository, path, "changed " + path + "\n");
+        }
+        Files.write(repository.resolve("bin.dat"), new byte[]{0, 1, 2, 4});
+        GitWorkspaceTestSupport.git(repository, "update-index", "--chmod=+x", "mode.sh");
+        Files.delete(repository.resolve("deleted.txt"));
+        GitWorkspaceTestSupport.git(repository, "mv", "moved.txt", "renamed.txt");
+        Files.delete(repository.resolve("kind"));
+        Files.createSymbolicLink(repository.resolve("kind"), Path.of("plain.txt"));
+        write(repository, "staged.txt", "staged\n");
+        GitWorkspaceTestSupport.git(repository, "add", "staged.txt");
+        write(repository, "dir/reverted.txt", "staged change\n");
+        GitWorkspaceTestSupport.git(repository, "add", "dir/reverted.txt");
+        write(repository, "dir/reverted.txt", "original dir/reverted.txt\n");
+        write(repository, "untracked.txt", "new\n");
+        RepositoryScope scope = scope(workspace, "agent-web");
+        CountingRunner runner = new CountingRunner(processRunner());
+
+        WorkspaceSnapshot snapshot = gateway(runner).capture(
+                "snapshot-fingerprints", scope, SnapshotPurpose.of("WORKBENCH_RUN_END"));
+
+        List<ChangedFileEvidence> files =
+                snapshot.requireRepository("agent-web").getFiles();
+        assertEquals(15, files.size());
+        Map<String, String> statuses = porcelainStatuses(repository);
+        for (ChangedFileEvidence file : files) {
+            if (!"??".equals(file.getStatus())) {
+                assertEquals(perPathFingerprint(repository, file.getPath(),
+                        statuses.get(file.getPath())), file.getStateFingerprint(), file.getPath());
+            }
+        }
+        // 身份 2 + status + diff + 因重命名补一次 --no-renames + 通配路径单独一次 + 复核身份 2
+        assertEquals(8, runner.getCount());
+    }
+
+    @Test
+    void parallelCaptureShouldMatchSequentialCapture() throws Exception {
+        Path workspace = Files.createDirectories(tempDir.resolve("parallel-workspace"));
+        String[] names = {"repo-a", "repo-b", "repo-c", "repo-d", "repo-e"};
+        for (int index = 0; index < names.length; index++) {
+            Path repository = GitWorkspaceTestSupport.repository(workspace, names[index]);
+            for (int file = 0; file <= index; file++) {
+                write(repository, "README.md", "changed " + file + "\n");
+                write(repository, "new-" + file + ".txt", "new " + file + "\n");
+            }
+        }
+        RepositoryScope scope = scope(workspace, names[0],
+                Arrays.copyOfRange(names, 1, names.length));
+
+        WorkspaceSnapshot parallel = new GitWorkspaceSnapshotGateway(
+                Clock.fixed(NOW, ZoneOffset.UTC), processRunner(), 10_000, 4)
+                .capture("snapshot-parallel", scope, SnapshotPurpose.of("WORKBENCH_RUN_END"));
+        WorkspaceSnapshot sequential = new GitWorkspaceSnapshotGateway(
+                Clock.fixed(NOW, ZoneOffset.UTC), processRunner(), 10_000, 1)
+                .capture("snapshot-sequential", scope, SnapshotPurpose.of("WORKBENCH_RUN_END"));
+
+        assertEquals(sequential.getStateHash(), parallel.getStateHash());
+        for (int index = 0; index < names.length; index++) {
+            assertEquals(names[index], parallel.getRepositories().get(index).getRepositoryKey());
+            assertEquals(index + 2, parallel.requireRepository(names[index]).getFiles().size());
+        }
+    }
+
     @Test
     void captureShouldSupportRepositoryBackedByWorktreeGitFile() throws Exception {
         Path workspace = Files.createDirectories(tempDir.resolve("worktree-snapshot"));
@@ -144,7 +228,7 @@ class GitWorkspaceSnapshotGatewayTest {
     }
 
     private RepositoryScope scope(Path workspace, String primary, String... others) {
-        java.util.List<String> repositories = new java.util.ArrayList<String>();
+        List<String> repositories = new ArrayList<String>();
         repositories.add(primary);
         repositories.addAll(Arrays.asList(others));
         GitWorkspaceInspector inspector = new GitWorkspaceInspector(
@@ -154,6 +238,34 @@ class GitWorkspaceSnapshotGatewayTest {
                 RepositorySelection.of(primary, repositories));
     }
 
+    private static void write(Path repository, String path, String content) throws Exception {
+        Path target = repository.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 指纹按 porcelain 原始两位状态计算；{@link ChangedFileEvidence#getStatus()} 已去掉首尾空格，不能直接复用。
+     */
+    private String perPathFingerprint(Path repository, String path, String rawStatus) {
+        byte[] state = processRunner().execute(repository,
+                "git", "diff", "--binary", "HEAD", "--", path).getOutput();
+        return CanonicalHashing.sha256((rawStatus + ':' + CanonicalHashing.sha256(state))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, String> porcelainStatuses(Path repository) {
+        byte[] output = processRunner().execute(repository, "git", "status", "--porcelain=v1", "-z",
+                "--untracked-files=all", "--no-renames").getOutput();
+        Map<String, String> statuses = new HashMap<String, String>();
+        for (String entry : new String(output, StandardCharsets.UTF_8).split("\0")) {
+            if (entry.length() > 3) {
+                statuses.put(entry.substring(3), entry.substring(0, 2));
+            }
+        }
+        return statuses;
+    }
+
     private GitWorkspaceSnapshotGateway gateway(WorkspaceGitCommandRunner runner) {
         return new GitWorkspaceSnapshotGateway(Clock.fixed(NOW, ZoneOffset.UTC), runner, 10_000);
     }
@@ -162,6 +274,25 @@ class GitWorkspaceSnapshotGatewayTest {
         return new ProcessWorkspaceGitCommandRunner(Duration.ofSeconds(5), 8 * 1024 * 1024);
     }
 
+    static final class CountingRunner implements WorkspaceGitCommandRunner {
+        private final WorkspaceGitCommandRunner delegate;
+        private final AtomicInteger count = new AtomicInteger();
+
+        CountingRunner(WorkspaceGitCommandRunner delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public WorkspaceGitCommandResult execute(Path directory, String... command) {
+            count.incrementAndGet();
+            return delegate.execute(directory, command);
+        }
+
+        int getCount() {
+            return count.get();
+        }
+    }
+
     private static final class HeadMutatingRunner implements WorkspaceGitCommandRunner {
         private final WorkspaceGitCommandRunner delegate;
         private final Path repository;
@@ -0,0 +1,142 @@
+package com.example.agentweb.infra.workspace;
+
+import com.example.agentweb.domain.shared.CanonicalHashing;
+import com.example.agentweb.domain.workspace.ChangedFileEvidence;
+import com.example.agentweb.domain.workspace.RepositoryScope;
+import com.example.agentweb.domain.workspace.RepositorySelection;
+import com.example.agentweb.domain.workspace.SnapshotPurpose;
+import com.example.agentweb.domain.workspace.WorkspaceSnapshot;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snapshot capture latency over a synthetic multi-repository workspace: the former sequential,
+ * one-{@code git diff}-per-file loop against the parallel, single-diff-stream capture. Both must
+ * yield the same per-file fingerprints. Excluded from the default run via the {@code perf} tag;
+ * numbers are published through {@link TestReporter}.
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@Tag("perf")
+class GitWorkspaceSnapshotGatewayThroughputTest {
+
+    private static final int REPOSITORIES = 4;
+    private static final int TRACKED_FILES = 150;
+    private static final Instant NOW = Instant.parse("2026-10-17T10:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private final WorkspaceGitCommandRunner runner =
+            new ProcessWorkspaceGitCommandRunner(Duration.ofSeconds(30), 64 * 1024 * 1024);
+
+    @Test
+    void single_diff_stream_capture_should_outpace_per_file_diffs(TestReporter reporter)
+            throws Exception {
+        Path workspace = Files.createDirectories(tempDir.resolve("synthetic-workspace"));
+        List<String> keys = new ArrayList<String>();
+        for (int index = 0; index < REPOSITORIES; index++) {
+            String key = "repo-" + index;
+            syntheticRepository(workspace, key);
+            keys.add(key);
+        }
+        RepositoryScope scope = new GitWorkspaceInspector(
+                GitWorkspaceTestSupport.allowedUnder(tempDir), 3, 50,
+                Duration.ofSeconds(10), runner).resolve(workspace.toString(),
+                RepositorySelection.of(keys.get(0), keys));
+        GitWorkspaceSnapshotGatewayTest.CountingRunner counting =
+                new GitWorkspaceSnapshotGatewayTest.CountingRunner(runner);
+        GitWorkspaceSnapshotGateway gateway = new GitWorkspaceSnapshotGateway(
+                Clock.fixed(NOW, ZoneOffset.UTC), counting, 10_000);
+        // 预热: 两条路径各跑一次, 让 JIT 与 Git 的对象缓存就位
+        perFileFingerprints(workspace, keys);
+        gateway.capture("warm", scope, SnapshotPurpose.of("WORKBENCH_RUN_END"));
+
+        long start = System.nanoTime();
+        Map<String, String> expected = perFileFingerprints(workspace, keys);
+        long perFileMillis = (System.nanoTime() - start) / 1_000_000L;
+        int before = counting.getCount();
+        start = System.nanoTime();
+        WorkspaceSnapshot snapshot = gateway.capture(
+                "measured", scope, SnapshotPurpose.of("WORKBENCH_RUN_END"));
+        long streamMillis = (System.nanoTime() - start) / 1_000_000L;
+        int processes = counting.getCount() - before;
+
+        reporter.publishEntry("per-file-capture-millis", String.valueOf(perFileMillis));
+        reporter.publishEntry("single-stream-capture-millis", String.valueOf(streamMillis));
+        reporter.publishEntry("single-stream-git-processes", String.valueOf(processes));
+        for (String key : keys) {
+            for (ChangedFileEvidence file : snapshot.requireRepository(key).getFiles()) {
+                assertEquals(expected.get(key + "/" + file.getPath()), file.getStateFingerprint());
+            }
+        }
+        assertEquals(REPOSITORIES * 6, processes);
+        assertTrue(streamMillis < perFileMillis,
+                "single-stream=" + streamMillis + "ms per-file=" + perFileMillis + "ms");
+    }
+
+    private void syntheticRepository(Path workspace, String key) throws Exception {
+        Path repository = GitWorkspaceTestSupport.repository(workspace, key);
+        for (int index = 0; index < TRACKED_FILES; index++) {
+            write(repository, "src/file-" + index + ".txt", "line " + index + "\n");
+        }
+        GitWorkspaceTestSupport.git(repository, "add", "-A");
+        GitWorkspaceTestSupport.git(repository, "commit", "-m", "synthetic");
+        for (int index = 0; index < TRACKED_FILES; index++) {
+            write(repository, "src/file-" + index + ".txt", "changed " + index + "\n");
+        }
+    }
+
+    /**
+     * 采集前的算法：每个仓库顺序执行身份、status、整库 diff，再对每个已跟踪文件单独 {@code git diff}。
+     */
+    private Map<String, String> perFileFingerprints(Path workspace, List<String> keys) {
+        Map<String, String> fingerprints = new HashMap<String, String>();
+        for (String key : keys) {
+            Path root = workspace.resolve(key);
+            runner.execute(root, "git", "symbolic-ref", "--short", "-q", "HEAD");
+            runner.execute(root, "git", "rev-parse", "--verify", "HEAD");
+            byte[] status = runner.execute(root, "git", "status", "--porcelain=v1", "-z",
+                    "--untracked-files=all", "--no-renames").getOutput();
+            runner.execute(root, "git", "diff", "--binary", "HEAD", "--");
+            for (String entry : new String(status, StandardCharsets.UTF_8).split("\0")) {
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                String path = entry.substring(3);
+                byte[] state = runner.execute(root,
+                        "git", "diff", "--binary", "HEAD", "--", path).getOutput();
+                fingerprints.put(key + "/" + path, CanonicalHashing.sha256(
+                        (entry.substring(0, 2) + ':' + CanonicalHashing.sha256(state))
+                                .getBytes(StandardCharsets.UTF_8)));
+            }
+            runner.execute(root, "git", "symbolic-ref", "--short", "-q", "HEAD");
+            runner.execute(root, "git", "rev-parse", "--verify", "HEAD");
+        }
+        return fingerprints;
+    }
+
+    private static void write(Path repository, String path, String content) throws Exception {
+        Path target = repository.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
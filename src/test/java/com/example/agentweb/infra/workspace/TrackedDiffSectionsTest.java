@@ -0,0 +1,90 @@
+package com.example.agentweb.infra.workspace;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 整库 diff 切段：按段头路径归属、引号路径还原、类型变更相邻两段合并，以及各类需要回退的输出。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class TrackedDiffSectionsTest {
+
+    private static final String PLAIN = "diff --git a/sp ace.txt b/sp ace.txt\n"
+            + "index 6178079..e6bfff5 100644\n"
+            + "--- a/sp ace.txt\t\n"
+            + "+++ b/sp ace.txt\t\n"
+            + "@@ -1 +1 @@\n"
+            + "-b\n"
+            + "+diff --git a/fake b/fake\n";
+    private static final String QUOTED = "diff --git \"a/\\303\\274n\\303\\257.txt\" "
+            + "\"b/\\303\\274n\\303\\257.txt\"\n"
+            + "old mode 100644\n"
+            + "new mode 100755\n";
+    private static final String TYPE_DELETED = "diff --git a/kind b/kind\n"
+            + "deleted file mode 100644\n"
+            + "--- a/kind\n"
+            + "+++ /dev/null\n"
+            + "@@ -1 +0,0 @@\n"
+            + "-t\n";
+    private static final String TYPE_ADDED = "diff --git a/kind b/kind\n"
+            + "new file mode 120000\n"
+            + "--- /dev/null\n"
+            + "+++ b/kind\n"
+            + "@@ -0,0 +1 @@\n"
+            + "+plain.txt\n"
+            + "\\ No newline at end of file\n";
+
+    @Test
+    void shouldSplitSectionsByHeaderPath() {
+        TrackedDiffSections sections = parse(PLAIN + QUOTED + TYPE_DELETED + TYPE_ADDED);
+
+        assertTrue(sections.isComplete());
+        assertArrayEquals(bytes(PLAIN), sections.stateOf("sp ace.txt"));
+        assertArrayEquals(bytes(QUOTED), sections.stateOf("ünï.txt"));
+        assertArrayEquals(bytes(TYPE_DELETED + TYPE_ADDED), sections.stateOf("kind"));
+        assertArrayEquals(new byte[0], sections.stateOf("unchanged-against-head.txt"));
+        assertArrayEquals(new byte[0], sections.stateOf("fake"));
+    }
+
+    @Test
+    void shouldDeferPathspecMagicToPerPathCommand() {
+        TrackedDiffSections sections = parse(PLAIN);
+
+        assertNull(sections.stateOf("star*.txt"));
+        assertNull(sections.stateOf("[ab].txt"));
+        assertNull(sections.stateOf(":(top)README.md"));
+    }
+
+    @Test
+    void shouldBeIncompleteWhenSectionsCannotBeAttributedToOnePath() {
+        String renamed = "diff --git a/moved.txt b/renamed.txt\n"
+                + "similarity index 100%\n"
+                + "rename from moved.txt\n"
+                + "rename to renamed.txt\n";
+        String mnemonic = "diff --git c/sp ace.txt w/sp ace.txt\n"
+                + "old mode 100644\n"
+                + "new mode 100755\n";
+
+        assertFalse(parse(PLAIN + renamed).isComplete());
+        assertFalse(parse(mnemonic).isComplete());
+        assertFalse(parse("warning: in the working copy of 'x', LF will be replaced by CRLF\n"
+                + PLAIN).isComplete());
+        assertNull(parse(PLAIN + renamed).stateOf("sp ace.txt"));
+    }
+
+    private static TrackedDiffSections parse(String diff) {
+        return TrackedDiffSections.parse(bytes(diff));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
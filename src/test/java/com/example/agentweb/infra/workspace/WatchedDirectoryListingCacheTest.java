@@ -0,0 +1,113 @@
+package com.example.agentweb.infra.workspace;
+
+import com.example.agentweb.app.fs.DirectoryListing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 目录列举缓存: 命中复用快照, 增删与子项内容变化都使快照失效, LRU 有界。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+class WatchedDirectoryListingCacheTest {
+
+    private static final long EVENT_WAIT_MILLIS = 10_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private Path directory;
+    private WatchedDirectoryListingCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createDirectory(tempDir.resolve("listing")).toRealPath();
+        cache = new WatchedDirectoryListingCache(new DirectoryListingReader(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void repeatedListingShouldReuseSnapshotAndSkipSymbolicLinks() throws Exception {
+        Files.createDirectory(directory.resolve("src"));
+        Files.write(directory.resolve("a.txt"), bytes("aa"));
+        Files.createSymbolicLink(directory.resolve("link.txt"), directory.resolve("a.txt"));
+
+        DirectoryListing first = cache.list(directory);
+        DirectoryListing second = cache.list(directory);
+
+        assertSame(first, second);
+        assertEquals(List.of("src", "a.txt"), names(first));
+        assertEquals(2L, first.getEntries().get(1).getSize());
+    }
+
+    @Test
+    void createdEntryShouldBeVisibleOnTheNextListing() throws Exception {
+        DirectoryListing before = cache.list(directory);
+
+        Files.write(directory.resolve("new.log"), bytes("x"));
+        DirectoryListing after = cache.list(directory);
+
+        assertNotSame(before, after);
+        assertEquals(List.of("new.log"), names(after));
+    }
+
+    @Test
+    void modifiedChildContentShouldInvalidateThroughWatchEvents() throws Exception {
+        Path child = directory.resolve("app.log");
+        Files.write(child, bytes("1"));
+        DirectoryListing before = cache.list(directory);
+
+        // 只改内容: 目录 mtime 不变, 只能靠 MODIFY 事件失效
+        Files.write(child, bytes("12345"));
+        long deadline = System.currentTimeMillis() + EVENT_WAIT_MILLIS;
+        DirectoryListing after = cache.list(directory);
+        while (after == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+            after = cache.list(directory);
+        }
+
+        assertNotSame(before, after);
+        assertEquals(5L, after.getEntries().get(0).getSize());
+    }
+
+    @Test
+    void leastRecentlyUsedDirectoryShouldBeEvictedBeyondCapacity() throws Exception {
+        Path second = Files.createDirectory(tempDir.resolve("second")).toRealPath();
+        Path third = Files.createDirectory(tempDir.resolve("third")).toRealPath();
+
+        DirectoryListing first = cache.list(directory);
+        cache.list(second);
+        cache.list(third);
+
+        assertEquals(2, cache.size());
+        assertNotSame(first, cache.list(directory));
+        assertTrue(cache.size() <= 2);
+    }
+
+    private static List<String> names(DirectoryListing listing) {
+        return listing.getEntries().stream()
+                .map(DirectoryListing.Entry::getName).collect(Collectors.toList());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.agentweb.interfaces;
 
 import com.example.agentweb.app.ChatAppService;
+import com.example.agentweb.app.ChatMessagePage;
 import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionQueryService;
 import com.example.agentweb.app.StartSessionCommand;
@@ -245,6 +246,30 @@ class ChatControllerTest {
                 .andExpect(jsonPath("$[1].recall").value("{\"query\":\"x\",\"hits\":[]}"));
     }
 
+    @Test
+    void getMessagePage_should_pass_cursor_and_expose_summary_flag() throws Exception {
+        when(sessionQueryService.findMessagePage("sess-1", 9L, 2)).thenReturn(new ChatMessagePage(
+                Arrays.asList(
+                        new ChatMessageView(7L, "user", "q", "2026-05-26T10:01:00Z", null),
+                        new ChatMessageView(8L, "assistant", "preview", "2026-05-26T10:02:00Z", null, true)),
+                7L));
+
+        mvc.perform(get("/api/chat/session/sess-1/message-page").param("beforeId", "9").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextBeforeId").value(7))
+                .andExpect(jsonPath("$.messages[0].summarized").doesNotExist())
+                .andExpect(jsonPath("$.messages[1].summarized").value(true));
+    }
+
+    @Test
+    void getMessage_should_return_400_when_message_not_visible() throws Exception {
+        when(sessionQueryService.findMessageView("sess-1", 5L)).thenReturn(null);
+
+        mvc.perform(get("/api/chat/session/sess-1/messages/5"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("5")));
+    }
+
     @Test
     void deleteSession_should_return_success() throws Exception {
         mvc.perform(delete("/api/chat/session/sess-1"))
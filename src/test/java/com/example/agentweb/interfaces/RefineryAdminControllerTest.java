@@ -8,9 +8,12 @@ import com.example.agentweb.app.refinery.RefineryAdminQueryService;
 import com.example.agentweb.app.refinery.RefineryChunkPage;
 import com.example.agentweb.app.refinery.RefineryChunkView;
 import com.example.agentweb.app.refinery.RefineryDeleteResult;
+import com.example.agentweb.app.refinery.RefineryGenerationProgress;
+import com.example.agentweb.app.refinery.RefineryIngestProgress;
 import com.example.agentweb.infra.auth.AuthProperties;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.Collections;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -77,14 +80,14 @@ class RefineryAdminControllerTest {
 
     @Test
     void rebuildRecent_default_should_return_200_with_summary() throws Exception {
-        when(rebuildService.rebuildRecent(7)).thenReturn(RebuildResult.started(7, 3, 10));
+        when(rebuildService.rebuildRecent(7)).thenReturn(RebuildResult.started(7, 3, 10L));
 
         mvc.perform(post("/api/refinery/rebuild-recent"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.started").value(true))
                 .andExpect(jsonPath("$.days").value(7))
                 .andExpect(jsonPath("$.matchedSessions").value(3))
-                .andExpect(jsonPath("$.chunksDeleted").value(10))
+                .andExpect(jsonPath("$.generation").value(10))
                 .andExpect(jsonPath("$.queued").value(3));
 
         verify(rebuildService).rebuildRecent(7);
@@ -92,7 +95,7 @@ class RefineryAdminControllerTest {
 
     @Test
     void rebuildRecent_custom_days_should_passthrough() throws Exception {
-        when(rebuildService.rebuildRecent(14)).thenReturn(RebuildResult.started(14, 0, 0));
+        when(rebuildService.rebuildRecent(14)).thenReturn(RebuildResult.started(14, 0, 1L));
 
         mvc.perform(post("/api/refinery/rebuild-recent").param("days", "14"))
                 .andExpect(status().isOk())
@@ -103,7 +106,7 @@ class RefineryAdminControllerTest {
 
     @Test
     void rebuildRecent_busy_should_return_409() throws Exception {
-        when(rebuildService.rebuildRecent(7)).thenReturn(RebuildResult.busy(7, 2, 0));
+        when(rebuildService.rebuildRecent(7)).thenReturn(RebuildResult.busy(7, 2));
 
         mvc.perform(post("/api/refinery/rebuild-recent"))
                 .andExpect(status().isConflict())
@@ -131,6 +134,37 @@ class RefineryAdminControllerTest {
         verify(rebuildService, never()).rebuildRecent(anyInt());
     }
 
+    @Test
+    void ingestProgress_should_return_latest_run_per_origin() throws Exception {
+        when(refineryAppService.ingestProgress()).thenReturn(Collections.singletonList(
+                new RefineryIngestProgress("rebuild", 40, 3, 2, 1, 12, 8, 6, 2, 1, 1,
+                        Instant.parse("2026-10-17T10:00:00Z"), null)));
+
+        mvc.perform(get("/api/refinery/ingest-progress"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].origin").value("rebuild"))
+                .andExpect(jsonPath("$[0].running").value(true))
+                .andExpect(jsonPath("$[0].total").value(40))
+                .andExpect(jsonPath("$[0].scoring").value(3))
+                .andExpect(jsonPath("$[0].awaitingEmbedding").value(2))
+                .andExpect(jsonPath("$[0].saved").value(6));
+    }
+
+    @Test
+    void generations_should_return_progress_per_generation() throws Exception {
+        when(rebuildService.generations()).thenReturn(Collections.singletonList(
+                new RefineryGenerationProgress(5L, "REBUILD", "BUILDING", "qwen3-embedding",
+                        40, 12, 1, 9, Instant.parse("2026-10-17T10:00:00Z"), null)));
+
+        mvc.perform(get("/api/refinery/generations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].kind").value("REBUILD"))
+                .andExpect(jsonPath("$[0].status").value("BUILDING"))
+                .andExpect(jsonPath("$[0].processed").value(12))
+                .andExpect(jsonPath("$[0].shadowChunks").value(9));
+    }
+
     @Test
     void listChunks_default_should_return_200_with_page_and_active_status() throws Exception {
         when(queryService.findChunks(1, 20, "all")).thenReturn(new RefineryChunkPage(
@@ -1,5 +1,6 @@
 package com.example.agentweb.interfaces;
 
+import com.example.agentweb.app.ChatMessagePage;
 import com.example.agentweb.app.ChatMessageView;
 import com.example.agentweb.app.ChatSessionQueryService;
 import com.example.agentweb.app.SharedSessionView;
@@ -14,6 +15,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -130,6 +132,39 @@ class ShareControllerTest {
                 .andExpect(jsonPath("$.messages[1].recall").value("{\"query\":\"x\",\"hits\":[]}"));
     }
 
+    @Test
+    void getShared_with_limit_should_return_newest_page_and_cursor() throws Exception {
+        SharedSessionView view = new SharedSessionView("debug session", "CODEX", "2026-05-26T08:00:00Z",
+                Collections.singletonList(new ChatMessageView(
+                        5L, "assistant", "preview", "2026-05-26T08:02:00Z", null, true)),
+                5L);
+        when(sessionQueryService.findSharedView("tok", 30)).thenReturn(view);
+
+        mvc.perform(get("/api/share/tok").param("limit", "30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextBeforeId").value(5))
+                .andExpect(jsonPath("$.messages[0].summarized").value(true));
+    }
+
+    @Test
+    void getSharedMessages_should_page_by_cursor_and_expand_single_message() throws Exception {
+        when(sessionQueryService.findSharedMessagePage("tok", 5L, 30)).thenReturn(new ChatMessagePage(
+                Collections.singletonList(new ChatMessageView(4L, "user", "q", "2026-05-26T08:01:00Z", null)),
+                null));
+        when(sessionQueryService.findSharedMessageView("tok", 5L)).thenReturn(
+                new ChatMessageView(5L, "assistant", "full", "2026-05-26T08:02:00Z", null));
+
+        mvc.perform(get("/api/share/tok/messages").param("beforeId", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].id").value(4))
+                .andExpect(jsonPath("$.nextBeforeId").doesNotExist());
+        mvc.perform(get("/api/share/tok/messages/5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value("full"));
+        mvc.perform(get("/api/share/nope/messages/5"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getShared_should_return_400_when_token_unknown() throws Exception {
         when(sessionQueryService.findSharedView("nope")).thenReturn(null);
@@ -0,0 +1,63 @@
+package com.example.agentweb.interfaces;
+
+import com.example.agentweb.app.metrics.StorageFootprint;
+import com.example.agentweb.app.metrics.StorageMetricsQueryService;
+import com.example.agentweb.infra.auth.AuthProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 存储占用报告接口切片测试。
+ *
+ * @author zhourui(V33215020)
+ * @since 2026-10-17
+ */
+@WebMvcTest(StorageMetricsController.class)
+@Import(GlobalExceptionHandler.class)
+class StorageMetricsControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private StorageMetricsQueryService queryService;
+    @MockBean
+    private AuthProperties authProperties;
+    @MockBean
+    private com.example.agentweb.app.auth.AuthAppService authAppService;
+    @MockBean
+    private com.example.agentweb.infra.auth.ThreadLocalUserContext userContext;
+    @MockBean
+    private com.example.agentweb.domain.auth.ManualSessionRepository manualSessionRepository;
+
+    @Test
+    void footprint_should_return_per_column_ratio_and_blob_usage() throws Exception {
+        StorageFootprint footprint = new StorageFootprint();
+        StorageFootprint.Column column = new StorageFootprint.Column();
+        column.setTable("chat_run_event");
+        column.setColumn("payload");
+        column.setInlineRows(3L);
+        column.setRawBytes(4000L);
+        column.setStoredBytes(1000L);
+        column.setRatio(0.25);
+        footprint.getColumns().add(column);
+        footprint.setBlobFiles(2L);
+        footprint.setBlobBytes(512L);
+        when(queryService.footprint()).thenReturn(footprint);
+
+        mvc.perform(get("/api/metrics/storage"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.columns[0].table").value("chat_run_event"))
+                .andExpect(jsonPath("$.columns[0].ratio").value(0.25))
+                .andExpect(jsonPath("$.blobFiles").value(2));
+    }
+}
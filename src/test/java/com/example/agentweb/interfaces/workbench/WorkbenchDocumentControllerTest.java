@@ -87,7 +87,8 @@ class WorkbenchDocumentControllerTest {
         mvc.perform(get(BASE + "/tree", WORKBENCH_ID)
                         .param("repositoryKey", "service/api")
                         .param("path", "docs")
-                        .param("limit", "50"))
+                        .param("limit", "50")
+                        .param("cursor", "ZC8wLzAvZG9jcw"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.repositoryKey").value("service/api"))
                 .andExpect(jsonPath("$.path").value("docs"))
@@ -110,6 +111,7 @@ class WorkbenchDocumentControllerTest {
         assertEquals("service/api", query.getValue().getRepositoryKey());
         assertEquals("docs", query.getValue().getRelativePath());
         assertEquals(50, query.getValue().getLimit());
+        assertEquals("ZC8wLzAvZG9jcw", query.getValue().getCursor());
     }
 
     @Test